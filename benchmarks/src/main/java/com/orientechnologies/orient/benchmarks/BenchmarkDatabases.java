@@ -0,0 +1,74 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.benchmarks;
+
+import java.io.File;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+
+/**
+ * Creates the databases used by the benchmarks. Databases on disk are created under the directory set by the
+ * <code>benchmarks.directory</code> system property, by default the temporary directory of the JVM, and are always created empty
+ * so every run generates the same dataset.
+ */
+public class BenchmarkDatabases {
+  public static final String MEMORY          = "memory";
+  public static final String MEMORY_OFF_HEAP = "memoryOffHeap";
+  public static final String PLOCAL          = "plocal";
+
+  private BenchmarkDatabases() {
+  }
+
+  public static File getDirectory() {
+    final File directory = new File(System.getProperty("benchmarks.directory", System.getProperty("java.io.tmpdir")),
+        "orientdb-benchmarks");
+    directory.mkdirs();
+    return directory;
+  }
+
+  /**
+   * Creates an empty database, dropping the one left by a previous run if any.
+   *
+   * @param iStorageType
+   *          {@link #MEMORY}, {@link #MEMORY_OFF_HEAP} or {@link #PLOCAL}
+   * @param iName
+   *          Name of the database
+   */
+  public static ODatabaseDocumentTx create(final String iStorageType, final String iName) {
+    final String url;
+    if (MEMORY.equals(iStorageType))
+      url = "memory:" + iName;
+    else if (MEMORY_OFF_HEAP.equals(iStorageType))
+      url = "memory:" + iName + "?offHeap=true";
+    else if (PLOCAL.equals(iStorageType))
+      url = "plocal:" + new File(getDirectory(), iName).getAbsolutePath();
+    else
+      throw new IllegalArgumentException("Storage type '" + iStorageType + "' not supported by benchmarks");
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+
+    return new ODatabaseDocumentTx(url).create();
+  }
+
+  public static void drop(final ODatabaseDocumentTx iDatabase) {
+    if (iDatabase != null && !iDatabase.isClosed())
+      iDatabase.drop();
+  }
+}
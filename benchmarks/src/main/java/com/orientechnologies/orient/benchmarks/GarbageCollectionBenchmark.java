@@ -0,0 +1,121 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Compares the cost of the garbage collections with a memory database kept in Java objects and with one kept in off-heap pages.
+ * <code>fullCollection</code> measures the pause of a full collection while the database is loaded, <code>readAndUpdate</code>
+ * measures a mixed workload: run it with <code>-prof gc</code> to see the number and the time of the collections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xmx2g" })
+public class GarbageCollectionBenchmark {
+  @Param({ BenchmarkDatabases.MEMORY, BenchmarkDatabases.MEMORY_OFF_HEAP })
+  public String               storage;
+
+  @Param({ "500000" })
+  public int                  records;
+
+  @Param({ "512" })
+  public int                  documentSize;
+
+  private ODatabaseDocumentTx db;
+  private int                 clusterId;
+  private long[]              positions;
+  private String              payload;
+  private Random              random;
+
+  @Setup
+  public void setup() {
+    // RECORD CACHES WOULD KEEP A COPY OF THE RECORDS IN THE HEAP ANYWAY
+    OGlobalConfiguration.CACHE_LEVEL1_ENABLED.setValue(false);
+    OGlobalConfiguration.CACHE_LEVEL2_ENABLED.setValue(false);
+
+    db = BenchmarkDatabases.create(storage, "garbageCollectionBenchmark");
+    db.getMetadata().getSchema().createClass("Item");
+    clusterId = db.getClusterIdByName("item");
+
+    final char[] chars = new char[documentSize];
+    for (int i = 0; i < chars.length; i++)
+      chars[i] = (char) ('a' + i % 26);
+    payload = new String(chars);
+    random = new Random(42);
+
+    // POSITIONS OF PAGINATED CLUSTERS ARE NOT CONTIGUOUS
+    positions = new long[records];
+    db.declareIntent(new OIntentMassiveInsert());
+    for (int i = 0; i < records; i++)
+      positions[i] = new ODocument("Item").field("id", i).field("payload", payload).save().getIdentity().getClusterPosition()
+          .longValue();
+    db.declareIntent(null);
+  }
+
+  @Setup(Level.Iteration)
+  public void activate() {
+    ODatabaseRecordThreadLocal.INSTANCE.set(db);
+  }
+
+  @TearDown
+  public void tearDown() {
+    BenchmarkDatabases.drop(db);
+
+    OGlobalConfiguration.CACHE_LEVEL1_ENABLED.setValue(true);
+    OGlobalConfiguration.CACHE_LEVEL2_ENABLED.setValue(true);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public void fullCollection() {
+    System.gc();
+  }
+
+  @Benchmark
+  public ODocument readAndUpdate() {
+    final ODocument document = db.load(new ORecordId(clusterId, OClusterPositionFactory.INSTANCE.valueOf(positions[random
+        .nextInt(records)])));
+    return document.field("payload", payload.substring(random.nextInt(16))).save();
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OSimpleKeyIndexDefinition;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+
+/**
+ * Puts and gets integer keys of a manual index on a plocal storage. The index type selects the engine: UNIQUE uses the MVRB-Tree,
+ * UNIQUE_HASH_INDEX the local hash table and UNIQUE_SBTREE the paginated B+tree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class IndexEngineBenchmark {
+  @Param({ "UNIQUE", "UNIQUE_HASH_INDEX", "UNIQUE_SBTREE" })
+  public String               type;
+
+  @Param({ "100000" })
+  public int                  keys;
+
+  private ODatabaseDocumentTx db;
+  private OIndex<Object>      index;
+  private ORecordId[]         rids;
+  private Random              random;
+
+  @SuppressWarnings("unchecked")
+  @Setup
+  public void setup() {
+    db = BenchmarkDatabases.create(BenchmarkDatabases.PLOCAL, "indexEngineBenchmark");
+    index = (OIndex<Object>) db.getMetadata().getIndexManager()
+        .createIndex("benchmark", type, new OSimpleKeyIndexDefinition(OType.INTEGER), null, null);
+
+    rids = new ORecordId[keys];
+    for (int key = 0; key < keys; key++) {
+      rids[key] = new ORecordId(1, OClusterPositionFactory.INSTANCE.valueOf(key));
+      index.put(key, rids[key]);
+    }
+
+    random = new Random(42);
+  }
+
+  @Setup(Level.Iteration)
+  public void activate() {
+    // THE ITERATIONS CAN RUN IN A THREAD OTHER THAN THE ONE THAT CREATED THE DATABASE
+    ODatabaseRecordThreadLocal.INSTANCE.set(db);
+  }
+
+  @TearDown
+  public void tearDown() {
+    BenchmarkDatabases.drop(db);
+  }
+
+  @Benchmark
+  public OIndex<Object> put() {
+    // KEYS ARE PUT AGAIN WITH THEIR OWN RID: THE SIZE OF THE INDEX DOES NOT GROW AND UNIQUE CONSTRAINTS ARE NOT VIOLATED
+    final int key = random.nextInt(keys);
+    return index.put(key, rids[key]);
+  }
+
+  @Benchmark
+  public Object get() {
+    return index.get(random.nextInt(keys));
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.benchmarks;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.OPhysicalPosition;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedCluster;
+import com.orientechnologies.orient.core.version.ORecordVersion;
+import com.orientechnologies.orient.core.version.OVersionFactory;
+
+/**
+ * Creates, reads and updates raw records in a cluster of a plocal storage, without the record and database layers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class LocalPaginatedClusterBenchmark {
+  @Param({ "100000" })
+  public int                     records;
+
+  @Param({ "128", "1024" })
+  public int                     recordSize;
+
+  private ODatabaseDocumentTx    db;
+  private OLocalPaginatedCluster cluster;
+  private OClusterPosition[]     positions;
+  private byte[]                 content;
+  private ORecordVersion         version;
+  private Random                 random;
+
+  @Setup
+  public void setup() throws IOException {
+    db = BenchmarkDatabases.create(BenchmarkDatabases.PLOCAL, "localPaginatedClusterBenchmark");
+    final int clusterId = db.addCluster("benchmark", OStorage.CLUSTER_TYPE.PHYSICAL);
+    cluster = (OLocalPaginatedCluster) db.getStorage().getClusterById(clusterId);
+
+    random = new Random(42);
+    content = new byte[recordSize];
+    random.nextBytes(content);
+    version = OVersionFactory.instance().createVersion();
+
+    positions = new OClusterPosition[records];
+    for (int i = 0; i < records; i++)
+      positions[i] = cluster.createRecord(content, version, ODocument.RECORD_TYPE, null).clusterPosition;
+  }
+
+  @TearDown
+  public void tearDown() {
+    BenchmarkDatabases.drop(db);
+  }
+
+  @Benchmark
+  public OPhysicalPosition create() throws IOException {
+    return cluster.createRecord(content, version, ODocument.RECORD_TYPE, null);
+  }
+
+  @Benchmark
+  public ORawBuffer read() throws IOException {
+    return cluster.readRecord(positions[random.nextInt(records)]);
+  }
+
+  @Benchmark
+  public void update() throws IOException {
+    cluster.updateRecord(positions[random.nextInt(records)], content, version, ODocument.RECORD_TYPE, null);
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+/**
+ * Non transactional inserts of documents in a plocal database, each thread in its own cluster or all of them in the same cluster.
+ * Run it with a growing number of threads (<code>-t 1</code>, <code>-t 2</code>, ...) up to the number of cores to see how the
+ * writers scale: writers of different clusters share only the write ahead log.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Threads(4)
+@Fork(1)
+public class MultiClusterInsertBenchmark {
+  @Param({ "256" })
+  public int                  documentSize;
+
+  private ODatabaseDocumentTx db;
+  private final AtomicInteger threadIds = new AtomicInteger();
+
+  @State(Scope.Thread)
+  public static class Writer {
+    private ODatabaseDocumentTx db;
+    private String              ownCluster;
+    private String              payload;
+
+    @Setup
+    public void setup(final MultiClusterInsertBenchmark iBenchmark) {
+      ownCluster = "writer" + iBenchmark.threadIds.getAndIncrement();
+
+      final char[] chars = new char[iBenchmark.documentSize];
+      for (int i = 0; i < chars.length; i++)
+        chars[i] = (char) ('a' + i % 26);
+      payload = new String(chars);
+
+      db = new ODatabaseDocumentTx(iBenchmark.db.getURL()).open("admin", "admin");
+      db.addCluster(ownCluster, OStorage.CLUSTER_TYPE.PHYSICAL);
+    }
+
+    @Setup(Level.Iteration)
+    public void activate() {
+      ODatabaseRecordThreadLocal.INSTANCE.set(db);
+    }
+
+    @TearDown
+    public void tearDown() {
+      db.close();
+    }
+  }
+
+  @Setup
+  public void setup() {
+    db = BenchmarkDatabases.create(BenchmarkDatabases.PLOCAL, "multiClusterInsertBenchmark");
+    db.addCluster("shared", OStorage.CLUSTER_TYPE.PHYSICAL);
+  }
+
+  @TearDown
+  public void tearDown() {
+    ODatabaseRecordThreadLocal.INSTANCE.set(db);
+    BenchmarkDatabases.drop(db);
+  }
+
+  @Benchmark
+  public ODocument insertInOwnCluster(final Writer iWriter) {
+    return new ODocument().field("payload", iWriter.payload).save(iWriter.ownCluster);
+  }
+
+  @Benchmark
+  public ODocument insertInSharedCluster(final Writer iWriter) {
+    return new ODocument().field("payload", iWriter.payload).save("shared");
+  }
+}
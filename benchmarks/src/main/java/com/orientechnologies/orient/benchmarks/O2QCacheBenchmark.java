@@ -0,0 +1,97 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.benchmarks;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.ODiskCache;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+
+/**
+ * Loads and releases pages of a file through the disk cache of a plocal storage. With the default settings all the pages fit in
+ * memory, so the benchmark measures the lookup and the pinning of cached pages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class O2QCacheBenchmark {
+  @Param({ "1000", "20000" })
+  public int                  pages;
+
+  private ODatabaseDocumentTx db;
+  private ODiskCache          diskCache;
+  private long                fileId;
+  private Random              random;
+
+  @Setup
+  public void setup() throws IOException {
+    db = BenchmarkDatabases.create(BenchmarkDatabases.PLOCAL, "o2QCacheBenchmark");
+    diskCache = ((OLocalPaginatedStorage) db.getStorage()).getDiskCache();
+    fileId = diskCache.openFile("o2QCacheBenchmark.tst");
+
+    // LOADING THE PAGES AFTER THE END OF THE FILE ALLOCATES THEM
+    for (long pageIndex = 0; pageIndex < pages; pageIndex++) {
+      diskCache.load(fileId, pageIndex);
+      diskCache.markDirty(fileId, pageIndex);
+      diskCache.release(fileId, pageIndex);
+    }
+    diskCache.flushFile(fileId);
+
+    random = new Random(42);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    diskCache.deleteFile(fileId);
+    BenchmarkDatabases.drop(db);
+  }
+
+  @Benchmark
+  public long loadAndRelease() throws IOException {
+    final long pageIndex = random.nextInt(pages);
+    final long pointer = diskCache.load(fileId, pageIndex);
+    diskCache.release(fileId, pageIndex);
+    return pointer;
+  }
+
+  @Benchmark
+  public long loadDirtyAndRelease() throws IOException {
+    final long pageIndex = random.nextInt(pages);
+    final long pointer = diskCache.load(fileId, pageIndex);
+    diskCache.markDirty(fileId, pageIndex);
+    diskCache.release(fileId, pageIndex);
+    return pointer;
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.orientechnologies.common.concur.lock.OLockManager.LOCK;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.ORecordLockManager;
+
+/**
+ * Many threads locking and updating disjoint records. Every thread works on its own records, so the throughput measures the cost
+ * of the lock table itself and should grow with the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Threads(8)
+@Fork(1)
+public class RecordLockManagerBenchmark {
+  @Param({ "1000" })
+  public int                 recordsPerThread;
+
+  private ORecordLockManager  lockManager;
+  private ODatabaseDocumentTx db;
+  private final AtomicInteger threadIds = new AtomicInteger();
+
+  @State(Scope.Thread)
+  public static class ThreadRecords {
+    private ORID[]              rids;
+    private ODatabaseDocumentTx db;
+    private ODocument[]         documents;
+    private int                 next;
+
+    @Setup
+    public void setup(final RecordLockManagerBenchmark iBenchmark) {
+      final int threadId = iBenchmark.threadIds.getAndIncrement();
+
+      rids = new ORID[iBenchmark.recordsPerThread];
+      for (int i = 0; i < rids.length; i++)
+        rids[i] = new ORecordId(threadId + 1, OClusterPositionFactory.INSTANCE.valueOf(i));
+
+      db = new ODatabaseDocumentTx(iBenchmark.db.getURL()).open("admin", "admin");
+      documents = new ODocument[iBenchmark.recordsPerThread];
+      for (int i = 0; i < documents.length; i++)
+        documents[i] = new ODocument("Account").field("thread", threadId).field("balance", 0L).save();
+    }
+
+    @Setup(Level.Iteration)
+    public void activate() {
+      ODatabaseRecordThreadLocal.INSTANCE.set(db);
+    }
+
+    @TearDown
+    public void tearDown() {
+      db.close();
+    }
+
+    private int nextIndex() {
+      if (next == rids.length)
+        next = 0;
+      return next++;
+    }
+  }
+
+  @Setup
+  public void setup() {
+    lockManager = new ORecordLockManager(0);
+    db = BenchmarkDatabases.create(BenchmarkDatabases.MEMORY, "recordLockManagerBenchmark");
+    db.getMetadata().getSchema().createClass("Account");
+  }
+
+  @TearDown
+  public void tearDown() {
+    ODatabaseRecordThreadLocal.INSTANCE.set(db);
+    BenchmarkDatabases.drop(db);
+  }
+
+  @Benchmark
+  public void lockExclusive(final ThreadRecords iRecords) {
+    final ORID rid = iRecords.rids[iRecords.nextIndex()];
+    lockManager.acquireLock(Thread.currentThread(), rid, LOCK.EXCLUSIVE);
+    lockManager.releaseLock(Thread.currentThread(), rid, LOCK.EXCLUSIVE);
+  }
+
+  @Benchmark
+  public void lockShared(final ThreadRecords iRecords) {
+    final ORID rid = iRecords.rids[iRecords.nextIndex()];
+    lockManager.acquireLock(Thread.currentThread(), rid, LOCK.SHARED);
+    lockManager.releaseLock(Thread.currentThread(), rid, LOCK.SHARED);
+  }
+
+  @Benchmark
+  public ODocument updateRecord(final ThreadRecords iRecords) {
+    final ODocument document = iRecords.documents[iRecords.nextIndex()];
+    document.field("balance", document.<Long> field("balance") + 1);
+    return document.save();
+  }
+}
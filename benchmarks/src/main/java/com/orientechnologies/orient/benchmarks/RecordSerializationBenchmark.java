@@ -0,0 +1,129 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerSchemaAware2Binary;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
+
+/**
+ * Marshalls and unmarshalls a document with the CSV and the binary record serializers. The database is only needed to resolve
+ * the document class.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RecordSerializationBenchmark {
+  private static final String[] NAME_FIELD = { "name" };
+
+  @Param({ "csv", "binary" })
+  public String                 serializer;
+
+  private ODatabaseDocumentTx   db;
+  private ORecordSerializer     recordSerializer;
+  private ODocument             document;
+  private byte[]                content;
+
+  @Setup
+  public void setup() {
+    db = BenchmarkDatabases.create(BenchmarkDatabases.MEMORY, "recordSerializationBenchmark");
+    db.getMetadata().getSchema().createClass("Person");
+
+    if ("csv".equals(serializer))
+      recordSerializer = ORecordSerializerSchemaAware2CSV.INSTANCE;
+    else if ("binary".equals(serializer))
+      recordSerializer = ORecordSerializerSchemaAware2Binary.INSTANCE;
+    else
+      throw new IllegalArgumentException("Record serializer '" + serializer + "' not supported by benchmarks");
+
+    final List<String> tags = new ArrayList<String>();
+    for (int i = 0; i < 10; i++)
+      tags.add("tag" + i);
+
+    final Map<String, Object> address = new HashMap<String, Object>();
+    address.put("street", "Piazza di Spagna");
+    address.put("number", 1);
+
+    document = new ODocument("Person");
+    document.field("name", "Jay");
+    document.field("surname", "Miner");
+    document.field("age", 42);
+    document.field("salary", 12345.67d);
+    document.field("active", true);
+    document.field("birthday", new Date(0));
+    document.field("tags", tags);
+    document.field("address", address);
+    document.field("friend", new ORecordId(5, OClusterPositionFactory.INSTANCE.valueOf(10)));
+
+    content = recordSerializer.toStream(document, false);
+  }
+
+  @Setup(Level.Iteration)
+  public void activate() {
+    // THE ITERATIONS CAN RUN IN A THREAD OTHER THAN THE ONE THAT CREATED THE DATABASE
+    ODatabaseRecordThreadLocal.INSTANCE.set(db);
+  }
+
+  @TearDown
+  public void tearDown() {
+    BenchmarkDatabases.drop(db);
+  }
+
+  @Benchmark
+  public byte[] toStream() {
+    return recordSerializer.toStream(document, false);
+  }
+
+  @Benchmark
+  public ORecordInternal<?> fromStream() {
+    return recordSerializer.fromStream(content, new ODocument(), null);
+  }
+
+  @Benchmark
+  public ORecordInternal<?> fromStreamOneField() {
+    return recordSerializer.fromStream(content, new ODocument(), NAME_FIELD);
+  }
+}
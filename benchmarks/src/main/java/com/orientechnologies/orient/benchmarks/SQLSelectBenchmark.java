@@ -0,0 +1,131 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+/**
+ * Executes representative SELECTs against a generated class of documents on memory and plocal storages: "id" has a unique index,
+ * "age" a not unique index and "city" no index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SQLSelectBenchmark {
+  private static final int    AGES   = 80;
+  private static final int    CITIES = 100;
+
+  @Param({ BenchmarkDatabases.MEMORY, BenchmarkDatabases.PLOCAL })
+  public String               storage;
+
+  @Param({ "50000" })
+  public int                  records;
+
+  private ODatabaseDocumentTx db;
+  private Random              random;
+
+  @Setup
+  public void setup() {
+    db = BenchmarkDatabases.create(storage, "sqlSelectBenchmark");
+
+    final OClass person = db.getMetadata().getSchema().createClass("Person");
+    person.createProperty("id", OType.INTEGER).createIndex(OClass.INDEX_TYPE.UNIQUE);
+    person.createProperty("age", OType.INTEGER).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+    person.createProperty("city", OType.STRING);
+    person.createProperty("name", OType.STRING);
+
+    random = new Random(42);
+
+    db.declareIntent(new OIntentMassiveInsert());
+    for (int i = 0; i < records; i++) {
+      final ODocument document = new ODocument("Person");
+      document.field("id", i);
+      document.field("age", random.nextInt(AGES));
+      document.field("city", "city" + random.nextInt(CITIES));
+      document.field("name", "name" + i);
+      document.save();
+    }
+    db.declareIntent(null);
+  }
+
+  @Setup(Level.Iteration)
+  public void activate() {
+    // THE ITERATIONS CAN RUN IN A THREAD OTHER THAN THE ONE THAT CREATED THE DATABASE
+    ODatabaseRecordThreadLocal.INSTANCE.set(db);
+  }
+
+  @TearDown
+  public void tearDown() {
+    BenchmarkDatabases.drop(db);
+  }
+
+  @Benchmark
+  public List<ODocument> indexedEquals() {
+    return query("select from Person where id = " + random.nextInt(records));
+  }
+
+  @Benchmark
+  public List<ODocument> indexedRange() {
+    final int age = random.nextInt(AGES - 2);
+    return query("select from Person where age between " + age + " and " + (age + 1));
+  }
+
+  @Benchmark
+  public List<ODocument> scanFilter() {
+    return query("select from Person where city = 'city" + random.nextInt(CITIES) + "'");
+  }
+
+  @Benchmark
+  public List<ODocument> orderByLimit() {
+    return query("select from Person where city = 'city" + random.nextInt(CITIES) + "' order by name desc limit 10");
+  }
+
+  @Benchmark
+  public List<ODocument> groupBy() {
+    return query("select city, count(*) from Person group by city");
+  }
+
+  private List<ODocument> query(final String iText) {
+    return db.query(new OSQLSynchQuery<ODocument>(iText));
+  }
+}
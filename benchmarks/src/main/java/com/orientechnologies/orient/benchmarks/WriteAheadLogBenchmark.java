@@ -0,0 +1,99 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.orientechnologies.common.io.OFileUtils;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OAtomicUnitStartRecord;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OOperationUnitId;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWriteAheadLog;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.updatePageRecord.OBinaryPageDiff;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.updatePageRecord.OPageDiff;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.updatePageRecord.OUpdatePageRecord;
+
+/**
+ * Appends page update records to a write ahead log. The log is created on a storage that is never opened, so only the log itself
+ * is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class WriteAheadLogBenchmark {
+  @Param({ "16", "512" })
+  public int                 diffSize;
+
+  private File               directory;
+  private OWriteAheadLog     writeAheadLog;
+  private OOperationUnitId   unitId;
+  private OLogSequenceNumber prevLsn;
+  private List<OPageDiff<?>> diffs;
+  private Random             random;
+
+  @Setup
+  public void setup() throws IOException {
+    directory = new File(BenchmarkDatabases.getDirectory(), "writeAheadLogBenchmark");
+    OFileUtils.deleteRecursively(directory);
+    directory.mkdirs();
+
+    final OLocalPaginatedStorage storage = new OLocalPaginatedStorage("writeAheadLogBenchmark", directory.getAbsolutePath(), "rw");
+    writeAheadLog = new OWriteAheadLog(storage);
+
+    unitId = OOperationUnitId.generateId();
+    prevLsn = writeAheadLog.log(new OAtomicUnitStartRecord(true, unitId));
+
+    random = new Random(42);
+    final byte[] content = new byte[diffSize];
+    random.nextBytes(content);
+    diffs = new ArrayList<OPageDiff<?>>();
+    diffs.add(new OBinaryPageDiff(content, 0));
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    writeAheadLog.delete();
+    OFileUtils.deleteRecursively(directory);
+  }
+
+  @Benchmark
+  public OLogSequenceNumber logUpdatePage() throws IOException {
+    prevLsn = writeAheadLog.log(new OUpdatePageRecord(random.nextInt(1024), 1, unitId, diffs, prevLsn));
+    return prevLsn;
+  }
+}
@@ -28,9 +28,13 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.naming.NamingException;
 import javax.naming.directory.Attribute;
@@ -102,6 +106,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
   private static final String              DRIVER_NAME          = "OrientDB Java";
 
   private final ExecutorService            asynchExecutor;
+  private final OStorageRemoteAsynchResponses asynchResponses = new OStorageRemoteAsynchResponses();
   private OContextConfiguration            clientConfiguration;
   private int                              connectionRetry;
   private int                              connectionRetryDelay;
@@ -246,6 +251,9 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     lock.acquireExclusiveLock();
     try {
 
+      // READ THE PENDING RESPONSES BEFORE TO LOCK THE POOL, THEIR READERS COULD NEED IT
+      asynchResponses.waitForSession(getSessionId());
+
       synchronized (networkPool) {
         if (networkPool.size() > 0) {
           try {
@@ -313,14 +321,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
       try {
         final OChannelBinaryClient network = beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_CREATE);
         try {
-          if (network.getSrvProtocolVersion() >= 10)
-            // SEND THE DATA SEGMENT ID
-            network.writeInt(iDataSegmentId);
-          network.writeShort((short) iRid.clusterId);
-          network.writeBytes(iContent);
-          network.writeByte(iRecordType);
-          network.writeByte((byte) iMode);
-
+          writeCreateRecordRequest(network, iDataSegmentId, iRid, iContent, iRecordType, iMode);
         } finally {
           endRequest(network);
         }
@@ -330,12 +331,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
           // SYNCHRONOUS
           try {
             beginResponse(network);
-            iRid.clusterPosition = network.readClusterPosition();
-            ppos.clusterPosition = iRid.clusterPosition;
-            if (network.getSrvProtocolVersion() >= 11) {
-              ppos.recordVersion = network.readVersion();
-            } else
-              ppos.recordVersion = OVersionFactory.instance().createVersion();
+            readCreateRecordResponse(network, iRid, ppos);
             return new OStorageOperationResult<OPhysicalPosition>(ppos);
           } finally {
             endResponse(network);
@@ -431,36 +427,15 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
         OChannelBinaryClient network = null;
         try {
           network = beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_LOAD);
-          network.writeRID(iRid);
-          network.writeString(iFetchPlan != null ? iFetchPlan : "");
-          if (network.getSrvProtocolVersion() >= 9)
-            network.writeByte((byte) (iIgnoreCache ? 1 : 0));
-
-          if (network.getSrvProtocolVersion() >= 13)
-            network.writeByte(loadTombstones ? (byte) 1 : (byte) 0);
+          writeReadRecordRequest(network, iRid, iFetchPlan, iIgnoreCache, loadTombstones);
         } finally {
           endRequest(network);
         }
 
         try {
           beginResponse(network);
-
-          if (network.readByte() == 0)
-            return new OStorageOperationResult<ORawBuffer>(null);
-
-          final ORawBuffer buffer = new ORawBuffer(network.readBytes(), network.readVersion(), network.readByte());
-
-          final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
-          ORecordInternal<?> record;
-          while (network.readByte() == 2) {
-            record = (ORecordInternal<?>) OChannelBinaryProtocol.readIdentifiable(network);
-
-            if (database != null)
-              // PUT IN THE CLIENT LOCAL CACHE
-              database.getLevel1Cache().updateRecord(record);
-          }
-          return new OStorageOperationResult<ORawBuffer>(buffer);
-
+          return new OStorageOperationResult<ORawBuffer>(readRecordResponse(network,
+              ODatabaseRecordThreadLocal.INSTANCE.getIfDefined()));
         } finally {
           endResponse(network);
         }
@@ -484,12 +459,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
       try {
         final OChannelBinaryClient network = beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_UPDATE);
         try {
-          network.writeRID(iRid);
-          network.writeBytes(iContent);
-          network.writeVersion(iVersion);
-          network.writeByte(iRecordType);
-          network.writeByte((byte) iMode);
-
+          writeUpdateRecordRequest(network, iRid, iContent, iVersion, iRecordType, iMode);
         } finally {
           endRequest(network);
         }
@@ -1029,52 +999,9 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
                 database.getLevel1Cache().updateRecord(record);
               }
             }
-          } else {
-            final byte type = network.readByte();
-            switch (type) {
-            case 'n':
-              result = null;
-              break;
-
-            case 'r':
-              result = OChannelBinaryProtocol.readIdentifiable(network);
-              if (result instanceof ORecord<?>)
-                database.getLevel1Cache().updateRecord((ORecordInternal<?>) result);
-              break;
-
-            case 'l':
-              final int tot = network.readInt();
-              final Collection<OIdentifiable> list = new ArrayList<OIdentifiable>(tot);
-              for (int i = 0; i < tot; ++i) {
-                final OIdentifiable resultItem = OChannelBinaryProtocol.readIdentifiable(network);
-                if (resultItem instanceof ORecord<?>)
-                  database.getLevel1Cache().updateRecord((ORecordInternal<?>) resultItem);
-                list.add(resultItem);
-              }
-              result = list;
-              break;
+          } else
+            result = readCommandResult(network, database);
 
-            case 'a':
-              final String value = new String(network.readBytes());
-              result = ORecordSerializerStringAbstract.fieldTypeFromStream(null, ORecordSerializerStringAbstract.getType(value),
-                  value);
-              break;
-
-            default:
-              OLogManager.instance().warn(this, "Received unexpected result from query: %d", type);
-            }
-
-            if (network.getSrvProtocolVersion() >= 17) {
-              // LOAD THE FETCHED RECORDS IN CACHE
-              byte status;
-              while ((status = network.readByte()) > 0) {
-                final ORecordInternal<?> record = (ORecordInternal<?>) OChannelBinaryProtocol.readIdentifiable(network);
-                if (record != null && status == 2)
-                  // PUT IN THE CLIENT LOCAL CACHE
-                  database.getLevel1Cache().updateRecord(record);
-              }
-            }
-          }
           break;
         } finally {
           endResponse(network);
@@ -1105,88 +1032,261 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
         try {
           network = beginRequest(OChannelBinaryProtocol.REQUEST_TX_COMMIT);
 
-          network.writeInt(iTx.getId());
-          network.writeByte((byte) (iTx.isUsingLog() ? 1 : 0));
+          writeCommitRequest(network, iTx, committedEntries);
+        } finally {
+          endRequest(network);
+        }
 
-          final List<ORecordOperation> tmpEntries = new ArrayList<ORecordOperation>();
+        try {
+          beginResponse(network);
+          readCommitResponse(network, iTx);
+          committedEntries.clear();
+        } finally {
+          endResponse(network);
+        }
 
-          if (iTx.getCurrentRecordEntries().iterator().hasNext()) {
-            while (iTx.getCurrentRecordEntries().iterator().hasNext()) {
-              for (ORecordOperation txEntry : iTx.getCurrentRecordEntries())
-                tmpEntries.add(txEntry);
+        afterCommit(iTx);
 
-              iTx.clearRecordEntries();
+        break;
 
-              if (tmpEntries.size() > 0) {
-                for (ORecordOperation txEntry : tmpEntries) {
-                  commitEntry(network, txEntry);
-                  committedEntries.add(txEntry);
-                }
-                tmpEntries.clear();
-              }
-            }
-          } else if (committedEntries.size() > 0) {
-            for (ORecordOperation txEntry : committedEntries)
-              commitEntry(network, txEntry);
+      } catch (OModificationOperationProhibitedException mope) {
+        handleDBFreeze();
+      } catch (Exception e) {
+        handleException("Error on commit", e);
+
+      } finally {
+        OStorageRemoteThreadLocal.INSTANCE.get().commandExecuting = false;
+
+      }
+    } while (true);
+  }
+
+  /**
+   * Sends a record creation without waiting for the response. The record id is updated with the new position once the response has
+   * been read.
+   * 
+   * @param iCallback
+   *          Optional callback invoked by the thread reading the response
+   * @return The future of the position of the new record
+   */
+  public Future<OPhysicalPosition> createRecordAsynch(final int iDataSegmentId, final ORecordId iRid, final byte[] iContent,
+      final byte iRecordType, final ORecordCallback<OPhysicalPosition> iCallback) {
+    checkConnection();
+
+    do {
+      try {
+        OChannelBinaryClient network = null;
+        try {
+          network = beginAsynchRequest(OChannelBinaryProtocol.REQUEST_RECORD_CREATE);
+          writeCreateRecordRequest(network, iDataSegmentId, iRid, iContent, iRecordType, 0);
+        } finally {
+          endRequest(network);
+        }
+
+        final OChannelBinaryClient responseNetwork = network;
+        return submitAsynchResponse(network, iRid, iCallback, new Callable<OPhysicalPosition>() {
+          public OPhysicalPosition call() throws Exception {
+            final OPhysicalPosition ppos = new OPhysicalPosition(iDataSegmentId, -1, iRecordType);
+            readCreateRecordResponse(responseNetwork, iRid, ppos);
+            return ppos;
           }
+        });
 
-          // END OF RECORD ENTRIES
-          network.writeByte((byte) 0);
+      } catch (OModificationOperationProhibitedException mope) {
+        handleDBFreeze();
+      } catch (Exception e) {
+        handleException("Error on create record in cluster: " + iRid.clusterId, e);
+
+      }
+    } while (true);
+  }
+
+  /**
+   * Sends a record load without waiting for the response. The records fetched with it are not put in the level1 cache.
+   * 
+   * @param iCallback
+   *          Optional callback invoked by the thread reading the response
+   * @return The future of the record content, null if the record doesn't exist
+   */
+  public Future<ORawBuffer> readRecordAsynch(final ORecordId iRid, final String iFetchPlan, final boolean iIgnoreCache,
+      final ORecordCallback<ORawBuffer> iCallback) {
+    checkConnection();
 
-          // SEND INDEX ENTRIES
-          network.writeBytes(iTx.getIndexChanges().toStream());
+    do {
+      try {
+        OChannelBinaryClient network = null;
+        try {
+          network = beginAsynchRequest(OChannelBinaryProtocol.REQUEST_RECORD_LOAD);
+          writeReadRecordRequest(network, iRid, iFetchPlan, iIgnoreCache, false);
         } finally {
           endRequest(network);
         }
 
+        final OChannelBinaryClient responseNetwork = network;
+        return submitAsynchResponse(network, iRid, iCallback, new Callable<ORawBuffer>() {
+          public ORawBuffer call() throws Exception {
+            return readRecordResponse(responseNetwork, null);
+          }
+        });
+
+      } catch (Exception e) {
+        handleException("Error on read record " + iRid, e);
+
+      }
+    } while (true);
+  }
+
+  /**
+   * Sends a record update without waiting for the response.
+   * 
+   * @param iCallback
+   *          Optional callback invoked by the thread reading the response
+   * @return The future of the new version of the record
+   */
+  public Future<ORecordVersion> updateRecordAsynch(final ORecordId iRid, final byte[] iContent, final ORecordVersion iVersion,
+      final byte iRecordType, final ORecordCallback<ORecordVersion> iCallback) {
+    checkConnection();
+
+    do {
+      try {
+        OChannelBinaryClient network = null;
         try {
-          beginResponse(network);
-          final int createdRecords = network.readInt();
-          ORecordId currentRid;
-          ORecordId createdRid;
-          for (int i = 0; i < createdRecords; i++) {
-            currentRid = network.readRID();
-            createdRid = network.readRID();
-			iTx.updateIdentityAfterCommit(currentRid, createdRid);
+          network = beginAsynchRequest(OChannelBinaryProtocol.REQUEST_RECORD_UPDATE);
+          writeUpdateRecordRequest(network, iRid, iContent, iVersion, iRecordType, 0);
+        } finally {
+          endRequest(network);
+        }
+
+        final OChannelBinaryClient responseNetwork = network;
+        return submitAsynchResponse(network, iRid, iCallback, new Callable<ORecordVersion>() {
+          public ORecordVersion call() throws Exception {
+            return responseNetwork.readVersion();
           }
-          final int updatedRecords = network.readInt();
-          ORecordId rid;
-          for (int i = 0; i < updatedRecords; ++i) {
-            rid = network.readRID();
-
-            // SEARCH THE RECORD WITH THAT ID TO UPDATE THE VERSION
-            for (ORecordOperation txEntry : iTx.getAllRecordEntries()) {
-			  ORecordOperation rop = iTx.getRecordEntry(rid);
-			  if (rop != null) {
-			    rop.getRecord().getRecordVersion().copyFrom(network.readVersion());
-				break;
-			  }
-            }
+        });
+
+      } catch (OModificationOperationProhibitedException mope) {
+        handleDBFreeze();
+      } catch (Exception e) {
+        handleException("Error on update record " + iRid, e);
+
+      }
+    } while (true);
+  }
+
+  /**
+   * Sends a record deletion without waiting for the response.
+   * 
+   * @param iCallback
+   *          Optional callback invoked by the thread reading the response
+   * @return The future of the outcome, true if the record has been deleted
+   */
+  public Future<Boolean> deleteRecordAsynch(final ORecordId iRid, final ORecordVersion iVersion,
+      final ORecordCallback<Boolean> iCallback) {
+    checkConnection();
+
+    do {
+      try {
+        OChannelBinaryClient network = null;
+        try {
+          network = beginAsynchRequest(OChannelBinaryProtocol.REQUEST_RECORD_DELETE);
+          network.writeRID(iRid);
+          network.writeVersion(iVersion);
+          network.writeByte((byte) 0);
+        } finally {
+          endRequest(network);
+        }
+
+        final OChannelBinaryClient responseNetwork = network;
+        return submitAsynchResponse(network, iRid, iCallback, new Callable<Boolean>() {
+          public Boolean call() throws Exception {
+            return responseNetwork.readByte() == 1;
           }
+        });
+
+      } catch (OModificationOperationProhibitedException mope) {
+        handleDBFreeze();
+      } catch (Exception e) {
+        handleException("Error on delete record " + iRid, e);
+
+      }
+    } while (true);
+  }
+
+  /**
+   * Sends the command to be executed remotely without waiting for the result. The command is always executed in synchronous mode
+   * on the server, so the result listener is not invoked, and the returned records are not put in the level1 cache.
+   * 
+   * @return The future of the result of the command
+   */
+  public Future<Object> commandAsynch(final OCommandRequestText iCommand) {
+    checkConnection();
+
+    if (!(iCommand instanceof OSerializableStream))
+      throw new OCommandExecutionException("Cannot serialize the command to be executed to the server side.");
+
+    do {
+      try {
+        OChannelBinaryClient network = null;
+        try {
+          network = beginAsynchRequest(OChannelBinaryProtocol.REQUEST_COMMAND);
+
+          network.writeByte((byte) 's');
+          network.writeBytes(OStreamSerializerAnyStreamable.INSTANCE.toStream(iCommand));
 
-          committedEntries.clear();
         } finally {
-          endResponse(network);
+          endRequest(network);
         }
 
-        // SET ALL THE RECORDS AS UNDIRTY
-        for (ORecordOperation txEntry : iTx.getAllRecordEntries())
-          txEntry.getRecord().unload();
+        final OChannelBinaryClient responseNetwork = network;
+        return submitAsynchResponse(network, null, null, new Callable<Object>() {
+          public Object call() throws Exception {
+            return readCommandResult(responseNetwork, null);
+          }
+        });
 
-        // UPDATE THE CACHE ONLY IF THE ITERATOR ALLOWS IT. USE THE STRATEGY TO ALWAYS REMOVE ALL THE RECORDS SINCE THEY COULD BE
-        // CHANGED AS CONTENT IN CASE OF TREE AND GRAPH DUE TO CROSS REFERENCES
-        OTransactionAbstract.updateCacheFromEntries(iTx, iTx.getAllRecordEntries(), false);
+      } catch (OModificationOperationProhibitedException mope) {
+        handleDBFreeze();
+      } catch (Exception e) {
+        handleException("Error on executing command: " + iCommand, e);
 
-        break;
+      }
+    } while (true);
+  }
+
+  /**
+   * Sends the transaction to commit without waiting for the response. The transaction must not be used until the future is done:
+   * the identities and versions of its records are updated by the thread reading the response. The records are unloaded and the
+   * caches updated by the thread which committed the transaction when it calls {@link Future#get()}, since they are not thread safe.
+   * 
+   * @return The future of the commit, it fails if the commit has been rolled back by the server
+   */
+  public Future<Void> commitAsynch(final OTransaction iTx) {
+    checkConnection();
+
+    final List<ORecordOperation> committedEntries = new ArrayList<ORecordOperation>();
+    do {
+      try {
+        OChannelBinaryClient network = null;
+        try {
+          network = beginAsynchRequest(OChannelBinaryProtocol.REQUEST_TX_COMMIT);
+          writeCommitRequest(network, iTx, committedEntries);
+        } finally {
+          endRequest(network);
+        }
+
+        final OChannelBinaryClient responseNetwork = network;
+        return new OAsynchCommitFuture(iTx, submitAsynchResponse(network, null, null, new Callable<Void>() {
+          public Void call() throws Exception {
+            readCommitResponse(responseNetwork, iTx);
+            return null;
+          }
+        }));
 
       } catch (OModificationOperationProhibitedException mope) {
         handleDBFreeze();
       } catch (Exception e) {
         handleException("Error on commit", e);
 
-      } finally {
-        OStorageRemoteThreadLocal.INSTANCE.get().commandExecuting = false;
-
       }
     } while (true);
   }
@@ -1746,6 +1846,29 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
    * @throws IOException
    */
   protected OChannelBinaryClient beginRequest(final byte iCommand) throws IOException {
+    // READ THE RESPONSES OF THE ASYNCHRONOUS REQUESTS OF THE SESSION FIRST: THE SERVER MUST EXECUTE THE REQUESTS IN ORDER
+    asynchResponses.waitForSession(getSessionId());
+    return acquireChannel(iCommand);
+  }
+
+  /**
+   * Acquires the channel for an asynchronous request. While the session has responses to read its requests are sent through the
+   * same channel, so the server executes them in order.
+   */
+  private OChannelBinaryClient beginAsynchRequest(final byte iCommand) throws IOException {
+    final OChannelBinaryClient network = asynchResponses.getChannel(getSessionId());
+    if (network == null || !network.isConnected())
+      return acquireChannel(iCommand);
+
+    network.getLockWrite().lock();
+
+    network.writeByte(iCommand);
+    network.writeInt(getSessionId());
+
+    return network;
+  }
+
+  private OChannelBinaryClient acquireChannel(final byte iCommand) throws IOException {
     OChannelBinaryClient network = null;
 
     if (debug)
@@ -1939,6 +2062,273 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     }
   }
 
+  private void writeCreateRecordRequest(final OChannelBinaryClient network, final int iDataSegmentId, final ORecordId iRid,
+      final byte[] iContent, final byte iRecordType, final int iMode) throws IOException {
+    if (network.getSrvProtocolVersion() >= 10)
+      // SEND THE DATA SEGMENT ID
+      network.writeInt(iDataSegmentId);
+    network.writeShort((short) iRid.clusterId);
+    network.writeBytes(iContent);
+    network.writeByte(iRecordType);
+    network.writeByte((byte) iMode);
+  }
+
+  private void readCreateRecordResponse(final OChannelBinaryClient network, final ORecordId iRid, final OPhysicalPosition ppos)
+      throws IOException {
+    iRid.clusterPosition = network.readClusterPosition();
+    ppos.clusterPosition = iRid.clusterPosition;
+    if (network.getSrvProtocolVersion() >= 11) {
+      ppos.recordVersion = network.readVersion();
+    } else
+      ppos.recordVersion = OVersionFactory.instance().createVersion();
+  }
+
+  private void writeReadRecordRequest(final OChannelBinaryClient network, final ORecordId iRid, final String iFetchPlan,
+      final boolean iIgnoreCache, final boolean loadTombstones) throws IOException {
+    network.writeRID(iRid);
+    network.writeString(iFetchPlan != null ? iFetchPlan : "");
+    if (network.getSrvProtocolVersion() >= 9)
+      network.writeByte((byte) (iIgnoreCache ? 1 : 0));
+
+    if (network.getSrvProtocolVersion() >= 13)
+      network.writeByte(loadTombstones ? (byte) 1 : (byte) 0);
+  }
+
+  /**
+   * Reads the loaded record, the fetched records are put in the level1 cache of the database if any.
+   * 
+   * @return The record content or null if the record doesn't exist
+   */
+  private ORawBuffer readRecordResponse(final OChannelBinaryClient network, final ODatabaseRecord database) throws IOException {
+    if (network.readByte() == 0)
+      return null;
+
+    final ORawBuffer buffer = new ORawBuffer(network.readBytes(), network.readVersion(), network.readByte());
+
+    ORecordInternal<?> record;
+    while (network.readByte() == 2) {
+      record = (ORecordInternal<?>) OChannelBinaryProtocol.readIdentifiable(network);
+
+      if (database != null)
+        // PUT IN THE CLIENT LOCAL CACHE
+        database.getLevel1Cache().updateRecord(record);
+    }
+    return buffer;
+  }
+
+  private void writeUpdateRecordRequest(final OChannelBinaryClient network, final ORecordId iRid, final byte[] iContent,
+      final ORecordVersion iVersion, final byte iRecordType, final int iMode) throws IOException {
+    network.writeRID(iRid);
+    network.writeBytes(iContent);
+    network.writeVersion(iVersion);
+    network.writeByte(iRecordType);
+    network.writeByte((byte) iMode);
+  }
+
+  /**
+   * Reads the result of a synchronous command, the returned records and the fetched ones are put in the level1 cache of the
+   * database if any.
+   */
+  private Object readCommandResult(final OChannelBinaryClient network, final ODatabaseRecord database) throws IOException {
+    Object result = null;
+
+    final byte type = network.readByte();
+    switch (type) {
+    case 'n':
+      result = null;
+      break;
+
+    case 'r':
+      result = OChannelBinaryProtocol.readIdentifiable(network);
+      if (database != null && result instanceof ORecord<?>)
+        database.getLevel1Cache().updateRecord((ORecordInternal<?>) result);
+      break;
+
+    case 'l':
+      final int tot = network.readInt();
+      final Collection<OIdentifiable> list = new ArrayList<OIdentifiable>(tot);
+      for (int i = 0; i < tot; ++i) {
+        final OIdentifiable resultItem = OChannelBinaryProtocol.readIdentifiable(network);
+        if (database != null && resultItem instanceof ORecord<?>)
+          database.getLevel1Cache().updateRecord((ORecordInternal<?>) resultItem);
+        list.add(resultItem);
+      }
+      result = list;
+      break;
+
+    case 'a':
+      final String value = new String(network.readBytes());
+      result = ORecordSerializerStringAbstract.fieldTypeFromStream(null, ORecordSerializerStringAbstract.getType(value),
+          value);
+      break;
+
+    default:
+      OLogManager.instance().warn(this, "Received unexpected result from query: %d", type);
+    }
+
+    if (network.getSrvProtocolVersion() >= 17) {
+      // LOAD THE FETCHED RECORDS IN CACHE
+      byte status;
+      while ((status = network.readByte()) > 0) {
+        final ORecordInternal<?> record = (ORecordInternal<?>) OChannelBinaryProtocol.readIdentifiable(network);
+        if (database != null && record != null && status == 2)
+          // PUT IN THE CLIENT LOCAL CACHE
+          database.getLevel1Cache().updateRecord(record);
+      }
+    }
+
+    return result;
+  }
+
+  private void writeCommitRequest(final OChannelBinaryClient network, final OTransaction iTx,
+      final List<ORecordOperation> committedEntries) throws IOException {
+    network.writeInt(iTx.getId());
+    network.writeByte((byte) (iTx.isUsingLog() ? 1 : 0));
+
+    final List<ORecordOperation> tmpEntries = new ArrayList<ORecordOperation>();
+
+    if (iTx.getCurrentRecordEntries().iterator().hasNext()) {
+      while (iTx.getCurrentRecordEntries().iterator().hasNext()) {
+        for (ORecordOperation txEntry : iTx.getCurrentRecordEntries())
+          tmpEntries.add(txEntry);
+
+        iTx.clearRecordEntries();
+
+        if (tmpEntries.size() > 0) {
+          for (ORecordOperation txEntry : tmpEntries) {
+            commitEntry(network, txEntry);
+            committedEntries.add(txEntry);
+          }
+          tmpEntries.clear();
+        }
+      }
+    } else if (committedEntries.size() > 0) {
+      for (ORecordOperation txEntry : committedEntries)
+        commitEntry(network, txEntry);
+    }
+
+    // END OF RECORD ENTRIES
+    network.writeByte((byte) 0);
+
+    // SEND INDEX ENTRIES
+    if (network.getSrvProtocolVersion() >= 18)
+      network.writeBytes(iTx.getIndexChangesStream());
+    else
+      network.writeBytes(iTx.getIndexChanges().toStream());
+  }
+
+  private void readCommitResponse(final OChannelBinaryClient network, final OTransaction iTx) throws IOException {
+    final int createdRecords = network.readInt();
+    ORecordId currentRid;
+    ORecordId createdRid;
+    for (int i = 0; i < createdRecords; i++) {
+      currentRid = network.readRID();
+      createdRid = network.readRID();
+      iTx.updateIdentityAfterCommit(currentRid, createdRid);
+    }
+    final int updatedRecords = network.readInt();
+    ORecordId rid;
+    for (int i = 0; i < updatedRecords; ++i) {
+      rid = network.readRID();
+
+      // SEARCH THE RECORD WITH THAT ID TO UPDATE THE VERSION
+      for (ORecordOperation txEntry : iTx.getAllRecordEntries()) {
+        ORecordOperation rop = iTx.getRecordEntry(rid);
+        if (rop != null) {
+          rop.getRecord().getRecordVersion().copyFrom(network.readVersion());
+          break;
+        }
+      }
+    }
+  }
+
+  private void afterCommit(final OTransaction iTx) {
+    // SET ALL THE RECORDS AS UNDIRTY
+    for (ORecordOperation txEntry : iTx.getAllRecordEntries())
+      txEntry.getRecord().unload();
+
+    // UPDATE THE CACHE ONLY IF THE ITERATOR ALLOWS IT. USE THE STRATEGY TO ALWAYS REMOVE ALL THE RECORDS SINCE THEY COULD BE
+    // CHANGED AS CONTENT IN CASE OF TREE AND GRAPH DUE TO CROSS REFERENCES
+    OTransactionAbstract.updateCacheFromEntries(iTx, iTx.getAllRecordEntries(), false);
+  }
+
+  /**
+   * Future of an asynchronous commit. The response is read by the thread of the session responses, while the records of the
+   * transaction are unloaded and the caches updated by the first call of get(), made by the thread owning the transaction.
+   */
+  private final class OAsynchCommitFuture implements Future<Void> {
+    private final OTransaction tx;
+    private final Future<Void> response;
+    private boolean            completed;
+
+    private OAsynchCommitFuture(final OTransaction iTx, final Future<Void> iResponse) {
+      tx = iTx;
+      response = iResponse;
+    }
+
+    public boolean cancel(final boolean iMayInterruptIfRunning) {
+      return response.cancel(iMayInterruptIfRunning);
+    }
+
+    public boolean isCancelled() {
+      return response.isCancelled();
+    }
+
+    public boolean isDone() {
+      return response.isDone();
+    }
+
+    public Void get() throws InterruptedException, ExecutionException {
+      response.get();
+      complete();
+      return null;
+    }
+
+    public Void get(final long iTimeout, final TimeUnit iUnit) throws InterruptedException, ExecutionException, TimeoutException {
+      response.get(iTimeout, iUnit);
+      complete();
+      return null;
+    }
+
+    private synchronized void complete() {
+      if (!completed) {
+        completed = true;
+        afterCommit(tx);
+      }
+    }
+  }
+
+  /**
+   * Reads the response of an asynchronous request by the thread of the session responses, then invokes the callback if any.
+   */
+  private <T> Future<T> submitAsynchResponse(final OChannelBinaryClient iNetwork, final ORecordId iRid,
+      final ORecordCallback<T> iCallback, final Callable<T> iResponse) {
+    final int sessionId = getSessionId();
+
+    return asynchResponses.submit(sessionId, iNetwork, new Callable<T>() {
+      public T call() throws Exception {
+        final T result;
+
+        try {
+          OStorageRemoteThreadLocal.INSTANCE.get().sessionId = sessionId;
+          beginResponse(iNetwork);
+          result = iResponse.call();
+        } catch (IOException e) {
+          // THE CHANNEL IS BROKEN: THE NEXT REQUESTS WILL USE ANOTHER ONE
+          closeChannel(iNetwork);
+          throw e;
+        } finally {
+          endResponse(iNetwork);
+          OStorageRemoteThreadLocal.INSTANCE.get().sessionId = -1;
+        }
+
+        if (iCallback != null)
+          iCallback.call(iRid, result);
+        return result;
+      }
+    });
+  }
+
   private void commitEntry(final OChannelBinaryClient iNetwork, final ORecordOperation txEntry) throws IOException {
     if (txEntry.type == ORecordOperation.LOADED)
       // JUMP LOADED OBJECTS
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.client.remote;
+
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryClient;
+
+/**
+ * Reads the responses of the asynchronous requests sent by {@link OStorageRemote}. The responses of a session are read one at a
+ * time in the same order the requests were sent, by a thread of a shared pool, while the responses of different sessions are read
+ * in parallel. All the asynchronous requests of a session go through the same channel till their responses have been read, so the
+ * server executes them in order.
+ */
+public class OStorageRemoteAsynchResponses {
+  private static final AtomicInteger                threadId = new AtomicInteger();
+  private static final ExecutorService              EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+                                                               public Thread newThread(final Runnable r) {
+                                                                 final Thread thread = new Thread(Orient.instance()
+                                                                     .getThreadGroup(), r, "OrientDB <- Asynch Responses #"
+                                                                     + threadId.incrementAndGet());
+                                                                 thread.setDaemon(true);
+                                                                 return thread;
+                                                               }
+                                                             });
+  private static final ThreadLocal<Integer>         READING  = new ThreadLocal<Integer>();
+
+  // CHANGED HOLDING ITS MONITOR, BUT READ WITHOUT IT TO CHECK IF A SESSION HAS PENDING RESPONSES
+  private final Map<Integer, OSessionResponses>     sessions = new ConcurrentHashMap<Integer, OSessionResponses>();
+
+  private static class OSessionResponses {
+    private final Queue<FutureTask<?>> responses = new LinkedList<FutureTask<?>>();
+    private OChannelBinaryClient       network;
+    private boolean                    reading;
+  }
+
+  /**
+   * Returns the channel the session is sending its asynchronous requests through, or null if no response is pending.
+   */
+  public OChannelBinaryClient getChannel(final int iSessionId) {
+    synchronized (sessions) {
+      final OSessionResponses session = sessions.get(iSessionId);
+      return session != null ? session.network : null;
+    }
+  }
+
+  /**
+   * Enqueues the reading of the response of a request just sent.
+   *
+   * @param iSessionId
+   *          Session of the request
+   * @param iNetwork
+   *          Channel the request has been sent through
+   * @param iResponse
+   *          Reads the response from the channel
+   * @return The future of the response
+   */
+  public <T> Future<T> submit(final int iSessionId, final OChannelBinaryClient iNetwork, final Callable<T> iResponse) {
+    final FutureTask<T> response = new FutureTask<T>(iResponse);
+
+    synchronized (sessions) {
+      OSessionResponses session = sessions.get(iSessionId);
+      if (session == null) {
+        session = new OSessionResponses();
+        sessions.put(iSessionId, session);
+      }
+      session.network = iNetwork;
+      session.responses.add(response);
+
+      if (session.reading)
+        // ALREADY READ BY ANOTHER THREAD
+        return response;
+
+      session.reading = true;
+    }
+
+    EXECUTOR.execute(new Runnable() {
+      public void run() {
+        read(iSessionId);
+      }
+    });
+
+    return response;
+  }
+
+  /**
+   * Waits till all the pending responses of the session have been read. Returns immediately when the session has no pending
+   * responses, without synchronizing with the other sessions, or when called by the thread reading them.
+   */
+  public void waitForSession(final int iSessionId) {
+    if (!sessions.containsKey(iSessionId))
+      return;
+
+    final Integer reading = READING.get();
+    if (reading != null && reading.intValue() == iSessionId)
+      return;
+
+    synchronized (sessions) {
+      while (sessions.containsKey(iSessionId))
+        try {
+          sessions.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new OStorageException("Interrupted while waiting for the asynchronous responses of session " + iSessionId);
+        }
+    }
+  }
+
+  private void read(final int iSessionId) {
+    READING.set(iSessionId);
+    try {
+      while (true) {
+        final FutureTask<?> response;
+        synchronized (sessions) {
+          response = sessions.get(iSessionId).responses.poll();
+          if (response == null) {
+            // ALL THE RESPONSES HAVE BEEN READ
+            sessions.remove(iSessionId);
+            sessions.notifyAll();
+            return;
+          }
+        }
+
+        response.run();
+      }
+    } finally {
+      READING.remove();
+    }
+  }
+}
@@ -20,6 +20,7 @@ import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.orientechnologies.common.concur.resource.OSharedResourceAdaptiveExternal;
@@ -266,6 +267,40 @@ public class OStorageRemoteThread implements OStorageProxy {
     delegate.commit(iTx);
   }
 
+  public Future<OPhysicalPosition> createRecordAsynch(final int iDataSegmentId, final ORecordId iRid, final byte[] iContent,
+      final byte iRecordType, final ORecordCallback<OPhysicalPosition> iCallback) {
+    delegate.setSessionId(sessionId);
+    return delegate.createRecordAsynch(iDataSegmentId, iRid, iContent, iRecordType, iCallback);
+  }
+
+  public Future<ORawBuffer> readRecordAsynch(final ORecordId iRid, final String iFetchPlan, final boolean iIgnoreCache,
+      final ORecordCallback<ORawBuffer> iCallback) {
+    delegate.setSessionId(sessionId);
+    return delegate.readRecordAsynch(iRid, iFetchPlan, iIgnoreCache, iCallback);
+  }
+
+  public Future<ORecordVersion> updateRecordAsynch(final ORecordId iRid, final byte[] iContent, final ORecordVersion iVersion,
+      final byte iRecordType, final ORecordCallback<ORecordVersion> iCallback) {
+    delegate.setSessionId(sessionId);
+    return delegate.updateRecordAsynch(iRid, iContent, iVersion, iRecordType, iCallback);
+  }
+
+  public Future<Boolean> deleteRecordAsynch(final ORecordId iRid, final ORecordVersion iVersion,
+      final ORecordCallback<Boolean> iCallback) {
+    delegate.setSessionId(sessionId);
+    return delegate.deleteRecordAsynch(iRid, iVersion, iCallback);
+  }
+
+  public Future<Object> commandAsynch(final OCommandRequestText iCommand) {
+    delegate.setSessionId(sessionId);
+    return delegate.commandAsynch(iCommand);
+  }
+
+  public Future<Void> commitAsynch(final OTransaction iTx) {
+    delegate.setSessionId(sessionId);
+    return delegate.commitAsynch(iTx);
+  }
+
   public void rollback(OTransaction iTx) {
     delegate.setSessionId(sessionId);
     delegate.rollback(iTx);
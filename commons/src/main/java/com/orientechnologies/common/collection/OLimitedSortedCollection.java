@@ -0,0 +1,117 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.common.collection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Collection which keeps only the first <code>limit</code> items in the order defined by the comparator. Items are kept in a
+ * bounded heap whose head is the greatest kept item, so every added item costs O(log(limit)) and memory does not depend on the
+ * amount of added items. Items which are equal for the comparator are kept in order of addition, as a stable sort of all the added
+ * items would do.
+ */
+public class OLimitedSortedCollection<T> {
+  private final int                     limit;
+  private final Comparator<? super T>   comparator;
+  private final PriorityQueue<Entry<T>> heap;
+  private long                          counter;
+
+  public OLimitedSortedCollection(final int limit, final Comparator<? super T> comparator) {
+    if (limit < 1)
+      throw new IllegalArgumentException("Limit should be positive but was " + limit);
+
+    this.limit = limit;
+    this.comparator = comparator;
+    this.heap = new PriorityQueue<Entry<T>>(Math.min(limit, 1024), new Comparator<Entry<T>>() {
+      public int compare(final Entry<T> entryOne, final Entry<T> entryTwo) {
+        return -compareEntries(entryOne, entryTwo);
+      }
+    });
+  }
+
+  /**
+   * @return <code>true</code> if item is kept, <code>false</code> if it is after all the kept items and the limit is reached.
+   */
+  public boolean add(final T item) {
+    final Entry<T> entry = new Entry<T>(item, counter++);
+
+    if (heap.size() < limit) {
+      heap.add(entry);
+      return true;
+    }
+
+    if (compareEntries(entry, heap.peek()) >= 0)
+      return false;
+
+    heap.poll();
+    heap.add(entry);
+    return true;
+  }
+
+  public int size() {
+    return heap.size();
+  }
+
+  public boolean isEmpty() {
+    return heap.isEmpty();
+  }
+
+  /**
+   * @return kept items in order defined by the comparator.
+   */
+  public List<T> toList() {
+    final List<Entry<T>> entries = new ArrayList<Entry<T>>(heap);
+    Collections.sort(entries, new Comparator<Entry<T>>() {
+      public int compare(final Entry<T> entryOne, final Entry<T> entryTwo) {
+        return compareEntries(entryOne, entryTwo);
+      }
+    });
+
+    final List<T> result = new ArrayList<T>(entries.size());
+    for (Entry<T> entry : entries)
+      result.add(entry.item);
+
+    return result;
+  }
+
+  public void clear() {
+    heap.clear();
+    counter = 0;
+  }
+
+  private int compareEntries(final Entry<T> entryOne, final Entry<T> entryTwo) {
+    final int result = comparator.compare(entryOne.item, entryTwo.item);
+    if (result != 0)
+      return result;
+
+    // EQUAL ITEMS KEEP THE ORDER OF ADDITION
+    return entryOne.order < entryTwo.order ? -1 : (entryOne.order == entryTwo.order ? 0 : 1);
+  }
+
+  private static final class Entry<T> {
+    private final T    item;
+    private final long order;
+
+    private Entry(final T item, final long order) {
+      this.item = item;
+      this.order = order;
+    }
+  }
+}
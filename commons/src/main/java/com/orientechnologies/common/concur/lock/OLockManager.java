@@ -17,8 +17,15 @@ package com.orientechnologies.common.concur.lock;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Manages a lock per resource. The locks are kept in a concurrent table with a reference counter per lock: a lock is created by
+ * the first requester of the resource and is removed from the table by the last one releasing it. The table is accessed without
+ * any global or striped monitor, so requesters of different resources never wait for each other.
+ */
 public class OLockManager<RESOURCE_TYPE, REQUESTER_TYPE> {
   public enum LOCK {
     SHARED, EXCLUSIVE
@@ -28,17 +35,29 @@ public class OLockManager<RESOURCE_TYPE, REQUESTER_TYPE> {
   protected long                                                  acquireTimeout;
   protected final ConcurrentHashMap<RESOURCE_TYPE, CountableLock> map;
   private final boolean                                           enabled;
-  private final int                                               shift;
-  private final int                                               mask;
-  private final Object[]                                          locks;
 
   @SuppressWarnings("serial")
   protected static class CountableLock extends ReentrantReadWriteLock {
-    protected int countLocks = 0;
+    /**
+     * Number of requesters holding or waiting for the lock. Once it drops to 0 the lock is removed from the table and can not be
+     * acquired anymore.
+     */
+    protected final AtomicInteger countLocks = new AtomicInteger();
 
     public CountableLock(final boolean iFair) {
       super(false);
     }
+
+    protected boolean retain() {
+      while (true) {
+        final int count = countLocks.get();
+        if (count == 0)
+          return false;
+
+        if (countLocks.compareAndSet(count, count + 1))
+          return true;
+      }
+    }
   }
 
   public OLockManager(final boolean iEnabled, final int iAcquireTimeout) {
@@ -46,22 +65,7 @@ public class OLockManager<RESOURCE_TYPE, REQUESTER_TYPE> {
   }
 
   public OLockManager(final boolean iEnabled, final int iAcquireTimeout, final int concurrencyLevel) {
-    int cL = 1;
-
-    int sh = 0;
-    while (cL < concurrencyLevel) {
-      cL <<= 1;
-      sh++;
-    }
-
-    shift = 32 - sh;
-    mask = cL - 1;
-
-    map = new ConcurrentHashMap<RESOURCE_TYPE, CountableLock>(cL);
-    locks = new Object[cL];
-    for (int i = 0; i < locks.length; i++) {
-      locks[i] = new Object();
-    }
+    map = new ConcurrentHashMap<RESOURCE_TYPE, CountableLock>(concurrencyLevel, 0.75f, concurrencyLevel);
 
     acquireTimeout = iAcquireTimeout;
     enabled = iEnabled;
@@ -75,48 +79,32 @@ public class OLockManager<RESOURCE_TYPE, REQUESTER_TYPE> {
     if (!enabled)
       return;
 
-    CountableLock lock;
-    final Object internalLock = internalLock(iResourceId);
-    synchronized (internalLock) {
-      lock = map.get(iResourceId);
-      if (lock == null) {
-        final CountableLock newLock = new CountableLock(iTimeout > 0);
-        lock = map.putIfAbsent(getImmutableResourceId(iResourceId), newLock);
-        if (lock == null)
-          lock = newLock;
-      }
-      lock.countLocks++;
-    }
+    final CountableLock lock = retainLock(iResourceId, iTimeout);
+    final Lock typedLock = iLockType == LOCK.SHARED ? lock.readLock() : lock.writeLock();
 
     try {
-      if (iTimeout <= 0) {
-        if (iLockType == LOCK.SHARED)
-          lock.readLock().lock();
-        else
-          lock.writeLock().lock();
-      } else {
+      if (typedLock.tryLock())
+        return;
+
+      // THE RESOURCE IS LOCKED BY ANOTHER REQUESTER: WAIT FOR IT
+      final long waitStart = System.nanoTime();
+      if (iTimeout <= 0)
+        typedLock.lock();
+      else {
         try {
-          if (iLockType == LOCK.SHARED) {
-            if (!lock.readLock().tryLock(iTimeout, TimeUnit.MILLISECONDS))
-              throw new OLockException("Timeout on acquiring resource '" + iResourceId + "' because is locked from another thread");
-          } else {
-            if (!lock.writeLock().tryLock(iTimeout, TimeUnit.MILLISECONDS))
-              throw new OLockException("Timeout on acquiring resource '" + iResourceId + "' because is locked from another thread");
-          }
+          if (!typedLock.tryLock(iTimeout, TimeUnit.MILLISECONDS))
+            throw new OLockException("Timeout on acquiring resource '" + iResourceId + "' because is locked from another thread");
         } catch (InterruptedException e) {
           Thread.currentThread().interrupt();
           throw new OLockException("Thread interrupted while waiting for resource '" + iResourceId + "'");
         }
       }
+
+      onLockWait(iResourceId, iLockType, System.nanoTime() - waitStart);
     } catch (RuntimeException e) {
-      synchronized (internalLock) {
-        lock.countLocks--;
-        if (lock.countLocks == 0)
-          map.remove(iResourceId);
-      }
+      releaseCount(iResourceId, lock);
       throw e;
     }
-
   }
 
   public void releaseLock(final REQUESTER_TYPE iRequester, final RESOURCE_TYPE iResourceId, final LOCK iLockType)
@@ -124,23 +112,17 @@ public class OLockManager<RESOURCE_TYPE, REQUESTER_TYPE> {
     if (!enabled)
       return;
 
-    final CountableLock lock;
-    final Object internalLock = internalLock(iResourceId);
-    synchronized (internalLock) {
-      lock = map.get(iResourceId);
-      if (lock == null)
-        throw new OLockException("Error on releasing a non acquired lock by the requester '" + iRequester
-            + "' against the resource: '" + iResourceId + "'");
-
-      lock.countLocks--;
-      if (lock.countLocks == 0)
-        map.remove(iResourceId);
-    }
+    final CountableLock lock = map.get(iResourceId);
+    if (lock == null)
+      throw new OLockException("Error on releasing a non acquired lock by the requester '" + iRequester
+          + "' against the resource: '" + iResourceId + "'");
+
+    releaseCount(iResourceId, lock);
+
     if (iLockType == LOCK.SHARED)
       lock.readLock().unlock();
     else
       lock.writeLock().unlock();
-
   }
 
   public void clear() {
@@ -156,10 +138,34 @@ public class OLockManager<RESOURCE_TYPE, REQUESTER_TYPE> {
     return iResourceId;
   }
 
-  private Object internalLock(final RESOURCE_TYPE iResourceId) {
-    final int hashCode = iResourceId.hashCode();
-    final int index = (hashCode >>> shift) & mask;
-    return locks[index];
+  /**
+   * Called after a requester waited for a lock held by another requester. Does nothing by default.
+   * 
+   * @param iWaitNanos
+   *          Time spent waiting for the lock in nanoseconds
+   */
+  protected void onLockWait(final RESOURCE_TYPE iResourceId, final LOCK iLockType, final long iWaitNanos) {
+  }
+
+  private CountableLock retainLock(final RESOURCE_TYPE iResourceId, final long iTimeout) {
+    while (true) {
+      final CountableLock lock = map.get(iResourceId);
+      if (lock == null) {
+        final CountableLock newLock = new CountableLock(iTimeout > 0);
+        newLock.countLocks.set(1);
+        if (map.putIfAbsent(getImmutableResourceId(iResourceId), newLock) == null)
+          return newLock;
+      } else if (lock.retain())
+        return lock;
+      else
+        // THE LOCK HAS BEEN RELEASED BY ITS LAST REQUESTER THAT IS REMOVING IT: HELP IT AND RETRY
+        map.remove(iResourceId, lock);
+    }
+  }
+
+  private void releaseCount(final RESOURCE_TYPE iResourceId, final CountableLock lock) {
+    if (lock.countLocks.decrementAndGet() == 0)
+      map.remove(iResourceId, lock);
   }
 
   private static int defaultConcurrency() {
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.common.directmemory.collections;
+
+import com.orientechnologies.common.directmemory.ODirectMemory;
+
+/**
+ * Set of pairs of longs kept in a {@link OLongPairHashTable}.
+ */
+public class OLongPairHashSet extends OLongPairHashTable {
+  public OLongPairHashSet() {
+    this(null);
+  }
+
+  /**
+   * @param memory
+   *          Direct memory where the set is allocated or null to allocate it in the Java heap
+   */
+  public OLongPairHashSet(final ODirectMemory memory) {
+    super(memory, 0);
+  }
+
+  public boolean contains(final long keyOne, final long keyTwo) {
+    return find(keyOne, keyTwo) >= 0;
+  }
+
+  /**
+   * @return true if the pair was not in the set
+   */
+  public boolean add(final long keyOne, final long keyTwo) {
+    return insert(keyOne, keyTwo) < 0;
+  }
+
+  /**
+   * @return true if the pair was in the set
+   */
+  public boolean remove(final long keyOne, final long keyTwo) {
+    final long slot = find(keyOne, keyTwo);
+    if (slot < 0)
+      return false;
+
+    removeSlot(slot);
+    return true;
+  }
+}
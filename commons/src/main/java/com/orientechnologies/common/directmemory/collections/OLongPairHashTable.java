@@ -0,0 +1,299 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.common.directmemory.collections;
+
+import com.orientechnologies.common.directmemory.ODirectMemory;
+
+/**
+ * Open addressing hash table whose keys are pairs of longs, stored without boxing in a single array of slots which is allocated
+ * either in the Java heap or, if a {@link ODirectMemory} is passed, in direct memory. Every slot is made of the two keys followed by
+ * the values of the subclass. Collisions are resolved by linear probing and removed keys leave a tombstone, so slots never move
+ * until the table is rehashed on insertion: slots can be browsed by index and removed while they are browsed.
+ *
+ * The first key must not be {@link Long#MIN_VALUE} or {@link Long#MIN_VALUE} + 1, which mark the empty and the removed slots.
+ * Tables are not thread safe. Direct memory is released by {@link #free()} or, at the latest, when the table is garbage collected:
+ * only the tables in direct memory register a finalizer for it, heap tables are collected like any other object.
+ */
+public abstract class OLongPairHashTable {
+  private static final long   EMPTY            = Long.MIN_VALUE;
+  private static final long   REMOVED          = Long.MIN_VALUE + 1;
+
+  private static final int    INITIAL_CAPACITY = 16;
+  private static final float  LOAD_FACTOR      = 0.7f;
+
+  private final ODirectMemory memory;
+  private final int           slotSize;
+  @SuppressWarnings("unused")
+  private final Object        freeGuardian;
+
+  private long[]              table;
+  private long                pointer          = ODirectMemory.NULL_POINTER;
+
+  private long                capacity;
+  private long                size;
+  private long                removed;
+  private long                threshold;
+
+  protected OLongPairHashTable(final ODirectMemory memory, final int values) {
+    this.memory = memory;
+    this.slotSize = 2 + values;
+    this.freeGuardian = memory != null ? new OFreeGuardian(this) : null;
+
+    allocate(INITIAL_CAPACITY);
+  }
+
+  public long size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean isOffHeap() {
+    return memory != null;
+  }
+
+  /**
+   * Removes all the keys keeping the current capacity.
+   */
+  public void clear() {
+    if (size == 0 && removed == 0)
+      return;
+
+    for (long slot = 0; slot < capacity; slot++)
+      write(slot, 0, EMPTY);
+
+    size = 0;
+    removed = 0;
+  }
+
+  /**
+   * Releases the direct memory of the table. The table cannot be used anymore.
+   */
+  public void free() {
+    if (pointer != ODirectMemory.NULL_POINTER) {
+      memory.free(pointer);
+      pointer = ODirectMemory.NULL_POINTER;
+    }
+
+    table = null;
+    capacity = 0;
+    size = 0;
+  }
+
+  /**
+   * Returns the number of slots, used or not, to browse the table with {@link #isUsed(long)}.
+   */
+  public long capacity() {
+    return capacity;
+  }
+
+  public boolean isUsed(final long slot) {
+    final long keyOne = read(slot, 0);
+    return keyOne != EMPTY && keyOne != REMOVED;
+  }
+
+  public long getKeyOne(final long slot) {
+    return read(slot, 0);
+  }
+
+  public long getKeyTwo(final long slot) {
+    return read(slot, 1);
+  }
+
+  /**
+   * Returns the slot of the key or -1 if the key is not in the table.
+   */
+  protected long find(final long keyOne, final long keyTwo) {
+    checkKey(keyOne);
+
+    final long mask = capacity - 1;
+    long slot = hash(keyOne, keyTwo) & mask;
+    while (true) {
+      final long storedKeyOne = read(slot, 0);
+      if (storedKeyOne == EMPTY)
+        return -1;
+
+      if (storedKeyOne == keyOne && read(slot, 1) == keyTwo)
+        return slot;
+
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  /**
+   * Adds the key if it is not in the table yet.
+   *
+   * @return The slot of the key if it was already in the table, otherwise <code>-(slot + 1)</code> where slot is the one just
+   *         taken: the subclass has to set its values.
+   */
+  protected long insert(final long keyOne, final long keyTwo) {
+    checkKey(keyOne);
+
+    if (size + removed >= threshold)
+      // GROW ONLY IF THE TABLE IS FILLED BY KEYS, OTHERWISE GET RID OF THE TOMBSTONES
+      rehash(size >= threshold / 2 ? capacity << 1 : capacity);
+
+    final long mask = capacity - 1;
+    long slot = hash(keyOne, keyTwo) & mask;
+    long firstRemoved = -1;
+    while (true) {
+      final long storedKeyOne = read(slot, 0);
+      if (storedKeyOne == EMPTY)
+        break;
+
+      if (storedKeyOne == REMOVED) {
+        if (firstRemoved < 0)
+          firstRemoved = slot;
+      } else if (storedKeyOne == keyOne && read(slot, 1) == keyTwo)
+        return slot;
+
+      slot = (slot + 1) & mask;
+    }
+
+    if (firstRemoved >= 0) {
+      slot = firstRemoved;
+      removed--;
+    }
+
+    write(slot, 0, keyOne);
+    write(slot, 1, keyTwo);
+    size++;
+
+    return -(slot + 1);
+  }
+
+  /**
+   * Removes the key of the slot, leaving a tombstone.
+   */
+  protected void removeSlot(final long slot) {
+    write(slot, 0, REMOVED);
+    size--;
+    removed++;
+  }
+
+  protected long read(final long slot, final int field) {
+    return get(table, pointer, slot, field);
+  }
+
+  protected void write(final long slot, final int field, final long value) {
+    set(table, pointer, slot, field, value);
+  }
+
+  private void rehash(final long newCapacity) {
+    final long[] oldTable = table;
+    final long oldPointer = pointer;
+    final long oldCapacity = capacity;
+
+    allocate(newCapacity);
+
+    final long mask = capacity - 1;
+    for (long oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+      final long keyOne = get(oldTable, oldPointer, oldSlot, 0);
+      if (keyOne == EMPTY || keyOne == REMOVED)
+        continue;
+
+      final long keyTwo = get(oldTable, oldPointer, oldSlot, 1);
+      long slot = hash(keyOne, keyTwo) & mask;
+      while (read(slot, 0) != EMPTY)
+        slot = (slot + 1) & mask;
+
+      write(slot, 0, keyOne);
+      for (int field = 1; field < slotSize; field++)
+        write(slot, field, get(oldTable, oldPointer, oldSlot, field));
+    }
+
+    removed = 0;
+
+    if (oldPointer != ODirectMemory.NULL_POINTER)
+      memory.free(oldPointer);
+  }
+
+  private void allocate(final long newCapacity) {
+    final long longs = newCapacity * slotSize;
+
+    if (memory != null) {
+      table = null;
+      pointer = memory.allocate(longs << 3);
+      if (pointer == ODirectMemory.NULL_POINTER)
+        throw new OutOfMemoryError("There is not enough memory to allocate");
+    } else {
+      if (longs > Integer.MAX_VALUE - 8)
+        throw new IllegalStateException("Hash table can not contain more than " + (Integer.MAX_VALUE / slotSize)
+            + " slots in the heap, use direct memory instead");
+      table = new long[(int) longs];
+    }
+
+    capacity = newCapacity;
+    threshold = (long) (newCapacity * LOAD_FACTOR);
+
+    for (long slot = 0; slot < capacity; slot++)
+      write(slot, 0, EMPTY);
+  }
+
+  private long get(final long[] table, final long pointer, final long slot, final int field) {
+    final long index = slot * slotSize + field;
+    if (memory != null)
+      return memory.getLong(pointer + (index << 3));
+
+    return table[(int) index];
+  }
+
+  private void set(final long[] table, final long pointer, final long slot, final int field, final long value) {
+    final long index = slot * slotSize + field;
+    if (memory != null)
+      memory.setLong(pointer + (index << 3), value);
+    else
+      table[(int) index] = value;
+  }
+
+  private static void checkKey(final long keyOne) {
+    if (keyOne == EMPTY || keyOne == REMOVED)
+      throw new IllegalArgumentException("Key " + keyOne + " is reserved");
+  }
+
+  private static long hash(final long keyOne, final long keyTwo) {
+    // MURMUR3 FINALIZER OVER BOTH KEYS
+    long hash = keyOne * 0x9E3779B97F4A7C15L ^ keyTwo;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  /**
+   * Frees the direct memory of the table that owns it when both become unreachable.
+   */
+  private static final class OFreeGuardian {
+    private final OLongPairHashTable table;
+
+    private OFreeGuardian(final OLongPairHashTable table) {
+      this.table = table;
+    }
+
+    @Override
+    protected void finalize() throws Throwable {
+      try {
+        table.free();
+      } finally {
+        super.finalize();
+      }
+    }
+  }
+}
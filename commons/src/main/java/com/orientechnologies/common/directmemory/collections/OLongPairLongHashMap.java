@@ -0,0 +1,87 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.common.directmemory.collections;
+
+import com.orientechnologies.common.directmemory.ODirectMemory;
+
+/**
+ * Map from pairs of longs to longs kept in a {@link OLongPairHashTable}.
+ */
+public class OLongPairLongHashMap extends OLongPairHashTable {
+  public OLongPairLongHashMap() {
+    this(null);
+  }
+
+  /**
+   * @param memory
+   *          Direct memory where the map is allocated or null to allocate it in the Java heap
+   */
+  public OLongPairLongHashMap(final ODirectMemory memory) {
+    super(memory, 1);
+  }
+
+  public boolean containsKey(final long keyOne, final long keyTwo) {
+    return find(keyOne, keyTwo) >= 0;
+  }
+
+  /**
+   * Returns the value of the key or <code>defaultValue</code> if the key is not in the map.
+   */
+  public long get(final long keyOne, final long keyTwo, final long defaultValue) {
+    final long slot = find(keyOne, keyTwo);
+    return slot >= 0 ? read(slot, 2) : defaultValue;
+  }
+
+  /**
+   * Sets the value of the key.
+   * 
+   * @return The previous value of the key or <code>defaultValue</code> if the key was not in the map
+   */
+  public long put(final long keyOne, final long keyTwo, final long value, final long defaultValue) {
+    final long slot = insert(keyOne, keyTwo);
+    if (slot < 0) {
+      write(-(slot + 1), 2, value);
+      return defaultValue;
+    }
+
+    final long previousValue = read(slot, 2);
+    write(slot, 2, value);
+    return previousValue;
+  }
+
+  /**
+   * Removes the key.
+   * 
+   * @return The value of the key or <code>defaultValue</code> if the key was not in the map
+   */
+  public long remove(final long keyOne, final long keyTwo, final long defaultValue) {
+    final long slot = find(keyOne, keyTwo);
+    if (slot < 0)
+      return defaultValue;
+
+    final long value = read(slot, 2);
+    removeSlot(slot);
+    return value;
+  }
+
+  public long getValue(final long slot) {
+    return read(slot, 2);
+  }
+
+  public void setValue(final long slot, final long value) {
+    write(slot, 2, value);
+  }
+}
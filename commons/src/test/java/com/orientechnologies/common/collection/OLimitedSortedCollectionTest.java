@@ -0,0 +1,92 @@
+package com.orientechnologies.common.collection;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+@Test
+public class OLimitedSortedCollectionTest {
+  private static final Comparator<Integer> NATURAL_ORDER = new Comparator<Integer>() {
+                                                           public int compare(Integer o1, Integer o2) {
+                                                             return o1.compareTo(o2);
+                                                           }
+                                                         };
+
+  @Test
+  public void testKeepsFirstItems() {
+    final Random random = new Random(42);
+    final List<Integer> items = new ArrayList<Integer>();
+    final OLimitedSortedCollection<Integer> collection = new OLimitedSortedCollection<Integer>(100, NATURAL_ORDER);
+
+    for (int i = 0; i < 10000; i++) {
+      final int item = random.nextInt(5000);
+      items.add(item);
+      collection.add(item);
+    }
+
+    Collections.sort(items);
+
+    assertEquals(collection.size(), 100);
+    assertEquals(collection.toList(), items.subList(0, 100));
+  }
+
+  @Test
+  public void testLessItemsThanLimit() {
+    final OLimitedSortedCollection<Integer> collection = new OLimitedSortedCollection<Integer>(10, NATURAL_ORDER);
+    assertTrue(collection.isEmpty());
+
+    for (int i = 5; i > 0; i--)
+      assertTrue(collection.add(i));
+
+    final List<Integer> expected = new ArrayList<Integer>();
+    for (int i = 1; i <= 5; i++)
+      expected.add(i);
+
+    assertEquals(collection.toList(), expected);
+  }
+
+  @Test
+  public void testRejectsItemsAfterLimit() {
+    final OLimitedSortedCollection<Integer> collection = new OLimitedSortedCollection<Integer>(2, NATURAL_ORDER);
+
+    assertTrue(collection.add(3));
+    assertTrue(collection.add(1));
+    assertFalse(collection.add(4));
+    assertFalse(collection.add(3));
+    assertTrue(collection.add(2));
+
+    final List<Integer> expected = new ArrayList<Integer>();
+    expected.add(1);
+    expected.add(2);
+    assertEquals(collection.toList(), expected);
+  }
+
+  @Test
+  public void testEqualItemsKeepOrderOfAddition() {
+    final Comparator<String> firstCharOrder = new Comparator<String>() {
+      public int compare(String o1, String o2) {
+        return o1.charAt(0) - o2.charAt(0);
+      }
+    };
+
+    final OLimitedSortedCollection<String> collection = new OLimitedSortedCollection<String>(4, firstCharOrder);
+    final String[] items = { "b1", "a1", "b2", "a2", "b3", "a3", "b4" };
+    for (String item : items)
+      collection.add(item);
+
+    final List<String> expected = new ArrayList<String>();
+    expected.add("a1");
+    expected.add("a2");
+    expected.add("a3");
+    expected.add("b1");
+    assertEquals(collection.toList(), expected);
+  }
+}
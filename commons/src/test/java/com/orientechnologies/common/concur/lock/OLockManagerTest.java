@@ -0,0 +1,115 @@
+package com.orientechnologies.common.concur.lock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.concur.lock.OLockManager.LOCK;
+
+@Test
+public class OLockManagerTest {
+  private static final int THREADS = 8;
+  private static final int CYCLES  = 20000;
+
+  public void testLocksAreRemovedWhenReleased() {
+    final OLockManager<Integer, Thread> lockManager = new OLockManager<Integer, Thread>(true, 1000);
+
+    lockManager.acquireLock(Thread.currentThread(), 1, LOCK.SHARED);
+    lockManager.acquireLock(Thread.currentThread(), 1, LOCK.SHARED);
+    lockManager.acquireLock(Thread.currentThread(), 2, LOCK.EXCLUSIVE);
+    Assert.assertEquals(lockManager.getCountCurrentLocks(), 2);
+
+    lockManager.releaseLock(Thread.currentThread(), 1, LOCK.SHARED);
+    Assert.assertEquals(lockManager.getCountCurrentLocks(), 2);
+
+    lockManager.releaseLock(Thread.currentThread(), 1, LOCK.SHARED);
+    lockManager.releaseLock(Thread.currentThread(), 2, LOCK.EXCLUSIVE);
+    Assert.assertEquals(lockManager.getCountCurrentLocks(), 0);
+  }
+
+  @Test(expectedExceptions = OLockException.class)
+  public void testReleaseNotAcquired() {
+    new OLockManager<Integer, Thread>(true, 1000).releaseLock(Thread.currentThread(), 1, LOCK.EXCLUSIVE);
+  }
+
+  public void testTimeout() throws Exception {
+    final List<Long> waits = new ArrayList<Long>();
+    final OLockManager<Integer, Thread> lockManager = new OLockManager<Integer, Thread>(true, 100) {
+      @Override
+      protected void onLockWait(Integer iResourceId, LOCK iLockType, long iWaitNanos) {
+        waits.add(iWaitNanos);
+      }
+    };
+
+    lockManager.acquireLock(Thread.currentThread(), 1, LOCK.EXCLUSIVE);
+
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final Future<Boolean> timedOut = executor.submit(new Callable<Boolean>() {
+        public Boolean call() {
+          try {
+            lockManager.acquireLock(Thread.currentThread(), 1, LOCK.SHARED);
+            return false;
+          } catch (OLockException e) {
+            return true;
+          }
+        }
+      });
+      Assert.assertTrue(timedOut.get());
+    } finally {
+      executor.shutdown();
+    }
+
+    // THE FAILED REQUESTER DOES NOT LEAVE ITS REFERENCE ON THE LOCK
+    lockManager.releaseLock(Thread.currentThread(), 1, LOCK.EXCLUSIVE);
+    Assert.assertEquals(lockManager.getCountCurrentLocks(), 0);
+    Assert.assertTrue(waits.isEmpty());
+  }
+
+  public void testExclusiveAccessUnderContention() throws Exception {
+    final OLockManager<Integer, Thread> lockManager = new OLockManager<Integer, Thread>(true, 0);
+    final long[] counters = new long[4];
+    final CountDownLatch start = new CountDownLatch(1);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int t = 0; t < THREADS; t++)
+        futures.add(executor.submit(new Callable<Void>() {
+          public Void call() throws Exception {
+            start.await();
+            for (int i = 0; i < CYCLES; i++) {
+              final int resource = i % counters.length;
+              lockManager.acquireLock(Thread.currentThread(), resource, LOCK.EXCLUSIVE);
+              try {
+                counters[resource]++;
+              } finally {
+                lockManager.releaseLock(Thread.currentThread(), resource, LOCK.EXCLUSIVE);
+              }
+            }
+            return null;
+          }
+        }));
+
+      start.countDown();
+      for (Future<Void> future : futures)
+        future.get();
+    } finally {
+      executor.shutdown();
+    }
+
+    long total = 0;
+    for (long counter : counters)
+      total += counter;
+
+    Assert.assertEquals(total, (long) THREADS * CYCLES);
+    Assert.assertEquals(lockManager.getCountCurrentLocks(), 0);
+  }
+}
@@ -0,0 +1,157 @@
+package com.orientechnologies.common.directmemory.collections;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.directmemory.ODirectMemory;
+import com.orientechnologies.common.directmemory.ODirectMemoryFactory;
+
+@Test
+public class LongPairHashTableTest {
+  public void testSetInHeap() {
+    checkSet(new OLongPairHashSet());
+  }
+
+  public void testSetInDirectMemory() {
+    final ODirectMemory memory = ODirectMemoryFactory.INSTANCE.directMemory();
+    if (memory == null)
+      return;
+
+    final OLongPairHashSet set = new OLongPairHashSet(memory);
+    Assert.assertTrue(set.isOffHeap());
+    checkSet(set);
+  }
+
+  public void testMapInHeap() {
+    checkMap(new OLongPairLongHashMap());
+  }
+
+  public void testMapInDirectMemory() {
+    final ODirectMemory memory = ODirectMemoryFactory.INSTANCE.directMemory();
+    if (memory == null)
+      return;
+
+    checkMap(new OLongPairLongHashMap(memory));
+  }
+
+  public void testRemovedSlotsAreReused() {
+    final OLongPairHashSet set = new OLongPairHashSet();
+    for (int i = 0; i < 100000; i++) {
+      Assert.assertTrue(set.add(1, i));
+      Assert.assertTrue(set.remove(1, i));
+    }
+
+    // TOMBSTONES ARE DROPPED WITHOUT GROWING THE TABLE
+    Assert.assertTrue(set.isEmpty());
+    Assert.assertEquals(set.capacity(), 16);
+  }
+
+  public void testHeapTablesHaveNoFinalizer() {
+    for (Class<?> cls = OLongPairHashSet.class; cls != Object.class; cls = cls.getSuperclass())
+      try {
+        cls.getDeclaredMethod("finalize");
+        Assert.fail(cls.getName() + " registers a finalizer for every table");
+      } catch (NoSuchMethodException e) {
+      }
+  }
+
+  public void testDirectMemoryIsFreedWhenCollected() throws Exception {
+    final ODirectMemory memory = ODirectMemoryFactory.INSTANCE.directMemory();
+    if (memory == null)
+      return;
+
+    final AtomicInteger frees = new AtomicInteger();
+    final ODirectMemory countingMemory = (ODirectMemory) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] { ODirectMemory.class }, new InvocationHandler() {
+          public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            if (method.getName().equals("free"))
+              frees.incrementAndGet();
+            return method.invoke(memory, args);
+          }
+        });
+
+    new OLongPairHashSet(countingMemory).add(1, 1);
+
+    for (int i = 0; i < 100 && frees.get() == 0; i++) {
+      System.gc();
+      System.runFinalization();
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(frees.get(), 1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testReservedKey() {
+    new OLongPairHashSet().add(Long.MIN_VALUE, 0);
+  }
+
+  private void checkSet(final OLongPairHashSet set) {
+    try {
+      for (int i = 0; i < 10000; i++)
+        Assert.assertTrue(set.add(i % 7 - 1, i * 31L));
+      Assert.assertFalse(set.add(-1, 0));
+      Assert.assertEquals(set.size(), 10000);
+
+      for (int i = 0; i < 10000; i += 2)
+        Assert.assertTrue(set.remove(i % 7 - 1, i * 31L));
+      Assert.assertFalse(set.remove(-1, 0));
+      Assert.assertEquals(set.size(), 5000);
+
+      for (int i = 0; i < 10000; i++)
+        Assert.assertEquals(set.contains(i % 7 - 1, i * 31L), i % 2 == 1);
+
+      long found = 0;
+      for (long slot = 0; slot < set.capacity(); slot++)
+        if (set.isUsed(slot)) {
+          Assert.assertEquals((set.getKeyTwo(slot) / 31) % 2, 1);
+          found++;
+        }
+      Assert.assertEquals(found, 5000);
+
+      set.clear();
+      Assert.assertTrue(set.isEmpty());
+      Assert.assertFalse(set.contains(0, 31));
+    } finally {
+      set.free();
+    }
+  }
+
+  private void checkMap(final OLongPairLongHashMap map) {
+    final Map<Long, Long> expected = new HashMap<Long, Long>();
+    final Random random = new Random(42);
+    try {
+      for (int i = 0; i < 50000; i++) {
+        final long key = random.nextInt(5000);
+        final long value = random.nextLong();
+
+        switch (random.nextInt(3)) {
+        case 0:
+        case 1:
+          final Long previous = expected.put(key, value);
+          Assert.assertEquals(map.put(key, -key, value, Long.MIN_VALUE), previous == null ? Long.MIN_VALUE : previous.longValue());
+          break;
+        default:
+          final Long removed = expected.remove(key);
+          Assert.assertEquals(map.remove(key, -key, Long.MIN_VALUE), removed == null ? Long.MIN_VALUE : removed.longValue());
+        }
+      }
+
+      Assert.assertEquals(map.size(), expected.size());
+      for (long key = 0; key < 5000; key++) {
+        final Long value = expected.get(key);
+        Assert.assertEquals(map.containsKey(key, -key), value != null);
+        Assert.assertEquals(map.get(key, -key, Long.MIN_VALUE), value == null ? Long.MIN_VALUE : value.longValue());
+      }
+    } finally {
+      map.free();
+    }
+  }
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli(at)orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.memory.OMemoryWatchDog;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+
+/**
+ * Implementation of {@link OCache} which can be read concurrently. Records are partitioned between segments by hash of their
+ * identity, every segment is protected by its own read-write lock, so lookups of records do not block each other. Records are
+ * evicted using CLOCK (second chance) policy: lookup only marks record as referenced, referenced records are moved to the tail of
+ * the queue instead of eviction.
+ * <p>
+ * To use it set "cache.level2.impl" to "com.orientechnologies.orient.core.cache.OConcurrentCache".
+ */
+public class OConcurrentCache implements OCache {
+  private static final int           DEFAULT_LIMIT    = 1000;
+  private static final int           MAX_SEGMENTS     = 16;
+  private static final int           MIN_SEGMENT_SIZE = 256;
+
+  protected final int                limit;
+  protected OMemoryWatchDog.Listener lowMemoryListener;
+
+  private final Segment[]            segments;
+  private final int                  segmentMask;
+  private final AtomicBoolean        enabled          = new AtomicBoolean(false);
+
+  private final String               evictedCounter;
+
+  public OConcurrentCache(final String iName, final int initialLimit) {
+    limit = initialLimit;
+
+    int segmentsCount = 1;
+    while (segmentsCount < MAX_SEGMENTS && initialLimit / (segmentsCount << 1) >= MIN_SEGMENT_SIZE)
+      segmentsCount <<= 1;
+
+    segments = new Segment[segmentsCount];
+    segmentMask = segmentsCount - 1;
+
+    final int initialCapacity = initialLimit > 0 ? initialLimit / segmentsCount : DEFAULT_LIMIT;
+    for (int i = 0; i < segmentsCount; i++) {
+      final int segmentLimit = initialLimit > 0 ? initialLimit / segmentsCount + (i < initialLimit % segmentsCount ? 1 : 0) : 0;
+      segments[i] = new Segment(initialCapacity, segmentLimit);
+    }
+
+    evictedCounter = iName != null ? "db." + iName + ".cache.level2.cache.evicted" : null;
+  }
+
+  @Override
+  public void startup() {
+    lowMemoryListener = Orient.instance().getMemoryWatchDog().addListener(new OLowMemoryListener());
+    enable();
+  }
+
+  @Override
+  public void shutdown() {
+    Orient.instance().getMemoryWatchDog().removeListener(lowMemoryListener);
+    disable();
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return enabled.get();
+  }
+
+  @Override
+  public boolean enable() {
+    return enabled.compareAndSet(false, true);
+  }
+
+  @Override
+  public boolean disable() {
+    clear();
+    return enabled.compareAndSet(true, false);
+  }
+
+  @Override
+  public ORecordInternal<?> get(final ORID id) {
+    if (!isEnabled())
+      return null;
+
+    final Segment segment = segment(id);
+    segment.lock.readLock().lock();
+    try {
+      final Entry entry = segment.entries.get(id);
+      if (entry == null)
+        return null;
+
+      entry.referenced = true;
+      return entry.record;
+    } finally {
+      segment.lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public ORecordInternal<?> put(final ORecordInternal<?> record) {
+    if (!isEnabled())
+      return null;
+
+    final Segment segment = segment(record.getIdentity());
+    final int evicted;
+    final Entry previous;
+
+    segment.lock.writeLock().lock();
+    try {
+      previous = segment.entries.put(record.getIdentity(), new Entry(record));
+      evicted = segment.evict(false);
+    } finally {
+      segment.lock.writeLock().unlock();
+    }
+
+    if (evicted > 0 && evictedCounter != null)
+      Orient.instance().getProfiler()
+          .updateCounter(evictedCounter, "Records evicted from Level2 Cache", evicted, "db.*.cache.level2.cache.evicted");
+
+    return previous != null ? previous.record : null;
+  }
+
+  @Override
+  public ORecordInternal<?> remove(final ORID id) {
+    if (!isEnabled())
+      return null;
+
+    final Segment segment = segment(id);
+    segment.lock.writeLock().lock();
+    try {
+      final Entry entry = segment.entries.remove(id);
+      return entry != null ? entry.record : null;
+    } finally {
+      segment.lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    if (!isEnabled())
+      return;
+
+    for (Segment segment : segments) {
+      segment.lock.writeLock().lock();
+      try {
+        segment.entries.clear();
+      } finally {
+        segment.lock.writeLock().unlock();
+      }
+    }
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      segment.lock.readLock().lock();
+      try {
+        size += segment.entries.size();
+      } finally {
+        segment.lock.readLock().unlock();
+      }
+    }
+
+    return size;
+  }
+
+  @Override
+  public int limit() {
+    return limit;
+  }
+
+  @Override
+  public Collection<ORID> keys() {
+    final List<ORID> keys = new ArrayList<ORID>();
+    for (Segment segment : segments) {
+      segment.lock.readLock().lock();
+      try {
+        keys.addAll(segment.entries.keySet());
+      } finally {
+        segment.lock.readLock().unlock();
+      }
+    }
+
+    return keys;
+  }
+
+  @Override
+  public void lock(final ORID id) {
+    segment(id).lock.writeLock().lock();
+  }
+
+  @Override
+  public void unlock(final ORID id) {
+    segment(id).lock.writeLock().unlock();
+  }
+
+  int getSegmentsCount() {
+    return segments.length;
+  }
+
+  private Segment segment(final ORID id) {
+    if (segmentMask == 0)
+      return segments[0];
+
+    int hash = id.hashCode();
+    hash ^= (hash >>> 20) ^ (hash >>> 12);
+    hash ^= (hash >>> 7) ^ (hash >>> 4);
+
+    return segments[hash & segmentMask];
+  }
+
+  private void removeEldest(final int amount) {
+    final int size = size();
+    if (size == 0)
+      return;
+
+    // EVERY SEGMENT IS SHRUNK PROPORTIONALLY TO ITS SIZE
+    for (Segment segment : segments) {
+      segment.lock.writeLock().lock();
+      try {
+        segment.removeEldest((int) Math.ceil((double) segment.entries.size() * amount / size));
+      } finally {
+        segment.lock.writeLock().unlock();
+      }
+    }
+  }
+
+  private static final class Entry {
+    private final ORecordInternal<?> record;
+    private volatile boolean         referenced;
+
+    private Entry(final ORecordInternal<?> record) {
+      this.record = record;
+    }
+  }
+
+  private static final class Segment {
+    private final ReentrantReadWriteLock   lock = new ReentrantReadWriteLock();
+
+    /**
+     * Records in order of insertion, head of the map is the position of CLOCK hand.
+     */
+    private final LinkedHashMap<ORID, Entry> entries;
+    private final int                      limit;
+
+    private Segment(final int initialCapacity, final int limit) {
+      this.entries = new LinkedHashMap<ORID, Entry>(initialCapacity);
+      this.limit = limit;
+    }
+
+    /**
+     * Evicts records till size of segment fits in its limit.
+     *
+     * @return amount of evicted records
+     */
+    private int evict(final boolean skipUsed) {
+      if (limit <= 0 || entries.size() <= limit)
+        return 0;
+
+      return removeEldest(entries.size() - limit, skipUsed);
+    }
+
+    private int removeEldest(final int amount) {
+      return removeEldest(amount, true);
+    }
+
+    private int removeEldest(int amount, final boolean skipUsed) {
+      int evicted = 0;
+
+      // SECOND PASS EVICTS RECORDS WHICH WERE REFERENCED DURING THE FIRST ONE
+      for (int pass = 0; pass < 2 && amount > 0; pass++) {
+        final List<Map.Entry<ORID, Entry>> referenced = new ArrayList<Map.Entry<ORID, Entry>>();
+
+        for (Iterator<Map.Entry<ORID, Entry>> iterator = entries.entrySet().iterator(); amount > 0 && iterator.hasNext();) {
+          final Map.Entry<ORID, Entry> mapEntry = iterator.next();
+          final Entry entry = mapEntry.getValue();
+
+          if (skipUsed && (entry.record.isDirty() || entry.record.isPinned() == Boolean.TRUE))
+            continue;
+
+          iterator.remove();
+
+          if (entry.referenced) {
+            entry.referenced = false;
+            referenced.add(mapEntry);
+          } else {
+            evicted++;
+            amount--;
+          }
+        }
+
+        for (Map.Entry<ORID, Entry> mapEntry : referenced)
+          entries.put(mapEntry.getKey(), mapEntry.getValue());
+      }
+
+      return evicted;
+    }
+  }
+
+  class OLowMemoryListener implements OMemoryWatchDog.Listener {
+    public void memoryUsageLow(final long freeMemory, final long freeMemoryPercentage) {
+      try {
+        final int oldSize = size();
+        if (oldSize == 0)
+          return;
+
+        if (freeMemoryPercentage < 10) {
+          OLogManager.instance().debug(this, "Low memory (%d%%): clearing %d cached records", freeMemoryPercentage, size());
+          removeEldest(oldSize);
+        } else {
+          final int newSize = (int) (oldSize * 0.9f);
+          removeEldest(oldSize - newSize);
+          OLogManager.instance().debug(this, "Low memory (%d%%): reducing cached records number from %d to %d",
+              freeMemoryPercentage, oldSize, newSize);
+        }
+      } catch (Exception e) {
+        OLogManager.instance().error(this, "Error occurred during concurrent cache cleanup", e);
+      }
+    }
+  }
+}
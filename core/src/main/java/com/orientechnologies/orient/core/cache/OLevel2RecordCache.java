@@ -17,6 +17,10 @@ package com.orientechnologies.orient.core.cache;
 
 import static com.orientechnologies.orient.core.config.OGlobalConfiguration.CACHE_LEVEL2_STRATEGY;
 
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.orientechnologies.common.profiler.OProfiler.METRIC_TYPE;
+import com.orientechnologies.common.profiler.OProfiler.OProfilerHookValue;
 import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
@@ -31,9 +35,11 @@ import com.orientechnologies.orient.core.storage.OStorage;
  * @author Sylvain Spinelli
  */
 public class OLevel2RecordCache extends OAbstractRecordCache {
-  private final String CACHE_HIT;
-  private final String CACHE_MISS;
-  private STRATEGY     strategy;
+  private final String     CACHE_HIT;
+  private final String     CACHE_MISS;
+  private final AtomicLong hits   = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private STRATEGY         strategy;
 
   public enum STRATEGY {
     POP_RECORD, COPY_RECORD
@@ -55,6 +61,33 @@ public class OLevel2RecordCache extends OAbstractRecordCache {
   public void startup() {
     super.startup();
     setEnable(OGlobalConfiguration.CACHE_LEVEL2_ENABLED.getValueAsBoolean());
+
+    Orient.instance().getProfiler()
+        .registerHookValue(profilerPrefix + "hitRatio", "Percent of records found in cache", METRIC_TYPE.STAT,
+            new OProfilerHookValue() {
+              public Object getValue() {
+                return getHitRatio();
+              }
+            }, profilerMetadataPrefix + "hitRatio");
+  }
+
+  @Override
+  public void shutdown() {
+    super.shutdown();
+
+    if (Orient.instance().getProfiler() != null)
+      Orient.instance().getProfiler().unregisterHookValue(profilerPrefix + "hitRatio");
+  }
+
+  /**
+   * Percent of lookups which found record in cache since cache startup.
+   * 
+   * @return value from 0 to 100
+   */
+  public float getHitRatio() {
+    final long found = hits.get();
+    final long total = found + misses.get();
+    return total > 0 ? found * 100f / total : 0;
   }
 
   /**
@@ -93,7 +126,8 @@ public class OLevel2RecordCache extends OAbstractRecordCache {
   /**
    * Retrieve the record if any following the supported strategies:<br>
    * 0 = If found remove it (pop): the client (database instances) will push it back when finished or on close.<br>
-   * 1 = Return the instance but keep a copy in 2-level cache; this could help highly-concurrent environment.
+   * 1 = Return a copy of the record (in concurrent environment) and keep the instance in 2-level cache; lookups do not lock the
+   * cache exclusively, this could help highly-concurrent environment.
    * 
    * @param iRID
    *          record identity
@@ -104,31 +138,47 @@ public class OLevel2RecordCache extends OAbstractRecordCache {
       return null;
 
     ORecordInternal<?> record;
-    underlying.lock(iRID);
-    try {
-      record = underlying.remove(iRID);
-
-      if (record == null || record.isDirty()) {
-        Orient.instance().getProfiler()
-            .updateCounter(CACHE_MISS, "Record not found in Level2 Cache", +1, "db.*.cache.level2.cache.notFound");
-        return null;
+    if (strategy == STRATEGY.POP_RECORD) {
+      underlying.lock(iRID);
+      try {
+        record = underlying.remove(iRID);
+      } finally {
+        underlying.unlock(iRID);
       }
+    } else
+      // LOOKUP ONLY: THE CACHE KEEPS THE RECORD AND UPDATES ITS EVICTION ORDER BY ITSELF
+      record = underlying.get(iRID);
 
-      if (strategy == STRATEGY.COPY_RECORD) {
-        final ORecordInternal<?> resident = OGlobalConfiguration.ENVIRONMENT_CONCURRENT.getValueAsBoolean() ? (ORecordInternal<?>) record
-            .flatCopy() : record;
-        // PUT BACK A COPY OR ThE ORIGINAL IF NOT MULTI-THREADS (THIS UPDATE ALSO THE LRU)
-        underlying.put(resident);
-      }
+    if (record == null || record.isDirty()) {
+      if (record != null && strategy == STRATEGY.COPY_RECORD)
+        removeIfCached(iRID, record);
 
-    } finally {
-      underlying.unlock(iRID);
+      misses.incrementAndGet();
+      Orient.instance().getProfiler()
+          .updateCounter(CACHE_MISS, "Record not found in Level2 Cache", +1, "db.*.cache.level2.cache.notFound");
+      return null;
     }
 
+    if (strategy == STRATEGY.COPY_RECORD && OGlobalConfiguration.ENVIRONMENT_CONCURRENT.getValueAsBoolean())
+      // RETURN A COPY, THE CACHED INSTANCE IS NEVER CHANGED SO IT CAN BE COPIED WITHOUT LOCKS
+      record = (ORecordInternal<?>) record.flatCopy();
+
+    hits.incrementAndGet();
     Orient.instance().getProfiler().updateCounter(CACHE_HIT, "Record found in Level2 Cache", +1, "db.*.cache.level2.cache.found");
     return record;
   }
 
+  private void removeIfCached(final ORID iRID, final ORecordInternal<?> iRecord) {
+    underlying.lock(iRID);
+    try {
+      // THE RECORD COULD BE ALREADY REPLACED BY A FRESH ONE
+      if (underlying.get(iRID) == iRecord)
+        underlying.remove(iRID);
+    } finally {
+      underlying.unlock(iRID);
+    }
+  }
+
   public void setStrategy(final STRATEGY newStrategy) {
     strategy = newStrategy;
   }
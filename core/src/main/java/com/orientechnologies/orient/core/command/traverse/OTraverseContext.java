@@ -17,7 +17,6 @@ package com.orientechnologies.orient.core.command.traverse;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -25,10 +24,11 @@ import java.util.Set;
 import com.orientechnologies.orient.core.command.OBasicCommandContext;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORidSet;
 import com.orientechnologies.orient.core.record.impl.ODocumentHelper;
 
 public class OTraverseContext extends OBasicCommandContext {
-  private Set<ORID>                         history = new HashSet<ORID>();
+  private Set<ORID>                         history = new ORidSet();
   private List<OTraverseAbstractProcess<?>> stack   = new ArrayList<OTraverseAbstractProcess<?>>();
   private int                               depth   = -1;
 
@@ -53,6 +53,9 @@ public enum OGlobalConfiguration {
 
   MEMORY_USE_UNSAFE("memory.useUnsafe", "Indicates whether Unsafe will be used if it is present", Boolean.class, true),
 
+  MEMORY_RID_COLLECTIONS_OFF_HEAP("memory.ridCollections.offHeap",
+      "Keeps the sets and maps of RIDs used by traversals, distinct and transactions out of the Java heap", Boolean.class, false),
+
   JVM_GC_DELAY_FOR_OPTIMIZE("jvm.gc.delayForOptimize",
       "Minimal amount of time (seconds) since last System.gc() when called after tree optimization", Long.class, 600),
 
@@ -74,6 +77,9 @@ public enum OGlobalConfiguration {
 
   WAL_COMMIT_TIMEOUT("storage.wal.commitTimeout", "Maximum interval between WAL commits (in ms.)", Integer.class, 1000),
 
+  WAL_GROUP_COMMIT("storage.wal.groupCommit", "Transaction commit waits till its records are flushed to the disk, "
+      + "transactions which are committed at the same time share single WAL flush", Boolean.class, false),
+
   WAL_SHUTDOWN_TIMEOUT("storage.wal.shutdownTimeout", "Maximum wait interval between events when background flush thread"
       + " will receive shutdown command and when background flush will be stopped (in ms.)", Integer.class, 10000),
 
@@ -101,12 +107,20 @@ public enum OGlobalConfiguration {
       + "this queue is used to accumulate all pages that "
       + "should be written to the disk and then flush them in batch mode to minimize random IO overhead.", Integer.class, 15000),
 
+  DISK_CACHE_CONCURRENCY_LEVEL("storage.diskCache.concurrencyLevel", "Amount of partitions of disk cache, "
+      + "each partition has its own lock and 2Q queues so pages of different partitions can be accessed concurrently. "
+      + "Cache is not split into partitions which contain less than 1024 pages.", Integer.class, 16),
+
   DISK_PAGE_CACHE_LOCK_TIMEOUT("storage.diskPageCache.lockTimeOut",
       "Timeout till page lock will wait in case of multi threading operations", Integer.class, 1000),
 
   PAGINATED_STORAGE_LOWEST_FREELIST_BOUNDARY("storage.lowestFreeListBound", "The minimal amount of free space (in kb)"
       + " in page which is tracked in paginated storage", Integer.class, 16),
 
+  STORAGE_BULK_LOAD_INDEX_SORT_BUFFER("storage.bulkLoad.indexSortBuffer",
+      "Maximum number of index entries sorted in memory at once when the indexes are rebuilt at the end of a bulk load",
+      Integer.class, 1000000),
+
   USE_NODE_ID_CLUSTER_POSITION("storage.cluster.useNodeIdAsClusterPosition", "Indicates whether cluster position should be"
       + " treated as node id not as long value.", Boolean.class, Boolean.FALSE),
 
@@ -123,6 +137,9 @@ public enum OGlobalConfiguration {
   STORAGE_USE_TOMBSTONES("storage.useTombstones", "When record will be deleted its cluster"
       + " position will not be freed but tombstone will be placed instead", Boolean.class, false),
 
+  STORAGE_MEMORY_OFF_HEAP("storage.memory.offHeap", "Keeps the records of memory databases in pages allocated out of the Java heap"
+      + " instead of in Java objects, so they are not scanned by the garbage collector", Boolean.class, false),
+
   // CACHE
   CACHE_LEVEL1_ENABLED("cache.level1.enabled", "Use the level-1 cache", Boolean.class, true),
 
@@ -132,8 +149,9 @@ public enum OGlobalConfiguration {
 
   CACHE_LEVEL2_SIZE("cache.level2.size", "Size of the cache that keeps the record in memory", Integer.class, 10000),
 
-  CACHE_LEVEL2_IMPL("cache.level2.impl", "Actual implementation of secondary cache", String.class, ODefaultCache.class
-      .getCanonicalName()),
+  CACHE_LEVEL2_IMPL("cache.level2.impl", "Actual implementation of secondary cache. "
+      + "Use com.orientechnologies.orient.core.cache.OConcurrentCache to allow concurrent lookups of records", String.class,
+      ODefaultCache.class.getCanonicalName()),
 
   CACHE_LEVEL2_STRATEGY("cache.level2.strategy",
       "Strategy to use when a database requests a record: 0 = pop the record, 1 = copy the record", Integer.class, 0,
@@ -355,6 +373,22 @@ public enum OGlobalConfiguration {
 
   NETWORK_BINARY_DEBUG("network.binary.debug", "Debug mode: print all data incoming on the binary channel", Boolean.class, false),
 
+  NETWORK_BINARY_MULTIPLEX("network.binary.multiplex",
+      "Reads the responses of client binary channels by a dedicated thread which wakes up only the requester the response belongs to",
+      Boolean.class, Boolean.FALSE),
+
+  NETWORK_BINARY_NIO_ENABLED("network.binary.nio.enabled",
+      "Serves binary connections by a selector and a bounded pool of workers instead of a thread per connection", Boolean.class,
+      Boolean.FALSE),
+
+  NETWORK_BINARY_NIO_WORKERS("network.binary.nio.workers",
+      "Number of worker threads executing the requests of binary connections when network.binary.nio.enabled is true",
+      Integer.class, 32),
+
+  NETWORK_BINARY_NIO_QUEUE("network.binary.nio.queue",
+      "Maximum number of binary connections with complete requests waiting for a worker, beyond it the connections are not read "
+          + "till a worker is free", Integer.class, 256),
+
   NETWORK_HTTP_MAX_CONTENT_LENGTH("network.http.maxLength", "TCP/IP max content length in bytes for HTTP requests", Integer.class,
       1000000),
 
@@ -408,6 +442,30 @@ public enum OGlobalConfiguration {
   // COMMAND
   COMMAND_TIMEOUT("command.timeout", "Default timeout for commands expressed in milliseconds", Long.class, 0),
 
+  // QUERY
+  QUERY_SORT_SPILL_THRESHOLD("query.sort.spillThreshold",
+      "Maximum number of records ORDER BY sorts in memory. Bigger results are sorted in runs spilled to temporary files. -1 = never spill",
+      Integer.class, -1),
+
+  QUERY_GROUP_SPILL_THRESHOLD("query.groupBy.spillThreshold",
+      "Maximum number of groups GROUP BY keeps in memory. Records of the other groups are spilled to temporary files and aggregated"
+          + " partition by partition. -1 = never spill", Integer.class, -1),
+
+  QUERY_SPILL_PATH("query.spill.path", "Directory of the temporary files of spilled queries, by default the temporary directory"
+      + " of the JVM", String.class, null),
+
+  QUERY_PARALLEL_THREADS("query.parallel.threads",
+      "Number of threads which scan the clusters of queries executed in PARALLEL. 0 = number of available processors",
+      Integer.class, 0),
+
+  QUERY_STATEMENT_CACHE_SIZE("query.statementCache.size",
+      "Maximum number of parsed SELECT statements cached per database to execute the same query text again without parsing it."
+          + " 0 = disabled", Integer.class, 500),
+
+  QUERY_INDEX_FULL_SCAN_RATIO("query.index.fullScanRatio",
+      "Fraction of the records of the class over which the estimated results of the best index, collected by ANALYZE INDEX,"
+          + " make the query scan the whole class instead of using the index", Float.class, 0.3f),
+
   // CLIENT
   CLIENT_CHANNEL_MIN_POOL("client.channel.minPool", "Minimum pool size", Integer.class, 1),
 
@@ -23,6 +23,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
 
+import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.exception.OSerializationException;
 import com.orientechnologies.orient.core.exception.OStorageException;
@@ -31,6 +32,9 @@ import com.orientechnologies.orient.core.id.OImmutableRecordId;
 import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.record.impl.ORecordBytes;
 import com.orientechnologies.orient.core.serialization.OSerializableStream;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerFactory;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
 import com.orientechnologies.orient.core.storage.OStorage;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
 import com.orientechnologies.orient.core.version.OVersionFactory;
@@ -53,6 +57,11 @@ public class OStorageConfiguration implements OSerializableStream {
 
   public static final int                   CURRENT_VERSION = 5;
 
+  /**
+   * Custom property with the name of the serializer of the documents, as registered in {@link ORecordSerializerFactory}.
+   */
+  public static final String                RECORD_SERIALIZER = "recordSerializer";
+
   public int                                version         = -1;
   public String                             name;
   public String                             schemaRecordId;
@@ -76,6 +85,7 @@ public class OStorageConfiguration implements OSerializableStream {
   public List<OStorageEntryConfiguration>   properties      = new ArrayList<OStorageEntryConfiguration>();
 
   private transient Locale                  localeInstance;
+  private transient ORecordSerializer       recordSerializer;
   private transient DecimalFormatSymbols    unusualSymbols;
   protected transient OStorage              storage;
 
@@ -127,6 +137,35 @@ public class OStorageConfiguration implements OSerializableStream {
     localeInstance = null;
   }
 
+  /**
+   * Returns the serializer of the documents of the database set by the "recordSerializer" custom property, or the CSV serializer
+   * if not set. Documents are read with any of them regardless of the serializer configured.
+   */
+  public ORecordSerializer getRecordSerializer() {
+    if (recordSerializer == null) {
+      ORecordSerializer serializer = null;
+
+      if (properties != null)
+        for (OStorageEntryConfiguration e : properties)
+          if (e.name.equals(RECORD_SERIALIZER)) {
+            serializer = ORecordSerializerFactory.instance().getFormat(e.value);
+            if (serializer == null)
+              OLogManager.instance().warn(this, "Record serializer '%s' is not registered, using '%s'", e.value,
+                  ORecordSerializerSchemaAware2CSV.NAME);
+            break;
+          }
+
+      recordSerializer = serializer != null ? serializer : ORecordSerializerFactory.instance().getFormat(
+          ORecordSerializerSchemaAware2CSV.NAME);
+    }
+
+    return recordSerializer;
+  }
+
+  public void resetRecordSerializer() {
+    recordSerializer = null;
+  }
+
   public SimpleDateFormat getDateFormatInstance() {
     final SimpleDateFormat dateFormatInstance = new SimpleDateFormat(dateFormat);
     dateFormatInstance.setLenient(false);
@@ -261,6 +300,7 @@ public class OStorageConfiguration implements OSerializableStream {
     for (int i = 0; i < size; ++i) {
       properties.add(new OStorageEntryConfiguration(read(values[index++]), read(values[index++])));
     }
+    recordSerializer = null;
 
     return this;
   }
@@ -720,11 +720,13 @@ public class ODatabaseRaw implements ODatabase {
         storage.getConfiguration().properties.add(new OStorageEntryConfiguration(iName, iValue));
     }
 
+    storage.getConfiguration().resetRecordSerializer();
     storage.getConfiguration().update();
   }
 
   public void clearCustomInternal() {
     storage.getConfiguration().properties = null;
+    storage.getConfiguration().resetRecordSerializer();
   }
 
   public <V> V callInLock(final Callable<V> iCallable, final boolean iExclusiveLock) {
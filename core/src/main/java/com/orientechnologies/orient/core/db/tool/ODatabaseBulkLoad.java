@@ -0,0 +1,171 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.db.tool;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.exception.ODatabaseException;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OIndexAbstract;
+import com.orientechnologies.orient.core.index.OIndexException;
+import com.orientechnologies.orient.core.index.OIndexInternal;
+import com.orientechnologies.orient.core.index.OIndexRebuildOutputListener;
+import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+
+/**
+ * Bulk load session of a plocal database. Between {@link #begin()} and {@link #end()} the records of the clusters of the classes
+ * passed, or of all the clusters if no class is passed, are not logged in the write ahead log, new records fill the pages of the
+ * clusters in order and the automatic indexes on those clusters are not updated. {@link #end()} rebuilds the indexes from sorted
+ * keys and makes a full checkpoint, so the loaded records are durable only after it returns: if the database crashes in the middle
+ * the load has to be repeated.
+ * <p>
+ * Unique indexes are not checked while the records are loaded: a duplicated key is found only when {@link #end()} rebuilds the
+ * index. The rebuild of that index fails, leaving it empty, and {@link #end()} throws an {@link OIndexException} after the other
+ * indexes are rebuilt and the bulk load is ended. The loaded records stay in the clusters, so the duplicates have to be fixed and
+ * the index rebuilt.
+ *
+ * <pre>
+ * final ODatabaseBulkLoad bulkLoad = new ODatabaseBulkLoad(db, &quot;Person&quot;).begin();
+ * try {
+ *   // CREATE THE RECORDS WITHOUT TRANSACTIONS
+ * } finally {
+ *   bulkLoad.end();
+ * }
+ * </pre>
+ */
+public class ODatabaseBulkLoad {
+  private final ODatabaseRecord  database;
+  private final String[]         classNames;
+
+  private OLocalPaginatedStorage storage;
+  private boolean                intentInstalled;
+
+  public ODatabaseBulkLoad(final ODatabaseRecord iDatabase, final String... iClassNames) {
+    database = iDatabase;
+    classNames = iClassNames;
+  }
+
+  public ODatabaseBulkLoad begin() {
+    final OStorage underlying = database.getStorage();
+    if (!(underlying instanceof OLocalPaginatedStorage))
+      throw new ODatabaseException("Bulk load is supported only by plocal storages, not by storage '" + underlying.getName()
+          + "' of type " + underlying.getType());
+
+    final int[] clusterIds;
+    if (classNames.length == 0) {
+      final Collection<String> clusterNames = database.getClusterNames();
+      clusterIds = new int[clusterNames.size()];
+
+      int i = 0;
+      for (String clusterName : clusterNames)
+        clusterIds[i++] = database.getClusterIdByName(clusterName);
+    } else {
+      final Set<Integer> ids = new HashSet<Integer>();
+      for (String className : classNames) {
+        final OClass cls = database.getMetadata().getSchema().getClass(className);
+        if (cls == null)
+          throw new IllegalArgumentException("Class '" + className + "' was not found");
+
+        for (int clusterId : cls.getPolymorphicClusterIds())
+          ids.add(clusterId);
+      }
+
+      clusterIds = new int[ids.size()];
+      int i = 0;
+      for (int clusterId : ids)
+        clusterIds[i++] = clusterId;
+    }
+
+    storage = (OLocalPaginatedStorage) underlying;
+    intentInstalled = database.declareIntent(new OIntentMassiveInsert());
+    storage.beginBulkLoad(clusterIds);
+    return this;
+  }
+
+  /**
+   * Rebuilds the automatic indexes of the loaded clusters and ends the bulk load of the storage.
+   *
+   * @throws OIndexException
+   *           if an index cannot be rebuilt, like a unique index with duplicated keys
+   */
+  public ODatabaseBulkLoad end() {
+    if (storage == null)
+      throw new IllegalStateException("Bulk load was not started");
+
+    OIndexException rebuildError = null;
+    try {
+      final Set<String> loadedClusters = new HashSet<String>();
+      for (String clusterName : database.getClusterNames())
+        if (storage.isBulkLoad(database.getClusterIdByName(clusterName)))
+          loadedClusters.add(clusterName.toLowerCase());
+
+      final int sortBufferSize = OGlobalConfiguration.STORAGE_BULK_LOAD_INDEX_SORT_BUFFER.getValueAsInteger();
+
+      int rebuilt = 0;
+      for (OIndex<?> index : database.getMetadata().getIndexManager().getIndexes()) {
+        if (index.getDefinition() == null || index.getDefinition().getClassName() == null)
+          // MANUAL INDEXES ARE UPDATED BY THE LOADER ITSELF
+          continue;
+
+        boolean loaded = false;
+        for (String clusterName : index.getClusters())
+          if (loadedClusters.contains(clusterName.toLowerCase())) {
+            loaded = true;
+            break;
+          }
+
+        if (!loaded)
+          continue;
+
+        final OIndexInternal<?> internal = index.getInternal();
+        try {
+          if (internal instanceof OIndexAbstract)
+            ((OIndexAbstract<?>) internal).rebuild(new OIndexRebuildOutputListener(index), sortBufferSize);
+          else
+            internal.rebuild();
+
+          rebuilt++;
+        } catch (OIndexException e) {
+          // GO ON WITH THE OTHER INDEXES
+          OLogManager.instance().error(this, "Error on rebuilding index '%s' after bulk load", e, index.getName());
+          if (rebuildError == null)
+            rebuildError = e;
+        }
+      }
+
+      OLogManager.instance().info(this, "Bulk load of database '%s' completed, %d indexes rebuilt", database.getName(), rebuilt);
+    } finally {
+      storage.endBulkLoad();
+      storage = null;
+
+      if (intentInstalled)
+        database.declareIntent(null);
+    }
+
+    if (rebuildError != null)
+      throw rebuildError;
+
+    return this;
+  }
+}
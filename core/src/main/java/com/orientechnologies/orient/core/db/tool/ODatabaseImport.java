@@ -670,31 +670,39 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
 
     System.out.print("\nImporting records...");
 
-    ORID rid;
-    int lastClusterId = -1;
-    long clusterRecords = 0;
-    while (jsonReader.lastChar() != ']') {
-      rid = importRecord();
-
-      if (rid != null) {
-        ++clusterRecords;
-
-        if (lastClusterId == -1)
-          lastClusterId = rid.getClusterId();
-        else if (rid.getClusterId() != lastClusterId || jsonReader.lastChar() == ']') {
-          // CHANGED CLUSTERID: DUMP STATISTICS
-          System.out.print("\n- Imported records into cluster '" + database.getClusterNameById(lastClusterId) + "' (id="
-              + lastClusterId + "): " + clusterRecords + " records");
-          clusterRecords = 0;
-          lastClusterId = rid.getClusterId();
-        }
+    // PLOCAL STORAGES LOAD THE RECORDS WITHOUT WRITE AHEAD LOG AND REBUILD THEIR INDEXES AT THE END
+    final ODatabaseBulkLoad bulkLoad = database.getStorage() instanceof OLocalPaginatedStorage ? new ODatabaseBulkLoad(database)
+        .begin() : null;
+    try {
+      ORID rid;
+      int lastClusterId = -1;
+      long clusterRecords = 0;
+      while (jsonReader.lastChar() != ']') {
+        rid = importRecord();
+
+        if (rid != null) {
+          ++clusterRecords;
+
+          if (lastClusterId == -1)
+            lastClusterId = rid.getClusterId();
+          else if (rid.getClusterId() != lastClusterId || jsonReader.lastChar() == ']') {
+            // CHANGED CLUSTERID: DUMP STATISTICS
+            System.out.print("\n- Imported records into cluster '" + database.getClusterNameById(lastClusterId) + "' (id="
+                + lastClusterId + "): " + clusterRecords + " records");
+            clusterRecords = 0;
+            lastClusterId = rid.getClusterId();
+          }
 
-        ++totalRecords;
+          ++totalRecords;
+        }
+        record = null;
       }
-      record = null;
-    }
 
-    rewriteLinksInImportedDocuments();
+      rewriteLinksInImportedDocuments();
+    } finally {
+      if (bulkLoad != null)
+        bulkLoad.end();
+    }
 
     listener.onMessage("\n\nDone. Imported " + totalRecords + " records\n");
 
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.db.tool;
+
+import com.orientechnologies.orient.core.command.OCommandOutputListener;
+import com.orientechnologies.orient.core.config.OStorageConfiguration;
+import com.orientechnologies.orient.core.db.ODatabase;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.exception.ODatabaseException;
+import com.orientechnologies.orient.core.iterator.ORecordIteratorCluster;
+import com.orientechnologies.orient.core.metadata.OMetadata;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerFactory;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerSchemaAware2Binary;
+
+/**
+ * Migration tool. Sets the serializer of the documents of a database and rewrites all the documents with it. Documents are read
+ * with any serializer, so the database can be used while the migration is in progress or without migrating at all: in that case
+ * only new and updated documents are written in the new format.
+ */
+public class ODatabaseRecordSerializerMigration {
+  private final ODatabaseRecord        database;
+  private final String                 serializerName;
+  private final OCommandOutputListener listener;
+
+  public ODatabaseRecordSerializerMigration(final ODatabaseRecord iDatabase, final String iSerializerName,
+      final OCommandOutputListener iListener) {
+    if (ORecordSerializerFactory.instance().getFormat(iSerializerName) == null)
+      throw new IllegalArgumentException("Record serializer '" + iSerializerName + "' is not registered");
+
+    database = iDatabase;
+    serializerName = iSerializerName;
+    listener = iListener;
+  }
+
+  public static void main(final String[] iArgs) {
+    if (iArgs.length < 2) {
+      System.err.println("Error: wrong parameters. Syntax: <database-url> <serializer-name> [<user> <password>]");
+      return;
+    }
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(iArgs[0]);
+    db.open(iArgs.length > 2 ? iArgs[2] : "admin", iArgs.length > 3 ? iArgs[3] : "admin");
+    try {
+      new ODatabaseRecordSerializerMigration(db, iArgs[1], new OCommandOutputListener() {
+        public void onMessage(final String iText) {
+          System.out.print(iText);
+        }
+      }).migrate();
+    } finally {
+      db.close();
+    }
+  }
+
+  /**
+   * Configures the serializer and rewrites the documents not written with it yet.
+   *
+   * @return The number of documents rewritten
+   */
+  public long migrate() {
+    final long start = System.currentTimeMillis();
+
+    database.set(ODatabase.ATTRIBUTES.CUSTOM, OStorageConfiguration.RECORD_SERIALIZER + "=" + serializerName);
+    listener.onMessage("\nRecord serializer of database '" + database.getName() + "' set to '" + serializerName + "'");
+
+    // CACHED DOCUMENTS KEEP THE SERIALIZER THEY HAVE BEEN CREATED WITH
+    database.getLevel1Cache().clear();
+    database.getLevel2Cache().clear();
+
+    final boolean toBinary = database.getStorage().getConfiguration().getRecordSerializer() instanceof
+        ORecordSerializerSchemaAware2Binary;
+
+    long totalConverted = 0;
+    for (String clusterName : database.getClusterNames()) {
+      if (clusterName.equalsIgnoreCase(OMetadata.CLUSTER_INDEX_NAME)
+          || clusterName.equalsIgnoreCase(OMetadata.CLUSTER_MANUAL_INDEX_NAME))
+        // INDEX PAGES ARE NOT DOCUMENTS
+        continue;
+
+      listener.onMessage("\n- Cluster '" + clusterName + "'...");
+
+      long converted = 0;
+      for (ORecordIteratorCluster<ORecordInternal<?>> it = database.browseCluster(clusterName); it.hasNext();) {
+        final ORecordInternal<?> rec = it.next();
+        if (!(rec instanceof ODocument))
+          continue;
+
+        if (ORecordSerializerSchemaAware2Binary.isBinary(rec.toStream()) == toBinary)
+          // ALREADY CONVERTED
+          continue;
+
+        try {
+          ((ODocument) rec).setDirty();
+          rec.save();
+          converted++;
+        } catch (Exception e) {
+          throw new ODatabaseException("Error on converting record " + rec.getIdentity() + " to serializer '" + serializerName
+              + "'", e);
+        }
+      }
+
+      listener.onMessage("OK (converted " + converted + " documents)");
+      totalConverted += converted;
+    }
+
+    listener.onMessage("\n\nMigration completed in " + (System.currentTimeMillis() - start) + "ms. Converted " + totalConverted
+        + " documents.\n");
+    return totalConverted;
+  }
+}
@@ -18,19 +18,30 @@ package com.orientechnologies.orient.core.engine.memory;
 import java.util.Map;
 
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.engine.OEngineAbstract;
 import com.orientechnologies.orient.core.exception.ODatabaseException;
 import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.impl.memory.ODirectMemoryStorage;
 import com.orientechnologies.orient.core.storage.impl.memory.OStorageMemory;
 
 public class OEngineMemory extends OEngineAbstract {
-	public static final String	NAME	= "memory";
+	public static final String	NAME								= "memory";
+	public static final String	OFF_HEAP_PARAMETER	= "offHeap";
 
 	public OEngineMemory() {
 	}
 
+	/**
+	 * Creates a heap based storage or, if the <code>offHeap</code> parameter of the URL or the
+	 * {@link OGlobalConfiguration#STORAGE_MEMORY_OFF_HEAP} setting are true, a storage that keeps the records in off-heap pages.
+	 */
 	public OStorage createStorage(String iURL, Map<String, String> iConfiguration) {
 		try {
+			final String offHeap = iConfiguration != null ? iConfiguration.get(OFF_HEAP_PARAMETER) : null;
+			if (offHeap != null ? Boolean.parseBoolean(offHeap) : OGlobalConfiguration.STORAGE_MEMORY_OFF_HEAP.getValueAsBoolean())
+				return new ODirectMemoryStorage(iURL);
+
 			return new OStorageMemory(iURL);
 		} catch (Throwable t) {
 			OLogManager.instance().error(this, "Error on opening in memory storage: " + iURL, t, ODatabaseException.class);
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.id;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.orientechnologies.common.directmemory.ODirectMemory;
+import com.orientechnologies.common.directmemory.collections.OLongPairLongHashMap;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+
+/**
+ * Map from RIDs to longs which keeps keys and values as primitives, in the Java heap or in direct memory. Like {@link ORidSet} the
+ * keys are copied when they are put and RIDs whose positions do not fit in a long are kept in a plain map.
+ */
+public class ORidLongMap {
+  private final OLongPairLongHashMap rids;
+  private final Map<ORID, Long>      others = new HashMap<ORID, Long>();
+
+  /**
+   * Creates a map in direct memory if {@link OGlobalConfiguration#MEMORY_RID_COLLECTIONS_OFF_HEAP} is true, otherwise in the heap.
+   */
+  public ORidLongMap() {
+    this(ORidSet.defaultMemory());
+  }
+
+  /**
+   * @param memory
+   *          Direct memory where the map is allocated or null to allocate it in the Java heap
+   */
+  public ORidLongMap(final ODirectMemory memory) {
+    rids = new OLongPairLongHashMap(memory);
+  }
+
+  public boolean containsKey(final ORID rid) {
+    if (ORidSet.isPrimitive(rid))
+      return rids.containsKey(rid.getClusterId(), rid.getClusterPosition().longValue());
+
+    return others.containsKey(rid);
+  }
+
+  /**
+   * Returns the value of the RID or <code>defaultValue</code> if the RID is not in the map.
+   */
+  public long get(final ORID rid, final long defaultValue) {
+    if (ORidSet.isPrimitive(rid))
+      return rids.get(rid.getClusterId(), rid.getClusterPosition().longValue(), defaultValue);
+
+    final Long value = others.get(rid);
+    return value != null ? value : defaultValue;
+  }
+
+  /**
+   * Sets the value of the RID.
+   * 
+   * @return The previous value of the RID or <code>defaultValue</code> if the RID was not in the map
+   */
+  public long put(final ORID rid, final long value, final long defaultValue) {
+    if (ORidSet.isPrimitive(rid))
+      return rids.put(rid.getClusterId(), rid.getClusterPosition().longValue(), value, defaultValue);
+
+    final Long previousValue = others.put(rid.copy(), value);
+    return previousValue != null ? previousValue : defaultValue;
+  }
+
+  /**
+   * Removes the RID.
+   * 
+   * @return The value of the RID or <code>defaultValue</code> if the RID was not in the map
+   */
+  public long remove(final ORID rid, final long defaultValue) {
+    if (ORidSet.isPrimitive(rid))
+      return rids.remove(rid.getClusterId(), rid.getClusterPosition().longValue(), defaultValue);
+
+    final Long value = others.remove(rid);
+    return value != null ? value : defaultValue;
+  }
+
+  public int size() {
+    return (int) rids.size() + others.size();
+  }
+
+  public boolean isEmpty() {
+    return rids.isEmpty() && others.isEmpty();
+  }
+
+  public void clear() {
+    rids.clear();
+    others.clear();
+  }
+
+  /**
+   * Releases the direct memory of the map. The map cannot be used anymore.
+   */
+  public void free() {
+    rids.free();
+    others.clear();
+  }
+}
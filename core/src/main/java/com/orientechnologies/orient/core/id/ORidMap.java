@@ -0,0 +1,279 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.id;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.orientechnologies.common.directmemory.ODirectMemory;
+import com.orientechnologies.common.directmemory.collections.OLongPairLongHashMap;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+
+/**
+ * Map with RID keys which keeps cluster id and cluster position as primitive longs instead of ORID instances, in the Java heap or in
+ * direct memory, and the values in a list indexed by the table. Like {@link ORidSet} the keys are copied when they are put, so the
+ * identity of a new record may change after it has been put without making its entry unreachable. RIDs whose positions do not fit in
+ * a long are kept in a plain map. Null values are not supported.
+ */
+public class ORidMap<V> extends AbstractMap<ORID, V> {
+  private static final long          ABSENT      = -1;
+
+  private final OLongPairLongHashMap rids;
+  private final List<V>              values      = new ArrayList<V>();
+  private int[]                      freeIndexes = new int[16];
+  private int                        freeCount;
+  private final Map<ORID, V>         others      = new HashMap<ORID, V>();
+
+  /**
+   * Creates a map in direct memory if {@link OGlobalConfiguration#MEMORY_RID_COLLECTIONS_OFF_HEAP} is true, otherwise in the heap.
+   */
+  public ORidMap() {
+    this(ORidSet.defaultMemory());
+  }
+
+  /**
+   * @param memory
+   *          Direct memory where the table of the keys is allocated or null to allocate it in the Java heap
+   */
+  public ORidMap(final ODirectMemory memory) {
+    rids = new OLongPairLongHashMap(memory);
+  }
+
+  @Override
+  public boolean containsKey(final Object key) {
+    if (!(key instanceof ORID))
+      return false;
+
+    final ORID rid = (ORID) key;
+    if (ORidSet.isPrimitive(rid))
+      return rids.containsKey(rid.getClusterId(), rid.getClusterPosition().longValue());
+
+    return others.containsKey(rid);
+  }
+
+  @Override
+  public V get(final Object key) {
+    if (!(key instanceof ORID))
+      return null;
+
+    final ORID rid = (ORID) key;
+    if (ORidSet.isPrimitive(rid)) {
+      final long index = rids.get(rid.getClusterId(), rid.getClusterPosition().longValue(), ABSENT);
+      return index == ABSENT ? null : values.get((int) index);
+    }
+
+    return others.get(rid);
+  }
+
+  @Override
+  public V put(final ORID rid, final V value) {
+    if (value == null)
+      throw new IllegalArgumentException("Null values are not supported");
+
+    if (!ORidSet.isPrimitive(rid))
+      return others.put(rid.copy(), value);
+
+    final long clusterId = rid.getClusterId();
+    final long clusterPosition = rid.getClusterPosition().longValue();
+
+    final long index = rids.get(clusterId, clusterPosition, ABSENT);
+    if (index != ABSENT)
+      return values.set((int) index, value);
+
+    final int newIndex;
+    if (freeCount > 0) {
+      newIndex = freeIndexes[--freeCount];
+      values.set(newIndex, value);
+    } else {
+      newIndex = values.size();
+      values.add(value);
+    }
+
+    rids.put(clusterId, clusterPosition, newIndex, ABSENT);
+    return null;
+  }
+
+  @Override
+  public V remove(final Object key) {
+    if (!(key instanceof ORID))
+      return null;
+
+    final ORID rid = (ORID) key;
+    if (!ORidSet.isPrimitive(rid))
+      return others.remove(rid);
+
+    final long index = rids.remove(rid.getClusterId(), rid.getClusterPosition().longValue(), ABSENT);
+    if (index == ABSENT)
+      return null;
+
+    return releaseIndex((int) index);
+  }
+
+  @Override
+  public int size() {
+    return (int) rids.size() + others.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return rids.isEmpty() && others.isEmpty();
+  }
+
+  @Override
+  public void clear() {
+    rids.clear();
+    values.clear();
+    freeCount = 0;
+    others.clear();
+  }
+
+  /**
+   * Releases the direct memory of the map. The map cannot be used anymore.
+   */
+  public void free() {
+    rids.free();
+    values.clear();
+    freeCount = 0;
+    others.clear();
+  }
+
+  @Override
+  public Set<Entry<ORID, V>> entrySet() {
+    return new AbstractSet<Entry<ORID, V>>() {
+      @Override
+      public Iterator<Entry<ORID, V>> iterator() {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return ORidMap.this.size();
+      }
+
+      @Override
+      public void clear() {
+        ORidMap.this.clear();
+      }
+    };
+  }
+
+  private V releaseIndex(final int index) {
+    // KEEP THE INDEXES OF THE OTHER VALUES: THE SLOT OF THE LIST IS REUSED BY THE NEXT PUT
+    final V value = values.set(index, null);
+
+    if (freeCount == freeIndexes.length) {
+      final int[] newFreeIndexes = new int[freeIndexes.length << 1];
+      System.arraycopy(freeIndexes, 0, newFreeIndexes, 0, freeCount);
+      freeIndexes = newFreeIndexes;
+    }
+    freeIndexes[freeCount++] = index;
+
+    return value;
+  }
+
+  private final class EntryIterator implements Iterator<Entry<ORID, V>> {
+    private final Iterator<Entry<ORID, V>> othersIterator = others.entrySet().iterator();
+    private long                           slot           = -1;
+    private long                           nextSlot       = findNext(0);
+    private boolean                        inOthers;
+
+    public boolean hasNext() {
+      return nextSlot < rids.capacity() || othersIterator.hasNext();
+    }
+
+    public Entry<ORID, V> next() {
+      if (nextSlot < rids.capacity()) {
+        slot = nextSlot;
+        nextSlot = findNext(slot + 1);
+        return new SlotEntry(slot);
+      }
+
+      if (!othersIterator.hasNext())
+        throw new NoSuchElementException();
+
+      inOthers = true;
+      return othersIterator.next();
+    }
+
+    public void remove() {
+      if (inOthers)
+        othersIterator.remove();
+      else if (slot >= 0 && rids.isUsed(slot)) {
+        final int index = (int) rids.getValue(slot);
+        rids.remove(rids.getKeyOne(slot), rids.getKeyTwo(slot), ABSENT);
+        releaseIndex(index);
+      } else
+        throw new IllegalStateException();
+    }
+
+    private long findNext(long from) {
+      while (from < rids.capacity() && !rids.isUsed(from))
+        from++;
+      return from;
+    }
+  }
+
+  private final class SlotEntry implements Entry<ORID, V> {
+    private final ORID key;
+    private final int  index;
+
+    private SlotEntry(final long slot) {
+      key = ORidSet.toRid(rids.getKeyOne(slot), rids.getKeyTwo(slot));
+      index = (int) rids.getValue(slot);
+    }
+
+    public ORID getKey() {
+      return key;
+    }
+
+    public V getValue() {
+      return values.get(index);
+    }
+
+    public V setValue(final V value) {
+      if (value == null)
+        throw new IllegalArgumentException("Null values are not supported");
+
+      return values.set(index, value);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (!(o instanceof Entry))
+        return false;
+
+      final Entry<?, ?> entry = (Entry<?, ?>) o;
+      return key.equals(entry.getKey()) && getValue().equals(entry.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      return key.hashCode() ^ getValue().hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return key + "=" + getValue();
+    }
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.id;
+
+import java.util.AbstractSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.orientechnologies.common.directmemory.ODirectMemory;
+import com.orientechnologies.common.directmemory.ODirectMemoryFactory;
+import com.orientechnologies.common.directmemory.collections.OLongPairHashSet;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+
+/**
+ * Set of RIDs which keeps cluster id and cluster position as primitive longs instead of ORID instances, in the Java heap or in
+ * direct memory. RIDs are copied when they are added, so a RID which changes after being added (as new records do on commit) is
+ * still found by its value at the time of the insertion. RIDs whose positions do not fit in a long are kept in a plain set.
+ */
+public class ORidSet extends AbstractSet<ORID> {
+  private final OLongPairHashSet rids;
+  private final Set<ORID>        others = new HashSet<ORID>();
+
+  /**
+   * Creates a set in direct memory if {@link OGlobalConfiguration#MEMORY_RID_COLLECTIONS_OFF_HEAP} is true, otherwise in the heap.
+   */
+  public ORidSet() {
+    this(defaultMemory());
+  }
+
+  /**
+   * @param memory
+   *          Direct memory where the set is allocated or null to allocate it in the Java heap
+   */
+  public ORidSet(final ODirectMemory memory) {
+    rids = new OLongPairHashSet(memory);
+  }
+
+  @Override
+  public boolean contains(final Object o) {
+    if (!(o instanceof ORID))
+      return false;
+
+    final ORID rid = (ORID) o;
+    if (isPrimitive(rid))
+      return rids.contains(rid.getClusterId(), rid.getClusterPosition().longValue());
+
+    return others.contains(rid);
+  }
+
+  @Override
+  public boolean add(final ORID rid) {
+    if (isPrimitive(rid))
+      return rids.add(rid.getClusterId(), rid.getClusterPosition().longValue());
+
+    return others.add(rid.copy());
+  }
+
+  @Override
+  public boolean remove(final Object o) {
+    if (!(o instanceof ORID))
+      return false;
+
+    final ORID rid = (ORID) o;
+    if (isPrimitive(rid))
+      return rids.remove(rid.getClusterId(), rid.getClusterPosition().longValue());
+
+    return others.remove(rid);
+  }
+
+  @Override
+  public int size() {
+    return (int) rids.size() + others.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return rids.isEmpty() && others.isEmpty();
+  }
+
+  @Override
+  public void clear() {
+    rids.clear();
+    others.clear();
+  }
+
+  /**
+   * Releases the direct memory of the set. The set cannot be used anymore.
+   */
+  public void free() {
+    rids.free();
+    others.clear();
+  }
+
+  @Override
+  public Iterator<ORID> iterator() {
+    return new Iterator<ORID>() {
+      private final Iterator<ORID> othersIterator = others.iterator();
+      private long                 slot           = -1;
+      private long                 nextSlot       = findNext(0);
+      private boolean              inOthers;
+
+      public boolean hasNext() {
+        return nextSlot < rids.capacity() || othersIterator.hasNext();
+      }
+
+      public ORID next() {
+        if (nextSlot < rids.capacity()) {
+          slot = nextSlot;
+          nextSlot = findNext(slot + 1);
+          return toRid(rids.getKeyOne(slot), rids.getKeyTwo(slot));
+        }
+
+        if (!othersIterator.hasNext())
+          throw new NoSuchElementException();
+
+        inOthers = true;
+        return othersIterator.next();
+      }
+
+      public void remove() {
+        if (inOthers)
+          othersIterator.remove();
+        else if (slot >= 0 && rids.isUsed(slot))
+          rids.remove(rids.getKeyOne(slot), rids.getKeyTwo(slot));
+        else
+          throw new IllegalStateException();
+      }
+
+      private long findNext(long from) {
+        while (from < rids.capacity() && !rids.isUsed(from))
+          from++;
+        return from;
+      }
+    };
+  }
+
+  static ODirectMemory defaultMemory() {
+    return OGlobalConfiguration.MEMORY_RID_COLLECTIONS_OFF_HEAP.getValueAsBoolean() ? ODirectMemoryFactory.INSTANCE.directMemory()
+        : null;
+  }
+
+  static boolean isPrimitive(final ORID rid) {
+    return rid.getClusterPosition() instanceof OClusterPositionLong;
+  }
+
+  static ORID toRid(final long clusterId, final long clusterPosition) {
+    return new ORecordId((int) clusterId, new OClusterPositionLong(clusterPosition));
+  }
+}
@@ -22,6 +22,7 @@ import static com.orientechnologies.orient.core.hook.ORecordHook.TYPE.BEFORE_UPD
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -94,7 +95,7 @@ public class OClassIndexManager extends ODocumentHookAbstract {
 
     final OClass cls = document.getSchemaClass();
     if (cls != null) {
-      final Collection<OIndex<?>> indexes = cls.getIndexes();
+      final Collection<OIndex<?>> indexes = getIndexes(document, cls);
       for (final OIndex<?> index : indexes) {
         final Object key = index.getDefinition().getDocumentValueToIndex(document);
         // SAVE A COPY TO AVOID PROBLEM ON RECYCLING OF THE RECORD
@@ -154,7 +155,7 @@ public class OClassIndexManager extends ODocumentHookAbstract {
     if (cls == null)
       return;
 
-    final Collection<OIndex<?>> indexes = cls.getIndexes();
+    final Collection<OIndex<?>> indexes = getIndexes(iDocument, cls);
 
     if (!indexes.isEmpty()) {
       final Set<String> dirtyFields = new HashSet<String>(Arrays.asList(iDocument.getDirtyFields()));
@@ -206,14 +207,16 @@ public class OClassIndexManager extends ODocumentHookAbstract {
               ORecordOperation.DELETED);
     }
 
-    acquireModificationLock(iDocument, iDocument.getSchemaClass() != null ? iDocument.getSchemaClass().getIndexes() : null);
+    acquireModificationLock(iDocument,
+        iDocument.getSchemaClass() != null ? getIndexes(iDocument, iDocument.getSchemaClass()) : null);
     return RESULT.RECORD_NOT_CHANGED;
   }
 
   @Override
   public RESULT onRecordBeforeReplicaDelete(ODocument iDocument) {
     checkForLoading(iDocument);
-    acquireModificationLock(iDocument, iDocument.getSchemaClass() != null ? iDocument.getSchemaClass().getIndexes() : null);
+    acquireModificationLock(iDocument,
+        iDocument.getSchemaClass() != null ? getIndexes(iDocument, iDocument.getSchemaClass()) : null);
     return RESULT.RECORD_NOT_CHANGED;
   }
 
@@ -232,7 +235,7 @@ public class OClassIndexManager extends ODocumentHookAbstract {
     if (cls == null)
       return;
 
-    final Collection<OIndex<?>> indexes = new ArrayList<OIndex<?>>(cls.getIndexes());
+    final Collection<OIndex<?>> indexes = new ArrayList<OIndex<?>>(getIndexes(iDocument, cls));
 
     if (!indexes.isEmpty()) {
       final Set<String> dirtyFields = new HashSet<String>(Arrays.asList(iDocument.getDirtyFields()));
@@ -511,7 +514,7 @@ public class OClassIndexManager extends ODocumentHookAbstract {
 
     final OClass cls = document.getSchemaClass();
     if (cls != null) {
-      final Collection<OIndex<?>> indexes = cls.getIndexes();
+      final Collection<OIndex<?>> indexes = getIndexes(document, cls);
       switch (hookType) {
       case BEFORE_CREATE:
         checkIndexedPropertiesOnCreation(document, indexes);
@@ -565,7 +568,7 @@ public class OClassIndexManager extends ODocumentHookAbstract {
   private static void releaseModificationLock(final ODocument iRecord) {
     final OClass cls = iRecord.getSchemaClass();
     if (cls != null) {
-      releaseModificationLock(iRecord, cls.getIndexes());
+      releaseModificationLock(iRecord, getIndexes(iRecord, cls));
     }
   }
 
@@ -604,6 +607,19 @@ public class OClassIndexManager extends ODocumentHookAbstract {
     }
   }
 
+  /**
+   * Returns the indexes of the class of the record passed, or none if the record is in a cluster in bulk load: its indexes are rebuilt
+   * when the bulk load ends.
+   */
+  private static Collection<OIndex<?>> getIndexes(final ODocument iRecord, final OClass iClass) {
+    final OStorage storage = iRecord.getDatabase().getStorage();
+    if (storage instanceof OLocalPaginatedStorage
+        && ((OLocalPaginatedStorage) storage).isBulkLoad(iRecord.getIdentity().getClusterId()))
+      return Collections.emptyList();
+
+    return iClass.getIndexes();
+  }
+
   private static ODocument checkForLoading(final ODocument iRecord) {
     if (iRecord.getInternalStatus() == ORecordElement.STATUS.NOT_LOADED) {
       try {
@@ -17,8 +17,11 @@ package com.orientechnologies.orient.core.index;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -28,6 +31,7 @@ import java.util.NoSuchElementException;
 import java.util.Set;
 
 import com.orientechnologies.common.collection.OCompositeKey;
+import com.orientechnologies.common.comparator.ODefaultComparator;
 import com.orientechnologies.common.concur.lock.OModificationLock;
 import com.orientechnologies.common.concur.resource.OSharedResourceAdaptiveExternal;
 import com.orientechnologies.common.listener.OProgressListener;
@@ -399,8 +403,20 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
    * Populates the index with all the existent records. Uses the massive insert intent to speed up and keep the consumed memory low.
    */
   public long rebuild(final OProgressListener iProgressListener) {
+    return rebuild(iProgressListener, 0);
+  }
+
+  /**
+   * Populates the index with all the existent records. If <code>iSortBufferSize</code> is greater than 0 the entries are collected
+   * in runs of that many entries, that are put in the index in key order: the tree engines then fill their pages from left to
+   * right. A single run, that holds all the entries, builds the index from sorted input.
+   */
+  public long rebuild(final OProgressListener iProgressListener, final int iSortBufferSize) {
     long documentIndexed = 0;
 
+    final List<Entry<Object, OIdentifiable>> sortBuffer = iSortBufferSize > 0 ? new ArrayList<Entry<Object, OIdentifiable>>()
+        : null;
+
     final boolean intentInstalled = getDatabase().declareIntent(new OIntentMassiveInsert());
 
     modificationLock.requestModificationLock();
@@ -440,7 +456,20 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
 
                 final Object fieldValue = indexDefinition.getDocumentValueToIndex(doc);
 
-                if (fieldValue != null) {
+                if (fieldValue != null && sortBuffer != null) {
+                  final ORID rid = doc.getIdentity().copy();
+                  if (fieldValue instanceof Collection) {
+                    for (final Object fieldValueItem : (Collection<?>) fieldValue)
+                      if (fieldValueItem != null)
+                        sortBuffer.add(new SimpleImmutableEntry<Object, OIdentifiable>(fieldValueItem, rid));
+                  } else
+                    sortBuffer.add(new SimpleImmutableEntry<Object, OIdentifiable>(fieldValue, rid));
+
+                  if (sortBuffer.size() >= iSortBufferSize)
+                    putSorted(sortBuffer);
+
+                  ++documentIndexed;
+                } else if (fieldValue != null) {
                   try {
                     if (fieldValue instanceof Collection) {
                       for (final Object fieldValueItem : (Collection<?>) fieldValue) {
@@ -467,6 +496,9 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
             // END OF CLUSTER REACHED, IGNORE IT
           }
 
+        if (sortBuffer != null)
+          putSorted(sortBuffer);
+
         flush();
         unload();
 
@@ -501,6 +533,28 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
     return documentIndexed;
   }
 
+  /**
+   * Puts in the index the entries passed ordered by key and empties the list.
+   */
+  private void putSorted(final List<Entry<Object, OIdentifiable>> iEntries) {
+    Collections.sort(iEntries, new Comparator<Entry<Object, OIdentifiable>>() {
+      public int compare(final Entry<Object, OIdentifiable> iEntry1, final Entry<Object, OIdentifiable> iEntry2) {
+        return ODefaultComparator.INSTANCE.compare(iEntry1.getKey(), iEntry2.getKey());
+      }
+    });
+
+    for (Entry<Object, OIdentifiable> entry : iEntries)
+      try {
+        put(entry.getKey(), entry.getValue());
+      } catch (OIndexException e) {
+        OLogManager.instance().error(this,
+            "Exception during index rebuild. Exception was caused by following key/ value pair - key %s, value %s."
+                + " Rebuild will continue from this point.", e, entry.getKey(), entry.getValue());
+      }
+
+    iEntries.clear();
+  }
+
   public boolean remove(final Object key, final OIdentifiable value) {
     checkForRebuild();
 
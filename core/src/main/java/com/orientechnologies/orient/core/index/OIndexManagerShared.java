@@ -30,11 +30,13 @@ import com.orientechnologies.orient.core.db.record.ORecordElement;
 import com.orientechnologies.orient.core.db.record.ORecordTrackedSet;
 import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.metadata.OMetadata;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OSchemaShared;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.storage.OCluster;
 import com.orientechnologies.orient.core.storage.OCluster.ATTRIBUTES;
+import com.orientechnologies.orient.core.sql.OSQLStatementCache;
 import com.orientechnologies.orient.core.storage.OStorage;
 import com.orientechnologies.orient.core.storage.impl.local.OClusterLocal;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageLocal;
@@ -48,10 +50,28 @@ import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPagi
  * 
  */
 public class OIndexManagerShared extends OIndexManagerAbstract implements OIndexManager {
-  private static final long serialVersionUID      = 1L;
+  private static final long        serialVersionUID      = 1L;
 
-  protected volatile Thread recreateIndexesThread = null;
-  private volatile boolean  rebuildCompleted      = false;
+  /**
+   * Types of the indexes whose changes are logged in the write ahead log of plocal storages. Such indexes are restored together
+   * with the storage after a crash, so they are not rebuilt.
+   */
+  private static final Set<String> WAL_INDEX_TYPES;
+  static {
+    final Set<String> types = new HashSet<String>();
+    types.add(OClass.INDEX_TYPE.UNIQUE_HASH_INDEX.toString());
+    types.add(OClass.INDEX_TYPE.NOTUNIQUE_HASH_INDEX.toString());
+    types.add(OClass.INDEX_TYPE.FULLTEXT_HASH_INDEX.toString());
+    types.add(OClass.INDEX_TYPE.DICTIONARY_HASH_INDEX.toString());
+    types.add(OClass.INDEX_TYPE.UNIQUE_SBTREE.toString());
+    types.add(OClass.INDEX_TYPE.NOTUNIQUE_SBTREE.toString());
+    types.add(OClass.INDEX_TYPE.FULLTEXT_SBTREE.toString());
+    types.add(OClass.INDEX_TYPE.DICTIONARY_SBTREE.toString());
+    WAL_INDEX_TYPES = Collections.unmodifiableSet(types);
+  }
+
+  protected volatile Thread        recreateIndexesThread = null;
+  private volatile boolean         rebuildCompleted      = false;
 
   public OIndexManagerShared(final ODatabaseRecord iDatabase) {
     super(iDatabase);
@@ -132,6 +152,7 @@ public class OIndexManagerShared extends OIndexManagerAbstract implements OIndex
 
         getDatabase().unregisterListener(idx.getInternal());
         idx.delete();
+        OIndexStatisticsManager.removeStatistics(getDatabase().getStorage(), iIndexName);
         setDirty();
         save();
       }
@@ -174,6 +195,8 @@ public class OIndexManagerShared extends OIndexManagerAbstract implements OIndex
   protected void fromStream() {
     acquireExclusiveLock();
     try {
+      OSQLStatementCache.invalidate(getDatabase().getStorage());
+
       final Map<String, OIndex<?>> oldIndexes = new HashMap<String, OIndex<?>>(indexes);
 
       clearMetadata();
@@ -344,9 +367,14 @@ public class OIndexManagerShared extends OIndexManagerAbstract implements OIndex
                 OIndexInternal.IndexMetadata indexMetadata = index.loadMetadata(idx);
                 OIndexDefinition indexDefinition = indexMetadata.getIndexDefinition();
 
-                if (indexDefinition == null || !indexDefinition.isAutomatic()) {
-                  OLogManager.instance().info(this, "Index %s is not automatic index and will be added as is.",
-                      indexMetadata.getName());
+                if (indexDefinition == null || !indexDefinition.isAutomatic()
+                    || isRestoredFromWAL(newDb.getStorage(), indexType)) {
+                  if (indexDefinition == null || !indexDefinition.isAutomatic())
+                    OLogManager.instance().info(this, "Index %s is not automatic index and will be added as is.",
+                        indexMetadata.getName());
+                  else
+                    OLogManager.instance().info(this, "Index %s was restored from write ahead log and will be added as is.",
+                        indexMetadata.getName());
 
                   if (index.loadFromConfiguration(idx)) {
                     addIndexInternal(index);
@@ -438,6 +466,11 @@ public class OIndexManagerShared extends OIndexManagerAbstract implements OIndex
     }
   }
 
+  private static boolean isRestoredFromWAL(OStorage storage, String indexType) {
+    return storage instanceof OLocalPaginatedStorage && ((OLocalPaginatedStorage) storage).getWALInstance() != null
+        && WAL_INDEX_TYPES.contains(indexType);
+  }
+
   public boolean autoRecreateIndexesAfterCrash() {
     if (rebuildCompleted)
       return false;
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import com.orientechnologies.common.collection.OCompositeKey;
+import com.orientechnologies.common.collection.OMultiValue;
+import com.orientechnologies.common.comparator.ODefaultComparator;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Statistics of the content of an index collected by <code>ANALYZE INDEX</code> and used by the query executor to estimate how many
+ * records an index lookup returns.
+ *
+ * The statistics keep the amount of entries and of distinct keys. For composite indexes the amount of distinct prefixes of every
+ * length is kept too, so lookups by a part of the key can be estimated. Indexes which support ordered iterations keep also an
+ * equi-depth histogram: the keys are split in buckets with about the same amount of entries, every bucket keeps its highest key, its
+ * entries and its distinct keys. Keys are never split between buckets, so a bucket can be bigger than the others when a single key
+ * has many entries.
+ *
+ * Statistics are a snapshot of the index when it has been analyzed, they are not updated by the following changes of the index.
+ */
+public class OIndexStatistics {
+  public static final int DEFAULT_BUCKETS = 100;
+
+  private final String    indexName;
+  private final long      entries;
+  private final long      keys;
+  private final long[]    distinctPrefixes;
+  private final Object[]  bucketBounds;
+  private final long[]    bucketEntries;
+  private final long[]    bucketKeys;
+  private final long      analyzedOn;
+
+  private OIndexStatistics(final String iIndexName, final long iEntries, final long iKeys, final long[] iDistinctPrefixes,
+      final Object[] iBucketBounds, final long[] iBucketEntries, final long[] iBucketKeys) {
+    indexName = iIndexName;
+    entries = iEntries;
+    keys = iKeys;
+    distinctPrefixes = iDistinctPrefixes;
+    bucketBounds = iBucketBounds;
+    bucketEntries = iBucketEntries;
+    bucketKeys = iBucketKeys;
+    analyzedOn = System.currentTimeMillis();
+  }
+
+  /**
+   * Browses all the entries of the index to collect its statistics. The histogram is built only for indexes that support ordered
+   * iterations.
+   *
+   * @param iIndex
+   *          Index to analyze
+   * @param iBuckets
+   *          Maximum amount of buckets of the histogram
+   */
+  public static OIndexStatistics analyze(final OIndex<?> iIndex, final int iBuckets) {
+    final int paramCount = iIndex.getDefinition() != null ? iIndex.getDefinition().getParamCount() : 1;
+
+    if (!iIndex.supportsOrderedIterations()) {
+      // DISTINCT PREFIXES CAN'T BE COUNTED WITHOUT ORDER: ONLY THE WHOLE KEYS ARE KNOWN
+      final long[] distinctPrefixes = new long[paramCount];
+      distinctPrefixes[paramCount - 1] = iIndex.getKeySize();
+      return new OIndexStatistics(iIndex.getName(), iIndex.getSize(), iIndex.getKeySize(), distinctPrefixes, null, null, null);
+    }
+
+    final long bucketDepth = Math.max(1, (iIndex.getSize() + iBuckets - 1) / iBuckets);
+
+    final List<Object> bounds = new ArrayList<Object>();
+    final List<long[]> buckets = new ArrayList<long[]>();
+    final long[] distinctPrefixes = new long[paramCount];
+
+    long totalEntries = 0;
+    long totalKeys = 0;
+    long currentEntries = 0;
+    long currentKeys = 0;
+    Object previousKey = null;
+
+    for (final Iterator<? extends Entry<Object, ?>> it = iIndex.iterator(); it.hasNext();) {
+      final Entry<Object, ?> entry = it.next();
+      final Object key = entry.getKey();
+      if (key == null)
+        continue;
+
+      final Object value = entry.getValue();
+      final long keyEntries = OMultiValue.isMultiValue(value) ? OMultiValue.getSize(value) : 1;
+
+      countDistinctPrefixes(previousKey, key, distinctPrefixes);
+
+      totalEntries += keyEntries;
+      totalKeys++;
+      currentEntries += keyEntries;
+      currentKeys++;
+      previousKey = key;
+
+      if (currentEntries >= bucketDepth) {
+        // CLOSE THE BUCKET AT THE CURRENT KEY
+        bounds.add(key);
+        buckets.add(new long[] { currentEntries, currentKeys });
+        currentEntries = 0;
+        currentKeys = 0;
+      }
+    }
+
+    if (currentKeys > 0) {
+      bounds.add(previousKey);
+      buckets.add(new long[] { currentEntries, currentKeys });
+    }
+
+    final long[] bucketEntries = new long[buckets.size()];
+    final long[] bucketKeys = new long[buckets.size()];
+    for (int i = 0; i < buckets.size(); ++i) {
+      bucketEntries[i] = buckets.get(i)[0];
+      bucketKeys[i] = buckets.get(i)[1];
+    }
+
+    return new OIndexStatistics(iIndex.getName(), totalEntries, totalKeys, distinctPrefixes, bounds.toArray(), bucketEntries,
+        bucketKeys);
+  }
+
+  public String getIndexName() {
+    return indexName;
+  }
+
+  /**
+   * @return amount of entries (key-record pairs) of the index.
+   */
+  public long getEntries() {
+    return entries;
+  }
+
+  /**
+   * @return amount of distinct keys of the index.
+   */
+  public long getKeys() {
+    return keys;
+  }
+
+  /**
+   * @return amount of buckets of the histogram, 0 if the index doesn't support ordered iterations.
+   */
+  public int getBuckets() {
+    return bucketBounds != null ? bucketBounds.length : 0;
+  }
+
+  public long getAnalyzedOn() {
+    return analyzedOn;
+  }
+
+  /**
+   * Estimates the entries of the key. If the key is a part of a composite key the estimation is based on the distinct prefixes of
+   * the same length, otherwise on the average entries of the keys of the bucket that contains it.
+   *
+   * @return estimated amount of entries, or -1 if it can't be estimated.
+   */
+  public long estimateEquals(final Object iKey) {
+    if (iKey == null || entries == 0)
+      return 0;
+
+    final int prefixLength = getPrefixLength(iKey);
+    if (prefixLength > 0 && prefixLength < distinctPrefixes.length) {
+      final long prefixes = distinctPrefixes[prefixLength - 1];
+      return prefixes > 0 ? divide(entries, prefixes) : -1;
+    }
+
+    if (bucketBounds != null)
+      try {
+        for (int i = 0; i < bucketBounds.length; ++i)
+          if (ODefaultComparator.INSTANCE.compare(bucketBounds[i], iKey) >= 0)
+            return divide(bucketEntries[i], bucketKeys[i]);
+      } catch (RuntimeException e) {
+        // KEY NOT COMPARABLE WITH THE ONES OF THE INDEX
+        return -1;
+      }
+
+    return divide(entries, keys);
+  }
+
+  /**
+   * Estimates the entries with keys between the two boundaries. Null boundaries are open. Buckets fully included in the range are
+   * counted whole, buckets which contain a boundary are counted by half. Without histogram a third of the entries is returned.
+   *
+   * @return estimated amount of entries, or -1 if it can't be estimated.
+   */
+  public long estimateRange(final Object iFrom, final boolean iFromInclusive, final Object iTo, final boolean iToInclusive) {
+    if (entries == 0)
+      return 0;
+
+    if (bucketBounds == null)
+      return divide(entries, 3);
+
+    final boolean fromPartial = getPrefixLength(iFrom) > 0;
+    final boolean toPartial = getPrefixLength(iTo) > 0;
+
+    long result = 0;
+    try {
+      for (int i = 0; i < bucketBounds.length; ++i) {
+        // THE BUCKET CONTAINS THE KEYS GREATER THAN THE BOUND OF THE PREVIOUS BUCKET UP TO ITS BOUND
+        final Object lower = i > 0 ? bucketBounds[i - 1] : null;
+        final Object upper = bucketBounds[i];
+
+        if (iFrom != null) {
+          final int compare = ODefaultComparator.INSTANCE.compare(upper, iFrom);
+          if (compare < 0 || compare == 0 && !iFromInclusive && !fromPartial)
+            continue;
+        }
+
+        if (iTo != null && lower != null) {
+          final int compare = ODefaultComparator.INSTANCE.compare(lower, iTo);
+          if (compare > 0 || compare == 0 && !toPartial)
+            break;
+        }
+
+        final boolean containsFrom = iFrom != null && (lower == null || ODefaultComparator.INSTANCE.compare(lower, iFrom) < 0);
+        final boolean containsTo = iTo != null && ODefaultComparator.INSTANCE.compare(upper, iTo) > 0;
+
+        result += containsFrom || containsTo ? Math.max(1, bucketEntries[i] / 2) : bucketEntries[i];
+      }
+    } catch (RuntimeException e) {
+      // KEYS NOT COMPARABLE WITH THE ONES OF THE INDEX
+      return -1;
+    }
+
+    return result;
+  }
+
+  public ODocument toDocument() {
+    final ODocument document = new ODocument();
+    document.field("index", indexName);
+    document.field("entries", entries);
+    document.field("keys", keys);
+
+    if (distinctPrefixes.length > 1) {
+      final List<Long> prefixes = new ArrayList<Long>(distinctPrefixes.length);
+      for (long p : distinctPrefixes)
+        prefixes.add(p);
+      document.field("distinctPrefixes", prefixes);
+    }
+
+    document.field("buckets", getBuckets());
+    return document;
+  }
+
+  @Override
+  public String toString() {
+    return "OIndexStatistics [index=" + indexName + ", entries=" + entries + ", keys=" + keys + ", buckets=" + getBuckets() + "]";
+  }
+
+  private int getPrefixLength(final Object iKey) {
+    if (iKey instanceof OCompositeKey && distinctPrefixes.length > 1) {
+      final int length = ((OCompositeKey) iKey).getKeys().size();
+      return length < distinctPrefixes.length ? length : 0;
+    }
+    return 0;
+  }
+
+  private static void countDistinctPrefixes(final Object iPreviousKey, final Object iKey, final long[] iDistinctPrefixes) {
+    if (iDistinctPrefixes.length == 1 || !(iKey instanceof OCompositeKey)) {
+      iDistinctPrefixes[iDistinctPrefixes.length - 1]++;
+      return;
+    }
+
+    // KEYS ARE ORDERED: A PREFIX IS NEW WHEN IT DIFFERS FROM THE ONE OF THE PREVIOUS KEY
+    final List<Object> current = ((OCompositeKey) iKey).getKeys();
+    final List<Object> previous = iPreviousKey instanceof OCompositeKey ? ((OCompositeKey) iPreviousKey).getKeys() : null;
+
+    boolean changed = previous == null;
+    for (int i = 0; i < iDistinctPrefixes.length; ++i) {
+      if (!changed) {
+        final Object c = i < current.size() ? current.get(i) : null;
+        final Object p = i < previous.size() ? previous.get(i) : null;
+        changed = c == null ? p != null : !c.equals(p);
+      }
+
+      if (changed)
+        iDistinctPrefixes[i]++;
+    }
+  }
+
+  private static long divide(final long iDividend, final long iDivisor) {
+    if (iDivisor <= 0)
+      return iDividend;
+    return (iDividend + iDivisor - 1) / iDivisor;
+  }
+}
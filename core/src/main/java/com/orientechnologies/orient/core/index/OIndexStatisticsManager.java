@@ -0,0 +1,65 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.orientechnologies.orient.core.storage.OStorage;
+
+/**
+ * Keeps the statistics of the indexes of a storage collected by <code>ANALYZE INDEX</code>. Statistics live in memory only: they
+ * are lost when the storage is closed and must be collected again.
+ */
+public class OIndexStatisticsManager {
+  private final ConcurrentMap<String, OIndexStatistics> statistics = new ConcurrentHashMap<String, OIndexStatistics>();
+
+  public static OIndexStatisticsManager get(final OStorage iStorage) {
+    return iStorage.getResource(OIndexStatisticsManager.class.getSimpleName(), new Callable<OIndexStatisticsManager>() {
+      public OIndexStatisticsManager call() throws Exception {
+        return new OIndexStatisticsManager();
+      }
+    });
+  }
+
+  /**
+   * Returns the statistics of the index, or null if the index has never been analyzed.
+   */
+  public static OIndexStatistics getStatistics(final OStorage iStorage, final String iIndexName) {
+    if (iStorage == null || !iStorage.existsResource(OIndexStatisticsManager.class.getSimpleName()))
+      return null;
+
+    return get(iStorage).statistics.get(iIndexName.toLowerCase());
+  }
+
+  /**
+   * Removes the statistics of the index if any. Called when the index is dropped.
+   */
+  public static void removeStatistics(final OStorage iStorage, final String iIndexName) {
+    if (iStorage != null && iStorage.existsResource(OIndexStatisticsManager.class.getSimpleName()))
+      get(iStorage).statistics.remove(iIndexName.toLowerCase());
+  }
+
+  /**
+   * Collects the statistics of the index and replaces the previous ones.
+   */
+  public OIndexStatistics analyze(final OIndex<?> iIndex) {
+    final OIndexStatistics result = OIndexStatistics.analyze(iIndex, OIndexStatistics.DEFAULT_BUCKETS);
+    statistics.put(iIndex.getName().toLowerCase(), result);
+    return result;
+  }
+}
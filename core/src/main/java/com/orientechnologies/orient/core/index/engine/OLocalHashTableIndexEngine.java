@@ -45,9 +45,10 @@ import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstrac
  * @since 15.07.13
  */
 public final class OLocalHashTableIndexEngine<V> implements OIndexEngine<V> {
-  public static final String                     METADATA_FILE_EXTENSION = ".him";
-  public static final String                     TREE_FILE_EXTENSION     = ".hit";
-  public static final String                     BUCKET_FILE_EXTENSION   = ".hib";
+  public static final String                     METADATA_FILE_EXTENSION  = ".him";
+  public static final String                     TREE_FILE_EXTENSION      = ".hit";
+  public static final String                     BUCKET_FILE_EXTENSION    = ".hib";
+  public static final String                     DIRECTORY_FILE_EXTENSION = ".hid";
 
   private final OLocalHashTable<Object, V>       hashTable;
   private final OMurmurHash3HashFunction<Object> hashFunction;
@@ -56,7 +57,8 @@ public final class OLocalHashTableIndexEngine<V> implements OIndexEngine<V> {
 
   public OLocalHashTableIndexEngine() {
     hashFunction = new OMurmurHash3HashFunction<Object>();
-    hashTable = new OLocalHashTable<Object, V>(METADATA_FILE_EXTENSION, TREE_FILE_EXTENSION, BUCKET_FILE_EXTENSION, hashFunction);
+    hashTable = new OLocalHashTable<Object, V>(METADATA_FILE_EXTENSION, TREE_FILE_EXTENSION, BUCKET_FILE_EXTENSION,
+        DIRECTORY_FILE_EXTENSION, hashFunction);
   }
 
   @Override
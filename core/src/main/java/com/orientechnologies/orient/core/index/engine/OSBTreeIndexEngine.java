@@ -0,0 +1,530 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.engine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.ODocumentFieldsHashSet;
+import com.orientechnologies.orient.core.index.OIndexDefinition;
+import com.orientechnologies.orient.core.index.OIndexEngine;
+import com.orientechnologies.orient.core.index.ORuntimeKeyIndexDefinition;
+import com.orientechnologies.orient.core.index.sbtree.local.OSBTree;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.record.impl.ORecordBytes;
+import com.orientechnologies.orient.core.serialization.serializer.binary.OBinarySerializerFactory;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OCompositeKeySerializer;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OSimpleKeySerializer;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializer;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
+
+/**
+ * Index engine that keeps the keys in a {@link OSBTree} stored in the pages of the disk cache, so the index doesn't need to be
+ * loaded in heap and its changes are logged in the write ahead log of the storage.
+ */
+public final class OSBTreeIndexEngine<V> implements OIndexEngine<V> {
+  public static final String       DATA_FILE_EXTENSION = ".sbt";
+
+  private static final int         ITERATION_BATCH     = 256;
+
+  private final OSBTree<Object, V> sbTree;
+
+  private volatile ORID            identity;
+
+  public OSBTreeIndexEngine() {
+    sbTree = new OSBTree<Object, V>(DATA_FILE_EXTENSION);
+  }
+
+  @Override
+  public void init() {
+  }
+
+  @Override
+  public void create(String indexName, OIndexDefinition indexDefinition, String clusterIndexName,
+      OStreamSerializer valueSerializer, boolean isAutomatic) {
+    OBinarySerializer keySerializer;
+
+    if (indexDefinition != null) {
+      if (indexDefinition instanceof ORuntimeKeyIndexDefinition) {
+        keySerializer = ((ORuntimeKeyIndexDefinition) indexDefinition).getSerializer();
+      } else {
+        if (indexDefinition.getTypes().length > 1) {
+          keySerializer = OCompositeKeySerializer.INSTANCE;
+        } else {
+          keySerializer = OBinarySerializerFactory.INSTANCE.getObjectSerializer(indexDefinition.getTypes()[0]);
+        }
+      }
+    } else
+      keySerializer = new OSimpleKeySerializer();
+
+    final ODatabaseRecord database = getDatabase();
+    final ORecordBytes identityRecord = new ORecordBytes();
+    final OStorageLocalAbstract storageLocalAbstract = (OStorageLocalAbstract) database.getStorage();
+
+    database.save(identityRecord, clusterIndexName);
+    identity = identityRecord.getIdentity();
+
+    sbTree.create(indexName, keySerializer, (OBinarySerializer<V>) valueSerializer, storageLocalAbstract);
+  }
+
+  @Override
+  public void flush() {
+    sbTree.flush();
+  }
+
+  @Override
+  public void delete() {
+    sbTree.delete();
+  }
+
+  @Override
+  public void load(ORID indexRid, String indexName, boolean isAutomatic) {
+    identity = indexRid;
+    sbTree.load(indexName, (OStorageLocalAbstract) getDatabase().getStorage());
+  }
+
+  @Override
+  public boolean contains(Object key) {
+    return sbTree.get(key) != null;
+  }
+
+  @Override
+  public boolean remove(Object key) {
+    return sbTree.remove(key) != null;
+  }
+
+  @Override
+  public void clear() {
+    sbTree.clear();
+  }
+
+  @Override
+  public void unload() {
+  }
+
+  @Override
+  public void closeDb() {
+  }
+
+  @Override
+  public void close() {
+    sbTree.close();
+  }
+
+  @Override
+  public V get(Object key) {
+    return sbTree.get(key);
+  }
+
+  @Override
+  public void put(Object key, V value) {
+    sbTree.put(key, value);
+  }
+
+  @Override
+  public int removeValue(final OIdentifiable valueToRemove, final ValuesTransformer<V> transformer) {
+    final Map<Object, V> entriesToUpdate = new HashMap<Object, V>();
+
+    sbTree.loadEntriesMajor(null, true, new OSBTree.RangeResultListener<Object, V>() {
+      @Override
+      public boolean addResult(Map.Entry<Object, V> entry) {
+        if (transformer != null) {
+          Collection<OIdentifiable> rids = transformer.transformFromValue(entry.getValue());
+          if (rids.remove(valueToRemove))
+            entriesToUpdate.put(entry.getKey(), transformer.transformToValue(rids));
+        } else if (entry.getValue().equals(valueToRemove))
+          entriesToUpdate.put(entry.getKey(), entry.getValue());
+
+        return true;
+      }
+    });
+
+    for (Map.Entry<Object, V> entry : entriesToUpdate.entrySet()) {
+      V value = entry.getValue();
+      if (value instanceof Collection) {
+        Collection col = (Collection) value;
+        if (col.isEmpty())
+          sbTree.remove(entry.getKey());
+        else
+          sbTree.put(entry.getKey(), value);
+      } else
+        sbTree.remove(entry.getKey());
+    }
+
+    return entriesToUpdate.size();
+  }
+
+  @Override
+  public long size(final ValuesTransformer<V> transformer) {
+    if (transformer == null)
+      return sbTree.size();
+
+    final long[] counter = new long[1];
+    sbTree.loadEntriesMajor(null, true, new OSBTree.RangeResultListener<Object, V>() {
+      @Override
+      public boolean addResult(Map.Entry<Object, V> entry) {
+        counter[0] += transformer.transformFromValue(entry.getValue()).size();
+        return true;
+      }
+    });
+
+    return counter[0];
+  }
+
+  @Override
+  public ORID getIdentity() {
+    return identity;
+  }
+
+  @Override
+  public boolean hasRangeQuerySupport() {
+    return true;
+  }
+
+  @Override
+  public Iterator<Map.Entry<Object, V>> iterator() {
+    return new EntriesIterator(true);
+  }
+
+  @Override
+  public Iterator<Map.Entry<Object, V>> inverseIterator() {
+    return new EntriesIterator(false);
+  }
+
+  @Override
+  public Iterator<V> valuesIterator() {
+    return new ValuesIterator(true);
+  }
+
+  @Override
+  public Iterator<V> inverseValuesIterator() {
+    return new ValuesIterator(false);
+  }
+
+  @Override
+  public Iterable<Object> keys() {
+    return new Iterable<Object>() {
+      @Override
+      public Iterator<Object> iterator() {
+        final EntriesIterator entriesIterator = new EntriesIterator(true);
+        return new Iterator<Object>() {
+          @Override
+          public boolean hasNext() {
+            return entriesIterator.hasNext();
+          }
+
+          @Override
+          public Object next() {
+            return entriesIterator.next().getKey();
+          }
+
+          @Override
+          public void remove() {
+            entriesIterator.remove();
+          }
+        };
+      }
+    };
+  }
+
+  @Override
+  public Collection<OIdentifiable> getValuesBetween(Object rangeFrom, boolean fromInclusive, Object rangeTo, boolean toInclusive,
+      final int maxValuesToFetch, final ValuesTransformer<V> transformer) {
+    final Set<OIdentifiable> result = new HashSet<OIdentifiable>();
+
+    sbTree.loadEntriesBetween(rangeFrom, fromInclusive, rangeTo, toInclusive, new OSBTree.RangeResultListener<Object, V>() {
+      @Override
+      public boolean addResult(Map.Entry<Object, V> entry) {
+        return addToResult(transformer, result, entry.getValue(), maxValuesToFetch);
+      }
+    });
+
+    return result;
+  }
+
+  @Override
+  public Collection<OIdentifiable> getValuesMajor(Object fromKey, boolean isInclusive, final int maxValuesToFetch,
+      final ValuesTransformer<V> transformer) {
+    final Set<OIdentifiable> result = new HashSet<OIdentifiable>();
+
+    sbTree.loadEntriesMajor(fromKey, isInclusive, new OSBTree.RangeResultListener<Object, V>() {
+      @Override
+      public boolean addResult(Map.Entry<Object, V> entry) {
+        return addToResult(transformer, result, entry.getValue(), maxValuesToFetch);
+      }
+    });
+
+    return result;
+  }
+
+  @Override
+  public Collection<OIdentifiable> getValuesMinor(Object toKey, boolean isInclusive, final int maxValuesToFetch,
+      final ValuesTransformer<V> transformer) {
+    final Set<OIdentifiable> result = new HashSet<OIdentifiable>();
+
+    sbTree.loadEntriesMinor(toKey, isInclusive, new OSBTree.RangeResultListener<Object, V>() {
+      @Override
+      public boolean addResult(Map.Entry<Object, V> entry) {
+        return addToResult(transformer, result, entry.getValue(), maxValuesToFetch);
+      }
+    });
+
+    return result;
+  }
+
+  @Override
+  public Collection<ODocument> getEntriesMajor(Object fromKey, boolean isInclusive, final int maxEntriesToFetch,
+      final ValuesTransformer<V> transformer) {
+    final Set<ODocument> result = new ODocumentFieldsHashSet();
+
+    sbTree.loadEntriesMajor(fromKey, isInclusive, new OSBTree.RangeResultListener<Object, V>() {
+      @Override
+      public boolean addResult(Map.Entry<Object, V> entry) {
+        return addToEntriesResult(transformer, result, entry.getKey(), entry.getValue(), maxEntriesToFetch);
+      }
+    });
+
+    return result;
+  }
+
+  @Override
+  public Collection<ODocument> getEntriesMinor(Object toKey, boolean isInclusive, final int maxEntriesToFetch,
+      final ValuesTransformer<V> transformer) {
+    final Set<ODocument> result = new ODocumentFieldsHashSet();
+
+    sbTree.loadEntriesMinor(toKey, isInclusive, new OSBTree.RangeResultListener<Object, V>() {
+      @Override
+      public boolean addResult(Map.Entry<Object, V> entry) {
+        return addToEntriesResult(transformer, result, entry.getKey(), entry.getValue(), maxEntriesToFetch);
+      }
+    });
+
+    return result;
+  }
+
+  @Override
+  public Collection<ODocument> getEntriesBetween(Object rangeFrom, Object rangeTo, boolean inclusive, final int maxEntriesToFetch,
+      final ValuesTransformer<V> transformer) {
+    final Set<ODocument> result = new ODocumentFieldsHashSet();
+
+    sbTree.loadEntriesBetween(rangeFrom, inclusive, rangeTo, inclusive, new OSBTree.RangeResultListener<Object, V>() {
+      @Override
+      public boolean addResult(Map.Entry<Object, V> entry) {
+        return addToEntriesResult(transformer, result, entry.getKey(), entry.getValue(), maxEntriesToFetch);
+      }
+    });
+
+    return result;
+  }
+
+  @Override
+  public long count(Object rangeFrom, boolean fromInclusive, Object rangeTo, boolean toInclusive, final int maxValuesToFetch,
+      final ValuesTransformer<V> transformer) {
+    final long[] count = new long[1];
+
+    final OSBTree.RangeResultListener<Object, V> listener = new OSBTree.RangeResultListener<Object, V>() {
+      @Override
+      public boolean addResult(Map.Entry<Object, V> entry) {
+        if (transformer != null)
+          count[0] += transformer.transformFromValue(entry.getValue()).size();
+        else
+          count[0]++;
+
+        if (maxValuesToFetch > -1 && count[0] >= maxValuesToFetch) {
+          count[0] = maxValuesToFetch;
+          return false;
+        }
+
+        return true;
+      }
+    };
+
+    if (rangeFrom == null)
+      sbTree.loadEntriesMajor(null, true, listener);
+    else
+      sbTree.loadEntriesBetween(rangeFrom, fromInclusive, rangeTo, toInclusive, listener);
+
+    return count[0];
+  }
+
+  @Override
+  public void startTransaction() {
+  }
+
+  @Override
+  public void stopTransaction() {
+  }
+
+  @Override
+  public void afterTxRollback() {
+  }
+
+  @Override
+  public void afterTxCommit() {
+  }
+
+  @Override
+  public void beforeTxBegin() {
+  }
+
+  /**
+   * @return false if the maximum amount of values was fetched, so the scan can be stopped
+   */
+  private boolean addToResult(ValuesTransformer<V> transformer, Set<OIdentifiable> result, V value, int maxValuesToFetch) {
+    if (transformer != null) {
+      Collection<OIdentifiable> transformResult = transformer.transformFromValue(value);
+      for (OIdentifiable transformedValue : transformResult) {
+
+        result.add(transformedValue);
+        if (maxValuesToFetch > -1 && result.size() == maxValuesToFetch)
+          return false;
+      }
+
+    } else
+      result.add((OIdentifiable) value);
+
+    return maxValuesToFetch < 0 || result.size() < maxValuesToFetch;
+  }
+
+  /**
+   * @return false if the maximum amount of entries was fetched, so the scan can be stopped
+   */
+  private boolean addToEntriesResult(ValuesTransformer<V> transformer, Set<ODocument> result, Object key, V value,
+      int maxValuesToFetch) {
+    if (transformer != null) {
+      Collection<OIdentifiable> transformResult = transformer.transformFromValue(value);
+      for (OIdentifiable transformedValue : transformResult) {
+        final ODocument document = new ODocument();
+        document.field("key", key);
+        document.field("rid", transformedValue.getIdentity());
+        document.unsetDirty();
+
+        result.add(document);
+
+        if (maxValuesToFetch > -1 && result.size() == maxValuesToFetch)
+          return false;
+      }
+
+    } else {
+      final ODocument document = new ODocument();
+      document.field("key", key);
+      document.field("rid", ((OIdentifiable) value).getIdentity());
+      document.unsetDirty();
+
+      result.add(document);
+    }
+
+    return maxValuesToFetch < 0 || result.size() < maxValuesToFetch;
+  }
+
+  private ODatabaseRecord getDatabase() {
+    return ODatabaseRecordThreadLocal.INSTANCE.get();
+  }
+
+  /**
+   * Iterates over the entries loading them in batches, every batch is loaded starting after the last key of the previous one.
+   */
+  private final class EntriesIterator implements Iterator<Map.Entry<Object, V>> {
+    private final boolean                    ascending;
+    private final List<Map.Entry<Object, V>> entries = new ArrayList<Map.Entry<Object, V>>(ITERATION_BATCH);
+    private int                              nextEntryIndex;
+    private boolean                          lastBatch;
+
+    private EntriesIterator(boolean ascending) {
+      this.ascending = ascending;
+      loadBatch(null);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return nextEntryIndex < entries.size();
+    }
+
+    @Override
+    public Map.Entry<Object, V> next() {
+      if (nextEntryIndex >= entries.size())
+        throw new NoSuchElementException();
+
+      final Map.Entry<Object, V> entry = entries.get(nextEntryIndex);
+      nextEntryIndex++;
+
+      if (nextEntryIndex >= entries.size() && !lastBatch)
+        loadBatch(entry.getKey());
+
+      return entry;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("remove");
+    }
+
+    private void loadBatch(Object lastKey) {
+      entries.clear();
+      nextEntryIndex = 0;
+
+      final OSBTree.RangeResultListener<Object, V> listener = new OSBTree.RangeResultListener<Object, V>() {
+        @Override
+        public boolean addResult(Map.Entry<Object, V> entry) {
+          entries.add(entry);
+          return entries.size() < ITERATION_BATCH;
+        }
+      };
+
+      if (ascending)
+        sbTree.loadEntriesMajor(lastKey, false, listener);
+      else
+        sbTree.loadEntriesMinor(lastKey, false, listener);
+
+      lastBatch = entries.size() < ITERATION_BATCH;
+    }
+  }
+
+  private final class ValuesIterator implements Iterator<V> {
+    private final EntriesIterator entriesIterator;
+
+    private ValuesIterator(boolean ascending) {
+      entriesIterator = new EntriesIterator(ascending);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return entriesIterator.hasNext();
+    }
+
+    @Override
+    public V next() {
+      return entriesIterator.next().getValue();
+    }
+
+    @Override
+    public void remove() {
+      entriesIterator.remove();
+    }
+  }
+}
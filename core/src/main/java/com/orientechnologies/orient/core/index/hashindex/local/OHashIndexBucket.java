@@ -15,29 +15,25 @@
  */
 package com.orientechnologies.orient.core.index.hashindex.local;
 
+import java.io.IOException;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 import com.orientechnologies.common.comparator.ODefaultComparator;
-import com.orientechnologies.common.directmemory.ODirectMemory;
 import com.orientechnologies.common.serialization.types.OBinarySerializer;
 import com.orientechnologies.common.serialization.types.OByteSerializer;
 import com.orientechnologies.common.serialization.types.OIntegerSerializer;
 import com.orientechnologies.common.serialization.types.OLongSerializer;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.ODurablePage;
 
 /**
  * @author Andrey Lomakin
  * @since 2/17/13
  */
-public class OHashIndexBucket<K, V> implements Iterable<OHashIndexBucket.Entry<K, V>> {
-  private static final int            MAGIC_NUMBER_OFFSET        = 0;
-  private static final int            CRC32_OFFSET               = MAGIC_NUMBER_OFFSET + OLongSerializer.LONG_SIZE;
-  private static final int            WAL_SEGMENT_OFFSET         = CRC32_OFFSET + OIntegerSerializer.INT_SIZE;
-  private static final int            WAL_POSITION_OFFSET        = WAL_SEGMENT_OFFSET + OIntegerSerializer.INT_SIZE;
-
-  private static final int            FREE_POINTER_OFFSET        = WAL_POSITION_OFFSET + OLongSerializer.LONG_SIZE;
+public class OHashIndexBucket<K, V> extends ODurablePage implements Iterable<OHashIndexBucket.Entry<K, V>> {
+  private static final int            FREE_POINTER_OFFSET        = NEXT_FREE_POSITION;
   private static final int            DEPTH_OFFSET               = FREE_POINTER_OFFSET + OIntegerSerializer.INT_SIZE;
   private static final int            SIZE_OFFSET                = DEPTH_OFFSET + OByteSerializer.BYTE_SIZE;
   private static final int            HISTORY_OFFSET             = SIZE_OFFSET + OIntegerSerializer.INT_SIZE;
@@ -47,29 +43,28 @@ public class OHashIndexBucket<K, V> implements Iterable<OHashIndexBucket.Entry<K
 
   public static final int             MAX_BUCKET_SIZE_BYTES      = OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger() * 1024;
 
-  private final long                  bufferPointer;
-  private final ODirectMemory         directMemory;
-
   private final Comparator<? super K> comparator                 = ODefaultComparator.INSTANCE;
 
   private final OBinarySerializer<K>  keySerializer;
   private final OBinarySerializer<V>  valueSerializer;
 
-  public OHashIndexBucket(int depth, long bufferPointer, ODirectMemory directMemory, OBinarySerializer<K> keySerializer,
-      OBinarySerializer<V> valueSerializer) {
-    this.bufferPointer = bufferPointer;
-    this.directMemory = directMemory;
+  public OHashIndexBucket(int depth, long pagePointer, OBinarySerializer<K> keySerializer, OBinarySerializer<V> valueSerializer,
+      TrackMode trackMode) throws IOException {
+    super(pagePointer, trackMode);
+
     this.keySerializer = keySerializer;
     this.valueSerializer = valueSerializer;
 
-    directMemory.setByte(bufferPointer + DEPTH_OFFSET, (byte) depth);
-    OIntegerSerializer.INSTANCE.serializeInDirectMemory(MAX_BUCKET_SIZE_BYTES, directMemory, bufferPointer + FREE_POINTER_OFFSET);
+    // PAGES OF MERGED OR REMOVED BUCKETS ARE REUSED, SO THE SIZE IS RESET TOGETHER WITH THE FREE POINTER
+    setByteValue(DEPTH_OFFSET, (byte) depth);
+    setIntValue(FREE_POINTER_OFFSET, MAX_BUCKET_SIZE_BYTES);
+    setIntValue(SIZE_OFFSET, 0);
   }
 
-  public OHashIndexBucket(long bufferPointer, ODirectMemory directMemory, OBinarySerializer<K> keySerializer,
-      OBinarySerializer<V> valueSerializer) {
-    this.bufferPointer = bufferPointer;
-    this.directMemory = directMemory;
+  public OHashIndexBucket(long pagePointer, OBinarySerializer<K> keySerializer, OBinarySerializer<V> valueSerializer,
+      TrackMode trackMode) {
+    super(pagePointer, trackMode);
+
     this.keySerializer = keySerializer;
     this.valueSerializer = valueSerializer;
   }
@@ -102,21 +97,21 @@ public class OHashIndexBucket<K, V> implements Iterable<OHashIndexBucket.Entry<K
   }
 
   public Entry<K, V> getEntry(int index) {
-    int entryPosition = OIntegerSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, bufferPointer
+    int entryPosition = OIntegerSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, pagePointer
         + POSITIONS_ARRAY_OFFSET + index * OIntegerSerializer.INT_SIZE);
 
-    final K key = keySerializer.deserializeFromDirectMemory(directMemory, bufferPointer + entryPosition);
-    entryPosition += keySerializer.getObjectSizeInDirectMemory(directMemory, bufferPointer + entryPosition);
+    final K key = keySerializer.deserializeFromDirectMemory(directMemory, pagePointer + entryPosition);
+    entryPosition += keySerializer.getObjectSizeInDirectMemory(directMemory, pagePointer + entryPosition);
 
-    final V value = valueSerializer.deserializeFromDirectMemory(directMemory, bufferPointer + entryPosition);
+    final V value = valueSerializer.deserializeFromDirectMemory(directMemory, pagePointer + entryPosition);
     return new Entry<K, V>(key, value);
   }
 
   public K getKey(int index) {
-    int entryPosition = OIntegerSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, bufferPointer
+    int entryPosition = OIntegerSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, pagePointer
         + POSITIONS_ARRAY_OFFSET + index * OIntegerSerializer.INT_SIZE);
 
-    return keySerializer.deserializeFromDirectMemory(directMemory, bufferPointer + entryPosition);
+    return keySerializer.deserializeFromDirectMemory(directMemory, pagePointer + entryPosition);
   }
 
   public int getIndex(final K key) {
@@ -124,7 +119,7 @@ public class OHashIndexBucket<K, V> implements Iterable<OHashIndexBucket.Entry<K
   }
 
   public int size() {
-    return OIntegerSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, bufferPointer + SIZE_OFFSET);
+    return OIntegerSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, pagePointer + SIZE_OFFSET);
   }
 
   public Iterator<Entry<K, V>> iterator() {
@@ -139,11 +134,11 @@ public class OHashIndexBucket<K, V> implements Iterable<OHashIndexBucket.Entry<K
     return POSITIONS_ARRAY_OFFSET
         + size()
         * OIntegerSerializer.INT_SIZE
-        + (MAX_BUCKET_SIZE_BYTES - OIntegerSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, bufferPointer
+        + (MAX_BUCKET_SIZE_BYTES - OIntegerSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, pagePointer
             + FREE_POINTER_OFFSET))
         + buddyBucket.size()
         * OIntegerSerializer.INT_SIZE
-        + (MAX_BUCKET_SIZE_BYTES - OIntegerSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, buddyBucket.bufferPointer
+        + (MAX_BUCKET_SIZE_BYTES - OIntegerSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, buddyBucket.pagePointer
             + FREE_POINTER_OFFSET));
   }
 
@@ -151,50 +146,46 @@ public class OHashIndexBucket<K, V> implements Iterable<OHashIndexBucket.Entry<K
     return POSITIONS_ARRAY_OFFSET
         + size()
         * OIntegerSerializer.INT_SIZE
-        + (MAX_BUCKET_SIZE_BYTES - OIntegerSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, bufferPointer
+        + (MAX_BUCKET_SIZE_BYTES - OIntegerSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, pagePointer
             + FREE_POINTER_OFFSET));
   }
 
-  public Entry<K, V> deleteEntry(int index) {
+  public Entry<K, V> deleteEntry(int index) throws IOException {
     final Entry<K, V> removedEntry = getEntry(index);
 
-    final int freePointer = OIntegerSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, bufferPointer
-        + FREE_POINTER_OFFSET);
+    final int freePointer = getIntValue(FREE_POINTER_OFFSET);
 
     final int positionOffset = POSITIONS_ARRAY_OFFSET + index * OIntegerSerializer.INT_SIZE;
-    final int entryPosition = OIntegerSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, bufferPointer + positionOffset);
+    final int entryPosition = getIntValue(positionOffset);
 
-    final int keySize = keySerializer.getObjectSizeInDirectMemory(directMemory, bufferPointer + entryPosition);
-    final int ridSize = valueSerializer.getObjectSizeInDirectMemory(directMemory, bufferPointer + entryPosition + keySize);
+    final int keySize = keySerializer.getObjectSizeInDirectMemory(directMemory, pagePointer + entryPosition);
+    final int ridSize = valueSerializer.getObjectSizeInDirectMemory(directMemory, pagePointer + entryPosition + keySize);
     final int entrySize = keySize + ridSize;
 
-    directMemory.copyData(bufferPointer + positionOffset + OIntegerSerializer.INT_SIZE, bufferPointer + positionOffset, size()
-        * OIntegerSerializer.INT_SIZE - (index + 1) * OIntegerSerializer.INT_SIZE);
+    copyData(positionOffset + OIntegerSerializer.INT_SIZE, positionOffset, size() * OIntegerSerializer.INT_SIZE - (index + 1)
+        * OIntegerSerializer.INT_SIZE);
 
     if (entryPosition > freePointer)
-      directMemory.copyData(bufferPointer + freePointer, bufferPointer + freePointer + entrySize, entryPosition - freePointer);
+      copyData(freePointer, freePointer + entrySize, entryPosition - freePointer);
 
     int currentPositionOffset = POSITIONS_ARRAY_OFFSET;
     int size = size();
     for (int i = 0; i < size - 1; i++) {
-      int currentEntryPosition = OIntegerSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, bufferPointer
-          + currentPositionOffset);
+      int currentEntryPosition = getIntValue(currentPositionOffset);
       if (currentEntryPosition < entryPosition)
-        OIntegerSerializer.INSTANCE.serializeInDirectMemory(currentEntryPosition + entrySize, directMemory, bufferPointer
-            + currentPositionOffset);
+        setIntValue(currentPositionOffset, currentEntryPosition + entrySize);
       currentPositionOffset += OIntegerSerializer.INT_SIZE;
     }
 
-    OIntegerSerializer.INSTANCE.serializeInDirectMemory(freePointer + entrySize, directMemory, bufferPointer + FREE_POINTER_OFFSET);
-
-    OIntegerSerializer.INSTANCE.serializeInDirectMemory(size - 1, directMemory, bufferPointer + SIZE_OFFSET);
+    setIntValue(FREE_POINTER_OFFSET, freePointer + entrySize);
+    setIntValue(SIZE_OFFSET, size - 1);
 
     return removedEntry;
   }
 
-  public boolean addEntry(K key, V value) {
+  public boolean addEntry(K key, V value) throws IOException {
     int entreeSize = keySerializer.getObjectSize(key) + valueSerializer.getObjectSize(value);
-    int freePointer = OIntegerSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, bufferPointer + FREE_POINTER_OFFSET);
+    int freePointer = OIntegerSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, pagePointer + FREE_POINTER_OFFSET);
 
     int size = size();
     if (freePointer - entreeSize < POSITIONS_ARRAY_OFFSET + (size + 1) * OIntegerSerializer.INT_SIZE)
@@ -210,73 +201,70 @@ public class OHashIndexBucket<K, V> implements Iterable<OHashIndexBucket.Entry<K
     return true;
   }
 
-  private void insertEntry(K key, V value, int insertionPoint) {
+  private void insertEntry(K key, V value, int insertionPoint) throws IOException {
     int entreeSize = keySerializer.getObjectSize(key) + valueSerializer.getObjectSize(value);
-    int freePointer = OIntegerSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, bufferPointer + FREE_POINTER_OFFSET);
+    int freePointer = getIntValue(FREE_POINTER_OFFSET);
     int size = size();
     final int positionsOffset = insertionPoint * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET;
 
-    directMemory.copyData(bufferPointer + positionsOffset, bufferPointer + positionsOffset + OIntegerSerializer.INT_SIZE, size()
-        * OIntegerSerializer.INT_SIZE - insertionPoint * OIntegerSerializer.INT_SIZE);
+    copyData(positionsOffset, positionsOffset + OIntegerSerializer.INT_SIZE, size() * OIntegerSerializer.INT_SIZE - insertionPoint
+        * OIntegerSerializer.INT_SIZE);
 
     final int entreePosition = freePointer - entreeSize;
-    OIntegerSerializer.INSTANCE.serializeInDirectMemory(entreePosition, directMemory, bufferPointer + positionsOffset);
+    setIntValue(positionsOffset, entreePosition);
     serializeEntry(key, value, entreePosition);
 
-    OIntegerSerializer.INSTANCE.serializeInDirectMemory(entreePosition, directMemory, bufferPointer + FREE_POINTER_OFFSET);
-
-    OIntegerSerializer.INSTANCE.serializeInDirectMemory(size + 1, directMemory, bufferPointer + SIZE_OFFSET);
+    setIntValue(FREE_POINTER_OFFSET, entreePosition);
+    setIntValue(SIZE_OFFSET, size + 1);
   }
 
-  public void appendEntry(K key, V value) {
+  public void appendEntry(K key, V value) throws IOException {
     final int positionsOffset = size() * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET;
     final int entreeSize = keySerializer.getObjectSize(key) + valueSerializer.getObjectSize(value);
 
-    final int freePointer = OIntegerSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, bufferPointer
-        + FREE_POINTER_OFFSET);
+    final int freePointer = getIntValue(FREE_POINTER_OFFSET);
     final int entreePosition = freePointer - entreeSize;
 
-    OIntegerSerializer.INSTANCE.serializeInDirectMemory(entreePosition, directMemory, bufferPointer + positionsOffset);
+    setIntValue(positionsOffset, entreePosition);
     serializeEntry(key, value, entreePosition);
 
-    OIntegerSerializer.INSTANCE
-        .serializeInDirectMemory(freePointer - entreeSize, directMemory, bufferPointer + FREE_POINTER_OFFSET);
-
-    OIntegerSerializer.INSTANCE.serializeInDirectMemory(size() + 1, directMemory, bufferPointer + SIZE_OFFSET);
+    setIntValue(FREE_POINTER_OFFSET, freePointer - entreeSize);
+    setIntValue(SIZE_OFFSET, size() + 1);
   }
 
-  private void serializeEntry(K key, V value, int entryOffset) {
-    keySerializer.serializeInDirectMemory(key, directMemory, bufferPointer + entryOffset);
-    entryOffset += keySerializer.getObjectSize(key);
+  private void serializeEntry(K key, V value, int entryOffset) throws IOException {
+    final int keySize = keySerializer.getObjectSize(key);
+    final byte[] entry = new byte[keySize + valueSerializer.getObjectSize(value)];
 
-    valueSerializer.serializeInDirectMemory(value, directMemory, bufferPointer + entryOffset);
+    keySerializer.serializeNative(key, entry, 0);
+    valueSerializer.serializeNative(value, entry, keySize);
+
+    setBinaryValue(entryOffset, entry);
   }
 
   public int getDepth() {
-    return directMemory.getByte(bufferPointer + DEPTH_OFFSET);
+    return directMemory.getByte(pagePointer + DEPTH_OFFSET);
   }
 
-  public void setDepth(int depth) {
-    directMemory.setByte(bufferPointer + DEPTH_OFFSET, (byte) depth);
+  public void setDepth(int depth) throws IOException {
+    setByteValue(DEPTH_OFFSET, (byte) depth);
   }
 
   public long getNextRemovedBucketPair() {
-    return OLongSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, bufferPointer + NEXT_REMOVED_BUCKET_OFFSET);
+    return OLongSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, pagePointer + NEXT_REMOVED_BUCKET_OFFSET);
   }
 
-  public void setNextRemovedBucketPair(long nextRemovedBucketPair) {
-    OLongSerializer.INSTANCE.serializeInDirectMemory(nextRemovedBucketPair, directMemory, bufferPointer
-        + NEXT_REMOVED_BUCKET_OFFSET);
+  public void setNextRemovedBucketPair(long nextRemovedBucketPair) throws IOException {
+    setLongValue(NEXT_REMOVED_BUCKET_OFFSET, nextRemovedBucketPair);
   }
 
   public long getSplitHistory(int level) {
-    return OLongSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, bufferPointer + HISTORY_OFFSET
+    return OLongSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, pagePointer + HISTORY_OFFSET
         + OLongSerializer.LONG_SIZE * level);
   }
 
-  public void setSplitHistory(int level, long position) {
-    OLongSerializer.INSTANCE.serializeInDirectMemory(position, directMemory, bufferPointer + HISTORY_OFFSET
-        + OLongSerializer.LONG_SIZE * level);
+  public void setSplitHistory(int level, long position) throws IOException {
+    setLongValue(HISTORY_OFFSET + OLongSerializer.LONG_SIZE * level, position);
   }
 
   public static class Entry<K, V> {
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.hashindex.local;
+
+import java.io.IOException;
+
+import com.orientechnologies.common.serialization.types.OByteSerializer;
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.ODurablePage;
+
+/**
+ * Page of the file which keeps the durable copy of the directory of {@link OLocalHashTable}. The first page of the file holds the
+ * state of the table and the metadata of the bucket files, the next pages hold the nodes of the hash tree, {@link #NODES_PER_PAGE}
+ * nodes per page. Values are written only when they differ from the stored ones, so only the changed parts of the directory are
+ * logged in the write ahead log.
+ */
+public class OHashIndexDirectoryPage extends ODurablePage {
+  private static final int  RECORDS_COUNT_OFFSET            = NEXT_FREE_POSITION;
+  private static final int  HASH_TREE_SIZE_OFFSET           = RECORDS_COUNT_OFFSET + OLongSerializer.LONG_SIZE;
+  private static final int  HASH_TREE_TOMBSTONE_OFFSET      = HASH_TREE_SIZE_OFFSET + OIntegerSerializer.INT_SIZE;
+  private static final int  BUCKET_TOMBSTONE_POINTER_OFFSET = HASH_TREE_TOMBSTONE_OFFSET + OIntegerSerializer.INT_SIZE;
+  private static final int  KEY_SERIALIZER_OFFSET           = BUCKET_TOMBSTONE_POINTER_OFFSET + OLongSerializer.LONG_SIZE;
+  private static final int  VALUE_SERIALIZER_OFFSET         = KEY_SERIALIZER_OFFSET + OByteSerializer.BYTE_SIZE;
+  private static final int  FILES_METADATA_OFFSET           = VALUE_SERIALIZER_OFFSET + OByteSerializer.BYTE_SIZE;
+
+  private static final int  FILE_METADATA_SIZE              = OByteSerializer.BYTE_SIZE + 2 * OLongSerializer.LONG_SIZE;
+
+  private static final byte NODE_ABSENT                     = 0;
+  private static final byte NODE_PRESENT                    = 1;
+  private static final byte NODE_TOMBSTONE                  = 2;
+
+  private static final int  NODE_SIZE                       = OByteSerializer.BYTE_SIZE + OLocalHashTable.MAX_LEVEL_SIZE
+                                                                * OLongSerializer.LONG_SIZE + 3 * OByteSerializer.BYTE_SIZE;
+
+  public static final int   NODES_PER_PAGE                  = (OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger()
+                                                                * 1024 - NEXT_FREE_POSITION) / NODE_SIZE;
+
+  public OHashIndexDirectoryPage(long pagePointer, TrackMode trackMode) {
+    super(pagePointer, trackMode);
+  }
+
+  public long getRecordsCount() {
+    return getLongValue(RECORDS_COUNT_OFFSET);
+  }
+
+  public void setRecordsCount(long recordsCount) throws IOException {
+    updateLongValue(RECORDS_COUNT_OFFSET, recordsCount);
+  }
+
+  public int getHashTreeSize() {
+    return getIntValue(HASH_TREE_SIZE_OFFSET);
+  }
+
+  public void setHashTreeSize(int hashTreeSize) throws IOException {
+    updateIntValue(HASH_TREE_SIZE_OFFSET, hashTreeSize);
+  }
+
+  public int getHashTreeTombstone() {
+    return getIntValue(HASH_TREE_TOMBSTONE_OFFSET);
+  }
+
+  public void setHashTreeTombstone(int hashTreeTombstone) throws IOException {
+    updateIntValue(HASH_TREE_TOMBSTONE_OFFSET, hashTreeTombstone);
+  }
+
+  public long getBucketTombstonePointer() {
+    return getLongValue(BUCKET_TOMBSTONE_POINTER_OFFSET);
+  }
+
+  public void setBucketTombstonePointer(long bucketTombstonePointer) throws IOException {
+    updateLongValue(BUCKET_TOMBSTONE_POINTER_OFFSET, bucketTombstonePointer);
+  }
+
+  public byte getKeySerializerId() {
+    return getByteValue(KEY_SERIALIZER_OFFSET);
+  }
+
+  public void setKeySerializerId(byte keySerializerId) throws IOException {
+    updateByteValue(KEY_SERIALIZER_OFFSET, keySerializerId);
+  }
+
+  public byte getValueSerializerId() {
+    return getByteValue(VALUE_SERIALIZER_OFFSET);
+  }
+
+  public void setValueSerializerId(byte valueSerializerId) throws IOException {
+    updateByteValue(VALUE_SERIALIZER_OFFSET, valueSerializerId);
+  }
+
+  public OHashIndexFileLevelMetadata getFileMetadata(int level, String fileName) {
+    final int offset = FILES_METADATA_OFFSET + level * FILE_METADATA_SIZE;
+    if (getByteValue(offset) == 0)
+      return null;
+
+    return new OHashIndexFileLevelMetadata(fileName, getLongValue(offset + OByteSerializer.BYTE_SIZE), getLongValue(offset
+        + OByteSerializer.BYTE_SIZE + OLongSerializer.LONG_SIZE));
+  }
+
+  public void setFileMetadata(int level, OHashIndexFileLevelMetadata fileMetadata) throws IOException {
+    final int offset = FILES_METADATA_OFFSET + level * FILE_METADATA_SIZE;
+    if (fileMetadata == null) {
+      updateByteValue(offset, (byte) 0);
+      return;
+    }
+
+    updateByteValue(offset, (byte) 1);
+    updateLongValue(offset + OByteSerializer.BYTE_SIZE, fileMetadata.getBucketsCount());
+    updateLongValue(offset + OByteSerializer.BYTE_SIZE + OLongSerializer.LONG_SIZE, fileMetadata.getTombstoneIndex());
+  }
+
+  /**
+   * @return content of the node stored in the given slot of the page, array of single item which points to the next removed node
+   *         for removed nodes or <code>null</code> if node is absent.
+   */
+  public long[] getNode(int slot) {
+    int offset = NEXT_FREE_POSITION + slot * NODE_SIZE;
+
+    final byte state = getByteValue(offset);
+    offset += OByteSerializer.BYTE_SIZE;
+
+    if (state == NODE_ABSENT)
+      return null;
+
+    if (state == NODE_TOMBSTONE)
+      return new long[] { getLongValue(offset) };
+
+    final long[] node = new long[OLocalHashTable.MAX_LEVEL_SIZE];
+    for (int i = 0; i < node.length; i++) {
+      node[i] = getLongValue(offset);
+      offset += OLongSerializer.LONG_SIZE;
+    }
+
+    return node;
+  }
+
+  public OHashTreeNodeMetadata getNodeMetadata(int slot) {
+    int offset = NEXT_FREE_POSITION + slot * NODE_SIZE;
+    if (getByteValue(offset) != NODE_PRESENT)
+      return null;
+
+    offset += OByteSerializer.BYTE_SIZE + OLocalHashTable.MAX_LEVEL_SIZE * OLongSerializer.LONG_SIZE;
+    return new OHashTreeNodeMetadata(getByteValue(offset), getByteValue(offset + 1), getByteValue(offset + 2));
+  }
+
+  public void setNode(int slot, long[] node, OHashTreeNodeMetadata metadata) throws IOException {
+    int offset = NEXT_FREE_POSITION + slot * NODE_SIZE;
+
+    if (node == null) {
+      updateByteValue(offset, NODE_ABSENT);
+      return;
+    }
+
+    if (metadata == null) {
+      updateByteValue(offset, NODE_TOMBSTONE);
+      updateLongValue(offset + OByteSerializer.BYTE_SIZE, node[0]);
+      return;
+    }
+
+    updateByteValue(offset, NODE_PRESENT);
+    offset += OByteSerializer.BYTE_SIZE;
+
+    for (long position : node) {
+      updateLongValue(offset, position);
+      offset += OLongSerializer.LONG_SIZE;
+    }
+
+    updateByteValue(offset, (byte) metadata.getMaxLeftChildDepth());
+    updateByteValue(offset + 1, (byte) metadata.getMaxRightChildDepth());
+    updateByteValue(offset + 2, (byte) metadata.getNodeLocalDepth());
+  }
+
+  private void updateLongValue(int pageOffset, long value) throws IOException {
+    if (getLongValue(pageOffset) != value)
+      setLongValue(pageOffset, value);
+  }
+
+  private void updateIntValue(int pageOffset, int value) throws IOException {
+    if (getIntValue(pageOffset) != value)
+      setIntValue(pageOffset, value);
+  }
+
+  private void updateByteValue(int pageOffset, byte value) throws IOException {
+    if (getByteValue(pageOffset) != value)
+      setByteValue(pageOffset, value);
+  }
+}
@@ -16,13 +16,13 @@
 package com.orientechnologies.orient.core.index.hashindex.local;
 
 import java.io.IOException;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 
 import com.orientechnologies.common.comparator.ODefaultComparator;
 import com.orientechnologies.common.concur.resource.OSharedResourceAdaptive;
-import com.orientechnologies.common.directmemory.ODirectMemory;
-import com.orientechnologies.common.directmemory.ODirectMemoryFactory;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.serialization.types.OBinarySerializer;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
@@ -33,8 +33,24 @@ import com.orientechnologies.orient.core.serialization.serializer.binary.OBinary
 import com.orientechnologies.orient.core.storage.fs.OFileFactory;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageVariableParser;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.ODurablePage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OAtomicUnitEndRecord;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OAtomicUnitStartRecord;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OOperationUnitId;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWriteAheadLog;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.updatePageRecord.OPageDiff;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.updatePageRecord.OUpdateFilePageRecord;
 
 /**
+ * Extendible hash table which keeps buckets in the disk cache and the directory (the hash tree) in memory.
+ * 
+ * If the file extension of the directory is set and the table belongs to a storage with a write ahead log, every put, remove and
+ * clear is logged as an atomic operation which contains the changes of the bucket pages and of the pages of a durable copy of the
+ * directory kept in the disk cache. In such case the table is restored together with the storage after an unclean shutdown and the
+ * directory is loaded from its durable copy.
+ * 
  * @author Andrey Lomakin
  * @since 12.03.13
  */
@@ -57,6 +73,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
   private final String                  metadataConfigurationFileExtension;
   private final String                  treeStateFileExtension;
   private final String                  bucketFileExtension;
+  private final String                  directoryFileExtension;
 
   public static final int               HASH_CODE_SIZE         = 64;
   public static final int               MAX_LEVEL_DEPTH        = 8;
@@ -71,8 +88,6 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
   private OHashIndexBufferStore         metadataStore;
   private OHashIndexTreeStateStore      treeStateStore;
 
-  private final ODirectMemory           directMemory           = ODirectMemoryFactory.INSTANCE.directMemory();
-
   private ODiskCache                    buffer;
   private final OHashFunction<K>        keyHashFunction;
 
@@ -84,12 +99,25 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
   private final Comparator<? super K>   comparator             = ODefaultComparator.INSTANCE;
 
+  private OWriteAheadLog                writeAheadLog;
+  private long                          directoryFileId;
+  private final BitSet                  dirtyNodes             = new BitSet();
+
+  private OOperationUnitId              operationUnitId;
+  private OLogSequenceNumber            startLSN;
+
   public OLocalHashTable(String metadataConfigurationFileExtension, String treeStateFileExtension, String bucketFileExtension,
       OHashFunction<K> keyHashFunction) {
+    this(metadataConfigurationFileExtension, treeStateFileExtension, bucketFileExtension, null, keyHashFunction);
+  }
+
+  public OLocalHashTable(String metadataConfigurationFileExtension, String treeStateFileExtension, String bucketFileExtension,
+      String directoryFileExtension, OHashFunction<K> keyHashFunction) {
     super(OGlobalConfiguration.ENVIRONMENT_CONCURRENT.getValueAsBoolean());
     this.metadataConfigurationFileExtension = metadataConfigurationFileExtension;
     this.treeStateFileExtension = treeStateFileExtension;
     this.bucketFileExtension = bucketFileExtension;
+    this.directoryFileExtension = directoryFileExtension;
     this.keyHashFunction = keyHashFunction;
   }
 
@@ -102,6 +130,14 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
     metadataStore = new OHashIndexBufferStore(storage, metadataConfiguration);
     treeStateStore = new OHashIndexTreeStateStore(storage, treeStateConfiguration);
+
+    if (directoryFileExtension != null && storage instanceof OLocalPaginatedStorage)
+      writeAheadLog = ((OLocalPaginatedStorage) storage).getWALInstance();
+    else
+      writeAheadLog = null;
+
+    if (writeAheadLog != null)
+      directoryFileId = buffer.openFile(name + directoryFileExtension);
   }
 
   public void create(String name, OBinarySerializer<K> keySerializer, OBinarySerializer<V> valueSerializer,
@@ -131,7 +167,10 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
       filesMetadata[0] = createFileMetadata(0);
 
+      startOperation();
       initHashTreeState();
+      saveDirectory();
+      endOperation();
     } catch (IOException e) {
       throw new OIndexException("Error during local hash table creation.", e);
     } finally {
@@ -179,7 +218,8 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
       long dataPointer = loadPage(pageIndex, fileLevel);
 
       try {
-        final OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(dataPointer, directMemory, keySerializer, valueSerializer);
+        final OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(dataPointer, keySerializer, valueSerializer,
+            ODurablePage.TrackMode.NONE);
 
         OHashIndexBucket.Entry<K, V> entry = bucket.find(key);
         if (entry == null)
@@ -197,7 +237,17 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
   }
 
   public void put(K key, V value) {
-    doPut(key, value);
+    acquireExclusiveLock();
+    try {
+      startOperation();
+      doPut(key, value);
+      saveDirectory();
+      endOperation();
+    } catch (IOException e) {
+      throw new OIndexException("Error during index update", e);
+    } finally {
+      releaseExclusiveLock();
+    }
   }
 
   public V remove(K key) {
@@ -214,17 +264,21 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
       long dataPointer = loadPage(pageIndex, fileLevel);
       try {
-        final OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(dataPointer, directMemory, keySerializer, valueSerializer);
+        final OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(dataPointer, keySerializer, valueSerializer,
+            getTrackMode());
         final int positionIndex = bucket.getIndex(key);
         if (positionIndex < 0)
           return null;
 
+        startOperation();
+
         removed = bucket.deleteEntry(positionIndex).value;
         size--;
 
-        if (!mergeBucketsAfterDeletion(nodePath, bucket))
-          markPageAsDirty(pageIndex, fileLevel);
+        mergeBucketsAfterDeletion(nodePath, bucket);
 
+        logBucketChanges(bucket, pageIndex, fileLevel, false);
+        markPageAsDirty(pageIndex, fileLevel);
       } finally {
         releasePage(pageIndex, fileLevel);
       }
@@ -238,6 +292,9 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
           mergeNodeToParent(node, nodePath);
       }
 
+      saveDirectory();
+      endOperation();
+
       return removed;
     } catch (IOException e) {
       throw new OIndexException("Error during index removal", e);
@@ -249,6 +306,8 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
   public void clear() {
     acquireExclusiveLock();
     try {
+      startOperation();
+
       for (int i = 0; i < filesMetadata.length; i++) {
         if (filesMetadata[i] != null)
           buffer.truncateFile(fileLevelIds[i]);
@@ -260,6 +319,9 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
       treeStateStore.truncate();
 
       initHashTreeState();
+
+      saveDirectory();
+      endOperation();
     } catch (IOException e) {
       throw new OIndexException("Error during hash table clear", e);
     } finally {
@@ -283,7 +345,8 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
       long pagePointer = loadPage(pageIndex, fileLevel);
       try {
-        OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer, directMemory, keySerializer, valueSerializer);
+        OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer, keySerializer, valueSerializer,
+            ODurablePage.TrackMode.NONE);
 
         while (bucket.size() == 0 || comparator.compare(bucket.getKey(bucket.size() - 1), key) <= 0) {
           bucketPath = nextBucketToFind(bucketPath, bucket.getDepth());
@@ -298,7 +361,8 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
           pageIndex = getPageIndex(nextPointer);
 
           pagePointer = loadPage(pageIndex, fileLevel);
-          bucket = new OHashIndexBucket<K, V>(pagePointer, directMemory, keySerializer, valueSerializer);
+          bucket = new OHashIndexBucket<K, V>(pagePointer, keySerializer, valueSerializer,
+            ODurablePage.TrackMode.NONE);
         }
 
         final int index = bucket.getIndex(key);
@@ -351,6 +415,13 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
       metadataStore.open();
       treeStateStore.open();
 
+      if (writeAheadLog != null && buffer.getFilledUpTo(directoryFileId) > 0) {
+        // THE DURABLE COPY OF THE DIRECTORY IS ALWAYS UP TO DATE, ALSO AFTER THE RESTORE OF THE STORAGE
+        loadDirectory();
+        openBucketFiles();
+        return;
+      }
+
       size = metadataStore.getRecordsCount();
 
       hashTreeSize = (int) treeStateStore.getHashTreeSize();
@@ -376,11 +447,15 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
           .getValuerSerializerId());
 
       filesMetadata = metadataStore.loadMetadata();
-      for (int i = 0; i < filesMetadata.length; i++) {
-        OHashIndexFileLevelMetadata fileLevelMetadata = filesMetadata[i];
-        if (fileLevelMetadata != null)
-          fileLevelIds[i] = buffer.openFile(fileLevelMetadata.getFileName());
+      openBucketFiles();
 
+      if (writeAheadLog != null) {
+        // TABLE CREATED WITHOUT THE DURABLE COPY OF THE DIRECTORY
+        dirtyNodes.set(0, hashTreeSize);
+
+        startOperation();
+        saveDirectory();
+        endOperation();
       }
     } catch (IOException e) {
       throw new OIndexException("Exception during hash table loading", e);
@@ -389,6 +464,14 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     }
   }
 
+  private void openBucketFiles() throws IOException {
+    for (int i = 0; i < filesMetadata.length; i++) {
+      OHashIndexFileLevelMetadata fileLevelMetadata = filesMetadata[i];
+      if (fileLevelMetadata != null)
+        fileLevelIds[i] = buffer.openFile(fileLevelMetadata.getFileName());
+    }
+  }
+
   private OHashIndexBucket.Entry<K, V>[] convertBucketToEntries(final OHashIndexBucket<K, V> bucket, int startIndex, int endIndex) {
     final OHashIndexBucket.Entry<K, V>[] entries = new OHashIndexBucket.Entry[endIndex - startIndex];
     final Iterator<OHashIndexBucket.Entry<K, V>> iterator = bucket.iterator(startIndex);
@@ -511,7 +594,8 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
       long pagePointer = loadPage(pageIndex, fileLevel);
       try {
-        OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer, directMemory, keySerializer, valueSerializer);
+        OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer, keySerializer, valueSerializer,
+            ODurablePage.TrackMode.NONE);
         while (bucket.size() == 0) {
           bucketPath = nextBucketToFind(bucketPath, bucket.getDepth());
           if (bucketPath == null)
@@ -524,7 +608,8 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
           pageIndex = getPageIndex(nextPointer);
 
           pagePointer = loadPage(pageIndex, fileLevel);
-          bucket = new OHashIndexBucket<K, V>(pagePointer, directMemory, keySerializer, valueSerializer);
+          bucket = new OHashIndexBucket<K, V>(pagePointer, keySerializer, valueSerializer,
+            ODurablePage.TrackMode.NONE);
         }
 
         final int index = bucket.getIndex(key);
@@ -557,7 +642,8 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
       long pageIndex = getPageIndex(bucketPointer);
       long pagePointer = loadPage(pageIndex, fileLevel);
       try {
-        OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer, directMemory, keySerializer, valueSerializer);
+        OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer, keySerializer, valueSerializer,
+            ODurablePage.TrackMode.NONE);
 
         while (bucket.size() == 0) {
           bucketPath = nextBucketToFind(bucketPath, bucket.getDepth());
@@ -571,7 +657,8 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
           pageIndex = getPageIndex(nextPointer);
 
           pagePointer = loadPage(pageIndex, fileLevel);
-          bucket = new OHashIndexBucket<K, V>(pagePointer, directMemory, keySerializer, valueSerializer);
+          bucket = new OHashIndexBucket<K, V>(pagePointer, keySerializer, valueSerializer,
+            ODurablePage.TrackMode.NONE);
         }
 
         return bucket.getEntry(0);
@@ -597,7 +684,8 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
       long pagePointer = loadPage(pageIndex, fileLevel);
       try {
-        OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer, directMemory, keySerializer, valueSerializer);
+        OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer, keySerializer, valueSerializer,
+            ODurablePage.TrackMode.NONE);
 
         while (bucket.size() == 0) {
           final BucketPath prevBucketPath = prevBucketToFind(bucketPath, bucket.getDepth());
@@ -611,7 +699,8 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
           pageIndex = getPageIndex(prevPointer);
 
           pagePointer = loadPage(pageIndex, fileLevel);
-          bucket = new OHashIndexBucket<K, V>(pagePointer, directMemory, keySerializer, valueSerializer);
+          bucket = new OHashIndexBucket<K, V>(pagePointer, keySerializer, valueSerializer,
+            ODurablePage.TrackMode.NONE);
 
           bucketPath = prevBucketPath;
         }
@@ -640,7 +729,8 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
       long pagePointer = loadPage(pageIndex, fileLevel);
       try {
-        OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer, directMemory, keySerializer, valueSerializer);
+        OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer, keySerializer, valueSerializer,
+            ODurablePage.TrackMode.NONE);
         while (bucket.size() == 0 || comparator.compare(bucket.getKey(0), key) >= 0) {
           final BucketPath prevBucketPath = prevBucketToFind(bucketPath, bucket.getDepth());
           if (prevBucketPath == null)
@@ -653,7 +743,8 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
           pageIndex = getPageIndex(prevPointer);
 
           pagePointer = loadPage(pageIndex, fileLevel);
-          bucket = new OHashIndexBucket<K, V>(pagePointer, directMemory, keySerializer, valueSerializer);
+          bucket = new OHashIndexBucket<K, V>(pagePointer, keySerializer, valueSerializer,
+            ODurablePage.TrackMode.NONE);
 
           bucketPath = prevBucketPath;
         }
@@ -689,7 +780,8 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
       long pagePointer = loadPage(pageIndex, fileLevel);
       try {
-        OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer, directMemory, keySerializer, valueSerializer);
+        OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer, keySerializer, valueSerializer,
+            ODurablePage.TrackMode.NONE);
         while (bucket.size() == 0) {
           final BucketPath prevBucketPath = prevBucketToFind(bucketPath, bucket.getDepth());
           if (prevBucketPath == null)
@@ -703,7 +795,8 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
           pageIndex = getPageIndex(prevPointer);
 
           pagePointer = loadPage(pageIndex, fileLevel);
-          bucket = new OHashIndexBucket<K, V>(pagePointer, directMemory, keySerializer, valueSerializer);
+          bucket = new OHashIndexBucket<K, V>(pagePointer, keySerializer, valueSerializer,
+            ODurablePage.TrackMode.NONE);
 
           bucketPath = prevBucketPath;
         }
@@ -835,6 +928,9 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
       for (long fileId : fileLevelIds)
         if (fileId > 0)
           buffer.renameFile(fileId, newName, name);
+
+      if (writeAheadLog != null)
+        buffer.renameFile(directoryFileId, newName, name);
     } catch (IOException ioe) {
       throw new OIndexException("Attempt of rename of hash table was failed", ioe);
     } finally {
@@ -854,6 +950,9 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
         if (filesMetadata[i] != null)
           buffer.closeFile(fileLevelIds[i]);
 
+      if (writeAheadLog != null)
+        buffer.closeFile(directoryFileId);
+
     } catch (IOException e) {
       throw new OIndexException("Error during hash table close", e);
     } finally {
@@ -869,6 +968,9 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
           buffer.deleteFile(fileLevelIds[i]);
       }
 
+      if (writeAheadLog != null)
+        buffer.deleteFile(directoryFileId);
+
       metadataStore.delete();
       treeStateStore.delete();
     } catch (IOException e) {
@@ -884,6 +986,8 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     final int hashMapSize = 1 << localNodeDepth;
 
     final long[] parentNode = hashTree[nodePath.parent.nodeIndex];
+    dirtyNodes.set(nodePath.parent.nodeIndex);
+
     for (int i = 0, k = startIndex; i < node.length; i += hashMapSize, k++) {
       parentNode[k] = node[i];
     }
@@ -970,7 +1074,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
     long buddyPagePointer = loadPage(buddyIndex, buddyLevel);
     try {
-      buddyBucket = new OHashIndexBucket<K, V>(buddyPagePointer, directMemory, keySerializer, valueSerializer);
+      buddyBucket = new OHashIndexBucket<K, V>(buddyPagePointer, keySerializer, valueSerializer, getTrackMode());
 
       if (buddyBucket.getDepth() != bucketDepth)
         return false;
@@ -988,13 +1092,15 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
       final long newBuddyPagePointer = loadPage(newBuddyIndex, newBuddyLevel);
       try {
         final OHashIndexBucket<K, V> newBuddyBucket = new OHashIndexBucket<K, V>(bucketDepth - 1, newBuddyPagePointer,
-            directMemory, keySerializer, valueSerializer);
+            keySerializer, valueSerializer, getTrackMode());
 
         for (OHashIndexBucket.Entry<K, V> entry : buddyBucket)
           newBuddyBucket.appendEntry(entry.key, entry.value);
 
         for (OHashIndexBucket.Entry<K, V> entry : bucket)
           newBuddyBucket.addEntry(entry.key, entry.value);
+
+        logBucketChanges(newBuddyBucket, newBuddyIndex, newBuddyLevel, false);
       } finally {
         buffer.markDirty(fileLevelIds[newBuddyLevel], newBuddyIndex);
         releasePage(newBuddyIndex, newBuddyLevel);
@@ -1019,6 +1125,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
           newTombstoneIndex = bucketIndex;
         } else {
           buddyBucket.setNextRemovedBucketPair(oldBuddyFileMetadata.getTombstoneIndex());
+          logBucketChanges(buddyBucket, buddyIndex, buddyLevel, false);
           buffer.markDirty(fileLevelIds[buddyLevel], buddyIndex);
 
           newTombstoneIndex = buddyIndex;
@@ -1046,6 +1153,9 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
         if (filesMetadata[i] != null)
           buffer.flushFile(fileLevelIds[i]);
 
+      if (writeAheadLog != null)
+        buffer.flushFile(directoryFileId);
+
     } catch (IOException e) {
       throw new OIndexException("Error during hash table flush", e);
     } finally {
@@ -1067,6 +1177,9 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
           return false;
       }
 
+      if (writeAheadLog != null && !buffer.wasSoftlyClosed(directoryFileId))
+        return false;
+
       return true;
     } catch (IOException ioe) {
       throw new OIndexException("Error during integrity check", ioe);
@@ -1085,6 +1198,9 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
         if (filesMetadata[i] != null)
           buffer.setSoftlyClosed(fileLevelIds[i], softlyClosed);
       }
+
+      if (writeAheadLog != null)
+        buffer.setSoftlyClosed(directoryFileId, softlyClosed);
     } catch (IOException ioe) {
       throw new OIndexException("Error during integrity check", ioe);
     } finally {
@@ -1110,16 +1226,19 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
       long pagePointer = loadPage(pageIndex, fileLevel);
 
       try {
-        final OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer, directMemory, keySerializer, valueSerializer);
+        final OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer, keySerializer, valueSerializer,
+            getTrackMode());
         final int index = bucket.getIndex(key);
 
         if (index > -1) {
           bucket.deleteEntry(index);
           size--;
+          logBucketChanges(bucket, pageIndex, fileLevel, false);
           markPageAsDirty(pageIndex, fileLevel);
         }
 
         if (bucket.addEntry(key, value)) {
+          logBucketChanges(bucket, pageIndex, fileLevel, false);
           markPageAsDirty(pageIndex, fileLevel);
 
           size++;
@@ -1203,6 +1322,8 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     final long[] parentNode = hashTree[bucketPath.parent.nodeIndex];
     assert assertParentNodeStartIndex(bucketPath, parentNode, startIndex);
 
+    dirtyNodes.set(bucketPath.parent.nodeIndex);
+
     final int pointersSize = 1 << (MAX_LEVEL_DEPTH - nodeLocalDepth);
     if (allLeftHashMapEquals) {
       for (int i = 0; i < pointersSize; i++) {
@@ -1231,6 +1352,8 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     if (parentPath == null)
       return;
 
+    dirtyNodes.set(parentPath.nodeIndex);
+
     final OHashTreeNodeMetadata metadata = nodesMetadata[parentPath.nodeIndex];
     if (parentPath.itemIndex < MAX_LEVEL_SIZE / 2) {
       final int maxChildDepth = metadata.getMaxLeftChildDepth();
@@ -1294,6 +1417,8 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     }
 
     final int newNodeIndex = addNewNode(newNode, newNodeDepth);
+    dirtyNodes.set(bucketPath.nodeIndex);
+
     final int mapSize = 1 << newNodeDepth;
     for (int i = 0; i < mapInterval; i++) {
       final int nodeOffset = i + newNodeStartIndex;
@@ -1373,6 +1498,8 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
       nodesMetadata[hashTreeTombstone] = new OHashTreeNodeMetadata((byte) 0, (byte) 0, (byte) nodeLocalDepth);
 
       final int nodeIndex = hashTreeTombstone;
+      dirtyNodes.set(nodeIndex);
+
       if (tombstone != null)
         hashTreeTombstone = (int) tombstone[0];
       else
@@ -1395,6 +1522,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
     hashTree[hashTreeSize] = newNode;
     nodesMetadata[hashTreeSize] = new OHashTreeNodeMetadata((byte) 0, (byte) 0, (byte) nodeLocalDepth);
+    dirtyNodes.set(hashTreeSize);
 
     hashTreeSize++;
 
@@ -1495,11 +1623,14 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
     nodesMetadata[bucketPath.nodeIndex].incrementLocalNodeDepth();
     hashTree[bucketPath.nodeIndex] = updatedNode;
+    dirtyNodes.set(bucketPath.nodeIndex);
 
     return new NodeSplitResult(newNode, allLeftItemsAreEqual, allRightItemsAreEqual);
   }
 
   private void deleteNode(int nodeIndex) {
+    dirtyNodes.set(nodeIndex);
+
     if (nodeIndex == hashTreeSize - 1) {
       hashTree[nodeIndex] = null;
       nodesMetadata[nodeIndex] = null;
@@ -1520,7 +1651,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
   }
 
   private void splitBucketContent(OHashIndexBucket<K, V> bucket, OHashIndexBucket<K, V> updatedBucket,
-      OHashIndexBucket<K, V> newBucket, int newBucketDepth) {
+      OHashIndexBucket<K, V> newBucket, int newBucketDepth) throws IOException {
     assert checkBucketDepth(bucket);
 
     for (OHashIndexBucket.Entry<K, V> entry : bucket) {
@@ -1556,8 +1687,8 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     if (tombstoneIndex >= 0) {
       final long tombstonePagePointer = loadPage(tombstoneIndex, newFileLevel);
       try {
-        final OHashIndexBucket<K, V> tombstone = new OHashIndexBucket<K, V>(tombstonePagePointer, directMemory, keySerializer,
-            valueSerializer);
+        final OHashIndexBucket<K, V> tombstone = new OHashIndexBucket<K, V>(tombstonePagePointer, keySerializer, valueSerializer,
+            ODurablePage.TrackMode.NONE);
         newFileMetadata.setTombstoneIndex(tombstone.getNextRemovedBucketPair());
 
         updatedBucketIndex = tombstoneIndex;
@@ -1574,9 +1705,9 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
       final long newBucketDataPointer = loadPage(newBucketIndex, newFileLevel);
       try {
         final OHashIndexBucket<K, V> updatedBucket = new OHashIndexBucket<K, V>(newBucketDepth, updatedBucketDataPointer,
-            directMemory, keySerializer, valueSerializer);
-        final OHashIndexBucket<K, V> newBucket = new OHashIndexBucket<K, V>(newBucketDepth, newBucketDataPointer, directMemory,
-            keySerializer, valueSerializer);
+            keySerializer, valueSerializer, getTrackMode());
+        final OHashIndexBucket<K, V> newBucket = new OHashIndexBucket<K, V>(newBucketDepth, newBucketDataPointer, keySerializer,
+            valueSerializer, getTrackMode());
 
         splitBucketContent(bucket, updatedBucket, newBucket, newBucketDepth);
 
@@ -1592,6 +1723,9 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
         newFileMetadata.setBucketsCount(newFileMetadata.getBucketsCount() + 2);
 
+        logBucketChanges(updatedBucket, updatedBucketIndex, newFileLevel, tombstoneIndex < 0);
+        logBucketChanges(newBucket, newBucketIndex, newFileLevel, tombstoneIndex < 0);
+
         final long updatedBucketPointer = createBucketPointer(updatedBucketIndex, newFileLevel);
         final long newBucketPointer = createBucketPointer(newBucketIndex, newFileLevel);
 
@@ -1628,9 +1762,10 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     final long node[] = hashTree[nodeIndex];
 
     final long position = node[itemIndex + offset];
-    if (position >= 0)
+    if (position >= 0) {
       node[itemIndex + offset] = newBucketPointer;
-    else {
+      dirtyNodes.set(nodeIndex);
+    } else {
       final int childNodeIndex = (int) ((position & Long.MAX_VALUE) >>> 8);
       final int childOffset = (int) (position & 0xFF);
       final int childNodeDepth = nodesMetadata[childNodeIndex].getNodeLocalDepth();
@@ -1645,8 +1780,9 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     for (long pageIndex = 0; pageIndex < MAX_LEVEL_SIZE; pageIndex++) {
       final long pagePointer = loadPage(pageIndex, 0);
       try {
-        final OHashIndexBucket<K, V> emptyBucket = new OHashIndexBucket<K, V>(MAX_LEVEL_DEPTH, pagePointer, directMemory,
-            keySerializer, valueSerializer);
+        final OHashIndexBucket<K, V> emptyBucket = new OHashIndexBucket<K, V>(MAX_LEVEL_DEPTH, pagePointer, keySerializer,
+            valueSerializer, getTrackMode());
+        logBucketChanges(emptyBucket, pageIndex, 0, true);
       } finally {
         markPageAsDirty(pageIndex, 0);
         releasePage(pageIndex, 0);
@@ -1663,6 +1799,8 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     nodesMetadata = new OHashTreeNodeMetadata[1];
     nodesMetadata[0] = new OHashTreeNodeMetadata((byte) 0, (byte) 0, (byte) MAX_LEVEL_DEPTH);
 
+    dirtyNodes.set(0);
+
     filesMetadata[0].setBucketsCount(MAX_LEVEL_SIZE);
 
     size = 0;
@@ -1693,6 +1831,156 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     return buffer.load(fileLevelIds[fileLevel], pageIndex);
   }
 
+  private ODurablePage.TrackMode getTrackMode() {
+    return writeAheadLog != null ? ODurablePage.TrackMode.BOTH : ODurablePage.TrackMode.NONE;
+  }
+
+  private void startOperation() throws IOException {
+    if (writeAheadLog == null)
+      return;
+
+    operationUnitId = OOperationUnitId.generateId();
+    startLSN = writeAheadLog.log(new OAtomicUnitStartRecord(true, operationUnitId));
+  }
+
+  private void endOperation() throws IOException {
+    if (writeAheadLog == null)
+      return;
+
+    writeAheadLog.log(new OAtomicUnitEndRecord(operationUnitId, false));
+
+    operationUnitId = null;
+    startLSN = null;
+  }
+
+  private void logBucketChanges(OHashIndexBucket<K, V> bucket, long pageIndex, int fileLevel, boolean isNewPage)
+      throws IOException {
+    logPageChanges(bucket, filesMetadata[fileLevel].getFileName(), pageIndex, isNewPage);
+  }
+
+  private void logPageChanges(ODurablePage page, String fileName, long pageIndex, boolean isNewPage) throws IOException {
+    if (writeAheadLog == null)
+      return;
+
+    final List<OPageDiff<?>> pageChanges = page.getPageChanges();
+    if (pageChanges.isEmpty())
+      return;
+
+    final OLogSequenceNumber prevLsn;
+    if (isNewPage)
+      prevLsn = startLSN;
+    else
+      prevLsn = page.getLsn();
+
+    final OLogSequenceNumber lsn = writeAheadLog.log(new OUpdateFilePageRecord(fileName, pageIndex, operationUnitId, pageChanges,
+        prevLsn));
+    page.setLsn(lsn);
+    pageChanges.clear();
+  }
+
+  /**
+   * Writes the state of the table and the nodes of the hash tree changed by the current operation to the durable copy of the
+   * directory.
+   */
+  private void saveDirectory() throws IOException {
+    if (writeAheadLog == null) {
+      dirtyNodes.clear();
+      return;
+    }
+
+    final String directoryFileName = name + directoryFileExtension;
+    final long filledUpTo = buffer.getFilledUpTo(directoryFileId);
+
+    final long statePointer = buffer.load(directoryFileId, 0);
+    try {
+      final OHashIndexDirectoryPage statePage = new OHashIndexDirectoryPage(statePointer, getTrackMode());
+
+      statePage.setRecordsCount(size);
+      statePage.setHashTreeSize(hashTreeSize);
+      statePage.setHashTreeTombstone(hashTreeTombstone);
+      statePage.setBucketTombstonePointer(bucketTombstonePointer);
+      statePage.setKeySerializerId(keySerializer.getId());
+      statePage.setValueSerializerId(valueSerializer.getId());
+
+      for (int i = 0; i < filesMetadata.length; i++)
+        statePage.setFileMetadata(i, filesMetadata[i]);
+
+      logPageChanges(statePage, directoryFileName, 0, filledUpTo == 0);
+      buffer.markDirty(directoryFileId, 0);
+    } finally {
+      buffer.release(directoryFileId, 0);
+    }
+
+    int nodeIndex = dirtyNodes.nextSetBit(0);
+    while (nodeIndex >= 0) {
+      final long pageIndex = 1 + nodeIndex / OHashIndexDirectoryPage.NODES_PER_PAGE;
+
+      final long pagePointer = buffer.load(directoryFileId, pageIndex);
+      try {
+        final OHashIndexDirectoryPage nodesPage = new OHashIndexDirectoryPage(pagePointer, getTrackMode());
+
+        do {
+          nodesPage.setNode(nodeIndex % OHashIndexDirectoryPage.NODES_PER_PAGE, hashTree[nodeIndex], nodesMetadata[nodeIndex]);
+          nodeIndex = dirtyNodes.nextSetBit(nodeIndex + 1);
+        } while (nodeIndex >= 0 && 1 + nodeIndex / OHashIndexDirectoryPage.NODES_PER_PAGE == pageIndex);
+
+        logPageChanges(nodesPage, directoryFileName, pageIndex, pageIndex >= filledUpTo);
+        buffer.markDirty(directoryFileId, pageIndex);
+      } finally {
+        buffer.release(directoryFileId, pageIndex);
+      }
+    }
+
+    dirtyNodes.clear();
+  }
+
+  private void loadDirectory() throws IOException {
+    final long statePointer = buffer.load(directoryFileId, 0);
+    try {
+      final OHashIndexDirectoryPage statePage = new OHashIndexDirectoryPage(statePointer, ODurablePage.TrackMode.NONE);
+
+      size = statePage.getRecordsCount();
+      hashTreeSize = statePage.getHashTreeSize();
+      hashTreeTombstone = statePage.getHashTreeTombstone();
+      bucketTombstonePointer = statePage.getBucketTombstonePointer();
+
+      keySerializer = (OBinarySerializer<K>) OBinarySerializerFactory.INSTANCE.getObjectSerializer(statePage.getKeySerializerId());
+      valueSerializer = (OBinarySerializer<V>) OBinarySerializerFactory.INSTANCE.getObjectSerializer(statePage
+          .getValueSerializerId());
+
+      for (int i = 0; i < filesMetadata.length; i++)
+        filesMetadata[i] = statePage.getFileMetadata(i, name + i + bucketFileExtension);
+    } finally {
+      buffer.release(directoryFileId, 0);
+    }
+
+    final int arraySize = Integer.bitCount(hashTreeSize) == 1 ? hashTreeSize : Integer.highestOneBit(hashTreeSize) << 1;
+
+    hashTree = new long[arraySize][];
+    nodesMetadata = new OHashTreeNodeMetadata[arraySize];
+
+    int nodeIndex = 0;
+    while (nodeIndex < hashTreeSize) {
+      final long pageIndex = 1 + nodeIndex / OHashIndexDirectoryPage.NODES_PER_PAGE;
+
+      final long pagePointer = buffer.load(directoryFileId, pageIndex);
+      try {
+        final OHashIndexDirectoryPage nodesPage = new OHashIndexDirectoryPage(pagePointer, ODurablePage.TrackMode.NONE);
+
+        do {
+          final int slot = nodeIndex % OHashIndexDirectoryPage.NODES_PER_PAGE;
+
+          hashTree[nodeIndex] = nodesPage.getNode(slot);
+          nodesMetadata[nodeIndex] = nodesPage.getNodeMetadata(slot);
+
+          nodeIndex++;
+        } while (nodeIndex < hashTreeSize && nodeIndex % OHashIndexDirectoryPage.NODES_PER_PAGE != 0);
+      } finally {
+        buffer.release(directoryFileId, pageIndex);
+      }
+    }
+  }
+
   private BucketPath getBucket(final long hashCode) {
     int localNodeDepth = nodesMetadata[0].getNodeLocalDepth();
     int nodeDepth = localNodeDepth;
@@ -23,12 +23,15 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.zip.CRC32;
 
 import com.orientechnologies.common.directmemory.ODirectMemory;
@@ -47,54 +50,47 @@ import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSe
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWriteAheadLog;
 
 /**
+ * 2Q disk cache. Pages are partitioned between segments by hash of file id and page index. Every segment has its own lock, 2Q
+ * queues and write queue, so page operations which belong to different segments do not contend with each other. Operations which
+ * work with the whole file lock all segments.
+ * 
  * @author Artem Loginov
  * @since 14.03.13
  */
 public class O2QCache implements ODiskCache {
-  public static final long                                     MAGIC_NUMBER = 0xFACB03FEL;
+  public static final long                    MAGIC_NUMBER     = 0xFACB03FEL;
 
-  public final int                                             writeQueueLength;
-
-  private int                                                  maxSize;
-  private int                                                  K_IN;
-  private int                                                  K_OUT;
-
-  private final int                                            pageSize;
+  /**
+   * Minimal amount of pages in single segment, smaller caches are not partitioned to keep 2Q eviction policy effective.
+   */
+  static final int                            MIN_SEGMENT_SIZE = 1024;
 
-  private LRUList                                              am;
-  private LRUList                                              a1out;
-  private LRUList                                              a1in;
+  public final int                            writeQueueLength;
 
-  private final ODirectMemory                                  directMemory;
+  private final int                           pageSize;
 
-  private final Map<Long, OFileClassic>                        files;
+  private final Segment[]                     segments;
+  private final int                           segmentMask;
 
-  /**
-   * List of pages which were flushed out of the buffer but were not written to the disk.
-   */
-  private final Map<FileLockKey, Long>                         evictedPages;
+  private final ODirectMemory                 directMemory;
 
-  /**
-   * Contains all pages in cache for given file, not only dirty onces.
-   */
-  private final Map<Long, Set<Long>>                           filePages;
-
-  /**
-   * Keys is a file id. Values is a sorted set of dirty pages.
-   */
-  private final Map<Long, SortedMap<Long, OLogSequenceNumber>> dirtyPages;
+  private final ConcurrentMap<Long, OFileClassic> files;
 
-  private final Object                                         syncObject;
-  private final OStorageLocalAbstract                          storageLocal;
+  private final OStorageLocalAbstract         storageLocal;
 
-  private final OWriteAheadLog                                 writeAheadLog;
+  private final OWriteAheadLog                writeAheadLog;
 
-  private final boolean                                        syncOnPageFlush;
-  private long                                                 fileCounter  = 1;
-  private int                                                  crcOffset;
+  private final boolean                       syncOnPageFlush;
+  private long                                fileCounter      = 1;
 
   public O2QCache(long maxMemory, int writeQueueLength, ODirectMemory directMemory, OWriteAheadLog writeAheadLog, int pageSize,
       OStorageLocalAbstract storageLocal, boolean syncOnPageFlush) {
+    this(maxMemory, writeQueueLength, directMemory, writeAheadLog, pageSize, storageLocal, syncOnPageFlush,
+        OGlobalConfiguration.DISK_CACHE_CONCURRENCY_LEVEL.getValueAsInteger());
+  }
+
+  public O2QCache(long maxMemory, int writeQueueLength, ODirectMemory directMemory, OWriteAheadLog writeAheadLog, int pageSize,
+      OStorageLocalAbstract storageLocal, boolean syncOnPageFlush, int concurrencyLevel) {
 
     this.writeQueueLength = writeQueueLength;
     this.writeAheadLog = writeAheadLog;
@@ -102,44 +98,48 @@ public class O2QCache implements ODiskCache {
     this.pageSize = pageSize;
     this.storageLocal = storageLocal;
     this.syncOnPageFlush = syncOnPageFlush;
-    this.files = new HashMap<Long, OFileClassic>();
-    this.filePages = new HashMap<Long, Set<Long>>();
-    this.dirtyPages = new HashMap<Long, SortedMap<Long, OLogSequenceNumber>>();
+    this.files = new ConcurrentHashMap<Long, OFileClassic>();
 
-    this.evictedPages = new HashMap<FileLockKey, Long>();
-
-    long tmpMaxSize = maxMemory / pageSize;
+    final long tmpMaxSize = maxMemory / pageSize;
+    final int maxSize;
     if (tmpMaxSize >= Integer.MAX_VALUE) {
       maxSize = Integer.MAX_VALUE;
     } else {
       maxSize = (int) tmpMaxSize;
     }
 
-    K_IN = maxSize >> 2;
-    K_OUT = maxSize >> 1;
+    int segmentsCount = 1;
+    while (segmentsCount < concurrencyLevel && maxSize / (segmentsCount << 1) >= MIN_SEGMENT_SIZE)
+      segmentsCount <<= 1;
 
-    am = new LRUList();
-    a1out = new LRUList();
-    a1in = new LRUList();
+    segments = new Segment[segmentsCount];
+    segmentMask = segmentsCount - 1;
 
-    syncObject = new Object();
+    final int segmentWriteQueueLength = Math.max(1, writeQueueLength / segmentsCount);
+    for (int i = 0; i < segmentsCount; i++)
+      segments[i] = new Segment(maxSize / segmentsCount, segmentWriteQueueLength);
   }
 
   LRUList getAm() {
-    return am;
+    return segments[0].am;
   }
 
   LRUList getA1out() {
-    return a1out;
+    return segments[0].a1out;
   }
 
   LRUList getA1in() {
-    return a1in;
+    return segments[0].a1in;
+  }
+
+  int getSegmentsCount() {
+    return segments.length;
   }
 
   @Override
   public long openFile(String fileName) throws IOException {
-    synchronized (syncObject) {
+    lockAllSegments();
+    try {
       long fileId = fileCounter++;
 
       OFileClassic fileClassic = new OFileClassic();
@@ -153,42 +153,36 @@ public class O2QCache implements ODiskCache {
 
       files.put(fileId, fileClassic);
 
-      filePages.put(fileId, new HashSet<Long>());
-      dirtyPages.put(fileId, new TreeMap<Long, OLogSequenceNumber>());
-
       return fileId;
+    } finally {
+      unlockAllSegments();
     }
   }
 
   @Override
   public void markDirty(long fileId, long pageIndex) {
-    synchronized (syncObject) {
-      LRUEntry lruEntry = a1in.get(fileId, pageIndex);
+    final Segment segment = segment(fileId, pageIndex);
+
+    segment.lock.lock();
+    try {
+      LRUEntry lruEntry = segment.a1in.get(fileId, pageIndex);
 
       if (lruEntry != null) {
-        doMarkDirty(fileId, pageIndex, lruEntry);
+        segment.doMarkDirty(fileId, pageIndex, lruEntry);
         return;
       }
 
-      lruEntry = am.get(fileId, pageIndex);
+      lruEntry = segment.am.get(fileId, pageIndex);
       if (lruEntry != null) {
-        doMarkDirty(fileId, pageIndex, lruEntry);
+        segment.doMarkDirty(fileId, pageIndex, lruEntry);
       } else
         throw new IllegalStateException("Requested page number " + pageIndex + " for file " + files.get(fileId).getName()
             + " is not in cache");
+    } finally {
+      segment.lock.unlock();
     }
   }
 
-  private void doMarkDirty(long fileId, long pageIndex, LRUEntry lruEntry) {
-    if (lruEntry.isDirty)
-      return;
-
-    assert pageIndex >= 0;
-
-    dirtyPages.get(fileId).put(pageIndex, lruEntry.loadedLSN);
-    lruEntry.isDirty = true;
-  }
-
   private OLogSequenceNumber getLogSequenceNumberFromPage(long dataPointer) {
     final long position = OLongSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, dataPointer
         + OLongSerializer.LONG_SIZE + (2 * OIntegerSerializer.INT_SIZE));
@@ -200,62 +194,53 @@ public class O2QCache implements ODiskCache {
 
   @Override
   public long load(long fileId, long pageIndex) throws IOException {
-    synchronized (syncObject) {
-      final LRUEntry lruEntry = updateCache(fileId, pageIndex);
+    final Segment segment = segment(fileId, pageIndex);
+
+    segment.lock.lock();
+    try {
+      final LRUEntry lruEntry = segment.updateCache(fileId, pageIndex);
       lruEntry.usageCounter++;
       return lruEntry.dataPointer;
+    } finally {
+      segment.lock.unlock();
     }
   }
 
   @Override
   public void release(long fileId, long pageIndex) {
-    synchronized (syncObject) {
-      LRUEntry lruEntry = get(fileId, pageIndex, false);
+    final Segment segment = segment(fileId, pageIndex);
+
+    segment.lock.lock();
+    try {
+      LRUEntry lruEntry = segment.get(fileId, pageIndex, false);
       if (lruEntry != null)
         lruEntry.usageCounter--;
       else
         throw new IllegalStateException("record should be released is already free!");
+    } finally {
+      segment.lock.unlock();
     }
   }
 
   @Override
   public long getFilledUpTo(long fileId) throws IOException {
-    synchronized (syncObject) {
-      return files.get(fileId).getFilledUpTo() / pageSize;
-    }
+    return files.get(fileId).getFilledUpTo() / pageSize;
   }
 
   @Override
   public void flushFile(long fileId) throws IOException {
-    synchronized (syncObject) {
+    lockAllSegments();
+    try {
       final OFileClassic fileClassic = files.get(fileId);
       if (fileClassic == null || !fileClassic.isOpen())
         return;
 
-      final SortedMap<Long, OLogSequenceNumber> dirtyPages = this.dirtyPages.get(fileId);
-
-      for (Iterator<Long> iterator = dirtyPages.keySet().iterator(); iterator.hasNext();) {
-        Long pageIndex = iterator.next();
-        LRUEntry lruEntry = get(fileId, pageIndex, false);
-
-        if (lruEntry == null) {
-          final Long dataPointer = evictedPages.remove(new FileLockKey(fileId, pageIndex));
-          if (dataPointer != null) {
-            flushData(fileId, pageIndex, dataPointer);
-            iterator.remove();
-          }
-        } else {
-          if (lruEntry.usageCounter == 0) {
-            flushData(fileId, lruEntry.pageIndex, lruEntry.dataPointer);
-            iterator.remove();
-            lruEntry.isDirty = false;
-          } else {
-            throw new OBlockedPageException("Unable to perform flush file because some pages is in use.");
-          }
-        }
-      }
+      for (long pageIndex : sortedPageIndexes(fileId, true))
+        segment(fileId, pageIndex).flushPage(fileId, pageIndex);
 
       fileClassic.synch();
+    } finally {
+      unlockAllSegments();
     }
   }
 
@@ -266,55 +251,28 @@ public class O2QCache implements ODiskCache {
 
   @Override
   public void closeFile(long fileId, boolean flush) throws IOException {
-    synchronized (syncObject) {
+    lockAllSegments();
+    try {
       OFileClassic fileClassic = files.get(fileId);
       if (fileClassic == null || !fileClassic.isOpen())
         return;
 
-      final Set<Long> pageIndexes = filePages.get(fileId);
-      Long[] sortedPageIndexes = new Long[pageIndexes.size()];
-      sortedPageIndexes = pageIndexes.toArray(sortedPageIndexes);
-      Arrays.sort(sortedPageIndexes);
-
-      final SortedMap<Long, OLogSequenceNumber> fileDirtyPages = dirtyPages.get(fileId);
-
-      for (Long pageIndex : sortedPageIndexes) {
-        LRUEntry lruEntry = get(fileId, pageIndex, true);
-        if (lruEntry != null) {
-          if (lruEntry.usageCounter == 0) {
-            lruEntry = remove(fileId, pageIndex);
-
-            fileDirtyPages.remove(pageIndex);
+      for (long pageIndex : sortedPageIndexes(fileId, false))
+        segment(fileId, pageIndex).closePage(fileId, pageIndex, flush);
 
-            if (lruEntry.dataPointer != ODirectMemory.NULL_POINTER) {
-              if (flush)
-                flushData(fileId, pageIndex, lruEntry.dataPointer);
-
-              directMemory.free(lruEntry.dataPointer);
-            }
-          } else
-            throw new OStorageException("Page with index " + pageIndex + " for file with id " + fileId
-                + "can not be freed because it is used.");
+      for (Segment segment : segments)
+        segment.getFilePages(fileId).clear();
 
-        } else {
-          Long dataPointer = evictedPages.remove(new FileLockKey(fileId, pageIndex));
-          if (dataPointer != null) {
-            if (flush)
-              flushData(fileId, pageIndex, dataPointer);
-
-            fileDirtyPages.remove(pageIndex);
-          }
-        }
-      }
-
-      pageIndexes.clear();
       fileClassic.close();
+    } finally {
+      unlockAllSegments();
     }
   }
 
   @Override
   public void deleteFile(long fileId) throws IOException {
-    synchronized (syncObject) {
+    lockAllSegments();
+    try {
       if (!files.containsKey(fileId))
         return;
 
@@ -324,46 +282,32 @@ public class O2QCache implements ODiskCache {
       files.get(fileId).delete();
 
       files.remove(fileId);
-      filePages.remove(fileId);
-      dirtyPages.remove(fileId);
+      for (Segment segment : segments) {
+        segment.filePages.remove(fileId);
+        segment.dirtyPages.remove(fileId);
+      }
+    } finally {
+      unlockAllSegments();
     }
   }
 
   @Override
   public void truncateFile(long fileId) throws IOException {
-    synchronized (syncObject) {
-      final Set<Long> pageEntries = filePages.get(fileId);
-      for (Long pageIndex : pageEntries) {
-        LRUEntry lruEntry = get(fileId, pageIndex, true);
-        if (lruEntry != null) {
-          if (lruEntry.usageCounter == 0) {
-            lruEntry = remove(fileId, pageIndex);
-            if (lruEntry.dataPointer != ODirectMemory.NULL_POINTER)
-              directMemory.free(lruEntry.dataPointer);
-          }
-        } else {
-          Long dataPointer = evictedPages.remove(new FileLockKey(fileId, pageIndex));
-          if (dataPointer != null)
-            directMemory.free(dataPointer);
-        }
-      }
-
-      SortedMap<Long, OLogSequenceNumber> fileDirtyPages = dirtyPages.get(fileId);
-      for (long pageIndex : fileDirtyPages.keySet()) {
-        Long dataPointer = evictedPages.remove(new FileLockKey(fileId, pageIndex));
-        if (dataPointer != null)
-          directMemory.free(dataPointer);
-      }
+    lockAllSegments();
+    try {
+      for (Segment segment : segments)
+        segment.truncateFile(fileId);
 
-      pageEntries.clear();
-			fileDirtyPages.clear();
       files.get(fileId).shrink(0);
+    } finally {
+      unlockAllSegments();
     }
   }
 
   @Override
   public void renameFile(long fileId, String oldFileName, String newFileName) throws IOException {
-    synchronized (syncObject) {
+    lockAllSegments();
+    try {
       if (!files.containsKey(fileId))
         return;
 
@@ -378,35 +322,39 @@ public class O2QCache implements ODiskCache {
           renamed = file.renameTo(newFile);
         }
       }
+    } finally {
+      unlockAllSegments();
     }
   }
 
   @Override
   public void flushBuffer() throws IOException {
-    synchronized (syncObject) {
+    lockAllSegments();
+    try {
       for (long fileId : files.keySet())
         flushFile(fileId);
+    } finally {
+      unlockAllSegments();
     }
   }
 
   @Override
   public void clear() throws IOException {
-    synchronized (syncObject) {
+    lockAllSegments();
+    try {
       flushBuffer();
 
-      am.clear();
-      a1in.clear();
-      a1out.clear();
-      for (Set<Long> fileEntries : filePages.values())
-        fileEntries.clear();
-      for (SortedMap<Long, OLogSequenceNumber> fileDirtyPages : dirtyPages.values())
-        fileDirtyPages.clear();
+      for (Segment segment : segments)
+        segment.clear();
+    } finally {
+      unlockAllSegments();
     }
   }
 
   @Override
   public void close() throws IOException {
-    synchronized (syncObject) {
+    lockAllSegments();
+    try {
       clear();
       for (OFileClassic fileClassic : files.values()) {
         if (fileClassic.isOpen()) {
@@ -414,165 +362,73 @@ public class O2QCache implements ODiskCache {
           fileClassic.close();
         }
       }
+    } finally {
+      unlockAllSegments();
     }
-
   }
 
   @Override
   public boolean wasSoftlyClosed(long fileId) throws IOException {
-    synchronized (syncObject) {
-      OFileClassic fileClassic = files.get(fileId);
-      if (fileClassic == null)
-        return false;
-
-      return fileClassic.wasSoftlyClosed();
-    }
+    OFileClassic fileClassic = files.get(fileId);
+    if (fileClassic == null)
+      return false;
 
+    return fileClassic.wasSoftlyClosed();
   }
 
   @Override
   public void setSoftlyClosed(long fileId, boolean softlyClosed) throws IOException {
-    synchronized (syncObject) {
-      OFileClassic fileClassic = files.get(fileId);
-      if (fileClassic != null)
-        fileClassic.setSoftlyClosed(softlyClosed);
-    }
+    OFileClassic fileClassic = files.get(fileId);
+    if (fileClassic != null)
+      fileClassic.setSoftlyClosed(softlyClosed);
   }
 
   @Override
   public boolean isOpen(long fileId) {
-    synchronized (syncObject) {
-      OFileClassic fileClassic = files.get(fileId);
-      if (fileClassic != null)
-        return fileClassic.isOpen();
-    }
+    OFileClassic fileClassic = files.get(fileId);
+    if (fileClassic != null)
+      return fileClassic.isOpen();
 
     return false;
   }
 
-  private LRUEntry updateCache(long fileId, long pageIndex) throws IOException {
-    LRUEntry lruEntry = am.get(fileId, pageIndex);
-    if (lruEntry != null) {
-      lruEntry = am.putToMRU(fileId, pageIndex, lruEntry.dataPointer, lruEntry.isDirty, lruEntry.loadedLSN);
+  private Segment segment(long fileId, long pageIndex) {
+    if (segmentMask == 0)
+      return segments[0];
 
-      return lruEntry;
-    }
-
-    lruEntry = a1out.remove(fileId, pageIndex);
-    if (lruEntry != null) {
-      removeColdestPageIfNeeded();
-
-      CacheResult cacheResult = cacheFileContent(fileId, pageIndex);
-      lruEntry.dataPointer = cacheResult.dataPointer;
-      lruEntry.isDirty = cacheResult.isDirty;
+    long hash = fileId * 0x9E3779B97F4A7C15L + pageIndex;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
 
-      OLogSequenceNumber lsn;
-      if (cacheResult.isDirty)
-        lsn = dirtyPages.get(fileId).get(pageIndex);
-      else
-        lsn = getLogSequenceNumberFromPage(cacheResult.dataPointer);
-
-      lruEntry = am.putToMRU(fileId, pageIndex, lruEntry.dataPointer, lruEntry.isDirty, lsn);
-      return lruEntry;
-    }
-
-    lruEntry = a1in.get(fileId, pageIndex);
-    if (lruEntry != null)
-      return lruEntry;
-
-    removeColdestPageIfNeeded();
-
-    CacheResult cacheResult = cacheFileContent(fileId, pageIndex);
-    OLogSequenceNumber lsn;
-    if (cacheResult.isDirty)
-      lsn = dirtyPages.get(fileId).get(pageIndex);
-    else
-      lsn = getLogSequenceNumberFromPage(cacheResult.dataPointer);
-
-    lruEntry = a1in.putToMRU(fileId, pageIndex, cacheResult.dataPointer, cacheResult.isDirty, lsn);
-
-    filePages.get(fileId).add(pageIndex);
-
-    return lruEntry;
+    return segments[(int) (hash & segmentMask)];
   }
 
-  private void removeColdestPageIfNeeded() throws IOException {
-    if (am.size() + a1in.size() >= maxSize) {
-      if (a1in.size() > K_IN) {
-        LRUEntry removedFromAInEntry = a1in.removeLRU();
-        if (removedFromAInEntry == null) {
-          increaseCacheSize();
-        } else {
-          assert removedFromAInEntry.usageCounter == 0;
-          evictFileContent(removedFromAInEntry.fileId, removedFromAInEntry.pageIndex, removedFromAInEntry.dataPointer,
-              removedFromAInEntry.isDirty);
-
-          a1out.putToMRU(removedFromAInEntry.fileId, removedFromAInEntry.pageIndex, ODirectMemory.NULL_POINTER, false, null);
-        }
-        if (a1out.size() > K_OUT) {
-          LRUEntry removedEntry = a1out.removeLRU();
-          assert removedEntry.usageCounter == 0;
-          Set<Long> pageEntries = filePages.get(removedEntry.fileId);
-          pageEntries.remove(removedEntry.pageIndex);
-        }
-      } else {
-        LRUEntry removedEntry = am.removeLRU();
-        if (removedEntry == null) {
-          increaseCacheSize();
-        } else {
-          assert removedEntry.usageCounter == 0;
-          evictFileContent(removedEntry.fileId, removedEntry.pageIndex, removedEntry.dataPointer, removedEntry.isDirty);
-          Set<Long> pageEntries = filePages.get(removedEntry.fileId);
-          pageEntries.remove(removedEntry.pageIndex);
-        }
-      }
-    }
+  private void lockAllSegments() {
+    for (Segment segment : segments)
+      segment.lock.lock();
   }
 
-  private void increaseCacheSize() {
-    String message = "All records in aIn queue in 2q cache are used!";
-    OLogManager.instance().warn(this, message);
-    if (OGlobalConfiguration.SERVER_CACHE_2Q_INCREASE_ON_DEMAND.getValueAsBoolean()) {
-      OLogManager.instance().warn(this, "Cache size will be increased.");
-      maxSize = (int) Math.ceil(maxSize * (1 + OGlobalConfiguration.SERVER_CACHE_2Q_INCREASE_STEP.getValueAsFloat()));
-      K_IN = maxSize >> 2;
-      K_OUT = maxSize >> 1;
-    } else {
-      throw new OAllLRUListEntriesAreUsedException(message);
-    }
+  private void unlockAllSegments() {
+    for (int i = segments.length - 1; i >= 0; i--)
+      segments[i].lock.unlock();
   }
 
-  private CacheResult cacheFileContent(long fileId, long pageIndex) throws IOException {
-    FileLockKey key = new FileLockKey(fileId, pageIndex);
-    if (evictedPages.containsKey(key))
-      return new CacheResult(true, evictedPages.remove(key));
+  /**
+   * Collects indexes of pages of given file from all segments, pages are sorted to write them sequentially. Should be called when
+   * all segments are locked.
+   */
+  private Set<Long> sortedPageIndexes(long fileId, boolean dirtyOnly) {
+    final Set<Long> pageIndexes = new TreeSet<Long>();
 
-    final OFileClassic fileClassic = files.get(fileId);
-    final long startPosition = pageIndex * pageSize;
-    final long endPosition = startPosition + pageSize;
-
-    byte[] content = new byte[pageSize];
-    long dataPointer;
-    if (fileClassic.getFilledUpTo() >= endPosition) {
-      fileClassic.read(startPosition, content, content.length);
-      dataPointer = directMemory.allocate(content);
-    } else {
-      fileClassic.allocateSpace((int) (endPosition - fileClassic.getFilledUpTo()));
-      dataPointer = directMemory.allocate(content);
+    for (Segment segment : segments) {
+      if (dirtyOnly)
+        pageIndexes.addAll(segment.getDirtyPages(fileId).keySet());
+      else
+        pageIndexes.addAll(segment.getFilePages(fileId));
     }
 
-    return new CacheResult(false, dataPointer);
-  }
-
-  private void evictFileContent(long fileId, long pageIndex, long dataPointer, boolean isDirty) throws IOException {
-    if (isDirty) {
-      if (evictedPages.size() >= writeQueueLength)
-        flushEvictedPages();
-
-      evictedPages.put(new FileLockKey(fileId, pageIndex), dataPointer);
-    } else {
-      directMemory.free(dataPointer);
-    }
+    return pageIndexes;
   }
 
   private void flushData(final long fileId, final long pageIndex, final long dataPointer) throws IOException {
@@ -602,7 +458,8 @@ public class O2QCache implements ODiskCache {
     final int notificationTimeOut = 5000;
     final List<OPageDataVerificationError> errors = new ArrayList<OPageDataVerificationError>();
 
-    synchronized (syncObject) {
+    lockAllSegments();
+    try {
       for (long fileId : files.keySet()) {
 
         OFileClassic fileClassic = files.get(fileId);
@@ -679,116 +536,427 @@ public class O2QCache implements ODiskCache {
       }
 
       return errors.toArray(new OPageDataVerificationError[errors.size()]);
+    } finally {
+      unlockAllSegments();
     }
   }
 
   @Override
   public Set<ODirtyPage> logDirtyPagesTable() throws IOException {
-    synchronized (syncObject) {
+    lockAllSegments();
+    try {
       if (writeAheadLog == null)
         return Collections.emptySet();
 
-      Set<ODirtyPage> logDirtyPages = new HashSet<ODirtyPage>(dirtyPages.size());
-      for (long fileId : dirtyPages.keySet()) {
-        SortedMap<Long, OLogSequenceNumber> pages = dirtyPages.get(fileId);
-        for (Map.Entry<Long, OLogSequenceNumber> pageEntry : pages.entrySet()) {
-          final ODirtyPage logDirtyPage = new ODirtyPage(files.get(fileId).getName(), pageEntry.getKey(), pageEntry.getValue());
-          logDirtyPages.add(logDirtyPage);
+      Set<ODirtyPage> logDirtyPages = new HashSet<ODirtyPage>();
+      for (Segment segment : segments) {
+        for (Map.Entry<Long, SortedMap<Long, OLogSequenceNumber>> fileEntry : segment.dirtyPages.entrySet()) {
+          final long fileId = fileEntry.getKey();
+          for (Map.Entry<Long, OLogSequenceNumber> pageEntry : fileEntry.getValue().entrySet()) {
+            final ODirtyPage logDirtyPage = new ODirtyPage(files.get(fileId).getName(), pageEntry.getKey(), pageEntry.getValue());
+            logDirtyPages.add(logDirtyPage);
+          }
         }
       }
 
       writeAheadLog.logDirtyPages(logDirtyPages);
       return logDirtyPages;
+    } finally {
+      unlockAllSegments();
     }
   }
 
   @Override
   public void forceSyncStoredChanges() throws IOException {
-    synchronized (syncObject) {
+    lockAllSegments();
+    try {
       for (OFileClassic fileClassic : files.values())
         fileClassic.synch();
+    } finally {
+      unlockAllSegments();
     }
   }
 
-  private void flushEvictedPages() throws IOException {
-    @SuppressWarnings("unchecked")
-    Map.Entry<FileLockKey, Long>[] sortedPages = evictedPages.entrySet().toArray(new Map.Entry[evictedPages.size()]);
-    Arrays.sort(sortedPages, new Comparator<Map.Entry>() {
-      @Override
-      public int compare(Map.Entry entryOne, Map.Entry entryTwo) {
-        FileLockKey fileLockKeyOne = (FileLockKey) entryOne.getKey();
-        FileLockKey fileLockKeyTwo = (FileLockKey) entryTwo.getKey();
-        return fileLockKeyOne.compareTo(fileLockKeyTwo);
+  int getMaxSize() {
+    int maxSize = 0;
+    for (Segment segment : segments)
+      maxSize += segment.maxSize;
+
+    return maxSize;
+  }
+
+  private int calculatePageCrc(byte[] pageData) {
+    int systemSize = OLongSerializer.LONG_SIZE + OIntegerSerializer.INT_SIZE;
+
+    final CRC32 crc32 = new CRC32();
+    crc32.update(pageData, systemSize, pageData.length - systemSize);
+
+    return (int) crc32.getValue();
+  }
+
+  /**
+   * Part of the cache which contains pages with the same hash of file id and page index. All fields are accessed under segment
+   * lock.
+   */
+  private final class Segment {
+    private final ReentrantLock                                  lock = new ReentrantLock();
+
+    private int                                                  maxSize;
+    private int                                                  K_IN;
+    private int                                                  K_OUT;
+
+    private final int                                            writeQueueLength;
+
+    private final LRUList                                        am;
+    private final LRUList                                        a1out;
+    private final LRUList                                        a1in;
+
+    /**
+     * List of pages which were flushed out of the buffer but were not written to the disk.
+     */
+    private final Map<FileLockKey, Long>                         evictedPages;
+
+    /**
+     * Contains all pages of segment in cache for given file, not only dirty onces.
+     */
+    private final Map<Long, Set<Long>>                           filePages;
+
+    /**
+     * Keys is a file id. Values is a sorted set of dirty pages of segment.
+     */
+    private final Map<Long, SortedMap<Long, OLogSequenceNumber>> dirtyPages;
+
+    private Segment(int maxSize, int writeQueueLength) {
+      this.maxSize = maxSize;
+      this.writeQueueLength = writeQueueLength;
+
+      K_IN = maxSize >> 2;
+      K_OUT = maxSize >> 1;
+
+      am = new LRUList();
+      a1out = new LRUList();
+      a1in = new LRUList();
+
+      evictedPages = new HashMap<FileLockKey, Long>();
+      filePages = new HashMap<Long, Set<Long>>();
+      dirtyPages = new HashMap<Long, SortedMap<Long, OLogSequenceNumber>>();
+    }
+
+    private Set<Long> getFilePages(long fileId) {
+      Set<Long> pages = filePages.get(fileId);
+      if (pages == null) {
+        pages = new HashSet<Long>();
+        filePages.put(fileId, pages);
       }
-    });
 
-    for (Map.Entry<FileLockKey, Long> entry : sortedPages) {
-      long evictedDataPointer = entry.getValue();
-      FileLockKey fileLockKey = entry.getKey();
+      return pages;
+    }
 
-      flushData(fileLockKey.fileId, fileLockKey.pageIndex, evictedDataPointer);
-      dirtyPages.get(fileLockKey.fileId).remove(fileLockKey.pageIndex);
+    private SortedMap<Long, OLogSequenceNumber> getDirtyPages(long fileId) {
+      SortedMap<Long, OLogSequenceNumber> pages = dirtyPages.get(fileId);
+      if (pages == null) {
+        pages = new TreeMap<Long, OLogSequenceNumber>();
+        dirtyPages.put(fileId, pages);
+      }
 
-      directMemory.free(evictedDataPointer);
+      return pages;
     }
 
-    evictedPages.clear();
-  }
+    private void doMarkDirty(long fileId, long pageIndex, LRUEntry lruEntry) {
+      if (lruEntry.isDirty)
+        return;
 
-  int getMaxSize() {
-    return maxSize;
-  }
+      assert pageIndex >= 0;
 
-  private static class CacheResult {
-    private final boolean isDirty;
-    private final long    dataPointer;
+      getDirtyPages(fileId).put(pageIndex, lruEntry.loadedLSN);
+      lruEntry.isDirty = true;
+    }
 
-    private CacheResult(boolean dirty, long dataPointer) {
-      isDirty = dirty;
-      this.dataPointer = dataPointer;
+    private void flushPage(long fileId, long pageIndex) throws IOException {
+      LRUEntry lruEntry = get(fileId, pageIndex, false);
+
+      if (lruEntry == null) {
+        final Long dataPointer = evictedPages.remove(new FileLockKey(fileId, pageIndex));
+        if (dataPointer != null) {
+          flushData(fileId, pageIndex, dataPointer);
+          getDirtyPages(fileId).remove(pageIndex);
+        }
+      } else {
+        if (lruEntry.usageCounter == 0) {
+          flushData(fileId, lruEntry.pageIndex, lruEntry.dataPointer);
+          getDirtyPages(fileId).remove(pageIndex);
+          lruEntry.isDirty = false;
+        } else {
+          throw new OBlockedPageException("Unable to perform flush file because some pages is in use.");
+        }
+      }
     }
-  }
 
-  private LRUEntry get(long fileId, long pageIndex, boolean useOutQueue) {
-    LRUEntry lruEntry = am.get(fileId, pageIndex);
+    private void closePage(long fileId, long pageIndex, boolean flush) throws IOException {
+      final SortedMap<Long, OLogSequenceNumber> fileDirtyPages = getDirtyPages(fileId);
 
-    if (lruEntry != null)
-      return lruEntry;
+      LRUEntry lruEntry = get(fileId, pageIndex, true);
+      if (lruEntry != null) {
+        if (lruEntry.usageCounter == 0) {
+          lruEntry = remove(fileId, pageIndex);
+
+          fileDirtyPages.remove(pageIndex);
+
+          if (lruEntry.dataPointer != ODirectMemory.NULL_POINTER) {
+            if (flush)
+              flushData(fileId, pageIndex, lruEntry.dataPointer);
+
+            directMemory.free(lruEntry.dataPointer);
+          }
+        } else
+          throw new OStorageException("Page with index " + pageIndex + " for file with id " + fileId
+              + "can not be freed because it is used.");
+
+      } else {
+        Long dataPointer = evictedPages.remove(new FileLockKey(fileId, pageIndex));
+        if (dataPointer != null) {
+          if (flush)
+            flushData(fileId, pageIndex, dataPointer);
+
+          fileDirtyPages.remove(pageIndex);
+        }
+      }
+    }
+
+    private void truncateFile(long fileId) {
+      final Set<Long> pageEntries = getFilePages(fileId);
+      for (Long pageIndex : pageEntries) {
+        LRUEntry lruEntry = get(fileId, pageIndex, true);
+        if (lruEntry != null) {
+          if (lruEntry.usageCounter == 0) {
+            lruEntry = remove(fileId, pageIndex);
+            if (lruEntry.dataPointer != ODirectMemory.NULL_POINTER)
+              directMemory.free(lruEntry.dataPointer);
+          }
+        } else {
+          Long dataPointer = evictedPages.remove(new FileLockKey(fileId, pageIndex));
+          if (dataPointer != null)
+            directMemory.free(dataPointer);
+        }
+      }
+
+      SortedMap<Long, OLogSequenceNumber> fileDirtyPages = getDirtyPages(fileId);
+      for (long pageIndex : fileDirtyPages.keySet()) {
+        Long dataPointer = evictedPages.remove(new FileLockKey(fileId, pageIndex));
+        if (dataPointer != null)
+          directMemory.free(dataPointer);
+      }
+
+      pageEntries.clear();
+      fileDirtyPages.clear();
+    }
+
+    private void clear() {
+      am.clear();
+      a1in.clear();
+      a1out.clear();
+      for (Set<Long> fileEntries : filePages.values())
+        fileEntries.clear();
+      for (SortedMap<Long, OLogSequenceNumber> fileDirtyPages : dirtyPages.values())
+        fileDirtyPages.clear();
+    }
+
+    private LRUEntry updateCache(long fileId, long pageIndex) throws IOException {
+      LRUEntry lruEntry = am.get(fileId, pageIndex);
+      if (lruEntry != null) {
+        lruEntry = am.putToMRU(fileId, pageIndex, lruEntry.dataPointer, lruEntry.isDirty, lruEntry.loadedLSN);
+
+        return lruEntry;
+      }
+
+      lruEntry = a1out.remove(fileId, pageIndex);
+      if (lruEntry != null) {
+        removeColdestPageIfNeeded();
+
+        CacheResult cacheResult = cacheFileContent(fileId, pageIndex);
+        lruEntry.dataPointer = cacheResult.dataPointer;
+        lruEntry.isDirty = cacheResult.isDirty;
+
+        OLogSequenceNumber lsn;
+        if (cacheResult.isDirty)
+          lsn = getDirtyPages(fileId).get(pageIndex);
+        else
+          lsn = getLogSequenceNumberFromPage(cacheResult.dataPointer);
 
-    if (useOutQueue) {
-      lruEntry = a1out.get(fileId, pageIndex);
+        lruEntry = am.putToMRU(fileId, pageIndex, lruEntry.dataPointer, lruEntry.isDirty, lsn);
+        return lruEntry;
+      }
+
+      lruEntry = a1in.get(fileId, pageIndex);
       if (lruEntry != null)
         return lruEntry;
+
+      removeColdestPageIfNeeded();
+
+      CacheResult cacheResult = cacheFileContent(fileId, pageIndex);
+      OLogSequenceNumber lsn;
+      if (cacheResult.isDirty)
+        lsn = getDirtyPages(fileId).get(pageIndex);
+      else
+        lsn = getLogSequenceNumberFromPage(cacheResult.dataPointer);
+
+      lruEntry = a1in.putToMRU(fileId, pageIndex, cacheResult.dataPointer, cacheResult.isDirty, lsn);
+
+      getFilePages(fileId).add(pageIndex);
+
+      return lruEntry;
     }
 
-    lruEntry = a1in.get(fileId, pageIndex);
-    return lruEntry;
-  }
+    private void removeColdestPageIfNeeded() throws IOException {
+      if (am.size() + a1in.size() >= maxSize) {
+        if (a1in.size() > K_IN) {
+          LRUEntry removedFromAInEntry = a1in.removeLRU();
+          if (removedFromAInEntry == null) {
+            increaseCacheSize();
+          } else {
+            assert removedFromAInEntry.usageCounter == 0;
+            evictFileContent(removedFromAInEntry.fileId, removedFromAInEntry.pageIndex, removedFromAInEntry.dataPointer,
+                removedFromAInEntry.isDirty);
 
-  private LRUEntry remove(long fileId, long pageIndex) {
-    LRUEntry lruEntry = am.remove(fileId, pageIndex);
-    if (lruEntry != null) {
-      if (lruEntry.usageCounter > 1)
-        throw new IllegalStateException("Record cannot be removed because it is used!");
+            a1out.putToMRU(removedFromAInEntry.fileId, removedFromAInEntry.pageIndex, ODirectMemory.NULL_POINTER, false, null);
+          }
+          if (a1out.size() > K_OUT) {
+            LRUEntry removedEntry = a1out.removeLRU();
+            assert removedEntry.usageCounter == 0;
+            Set<Long> pageEntries = getFilePages(removedEntry.fileId);
+            pageEntries.remove(removedEntry.pageIndex);
+          }
+        } else {
+          LRUEntry removedEntry = am.removeLRU();
+          if (removedEntry == null) {
+            increaseCacheSize();
+          } else {
+            assert removedEntry.usageCounter == 0;
+            evictFileContent(removedEntry.fileId, removedEntry.pageIndex, removedEntry.dataPointer, removedEntry.isDirty);
+            Set<Long> pageEntries = getFilePages(removedEntry.fileId);
+            pageEntries.remove(removedEntry.pageIndex);
+          }
+        }
+      }
+    }
+
+    private void increaseCacheSize() {
+      String message = "All records in aIn queue in 2q cache are used!";
+      OLogManager.instance().warn(O2QCache.this, message);
+      if (OGlobalConfiguration.SERVER_CACHE_2Q_INCREASE_ON_DEMAND.getValueAsBoolean()) {
+        OLogManager.instance().warn(O2QCache.this, "Cache size will be increased.");
+        maxSize = (int) Math.ceil(maxSize * (1 + OGlobalConfiguration.SERVER_CACHE_2Q_INCREASE_STEP.getValueAsFloat()));
+        K_IN = maxSize >> 2;
+        K_OUT = maxSize >> 1;
+      } else {
+        throw new OAllLRUListEntriesAreUsedException(message);
+      }
+    }
+
+    private CacheResult cacheFileContent(long fileId, long pageIndex) throws IOException {
+      FileLockKey key = new FileLockKey(fileId, pageIndex);
+      if (evictedPages.containsKey(key))
+        return new CacheResult(true, evictedPages.remove(key));
+
+      final OFileClassic fileClassic = files.get(fileId);
+      final long startPosition = pageIndex * pageSize;
+      final long endPosition = startPosition + pageSize;
+
+      byte[] content = new byte[pageSize];
+      long dataPointer;
+
+      // PAGES OF THE SAME FILE CAN BE LOADED BY SEVERAL SEGMENTS AT ONCE, SO SIZE OF FILE IS CHECKED AND CHANGED ATOMICALLY
+      synchronized (fileClassic) {
+        if (fileClassic.getFilledUpTo() >= endPosition) {
+          fileClassic.read(startPosition, content, content.length);
+          dataPointer = directMemory.allocate(content);
+        } else {
+          fileClassic.allocateSpace((int) (endPosition - fileClassic.getFilledUpTo()));
+          dataPointer = directMemory.allocate(content);
+        }
+      }
+
+      return new CacheResult(false, dataPointer);
+    }
+
+    private void evictFileContent(long fileId, long pageIndex, long dataPointer, boolean isDirty) throws IOException {
+      if (isDirty) {
+        if (evictedPages.size() >= writeQueueLength)
+          flushEvictedPages();
+
+        evictedPages.put(new FileLockKey(fileId, pageIndex), dataPointer);
+      } else {
+        directMemory.free(dataPointer);
+      }
+    }
+
+    private void flushEvictedPages() throws IOException {
+      @SuppressWarnings("unchecked")
+      Map.Entry<FileLockKey, Long>[] sortedPages = evictedPages.entrySet().toArray(new Map.Entry[evictedPages.size()]);
+      Arrays.sort(sortedPages, new Comparator<Map.Entry>() {
+        @Override
+        public int compare(Map.Entry entryOne, Map.Entry entryTwo) {
+          FileLockKey fileLockKeyOne = (FileLockKey) entryOne.getKey();
+          FileLockKey fileLockKeyTwo = (FileLockKey) entryTwo.getKey();
+          return fileLockKeyOne.compareTo(fileLockKeyTwo);
+        }
+      });
+
+      for (Map.Entry<FileLockKey, Long> entry : sortedPages) {
+        long evictedDataPointer = entry.getValue();
+        FileLockKey fileLockKey = entry.getKey();
+
+        flushData(fileLockKey.fileId, fileLockKey.pageIndex, evictedDataPointer);
+        getDirtyPages(fileLockKey.fileId).remove(fileLockKey.pageIndex);
+
+        directMemory.free(evictedDataPointer);
+      }
+
+      evictedPages.clear();
+    }
+
+    private LRUEntry get(long fileId, long pageIndex, boolean useOutQueue) {
+      LRUEntry lruEntry = am.get(fileId, pageIndex);
+
+      if (lruEntry != null)
+        return lruEntry;
+
+      if (useOutQueue) {
+        lruEntry = a1out.get(fileId, pageIndex);
+        if (lruEntry != null)
+          return lruEntry;
+      }
+
+      lruEntry = a1in.get(fileId, pageIndex);
       return lruEntry;
     }
-    lruEntry = a1out.remove(fileId, pageIndex);
-    if (lruEntry != null) {
+
+    private LRUEntry remove(long fileId, long pageIndex) {
+      LRUEntry lruEntry = am.remove(fileId, pageIndex);
+      if (lruEntry != null) {
+        if (lruEntry.usageCounter > 1)
+          throw new IllegalStateException("Record cannot be removed because it is used!");
+        return lruEntry;
+      }
+      lruEntry = a1out.remove(fileId, pageIndex);
+      if (lruEntry != null) {
+        return lruEntry;
+      }
+      lruEntry = a1in.remove(fileId, pageIndex);
+      if (lruEntry != null && lruEntry.usageCounter > 1)
+        throw new IllegalStateException("Record cannot be removed because it is used!");
       return lruEntry;
     }
-    lruEntry = a1in.remove(fileId, pageIndex);
-    if (lruEntry != null && lruEntry.usageCounter > 1)
-      throw new IllegalStateException("Record cannot be removed because it is used!");
-    return lruEntry;
   }
 
-  private int calculatePageCrc(byte[] pageData) {
-    int systemSize = OLongSerializer.LONG_SIZE + OIntegerSerializer.INT_SIZE;
-
-    final CRC32 crc32 = new CRC32();
-    crc32.update(pageData, systemSize, pageData.length - systemSize);
+  private static class CacheResult {
+    private final boolean isDirty;
+    private final long    dataPointer;
 
-    return (int) crc32.getValue();
+    private CacheResult(boolean dirty, long dataPointer) {
+      isDirty = dirty;
+      this.dataPointer = dataPointer;
+    }
   }
 
   private static final class FileLockKey implements Comparable<FileLockKey> {
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.hashindex.local.cache;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.orientechnologies.common.directmemory.ODirectMemory;
+import com.orientechnologies.orient.core.command.OCommandOutputListener;
+import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.ODirtyPage;
+
+/**
+ * Disk cache without disk: the pages of the files are allocated in direct memory and live there until their file is truncated or
+ * deleted or the cache is closed. Pages are never evicted and never flushed, so loading a page only looks up its pointer.
+ */
+public class ODirectMemoryOnlyDiskCache implements ODiskCache {
+  private final int                             pageSize;
+  private final ODirectMemory                   directMemory;
+  private final byte[]                          emptyPage;
+
+  private final ConcurrentMap<Long, MemoryFile> files          = new ConcurrentHashMap<Long, MemoryFile>();
+  private final ConcurrentMap<String, Long>     fileIds        = new ConcurrentHashMap<String, Long>();
+  private final AtomicLong                      fileCounter    = new AtomicLong();
+  private final AtomicLong                      allocatedPages = new AtomicLong();
+
+  public ODirectMemoryOnlyDiskCache(final int pageSize, final ODirectMemory directMemory) {
+    this.pageSize = pageSize;
+    this.directMemory = directMemory;
+    this.emptyPage = new byte[pageSize];
+  }
+
+  @Override
+  public synchronized long openFile(final String fileName) throws IOException {
+    final Long fileId = fileIds.get(fileName);
+    if (fileId != null)
+      return fileId;
+
+    final long newFileId = fileCounter.getAndIncrement();
+    files.put(newFileId, new MemoryFile(fileName));
+    fileIds.put(fileName, newFileId);
+    return newFileId;
+  }
+
+  @Override
+  public void markDirty(final long fileId, final long pageIndex) {
+  }
+
+  @Override
+  public long load(final long fileId, final long pageIndex) throws IOException {
+    return getFile(fileId).load(pageIndex);
+  }
+
+  @Override
+  public void release(final long fileId, final long pageIndex) {
+  }
+
+  @Override
+  public long getFilledUpTo(final long fileId) throws IOException {
+    return getFile(fileId).getSize();
+  }
+
+  @Override
+  public void flushFile(final long fileId) throws IOException {
+  }
+
+  @Override
+  public void closeFile(final long fileId) throws IOException {
+  }
+
+  @Override
+  public void closeFile(final long fileId, final boolean flush) throws IOException {
+  }
+
+  @Override
+  public synchronized void deleteFile(final long fileId) throws IOException {
+    final MemoryFile file = files.remove(fileId);
+    if (file == null)
+      return;
+
+    fileIds.remove(file.name);
+    file.truncate();
+  }
+
+  @Override
+  public synchronized void renameFile(final long fileId, final String oldFileName, final String newFileName) throws IOException {
+    final MemoryFile file = files.get(fileId);
+    if (file == null || !file.name.startsWith(oldFileName))
+      return;
+
+    fileIds.remove(file.name);
+    file.name = newFileName + file.name.substring(oldFileName.length());
+    fileIds.put(file.name, fileId);
+  }
+
+  @Override
+  public void truncateFile(final long fileId) throws IOException {
+    getFile(fileId).truncate();
+  }
+
+  @Override
+  public boolean wasSoftlyClosed(final long fileId) throws IOException {
+    return true;
+  }
+
+  @Override
+  public void setSoftlyClosed(final long fileId, final boolean softlyClosed) throws IOException {
+  }
+
+  @Override
+  public void flushBuffer() throws IOException {
+  }
+
+  /**
+   * Does nothing: the cache is the only copy of the pages.
+   */
+  @Override
+  public void clear() throws IOException {
+  }
+
+  /**
+   * Frees the pages of all the files.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    for (MemoryFile file : files.values())
+      file.truncate();
+
+    files.clear();
+    fileIds.clear();
+  }
+
+  @Override
+  public OPageDataVerificationError[] checkStoredPages(final OCommandOutputListener commandOutputListener) {
+    return new OPageDataVerificationError[0];
+  }
+
+  @Override
+  public Set<ODirtyPage> logDirtyPagesTable() throws IOException {
+    return Collections.emptySet();
+  }
+
+  @Override
+  public void forceSyncStoredChanges() throws IOException {
+  }
+
+  @Override
+  public boolean isOpen(final long fileId) {
+    return files.containsKey(fileId);
+  }
+
+  /**
+   * Returns the amount of direct memory, in bytes, allocated for the pages of all the files.
+   */
+  public long getUsedMemory() {
+    return allocatedPages.get() * pageSize;
+  }
+
+  private MemoryFile getFile(final long fileId) {
+    final MemoryFile file = files.get(fileId);
+    if (file == null)
+      throw new OStorageException("File with id " + fileId + " does not exist");
+    return file;
+  }
+
+  /**
+   * Pointers of the pages of a file. Existing pages are looked up under the shared lock, so concurrent readers do not block each
+   * other; the exclusive lock is taken only when the file grows or is truncated.
+   */
+  private final class MemoryFile {
+    private final ReadWriteLock lock  = new ReentrantReadWriteLock();
+    private volatile String     name;
+    private long[]              pages = new long[16];
+    private int                 size;
+
+    private MemoryFile(final String name) {
+      this.name = name;
+    }
+
+    private long load(final long pageIndex) {
+      lock.readLock().lock();
+      try {
+        if (pageIndex < size)
+          return pages[(int) pageIndex];
+      } finally {
+        lock.readLock().unlock();
+      }
+
+      lock.writeLock().lock();
+      try {
+        // LIKE A FILE, LOADING A PAGE AFTER THE END ALLOCATES EMPTY PAGES UP TO IT
+        while (size <= pageIndex) {
+          if (size == pages.length)
+            pages = Arrays.copyOf(pages, pages.length << 1);
+
+          pages[size++] = directMemory.allocate(emptyPage);
+          allocatedPages.incrementAndGet();
+        }
+
+        return pages[(int) pageIndex];
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+
+    private long getSize() {
+      lock.readLock().lock();
+      try {
+        return size;
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+
+    private void truncate() {
+      lock.writeLock().lock();
+      try {
+        for (int i = 0; i < size; i++)
+          directMemory.free(pages[i]);
+
+        allocatedPages.addAndGet(-size);
+        size = 0;
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+}
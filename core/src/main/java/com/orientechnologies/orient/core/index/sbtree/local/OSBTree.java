@@ -0,0 +1,822 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import com.orientechnologies.common.comparator.ODefaultComparator;
+import com.orientechnologies.common.concur.resource.OSharedResourceAdaptive;
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.index.OIndexException;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.ODiskCache;
+import com.orientechnologies.orient.core.serialization.serializer.binary.OBinarySerializerFactory;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.ODurablePage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OAtomicUnitEndRecord;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OAtomicUnitStartRecord;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OOperationUnitId;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWriteAheadLog;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.updatePageRecord.OPageDiff;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.updatePageRecord.OUpdateFilePageRecord;
+
+/**
+ * B+tree whose nodes are the pages of a file of the disk cache. The root is always the first page of the file, so when it's split
+ * its entries are moved to two new pages. Removed entries are not merged back, empty leaves are skipped by the range scans.
+ *
+ * If the storage has a write ahead log, every operation is logged as an atomic unit of the changes of the pages, that the storage
+ * restores after a crash before the index is loaded.
+ */
+public class OSBTree<K, V> extends OSharedResourceAdaptive {
+  private static final long           ROOT_INDEX = 0;
+
+  private final String                dataFileExtension;
+  private final Comparator<? super K> comparator = ODefaultComparator.INSTANCE;
+
+  private OStorageLocalAbstract       storage;
+  private String                      name;
+  private String                      fileName;
+  private long                        fileId;
+
+  private ODiskCache                  diskCache;
+  private OWriteAheadLog              writeAheadLog;
+
+  private OBinarySerializer<K>        keySerializer;
+  private OBinarySerializer<V>        valueSerializer;
+
+  private OOperationUnitId            operationUnitId;
+  private OLogSequenceNumber          startLSN;
+
+  public interface RangeResultListener<K, V> {
+    /**
+     * Receives the entries of a range scan in order.
+     *
+     * @return false to stop the scan
+     */
+    boolean addResult(Map.Entry<K, V> entry);
+  }
+
+  public OSBTree(String dataFileExtension) {
+    super(OGlobalConfiguration.ENVIRONMENT_CONCURRENT.getValueAsBoolean());
+    this.dataFileExtension = dataFileExtension;
+  }
+
+  public void create(String name, OBinarySerializer<K> keySerializer, OBinarySerializer<V> valueSerializer,
+      OStorageLocalAbstract storageLocal) {
+    acquireExclusiveLock();
+    try {
+      init(name, storageLocal);
+
+      this.keySerializer = keySerializer;
+      this.valueSerializer = valueSerializer;
+
+      fileId = diskCache.openFile(fileName);
+
+      startOperation();
+      initRoot();
+      endOperation();
+    } catch (IOException e) {
+      throw new OIndexException("Error during sbtree creation.", e);
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  public void load(String name, OStorageLocalAbstract storageLocal) {
+    acquireExclusiveLock();
+    try {
+      init(name, storageLocal);
+
+      fileId = diskCache.openFile(fileName);
+
+      final long rootPointer = diskCache.load(fileId, ROOT_INDEX);
+      try {
+        final OSBTreeBucket<K, V> root = new OSBTreeBucket<K, V>(rootPointer, null, null, ODurablePage.TrackMode.NONE);
+
+        keySerializer = (OBinarySerializer<K>) OBinarySerializerFactory.INSTANCE.getObjectSerializer(root.getKeySerializerId());
+        valueSerializer = (OBinarySerializer<V>) OBinarySerializerFactory.INSTANCE.getObjectSerializer(root.getValueSerializerId());
+      } finally {
+        diskCache.release(fileId, ROOT_INDEX);
+      }
+    } catch (IOException e) {
+      throw new OIndexException("Exception during sbtree loading", e);
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  public OBinarySerializer<K> getKeySerializer() {
+    return keySerializer;
+  }
+
+  public OBinarySerializer<V> getValueSerializer() {
+    return valueSerializer;
+  }
+
+  public V get(K key) {
+    acquireSharedLock();
+    try {
+      final long pageIndex = findLeaf(key, true);
+      final long pagePointer = diskCache.load(fileId, pageIndex);
+      try {
+        final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(pagePointer, keySerializer, valueSerializer,
+            ODurablePage.TrackMode.NONE);
+
+        final int index = bucket.find(key);
+        if (index < 0)
+          return null;
+
+        return bucket.getValue(index);
+      } finally {
+        diskCache.release(fileId, pageIndex);
+      }
+    } catch (IOException e) {
+      throw new OIndexException("Exception during index value retrieval", e);
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  public void put(K key, V value) {
+    acquireExclusiveLock();
+    try {
+      final byte[] serializedKey = new byte[keySerializer.getObjectSize(key)];
+      keySerializer.serializeNative(key, serializedKey, 0);
+
+      final byte[] serializedValue = new byte[valueSerializer.getObjectSize(value)];
+      valueSerializer.serializeNative(value, serializedValue, 0);
+
+      if (serializedKey.length + serializedValue.length > OSBTreeBucket.MAX_ENTRY_SIZE)
+        throw new OIndexException("Entry with key " + key + " has size " + (serializedKey.length + serializedValue.length)
+            + " that exceeds the maximum size of sbtree entries " + OSBTreeBucket.MAX_ENTRY_SIZE);
+
+      startOperation();
+
+      boolean removedToUpdate = false;
+      while (true) {
+        final long pageIndex = findLeaf(key, true);
+        final long pagePointer = diskCache.load(fileId, pageIndex);
+
+        final boolean added;
+        boolean newEntry = false;
+        boolean append = false;
+        try {
+          final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(pagePointer, keySerializer, valueSerializer, getTrackMode());
+
+          final int index = bucket.find(key);
+          if (index >= 0) {
+            if (bucket.updateValue(index, serializedValue))
+              added = true;
+            else {
+              // THE SIZE OF THE VALUE IS CHANGED: ADD THE ENTRY AGAIN
+              bucket.remove(index);
+              removedToUpdate = true;
+              added = bucket.addLeafEntry(index, serializedKey, serializedValue);
+            }
+          } else {
+            added = bucket.addLeafEntry(-index - 1, serializedKey, serializedValue);
+            newEntry = added && !removedToUpdate;
+            append = -index - 1 == bucket.size() && bucket.getRightSibling() < 0;
+          }
+
+          logPageChanges(bucket, pageIndex, false);
+          diskCache.markDirty(fileId, pageIndex);
+        } finally {
+          diskCache.release(fileId, pageIndex);
+        }
+
+        if (added) {
+          if (newEntry)
+            updateSize(1);
+          break;
+        }
+
+        splitBucket(pageIndex, key, append);
+      }
+
+      endOperation();
+    } catch (IOException e) {
+      throw new OIndexException("Error during index update with key " + key + " and value " + value, e);
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  public V remove(K key) {
+    acquireExclusiveLock();
+    try {
+      final long pageIndex = findLeaf(key, true);
+
+      startOperation();
+
+      final V removed;
+      final long pagePointer = diskCache.load(fileId, pageIndex);
+      try {
+        final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(pagePointer, keySerializer, valueSerializer, getTrackMode());
+
+        final int index = bucket.find(key);
+        if (index < 0)
+          removed = null;
+        else {
+          removed = bucket.getValue(index);
+          bucket.remove(index);
+
+          logPageChanges(bucket, pageIndex, false);
+          diskCache.markDirty(fileId, pageIndex);
+        }
+      } finally {
+        diskCache.release(fileId, pageIndex);
+      }
+
+      if (removed != null)
+        updateSize(-1);
+
+      endOperation();
+
+      return removed;
+    } catch (IOException e) {
+      throw new OIndexException("Error during removing key " + key + " from sbtree " + name, e);
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  public long size() {
+    acquireSharedLock();
+    try {
+      final long rootPointer = diskCache.load(fileId, ROOT_INDEX);
+      try {
+        return new OSBTreeBucket<K, V>(rootPointer, keySerializer, valueSerializer, ODurablePage.TrackMode.NONE).getTreeSize();
+      } finally {
+        diskCache.release(fileId, ROOT_INDEX);
+      }
+    } catch (IOException e) {
+      throw new OIndexException("Error during retrieving of size of sbtree " + name, e);
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  public void clear() {
+    acquireExclusiveLock();
+    try {
+      diskCache.truncateFile(fileId);
+
+      startOperation();
+      initRoot();
+      endOperation();
+    } catch (IOException e) {
+      throw new OIndexException("Error during clear of sbtree " + name, e);
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  public void flush() {
+    acquireExclusiveLock();
+    try {
+      diskCache.flushFile(fileId);
+    } catch (IOException e) {
+      throw new OIndexException("Error during flush of sbtree " + name, e);
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  public void close() {
+    acquireExclusiveLock();
+    try {
+      diskCache.closeFile(fileId);
+    } catch (IOException e) {
+      throw new OIndexException("Error during close of sbtree " + name, e);
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  public void delete() {
+    acquireExclusiveLock();
+    try {
+      diskCache.deleteFile(fileId);
+    } catch (IOException e) {
+      throw new OIndexException("Error during deletion of sbtree " + name, e);
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  public K firstKey() {
+    final Map.Entry<K, V> entry = firstEntry(true);
+    return entry != null ? entry.getKey() : null;
+  }
+
+  public K lastKey() {
+    final Map.Entry<K, V> entry = firstEntry(false);
+    return entry != null ? entry.getKey() : null;
+  }
+
+  /**
+   * Scans in ascending order the entries whose key is greater than the key passed, or all the entries if the key is null.
+   */
+  public void loadEntriesMajor(K key, boolean inclusive, RangeResultListener<K, V> listener) {
+    loadEntriesAscending(key, inclusive, null, false, listener);
+  }
+
+  /**
+   * Scans in ascending order the entries between the keys passed. A null key leaves the range open on its side.
+   */
+  public void loadEntriesBetween(K keyFrom, boolean fromInclusive, K keyTo, boolean toInclusive, RangeResultListener<K, V> listener) {
+    loadEntriesAscending(keyFrom, fromInclusive, keyTo, toInclusive, listener);
+  }
+
+  /**
+   * Scans in descending order the entries whose key is less than the key passed, or all the entries if the key is null.
+   */
+  public void loadEntriesMinor(K key, boolean inclusive, RangeResultListener<K, V> listener) {
+    acquireSharedLock();
+    try {
+      long pageIndex = findLeaf(key, key == null || inclusive);
+      boolean firstPage = true;
+
+      while (pageIndex >= 0) {
+        final long nextPageIndex;
+        final long pagePointer = diskCache.load(fileId, pageIndex);
+        try {
+          final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(pagePointer, keySerializer, valueSerializer,
+              ODurablePage.TrackMode.NONE);
+
+          int index;
+          if (firstPage && key != null)
+            index = (inclusive ? bucket.upperBound(key) : bucket.lowerBound(key)) - 1;
+          else
+            index = bucket.size() - 1;
+          firstPage = false;
+
+          for (; index >= 0; index--)
+            if (!listener.addResult(new OSBTreeEntry<K, V>(bucket.getKey(index), bucket.getValue(index))))
+              return;
+
+          nextPageIndex = bucket.getLeftSibling();
+        } finally {
+          diskCache.release(fileId, pageIndex);
+        }
+
+        pageIndex = nextPageIndex;
+      }
+    } catch (IOException e) {
+      throw new OIndexException("Error during scan of sbtree " + name, e);
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  private void loadEntriesAscending(K keyFrom, boolean fromInclusive, K keyTo, boolean toInclusive,
+      RangeResultListener<K, V> listener) {
+    acquireSharedLock();
+    try {
+      long pageIndex = findLeaf(keyFrom, keyFrom != null && !fromInclusive);
+      boolean firstPage = true;
+
+      while (pageIndex >= 0) {
+        final long nextPageIndex;
+        final long pagePointer = diskCache.load(fileId, pageIndex);
+        try {
+          final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(pagePointer, keySerializer, valueSerializer,
+              ODurablePage.TrackMode.NONE);
+
+          int index;
+          if (firstPage && keyFrom != null)
+            index = fromInclusive ? bucket.lowerBound(keyFrom) : bucket.upperBound(keyFrom);
+          else
+            index = 0;
+          firstPage = false;
+
+          final int size = bucket.size();
+          for (; index < size; index++) {
+            final K key = bucket.getKey(index);
+            if (keyTo != null) {
+              final int compareResult = comparator.compare(key, keyTo);
+              if (compareResult > 0 || (compareResult == 0 && !toInclusive))
+                return;
+            }
+
+            if (!listener.addResult(new OSBTreeEntry<K, V>(key, bucket.getValue(index))))
+              return;
+          }
+
+          nextPageIndex = bucket.getRightSibling();
+        } finally {
+          diskCache.release(fileId, pageIndex);
+        }
+
+        pageIndex = nextPageIndex;
+      }
+    } catch (IOException e) {
+      throw new OIndexException("Error during scan of sbtree " + name, e);
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  private Map.Entry<K, V> firstEntry(boolean ascending) {
+    final Map.Entry<K, V>[] result = new Map.Entry[1];
+    final RangeResultListener<K, V> listener = new RangeResultListener<K, V>() {
+      @Override
+      public boolean addResult(Map.Entry<K, V> entry) {
+        result[0] = entry;
+        return false;
+      }
+    };
+
+    if (ascending)
+      loadEntriesMajor(null, true, listener);
+    else
+      loadEntriesMinor(null, true, listener);
+
+    return result[0];
+  }
+
+  private void init(String name, OStorageLocalAbstract storageLocal) {
+    this.storage = storageLocal;
+    this.name = name;
+    this.fileName = name + dataFileExtension;
+
+    diskCache = storage.getDiskCache();
+    if (diskCache == null)
+      throw new IllegalStateException("Disk cache was not initialized on storage level");
+
+    if (storage instanceof OLocalPaginatedStorage)
+      writeAheadLog = ((OLocalPaginatedStorage) storage).getWALInstance();
+    else
+      writeAheadLog = null;
+  }
+
+  private void initRoot() throws IOException {
+    final long rootPointer = diskCache.load(fileId, ROOT_INDEX);
+    try {
+      final OSBTreeBucket<K, V> root = new OSBTreeBucket<K, V>(rootPointer, true, keySerializer, valueSerializer, getTrackMode());
+      root.setTreeSize(0);
+      root.setKeySerializerId(keySerializer.getId());
+      root.setValueSerializerId(valueSerializer.getId());
+
+      logPageChanges(root, ROOT_INDEX, true);
+      diskCache.markDirty(fileId, ROOT_INDEX);
+    } finally {
+      diskCache.release(fileId, ROOT_INDEX);
+    }
+  }
+
+  /**
+   * Goes down from the root to the leaf that contains the key passed. If <code>afterEqualKeys</code> is true, the separators equal to
+   * the key are followed to the right, otherwise to the left: it matters only for partial composite keys, that are equal to more
+   * entries. A null key leads to the rightmost leaf if <code>afterEqualKeys</code> is true, otherwise to the leftmost one.
+   */
+  private long findLeaf(K key, boolean afterEqualKeys) throws IOException {
+    long pageIndex = ROOT_INDEX;
+
+    while (true) {
+      final long childIndex;
+      final long pagePointer = diskCache.load(fileId, pageIndex);
+      try {
+        final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(pagePointer, keySerializer, valueSerializer,
+            ODurablePage.TrackMode.NONE);
+        if (bucket.isLeaf())
+          return pageIndex;
+
+        if (key == null)
+          childIndex = bucket.getChild(afterEqualKeys ? bucket.size() : 0);
+        else
+          childIndex = bucket.getChild(afterEqualKeys ? bucket.upperBound(key) : bucket.lowerBound(key));
+      } finally {
+        diskCache.release(fileId, pageIndex);
+      }
+
+      pageIndex = childIndex;
+    }
+  }
+
+  /**
+   * Splits in halves the node passed and adds the separator of the halves to the parent, splitting it in turn if it's full. If
+   * <code>append</code> is true the key is added after all the keys of the rightmost node, as in loads of sorted keys, and only its
+   * last entry is moved to the new node, so the nodes on the left stay full.
+   */
+  private void splitBucket(long pageIndex, K key, boolean append) throws IOException {
+    if (pageIndex == ROOT_INDEX) {
+      splitRoot(append);
+      return;
+    }
+
+    final byte[] separator;
+    final long rightPageIndex;
+    final K separatorKey;
+
+    final long pagePointer = diskCache.load(fileId, pageIndex);
+    try {
+      final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(pagePointer, keySerializer, valueSerializer, getTrackMode());
+      final boolean isLeaf = bucket.isLeaf();
+
+      final byte[][] entries = getRawEntries(bucket);
+      final int middle = getSplitIndex(entries, isLeaf, append);
+
+      separatorKey = bucket.getKey(middle);
+      separator = serializeKey(separatorKey);
+
+      rightPageIndex = diskCache.getFilledUpTo(fileId);
+      final long rightPagePointer = diskCache.load(fileId, rightPageIndex);
+      try {
+        final OSBTreeBucket<K, V> rightBucket = new OSBTreeBucket<K, V>(rightPagePointer, isLeaf, keySerializer, valueSerializer,
+            getTrackMode());
+
+        // THE SEPARATOR IS COPIED FROM THE LEAVES BUT MOVED FROM THE OTHER NODES
+        final int rightStart = isLeaf ? middle : middle + 1;
+        for (int i = rightStart; i < entries.length; i++)
+          rightBucket.addRawEntry(i - rightStart, entries[i]);
+
+        if (isLeaf) {
+          final long rightSibling = bucket.getRightSibling();
+
+          rightBucket.setLeftSibling(pageIndex);
+          rightBucket.setRightSibling(rightSibling);
+          bucket.setRightSibling(rightPageIndex);
+
+          if (rightSibling >= 0)
+            setLeftSibling(rightSibling, rightPageIndex);
+        }
+
+        logPageChanges(rightBucket, rightPageIndex, true);
+        diskCache.markDirty(fileId, rightPageIndex);
+      } finally {
+        diskCache.release(fileId, rightPageIndex);
+      }
+
+      bucket.shrink(middle);
+
+      logPageChanges(bucket, pageIndex, false);
+      diskCache.markDirty(fileId, pageIndex);
+    } finally {
+      diskCache.release(fileId, pageIndex);
+    }
+
+    addSeparator(separatorKey, separator, pageIndex, rightPageIndex);
+  }
+
+  /**
+   * Moves the entries of the root to two new nodes, leaving in the root only their separator.
+   */
+  private void splitRoot(boolean append) throws IOException {
+    final long rootPointer = diskCache.load(fileId, ROOT_INDEX);
+    try {
+      final OSBTreeBucket<K, V> root = new OSBTreeBucket<K, V>(rootPointer, keySerializer, valueSerializer,
+          ODurablePage.TrackMode.NONE);
+      final boolean isLeaf = root.isLeaf();
+
+      final byte[][] entries = getRawEntries(root);
+      final int middle = getSplitIndex(entries, isLeaf, append);
+      final byte[] separator = serializeKey(root.getKey(middle));
+
+      final long leftPageIndex = diskCache.getFilledUpTo(fileId);
+      final long leftPagePointer = diskCache.load(fileId, leftPageIndex);
+      final long rightPageIndex = diskCache.getFilledUpTo(fileId);
+      final long rightPagePointer = diskCache.load(fileId, rightPageIndex);
+      try {
+        final OSBTreeBucket<K, V> leftBucket = new OSBTreeBucket<K, V>(leftPagePointer, isLeaf, keySerializer, valueSerializer,
+            getTrackMode());
+        for (int i = 0; i < middle; i++)
+          leftBucket.addRawEntry(i, entries[i]);
+
+        final OSBTreeBucket<K, V> rightBucket = new OSBTreeBucket<K, V>(rightPagePointer, isLeaf, keySerializer, valueSerializer,
+            getTrackMode());
+        final int rightStart = isLeaf ? middle : middle + 1;
+        for (int i = rightStart; i < entries.length; i++)
+          rightBucket.addRawEntry(i - rightStart, entries[i]);
+
+        if (isLeaf) {
+          leftBucket.setRightSibling(rightPageIndex);
+          rightBucket.setLeftSibling(leftPageIndex);
+        }
+
+        logPageChanges(leftBucket, leftPageIndex, true);
+        diskCache.markDirty(fileId, leftPageIndex);
+
+        logPageChanges(rightBucket, rightPageIndex, true);
+        diskCache.markDirty(fileId, rightPageIndex);
+      } finally {
+        diskCache.release(fileId, leftPageIndex);
+        diskCache.release(fileId, rightPageIndex);
+      }
+
+      // THE FIELDS OF THE TREE IN THE HEADER OF THE ROOT ARE KEPT
+      final OSBTreeBucket<K, V> newRoot = new OSBTreeBucket<K, V>(rootPointer, false, keySerializer, valueSerializer,
+          getTrackMode());
+      newRoot.addNonLeafEntry(0, separator, leftPageIndex, rightPageIndex);
+
+      logPageChanges(newRoot, ROOT_INDEX, false);
+      diskCache.markDirty(fileId, ROOT_INDEX);
+    } finally {
+      diskCache.release(fileId, ROOT_INDEX);
+    }
+  }
+
+  /**
+   * Adds the separator of a split node to its parent. The parent is looked up again from the root after every split of the parents,
+   * since it could have been moved to a new page.
+   */
+  private void addSeparator(K separatorKey, byte[] separator, long leftPageIndex, long rightPageIndex) throws IOException {
+    while (true) {
+      long parentIndex = ROOT_INDEX;
+      int insertionIndex;
+      boolean append = true;
+
+      // THE PARENT STILL LEADS TO THE LEFT NODE ALL THE KEYS OF THE SPLIT NODE
+      while (true) {
+        final long childIndex;
+        final long pagePointer = diskCache.load(fileId, parentIndex);
+        try {
+          final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(pagePointer, keySerializer, valueSerializer,
+              ODurablePage.TrackMode.NONE);
+          insertionIndex = bucket.upperBound(separatorKey);
+          childIndex = bucket.getChild(insertionIndex);
+          append &= insertionIndex == bucket.size();
+        } finally {
+          diskCache.release(fileId, parentIndex);
+        }
+
+        if (childIndex == leftPageIndex)
+          break;
+
+        parentIndex = childIndex;
+      }
+
+      final boolean added;
+      final long parentPointer = diskCache.load(fileId, parentIndex);
+      try {
+        final OSBTreeBucket<K, V> parent = new OSBTreeBucket<K, V>(parentPointer, keySerializer, valueSerializer, getTrackMode());
+        added = parent.addNonLeafEntry(insertionIndex, separator, leftPageIndex, rightPageIndex);
+        if (added) {
+          logPageChanges(parent, parentIndex, false);
+          diskCache.markDirty(fileId, parentIndex);
+        }
+      } finally {
+        diskCache.release(fileId, parentIndex);
+      }
+
+      if (added)
+        return;
+
+      splitBucket(parentIndex, separatorKey, append);
+    }
+  }
+
+  private void setLeftSibling(long pageIndex, long leftSibling) throws IOException {
+    final long pagePointer = diskCache.load(fileId, pageIndex);
+    try {
+      final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(pagePointer, keySerializer, valueSerializer, getTrackMode());
+      bucket.setLeftSibling(leftSibling);
+
+      logPageChanges(bucket, pageIndex, false);
+      diskCache.markDirty(fileId, pageIndex);
+    } finally {
+      diskCache.release(fileId, pageIndex);
+    }
+  }
+
+  private void updateSize(long diff) throws IOException {
+    final long rootPointer = diskCache.load(fileId, ROOT_INDEX);
+    try {
+      final OSBTreeBucket<K, V> root = new OSBTreeBucket<K, V>(rootPointer, keySerializer, valueSerializer, getTrackMode());
+      root.setTreeSize(root.getTreeSize() + diff);
+
+      logPageChanges(root, ROOT_INDEX, false);
+      diskCache.markDirty(fileId, ROOT_INDEX);
+    } finally {
+      diskCache.release(fileId, ROOT_INDEX);
+    }
+  }
+
+  private byte[][] getRawEntries(OSBTreeBucket<K, V> bucket) {
+    final byte[][] entries = new byte[bucket.size()][];
+    for (int i = 0; i < entries.length; i++)
+      entries[i] = bucket.getRawEntry(i);
+
+    return entries;
+  }
+
+  /**
+   * Returns the index of the entry where the node is split: the last one of leaves and the one before the last of the other nodes if
+   * the entries are being appended, otherwise the middle one.
+   */
+  private int getSplitIndex(byte[][] entries, boolean isLeaf, boolean append) {
+    if (append)
+      return isLeaf ? entries.length - 1 : entries.length - 2;
+
+    return getMiddle(entries);
+  }
+
+  /**
+   * Returns the index of the entry that splits in halves the bytes of the entries, so the halves of nodes with entries of variable
+   * size have room for new entries. Both the halves contain at least one entry.
+   */
+  private int getMiddle(byte[][] entries) {
+    int totalSize = 0;
+    for (byte[] entry : entries)
+      totalSize += entry.length;
+
+    int middle = 0;
+    int leftSize = 0;
+    while (middle < entries.length - 2 && leftSize + entries[middle].length <= totalSize / 2)
+      leftSize += entries[middle++].length;
+
+    return Math.max(middle, 1);
+  }
+
+  private byte[] serializeKey(K key) {
+    final byte[] serializedKey = new byte[keySerializer.getObjectSize(key)];
+    keySerializer.serializeNative(key, serializedKey, 0);
+    return serializedKey;
+  }
+
+  private ODurablePage.TrackMode getTrackMode() {
+    return writeAheadLog != null ? ODurablePage.TrackMode.BOTH : ODurablePage.TrackMode.NONE;
+  }
+
+  private void startOperation() throws IOException {
+    if (writeAheadLog == null)
+      return;
+
+    operationUnitId = OOperationUnitId.generateId();
+    startLSN = writeAheadLog.log(new OAtomicUnitStartRecord(true, operationUnitId));
+  }
+
+  private void endOperation() throws IOException {
+    if (writeAheadLog == null)
+      return;
+
+    writeAheadLog.log(new OAtomicUnitEndRecord(operationUnitId, false));
+
+    operationUnitId = null;
+    startLSN = null;
+  }
+
+  private void logPageChanges(OSBTreeBucket<K, V> bucket, long pageIndex, boolean isNewPage) throws IOException {
+    if (writeAheadLog == null)
+      return;
+
+    final List<OPageDiff<?>> pageChanges = bucket.getPageChanges();
+    if (pageChanges.isEmpty())
+      return;
+
+    final OLogSequenceNumber prevLsn;
+    if (isNewPage)
+      prevLsn = startLSN;
+    else
+      prevLsn = bucket.getLsn();
+
+    final OLogSequenceNumber lsn = writeAheadLog.log(new OUpdateFilePageRecord(fileName, pageIndex, operationUnitId, pageChanges,
+        prevLsn));
+    bucket.setLsn(lsn);
+    pageChanges.clear();
+  }
+
+  private static final class OSBTreeEntry<K, V> implements Map.Entry<K, V> {
+    private final K key;
+    private final V value;
+
+    private OSBTreeEntry(K key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    public K getKey() {
+      return key;
+    }
+
+    @Override
+    public V getValue() {
+      return value;
+    }
+
+    @Override
+    public V setValue(V value) {
+      throw new UnsupportedOperationException("setValue");
+    }
+  }
+}
@@ -0,0 +1,374 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import java.io.IOException;
+import java.util.Comparator;
+
+import com.orientechnologies.common.comparator.ODefaultComparator;
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.common.serialization.types.OByteSerializer;
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.ODurablePage;
+
+/**
+ * Node of the {@link OSBTree} stored in a page of the disk cache. The entries are written from the end of the page towards the
+ * header, while the array of their positions, sorted by key, grows after the header. A leaf entry is the serialized key followed by
+ * the serialized value, a non leaf entry is the pointer to the left child, the pointer to the right child and the separator key.
+ * Leaves are linked to their siblings to scan ranges of keys without going through the parents again. The fields of the tree, as the
+ * amount of entries and the ids of the serializers, are kept in the header of the root.
+ */
+public class OSBTreeBucket<K, V> extends ODurablePage {
+  private static final int            FREE_POINTER_OFFSET     = NEXT_FREE_POSITION;
+  private static final int            SIZE_OFFSET             = FREE_POINTER_OFFSET + OIntegerSerializer.INT_SIZE;
+  private static final int            IS_LEAF_OFFSET          = SIZE_OFFSET + OIntegerSerializer.INT_SIZE;
+  private static final int            LEFT_SIBLING_OFFSET     = IS_LEAF_OFFSET + OByteSerializer.BYTE_SIZE;
+  private static final int            RIGHT_SIBLING_OFFSET    = LEFT_SIBLING_OFFSET + OLongSerializer.LONG_SIZE;
+
+  private static final int            TREE_SIZE_OFFSET        = RIGHT_SIBLING_OFFSET + OLongSerializer.LONG_SIZE;
+  private static final int            KEY_SERIALIZER_OFFSET   = TREE_SIZE_OFFSET + OLongSerializer.LONG_SIZE;
+  private static final int            VALUE_SERIALIZER_OFFSET = KEY_SERIALIZER_OFFSET + OByteSerializer.BYTE_SIZE;
+
+  private static final int            POSITIONS_ARRAY_OFFSET  = VALUE_SERIALIZER_OFFSET + OByteSerializer.BYTE_SIZE;
+
+  public static final int             MAX_PAGE_SIZE_BYTES     = OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger() * 1024;
+
+  /**
+   * Entries are limited to an eighth of the page, so a node split in halves has always room for the entry that caused the split.
+   */
+  public static final int             MAX_ENTRY_SIZE          = (MAX_PAGE_SIZE_BYTES - POSITIONS_ARRAY_OFFSET) / 8
+                                                                  - OIntegerSerializer.INT_SIZE;
+
+  private static final int            CHILDREN_SIZE           = 2 * OLongSerializer.LONG_SIZE;
+
+  private final OBinarySerializer<K>  keySerializer;
+  private final OBinarySerializer<V>  valueSerializer;
+
+  private final Comparator<? super K> comparator              = ODefaultComparator.INSTANCE;
+
+  public OSBTreeBucket(long pagePointer, boolean isLeaf, OBinarySerializer<K> keySerializer, OBinarySerializer<V> valueSerializer,
+      TrackMode trackMode) throws IOException {
+    super(pagePointer, trackMode);
+
+    this.keySerializer = keySerializer;
+    this.valueSerializer = valueSerializer;
+
+    setIntValue(FREE_POINTER_OFFSET, MAX_PAGE_SIZE_BYTES);
+    setIntValue(SIZE_OFFSET, 0);
+    setByteValue(IS_LEAF_OFFSET, (byte) (isLeaf ? 1 : 0));
+    setLongValue(LEFT_SIBLING_OFFSET, -1);
+    setLongValue(RIGHT_SIBLING_OFFSET, -1);
+  }
+
+  public OSBTreeBucket(long pagePointer, OBinarySerializer<K> keySerializer, OBinarySerializer<V> valueSerializer,
+      TrackMode trackMode) {
+    super(pagePointer, trackMode);
+
+    this.keySerializer = keySerializer;
+    this.valueSerializer = valueSerializer;
+  }
+
+  public boolean isLeaf() {
+    return getByteValue(IS_LEAF_OFFSET) > 0;
+  }
+
+  public int size() {
+    return getIntValue(SIZE_OFFSET);
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  public long getLeftSibling() {
+    return getLongValue(LEFT_SIBLING_OFFSET);
+  }
+
+  public void setLeftSibling(long pageIndex) throws IOException {
+    setLongValue(LEFT_SIBLING_OFFSET, pageIndex);
+  }
+
+  public long getRightSibling() {
+    return getLongValue(RIGHT_SIBLING_OFFSET);
+  }
+
+  public void setRightSibling(long pageIndex) throws IOException {
+    setLongValue(RIGHT_SIBLING_OFFSET, pageIndex);
+  }
+
+  public long getTreeSize() {
+    return getLongValue(TREE_SIZE_OFFSET);
+  }
+
+  public void setTreeSize(long size) throws IOException {
+    setLongValue(TREE_SIZE_OFFSET, size);
+  }
+
+  public byte getKeySerializerId() {
+    return getByteValue(KEY_SERIALIZER_OFFSET);
+  }
+
+  public void setKeySerializerId(byte id) throws IOException {
+    setByteValue(KEY_SERIALIZER_OFFSET, id);
+  }
+
+  public byte getValueSerializerId() {
+    return getByteValue(VALUE_SERIALIZER_OFFSET);
+  }
+
+  public void setValueSerializerId(byte id) throws IOException {
+    setByteValue(VALUE_SERIALIZER_OFFSET, id);
+  }
+
+  /**
+   * Returns the index of the first entry whose key is greater or equal to the key passed, or the size of the bucket if there is no
+   * such entry. With partial composite keys it's the first of the matching entries.
+   */
+  public int lowerBound(K key) {
+    int low = 0;
+    int high = size();
+
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (comparator.compare(getKey(mid), key) < 0)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+
+    return low;
+  }
+
+  /**
+   * Returns the index of the first entry whose key is greater than the key passed, or the size of the bucket if there is no such
+   * entry. With partial composite keys it's the entry following the last of the matching ones.
+   */
+  public int upperBound(K key) {
+    int low = 0;
+    int high = size();
+
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (comparator.compare(getKey(mid), key) <= 0)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+
+    return low;
+  }
+
+  /**
+   * Returns the index of the entry with the key passed, or <code>-(insertion point) - 1</code> if it's absent.
+   */
+  public int find(K key) {
+    final int index = lowerBound(key);
+    if (index < size() && comparator.compare(getKey(index), key) == 0)
+      return index;
+
+    return -index - 1;
+  }
+
+  /**
+   * Returns the page of the child that contains the keys between the separators around the index passed: 0 is the left child of the
+   * first entry, <code>size()</code> is the right child of the last one.
+   */
+  public long getChild(int index) {
+    if (index == 0)
+      return getLeftChild(0);
+
+    return getRightChild(index - 1);
+  }
+
+  public K getKey(int index) {
+    int entryPosition = getEntryPosition(index);
+    if (!isLeaf())
+      entryPosition += CHILDREN_SIZE;
+
+    return keySerializer.deserializeFromDirectMemory(directMemory, pagePointer + entryPosition);
+  }
+
+  public V getValue(int index) {
+    final int entryPosition = getEntryPosition(index);
+    return valueSerializer.deserializeFromDirectMemory(directMemory, pagePointer + entryPosition
+        + keySerializer.getObjectSizeInDirectMemory(directMemory, pagePointer + entryPosition));
+  }
+
+  public long getLeftChild(int index) {
+    return getLongValue(getEntryPosition(index));
+  }
+
+  public long getRightChild(int index) {
+    return getLongValue(getEntryPosition(index) + OLongSerializer.LONG_SIZE);
+  }
+
+  /**
+   * Returns the serialized entry as it's stored in the page, to move it to another bucket of the same level.
+   */
+  public byte[] getRawEntry(int index) {
+    final int entryPosition = getEntryPosition(index);
+    return getBinaryValue(entryPosition, getEntrySize(entryPosition));
+  }
+
+  public boolean addLeafEntry(int index, byte[] serializedKey, byte[] serializedValue) throws IOException {
+    final byte[] entry = new byte[serializedKey.length + serializedValue.length];
+    System.arraycopy(serializedKey, 0, entry, 0, serializedKey.length);
+    System.arraycopy(serializedValue, 0, entry, serializedKey.length, serializedValue.length);
+
+    return addRawEntry(index, entry);
+  }
+
+  /**
+   * Adds a separator key. The children of the entries around the new one are updated to keep them consistent with the pages passed.
+   */
+  public boolean addNonLeafEntry(int index, byte[] serializedKey, long leftChild, long rightChild) throws IOException {
+    final byte[] entry = new byte[CHILDREN_SIZE + serializedKey.length];
+    OLongSerializer.INSTANCE.serializeNative(leftChild, entry, 0);
+    OLongSerializer.INSTANCE.serializeNative(rightChild, entry, OLongSerializer.LONG_SIZE);
+    System.arraycopy(serializedKey, 0, entry, CHILDREN_SIZE, serializedKey.length);
+
+    if (!addRawEntry(index, entry))
+      return false;
+
+    final int size = size();
+    if (index > 0)
+      setLongValue(getEntryPosition(index - 1) + OLongSerializer.LONG_SIZE, leftChild);
+    if (index < size - 1)
+      setLongValue(getEntryPosition(index + 1), rightChild);
+
+    return true;
+  }
+
+  /**
+   * Inserts an already serialized entry at the index passed, compacting the page if the free space is fragmented by the removed
+   * entries.
+   *
+   * @return false if the page has not enough space for the entry
+   */
+  public boolean addRawEntry(int index, byte[] entry) throws IOException {
+    final int size = size();
+    int freePointer = getIntValue(FREE_POINTER_OFFSET);
+
+    if (freePointer - entry.length < POSITIONS_ARRAY_OFFSET + (size + 1) * OIntegerSerializer.INT_SIZE) {
+      if (getFilledSize() + entry.length + OIntegerSerializer.INT_SIZE > MAX_PAGE_SIZE_BYTES)
+        return false;
+
+      compact();
+      freePointer = getIntValue(FREE_POINTER_OFFSET);
+    }
+
+    freePointer -= entry.length;
+    setBinaryValue(freePointer, entry);
+    setIntValue(FREE_POINTER_OFFSET, freePointer);
+
+    final int positionOffset = POSITIONS_ARRAY_OFFSET + index * OIntegerSerializer.INT_SIZE;
+    if (index < size)
+      copyData(positionOffset, positionOffset + OIntegerSerializer.INT_SIZE, (size - index) * OIntegerSerializer.INT_SIZE);
+
+    setIntValue(positionOffset, freePointer);
+    setIntValue(SIZE_OFFSET, size + 1);
+
+    return true;
+  }
+
+  /**
+   * Overwrites the value of a leaf entry if the new one has the same size of the stored one.
+   *
+   * @return false if the size of the values differs, in that case the entry has to be removed and added again.
+   */
+  public boolean updateValue(int index, byte[] serializedValue) throws IOException {
+    final int entryPosition = getEntryPosition(index);
+    final int valuePosition = entryPosition + keySerializer.getObjectSizeInDirectMemory(directMemory, pagePointer + entryPosition);
+
+    if (valueSerializer.getObjectSizeInDirectMemory(directMemory, pagePointer + valuePosition) != serializedValue.length)
+      return false;
+
+    setBinaryValue(valuePosition, serializedValue);
+    return true;
+  }
+
+  /**
+   * Removes the entry from the array of positions. The space of the entry is reclaimed by the next compaction of the page.
+   */
+  public void remove(int index) throws IOException {
+    final int size = size();
+    final int positionOffset = POSITIONS_ARRAY_OFFSET + index * OIntegerSerializer.INT_SIZE;
+
+    if (index < size - 1)
+      copyData(positionOffset + OIntegerSerializer.INT_SIZE, positionOffset, (size - index - 1) * OIntegerSerializer.INT_SIZE);
+
+    setIntValue(SIZE_OFFSET, size - 1);
+  }
+
+  /**
+   * Keeps only the entries before the index passed, rewriting them at the end of the page.
+   */
+  public void shrink(int newSize) throws IOException {
+    final byte[][] entries = new byte[newSize][];
+    for (int i = 0; i < newSize; i++)
+      entries[i] = getRawEntry(i);
+
+    rewrite(entries);
+  }
+
+  /**
+   * Returns the bytes used by the header, the positions and the live entries of the page.
+   */
+  public int getFilledSize() {
+    final int size = size();
+    int filledSize = POSITIONS_ARRAY_OFFSET + size * OIntegerSerializer.INT_SIZE;
+    for (int i = 0; i < size; i++)
+      filledSize += getEntrySize(getEntryPosition(i));
+
+    return filledSize;
+  }
+
+  private void compact() throws IOException {
+    final int size = size();
+    final byte[][] entries = new byte[size][];
+    for (int i = 0; i < size; i++)
+      entries[i] = getRawEntry(i);
+
+    rewrite(entries);
+  }
+
+  private void rewrite(byte[][] entries) throws IOException {
+    int freePointer = MAX_PAGE_SIZE_BYTES;
+    for (int i = 0; i < entries.length; i++) {
+      freePointer -= entries[i].length;
+      setBinaryValue(freePointer, entries[i]);
+      setIntValue(POSITIONS_ARRAY_OFFSET + i * OIntegerSerializer.INT_SIZE, freePointer);
+    }
+
+    setIntValue(FREE_POINTER_OFFSET, freePointer);
+    setIntValue(SIZE_OFFSET, entries.length);
+  }
+
+  private int getEntryPosition(int index) {
+    return getIntValue(POSITIONS_ARRAY_OFFSET + index * OIntegerSerializer.INT_SIZE);
+  }
+
+  private int getEntrySize(int entryPosition) {
+    if (isLeaf()) {
+      final int keySize = keySerializer.getObjectSizeInDirectMemory(directMemory, pagePointer + entryPosition);
+      return keySize + valueSerializer.getObjectSizeInDirectMemory(directMemory, pagePointer + entryPosition + keySize);
+    }
+
+    return CHILDREN_SIZE + keySerializer.getObjectSizeInDirectMemory(directMemory, pagePointer + entryPosition + CHILDREN_SIZE);
+  }
+}
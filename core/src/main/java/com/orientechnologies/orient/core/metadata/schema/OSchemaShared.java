@@ -38,6 +38,7 @@ import com.orientechnologies.orient.core.metadata.security.ODatabaseSecurityReso
 import com.orientechnologies.orient.core.metadata.security.ORole;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.OSQLStatementCache;
 import com.orientechnologies.orient.core.storage.OStorage;
 import com.orientechnologies.orient.core.storage.OStorage.CLUSTER_TYPE;
 import com.orientechnologies.orient.core.storage.OStorageEmbedded;
@@ -474,6 +475,9 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
    */
   @Override
   public void fromStream() {
+    // CACHED STATEMENTS REFER TO THE CLASSES BEING REPLACED
+    OSQLStatementCache.invalidate(getDatabase().getStorage());
+
     final OSchemaShared me = this;
     getDatabase().getStorage().callInLock(new Callable<Object>() {
       @Override
@@ -687,6 +691,8 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
   }
 
   private void saveInternal(final String iClusterName) {
+    OSQLStatementCache.invalidate(getDatabase().getStorage());
+
     document.setDirty();
     for (int retry = 0; retry < 10; retry++)
       try {
@@ -406,6 +406,10 @@ public enum OType {
     return javaTypes;
   }
 
+  public int getId() {
+    return id;
+  }
+
   public static Number increment(final Number a, final Number b) {
     if (a == null || b == null)
       throw new IllegalArgumentException("Cannot increment a null value");
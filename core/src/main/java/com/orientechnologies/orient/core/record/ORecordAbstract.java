@@ -122,10 +122,10 @@ public abstract class ORecordAbstract<T> implements ORecord<T>, ORecordInternal<
   }
 
   public byte[] toStream() {
-    if (_source == null)
+    if (_source == null) {
       _source = _recordFormat.toStream(this, false);
-
-    invokeListenerEvent(ORecordListener.EVENT.MARSHALL);
+      invokeListenerEvent(ORecordListener.EVENT.MARSHALL);
+    }
 
     return _source;
   }
@@ -123,10 +123,10 @@ public abstract class ORecordSchemaAwareAbstract<T> extends ORecordAbstract<T> i
   }
 
   public byte[] toStream(final boolean iOnlyDelta) {
-    if (_source == null)
+    if (_source == null) {
       _source = _recordFormat.toStream(this, iOnlyDelta);
-
-    invokeListenerEvent(ORecordListener.EVENT.MARSHALL);
+      invokeListenerEvent(ORecordListener.EVENT.MARSHALL);
+    }
 
     return _source;
   }
@@ -68,6 +68,7 @@ import com.orientechnologies.orient.core.record.ORecordAbstract;
 import com.orientechnologies.orient.core.record.ORecordSchemaAwareAbstract;
 import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordFieldIndex;
 import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerFactory;
 import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
 
@@ -93,6 +94,7 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
   protected boolean                                                      _allowChainedAccess = true;
 
   protected transient List<WeakReference<ORecordElement>>                _owners             = null;
+  protected transient ORecordFieldIndex                                  _fieldIndex         = null;
 
   protected static final String[]                                        EMPTY_STRINGS       = new String[] {};
 
@@ -1086,6 +1088,10 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
     // THIS IS IMPORTANT TO BE SURE THAT FIELDS ARE LOADED BEFORE IT'S TOO LATE AND THE RECORD _SOURCE IS NULL
     checkForFields();
 
+    if (_status != STATUS.UNMARSHALLING)
+      // THE RECORD COULD BE ALREADY DIRTY AND SERIALIZED (BEFORE COMMIT): DISCARD THE STALE CONTENT
+      _source = null;
+
     return super.setDirty();
   }
 
@@ -1127,6 +1133,7 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
     _fieldOriginalValues = null;
     _fieldChangeListeners = null;
     _fieldCollectionChangeTimeLines = null;
+    _fieldIndex = null;
 
     super.fromStream(iRecordBuffer);
 
@@ -1282,10 +1289,13 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
    * Returns the number of fields in memory.
    */
   public int fields() {
+    // FIELDS COULD HAVE BEEN PARTIALLY UNMARSHALLED
+    checkForFields();
     return _fieldValues == null ? 0 : _fieldValues.size();
   }
 
   public boolean isEmpty() {
+    checkForFields();
     return _fieldValues == null || _fieldValues.isEmpty();
   }
 
@@ -1311,7 +1321,13 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
   @Override
   protected void setup() {
     super.setup();
-    _recordFormat = ORecordSerializerFactory.instance().getFormat(ORecordSerializerSchemaAware2CSV.NAME);
+
+    // USE THE SERIALIZER CONFIGURED FOR THE CURRENT DATABASE IF ANY
+    final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+    if (database != null && database.getStorage() != null && database.getStorage().getConfiguration() != null)
+      _recordFormat = database.getStorage().getConfiguration().getRecordSerializer();
+    else
+      _recordFormat = ORecordSerializerFactory.instance().getFormat(ORecordSerializerSchemaAware2CSV.NAME);
   }
 
   /**
@@ -1425,13 +1441,29 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
 
       // NO FIELDS FOUND
       return false;
-    } else if (_source != null)
+    } else if (_source != null) {
       // FULL UNMARSHALLING
       _source = null;
+      _fieldIndex = null;
+    }
 
     return true;
   }
 
+  /**
+   * Internal. Returns the index of the fields in the serialized content built by the serializer on partial unmarshalling, if any.
+   */
+  public ORecordFieldIndex getFieldIndex() {
+    return _fieldIndex;
+  }
+
+  /**
+   * Internal. Keeps the index of the fields in the serialized content to unmarshall the next requested fields directly.
+   */
+  public void setFieldIndex(final ORecordFieldIndex iFieldIndex) {
+    _fieldIndex = iFieldIndex;
+  }
+
   protected String checkFieldName(final String iFieldName) {
     final Character c = OSchemaShared.checkNameIfValid(iFieldName);
     if (c != null)
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization.serializer.record;
+
+/**
+ * Thread local flag which is set while records of transaction are serialized before storage lock is acquired. Linked records can
+ * not be saved in this mode, so serialization of record which requires it is aborted and repeated later during commit.
+ */
+public class OPreCommitSerializationThreadLocal extends ThreadLocal<Boolean> {
+  public static final OPreCommitSerializationThreadLocal INSTANCE = new OPreCommitSerializationThreadLocal();
+
+  @Override
+  protected Boolean initialValue() {
+    return Boolean.FALSE;
+  }
+
+  public boolean isActive() {
+    return get();
+  }
+
+  /**
+   * Interrupts serialization of current record if it is performed before commit.
+   */
+  public void abortIfActive() {
+    if (get())
+      throw OSerializationAbortedException.INSTANCE;
+  }
+
+  public static final class OSerializationAbortedException extends RuntimeException {
+    private static final OSerializationAbortedException INSTANCE = new OSerializationAbortedException();
+
+    private OSerializationAbortedException() {
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+  }
+}
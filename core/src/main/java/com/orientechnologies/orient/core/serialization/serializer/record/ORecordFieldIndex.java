@@ -0,0 +1,72 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization.serializer.record;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of the fields contained in the serialized content of a record. It's built once by the serializer at the first partial
+ * unmarshalling and kept in the record, so the following accesses unmarshall only the requested fields without parsing the content
+ * again. The position of every field is serializer specific.
+ */
+public class ORecordFieldIndex {
+  private final byte[]              source;
+  private final String              className;
+  private final Map<String, Object> fields = new LinkedHashMap<String, Object>();
+
+  public ORecordFieldIndex(final byte[] iSource, final String iClassName) {
+    source = iSource;
+    className = iClassName;
+  }
+
+  /**
+   * Tells if the index has been built against the content passed. The content is compared by reference since a new buffer is
+   * assigned to the record on every load.
+   */
+  public boolean isIndexOf(final byte[] iSource) {
+    return source == iSource;
+  }
+
+  public String getClassName() {
+    return className;
+  }
+
+  /**
+   * Adds a field if not already present: in case of duplicates the first occurrence wins as on full unmarshalling.
+   */
+  public void put(final String iFieldName, final Object iPosition) {
+    if (!fields.containsKey(iFieldName))
+      fields.put(iFieldName, iPosition);
+  }
+
+  public boolean contains(final String iFieldName) {
+    return fields.containsKey(iFieldName);
+  }
+
+  public Object get(final String iFieldName) {
+    return fields.get(iFieldName);
+  }
+
+  public Set<String> fieldNames() {
+    return fields.keySet();
+  }
+
+  public int size() {
+    return fields.size();
+  }
+}
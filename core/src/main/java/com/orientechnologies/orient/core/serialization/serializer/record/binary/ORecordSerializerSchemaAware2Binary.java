@@ -0,0 +1,756 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization.serializer.record.binary;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Set;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.OUserObject2RecordHandler;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OSerializationException;
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.profiler.OJVMProfiler;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordFieldIndex;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.record.OSerializationSetThreadLocal;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerCSVAbstract;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
+
+/**
+ * Serializes documents in a binary format. The record starts with a zero byte, which never starts a CSV record, followed by the
+ * format version, the class name and the fields. Every field is written as its name, a type byte and the size of the value
+ * followed by the value, so fields not requested can be skipped without being parsed. Lengths and integer numbers are written as
+ * variable length integers, negative numbers in zig-zag encoding.<br/>
+ * Simple types, links and embedded documents are written natively, while collections, maps and custom types are written in the
+ * same text form used by {@link ORecordSerializerSchemaAware2CSV}. Records written in CSV format are read by delegating to the CSV
+ * serializer and vice versa, so a database can switch format without converting the existing records.
+ */
+public class ORecordSerializerSchemaAware2Binary implements ORecordSerializer {
+  public static final String                              NAME            = "binary";
+  public static final ORecordSerializerSchemaAware2Binary INSTANCE        = new ORecordSerializerSchemaAware2Binary();
+
+  public static final byte                                MAGIC           = 0;
+  public static final byte                                CURRENT_VERSION = 1;
+
+  private static final byte                               NULL_VALUE      = -1;
+  private static final byte                               CSV_VALUE       = -2;
+  private static final OJVMProfiler                       PROFILER        = Orient.instance().getProfiler();
+
+  /**
+   * Tells if the content has been written by this serializer.
+   */
+  public static boolean isBinary(final byte[] iSource) {
+    return iSource != null && iSource.length > 1 && iSource[0] == MAGIC;
+  }
+
+  public ORecordInternal<?> fromStream(final byte[] iSource, final ORecordInternal<?> iRecord, final String[] iFields) {
+    if (!isBinary(iSource))
+      return ORecordSerializerSchemaAware2CSV.INSTANCE.fromStream(iSource, iRecord, iFields);
+
+    final long timer = PROFILER.startChrono();
+    try {
+      final ODocument record = (ODocument) iRecord;
+      final ORecordFieldIndex index = record.getFieldIndex();
+      if (iFields != null && iFields.length > 0 || index != null && index.isIndexOf(iSource))
+        // PARTIAL UNMARSHALLING OR CONTENT ALREADY INDEXED: READ THE VALUES BY OFFSET
+        return fromFieldIndex(iSource, record, iFields);
+
+      return fromBinary(iSource, record, iFields);
+    } finally {
+      PROFILER.stopChrono(PROFILER.getProcessMetric("serializer.record.binary.fromStream"), "Deserialize record from binary stream",
+          timer);
+    }
+  }
+
+  public byte[] toStream(final ORecordInternal<?> iRecord, final boolean iOnlyDelta) {
+    final long timer = PROFILER.startChrono();
+    try {
+      if (!(iRecord instanceof ODocument))
+        throw new OSerializationException("Cannot marshall a record of type "
+            + (iRecord != null ? iRecord.getClass().getSimpleName() : null));
+
+      final ODocument record = (ODocument) iRecord;
+      final OBinaryOutput output = new OBinaryOutput(record.getSize() > 0 ? record.getSize() : 64);
+      if (!toBinary(record, output, iOnlyDelta, OSerializationSetThreadLocal.INSTANCE.get()))
+        // ALREADY IN PROGRESS OF BEING MARSHALLED: ITS CONTENT WILL BE WRITTEN BY THE FIRST CALL
+        return null;
+
+      return output.toByteArray(getPaddedSize(record, output.size()));
+
+    } finally {
+      PROFILER.stopChrono(PROFILER.getProcessMetric("serializer.record.binary.toStream"), "Serialize record to binary stream", timer);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return NAME;
+  }
+
+  protected boolean toBinary(final ODocument record, final OBinaryOutput output, final boolean iOnlyDelta,
+      final Set<ODocument> iMarshalledRecords) {
+    // CHECK IF THE RECORD IS PENDING TO BE MARSHALLED
+    if (iMarshalledRecords != null)
+      if (iMarshalledRecords.contains(record))
+        return false;
+      else
+        iMarshalledRecords.add(record);
+
+    try {
+      output.write(MAGIC);
+      output.write(CURRENT_VERSION);
+
+      // MARSHALL THE CLASSNAME
+      final OClass cls = record.getSchemaClass();
+      output.writeString(!iOnlyDelta && cls != null ? cls.getStreamableName() : null);
+
+      final String[] fieldNames = iOnlyDelta && record.isTrackingChanges() ? record.getDirtyFields() : record.fieldNames();
+
+      // DETERMINE THE TYPES FIRST TO KNOW HOW MANY FIELDS ARE NOT TRANSIENT
+      final Object[] fieldValues = new Object[fieldNames.length];
+      final OType[] fieldTypes = new OType[fieldNames.length];
+      int count = 0;
+      for (int i = 0; i < fieldNames.length; ++i) {
+        fieldValues[i] = record.rawField(fieldNames[i]);
+        fieldTypes[i] = getNativeType(record, cls, fieldNames[i], fieldValues[i]);
+        if (fieldTypes[i] != OType.TRANSIENT)
+          count++;
+      }
+      output.writeVarInt(count);
+
+      final OUserObject2RecordHandler objHandler = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+
+      for (int i = 0; i < fieldNames.length; ++i)
+        if (fieldTypes[i] != OType.TRANSIENT)
+          fieldToBinary(record, output, objHandler, fieldNames[i], fieldValues[i], fieldTypes[i], iMarshalledRecords);
+
+      return true;
+
+    } finally {
+      if (iMarshalledRecords != null)
+        iMarshalledRecords.remove(record);
+    }
+  }
+
+  protected ODocument fromBinary(final byte[] iSource, final ODocument record, final String[] iFields) {
+    final OBinaryInput input = new OBinaryInput(iSource, 1);
+
+    final byte version = input.readByte();
+    if (version != CURRENT_VERSION)
+      throw new OSerializationException("Cannot unmarshall record " + record.getIdentity() + ": binary format version " + version
+          + " is not supported");
+
+    // UNMARSHALL THE CLASS NAME
+    record.setClassNameIfExists(input.readString());
+
+    if (iFields != null && iFields.length == 1 && iFields[0].equals("@class"))
+      // ONLY THE CLASS NAME HAS BEEN REQUESTED: RETURN NOW WITHOUT UNMARSHALL THE ENTIRE RECORD
+      return record;
+
+    final int count = input.readVarInt();
+
+    // UNMARSHALL ALL THE FIELDS
+    for (int i = 0; i < count; ++i) {
+      final String fieldName = input.readString();
+      final byte type = input.readByte();
+      final int size = type == NULL_VALUE ? 0 : input.readVarInt();
+      final int valueOffset = input.position;
+
+      // MOVE TO THE NEXT FIELD: THE VALUE IS READ BY OFFSET
+      input.position += size;
+
+      if (record.containsField(fieldName))
+        // ALREADY UNMARSHALLED: DON'T OVERWRITE IT
+        continue;
+
+      if (iFields != null && iFields.length > 0 && !isRequested(iFields, fieldName))
+        // SKIP IT
+        continue;
+
+      try {
+        fieldFromBinary(record, fieldName, type, iSource, valueOffset, size);
+      } catch (Exception e) {
+        OLogManager.instance().exception("Error on unmarshalling field '%s' in record %s", e, OSerializationException.class,
+            fieldName, record.getIdentity());
+      }
+    }
+
+    return record;
+  }
+
+  /**
+   * Unmarshalls the requested fields, or all the fields not unmarshalled yet if none is requested, by using the index of the fields
+   * kept in the document. The index is built at the first call by reading only the headers of the fields.
+   */
+  protected ODocument fromFieldIndex(final byte[] iSource, final ODocument record, final String[] iFields) {
+    ORecordFieldIndex index = record.getFieldIndex();
+    if (index == null || !index.isIndexOf(iSource)) {
+      index = buildFieldIndex(iSource, record);
+      record.setFieldIndex(index);
+    }
+
+    record.setClassNameIfExists(index.getClassName());
+
+    if (iFields != null && iFields.length == 1 && iFields[0].equals("@class"))
+      // ONLY THE CLASS NAME HAS BEEN REQUESTED: RETURN NOW WITHOUT UNMARSHALL THE ENTIRE RECORD
+      return record;
+
+    for (String fieldName : iFields != null && iFields.length > 0 ? Arrays.asList(iFields) : index.fieldNames()) {
+      if (!index.contains(fieldName) || record.containsField(fieldName))
+        // NOT PRESENT OR ALREADY UNMARSHALLED: DON'T OVERWRITE IT
+        continue;
+
+      // TYPE, OFFSET AND SIZE OF THE VALUE
+      final int[] position = (int[]) index.get(fieldName);
+      try {
+        fieldFromBinary(record, fieldName, (byte) position[0], iSource, position[1], position[2]);
+      } catch (Exception e) {
+        OLogManager.instance().exception("Error on unmarshalling field '%s' in record %s", e, OSerializationException.class,
+            fieldName, record.getIdentity());
+      }
+    }
+
+    return record;
+  }
+
+  /**
+   * Reads the headers of the fields, indexing type, offset and size of each value by field name.
+   */
+  protected ORecordFieldIndex buildFieldIndex(final byte[] iSource, final ODocument record) {
+    final OBinaryInput input = new OBinaryInput(iSource, 1);
+
+    final byte version = input.readByte();
+    if (version != CURRENT_VERSION)
+      throw new OSerializationException("Cannot unmarshall record " + record.getIdentity() + ": binary format version " + version
+          + " is not supported");
+
+    final ORecordFieldIndex index = new ORecordFieldIndex(iSource, input.readString());
+
+    final int count = input.readVarInt();
+    for (int i = 0; i < count; ++i) {
+      final String fieldName = input.readString();
+      final byte type = input.readByte();
+      final int size = type == NULL_VALUE ? 0 : input.readVarInt();
+
+      index.put(fieldName, new int[] { type, input.position, size });
+      input.position += size;
+    }
+
+    return index;
+  }
+
+  private void fieldToBinary(final ODocument record, final OBinaryOutput output, final OUserObject2RecordHandler iObjHandler,
+      final String fieldName, final Object fieldValue, final OType type, final Set<ODocument> iMarshalledRecords) {
+    output.writeString(fieldName);
+
+    if (fieldValue == null) {
+      output.write(NULL_VALUE);
+      return;
+    }
+
+    if (type != null) {
+      final int typePosition = output.size();
+      output.write((byte) type.getId());
+      if (nativeValueToBinary(record, output, type, fieldName, fieldValue, iMarshalledRecords))
+        return;
+
+      // NOT WRITABLE AS NATIVE VALUE: WRITE IT AS TEXT
+      output.truncate(typePosition);
+    }
+
+    final StringBuilder buffer = new StringBuilder();
+    ORecordSerializerSchemaAware2CSV.INSTANCE.fieldToStream(record, buffer, iObjHandler, fieldName, fieldValue, iMarshalledRecords,
+        true, false);
+
+    output.write(CSV_VALUE);
+    output.writeBytes(OBinaryProtocol.string2bytes(buffer.toString()));
+  }
+
+  /**
+   * Returns the type the value can be written with natively, TRANSIENT if the field must not be written at all, or null if the value
+   * must be written as text.
+   */
+  private OType getNativeType(final ODocument record, final OClass cls, final String fieldName, final Object fieldValue) {
+    final OProperty prop = cls != null ? cls.getProperty(fieldName) : null;
+
+    OType type = prop != null ? prop.getType() : record.fieldType(fieldName);
+    if (type == OType.TRANSIENT || fieldValue == null)
+      return type;
+
+    if (type == null) {
+      // NOT FOUND: TRY TO DETERMINE THE TYPE FROM ITS CONTENT
+      final Class<?> valueClass = fieldValue.getClass();
+      if (valueClass == String.class)
+        type = OType.STRING;
+      else if (valueClass == Integer.class)
+        type = OType.INTEGER;
+      else if (valueClass == Long.class)
+        type = OType.LONG;
+      else if (valueClass == Boolean.class)
+        type = OType.BOOLEAN;
+      else if (valueClass == Double.class)
+        type = OType.DOUBLE;
+      else if (valueClass == Float.class)
+        type = OType.FLOAT;
+      else if (valueClass == Short.class)
+        type = OType.SHORT;
+      else if (valueClass == Byte.class)
+        type = OType.BYTE;
+      else if (valueClass == byte[].class)
+        type = OType.BINARY;
+      else if (valueClass == BigDecimal.class)
+        type = OType.DECIMAL;
+      else if (fieldValue instanceof Date)
+        type = OType.DATETIME;
+      else if (fieldValue instanceof ORID)
+        type = OType.LINK;
+      else if (fieldValue instanceof ODocument)
+        type = ((ODocument) fieldValue).hasOwners() || !ODatabaseRecordThreadLocal.INSTANCE.isDefined() ? OType.EMBEDDED
+            : OType.LINK;
+    }
+
+    return type;
+  }
+
+  /**
+   * Writes the size and the content of the value if the type has a native representation for the class of the value.
+   *
+   * @return false if nothing has been written
+   */
+  private boolean nativeValueToBinary(final ODocument record, final OBinaryOutput output, final OType type,
+      final String fieldName, final Object fieldValue, final Set<ODocument> iMarshalledRecords) {
+    final Class<?> valueClass = fieldValue.getClass();
+
+    switch (type) {
+    case STRING:
+      if (valueClass != String.class)
+        return false;
+      output.writeBytes(OBinaryProtocol.string2bytes((String) fieldValue));
+      return true;
+
+    case INTEGER:
+      if (valueClass != Integer.class)
+        return false;
+      output.writeSignedVarLongWithSize((Integer) fieldValue);
+      return true;
+
+    case LONG:
+      if (valueClass != Long.class)
+        return false;
+      output.writeSignedVarLongWithSize((Long) fieldValue);
+      return true;
+
+    case SHORT:
+      if (valueClass != Short.class)
+        return false;
+      output.writeSignedVarLongWithSize((Short) fieldValue);
+      return true;
+
+    case BYTE:
+      if (valueClass != Byte.class)
+        return false;
+      output.writeVarInt(1);
+      output.write((Byte) fieldValue);
+      return true;
+
+    case BOOLEAN:
+      if (valueClass != Boolean.class)
+        return false;
+      output.writeVarInt(1);
+      output.write((byte) ((Boolean) fieldValue ? 1 : 0));
+      return true;
+
+    case FLOAT:
+      if (valueClass != Float.class)
+        return false;
+      output.writeVarInt(OBinaryProtocol.SIZE_INT);
+      output.writeFixedLong(Float.floatToIntBits((Float) fieldValue), OBinaryProtocol.SIZE_INT);
+      return true;
+
+    case DOUBLE:
+      if (valueClass != Double.class)
+        return false;
+      output.writeVarInt(OBinaryProtocol.SIZE_LONG);
+      output.writeFixedLong(Double.doubleToLongBits((Double) fieldValue), OBinaryProtocol.SIZE_LONG);
+      return true;
+
+    case DATETIME:
+      if (!(fieldValue instanceof Date))
+        return false;
+      output.writeSignedVarLongWithSize(((Date) fieldValue).getTime());
+      return true;
+
+    case DATE: {
+      if (!(fieldValue instanceof Date))
+        return false;
+      // RESET HOURS, MINUTES, SECONDS AND MILLISECONDS
+      final Calendar calendar = Calendar.getInstance();
+      calendar.setTime((Date) fieldValue);
+      calendar.set(Calendar.HOUR_OF_DAY, 0);
+      calendar.set(Calendar.MINUTE, 0);
+      calendar.set(Calendar.SECOND, 0);
+      calendar.set(Calendar.MILLISECOND, 0);
+      output.writeSignedVarLongWithSize(calendar.getTimeInMillis());
+      return true;
+    }
+
+    case BINARY:
+      if (valueClass != byte[].class)
+        return false;
+      output.writeBytes((byte[]) fieldValue);
+      return true;
+
+    case DECIMAL: {
+      if (valueClass != BigDecimal.class)
+        return false;
+      final BigDecimal decimal = (BigDecimal) fieldValue;
+      final byte[] unscaled = decimal.unscaledValue().toByteArray();
+      output.writeVarInt(OBinaryInput.sizeOfVarLong(OBinaryOutput.zigZag(decimal.scale())) + unscaled.length);
+      output.writeSignedVarLong(decimal.scale());
+      output.write(unscaled, 0, unscaled.length);
+      return true;
+    }
+
+    case LINK: {
+      if (!(fieldValue instanceof OIdentifiable))
+        return false;
+      if (!((OIdentifiable) fieldValue).getIdentity().isValid() && fieldValue instanceof ODocument
+          && ((ODocument) fieldValue).isEmbedded())
+        // WRONG: IT'S EMBEDDED!
+        return nativeValueToBinary(record, output, OType.EMBEDDED, fieldName, fieldValue, iMarshalledRecords);
+
+      // SAVE THE LINKED RECORD IF NEEDED
+      final OIdentifiable link = ORecordSerializerCSVAbstract.linkToStream(null, record, fieldValue);
+      if (link != null)
+        // OVERWRITE CONTENT
+        record.field(fieldName, link);
+
+      final ORID rid = (link != null ? link : (OIdentifiable) fieldValue).getIdentity();
+      if (!rid.isValid()) {
+        output.writeVarInt(0);
+        return true;
+      }
+
+      final byte[] position = rid.getClusterPosition().toStream();
+      output.writeVarInt(OBinaryInput.sizeOfVarLong(OBinaryOutput.zigZag(rid.getClusterId())) + position.length);
+      output.writeSignedVarLong(rid.getClusterId());
+      output.write(position, 0, position.length);
+      return true;
+    }
+
+    case EMBEDDED: {
+      if (!(fieldValue instanceof ODocument))
+        return false;
+      final OBinaryOutput embedded = new OBinaryOutput(64);
+      if (!toBinary((ODocument) fieldValue, embedded, false, iMarshalledRecords)) {
+        output.writeVarInt(0);
+        return true;
+      }
+      output.writeVarInt(embedded.size());
+      output.write(embedded.buffer, 0, embedded.size());
+      return true;
+    }
+
+    default:
+      return false;
+    }
+  }
+
+  private void fieldFromBinary(final ODocument record, final String fieldName, final byte iType, final byte[] iSource,
+      final int iOffset, final int iSize) {
+    if (iType == CSV_VALUE) {
+      // WRITTEN AS TEXT: DETERMINE THE TYPE AS THE CSV SERIALIZER DOES
+      ORecordSerializerSchemaAware2CSV.INSTANCE.fieldFromString(record, fieldName,
+          OBinaryProtocol.bytes2string(iSource, iOffset, iSize));
+      return;
+    }
+
+    final OClass cls = record.getSchemaClass();
+    final OProperty prop = cls != null ? cls.getProperty(fieldName) : null;
+    final OType fieldType = prop == null ? record.fieldType(fieldName) : null;
+
+    if (iType == NULL_VALUE) {
+      if (fieldType != null)
+        record.field(fieldName, (Object) null, fieldType);
+      else
+        record.field(fieldName, (Object) null);
+      return;
+    }
+
+    final OType type = OType.getById(iType);
+    if (type == null)
+      throw new OSerializationException("Unknown type " + iType + " for field '" + fieldName + "'");
+
+    final Object value = nativeValueFromBinary(record, type, iSource, iOffset, iSize);
+
+    if (fieldType != null || type == OType.EMBEDDED || (prop == null && type == OType.DATE))
+      // SAVE THE TYPE, DATES WOULD BE DETERMINED AS DATETIME
+      record.field(fieldName, value, fieldType != null ? fieldType : type);
+    else
+      record.field(fieldName, value);
+  }
+
+  private Object nativeValueFromBinary(final ODocument record, final OType type, final byte[] iSource, final int iOffset,
+      final int iSize) {
+    final OBinaryInput input = new OBinaryInput(iSource, iOffset);
+
+    switch (type) {
+    case STRING:
+      return OBinaryProtocol.bytes2string(iSource, iOffset, iSize);
+    case INTEGER:
+      return (int) input.readSignedVarLong();
+    case LONG:
+      return input.readSignedVarLong();
+    case SHORT:
+      return (short) input.readSignedVarLong();
+    case BYTE:
+      return iSource[iOffset];
+    case BOOLEAN:
+      return iSource[iOffset] != 0;
+    case FLOAT:
+      return Float.intBitsToFloat((int) input.readFixedLong(OBinaryProtocol.SIZE_INT));
+    case DOUBLE:
+      return Double.longBitsToDouble(input.readFixedLong(OBinaryProtocol.SIZE_LONG));
+    case DATETIME:
+    case DATE:
+      return new Date(input.readSignedVarLong());
+    case BINARY:
+      return Arrays.copyOfRange(iSource, iOffset, iOffset + iSize);
+
+    case DECIMAL: {
+      final int scale = (int) input.readSignedVarLong();
+      return new BigDecimal(new BigInteger(Arrays.copyOfRange(iSource, input.position, iOffset + iSize)), scale);
+    }
+
+    case LINK: {
+      if (iSize == 0)
+        return null;
+      final int clusterId = (int) input.readSignedVarLong();
+      final OClusterPosition position = OClusterPositionFactory.INSTANCE.fromStream(iSource, input.position);
+      return new ORecordId(clusterId, position);
+    }
+
+    case EMBEDDED: {
+      if (iSize == 0)
+        return null;
+      final ODocument embedded = new ODocument();
+      embedded.fromStream(Arrays.copyOfRange(iSource, iOffset, iOffset + iSize));
+      return embedded.addOwner(record);
+    }
+
+    default:
+      throw new OSerializationException("Type " + type + " cannot be read as native binary value");
+    }
+  }
+
+  /**
+   * Computes the size of the record content applying the same rules of the CSV serializer: the record keeps the space already
+   * allocated and grows by the over-size of its class to reduce fragmentation.
+   */
+  private int getPaddedSize(final ODocument record, final int iSize) {
+    if (record.hasOwners())
+      // EMBEDDED: GET REAL SIZE
+      return iSize;
+
+    if (record.getSize() >= iSize)
+      // FILL ALL THE AVAILABLE SPACE AND AVOID FRAGMENTATION
+      return record.getSize();
+
+    final float overSize = record.getSchemaClass() != null ? record.getSchemaClass().getOverSize() : 0;
+    if (overSize > 0)
+      return (int) (iSize * overSize);
+
+    return iSize;
+  }
+
+  private static boolean isRequested(final String[] iFields, final String iFieldName) {
+    for (String f : iFields)
+      if (f.equals(iFieldName))
+        return true;
+    return false;
+  }
+
+  protected static class OBinaryOutput {
+    private byte[] buffer;
+    private int    position;
+
+    public OBinaryOutput(final int iInitialSize) {
+      buffer = new byte[iInitialSize];
+    }
+
+    public int size() {
+      return position;
+    }
+
+    public void write(final byte iValue) {
+      ensureCapacity(1);
+      buffer[position++] = iValue;
+    }
+
+    public void write(final byte[] iValue, final int iOffset, final int iLength) {
+      ensureCapacity(iLength);
+      System.arraycopy(iValue, iOffset, buffer, position, iLength);
+      position += iLength;
+    }
+
+    /**
+     * Writes the length followed by the bytes.
+     */
+    public void writeBytes(final byte[] iValue) {
+      writeVarInt(iValue.length);
+      write(iValue, 0, iValue.length);
+    }
+
+    /**
+     * Writes a string as its UTF-8 length followed by the UTF-8 bytes, a null string as an empty one.
+     */
+    public void writeString(final String iValue) {
+      if (iValue == null || iValue.length() == 0)
+        writeVarInt(0);
+      else
+        writeBytes(OBinaryProtocol.string2bytes(iValue));
+    }
+
+    public void writeVarInt(final int iValue) {
+      writeVarLong(iValue & 0xFFFFFFFFL);
+    }
+
+    public void writeVarLong(long iValue) {
+      ensureCapacity(10);
+      while ((iValue & ~0x7FL) != 0) {
+        buffer[position++] = (byte) ((iValue & 0x7F) | 0x80);
+        iValue >>>= 7;
+      }
+      buffer[position++] = (byte) iValue;
+    }
+
+    public void writeSignedVarLong(final long iValue) {
+      writeVarLong(zigZag(iValue));
+    }
+
+    /**
+     * Writes the size of the signed variable length integer followed by the integer.
+     */
+    public void writeSignedVarLongWithSize(final long iValue) {
+      final long value = zigZag(iValue);
+      writeVarInt(OBinaryInput.sizeOfVarLong(value));
+      writeVarLong(value);
+    }
+
+    public void writeFixedLong(final long iValue, final int iBytes) {
+      ensureCapacity(iBytes);
+      for (int i = iBytes - 1; i >= 0; --i)
+        buffer[position++] = (byte) (iValue >>> (i * 8));
+    }
+
+    public void truncate(final int iPosition) {
+      position = iPosition;
+    }
+
+    /**
+     * Returns the content filled with zeros till the requested size.
+     */
+    public byte[] toByteArray(final int iSize) {
+      return Arrays.copyOf(buffer, Math.max(iSize, position));
+    }
+
+    private static long zigZag(final long iValue) {
+      return (iValue << 1) ^ (iValue >> 63);
+    }
+
+    private void ensureCapacity(final int iBytes) {
+      if (position + iBytes > buffer.length)
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + iBytes));
+    }
+  }
+
+  protected static class OBinaryInput {
+    private final byte[] buffer;
+    private int          position;
+
+    public OBinaryInput(final byte[] iBuffer, final int iPosition) {
+      buffer = iBuffer;
+      position = iPosition;
+    }
+
+    public byte readByte() {
+      return buffer[position++];
+    }
+
+    public String readString() {
+      final int length = readVarInt();
+      if (length == 0)
+        return null;
+
+      final String value = OBinaryProtocol.bytes2string(buffer, position, length);
+      position += length;
+      return value;
+    }
+
+    public int readVarInt() {
+      return (int) readVarLong();
+    }
+
+    public long readVarLong() {
+      long value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = buffer[position++];
+        value |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return value;
+    }
+
+    public long readSignedVarLong() {
+      final long value = readVarLong();
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    public long readFixedLong(final int iBytes) {
+      long value = 0;
+      for (int i = 0; i < iBytes; ++i)
+        value = (value << 8) | (buffer[position++] & 0xFF);
+      return value;
+    }
+
+    private static int sizeOfVarLong(long iValue) {
+      int size = 1;
+      while ((iValue & ~0x7FL) != 0) {
+        size++;
+        iValue >>>= 7;
+      }
+      return size;
+    }
+  }
+}
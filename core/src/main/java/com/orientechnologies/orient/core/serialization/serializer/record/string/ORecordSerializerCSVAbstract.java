@@ -54,6 +54,7 @@ import com.orientechnologies.orient.core.record.ORecordSchemaAware;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
 import com.orientechnologies.orient.core.serialization.serializer.object.OObjectSerializerHelperManager;
+import com.orientechnologies.orient.core.serialization.serializer.record.OPreCommitSerializationThreadLocal;
 import com.orientechnologies.orient.core.serialization.serializer.string.OStringSerializerEmbedded;
 import com.orientechnologies.orient.core.type.tree.OMVRBTreeRIDSet;
 
@@ -344,6 +345,9 @@ public abstract class ORecordSerializerCSVAbstract extends ORecordSerializerStri
     }
 
     case LINKSET: {
+      // LINKED RECORDS OF THE SET CAN BE SAVED ONLY DURING COMMIT
+      OPreCommitSerializationThreadLocal.INSTANCE.abortIfActive();
+
       final OMVRBTreeRIDSet coll;
 
       if (!(iValue instanceof OMVRBTreeRIDSet)) {
@@ -667,8 +671,10 @@ public abstract class ORecordSerializerCSVAbstract extends ORecordSerializerStri
         if (id instanceof ODocument) {
           doc = (ODocument) id;
 
-          if (id.getIdentity().isTemporary())
+          if (id.getIdentity().isTemporary()) {
+            OPreCommitSerializationThreadLocal.INSTANCE.abortIfActive();
             doc.save();
+          }
 
           linkedClass = doc.getSchemaClass();
         } else
@@ -731,15 +737,16 @@ public abstract class ORecordSerializerCSVAbstract extends ORecordSerializerStri
   }
 
   /**
-   * Serialize the link.
+   * Serialize the link, saving the linked record if it is new or dirty.
    * 
    * @param buffer
+   *          Buffer to append the RID to, or null to only save the linked record
    * @param iParentRecord
    * @param iLinked
    *          Can be an instance of ORID or a Record<?>
-   * @return
+   * @return The RID or the record to replace the linked value with, or null if the value doesn't change
    */
-  private static OIdentifiable linkToStream(final StringBuilder buffer, final ORecordSchemaAware<?> iParentRecord, Object iLinked) {
+  public static OIdentifiable linkToStream(final StringBuilder buffer, final ORecordSchemaAware<?> iParentRecord, Object iLinked) {
     if (iLinked == null)
       // NULL REFERENCE
       return null;
@@ -752,6 +759,8 @@ public abstract class ORecordSerializerCSVAbstract extends ORecordSerializerStri
       rid = (ORID) iLinked;
 
       if (rid.isValid() && rid.isNew()) {
+        OPreCommitSerializationThreadLocal.INSTANCE.abortIfActive();
+
         // SAVE AT THE FLY AND STORE THE NEW RID
         final ORecord<?> record = rid.getRecord();
 
@@ -785,6 +794,10 @@ public abstract class ORecordSerializerCSVAbstract extends ORecordSerializerStri
       ORecordInternal<?> iLinkedRecord = ((OIdentifiable) iLinked).getRecord();
       rid = iLinkedRecord.getIdentity();
 
+      if (rid.isNew() || iLinkedRecord.isDirty())
+        // NEW RID IS NOT KNOWN YET AND DIRTY RECORD HAS TO BE SAVED FIRST
+        OPreCommitSerializationThreadLocal.INSTANCE.abortIfActive();
+
       if ((rid.isNew() && !rid.isTemporary()) || iLinkedRecord.isDirty()) {
         final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.get();
         if (iLinkedRecord instanceof ODocument) {
@@ -809,7 +822,7 @@ public abstract class ORecordSerializerCSVAbstract extends ORecordSerializerStri
       }
     }
 
-    if (rid.isValid())
+    if (buffer != null && rid.isValid())
       rid.toString(buffer);
 
     return resultRid;
@@ -17,6 +17,7 @@ package com.orientechnologies.orient.core.serialization.serializer.record.string
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
@@ -41,7 +42,10 @@ import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.ORecordSchemaAware;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordFieldIndex;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerSchemaAware2Binary;
 import com.orientechnologies.orient.core.type.tree.OMVRBTreeRIDSet;
 
 public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstract {
@@ -84,11 +88,6 @@ public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstra
       iOutput.append(OStringSerializerHelper.CLASS_SEPARATOR);
     }
 
-    OProperty prop;
-    OType type;
-    OClass linkedClass;
-    OType linkedType;
-    String fieldClassName;
     int i = 0;
 
     final String[] fieldNames = iOnlyDelta && record.isTrackingChanges() ? record.getDirtyFields() : record.fieldNames();
@@ -98,195 +97,12 @@ public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstra
 
     // MARSHALL ALL THE FIELDS OR DELTA IF TRACKING IS ENABLED
     for (String fieldName : fieldNames) {
-      Object fieldValue = record.rawField(fieldName);
       if (i > 0)
         iOutput.append(OStringSerializerHelper.RECORD_SEPARATOR);
 
-      // SEARCH FOR A CONFIGURED PROPERTY
-      prop = record.getSchemaClass() != null ? record.getSchemaClass().getProperty(fieldName) : null;
-      fieldClassName = getClassName(fieldValue);
-
-      type = record.fieldType(fieldName);
-      linkedClass = null;
-      linkedType = null;
-
-      if (prop != null) {
-        // RECOGNIZED PROPERTY
-        type = prop.getType();
-        linkedClass = prop.getLinkedClass();
-        linkedType = prop.getLinkedType();
-
-      } else if (fieldValue != null) {
-        // NOT FOUND: TRY TO DETERMINE THE TYPE FROM ITS CONTENT
-        if (type == null) {
-          if (fieldValue.getClass() == byte[].class)
-            type = OType.BINARY;
-          else if (ODatabaseRecordThreadLocal.INSTANCE.isDefined() && fieldValue instanceof ORecord<?>) {
-            if (type == null)
-              // DETERMINE THE FIELD TYPE
-              if (fieldValue instanceof ODocument && ((ODocument) fieldValue).hasOwners())
-                type = OType.EMBEDDED;
-              else
-                type = OType.LINK;
-
-            linkedClass = getLinkInfo(ODatabaseRecordThreadLocal.INSTANCE.get(), fieldClassName);
-          } else if (fieldValue instanceof ORID)
-            // DETERMINE THE FIELD TYPE
-            type = OType.LINK;
-
-          else if (ODatabaseRecordThreadLocal.INSTANCE.isDefined()
-              && ODatabaseRecordThreadLocal.INSTANCE.get().getDatabaseOwner() instanceof ODatabaseObject
-              && ((ODatabaseObject) ODatabaseRecordThreadLocal.INSTANCE.get().getDatabaseOwner()).getEntityManager()
-                  .getEntityClass(fieldClassName) != null) {
-            // DETERMINE THE FIELD TYPE
-            type = OType.LINK;
-            linkedClass = getLinkInfo(ODatabaseRecordThreadLocal.INSTANCE.get(), fieldClassName);
-          } else if (fieldValue instanceof Date)
-            type = OType.DATETIME;
-          else if (fieldValue instanceof String)
-            type = OType.STRING;
-          else if (fieldValue instanceof Integer || fieldValue instanceof BigInteger)
-            type = OType.INTEGER;
-          else if (fieldValue instanceof Long)
-            type = OType.LONG;
-          else if (fieldValue instanceof Float)
-            type = OType.FLOAT;
-          else if (fieldValue instanceof Short)
-            type = OType.SHORT;
-          else if (fieldValue instanceof Byte)
-            type = OType.BYTE;
-          else if (fieldValue instanceof Double)
-            type = OType.DOUBLE;
-          else if (fieldValue instanceof BigDecimal)
-            type = OType.DECIMAL;
-        }
-
-        if (fieldValue instanceof OMultiCollectionIterator<?>) {
-          type = ((OMultiCollectionIterator<?>) fieldValue).isEmbedded() ? OType.EMBEDDEDLIST : OType.LINKLIST;
-          linkedType = ((OMultiCollectionIterator<?>) fieldValue).isEmbedded() ? OType.EMBEDDED : OType.LINK;
-        } else if (fieldValue instanceof Collection<?> || fieldValue.getClass().isArray()) {
-          final int size = OMultiValue.getSize(fieldValue);
-
-          Boolean autoConvertLinks = null;
-          if (fieldValue instanceof ORecordLazyMultiValue) {
-            autoConvertLinks = ((ORecordLazyMultiValue) fieldValue).isAutoConvertToRecord();
-            if (autoConvertLinks)
-              // DISABLE AUTO CONVERT
-              ((ORecordLazyMultiValue) fieldValue).setAutoConvertToRecord(false);
-          }
-
-          if (autoDetectCollectionType)
-            if (size > 0) {
-              final Object firstValue = OMultiValue.getFirstValue(fieldValue);
-
-              if (firstValue != null) {
-                if (firstValue instanceof ORID) {
-                  linkedClass = null;
-                  linkedType = OType.LINK;
-                  if (fieldValue instanceof Set<?>)
-                    type = OType.LINKSET;
-                  else
-                    type = OType.LINKLIST;
-                } else if (ODatabaseRecordThreadLocal.INSTANCE.isDefined()
-                    && (firstValue instanceof ODocument && !((ODocument) firstValue).isEmbedded())
-                    && (firstValue instanceof ORecord<?> || (ODatabaseRecordThreadLocal.INSTANCE.get().getDatabaseOwner() instanceof ODatabaseObject && ((ODatabaseObject) ODatabaseRecordThreadLocal.INSTANCE
-                        .get().getDatabaseOwner()).getEntityManager().getEntityClass(getClassName(firstValue)) != null))) {
-                  linkedClass = getLinkInfo(ODatabaseRecordThreadLocal.INSTANCE.get(), getClassName(firstValue));
-                  if (type == null) {
-                    // LINK: GET THE CLASS
-                    linkedType = OType.LINK;
-
-                    if (fieldValue instanceof Set<?>)
-                      type = OType.LINKSET;
-                    else
-                      type = OType.LINKLIST;
-                  } else
-                    linkedType = OType.EMBEDDED;
-                } else {
-                  // EMBEDDED COLLECTION
-                  if (firstValue instanceof ODocument
-                      && ((((ODocument) firstValue).hasOwners()) || type == OType.EMBEDDEDSET || type == OType.EMBEDDEDLIST || type == OType.EMBEDDEDMAP))
-                    linkedType = OType.EMBEDDED;
-                  else if (firstValue instanceof Enum<?>)
-                    linkedType = OType.STRING;
-                  else {
-                    linkedType = OType.getTypeByClass(firstValue.getClass());
-
-                    if (linkedType != OType.LINK) {
-                      // EMBEDDED FOR SURE SINCE IT CONTAINS JAVA TYPES
-                      if (linkedType == null) {
-                        linkedType = OType.EMBEDDED;
-                        // linkedClass = new OClass(firstValue.getClass());
-                      }
-                    }
-                  }
-
-                  if (type == null)
-                    if (fieldValue instanceof OMVRBTreeRIDSet)
-                      type = OType.LINKSET;
-                    else if (fieldValue instanceof Set<?>)
-                      type = OType.EMBEDDEDSET;
-                    else
-                      type = OType.EMBEDDEDLIST;
-                }
-              }
-            } else if (type == null)
-              type = OType.EMBEDDEDLIST;
-
-          if (fieldValue instanceof ORecordLazyMultiValue && autoConvertLinks) {
-            // REPLACE PREVIOUS SETTINGS
-            ((ORecordLazyMultiValue) fieldValue).setAutoConvertToRecord(true);
-          }
-
-        } else if (fieldValue instanceof Map<?, ?> && type == null) {
-          final int size = OMultiValue.getSize(fieldValue);
-
-          Boolean autoConvertLinks = null;
-          if (fieldValue instanceof ORecordLazyMap) {
-            autoConvertLinks = ((ORecordLazyMap) fieldValue).isAutoConvertToRecord();
-            if (autoConvertLinks)
-              // DISABLE AUTO CONVERT
-              ((ORecordLazyMap) fieldValue).setAutoConvertToRecord(false);
-          }
-
-          if (size > 0) {
-            final Object firstValue = OMultiValue.getFirstValue(fieldValue);
-
-            if (firstValue != null) {
-              if (ODatabaseRecordThreadLocal.INSTANCE.isDefined()
-                  && (firstValue instanceof ODocument && !((ODocument) firstValue).isEmbedded())
-                  && (firstValue instanceof ORecord<?> || (ODatabaseRecordThreadLocal.INSTANCE.get().getDatabaseOwner() instanceof ODatabaseObject && ((ODatabaseObject) ODatabaseRecordThreadLocal.INSTANCE
-                      .get().getDatabaseOwner()).getEntityManager().getEntityClass(getClassName(firstValue)) != null))) {
-                linkedClass = getLinkInfo(ODatabaseRecordThreadLocal.INSTANCE.get(), getClassName(firstValue));
-                // LINK: GET THE CLASS
-                linkedType = OType.LINK;
-                type = OType.LINKMAP;
-              }
-            }
-          }
-
-          if (type == null)
-            type = OType.EMBEDDEDMAP;
-
-          if (fieldValue instanceof ORecordLazyMap && autoConvertLinks)
-            // REPLACE PREVIOUS SETTINGS
-            ((ORecordLazyMap) fieldValue).setAutoConvertToRecord(true);
-        }
-      }
-
-      if (type == OType.TRANSIENT)
-        // TRANSIENT FIELD
-        continue;
-
-      if (type == null)
-        type = OType.EMBEDDED;
-
-      iOutput.append(fieldName);
-      iOutput.append(FIELD_VALUE_SEPARATOR);
-      fieldToStream((ODocument) iRecord, iOutput, iObjHandler, type, linkedClass, linkedType, fieldName, fieldValue,
-          iMarshalledRecords, true);
-
-      i++;
+      if (fieldToStream(record, iOutput, iObjHandler, fieldName, record.rawField(fieldName), iMarshalledRecords,
+          autoDetectCollectionType, true) != null)
+        i++;
     }
 
     if (iMarshalledRecords != null)
@@ -327,6 +143,210 @@ public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstra
     return iOutput;
   }
 
+  /**
+   * Marshalls a field of a document, determining its type from the schema, the type set in the document or its content.
+   *
+   * @param iAppendName
+   *          Appends the field name and the separator before the value
+   * @return The type the field has been marshalled with, or null if the field is transient and nothing has been written
+   */
+  public OType fieldToStream(final ODocument record, final StringBuilder iOutput, final OUserObject2RecordHandler iObjHandler,
+      final String fieldName, final Object fieldValue, final Set<ODocument> iMarshalledRecords,
+      final boolean autoDetectCollectionType, final boolean iAppendName) {
+    OProperty prop;
+    OType type;
+    OClass linkedClass;
+    OType linkedType;
+    String fieldClassName;
+
+    // SEARCH FOR A CONFIGURED PROPERTY
+    prop = record.getSchemaClass() != null ? record.getSchemaClass().getProperty(fieldName) : null;
+    fieldClassName = getClassName(fieldValue);
+
+    type = record.fieldType(fieldName);
+    linkedClass = null;
+    linkedType = null;
+
+    if (prop != null) {
+      // RECOGNIZED PROPERTY
+      type = prop.getType();
+      linkedClass = prop.getLinkedClass();
+      linkedType = prop.getLinkedType();
+
+    } else if (fieldValue != null) {
+      // NOT FOUND: TRY TO DETERMINE THE TYPE FROM ITS CONTENT
+      if (type == null) {
+        if (fieldValue.getClass() == byte[].class)
+          type = OType.BINARY;
+        else if (ODatabaseRecordThreadLocal.INSTANCE.isDefined() && fieldValue instanceof ORecord<?>) {
+          if (type == null)
+            // DETERMINE THE FIELD TYPE
+            if (fieldValue instanceof ODocument && ((ODocument) fieldValue).hasOwners())
+              type = OType.EMBEDDED;
+            else
+              type = OType.LINK;
+
+          linkedClass = getLinkInfo(ODatabaseRecordThreadLocal.INSTANCE.get(), fieldClassName);
+        } else if (fieldValue instanceof ORID)
+          // DETERMINE THE FIELD TYPE
+          type = OType.LINK;
+
+        else if (ODatabaseRecordThreadLocal.INSTANCE.isDefined()
+            && ODatabaseRecordThreadLocal.INSTANCE.get().getDatabaseOwner() instanceof ODatabaseObject
+            && ((ODatabaseObject) ODatabaseRecordThreadLocal.INSTANCE.get().getDatabaseOwner()).getEntityManager()
+                .getEntityClass(fieldClassName) != null) {
+          // DETERMINE THE FIELD TYPE
+          type = OType.LINK;
+          linkedClass = getLinkInfo(ODatabaseRecordThreadLocal.INSTANCE.get(), fieldClassName);
+        } else if (fieldValue instanceof Date)
+          type = OType.DATETIME;
+        else if (fieldValue instanceof String)
+          type = OType.STRING;
+        else if (fieldValue instanceof Integer || fieldValue instanceof BigInteger)
+          type = OType.INTEGER;
+        else if (fieldValue instanceof Long)
+          type = OType.LONG;
+        else if (fieldValue instanceof Float)
+          type = OType.FLOAT;
+        else if (fieldValue instanceof Short)
+          type = OType.SHORT;
+        else if (fieldValue instanceof Byte)
+          type = OType.BYTE;
+        else if (fieldValue instanceof Double)
+          type = OType.DOUBLE;
+        else if (fieldValue instanceof BigDecimal)
+          type = OType.DECIMAL;
+      }
+
+      if (fieldValue instanceof OMultiCollectionIterator<?>) {
+        type = ((OMultiCollectionIterator<?>) fieldValue).isEmbedded() ? OType.EMBEDDEDLIST : OType.LINKLIST;
+        linkedType = ((OMultiCollectionIterator<?>) fieldValue).isEmbedded() ? OType.EMBEDDED : OType.LINK;
+      } else if (fieldValue instanceof Collection<?> || fieldValue.getClass().isArray()) {
+        final int size = OMultiValue.getSize(fieldValue);
+
+        Boolean autoConvertLinks = null;
+        if (fieldValue instanceof ORecordLazyMultiValue) {
+          autoConvertLinks = ((ORecordLazyMultiValue) fieldValue).isAutoConvertToRecord();
+          if (autoConvertLinks)
+            // DISABLE AUTO CONVERT
+            ((ORecordLazyMultiValue) fieldValue).setAutoConvertToRecord(false);
+        }
+
+        if (autoDetectCollectionType)
+          if (size > 0) {
+            final Object firstValue = OMultiValue.getFirstValue(fieldValue);
+
+            if (firstValue != null) {
+              if (firstValue instanceof ORID) {
+                linkedClass = null;
+                linkedType = OType.LINK;
+                if (fieldValue instanceof Set<?>)
+                  type = OType.LINKSET;
+                else
+                  type = OType.LINKLIST;
+              } else if (ODatabaseRecordThreadLocal.INSTANCE.isDefined()
+                  && (firstValue instanceof ODocument && !((ODocument) firstValue).isEmbedded())
+                  && (firstValue instanceof ORecord<?> || (ODatabaseRecordThreadLocal.INSTANCE.get().getDatabaseOwner() instanceof ODatabaseObject && ((ODatabaseObject) ODatabaseRecordThreadLocal.INSTANCE
+                      .get().getDatabaseOwner()).getEntityManager().getEntityClass(getClassName(firstValue)) != null))) {
+                linkedClass = getLinkInfo(ODatabaseRecordThreadLocal.INSTANCE.get(), getClassName(firstValue));
+                if (type == null) {
+                  // LINK: GET THE CLASS
+                  linkedType = OType.LINK;
+
+                  if (fieldValue instanceof Set<?>)
+                    type = OType.LINKSET;
+                  else
+                    type = OType.LINKLIST;
+                } else
+                  linkedType = OType.EMBEDDED;
+              } else {
+                // EMBEDDED COLLECTION
+                if (firstValue instanceof ODocument
+                    && ((((ODocument) firstValue).hasOwners()) || type == OType.EMBEDDEDSET || type == OType.EMBEDDEDLIST || type == OType.EMBEDDEDMAP))
+                  linkedType = OType.EMBEDDED;
+                else if (firstValue instanceof Enum<?>)
+                  linkedType = OType.STRING;
+                else {
+                  linkedType = OType.getTypeByClass(firstValue.getClass());
+
+                  if (linkedType != OType.LINK) {
+                    // EMBEDDED FOR SURE SINCE IT CONTAINS JAVA TYPES
+                    if (linkedType == null) {
+                      linkedType = OType.EMBEDDED;
+                      // linkedClass = new OClass(firstValue.getClass());
+                    }
+                  }
+                }
+
+                if (type == null)
+                  if (fieldValue instanceof OMVRBTreeRIDSet)
+                    type = OType.LINKSET;
+                  else if (fieldValue instanceof Set<?>)
+                    type = OType.EMBEDDEDSET;
+                  else
+                    type = OType.EMBEDDEDLIST;
+              }
+            }
+          } else if (type == null)
+            type = OType.EMBEDDEDLIST;
+
+        if (fieldValue instanceof ORecordLazyMultiValue && autoConvertLinks) {
+          // REPLACE PREVIOUS SETTINGS
+          ((ORecordLazyMultiValue) fieldValue).setAutoConvertToRecord(true);
+        }
+
+      } else if (fieldValue instanceof Map<?, ?> && type == null) {
+        final int size = OMultiValue.getSize(fieldValue);
+
+        Boolean autoConvertLinks = null;
+        if (fieldValue instanceof ORecordLazyMap) {
+          autoConvertLinks = ((ORecordLazyMap) fieldValue).isAutoConvertToRecord();
+          if (autoConvertLinks)
+            // DISABLE AUTO CONVERT
+            ((ORecordLazyMap) fieldValue).setAutoConvertToRecord(false);
+        }
+
+        if (size > 0) {
+          final Object firstValue = OMultiValue.getFirstValue(fieldValue);
+
+          if (firstValue != null) {
+            if (ODatabaseRecordThreadLocal.INSTANCE.isDefined()
+                && (firstValue instanceof ODocument && !((ODocument) firstValue).isEmbedded())
+                && (firstValue instanceof ORecord<?> || (ODatabaseRecordThreadLocal.INSTANCE.get().getDatabaseOwner() instanceof ODatabaseObject && ((ODatabaseObject) ODatabaseRecordThreadLocal.INSTANCE
+                    .get().getDatabaseOwner()).getEntityManager().getEntityClass(getClassName(firstValue)) != null))) {
+              linkedClass = getLinkInfo(ODatabaseRecordThreadLocal.INSTANCE.get(), getClassName(firstValue));
+              // LINK: GET THE CLASS
+              linkedType = OType.LINK;
+              type = OType.LINKMAP;
+            }
+          }
+        }
+
+        if (type == null)
+          type = OType.EMBEDDEDMAP;
+
+        if (fieldValue instanceof ORecordLazyMap && autoConvertLinks)
+          // REPLACE PREVIOUS SETTINGS
+          ((ORecordLazyMap) fieldValue).setAutoConvertToRecord(true);
+      }
+    }
+
+    if (type == OType.TRANSIENT)
+      // TRANSIENT FIELD
+      return null;
+
+    if (type == null)
+      type = OType.EMBEDDED;
+
+    if (iAppendName) {
+      iOutput.append(fieldName);
+      iOutput.append(FIELD_VALUE_SEPARATOR);
+    }
+    fieldToStream(record, iOutput, iObjHandler, type, linkedClass, linkedType, fieldName, fieldValue, iMarshalledRecords, true);
+
+    return type;
+  }
+
   private String getClassName(final Object iValue) {
     if (iValue instanceof ORecordSchemaAware<?>)
       return ((ORecordSchemaAware<?>) iValue).getClassName();
@@ -379,16 +399,10 @@ public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstra
 
     String field;
     String fieldName = null;
-    String fieldValue;
-    OType type = null;
-    OClass linkedClass;
-    OType linkedType;
-    OProperty prop;
 
     // UNMARSHALL ALL THE FIELDS
     for (int i = 0; i < fields.size(); ++i) {
       field = fields.get(i).trim();
-      boolean uncertainType = false;
 
       try {
         pos = field.indexOf(FIELD_VALUE_SEPARATOR);
@@ -415,102 +429,7 @@ public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstra
           }
 
           // GET THE FIELD VALUE
-          fieldValue = field.length() > pos + 1 ? field.substring(pos + 1) : null;
-
-          boolean setFieldType = false;
-
-          // SEARCH FOR A CONFIGURED PROPERTY
-          prop = record.getSchemaClass() != null ? record.getSchemaClass().getProperty(fieldName) : null;
-          if (prop != null) {
-            // RECOGNIZED PROPERTY
-            type = prop.getType();
-            linkedClass = prop.getLinkedClass();
-            linkedType = prop.getLinkedType();
-
-          } else {
-            // SCHEMA PROPERTY NOT FOUND FOR THIS FIELD: TRY TO AUTODETERMINE THE BEST TYPE
-            type = record.fieldType(fieldName);
-            if (type != null)
-              setFieldType = true;
-            linkedClass = null;
-            linkedType = null;
-
-            // NOT FOUND: TRY TO DETERMINE THE TYPE FROM ITS CONTENT
-            if (fieldValue != null && type == null) {
-              if (fieldValue.length() > 1 && fieldValue.charAt(0) == '"' && fieldValue.charAt(fieldValue.length() - 1) == '"') {
-                type = OType.STRING;
-              } else if (fieldValue.charAt(0) == OStringSerializerHelper.LIST_BEGIN
-                  && fieldValue.charAt(fieldValue.length() - 1) == OStringSerializerHelper.LIST_END
-                  || fieldValue.charAt(0) == OStringSerializerHelper.SET_BEGIN
-                  && fieldValue.charAt(fieldValue.length() - 1) == OStringSerializerHelper.SET_END) {
-                // EMBEDDED LIST/SET
-                type = fieldValue.charAt(0) == OStringSerializerHelper.LIST_BEGIN ? OType.EMBEDDEDLIST : OType.EMBEDDEDSET;
-
-                final String value = fieldValue.substring(1, fieldValue.length() - 1);
-
-                if (!value.isEmpty()) {
-                  if (value.charAt(0) == OStringSerializerHelper.LINK) {
-                    // ASSURE ALL THE ITEMS ARE RID
-                    final List<String> items = OStringSerializerHelper.smartSplit(value, ',');
-                    boolean allLinks = true;
-                    for (String it : items)
-                      if (!it.startsWith("#")) {
-                        allLinks = false;
-                        break;
-                      }
-
-                    if (allLinks) {
-                      type = fieldValue.charAt(0) == OStringSerializerHelper.LIST_BEGIN ? OType.LINKLIST : OType.LINKSET;
-                      linkedType = OType.LINK;
-
-                      // GET THE CLASS NAME IF ANY
-                      // TODO: CAN WE REMOVE THIS?
-                      int classSeparatorPos = value.indexOf(OStringSerializerHelper.CLASS_SEPARATOR);
-                      if (classSeparatorPos > -1) {
-                        String className = value.substring(1, classSeparatorPos);
-                        if (className != null)
-                          linkedClass = ODatabaseRecordThreadLocal.INSTANCE.get().getMetadata().getSchema().getClass(className);
-                      }
-                    }
-                  } else if (value.charAt(0) == OStringSerializerHelper.EMBEDDED_BEGIN) {
-                    linkedType = OType.EMBEDDED;
-                  } else if (value.charAt(0) == OStringSerializerHelper.CUSTOM_TYPE) {
-                    linkedType = OType.CUSTOM;
-                  } else if (Character.isDigit(value.charAt(0)) || value.charAt(0) == '+' || value.charAt(0) == '-') {
-                    String[] items = value.split(",");
-                    linkedType = getType(items[0]);
-                  } else if (value.charAt(0) == '\'' || value.charAt(0) == '"')
-                    linkedType = OType.STRING;
-                } else
-                  uncertainType = true;
-
-              } else if (fieldValue.charAt(0) == OStringSerializerHelper.MAP_BEGIN
-                  && fieldValue.charAt(fieldValue.length() - 1) == OStringSerializerHelper.MAP_END) {
-                type = OType.EMBEDDEDMAP;
-              } else if (fieldValue.charAt(0) == OStringSerializerHelper.LINK)
-                type = OType.LINK;
-              else if (fieldValue.charAt(0) == OStringSerializerHelper.EMBEDDED_BEGIN) {
-                // TEMPORARY PATCH
-                if (fieldValue.startsWith("(ORIDs"))
-                  type = OType.LINKSET;
-                else
-                  type = OType.EMBEDDED;
-              } else if (fieldValue.equals("true") || fieldValue.equals("false"))
-                type = OType.BOOLEAN;
-              else
-                type = getType(fieldValue);
-            }
-          }
-
-          if (setFieldType || type == OType.EMBEDDEDLIST || type == OType.EMBEDDEDSET || type == OType.EMBEDDEDMAP
-              || type == OType.EMBEDDED)
-            // SAVE THE TYPE AS EMBEDDED
-            record.field(fieldName, fieldFromStream(iRecord, type, linkedClass, linkedType, fieldName, fieldValue), type);
-          else
-            record.field(fieldName, fieldFromStream(iRecord, type, linkedClass, linkedType, fieldName, fieldValue));
-
-          if (uncertainType)
-            record.setFieldType(fieldName, null);
+          fieldFromString(record, fieldName, field.length() > pos + 1 ? field.substring(pos + 1) : null);
         }
       } catch (Exception e) {
         OLogManager.instance().exception("Error on unmarshalling field '%s' in record %s with value: ", e,
@@ -521,6 +440,204 @@ public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstra
     return iRecord;
   }
 
+  /**
+   * Unmarshalls a field of a document, determining its type from the schema, the type set in the document or its content.
+   */
+  public void fieldFromString(final ODocument record, final String fieldName, final String fieldValue) {
+    OType type;
+    OClass linkedClass;
+    OType linkedType;
+    OProperty prop;
+    boolean uncertainType = false;
+    boolean setFieldType = false;
+
+    // SEARCH FOR A CONFIGURED PROPERTY
+    prop = record.getSchemaClass() != null ? record.getSchemaClass().getProperty(fieldName) : null;
+    if (prop != null) {
+      // RECOGNIZED PROPERTY
+      type = prop.getType();
+      linkedClass = prop.getLinkedClass();
+      linkedType = prop.getLinkedType();
+
+    } else {
+      // SCHEMA PROPERTY NOT FOUND FOR THIS FIELD: TRY TO AUTODETERMINE THE BEST TYPE
+      type = record.fieldType(fieldName);
+      if (type != null)
+        setFieldType = true;
+      linkedClass = null;
+      linkedType = null;
+
+      // NOT FOUND: TRY TO DETERMINE THE TYPE FROM ITS CONTENT
+      if (fieldValue != null && type == null) {
+        if (fieldValue.length() > 1 && fieldValue.charAt(0) == '"' && fieldValue.charAt(fieldValue.length() - 1) == '"') {
+          type = OType.STRING;
+        } else if (fieldValue.charAt(0) == OStringSerializerHelper.LIST_BEGIN
+            && fieldValue.charAt(fieldValue.length() - 1) == OStringSerializerHelper.LIST_END
+            || fieldValue.charAt(0) == OStringSerializerHelper.SET_BEGIN
+            && fieldValue.charAt(fieldValue.length() - 1) == OStringSerializerHelper.SET_END) {
+          // EMBEDDED LIST/SET
+          type = fieldValue.charAt(0) == OStringSerializerHelper.LIST_BEGIN ? OType.EMBEDDEDLIST : OType.EMBEDDEDSET;
+
+          final String value = fieldValue.substring(1, fieldValue.length() - 1);
+
+          if (!value.isEmpty()) {
+            if (value.charAt(0) == OStringSerializerHelper.LINK) {
+              // ASSURE ALL THE ITEMS ARE RID
+              final List<String> items = OStringSerializerHelper.smartSplit(value, ',');
+              boolean allLinks = true;
+              for (String it : items)
+                if (!it.startsWith("#")) {
+                  allLinks = false;
+                  break;
+                }
+
+              if (allLinks) {
+                type = fieldValue.charAt(0) == OStringSerializerHelper.LIST_BEGIN ? OType.LINKLIST : OType.LINKSET;
+                linkedType = OType.LINK;
+
+                // GET THE CLASS NAME IF ANY
+                // TODO: CAN WE REMOVE THIS?
+                int classSeparatorPos = value.indexOf(OStringSerializerHelper.CLASS_SEPARATOR);
+                if (classSeparatorPos > -1) {
+                  String className = value.substring(1, classSeparatorPos);
+                  if (className != null)
+                    linkedClass = ODatabaseRecordThreadLocal.INSTANCE.get().getMetadata().getSchema().getClass(className);
+                }
+              }
+            } else if (value.charAt(0) == OStringSerializerHelper.EMBEDDED_BEGIN) {
+              linkedType = OType.EMBEDDED;
+            } else if (value.charAt(0) == OStringSerializerHelper.CUSTOM_TYPE) {
+              linkedType = OType.CUSTOM;
+            } else if (Character.isDigit(value.charAt(0)) || value.charAt(0) == '+' || value.charAt(0) == '-') {
+              String[] items = value.split(",");
+              linkedType = getType(items[0]);
+            } else if (value.charAt(0) == '\'' || value.charAt(0) == '"')
+              linkedType = OType.STRING;
+          } else
+            uncertainType = true;
+
+        } else if (fieldValue.charAt(0) == OStringSerializerHelper.MAP_BEGIN
+            && fieldValue.charAt(fieldValue.length() - 1) == OStringSerializerHelper.MAP_END) {
+          type = OType.EMBEDDEDMAP;
+        } else if (fieldValue.charAt(0) == OStringSerializerHelper.LINK)
+          type = OType.LINK;
+        else if (fieldValue.charAt(0) == OStringSerializerHelper.EMBEDDED_BEGIN) {
+          // TEMPORARY PATCH
+          if (fieldValue.startsWith("(ORIDs"))
+            type = OType.LINKSET;
+          else
+            type = OType.EMBEDDED;
+        } else if (fieldValue.equals("true") || fieldValue.equals("false"))
+          type = OType.BOOLEAN;
+        else
+          type = getType(fieldValue);
+      }
+    }
+
+    if (setFieldType || type == OType.EMBEDDEDLIST || type == OType.EMBEDDEDSET || type == OType.EMBEDDEDMAP
+        || type == OType.EMBEDDED)
+      // SAVE THE TYPE AS EMBEDDED
+      record.field(fieldName, fieldFromStream(record, type, linkedClass, linkedType, fieldName, fieldValue), type);
+    else
+      record.field(fieldName, fieldFromStream(record, type, linkedClass, linkedType, fieldName, fieldValue));
+
+    if (uncertainType)
+      record.setFieldType(fieldName, null);
+  }
+
+  @Override
+  public ORecordInternal<?> fromStream(final byte[] iSource, final ORecordInternal<?> iRecord, final String[] iFields) {
+    if (ORecordSerializerSchemaAware2Binary.isBinary(iSource))
+      // WRITTEN BY A DATABASE USING THE BINARY FORMAT
+      return ORecordSerializerSchemaAware2Binary.INSTANCE.fromStream(iSource, iRecord, iFields);
+
+    if (iRecord instanceof ODocument) {
+      final ORecordFieldIndex index = ((ODocument) iRecord).getFieldIndex();
+      if (iFields != null && iFields.length > 0 || index != null && index.isIndexOf(iSource))
+        // PARTIAL UNMARSHALLING OR CONTENT ALREADY INDEXED: AVOID TO PARSE THE CONTENT AGAIN
+        return fromFieldIndex(iSource, (ODocument) iRecord, iFields);
+    }
+
+    return super.fromStream(iSource, iRecord, iFields);
+  }
+
+  /**
+   * Unmarshalls the requested fields, or all the fields not unmarshalled yet if none is requested, by using the index of the fields
+   * kept in the document. The index is built at the first call by splitting the content once.
+   */
+  protected ODocument fromFieldIndex(final byte[] iSource, final ODocument record, final String[] iFields) {
+    final long timer = PROFILER.startChrono();
+
+    try {
+      ORecordFieldIndex index = record.getFieldIndex();
+      if (index == null || !index.isIndexOf(iSource)) {
+        index = buildFieldIndex(iSource);
+        record.setFieldIndex(index);
+      }
+
+      if (index.getClassName() == null && index.size() == 0)
+        // EMPTY CONTENT
+        return record;
+
+      record.setClassNameIfExists(index.getClassName());
+
+      if (iFields != null && iFields.length == 1 && iFields[0].equals("@class"))
+        // ONLY THE CLASS NAME HAS BEEN REQUESTED
+        return record;
+
+      for (String fieldName : iFields != null && iFields.length > 0 ? Arrays.asList(iFields) : index.fieldNames()) {
+        if (!index.contains(fieldName) || record.containsField(fieldName))
+          // NOT PRESENT OR ALREADY UNMARSHALLED: DON'T OVERWRITE IT
+          continue;
+
+        final String fieldValue = (String) index.get(fieldName);
+        try {
+          fieldFromString(record, fieldName, fieldValue);
+        } catch (Exception e) {
+          OLogManager.instance().exception("Error on unmarshalling field '%s' in record %s with value: ", e,
+              OSerializationException.class, fieldName, record.getIdentity(), fieldValue);
+        }
+      }
+
+      return record;
+    } finally {
+      PROFILER
+          .stopChrono(PROFILER.getProcessMetric("serializer.record.string.fromStream"), "Deserialize record from stream", timer);
+    }
+  }
+
+  /**
+   * Splits the content in fields, indexing the raw value of each field by name.
+   */
+  protected ORecordFieldIndex buildFieldIndex(final byte[] iSource) {
+    String content = OBinaryProtocol.bytes2string(iSource).trim();
+
+    String className = null;
+    if (content.length() > 0) {
+      final int posFirstValue = content.indexOf(OStringSerializerHelper.ENTRY_SEPARATOR);
+      final int pos = content.indexOf(OStringSerializerHelper.CLASS_SEPARATOR);
+      if (pos > -1 && (pos < posFirstValue || posFirstValue == -1)) {
+        className = content.substring(0, pos);
+        content = content.substring(pos + 1);
+      }
+    }
+
+    final ORecordFieldIndex index = new ORecordFieldIndex(iSource, className);
+    if (content.length() == 0)
+      return index;
+
+    String field;
+    int pos;
+    for (String f : OStringSerializerHelper.smartSplit(content, OStringSerializerHelper.RECORD_SEPARATOR, true)) {
+      field = f.trim();
+      pos = field.indexOf(FIELD_VALUE_SEPARATOR);
+      if (pos > -1)
+        index.put(field.substring(0, pos), field.length() > pos + 1 ? field.substring(pos + 1) : null);
+    }
+
+    return index;
+  }
+
   @Override
   public byte[] toStream(ORecordInternal<?> iRecord, boolean iOnlyDelta) {
     final byte[] result = super.toStream(iRecord, iOnlyDelta);
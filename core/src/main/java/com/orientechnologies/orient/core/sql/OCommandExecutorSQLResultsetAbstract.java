@@ -99,22 +99,29 @@ public abstract class OCommandExecutorSQLResultsetAbstract extends OCommandExecu
 
     init(textRequest);
 
+    assignRequest(textRequest);
+    return this;
+  }
+
+  @Override
+  public boolean isIdempotent() {
+    return true;
+  }
+
+  /**
+   * Assigns the query that receives the results.
+   */
+  protected void assignRequest(final OCommandRequestText iRequest) {
     if (iRequest instanceof OSQLSynchQuery) {
       request = (OSQLSynchQuery<ORecordSchemaAware<?>>) iRequest;
     } else if (iRequest instanceof OSQLAsynchQuery)
       request = (OSQLAsynchQuery<ORecordSchemaAware<?>>) iRequest;
     else {
       // BUILD A QUERY OBJECT FROM THE COMMAND REQUEST
-      request = new OSQLSynchQuery<ORecordSchemaAware<?>>(textRequest.getText());
-      if (textRequest.getResultListener() != null)
-        request.setResultListener(textRequest.getResultListener());
+      request = new OSQLSynchQuery<ORecordSchemaAware<?>>(iRequest.getText());
+      if (iRequest.getResultListener() != null)
+        request.setResultListener(iRequest.getResultListener());
     }
-    return this;
-  }
-
-  @Override
-  public boolean isIdempotent() {
-    return true;
   }
 
   /**
@@ -404,7 +411,7 @@ public abstract class OCommandExecutorSQLResultsetAbstract extends OCommandExecu
       if (tempResult instanceof List<?>) {
         final List<OIdentifiable> t = (List<OIdentifiable>) tempResult;
         final int start = Math.min(skip, t.size());
-        final int tot = Math.min(limit + start, t.size());
+        final int tot = limit > -1 ? Math.min(limit + start, t.size()) : t.size();
         for (int i = start; i < tot; ++i)
           newList.add(t.get(i));
 
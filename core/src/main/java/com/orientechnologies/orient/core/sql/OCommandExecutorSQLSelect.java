@@ -17,9 +17,11 @@ package com.orientechnologies.orient.core.sql;
 
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -30,6 +32,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 
 import com.orientechnologies.common.collection.OCompositeKey;
+import com.orientechnologies.common.collection.OLimitedSortedCollection;
 import com.orientechnologies.common.collection.OMultiCollectionIterator;
 import com.orientechnologies.common.collection.OMultiValue;
 import com.orientechnologies.common.concur.resource.OSharedResource;
@@ -37,21 +40,30 @@ import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.util.OPair;
 import com.orientechnologies.orient.core.command.OBasicCommandContext;
 import com.orientechnologies.orient.core.command.OCommandRequest;
+import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.exception.OQueryParsingException;
+import com.orientechnologies.orient.core.hook.ORecordHook;
 import com.orientechnologies.orient.core.index.OCompositeIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndexInternal;
+import com.orientechnologies.orient.core.index.OIndexManager;
+import com.orientechnologies.orient.core.index.OIndexStatistics;
+import com.orientechnologies.orient.core.index.OIndexStatisticsManager;
+import com.orientechnologies.orient.core.iterator.ORecordIteratorClusters;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OProperty;
 import com.orientechnologies.orient.core.metadata.security.ODatabaseSecurityResources;
 import com.orientechnologies.orient.core.metadata.security.ORole;
+import com.orientechnologies.orient.core.metadata.security.OSecurityShared;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.record.impl.ODocumentComparator;
 import com.orientechnologies.orient.core.record.impl.ODocumentHelper;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterCondition;
@@ -60,6 +72,9 @@ import com.orientechnologies.orient.core.sql.filter.OSQLFilterItemField;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterItemVariable;
 import com.orientechnologies.orient.core.sql.functions.OSQLFunctionRuntime;
 import com.orientechnologies.orient.core.sql.functions.coll.OSQLFunctionDistinct;
+import com.orientechnologies.orient.core.sql.functions.math.OSQLFunctionMax;
+import com.orientechnologies.orient.core.sql.functions.math.OSQLFunctionMin;
+import com.orientechnologies.orient.core.sql.functions.math.OSQLFunctionSum;
 import com.orientechnologies.orient.core.sql.functions.misc.OSQLFunctionCount;
 import com.orientechnologies.orient.core.sql.operator.OIndexReuseType;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperator;
@@ -73,6 +88,7 @@ import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinor;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinorEquals;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorOr;
 import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.OStorageEmbedded;
 import com.orientechnologies.orient.core.type.tree.OMVRBTreeRIDSet;
 
 /**
@@ -92,7 +108,9 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
   public static final String          KEYWORD_BY                        = "BY";
   public static final String          KEYWORD_GROUP                     = "GROUP";
   public static final String          KEYWORD_FETCHPLAN                 = "FETCHPLAN";
+  public static final String          KEYWORD_PARALLEL                  = "PARALLEL";
   private static final int            MIN_THRESHOLD_USE_INDEX_AS_TARGET = 100;
+  private static final int            GROUP_SPILL_PARTITIONS            = 32;
 
   private Map<String, String>         projectionDefinition              = null;
   private Map<String, Object>         projections                       = null;       // THIS HAS BEEN KEPT FOR COMPATIBILITY; BUT
@@ -100,13 +118,25 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
                                                                                        // USED THE
                                                                                        // PROJECTIONS IN GROUPED-RESULTS
   private List<OPair<String, String>> orderedFields;
+  private OLimitedSortedCollection<OIdentifiable> orderedResult;
+  private OSQLExternalSort            externalSort;
   private List<String>                groupByFields;
   private Map<Object, ORuntimeResult> groupedResult;
+  private OSQLSpillFile[]             groupPartitions;
   private Object                      expandTarget;
   private int                         fetchLimit                        = -1;
   private OIdentifiable               lastRecord;
   private Iterator<OIdentifiable>     subIterator;
   private String                      fetchPlan;
+  private boolean                     parallel;
+
+  // CLAUSES CHANGED BY THE EXECUTION, RESTORED WHEN A CACHED STATEMENT IS EXECUTED AGAIN
+  private Map<String, String>         parsedProjectionDefinition;
+  private List<OPair<String, String>> parsedOrderedFields;
+  private int                         parsedSkip;
+  private int                         parsedLimit;
+  private boolean                     parsedAggregation;
+  private Map<List<String>, List<String>> indexPlan;
 
   /**
    * Compile the filter conditions only the first time.
@@ -139,7 +169,10 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       while (!parserIsEnded()) {
         parserNextWord(true);
 
-        if (!parserIsEnded()) {
+        if (parserGetLastWord().equals(KEYWORD_PARALLEL))
+          // NO ARGUMENTS, SO IT CAN BE ALSO THE LAST WORD
+          parallel = true;
+        else if (!parserIsEnded()) {
 
           final String w = parserGetLastWord();
 
@@ -172,9 +205,80 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       throw new IllegalArgumentException("Limit must be > 0 or = -1 (no limit)");
     }
 
+    parsedProjectionDefinition = projectionDefinition != null ? new LinkedHashMap<String, String>(projectionDefinition) : null;
+    parsedOrderedFields = orderedFields != null ? new ArrayList<OPair<String, String>>(orderedFields) : null;
+    parsedSkip = skip;
+    parsedLimit = limit;
+    parsedAggregation = groupedResult != null;
+
+    return this;
+  }
+
+  /**
+   * Tells if the parsed statement can be executed again after {@link #release()} and {@link #bind(OCommandRequestText)}. Statements
+   * with subqueries or with a dictionary as target are excluded, because the records they return are resolved by the parsing.
+   */
+  public boolean isStatementCacheable() {
+    return parsedTarget != null && parserTextUpperCase.indexOf(KEYWORD_SELECT, KEYWORD_SELECT.length()) == -1
+        && parserTextUpperCase.indexOf(OCommandExecutorSQLTraverse.KEYWORD_TRAVERSE) == -1
+        && parserTextUpperCase.indexOf(DICTIONARY_PREFIX) == -1;
+  }
+
+  /**
+   * Prepares the statement, parsed by a previous request with the same text, to be executed by the request. The context and the
+   * progress listener have to be set before.
+   */
+  public OCommandExecutorSQLSelect bind(final OCommandRequestText iRequest) {
+    getDatabase().checkSecurity(ODatabaseSecurityResources.COMMAND, ORole.PERMISSION_READ);
+
+    assignRequest(iRequest);
+
+    if (context == null)
+      context = new OBasicCommandContext();
+
+    projectionDefinition = parsedProjectionDefinition != null ? new LinkedHashMap<String, String>(parsedProjectionDefinition)
+        : null;
+    orderedFields = parsedOrderedFields != null ? new ArrayList<OPair<String, String>>(parsedOrderedFields) : null;
+    skip = parsedSkip;
+    limit = parsedLimit;
+
+    if (projections != null)
+      for (Object p : projections.values())
+        if (p instanceof OSQLFunctionRuntime) {
+          // FUNCTIONS CAN KEEP THE STATE OF THE PREVIOUS EXECUTION, SUCH AS THE VALUES FOUND BY DISTINCT()
+          projections = createProjectionFromDefinition();
+          break;
+        }
+
+    if (parsedAggregation)
+      getProjectionGroup(null);
+
     return this;
   }
 
+  /**
+   * Releases the request, the context and the results of the last execution, keeping only the parsed statement.
+   */
+  public void release() {
+    request = null;
+    context = null;
+    parameters = null;
+    progressListener = null;
+
+    target = null;
+    tempResult = null;
+    resultCount = 0;
+    fetchLimit = -1;
+    lastRecord = null;
+    subIterator = null;
+    orderedResult = null;
+    deleteSpillFiles();
+    groupedResult = null;
+
+    if (compiledFilter != null)
+      compiledFilter.resetParameters();
+  }
+
   /**
    * Determine clusters that are used in select operation
    * 
@@ -279,15 +383,20 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     if (subIterator == null) {
       if (target == null) {
         // GET THE RESULT
-        executeSearch(null);
-        applyExpand();
-        handleNoTarget();
-        handleGroupBy();
-        applyOrderBy();
-
-        subIterator = new ArrayList<OIdentifiable>((List<OIdentifiable>) getResult()).iterator();
+        try {
+          executeSearch(null);
+          applyExpand();
+          handleNoTarget();
+          handleGroupBy();
+          applyOrderBy();
+
+          subIterator = new ArrayList<OIdentifiable>((List<OIdentifiable>) getResult()).iterator();
+        } finally {
+          deleteSpillFiles();
+        }
         lastRecord = null;
         tempResult = null;
+        orderedResult = null;
         groupedResult = null;
       } else
         subIterator = (Iterator<OIdentifiable>) target;
@@ -321,17 +430,21 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     if (timeoutMs > 0)
       getContext().beginExecution(timeoutMs, timeoutStrategy);
 
-    if (!optimizeExecution()) {
-      fetchLimit = getQueryFetchLimit();
+    try {
+      if (!optimizeExecution()) {
+        fetchLimit = getQueryFetchLimit();
 
-      executeSearch(iArgs);
-      applyExpand();
-      handleNoTarget();
-      handleGroupBy();
-      applyOrderBy();
-      applyLimitAndSkip();
+        executeSearch(iArgs);
+        applyExpand();
+        handleNoTarget();
+        handleGroupBy();
+        applyOrderBy();
+        applyLimitAndSkip();
+      }
+      return getResult();
+    } finally {
+      deleteSpillFiles();
     }
-    return getResult();
   }
 
   protected void executeSearch(final Map<Object, Object> iArgs) {
@@ -346,15 +459,139 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       return;
     }
 
-    // BROWSE ALL THE RECORDS
-    while (target.hasNext())
-      if (!executeSearchRecord(target.next()))
-        break;
+    if (!parallel || !executeParallelSearch())
+      // BROWSE ALL THE RECORDS
+      while (target.hasNext())
+        if (!executeSearchRecord(target.next()))
+          break;
 
     if (request.getResultListener() != null)
       request.getResultListener().end();
   }
 
+  /**
+   * Scans the clusters of the target in parallel with {@link OSQLParallelScan}. It's possible only for targets browsed by cluster
+   * iterators (not resolved by indexes) on embedded storages, outside of transactions, without LET and with a filter which can be
+   * evaluated by the scanning threads. Aggregations by count(), sum(), min() and max() without GROUP BY are computed by every
+   * scanning task and then merged, otherwise the records found are handled by the current thread in the order they are found.
+   * 
+   * @return false if the records should be browsed serially
+   */
+  private boolean executeParallelSearch() {
+    final ODatabaseRecord database = getDatabase();
+    if (!(target instanceof ORecordIteratorClusters<?>) || let != null || !OSQLParallelScan.isFilterSupported(compiledFilter)
+        || !(database.getStorage() instanceof OStorageEmbedded) || database.getTransaction().isActive())
+      return false;
+
+    final ORecordIteratorClusters<?> clusters = (ORecordIteratorClusters<?>) target;
+    final Map<OClass, String> targetClasses = parsedTarget.getTargetClasses();
+
+    final OSQLParallelScan scan = new OSQLParallelScan(database, clusters.getClusterIds(), clusters.getBeginRange(),
+        clusters.getEndRange(), compiledFilter, targetClasses != null ? targetClasses.keySet() : null, context);
+
+    if (isParallelAggregationSupported(clusters.getClusterIds()))
+      aggregateInParallel(scan);
+    else {
+      final Iterator<ODocument> records = scan.iterator();
+      try {
+        while (records.hasNext()) {
+          final ODocument record = records.next();
+
+          // THE SCANNING THREADS DON'T USE THE DATABASE: CALL ITS HOOKS HERE, THEY CAN HIDE THE RECORD
+          if (database.callbackHooks(ORecordHook.TYPE.BEFORE_READ, record) == ORecordHook.RESULT.SKIP)
+            continue;
+          database.callbackHooks(ORecordHook.TYPE.AFTER_READ, record);
+
+          context.setVariable("current", record);
+          if (!handleResult(record, false))
+            // END OF EXECUTION
+            break;
+        }
+      } finally {
+        scan.close();
+      }
+    }
+
+    context.updateMetric("recordReads", scan.getRecordReads());
+    context.updateMetric("actualRecords", scan.getRecordReads());
+    context.updateMetric("documentReads", scan.getDocumentReads());
+    context.updateMetric("parallelScanRanges", scan.getRanges());
+    return true;
+  }
+
+  /**
+   * Checks if the scanning tasks can aggregate the records themselves: only count(), sum(), min() and max() of fields can be merged
+   * and the read hooks of restricted records can't be called by the scanning threads.
+   */
+  private boolean isParallelAggregationSupported(final int[] iClusterIds) {
+    if (groupedResult == null || groupedResult.size() != 1 || groupByFields != null && !groupByFields.isEmpty()
+        || projections == null || expandTarget != null || skip > 0 || fetchLimit > -1)
+      return false;
+
+    for (Object projection : projections.values()) {
+      if (!(projection instanceof OSQLFunctionRuntime))
+        return false;
+
+      final OSQLFunctionRuntime f = (OSQLFunctionRuntime) projection;
+      if (!(f.function instanceof OSQLFunctionCount || f.function instanceof OSQLFunctionSum
+          || f.function instanceof OSQLFunctionMin || f.function instanceof OSQLFunctionMax) || !f.aggregateResults()
+          || f.hasChainOperators())
+        return false;
+
+      for (Object parameter : f.configuredParameters)
+        if (!"*".equals(parameter)
+            && !(parameter instanceof OSQLFilterItemField && !((OSQLFilterItemField) parameter).hasChainOperators()))
+          return false;
+    }
+
+    final OClass restrictedClass = getDatabase().getMetadata().getSchema().getClass(OSecurityShared.RESTRICTED_CLASSNAME);
+    if (restrictedClass != null)
+      for (int restrictedClusterId : restrictedClass.getPolymorphicClusterIds())
+        for (int clusterId : iClusterIds)
+          if (clusterId == restrictedClusterId)
+            return false;
+
+    return true;
+  }
+
+  /**
+   * Aggregates the records of every range scanned in parallel in a separate partial result, then merges the partial results in the
+   * only group of the query.
+   */
+  private void aggregateInParallel(final OSQLParallelScan iScan) {
+    final List<Map<String, Object>> partialProjections = new ArrayList<Map<String, Object>>(iScan.getRanges());
+    final List<OSQLParallelScan.OConsumer> consumers = new ArrayList<OSQLParallelScan.OConsumer>(iScan.getRanges());
+
+    for (int i = 0; i < iScan.getRanges(); i++) {
+      final Map<String, Object> rangeProjections = createProjectionFromDefinition();
+      final ORuntimeResult partialResult = new ORuntimeResult(rangeProjections, 0, new OBasicCommandContext());
+
+      partialProjections.add(rangeProjections);
+      consumers.add(new OSQLParallelScan.OConsumer() {
+        public boolean consume(final ODocument iRecord) {
+          partialResult.applyRecord(iRecord);
+          return true;
+        }
+      });
+    }
+
+    iScan.scan(consumers);
+
+    final ORuntimeResult group = getProjectionGroup(null);
+    for (Entry<String, Object> projection : projections.entrySet()) {
+      final List<Object> partialValues = new ArrayList<Object>(partialProjections.size());
+      for (Map<String, Object> rangeProjections : partialProjections) {
+        final Object partialValue = ((OSQLFunctionRuntime) rangeProjections.get(projection.getKey())).getFunction().getResult();
+        if (partialValue != null)
+          partialValues.add(partialValue);
+      }
+
+      if (!partialValues.isEmpty())
+        group.applyValue(projection.getKey(),
+            ((OSQLFunctionRuntime) projection.getValue()).getFunction().mergeDistributedResult(partialValues));
+    }
+  }
+
   @Override
   protected boolean assignTarget(Map<Object, Object> iArgs) {
     if (!super.assignTarget(iArgs)) {
@@ -377,6 +614,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     final ORecordInternal<?> record = id.getRecord();
 
     context.updateMetric("recordReads", +1);
+    context.updateMetric("actualRecords", +1);
 
     if (record == null || record.getRecordType() != ODocument.RECORD_TYPE)
       // SKIP IT
@@ -428,29 +666,12 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
           return;
       } else {
         // AGGREGATION/GROUP BY
-        final ODocument doc = (ODocument) iRecord.getRecord();
-        Object fieldValue = null;
-        if (groupByFields != null && !groupByFields.isEmpty()) {
-          if (groupByFields.size() > 1) {
-            // MULTI-FIELD FROUP BY
-            final Object[] fields = new Object[groupByFields.size()];
-            for (int i = 0; i < groupByFields.size(); ++i) {
-              final String field = groupByFields.get(i);
-              if (field.startsWith("$"))
-                fields[i] = context.getVariable(field);
-              else
-                fields[i] = doc.field(field);
-            }
-            fieldValue = fields;
-          } else {
-            final String field = groupByFields.get(0);
-            if (field != null) {
-              if (field.startsWith("$"))
-                fieldValue = context.getVariable(field);
-              else
-                fieldValue = doc.field(field);
-            }
-          }
+        final Object fieldValue = getGroupByValue((ODocument) iRecord.getRecord());
+
+        if (isGroupSpillNeeded() && findProjectionGroup(fieldValue) == null) {
+          // NO MORE GROUPS IN MEMORY: AGGREGATE THE RECORD LATER TOGETHER WITH THE OTHER RECORDS OF ITS PARTITION
+          spillGroupRecord(fieldValue, iRecord);
+          return;
         }
 
         getProjectionGroup(fieldValue).applyRecord(iRecord);
@@ -465,6 +686,30 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
 
     } else {
 
+      if (tempResult == null && orderedResult == null && externalSort == null && orderedFields != null && expandTarget == null) {
+        final int orderedResultLimit = getOrderedResultLimit();
+        final int sortSpillThreshold = OGlobalConfiguration.QUERY_SORT_SPILL_THRESHOLD.getValueAsInteger();
+
+        if (orderedResultLimit > 0)
+          orderedResult = new OLimitedSortedCollection<OIdentifiable>(orderedResultLimit, new ODocumentComparator(orderedFields));
+        else if (sortSpillThreshold > 0)
+          // ORDERED FIELDS ARE CLEARED AFTER THE SORT, BUT SPILLED RUNS ARE MERGED WHILE THE RESULT IS BROWSED
+          externalSort = new OSQLExternalSort(new ODocumentComparator(new ArrayList<OPair<String, String>>(orderedFields)),
+              sortSpillThreshold);
+      }
+
+      if (orderedResult != null) {
+        // KEEP ONLY THE RECORDS THAT CAN BE RETURNED AFTER SKIP AND LIMIT ARE APPLIED TO THE ORDERED RESULT
+        orderedResult.add(iRecord);
+        return;
+      }
+
+      if (externalSort != null) {
+        // SORTED RUNS ARE SPILLED TO DISK WHEN THEY EXCEED THE CONFIGURED AMOUNT OF RECORDS
+        externalSort.add(iRecord);
+        return;
+      }
+
       // COLLECT ALL THE RECORDS AND ORDER THEM AT THE END
       if (tempResult == null)
         tempResult = new ArrayList<OIdentifiable>();
@@ -473,11 +718,25 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
   }
 
   protected ORuntimeResult getProjectionGroup(final Object fieldValue) {
-    ORuntimeResult group = null;
+    return getProjectionGroup(fieldValue, resultCount);
+  }
 
+  private ORuntimeResult getProjectionGroup(final Object fieldValue, final int iProgressive) {
     if (groupedResult == null)
       groupedResult = new LinkedHashMap<Object, ORuntimeResult>();
-    else {
+
+    ORuntimeResult group = findProjectionGroup(fieldValue);
+    if (group == null) {
+      group = new ORuntimeResult(createProjectionFromDefinition(), iProgressive, context);
+      groupedResult.put(fieldValue, group);
+    }
+    return group;
+  }
+
+  private ORuntimeResult findProjectionGroup(final Object fieldValue) {
+    ORuntimeResult group = null;
+
+    if (groupedResult != null) {
       if (fieldValue != null && fieldValue.getClass().isArray()) {
         // SEQUENTIAL SCAN
         final int arraySize = Array.getLength(fieldValue);
@@ -507,18 +766,100 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
         group = groupedResult.get(fieldValue);
     }
 
-    if (group == null) {
-      group = new ORuntimeResult(createProjectionFromDefinition(), resultCount, context);
-      groupedResult.put(fieldValue, group);
-    }
     return group;
   }
 
+  private Object getGroupByValue(final ODocument doc) {
+    Object fieldValue = null;
+    if (groupByFields != null && !groupByFields.isEmpty()) {
+      if (groupByFields.size() > 1) {
+        // MULTI-FIELD FROUP BY
+        final Object[] fields = new Object[groupByFields.size()];
+        for (int i = 0; i < groupByFields.size(); ++i) {
+          final String field = groupByFields.get(i);
+          if (field.startsWith("$"))
+            fields[i] = context.getVariable(field);
+          else
+            fields[i] = doc.field(field);
+        }
+        fieldValue = fields;
+      } else {
+        final String field = groupByFields.get(0);
+        if (field != null) {
+          if (field.startsWith("$"))
+            fieldValue = context.getVariable(field);
+          else
+            fieldValue = doc.field(field);
+        }
+      }
+    }
+    return fieldValue;
+  }
+
+  /**
+   * Checks if records of new groups should be spilled to disk because the amount of groups kept in memory reached
+   * {@link OGlobalConfiguration#QUERY_GROUP_SPILL_THRESHOLD}. Groups by variables or queries with LET are never spilled, because
+   * their values depend on the context of the record when it is browsed.
+   */
+  private boolean isGroupSpillNeeded() {
+    if (groupPartitions != null)
+      return true;
+
+    final int groupSpillThreshold = OGlobalConfiguration.QUERY_GROUP_SPILL_THRESHOLD.getValueAsInteger();
+    if (groupSpillThreshold < 1 || groupedResult.size() < groupSpillThreshold || groupByFields == null || groupByFields.isEmpty()
+        || let != null)
+      return false;
+
+    for (String field : groupByFields)
+      if (field == null || field.startsWith("$"))
+        return false;
+
+    return true;
+  }
+
+  private void spillGroupRecord(final Object fieldValue, final OIdentifiable iRecord) {
+    if (groupPartitions == null)
+      groupPartitions = new OSQLSpillFile[GROUP_SPILL_PARTITIONS];
+
+    int hash = fieldValue instanceof Object[] ? Arrays.hashCode((Object[]) fieldValue) : (fieldValue != null ? fieldValue
+        .hashCode() : 0);
+    hash ^= (hash >>> 20) ^ (hash >>> 12);
+    hash ^= (hash >>> 7) ^ (hash >>> 4);
+
+    final int partition = (hash & Integer.MAX_VALUE) % GROUP_SPILL_PARTITIONS;
+    if (groupPartitions[partition] == null)
+      groupPartitions[partition] = new OSQLSpillFile();
+
+    groupPartitions[partition].write(iRecord);
+  }
+
   private int getQueryFetchLimit() {
     if (orderedFields != null) {
       return -1;
     }
 
+    return getQueryLimit();
+  }
+
+  /**
+   * Returns the amount of ordered records to collect to answer the query: all the records can be returned only when no limit is
+   * set, otherwise only the first <code>skip + limit</code> records are needed.
+   * 
+   * @return the amount of records to keep, or -1 if all the records should be kept.
+   */
+  private int getOrderedResultLimit() {
+    final int queryLimit = getQueryLimit();
+    if (queryLimit < 0)
+      return -1;
+
+    final long orderedResultLimit = (long) queryLimit + Math.max(skip, 0);
+    if (orderedResultLimit > Integer.MAX_VALUE)
+      return -1;
+
+    return (int) orderedResultLimit;
+  }
+
+  private int getQueryLimit() {
     final int sqlLimit;
     final int requestLimit;
 
@@ -582,7 +923,8 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       if (word.length() == 0)
         // END CLAUSE: SET AS ASC BY DEFAULT
         fieldOrdering = KEYWORD_ASC;
-      else if (word.equals(KEYWORD_LIMIT)) {
+      else if (word.equals(KEYWORD_LIMIT) || word.equals(KEYWORD_SKIP) || word.equals(KEYWORD_FETCHPLAN)
+          || word.equals(KEYWORD_TIMEOUT) || word.equals(KEYWORD_PARALLEL)) {
         // NEXT CLAUSE: SET AS ASC BY DEFAULT
         fieldOrdering = KEYWORD_ASC;
         parserGoBack();
@@ -610,24 +952,203 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     if (searchForIndexes(cls)) {
       // final OJVMProfiler profiler = Orient.instance().getProfiler();
       // profiler.updateCounter(profiler.getDatabaseMetrics(getDatabase().getName(), "query.indexUsed"), 1);
-    } else
+    } else {
+      if (context.isRecordingMetrics())
+        context.setVariable("estimatedRecords", cls.count());
       super.searchInClasses();
+    }
   }
 
-  @SuppressWarnings("rawtypes")
   private boolean searchForIndexes(final OClass iSchemaClass) {
     final ODatabaseRecord database = getDatabase();
     database.checkSecurity(ODatabaseSecurityResources.CLASS, ORole.PERMISSION_READ, iSchemaClass.getName().toLowerCase());
 
-    // Create set that is sorted by amount of fields in OIndexSearchResult items
-    // so the most specific restrictions will be processed first.
-    final List<OIndexSearchResult> indexSearchResults = new ArrayList<OIndexSearchResult>();
-
     // fetch all possible variants of subqueries that can be used in indexes.
     if (compiledFilter == null)
       return false;
 
-    analyzeQueryBranch(iSchemaClass, compiledFilter.getRootCondition(), indexSearchResults);
+    final List<IndexCandidate> candidates = getIndexCandidates(iSchemaClass, compiledFilter.getRootCondition());
+
+    if (candidates.isEmpty())
+      // NO AND CONDITIONS ON INDEXED FIELDS: TRY WITH THE UNION OF THE OR CONDITIONS
+      return searchForIndexUnion(iSchemaClass);
+
+    INDEX_OPERATION_TYPE opType = null;
+
+    if (projections != null && projections.size() == 1) {
+      final Object v = projections.values().iterator().next();
+      if (v instanceof OSQLFunctionRuntime && ((OSQLFunctionRuntime) v).getFunction() instanceof OSQLFunctionCount) {
+        if (!(compiledFilter.getRootCondition().getLeft() instanceof OSQLFilterCondition || compiledFilter.getRootCondition()
+            .getRight() instanceof OSQLFilterCondition))
+          // OPTIMIZATION: JUST COUNT IT
+          opType = INDEX_OPERATION_TYPE.COUNT;
+      }
+    }
+
+    if (opType == null)
+      opType = INDEX_OPERATION_TYPE.GET;
+
+    if (!sortCandidatesByEstimation(iSchemaClass, candidates, opType))
+      // THE INDEXES WOULD RETURN TOO MANY RECORDS: SCAN THE CLASS
+      return false;
+
+    // WITH A LIMIT THE FIRST INDEX IS READ ONLY UP TO THE LIMIT, SO IT CAN'T BE INTERSECTED WITH THE OTHERS
+    final boolean intersect = opType == INDEX_OPERATION_TYPE.GET && fetchLimit == -1 && candidates.size() > 1;
+
+    for (final IndexCandidate candidate : candidates) {
+      Object result = executeIndexCandidate(candidate, opType, fetchLimit);
+      if (result == null)
+        continue;
+
+      if (candidate.estimation > -1 && context.isRecordingMetrics())
+        context.setVariable("estimatedRecords", candidate.estimation);
+
+      if (opType == INDEX_OPERATION_TYPE.COUNT) {
+        // OPTIMIZATION: EMBED THE RESULT IN A DOCUMENT AND AVOID THE CLASSIC PATH
+        final String projName = projectionDefinition.keySet().iterator().next();
+        projectionDefinition.clear();
+        getProjectionGroup(null).applyValue(projName, result);
+      } else {
+        if (intersect)
+          result = intersectIndexCandidates(iSchemaClass, candidate, result, candidates);
+
+        fillSearchIndexResultSet(result);
+      }
+
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Searches the records matching a condition made by OR of conditions on indexed fields with the union of the results of the
+   * indexes. Every condition of the OR must be answered by an index, otherwise the class is scanned.
+   */
+  private boolean searchForIndexUnion(final OClass iSchemaClass) {
+    final OSQLFilterCondition rootCondition = skipBrackets(compiledFilter.getRootCondition());
+    if (rootCondition == null || !(rootCondition.getOperator() instanceof OQueryOperatorOr))
+      return false;
+
+    // PLAN ALL THE BRANCHES BEFORE READING ANY INDEX
+    final List<List<IndexCandidate>> branches = new ArrayList<List<IndexCandidate>>();
+    if (!getIndexUnionBranches(iSchemaClass, rootCondition, branches))
+      return false;
+
+    final List<Collection<OIdentifiable>> results = new ArrayList<Collection<OIdentifiable>>(branches.size());
+    for (List<IndexCandidate> candidates : branches) {
+      Object result = null;
+      for (final IndexCandidate candidate : candidates) {
+        result = executeIndexCandidate(candidate, INDEX_OPERATION_TYPE.GET, -1);
+        if (result != null) {
+          result = intersectIndexCandidates(iSchemaClass, candidate, result, candidates);
+          break;
+        }
+      }
+
+      if (result == null)
+        // THE INDEXES CAN'T ANSWER THE BRANCH
+        return false;
+
+      results.add(OIndexResultSets.toCollection(result));
+    }
+
+    context.updateMetric("indexUnions", +1);
+    fillSearchIndexResultSet(OIndexResultSets.union(results));
+    return true;
+  }
+
+  /**
+   * Collects the index candidates of every condition joined by OR. The records of the union of the branches must be filtered again
+   * by the whole condition.
+   * 
+   * @return false if any branch has no index or its best index returns so many records that scanning the class is cheaper
+   */
+  private boolean getIndexUnionBranches(final OClass iSchemaClass, final Object iCondition,
+      final List<List<IndexCandidate>> iBranches) {
+    if (!(iCondition instanceof OSQLFilterCondition))
+      return false;
+
+    final OSQLFilterCondition condition = skipBrackets((OSQLFilterCondition) iCondition);
+    if (condition == null)
+      return false;
+
+    if (condition.getOperator() instanceof OQueryOperatorOr)
+      return getIndexUnionBranches(iSchemaClass, condition.getLeft(), iBranches)
+          && getIndexUnionBranches(iSchemaClass, condition.getRight(), iBranches);
+
+    final List<IndexCandidate> candidates = getIndexCandidates(iSchemaClass, condition);
+    if (candidates.isEmpty() || !sortCandidatesByEstimation(iSchemaClass, candidates, INDEX_OPERATION_TYPE.GET))
+      return false;
+
+    iBranches.add(candidates);
+    return true;
+  }
+
+  /**
+   * Intersects the result of the first index used with the results of the other candidates on different fields, so the records
+   * which don't match all the indexed conditions are not loaded. Candidates estimated to return so many records that the class
+   * would be scanned are skipped.
+   */
+  private Object intersectIndexCandidates(final OClass iSchemaClass, final IndexCandidate iFirst, final Object iFirstResult,
+      final List<IndexCandidate> iCandidates) {
+    final Set<String> usedFields = new HashSet<String>(iFirst.fields);
+
+    final List<Collection<OIdentifiable>> results = new ArrayList<Collection<OIdentifiable>>();
+    results.add(OIndexResultSets.toCollection(iFirstResult));
+
+    long maxEstimation = -1;
+    for (final IndexCandidate candidate : iCandidates) {
+      if (candidate == iFirst || !Collections.disjoint(usedFields, candidate.fields))
+        continue;
+
+      if (candidate.estimation > -1) {
+        if (maxEstimation == -1)
+          maxEstimation = (long) (iSchemaClass.count() * OGlobalConfiguration.QUERY_INDEX_FULL_SCAN_RATIO.getValueAsFloat());
+        if (candidate.estimation > maxEstimation)
+          continue;
+      }
+
+      final Object result = executeIndexCandidate(candidate, INDEX_OPERATION_TYPE.GET, -1);
+      if (result == null)
+        continue;
+
+      results.add(OIndexResultSets.toCollection(result));
+      usedFields.addAll(candidate.fields);
+    }
+
+    if (results.size() == 1)
+      return iFirstResult;
+
+    context.updateMetric("indexIntersections", +1);
+    return OIndexResultSets.intersect(results);
+  }
+
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  private Object executeIndexCandidate(final IndexCandidate iCandidate, final INDEX_OPERATION_TYPE iOperationType,
+      final int iFetchLimit) {
+    if (context.isRecordingMetrics()) {
+      Set<String> idxNames = (Set<String>) context.getVariable("involvedIndexes");
+      if (idxNames == null) {
+        idxNames = new HashSet<String>();
+        context.setVariable("involvedIndexes", idxNames);
+      }
+      idxNames.add(iCandidate.index.getName());
+    }
+
+    return iCandidate.operator.executeIndexQuery(context, (OIndex) iCandidate.index, iOperationType, iCandidate.keyParams,
+        iFetchLimit);
+  }
+
+  /**
+   * Returns the indexes which can be used for the AND conditions of the condition, the most specific first.
+   */
+  @SuppressWarnings("rawtypes")
+  private List<IndexCandidate> getIndexCandidates(final OClass iSchemaClass, final OSQLFilterCondition iCondition) {
+    // Create set that is sorted by amount of fields in OIndexSearchResult items
+    // so the most specific restrictions will be processed first.
+    final List<OIndexSearchResult> indexSearchResults = new ArrayList<OIndexSearchResult>();
+
+    analyzeQueryBranch(iSchemaClass, iCondition, indexSearchResults);
 
     // most specific will be processed first
     Collections.sort(indexSearchResults, new Comparator<OIndexSearchResult>() {
@@ -637,9 +1158,9 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     });
 
     // go through all variants to choose which one can be used for index search.
+    final List<IndexCandidate> candidates = new ArrayList<IndexCandidate>();
     for (final OIndexSearchResult searchResult : indexSearchResults) {
-      final List<OIndex<?>> involvedIndexes = getInvolvedIndexes(iSchemaClass, searchResult);
-      Collections.sort(involvedIndexes, IndexComparator.INSTANCE);
+      final List<OIndex<?>> involvedIndexes = getSortedInvolvedIndexes(iSchemaClass, searchResult);
 
       // go through all possible index for given set of fields.
       for (final OIndex index : involvedIndexes) {
@@ -669,46 +1190,94 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
             keyParams.add(searchResult.lastValue);
         }
 
-        INDEX_OPERATION_TYPE opType = null;
+        candidates.add(new IndexCandidate(operator, index, searchResult.fields(), keyParams));
+      }
+    }
+    return candidates;
+  }
 
-        if (context.isRecordingMetrics()) {
-          Set<String> idxNames = (Set<String>) context.getVariable("involvedIndexes");
-          if (idxNames == null) {
-            idxNames = new HashSet<String>();
-            context.setVariable("involvedIndexes", idxNames);
-          }
-          idxNames.add(index.getName());
-        }
+  private static OSQLFilterCondition skipBrackets(OSQLFilterCondition iCondition) {
+    while (iCondition != null && iCondition.getOperator() == null && iCondition.getRight() == null
+        && iCondition.getLeft() instanceof OSQLFilterCondition)
+      iCondition = (OSQLFilterCondition) iCondition.getLeft();
+    return iCondition;
+  }
 
-        if (projections != null && projections.size() == 1) {
-          final Object v = projections.values().iterator().next();
-          if (v instanceof OSQLFunctionRuntime && ((OSQLFunctionRuntime) v).getFunction() instanceof OSQLFunctionCount) {
-            if (!(compiledFilter.getRootCondition().getLeft() instanceof OSQLFilterCondition || compiledFilter.getRootCondition()
-                .getRight() instanceof OSQLFilterCondition))
-              // OPTIMIZATION: JUST COUNT IT
-              opType = INDEX_OPERATION_TYPE.COUNT;
-          }
-        }
+  /**
+   * Sorts the index candidates by the amount of records they are estimated to return, using the statistics collected by ANALYZE
+   * INDEX. If any candidate has no statistics the order by amount of fields is kept.
+   * 
+   * @return false if even the best candidate returns so many records that scanning the class is cheaper
+   */
+  private boolean sortCandidatesByEstimation(final OClass iSchemaClass, final List<IndexCandidate> iCandidates,
+      final INDEX_OPERATION_TYPE iOperationType) {
+    final OStorage storage = getDatabase().getStorage();
 
-        if (opType == null)
-          opType = INDEX_OPERATION_TYPE.GET;
+    for (IndexCandidate candidate : iCandidates) {
+      final OIndexStatistics statistics = OIndexStatisticsManager.getStatistics(storage, candidate.index.getName());
+      if (statistics == null)
+        return true;
 
-        Object result = operator.executeIndexQuery(context, index, opType, keyParams, fetchLimit);
-        if (result == null)
-          continue;
+      candidate.estimation = candidate.operator.estimateIndexQuery(context, statistics, candidate.index, candidate.keyParams);
+      if (candidate.estimation < 0)
+        return true;
+    }
 
-        if (opType == INDEX_OPERATION_TYPE.COUNT) {
-          // OPTIMIZATION: EMBED THE RESULT IN A DOCUMENT AND AVOID THE CLASSIC PATH
-          final String projName = projectionDefinition.keySet().iterator().next();
-          projectionDefinition.clear();
-          getProjectionGroup(null).applyValue(projName, result);
-        } else
-          fillSearchIndexResultSet(result);
+    // STABLE SORT: WITH THE SAME ESTIMATION THE INDEX WITH MORE FIELDS COMES FIRST
+    Collections.sort(iCandidates, new Comparator<IndexCandidate>() {
+      public int compare(final IndexCandidate candidateOne, final IndexCandidate candidateTwo) {
+        return candidateOne.estimation < candidateTwo.estimation ? -1 : candidateOne.estimation == candidateTwo.estimation ? 0 : 1;
+      }
+    });
 
-        return true;
+    if (iOperationType == INDEX_OPERATION_TYPE.COUNT)
+      // COUNTING THE INDEX ENTRIES IS ALWAYS CHEAPER THAN SCANNING
+      return true;
+
+    return iCandidates.get(0).estimation <= iSchemaClass.count()
+        * OGlobalConfiguration.QUERY_INDEX_FULL_SCAN_RATIO.getValueAsFloat();
+  }
+
+  /**
+   * Returns the indexes which can be used for the fields of the search result, the ones with less fields first. The names of the
+   * chosen indexes are kept with the parsed statement, so the next executions of a cached statement look them up by name.
+   */
+  private List<OIndex<?>> getSortedInvolvedIndexes(final OClass iSchemaClass, final OIndexSearchResult iSearchResult) {
+    if (iSearchResult.lastField.isLong()) {
+      // INDEXES OF CHAINED FIELDS ARE WRAPPED BY PROXIES BOUND TO THE CURRENT DATABASE
+      final List<OIndex<?>> involvedIndexes = getInvolvedIndexes(iSchemaClass, iSearchResult);
+      Collections.sort(involvedIndexes, IndexComparator.INSTANCE);
+      return involvedIndexes;
+    }
+
+    final List<String> fields = iSearchResult.fields();
+
+    if (indexPlan == null)
+      indexPlan = new HashMap<List<String>, List<String>>();
+    else {
+      final List<String> indexNames = indexPlan.get(fields);
+      if (indexNames != null) {
+        final OIndexManager indexManager = getDatabase().getMetadata().getIndexManager();
+
+        final List<OIndex<?>> involvedIndexes = new ArrayList<OIndex<?>>(indexNames.size());
+        for (String indexName : indexNames) {
+          final OIndex<?> index = indexManager.getIndex(indexName);
+          if (index != null)
+            involvedIndexes.add(index);
+        }
+        return involvedIndexes;
       }
     }
-    return false;
+
+    final List<OIndex<?>> involvedIndexes = getInvolvedIndexes(iSchemaClass, iSearchResult);
+    Collections.sort(involvedIndexes, IndexComparator.INSTANCE);
+
+    final List<String> indexNames = new ArrayList<String>(involvedIndexes.size());
+    for (OIndex<?> index : involvedIndexes)
+      indexNames.add(index.getName());
+    indexPlan.put(fields, indexNames);
+
+    return involvedIndexes;
   }
 
   private static List<OIndex<?>> getInvolvedIndexes(OClass iSchemaClass, OIndexSearchResult searchResultFields) {
@@ -817,6 +1386,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
         Collection<OIdentifiable> indexResultSet = (Collection<OIdentifiable>) indexResult;
 
         context.updateMetric("indexReads", indexResultSet.size());
+        context.updateMetric("actualRecords", indexResultSet.size());
 
         for (OIdentifiable identifiable : indexResultSet) {
           ORecord<?> record = identifiable.getRecord();
@@ -828,6 +1398,8 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
           }
         }
       } else {
+        context.updateMetric("actualRecords", +1);
+
         final ORecord<?> record = ((OIdentifiable) indexResult).getRecord();
         if (filter((ORecordInternal<?>) record))
           handleResult(record, true);
@@ -981,6 +1553,30 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     if (orderedFields == null)
       return;
 
+    if (orderedResult != null) {
+      // RECORDS ARE ALREADY ORDERED AND LIMITED
+      tempResult = orderedResult.toList();
+      orderedResult = null;
+      orderedFields.clear();
+      return;
+    }
+
+    if (externalSort != null) {
+      tempResult = externalSort.sort(skip);
+      // SKIP IS ALREADY APPLIED BY THE SORT
+      skip = 0;
+
+      if (externalSort.isSpilled()) {
+        context.updateMetric("sortSpilledRecords", externalSort.getSpilledRecords());
+        context.updateMetric("sortSpilledBytes", externalSort.getSpilledSize());
+        context.updateMetric("sortSpillFiles", externalSort.getSpillFiles());
+      }
+
+      // THE SORT IS KEPT TILL THE END OF THE EXECUTION TO REMOVE THE RUNS NOT READ BY THE RESULT
+      orderedFields.clear();
+      return;
+    }
+
     if (tempResult instanceof OMultiCollectionIterator) {
       final List<OIdentifiable> list = new ArrayList<OIdentifiable>();
       for (OIdentifiable o : tempResult)
@@ -1253,14 +1849,80 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
   private void handleGroupBy() {
     if (groupedResult != null && tempResult == null) {
       tempResult = new ArrayList<OIdentifiable>();
+      addGroupedResults();
+
+      if (groupPartitions != null)
+        aggregateSpilledGroups();
+    }
+  }
+
+  private void addGroupedResults() {
+    for (Entry<Object, ORuntimeResult> g : groupedResult.entrySet()) {
+      if (g.getKey() != null || (groupedResult.size() == 1 && groupByFields == null)) {
+        final ODocument doc = g.getValue().getResult();
+        if (doc != null && !doc.isEmpty())
+          ((List<OIdentifiable>) tempResult).add(doc);
+      }
+    }
+  }
+
+  /**
+   * Aggregates the records spilled by {@link #spillGroupRecord(Object, OIdentifiable)} one partition at time. The groups of a
+   * partition are not in memory and not in the other partitions, so only the groups of the current partition are kept in memory.
+   */
+  private void aggregateSpilledGroups() {
+    long spilledRecords = 0;
+    int spillFiles = 0;
+    // GROUPS ARE IDENTIFIED BY THE PROGRESSIVE, THE ONES OF THE SPILLED GROUPS FOLLOW THE ONES OF THE GROUPS IN MEMORY
+    int progressive = resultCount;
+
+    try {
+      for (OSQLSpillFile partition : groupPartitions) {
+        if (partition == null)
+          continue;
+
+        spilledRecords += partition.getRecords();
+        spillFiles++;
+
+        groupedResult = new LinkedHashMap<Object, ORuntimeResult>();
+        for (OIdentifiable record : partition) {
+          final Object fieldValue = getGroupByValue((ODocument) record.getRecord());
+          if (findProjectionGroup(fieldValue) == null)
+            progressive++;
 
-      for (Entry<Object, ORuntimeResult> g : groupedResult.entrySet()) {
-        if (g.getKey() != null || (groupedResult.size() == 1 && groupByFields == null)) {
-          final ODocument doc = g.getValue().getResult();
-          if (doc != null && !doc.isEmpty())
-            ((List<OIdentifiable>) tempResult).add(doc);
+          getProjectionGroup(fieldValue, progressive).applyRecord(record);
         }
+
+        addGroupedResults();
       }
+    } finally {
+      for (OSQLSpillFile partition : groupPartitions)
+        if (partition != null)
+          partition.delete();
+
+      groupPartitions = null;
+    }
+
+    context.updateMetric("groupSpilledRecords", spilledRecords);
+    context.updateMetric("groupSpillFiles", spillFiles);
+  }
+
+  /**
+   * Removes the temporary files of the sort and of the group by, also the ones left by an execution which failed or didn't read
+   * them till the end.
+   */
+  private void deleteSpillFiles() {
+    if (externalSort != null) {
+      externalSort.delete();
+      externalSort = null;
+    }
+
+    if (groupPartitions != null) {
+      for (OSQLSpillFile partition : groupPartitions)
+        if (partition != null)
+          partition.delete();
+
+      groupPartitions = null;
     }
   }
 
@@ -1285,7 +1947,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
 
   @Override
   public String getSyntax() {
-    return "SELECT [<Projections>] FROM <Target> [LET <Assignment>*] [WHERE <Condition>*] [ORDER BY <Fields>* [ASC|DESC]*] [LIMIT <MaxRecords>]";
+    return "SELECT [<Projections>] FROM <Target> [LET <Assignment>*] [WHERE <Condition>*] [ORDER BY <Fields>* [ASC|DESC]*] [LIMIT <MaxRecords>] [PARALLEL]";
   }
 
   /**
@@ -1388,6 +2050,22 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     return false;
   }
 
+  private static class IndexCandidate {
+    private final OQueryOperator operator;
+    private final OIndex<?>      index;
+    private final List<String>   fields;
+    private final List<Object>   keyParams;
+    private long                 estimation = -1;
+
+    private IndexCandidate(final OQueryOperator iOperator, final OIndex<?> iIndex, final List<String> iFields,
+        final List<Object> iKeyParams) {
+      operator = iOperator;
+      index = iIndex;
+      fields = iFields;
+      keyParams = iKeyParams;
+    }
+  }
+
   private static class IndexComparator implements Comparator<OIndex<?>> {
     private static final IndexComparator INSTANCE = new IndexComparator();
 
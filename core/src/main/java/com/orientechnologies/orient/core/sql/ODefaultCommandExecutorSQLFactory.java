@@ -53,6 +53,8 @@ public class ODefaultCommandExecutorSQLFactory implements OCommandExecutorSQLFac
         OCommandExecutorSQLDropIndex.class);
     commands.put(OCommandExecutorSQLRebuildIndex.KEYWORD_REBUILD + " " + OCommandExecutorSQLRebuildIndex.KEYWORD_INDEX,
         OCommandExecutorSQLRebuildIndex.class);
+    commands.put(OCommandExecutorSQLAnalyzeIndex.KEYWORD_ANALYZE + " " + OCommandExecutorSQLAnalyzeIndex.KEYWORD_INDEX,
+        OCommandExecutorSQLAnalyzeIndex.class);
     commands.put(OCommandExecutorSQLCreateClass.KEYWORD_CREATE + " " + OCommandExecutorSQLCreateClass.KEYWORD_CLASS,
         OCommandExecutorSQLCreateClass.class);
     commands.put(OCommandExecutorSQLCreateCluster.KEYWORD_CREATE + " " + OCommandExecutorSQLCreateCluster.KEYWORD_CLUSTER,
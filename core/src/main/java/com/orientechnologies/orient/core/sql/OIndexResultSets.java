@@ -0,0 +1,133 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+
+/**
+ * Intersection and union of the RIDs returned by several index lookups, used to answer AND and OR conditions on fields indexed
+ * separately without loading the records that can't match. The RIDs are sorted and merged, so every operation costs O(n log n) on
+ * the size of the results.
+ */
+public class OIndexResultSets {
+  private OIndexResultSets() {
+  }
+
+  /**
+   * Converts the result of an index lookup, a single record or a collection of records, to a collection.
+   */
+  @SuppressWarnings("unchecked")
+  public static Collection<OIdentifiable> toCollection(final Object iIndexResult) {
+    if (iIndexResult == null)
+      return Collections.emptyList();
+    if (iIndexResult instanceof Collection<?>)
+      return (Collection<OIdentifiable>) iIndexResult;
+    return Collections.singletonList((OIdentifiable) iIndexResult);
+  }
+
+  /**
+   * Returns the RIDs of the first result which are contained in all the others, in the order of the first result.
+   */
+  public static List<OIdentifiable> intersect(final List<Collection<OIdentifiable>> iResults) {
+    final Collection<OIdentifiable> driver = iResults.get(0);
+
+    final ORID[][] others = new ORID[iResults.size() - 1][];
+    for (int i = 1; i < iResults.size(); ++i) {
+      if (iResults.get(i).isEmpty())
+        return Collections.emptyList();
+      others[i - 1] = toSortedArray(iResults.get(i));
+    }
+
+    final List<OIdentifiable> result = new ArrayList<OIdentifiable>();
+    for (OIdentifiable identifiable : driver) {
+      final ORID rid = identifiable.getIdentity();
+
+      boolean contained = true;
+      for (ORID[] other : others)
+        if (Arrays.binarySearch(other, rid) < 0) {
+          contained = false;
+          break;
+        }
+
+      if (contained)
+        result.add(identifiable);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the RIDs contained in at least one of the results, without duplicates and sorted by RID so the records are loaded in
+   * the order they are stored.
+   */
+  public static List<OIdentifiable> union(final List<Collection<OIdentifiable>> iResults) {
+    ORID[] merged = new ORID[0];
+    for (Collection<OIdentifiable> r : iResults)
+      merged = merge(merged, toSortedArray(r));
+
+    return Arrays.<OIdentifiable> asList(merged);
+  }
+
+  private static ORID[] toSortedArray(final Collection<OIdentifiable> iResult) {
+    final ORID[] rids = new ORID[iResult.size()];
+    int i = 0;
+    for (OIdentifiable identifiable : iResult)
+      rids[i++] = identifiable.getIdentity();
+
+    Arrays.sort(rids);
+    return rids;
+  }
+
+  /**
+   * Merges two sorted arrays dropping the duplicated RIDs.
+   */
+  private static ORID[] merge(final ORID[] iFirst, final ORID[] iSecond) {
+    final ORID[] result = new ORID[iFirst.length + iSecond.length];
+
+    int i = 0;
+    int j = 0;
+    int size = 0;
+    while (i < iFirst.length || j < iSecond.length) {
+      final ORID next;
+      if (j >= iSecond.length)
+        next = iFirst[i++];
+      else if (i >= iFirst.length)
+        next = iSecond[j++];
+      else {
+        final int compare = iFirst[i].compareTo(iSecond[j]);
+        if (compare < 0)
+          next = iFirst[i++];
+        else if (compare > 0)
+          next = iSecond[j++];
+        else {
+          next = iFirst[i++];
+          j++;
+        }
+      }
+
+      if (size == 0 || !result[size - 1].equals(next))
+        result[size++] = next;
+    }
+
+    return size == result.length ? result : Arrays.copyOf(result, size);
+  }
+}
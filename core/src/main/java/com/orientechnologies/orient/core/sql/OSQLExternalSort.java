@@ -0,0 +1,239 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+
+/**
+ * Sort of query records which keeps in memory at most <code>runSize</code> records. When this amount is reached the records are
+ * sorted and spilled to a temporary file as a sorted run. Runs are merged while the sorted records are browsed, at most
+ * {@link #MAX_MERGED_RUNS} runs at once, larger amounts of runs are merged in several passes. The sort is stable: equal records are
+ * returned in order of addition.
+ */
+public class OSQLExternalSort {
+  public static final int                 MAX_MERGED_RUNS = 64;
+
+  private final Comparator<OIdentifiable> comparator;
+  private final int                       runSize;
+  private List<OIdentifiable>             records         = new ArrayList<OIdentifiable>();
+  private final List<OSQLSpillFile>       runs            = new ArrayList<OSQLSpillFile>();
+  private long                            spilledRecords;
+  private long                            spilledSize;
+  private int                             spillFiles;
+
+  public OSQLExternalSort(final Comparator<OIdentifiable> comparator, final int runSize) {
+    if (runSize < 1)
+      throw new IllegalArgumentException("Size of sorted runs should be positive but was " + runSize);
+
+    this.comparator = comparator;
+    this.runSize = runSize;
+  }
+
+  public void add(final OIdentifiable record) {
+    records.add(record);
+
+    if (records.size() >= runSize)
+      spillRun();
+  }
+
+  public boolean isSpilled() {
+    return !runs.isEmpty();
+  }
+
+  /**
+   * @return amount of records written to temporary files, merge passes included.
+   */
+  public long getSpilledRecords() {
+    return spilledRecords;
+  }
+
+  /**
+   * @return amount of bytes of documents written to temporary files, merge passes included.
+   */
+  public long getSpilledSize() {
+    return spilledSize;
+  }
+
+  public int getSpillFiles() {
+    return spillFiles;
+  }
+
+  /**
+   * Returns the added records in sorted order. If nothing was spilled the records are returned as a sorted {@link List}, otherwise
+   * they are merged from the sorted runs while the result is browsed, so it can be browsed only once.
+   * 
+   * @param skip
+   *          amount of first records which are not returned
+   */
+  public Iterable<OIdentifiable> sort(final int skip) {
+    Collections.sort(records, comparator);
+
+    if (runs.isEmpty()) {
+      if (skip <= 0)
+        return records;
+
+      return new ArrayList<OIdentifiable>(records.subList(Math.min(skip, records.size()), records.size()));
+    }
+
+    while (runs.size() > MAX_MERGED_RUNS) {
+      // MERGE THE OLDEST RUNS IN A SINGLE ONE TO LIMIT THE AMOUNT OF FILES OPEN AT ONCE. THEY STAY IN THE LIST TILL THE MERGE IS
+      // COMPLETE, SO DELETE() REMOVES THEM IF IT FAILS
+      final List<OSQLSpillFile> mergedRuns = runs.subList(0, MAX_MERGED_RUNS);
+
+      final List<Iterator<OIdentifiable>> iterators = new ArrayList<Iterator<OIdentifiable>>(mergedRuns.size());
+      for (OSQLSpillFile run : mergedRuns)
+        iterators.add(run.iterator());
+
+      final OSQLSpillFile run = new OSQLSpillFile();
+      try {
+        final Iterator<OIdentifiable> merged = new MergeIterator(iterators);
+        while (merged.hasNext())
+          run.write(merged.next());
+      } catch (RuntimeException e) {
+        run.delete();
+        throw e;
+      }
+
+      // THE MERGED RUNS HAVE BEEN READ COMPLETELY, SO THEIR FILES ARE ALREADY REMOVED
+      mergedRuns.clear();
+
+      // KEEP THE MERGED RUN BEFORE THE OTHER ONES, SO EQUAL RECORDS STAY IN ORDER OF ADDITION
+      runs.add(0, run);
+      updateStatistics(run);
+    }
+
+    final List<Iterator<OIdentifiable>> iterators = new ArrayList<Iterator<OIdentifiable>>(runs.size() + 1);
+    for (OSQLSpillFile run : runs)
+      iterators.add(run.iterator());
+    iterators.add(records.iterator());
+
+    records = new ArrayList<OIdentifiable>();
+
+    return new Iterable<OIdentifiable>() {
+      private boolean browsed;
+
+      public Iterator<OIdentifiable> iterator() {
+        if (browsed)
+          throw new IllegalStateException("Result of external sort can be browsed only once");
+
+        browsed = true;
+
+        final Iterator<OIdentifiable> merged = new MergeIterator(iterators);
+        for (int i = 0; i < skip && merged.hasNext(); i++)
+          merged.next();
+
+        return merged;
+      }
+    };
+  }
+
+  /**
+   * Removes the temporary files of the sort, also the ones which are not read yet by the result of {@link #sort(int)}.
+   */
+  public void delete() {
+    for (OSQLSpillFile run : runs)
+      run.delete();
+
+    runs.clear();
+    records.clear();
+  }
+
+  private void spillRun() {
+    Collections.sort(records, comparator);
+
+    final OSQLSpillFile run = new OSQLSpillFile();
+    // ADDED BEFORE WRITING, SO DELETE() REMOVES IT IF WRITING FAILS
+    runs.add(run);
+
+    for (OIdentifiable record : records)
+      run.write(record);
+
+    updateStatistics(run);
+
+    records.clear();
+  }
+
+  private void updateStatistics(final OSQLSpillFile run) {
+    spilledRecords += run.getRecords();
+    spilledSize += run.getSize();
+    spillFiles++;
+  }
+
+  /**
+   * Merges sorted iterators, equal records are taken from the iterators in the order they are passed.
+   */
+  private final class MergeIterator implements Iterator<OIdentifiable> {
+    private final List<Iterator<OIdentifiable>> iterators;
+    private final PriorityQueue<Head>           heads;
+
+    private MergeIterator(final List<Iterator<OIdentifiable>> iterators) {
+      this.iterators = iterators;
+      this.heads = new PriorityQueue<Head>(Math.max(iterators.size(), 1));
+
+      for (int i = 0; i < iterators.size(); i++)
+        fetch(i);
+    }
+
+    public boolean hasNext() {
+      return !heads.isEmpty();
+    }
+
+    public OIdentifiable next() {
+      final Head head = heads.poll();
+      if (head == null)
+        throw new NoSuchElementException();
+
+      fetch(head.iterator);
+      return head.record;
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException("remove");
+    }
+
+    private void fetch(final int iterator) {
+      final Iterator<OIdentifiable> it = iterators.get(iterator);
+      if (it.hasNext())
+        heads.add(new Head(it.next(), iterator));
+    }
+  }
+
+  private final class Head implements Comparable<Head> {
+    private final OIdentifiable record;
+    private final int           iterator;
+
+    private Head(final OIdentifiable record, final int iterator) {
+      this.record = record;
+      this.iterator = iterator;
+    }
+
+    public int compareTo(final Head other) {
+      final int result = comparator.compare(record, other.record);
+      if (result != 0)
+        return result;
+
+      return iterator < other.iterator ? -1 : (iterator == other.iterator ? 0 : 1);
+    }
+  }
+}
@@ -0,0 +1,482 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabase;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilter;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilterCondition;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilterItemField;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilterItemParameter;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorContains;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorContainsAll;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorContainsValue;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorTraverse;
+import com.orientechnologies.orient.core.storage.OPhysicalPosition;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+/**
+ * Scan of clusters executed by a pool of threads shared by all the queries. Every cluster, or every range of positions of a big
+ * cluster, is scanned by a separate task which reads the raw records from the storage, bypassing the database and its caches, and
+ * evaluates the filter on them. Records are found in no particular order.
+ *
+ * The database of the query is not thread safe, so every task deserializes the records with its own instance of the database,
+ * opened without security checks. Records are read only from the storage, so the filter can be evaluated by the tasks only if it
+ * doesn't load other records or execute queries and functions: see {@link #isFilterSupported(OSQLFilter)}. The supported filters
+ * are shared by the tasks, so they are read only while they are evaluated.
+ */
+public class OSQLParallelScan {
+  private static final int                MIN_RANGE_RECORDS = 10000;
+  private static final int                BATCH_SIZE        = 256;
+  private static final int                QUEUE_SIZE        = 64;
+
+  private static volatile ExecutorService executor;
+
+  private final ODatabaseRecord           database;
+  private final OStorage                  storage;
+  private final OSQLFilter                filter;
+  private final Set<OClass>               targetClasses;
+  private final OCommandContext           context;
+  private final List<Range>               ranges            = new ArrayList<Range>();
+  private final List<Future<?>>           futures           = new ArrayList<Future<?>>();
+  private final AtomicLong                recordReads       = new AtomicLong();
+  private final AtomicLong                documentReads     = new AtomicLong();
+  private volatile boolean                cancelled;
+
+  /**
+   * Consumer of the records found by a task. Consumers are called by the scanning threads.
+   */
+  public interface OConsumer {
+    /**
+     * @return false to stop the scan.
+     */
+    boolean consume(ODocument iRecord);
+  }
+
+  /**
+   * Creates the scan of the passed clusters.
+   *
+   * @param iDatabase
+   *          database of the query, the tasks open their own instances of it to deserialize the records
+   * @param iClusterIds
+   *          clusters to scan
+   * @param iBeginRange
+   *          lowest cluster position to scan, or null to start from the first record
+   * @param iEndRange
+   *          highest cluster position to scan, or null to end at the last record
+   * @param iFilter
+   *          filter of the records, or null to return all the documents
+   * @param iTargetClasses
+   *          classes the documents should belong to, or null if the class is not checked
+   * @param iContext
+   *          context of the query, used to check its timeout
+   */
+  public OSQLParallelScan(final ODatabaseRecord iDatabase, final int[] iClusterIds, final ORID iBeginRange, final ORID iEndRange,
+      final OSQLFilter iFilter, final Set<OClass> iTargetClasses, final OCommandContext iContext) {
+    database = iDatabase;
+    storage = iDatabase.getStorage();
+    filter = iFilter;
+    targetClasses = iTargetClasses;
+    context = iContext;
+
+    final int threads = getThreads();
+    final boolean splitClusters = !OGlobalConfiguration.USE_NODE_ID_CLUSTER_POSITION.getValueAsBoolean();
+
+    for (int clusterId : iClusterIds) {
+      final OClusterPosition[] clusterRange = storage.getClusterDataRange(clusterId);
+      if (!clusterRange[0].isValid() || !clusterRange[1].isValid())
+        // EMPTY CLUSTER
+        continue;
+
+      OClusterPosition first = clusterRange[0];
+      OClusterPosition last = clusterRange[1];
+      if (iBeginRange != null && iBeginRange.getClusterPosition().compareTo(first) > 0)
+        first = iBeginRange.getClusterPosition();
+      if (iEndRange != null && iEndRange.getClusterPosition().compareTo(last) < 0)
+        last = iEndRange.getClusterPosition();
+
+      if (first.compareTo(last) > 0)
+        continue;
+
+      final long parts = splitClusters ? Math.min(threads, storage.count(clusterId) / MIN_RANGE_RECORDS) : 1;
+      if (parts < 2) {
+        ranges.add(new Range(clusterId, first, last));
+        continue;
+      }
+
+      // SPLIT THE POSITIONS OF BIG CLUSTERS IN RANGES OF THE SAME SIZE
+      final long step = (last.longValue() - first.longValue()) / parts + 1;
+      for (long begin = first.longValue(); begin <= last.longValue(); begin += step) {
+        final long end = Math.min(begin + step - 1, last.longValue());
+        ranges.add(new Range(clusterId, OClusterPositionFactory.INSTANCE.valueOf(begin), OClusterPositionFactory.INSTANCE
+            .valueOf(end)));
+      }
+    }
+  }
+
+  /**
+   * Checks if the filter can be evaluated by the scanning threads: the conditions can use fields of the scanned record, parameters
+   * and constant values. Chains of fields, variables, functions, sub-queries and operators which browse other records are not
+   * supported.
+   */
+  public static boolean isFilterSupported(final OSQLFilter iFilter) {
+    return iFilter == null || isValueSupported(iFilter.getRootCondition());
+  }
+
+  /**
+   * @return number of ranges of positions scanned by separate tasks.
+   */
+  public int getRanges() {
+    return ranges.size();
+  }
+
+  public long getRecordReads() {
+    return recordReads.get();
+  }
+
+  public long getDocumentReads() {
+    return documentReads.get();
+  }
+
+  /**
+   * Scans all the ranges, every one with its own consumer, and waits for the end of the scan.
+   *
+   * @param iConsumers
+   *          consumers of the ranges, as many as {@link #getRanges()}
+   */
+  public void scan(final List<? extends OConsumer> iConsumers) {
+    if (iConsumers.size() != ranges.size())
+      throw new IllegalArgumentException("Expected " + ranges.size() + " consumers but received " + iConsumers.size());
+
+    for (int i = 0; i < ranges.size(); i++)
+      futures.add(getExecutor().submit(new Task(ranges.get(i), iConsumers.get(i))));
+
+    try {
+      for (Future<?> future : futures)
+        waitFor(future);
+    } finally {
+      close();
+    }
+  }
+
+  /**
+   * Starts the scan of all the ranges and returns the found records as they are found. Records are passed by the scanning threads
+   * in batches to limit the synchronization with the current thread. The scanning threads are stopped when all the records are
+   * browsed or when {@link #close()} is called, so the iterator should be always closed.
+   */
+  public Iterator<ODocument> iterator() {
+    final BlockingQueue<List<ODocument>> queue = new ArrayBlockingQueue<List<ODocument>>(QUEUE_SIZE);
+    final List<ODocument> end = new ArrayList<ODocument>(0);
+    final AtomicInteger running = new AtomicInteger(ranges.size());
+
+    for (Range range : ranges)
+      futures.add(getExecutor().submit(new BatchTask(range, queue, end, running)));
+
+    if (ranges.isEmpty())
+      put(queue, end);
+
+    return new Iterator<ODocument>() {
+      private List<ODocument>     batch;
+      private Iterator<ODocument> batchIterator;
+
+      public boolean hasNext() {
+        while (batchIterator == null || !batchIterator.hasNext()) {
+          if (batch == end)
+            return false;
+
+          batch = take(queue);
+          batchIterator = batch.iterator();
+
+          if (batch == end)
+            // RETHROW THE ERRORS OF THE TASKS, IF ANY
+            for (Future<?> future : futures)
+              waitFor(future);
+        }
+
+        return true;
+      }
+
+      public ODocument next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
+
+        return batchIterator.next();
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException("remove");
+      }
+    };
+  }
+
+  /**
+   * Stops the scanning threads. Can be called several times.
+   */
+  public void close() {
+    cancelled = true;
+  }
+
+  private <T> boolean put(final BlockingQueue<T> iQueue, final T iItem) {
+    try {
+      // DON'T WAIT FOREVER: THE CONSUMER COULD HAVE STOPPED TO BROWSE THE RECORDS
+      while (!iQueue.offer(iItem, 100, TimeUnit.MILLISECONDS))
+        if (cancelled)
+          return false;
+
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private <T> T take(final BlockingQueue<T> iQueue) {
+    try {
+      return iQueue.take();
+    } catch (InterruptedException e) {
+      close();
+      Thread.currentThread().interrupt();
+      throw new OCommandExecutionException("The select execution has been interrupted");
+    }
+  }
+
+  private void waitFor(final Future<?> iFuture) {
+    try {
+      iFuture.get();
+    } catch (InterruptedException e) {
+      close();
+      Thread.currentThread().interrupt();
+      throw new OCommandExecutionException("The select execution has been interrupted");
+    } catch (ExecutionException e) {
+      close();
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+
+      throw new OCommandExecutionException("Error on parallel scan of clusters", e.getCause());
+    }
+  }
+
+  private static boolean isValueSupported(final Object iValue) {
+    if (iValue == null || iValue instanceof String || iValue instanceof Number || iValue instanceof Boolean
+        || iValue instanceof Date || iValue instanceof ORID || iValue instanceof OSQLFilterItemParameter)
+      return true;
+
+    if (iValue instanceof OSQLFilterItemField)
+      return !((OSQLFilterItemField) iValue).hasChainOperators();
+
+    if (iValue instanceof OSQLFilterCondition) {
+      final OSQLFilterCondition condition = (OSQLFilterCondition) iValue;
+      if (condition.getOperator() instanceof OQueryOperatorTraverse || condition.getOperator() instanceof OQueryOperatorContains
+          || condition.getOperator() instanceof OQueryOperatorContainsAll
+          || condition.getOperator() instanceof OQueryOperatorContainsValue)
+        // THEY CAN LOAD THE LINKED RECORDS
+        return false;
+
+      return isValueSupported(condition.getLeft()) && isValueSupported(condition.getRight());
+    }
+
+    if (iValue instanceof Collection<?>) {
+      for (Object item : (Collection<?>) iValue)
+        if (!isValueSupported(item))
+          return false;
+
+      return true;
+    }
+
+    return false;
+  }
+
+  private static int getThreads() {
+    final int threads = OGlobalConfiguration.QUERY_PARALLEL_THREADS.getValueAsInteger();
+    return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+  }
+
+  private static ExecutorService getExecutor() {
+    if (executor == null)
+      synchronized (OSQLParallelScan.class) {
+        if (executor == null)
+          executor = Executors.newFixedThreadPool(getThreads(), new ThreadFactory() {
+            private final AtomicInteger threadNumber = new AtomicInteger();
+
+            public Thread newThread(final Runnable r) {
+              final Thread thread = new Thread(r, "OrientDB parallel query " + threadNumber.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+      }
+
+    return executor;
+  }
+
+  private static final class Range {
+    private final int              clusterId;
+    private final OClusterPosition first;
+    private final OClusterPosition last;
+
+    private Range(final int clusterId, final OClusterPosition first, final OClusterPosition last) {
+      this.clusterId = clusterId;
+      this.first = first;
+      this.last = last;
+    }
+  }
+
+  /**
+   * Task which passes the found records to a queue in batches. The last task to end adds the <code>end</code> batch to the queue.
+   */
+  private final class BatchTask implements Runnable, OConsumer {
+    private final Task                           task;
+    private final BlockingQueue<List<ODocument>> queue;
+    private final List<ODocument>                end;
+    private final AtomicInteger                  running;
+    private List<ODocument>                      batch = new ArrayList<ODocument>(BATCH_SIZE);
+
+    private BatchTask(final Range range, final BlockingQueue<List<ODocument>> queue, final List<ODocument> end,
+        final AtomicInteger running) {
+      this.task = new Task(range, this);
+      this.queue = queue;
+      this.end = end;
+      this.running = running;
+    }
+
+    public void run() {
+      try {
+        task.run();
+        if (!batch.isEmpty())
+          flush();
+      } finally {
+        if (running.decrementAndGet() == 0)
+          put(queue, end);
+      }
+    }
+
+    public boolean consume(final ODocument iRecord) {
+      batch.add(iRecord);
+      return batch.size() < BATCH_SIZE || flush();
+    }
+
+    private boolean flush() {
+      final boolean result = put(queue, batch);
+      batch = new ArrayList<ODocument>(BATCH_SIZE);
+      return result;
+    }
+  }
+
+  private final class Task implements Runnable {
+    private final Range           range;
+    private final OConsumer       consumer;
+    private final OCommandContext taskContext = new OBasicCommandContext();
+
+    private Task(final Range range, final OConsumer consumer) {
+      this.range = range;
+      this.consumer = consumer;
+    }
+
+    public void run() {
+      // THE DATABASE IS NEEDED TO DESERIALIZE THE RECORDS: THE INSTANCE OF THE QUERY CANNOT BE SHARED BY THE THREADS
+      final ODatabaseDocumentTx taskDatabase = new ODatabaseDocumentTx(database.getURL());
+      taskDatabase.setProperty(ODatabase.OPTIONS.SECURITY.toString(), Boolean.FALSE);
+      taskDatabase.open("admin", "nopass");
+      try {
+        OPhysicalPosition[] positions = storage.ceilingPhysicalPositions(range.clusterId, new OPhysicalPosition(range.first));
+
+        while (positions.length > 0) {
+          for (OPhysicalPosition position : positions) {
+            if (cancelled || position.clusterPosition.compareTo(range.last) > 0)
+              return;
+
+            if (!context.checkTimeout()) {
+              cancelled = true;
+              return;
+            }
+
+            if (position.recordVersion.isTombstone())
+              continue;
+
+            if (!scanRecord(new ORecordId(range.clusterId, position.clusterPosition)))
+              return;
+          }
+
+          positions = storage.higherPhysicalPositions(range.clusterId, positions[positions.length - 1]);
+        }
+      } finally {
+        taskDatabase.close();
+        ODatabaseRecordThreadLocal.INSTANCE.remove();
+      }
+    }
+
+    private boolean scanRecord(final ORecordId iRid) {
+      final ORawBuffer buffer = storage.readRecord(iRid, null, false, null, false).getResult();
+
+      recordReads.incrementAndGet();
+
+      if (buffer == null || buffer.recordType != ODocument.RECORD_TYPE)
+        // SKIP IT
+        return true;
+
+      documentReads.incrementAndGet();
+
+      final ODocument document = new ODocument();
+      document.fill(iRid, buffer.version, buffer.buffer, false);
+
+      if (targetClasses != null)
+        for (OClass targetClass : targetClasses)
+          if (!targetClass.isSuperClassOf(document.getSchemaClass()))
+            return true;
+
+      if (filter != null && !Boolean.TRUE.equals(filter.evaluate(document, null, taskContext)))
+        return true;
+
+      if (!consumer.consume(document)) {
+        cancelled = true;
+        return false;
+      }
+
+      return true;
+    }
+  }
+}
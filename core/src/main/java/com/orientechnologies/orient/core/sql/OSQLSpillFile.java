@@ -0,0 +1,200 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.version.ORecordVersion;
+import com.orientechnologies.orient.core.version.OVersionFactory;
+
+/**
+ * Temporary file where a query spills the records it can't keep in memory. Records are appended to the file and then read back
+ * once, in the same order. Documents are stored with their identity, version and content, so the read documents are detached copies
+ * of the written ones. Records which are not documents are stored by identity only and are loaded again when accessed.
+ *
+ * The file is created in the directory set by {@link OGlobalConfiguration#QUERY_SPILL_PATH} and is deleted when all its records
+ * have been read or when {@link #delete()} is called: the owner has to call it when the records are not read till the end, also
+ * in case of errors.
+ */
+public class OSQLSpillFile implements Iterable<OIdentifiable> {
+  private static final int  BUFFER_SIZE = 64 * 1024;
+
+  private static final byte RECORD_ID   = 0;
+  private static final byte DOCUMENT    = 1;
+
+  private final File        file;
+  private DataOutputStream  out;
+  private DataInputStream   in;
+  private long              records;
+  private long              size;
+
+  public OSQLSpillFile() {
+    try {
+      final String path = OGlobalConfiguration.QUERY_SPILL_PATH.getValueAsString();
+      file = File.createTempFile("orient-query-", ".spill", path != null ? new File(path) : null);
+
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+    } catch (IOException e) {
+      throw new OCommandExecutionException("Error on creation of temporary file for query records", e);
+    }
+  }
+
+  public void write(final OIdentifiable iRecord) {
+    if (out == null)
+      throw new IllegalStateException("Records of spill file " + file + " are already read");
+
+    try {
+      if (iRecord instanceof ODocument) {
+        final ODocument document = (ODocument) iRecord;
+        final byte[] content = document.toStream();
+
+        out.writeByte(DOCUMENT);
+        out.writeUTF(document.getIdentity().toString());
+        document.getRecordVersion().getSerializer().writeTo((DataOutput) out, document.getRecordVersion());
+        out.writeInt(content.length);
+        out.write(content);
+
+        size += content.length;
+      } else {
+        out.writeByte(RECORD_ID);
+        out.writeUTF(iRecord.getIdentity().toString());
+      }
+
+      records++;
+    } catch (IOException e) {
+      throw new OCommandExecutionException("Error on writing query records to temporary file " + file, e);
+    }
+  }
+
+  /**
+   * @return amount of records written to the file.
+   */
+  public long getRecords() {
+    return records;
+  }
+
+  /**
+   * @return amount of bytes of the content of the written documents.
+   */
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * Returns iterator over the written records. The file can be read only once, no more records can be written after the call of
+   * this method.
+   */
+  public Iterator<OIdentifiable> iterator() {
+    if (in != null || out == null)
+      throw new IllegalStateException("Records of spill file " + file + " are already read");
+
+    try {
+      out.close();
+      out = null;
+
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+    } catch (IOException e) {
+      delete();
+      throw new OCommandExecutionException("Error on reading query records from temporary file " + file, e);
+    }
+
+    return new Iterator<OIdentifiable>() {
+      private long read;
+
+      public boolean hasNext() {
+        if (read < records)
+          return true;
+
+        delete();
+        return false;
+      }
+
+      public OIdentifiable next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
+
+        read++;
+        return readRecord();
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException("remove");
+      }
+    };
+  }
+
+  /**
+   * Closes and removes the file. Can be called several times.
+   */
+  public void delete() {
+    try {
+      if (out != null) {
+        out.close();
+        out = null;
+      }
+
+      if (in != null)
+        in.close();
+    } catch (IOException e) {
+      // IGNORE IT, THE FILE IS REMOVED ANYWAY
+    }
+
+    file.delete();
+  }
+
+  private OIdentifiable readRecord() {
+    try {
+      final byte type = in.readByte();
+      final ORecordId rid = new ORecordId(in.readUTF());
+
+      if (type == RECORD_ID)
+        return rid;
+
+      final ORecordVersion version = OVersionFactory.instance().createVersion();
+      version.getSerializer().readFrom((DataInput) in, version);
+
+      final byte[] content = new byte[in.readInt()];
+      in.readFully(content);
+
+      final ODocument document = new ODocument();
+      document.fill(rid, version, content, false);
+      return document;
+    } catch (EOFException e) {
+      delete();
+      throw new OCommandExecutionException("Temporary file " + file + " of query records is truncated", e);
+    } catch (IOException e) {
+      delete();
+      throw new OCommandExecutionException("Error on reading query records from temporary file " + file, e);
+    }
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.command.OCommandExecutor;
+import com.orientechnologies.orient.core.command.OCommandManager;
+import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.profiler.OJVMProfiler;
+import com.orientechnologies.orient.core.sql.query.OSQLAsynchQuery;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.OStorageEmbedded;
+
+/**
+ * Cache of the parsed SELECT statements of a storage, keyed by the text of the query. Parsed statements keep the target, the filter
+ * tree, the projections and the names of the indexes chosen for the filter, so the next executions of the same text skip the
+ * parsing and the analysis of the involved indexes. Parameters are bound at every execution.
+ *
+ * The filter tree keeps the values of the bound parameters and the state of the aggregate functions, so a parsed statement is used
+ * by one execution at time: it's taken from the cache before the execution and put back after it. Concurrent executions of the same
+ * text parse their own statements, up to {@link #MAX_IDLE_STATEMENTS} of them are kept per text. The whole cache is cleared when
+ * the schema or the indexes change.
+ *
+ * The maximum amount of cached texts is set by {@link OGlobalConfiguration#QUERY_STATEMENT_CACHE_SIZE}, 0 disables the cache.
+ */
+public class OSQLStatementCache {
+  public static final int                                    MAX_IDLE_STATEMENTS = 8;
+
+  private final String                                       storageName;
+  private final Map<String, List<OCommandExecutorSQLSelect>> statements;
+  private final AtomicLong                                   hits                = new AtomicLong();
+  private final AtomicLong                                   misses              = new AtomicLong();
+  private volatile long                                      generation;
+
+  public OSQLStatementCache(final String iStorageName, final int iMaxSize) {
+    storageName = iStorageName;
+    statements = new LinkedHashMap<String, List<OCommandExecutorSQLSelect>>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, List<OCommandExecutorSQLSelect>> iEldest) {
+        return size() > iMaxSize;
+      }
+    };
+  }
+
+  /**
+   * Returns the statement cache of the storage, or null if statements can't be cached because the storage is not embedded or the
+   * cache is disabled.
+   */
+  public static OSQLStatementCache get(final OStorage iStorage) {
+    if (!(iStorage instanceof OStorageEmbedded))
+      return null;
+
+    final int size = OGlobalConfiguration.QUERY_STATEMENT_CACHE_SIZE.getValueAsInteger();
+    if (size <= 0)
+      return null;
+
+    return iStorage.getResource(OSQLStatementCache.class.getSimpleName(), new Callable<OSQLStatementCache>() {
+      public OSQLStatementCache call() throws Exception {
+        return new OSQLStatementCache(iStorage.getName(), size);
+      }
+    });
+  }
+
+  /**
+   * Clears the statement cache of the storage if any. Called on every change of the schema and of the indexes.
+   */
+  public static void invalidate(final OStorage iStorage) {
+    if (iStorage != null && iStorage.existsResource(OSQLStatementCache.class.getSimpleName()))
+      iStorage.<OSQLStatementCache> getResource(OSQLStatementCache.class.getSimpleName(), null).clear();
+  }
+
+  /**
+   * Tells if the command can be served by the cache: only SQL queries starting with SELECT and without a limit set on the request
+   * are cached.
+   */
+  public static boolean isCacheable(final OCommandRequestText iCommand) {
+    final Class<?> commandClass = iCommand.getClass();
+    if (commandClass != OCommandSQL.class && commandClass != OSQLSynchQuery.class && commandClass != OSQLAsynchQuery.class)
+      return false;
+
+    if (iCommand.getLimit() != -1)
+      return false;
+
+    final String text = iCommand.getText();
+    if (text == null)
+      return false;
+
+    final String trimmed = text.trim();
+    return trimmed.regionMatches(true, 0, OCommandExecutorSQLSelect.KEYWORD_SELECT, 0,
+        OCommandExecutorSQLSelect.KEYWORD_SELECT.length());
+  }
+
+  /**
+   * Executes the SELECT command with a cached statement if available, otherwise parses it and caches it once executed.
+   */
+  public Object command(final OCommandRequestText iCommand, final OStorageEmbedded iStorage) {
+    final String text = iCommand.getText();
+    final long currentGeneration = generation;
+
+    OCommandExecutorSQLSelect statement = checkOut(text);
+    if (statement != null) {
+      hits.incrementAndGet();
+      updateCounter("hit", "Executed SELECT statements found in the statement cache");
+
+      statement.setContext(iCommand.getContext());
+      statement.setProgressListener(iCommand.getProgressListener());
+      statement.bind(iCommand);
+    } else {
+      misses.incrementAndGet();
+      updateCounter("miss", "Executed SELECT statements not found in the statement cache");
+
+      final OCommandExecutor executor = OCommandManager.instance().getExecutor(iCommand);
+      executor.setContext(iCommand.getContext());
+      executor.setProgressListener(iCommand.getProgressListener());
+      executor.parse(iCommand);
+
+      if (executor.getClass() != OCommandExecutorSQLDelegate.class
+          || ((OCommandExecutorSQLDelegate) executor).getDelegate().getClass() != OCommandExecutorSQLSelect.class
+          || !((OCommandExecutorSQLSelect) ((OCommandExecutorSQLDelegate) executor).getDelegate()).isStatementCacheable())
+        return iStorage.executeCommand(iCommand, executor);
+
+      statement = (OCommandExecutorSQLSelect) ((OCommandExecutorSQLDelegate) executor).getDelegate();
+    }
+
+    // IN CASE OF ERRORS THE STATEMENT IS DISCARDED
+    final Object result = iStorage.executeCommand(iCommand, statement);
+
+    statement.release();
+    checkIn(text, statement, currentGeneration);
+
+    return result;
+  }
+
+  public synchronized void clear() {
+    statements.clear();
+    generation++;
+  }
+
+  /**
+   * @return amount of query texts with cached statements.
+   */
+  public synchronized int size() {
+    return statements.size();
+  }
+
+  /**
+   * @return amount of executions served by cached statements.
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * @return amount of executions which parsed their statement.
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  private synchronized OCommandExecutorSQLSelect checkOut(final String iText) {
+    final List<OCommandExecutorSQLSelect> idle = statements.get(iText);
+    if (idle == null || idle.isEmpty())
+      return null;
+
+    return idle.remove(idle.size() - 1);
+  }
+
+  private synchronized void checkIn(final String iText, final OCommandExecutorSQLSelect iStatement, final long iGeneration) {
+    if (iGeneration != generation)
+      // PARSED BEFORE A CHANGE OF THE SCHEMA OR OF THE INDEXES
+      return;
+
+    List<OCommandExecutorSQLSelect> idle = statements.get(iText);
+    if (idle == null) {
+      idle = new ArrayList<OCommandExecutorSQLSelect>();
+      statements.put(iText, idle);
+    }
+
+    if (idle.size() < MAX_IDLE_STATEMENTS)
+      idle.add(iStatement);
+  }
+
+  private void updateCounter(final String iName, final String iDescription) {
+    final OJVMProfiler profiler = Orient.instance().getProfiler();
+    if (profiler.isRecording())
+      profiler.updateCounter(profiler.getDatabaseMetric(storageName, "query.statementCache." + iName), iDescription, +1);
+  }
+}
@@ -37,6 +37,7 @@ public class OSQLFilterItemField extends OSQLFilterItemAbstract {
   protected Set<String> preLoadedFields;
   protected String[]    preLoadedFieldsArray;
   protected String      name;
+  protected String[]    nameArray;
 
   public OSQLFilterItemField(final OBaseParser iQueryToParse, final String iName) {
     super(iQueryToParse, iName);
@@ -48,14 +49,9 @@ public class OSQLFilterItemField extends OSQLFilterItemAbstract {
 
     final ODocument doc = (ODocument) iRecord.getRecord();
 
-    if (preLoadedFieldsArray == null && preLoadedFields != null && preLoadedFields.size() > 0 && preLoadedFields.size() < 5) {
-      // TRANSFORM THE SET IN ARRAY ONLY THE FIRST TIME AND IF FIELDS ARE MORE THAN ONE, OTHERWISE GO WITH THE DEFAULT BEHAVIOR
-      preLoadedFieldsArray = new String[preLoadedFields.size()];
-      preLoadedFields.toArray(preLoadedFieldsArray);
-    }
-
-    // UNMARSHALL THE SINGLE FIELD
-    if (doc.deserializeFields(preLoadedFieldsArray))
+    // UNMARSHALL THE FIELDS OF THE CONDITION OR THE SINGLE FIELD (PROJECTIONS): THE DOCUMENT INDEXES ITS CONTENT ONCE AND
+    // UNMARSHALLS ONLY THE REQUESTED FIELDS
+    if (doc.deserializeFields(preLoadedFieldsArray != null ? preLoadedFieldsArray : nameArray))
       // FIELD FOUND
       return transformValue(iRecord, iContext,  ODocumentHelper.getFieldValue(doc, name));
 
@@ -68,6 +64,7 @@ public class OSQLFilterItemField extends OSQLFilterItemAbstract {
 
   public void setRoot(final OBaseParser iQueryToParse, final String iRoot) {
     this.name = iRoot;
+    this.nameArray = iRoot != null ? new String[] { toFieldName(iRoot) } : null;
   }
 
   /**
@@ -139,7 +136,39 @@ public class OSQLFilterItemField extends OSQLFilterItemAbstract {
     }
   }
 
+  /**
+   * Sets the fields to unmarshall together with this one. The list must be complete: it's transformed in array here, so that the
+   * evaluation of the item doesn't change it.
+   */
   public void setPreLoadedFields(final Set<String> iPrefetchedFieldList) {
     this.preLoadedFields = iPrefetchedFieldList;
+
+    if (iPrefetchedFieldList != null && !iPrefetchedFieldList.isEmpty()) {
+      preLoadedFieldsArray = new String[iPrefetchedFieldList.size()];
+      int i = 0;
+      for (String f : iPrefetchedFieldList)
+        preLoadedFieldsArray[i++] = toFieldName(f);
+    } else
+      preLoadedFieldsArray = null;
+  }
+
+  /**
+   * Returns the name of the document field to unmarshall for a field item: "address.city" and "tags[0]" need "address" and
+   * "tags". Extracted once when the item is built: ODocument.deserializeFields() replaces the names it receives in place and the
+   * arrays are shared by all the threads evaluating the condition.
+   */
+  protected static String toFieldName(final String iName) {
+    if (iName.startsWith("@"))
+      return iName;
+
+    final int pos1 = iName.indexOf('[');
+    final int pos2 = iName.indexOf('.');
+    if (pos1 == -1 && pos2 == -1)
+      return iName;
+
+    int pos = pos1 > -1 ? pos1 : pos2;
+    if (pos2 > -1 && pos2 < pos)
+      pos = pos2;
+    return iName.substring(0, pos);
   }
 }
@@ -368,6 +368,17 @@ public class OSQLPredicate extends OBaseParser implements OCommandPredicate {
     }
   }
 
+  /**
+   * Unbinds the parameters bound by the last call of {@link #bindParameters(Map)}.
+   */
+  public void resetParameters() {
+    if (parameterItems == null)
+      return;
+
+    for (OSQLFilterItemParameter value : parameterItems)
+      value.reset();
+  }
+
   public OSQLFilterItemParameter addParameter(final String iName) {
     final String name;
     if (iName.charAt(0) == OStringSerializerHelper.PARAMETER_NAMED) {
@@ -395,24 +406,37 @@ public class OSQLPredicate extends OBaseParser implements OCommandPredicate {
 
   protected void optimize() {
     if (rootCondition != null)
-      computePrefetchFieldList(rootCondition, new HashSet<String>());
+      // THE FIELDS RECEIVE THE COMPLETE LIST, SO THE FILTER IS NOT CHANGED BY THE EVALUATION AND CAN BE SHARED BY SEVERAL THREADS
+      setPrefetchFieldList(rootCondition, computePrefetchFieldList(rootCondition, new HashSet<String>()));
   }
 
   protected Set<String> computePrefetchFieldList(final OSQLFilterCondition iCondition, final Set<String> iFields) {
     Object left = iCondition.getLeft();
     Object right = iCondition.getRight();
-    if (left instanceof OSQLFilterItemField) {
-      ((OSQLFilterItemField) left).setPreLoadedFields(iFields);
+    if (left instanceof OSQLFilterItemField)
       iFields.add(((OSQLFilterItemField) left).getRoot());
-    } else if (left instanceof OSQLFilterCondition)
+    else if (left instanceof OSQLFilterCondition)
       computePrefetchFieldList((OSQLFilterCondition) left, iFields);
 
-    if (right instanceof OSQLFilterItemField) {
-      ((OSQLFilterItemField) right).setPreLoadedFields(iFields);
+    if (right instanceof OSQLFilterItemField)
       iFields.add(((OSQLFilterItemField) right).getRoot());
-    } else if (right instanceof OSQLFilterCondition)
+    else if (right instanceof OSQLFilterCondition)
       computePrefetchFieldList((OSQLFilterCondition) right, iFields);
 
     return iFields;
   }
+
+  protected void setPrefetchFieldList(final OSQLFilterCondition iCondition, final Set<String> iFields) {
+    Object left = iCondition.getLeft();
+    Object right = iCondition.getRight();
+    if (left instanceof OSQLFilterItemField)
+      ((OSQLFilterItemField) left).setPreLoadedFields(iFields);
+    else if (left instanceof OSQLFilterCondition)
+      setPrefetchFieldList((OSQLFilterCondition) left, iFields);
+
+    if (right instanceof OSQLFilterItemField)
+      ((OSQLFilterItemField) right).setPreLoadedFields(iFields);
+    else if (right instanceof OSQLFilterCondition)
+      setPrefetchFieldList((OSQLFilterCondition) right, iFields);
+  }
 }
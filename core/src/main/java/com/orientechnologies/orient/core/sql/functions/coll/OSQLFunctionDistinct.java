@@ -20,6 +20,8 @@ import java.util.Set;
 
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORidSet;
 import com.orientechnologies.orient.core.sql.functions.OSQLFunctionAbstract;
 
 /**
@@ -32,6 +34,7 @@ public class OSQLFunctionDistinct extends OSQLFunctionAbstract {
   public static final String NAME    = "distinct";
 
   private Set<Object>        context = new LinkedHashSet<Object>();
+  private Set<ORID>          rids    = new ORidSet();
 
   public OSQLFunctionDistinct() {
     super(NAME, 1, 1);
@@ -41,6 +44,10 @@ public class OSQLFunctionDistinct extends OSQLFunctionAbstract {
       OCommandContext iContext) {
     final Object value = iParameters[0];
 
+    if (value instanceof ORID)
+      // RIDS ARE KEPT AS PRIMITIVES TO NOT RETAIN AN OBJECT PER DISTINCT RECORD
+      return rids.add((ORID) value) ? value : null;
+
     if (value != null && !context.contains(value)) {
       context.add(value);
       return value;
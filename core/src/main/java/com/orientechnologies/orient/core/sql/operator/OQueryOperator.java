@@ -22,7 +22,10 @@ import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OCompositeIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
+import com.orientechnologies.orient.core.index.OIndexDefinitionMultiValue;
+import com.orientechnologies.orient.core.index.OIndexStatistics;
 import com.orientechnologies.orient.core.profiler.OJVMProfiler;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterCondition;
@@ -142,6 +145,26 @@ public abstract class OQueryOperator {
     return null;
   }
 
+  /**
+   * Estimates the amount of records returned by {@link #executeIndexQuery} with the same parameters, using the statistics collected
+   * on the index by <code>ANALYZE INDEX</code>.
+   * 
+   * @param iContext
+   *          Context of the command
+   * @param iStatistics
+   *          Statistics of the index
+   * @param index
+   *          Instance of index that would be used to calculate result of operator execution.
+   * @param keyParams
+   *          Parameters of query that would be used to calculate query result.
+   * 
+   * @return Estimated amount of records or -1 if the operator can't estimate them.
+   */
+  public long estimateIndexQuery(OCommandContext iContext, final OIndexStatistics iStatistics, final OIndex<?> index,
+      final List<Object> keyParams) {
+    return -1;
+  }
+
   @Override
   public String toString() {
     return keyword;
@@ -226,4 +249,20 @@ public abstract class OQueryOperator {
       }
     }
   }
+
+  /**
+   * Creates the key to look up in the index from the parameters of the query, as {@link #executeIndexQuery} does: for composite
+   * indexes it can be a part of the whole key.
+   * 
+   * @return Key or {@code null} if the parameters can't be converted to a key of the index.
+   */
+  protected Object createIndexKey(final OIndexDefinition indexDefinition, final List<Object> keyParams) {
+    if (indexDefinition.getParamCount() == 1) {
+      if (indexDefinition instanceof OIndexDefinitionMultiValue)
+        return ((OIndexDefinitionMultiValue) indexDefinition).createSingleValue(keyParams.get(0));
+      return indexDefinition.createValue(keyParams);
+    }
+
+    return ((OCompositeIndexDefinition) indexDefinition).createSingleValue(keyParams);
+  }
 }
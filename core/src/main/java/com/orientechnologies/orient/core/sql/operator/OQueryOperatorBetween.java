@@ -28,6 +28,7 @@ import com.orientechnologies.orient.core.index.OCompositeIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndexInternal;
+import com.orientechnologies.orient.core.index.OIndexStatistics;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocumentHelper;
 import com.orientechnologies.orient.core.sql.OSQLHelper;
@@ -159,6 +160,38 @@ public class OQueryOperatorBetween extends OQueryOperatorEqualityNotNulls {
     return result;
   }
 
+  @Override
+  public long estimateIndexQuery(OCommandContext iContext, OIndexStatistics iStatistics, OIndex<?> index, List<Object> keyParams) {
+    final OIndexDefinition indexDefinition = index.getDefinition();
+
+    final Object[] betweenKeys = (Object[]) keyParams.get(keyParams.size() - 1);
+    final Object betweenKeyOne = OSQLHelper.getValue(betweenKeys[0]);
+    final Object betweenKeyTwo = OSQLHelper.getValue(betweenKeys[2]);
+    if (betweenKeyOne == null || betweenKeyTwo == null)
+      return -1;
+
+    final List<Object> betweenKeyOneParams = new ArrayList<Object>(keyParams.subList(0, keyParams.size() - 1));
+    betweenKeyOneParams.add(betweenKeyOne);
+
+    final List<Object> betweenKeyTwoParams = new ArrayList<Object>(keyParams.subList(0, keyParams.size() - 1));
+    betweenKeyTwoParams.add(betweenKeyTwo);
+
+    final Object keyOne;
+    final Object keyTwo;
+    if (indexDefinition.getParamCount() == 1) {
+      keyOne = indexDefinition.createValue(betweenKeyOneParams);
+      keyTwo = indexDefinition.createValue(betweenKeyTwoParams);
+    } else {
+      keyOne = createIndexKey(indexDefinition, betweenKeyOneParams);
+      keyTwo = createIndexKey(indexDefinition, betweenKeyTwoParams);
+    }
+
+    if (keyOne == null || keyTwo == null)
+      return -1;
+
+    return iStatistics.estimateRange(keyOne, true, keyTwo, true);
+  }
+
   @Override
   public ORID getBeginRidRange(final Object iLeft, final Object iRight) {
     validate(iRight);
@@ -169,6 +169,15 @@ public class OQueryOperatorEquals extends OQueryOperatorEqualityNotNulls {
     return result;
   }
 
+  @Override
+  public long estimateIndexQuery(OCommandContext iContext, OIndexStatistics iStatistics, OIndex<?> index, List<Object> keyParams) {
+    final Object key = createIndexKey(index.getDefinition(), keyParams);
+    if (key == null)
+      return -1;
+
+    return iStatistics.estimateEquals(key);
+  }
+
   private Object convertIndexResult(Object indexResult) {
     Object result;
     if (indexResult instanceof Collection)
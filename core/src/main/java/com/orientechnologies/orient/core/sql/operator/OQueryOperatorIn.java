@@ -28,6 +28,7 @@ import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndexInternal;
+import com.orientechnologies.orient.core.index.OIndexStatistics;
 import com.orientechnologies.orient.core.record.impl.ODocumentHelper;
 import com.orientechnologies.orient.core.sql.OSQLHelper;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterCondition;
@@ -161,6 +162,37 @@ public class OQueryOperatorIn extends OQueryOperatorEqualityNotNulls {
     return result;
   }
 
+  @SuppressWarnings("unchecked")
+  @Override
+  public long estimateIndexQuery(OCommandContext iContext, OIndexStatistics iStatistics, OIndex<?> index, List<Object> keyParams) {
+    final OIndexDefinition indexDefinition = index.getDefinition();
+    if (indexDefinition.getParamCount() != 1)
+      return -1;
+
+    final Object inKeyValue = keyParams.get(0);
+    final List<Object> inParams;
+    if (inKeyValue instanceof List<?>)
+      inParams = (List<Object>) inKeyValue;
+    else if (inKeyValue instanceof OSQLFilterItem)
+      inParams = (List<Object>) ((OSQLFilterItem) inKeyValue).getValue(null, iContext);
+    else
+      return -1;
+
+    long result = 0;
+    for (final Object keyValue : inParams) {
+      final Object key = indexDefinition.createValue(OSQLHelper.getValue(keyValue));
+      if (key == null)
+        return -1;
+
+      final long keyEstimation = iStatistics.estimateEquals(key);
+      if (keyEstimation < 0)
+        return -1;
+
+      result += keyEstimation;
+    }
+    return result;
+  }
+
   @Override
   public ORID getBeginRidRange(Object iLeft, Object iRight) {
     final Iterable<?> ridCollection;
@@ -112,6 +112,26 @@ public class OQueryOperatorMinorEquals extends OQueryOperatorEqualityNotNulls {
     return result;
   }
 
+  @Override
+  public long estimateIndexQuery(OCommandContext iContext, OIndexStatistics iStatistics, OIndex<?> index, List<Object> keyParams) {
+    final OIndexDefinition indexDefinition = index.getDefinition();
+
+    if (indexDefinition.getParamCount() == 1) {
+      final Object key = createIndexKey(indexDefinition, keyParams);
+      if (key == null)
+        return -1;
+
+      return iStatistics.estimateRange(null, false, key, true);
+    }
+
+    final Object keyOne = createIndexKey(indexDefinition, keyParams.subList(0, keyParams.size() - 1));
+    final Object keyTwo = createIndexKey(indexDefinition, keyParams);
+    if (keyOne == null || keyTwo == null)
+      return -1;
+
+    return iStatistics.estimateRange(keyOne, true, keyTwo, true);
+  }
+
   @Override
   public ORID getBeginRidRange(Object iLeft, Object iRight) {
     return null;
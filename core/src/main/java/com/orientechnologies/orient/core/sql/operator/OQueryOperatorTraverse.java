@@ -17,7 +17,6 @@ package com.orientechnologies.orient.core.sql.operator;
 
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -27,6 +26,7 @@ import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ORecordElement;
 import com.orientechnologies.orient.core.exception.ORecordNotFoundException;
 import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORidSet;
 import com.orientechnologies.orient.core.query.OQueryRuntimeValueMulti;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterCondition;
@@ -73,8 +73,12 @@ public class OQueryOperatorTraverse extends OQueryOperatorEqualityNotNulls {
       target = iLeft;
     }
 
-    final Set<ORID> evaluatedRecords = new HashSet<ORID>();
-    return traverse(target, condition, 0, evaluatedRecords, iContext);
+    final ORidSet evaluatedRecords = new ORidSet();
+    try {
+      return traverse(target, condition, 0, evaluatedRecords, iContext);
+    } finally {
+      evaluatedRecords.free();
+    }
   }
 
   @SuppressWarnings("unchecked")
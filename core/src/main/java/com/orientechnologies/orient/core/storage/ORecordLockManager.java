@@ -16,11 +16,13 @@
 package com.orientechnologies.orient.core.storage;
 
 import com.orientechnologies.common.concur.lock.OLockManager;
+import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.id.ORID;
 
 /**
- * Record lock manager.
+ * Record lock manager. The time spent by threads waiting for the lock of a record held by another thread is recorded by the
+ * profiler, in microseconds, as the "db.recordLock.wait" statistic.
  * 
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
  * 
@@ -35,4 +37,10 @@ public class ORecordLockManager extends OLockManager<ORID, Runnable> {
   protected ORID getImmutableResourceId(ORID iResourceId) {
     return iResourceId.copy();
   }
+
+  @Override
+  protected void onLockWait(final ORID iResourceId, final LOCK iLockType, final long iWaitNanos) {
+    Orient.instance().getProfiler()
+        .updateStat("db.recordLock.wait", "Time waited to lock a record locked by another thread (microseconds)", iWaitNanos / 1000);
+  }
 }
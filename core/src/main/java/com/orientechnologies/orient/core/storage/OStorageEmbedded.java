@@ -34,6 +34,7 @@ import com.orientechnologies.orient.core.id.OClusterPositionFactory;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.sql.OSQLStatementCache;
 
 /**
  * Interface for embedded storage.
@@ -77,6 +78,12 @@ public abstract class OStorageEmbedded extends OStorageAbstract {
    * Executes the command request and return the result back.
    */
   public Object command(final OCommandRequestText iCommand) {
+    if (OSQLStatementCache.isCacheable(iCommand)) {
+      final OSQLStatementCache statementCache = OSQLStatementCache.get(this);
+      if (statementCache != null)
+        return statementCache.command(iCommand, this);
+    }
+
     final OCommandExecutor executor = OCommandManager.instance().getExecutor(iCommand);
 
     // COPY THE CONTEXT FROM THE REQUEST
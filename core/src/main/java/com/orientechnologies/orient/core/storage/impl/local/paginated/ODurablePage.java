@@ -0,0 +1,169 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.local.paginated;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+
+import com.orientechnologies.common.directmemory.ODirectMemory;
+import com.orientechnologies.common.directmemory.ODirectMemoryFactory;
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.updatePageRecord.OBinaryFullPageDiff;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.updatePageRecord.OBinaryPageDiff;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.updatePageRecord.OFullPageDiff;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.updatePageRecord.OIntFullPageDiff;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.updatePageRecord.OIntPageDiff;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.updatePageRecord.OLongFullPageDiff;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.updatePageRecord.OLongPageDiff;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.updatePageRecord.OPageDiff;
+
+/**
+ * Page kept in the disk cache whose changes are logged in the write ahead log. The page starts with the magic number and the CRC32
+ * written by the disk cache on flush, followed by the LSN of the last change. Every change done through the setters is tracked,
+ * according to the {@link TrackMode}, as a list of diffs that can be restored or reverted later.
+ */
+public class ODurablePage {
+  public static enum TrackMode {
+    NONE, FORWARD, BOTH
+  }
+
+  protected static final int    MAGIC_NUMBER_OFFSET = 0;
+  protected static final int    CRC32_OFFSET        = MAGIC_NUMBER_OFFSET + OLongSerializer.LONG_SIZE;
+
+  protected static final int    WAL_SEGMENT_OFFSET  = CRC32_OFFSET + OIntegerSerializer.INT_SIZE;
+  protected static final int    WAL_POSITION_OFFSET = WAL_SEGMENT_OFFSET + OIntegerSerializer.INT_SIZE;
+
+  public static final int       NEXT_FREE_POSITION  = WAL_POSITION_OFFSET + OLongSerializer.LONG_SIZE;
+
+  protected final long          pagePointer;
+  protected final ODirectMemory directMemory        = ODirectMemoryFactory.INSTANCE.directMemory();
+
+  private List<OPageDiff<?>>    pageChanges         = new ArrayList<OPageDiff<?>>();
+
+  protected final TrackMode     trackMode;
+
+  public ODurablePage(long pagePointer, TrackMode trackMode) {
+    this.pagePointer = pagePointer;
+    this.trackMode = trackMode;
+  }
+
+  public OLogSequenceNumber getLsn() {
+    int segment = OIntegerSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, pagePointer + WAL_SEGMENT_OFFSET);
+    long position = OLongSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, pagePointer + WAL_POSITION_OFFSET);
+
+    return new OLogSequenceNumber(segment, position);
+  }
+
+  public void setLsn(OLogSequenceNumber lsn) {
+    OIntegerSerializer.INSTANCE.serializeInDirectMemory(lsn.getSegment(), directMemory, pagePointer + WAL_SEGMENT_OFFSET);
+    OLongSerializer.INSTANCE.serializeInDirectMemory(lsn.getPosition(), directMemory, pagePointer + WAL_POSITION_OFFSET);
+  }
+
+  public List<OPageDiff<?>> getPageChanges() {
+    return pageChanges;
+  }
+
+  public void restoreChanges(List<OPageDiff<?>> changes) {
+    for (OPageDiff<?> diff : changes)
+      diff.restorePageData(pagePointer);
+  }
+
+  public void revertChanges(List<OFullPageDiff<?>> changes) {
+    ListIterator<OFullPageDiff<?>> listIterator = changes.listIterator(changes.size());
+
+    while (listIterator.hasPrevious()) {
+      OFullPageDiff<?> diff = listIterator.previous();
+      diff.revertPageData(pagePointer);
+    }
+  }
+
+  public int getIntValue(int pageOffset) {
+    return OIntegerSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, pagePointer + pageOffset);
+  }
+
+  public long getLongValue(int pageOffset) {
+    return OLongSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, pagePointer + pageOffset);
+  }
+
+  public byte[] getBinaryValue(int pageOffset, int valLen) {
+    return directMemory.get(pagePointer + pageOffset, valLen);
+  }
+
+  public byte getByteValue(int pageOffset) {
+    return directMemory.getByte(pagePointer + pageOffset);
+  }
+
+  public void setIntValue(int pageOffset, int value) throws IOException {
+    if (trackMode.equals(TrackMode.FORWARD))
+      pageChanges.add(new OIntPageDiff(value, pageOffset));
+    else if (trackMode.equals(TrackMode.BOTH)) {
+      int oldValue = OIntegerSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, pagePointer + pageOffset);
+      pageChanges.add(new OIntFullPageDiff(value, pageOffset, oldValue));
+    }
+
+    OIntegerSerializer.INSTANCE.serializeInDirectMemory(value, directMemory, pagePointer + pageOffset);
+  }
+
+  public void setLongValue(int pageOffset, long value) throws IOException {
+    if (trackMode.equals(TrackMode.FORWARD))
+      pageChanges.add(new OLongPageDiff(value, pageOffset));
+    else if (trackMode.equals(TrackMode.BOTH)) {
+      long oldValue = OLongSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, pagePointer + pageOffset);
+      pageChanges.add(new OLongFullPageDiff(value, pageOffset, oldValue));
+    }
+
+    OLongSerializer.INSTANCE.serializeInDirectMemory(value, directMemory, pagePointer + pageOffset);
+  }
+
+  public void setByteValue(int pageOffset, byte value) throws IOException {
+    setBinaryValue(pageOffset, new byte[] { value });
+  }
+
+  public void setBinaryValue(int pageOffset, byte[] value) throws IOException {
+    if (value.length == 0)
+      return;
+
+    if (trackMode.equals(TrackMode.FORWARD))
+      pageChanges.add(new OBinaryPageDiff(value, pageOffset));
+    else if (trackMode.equals(TrackMode.BOTH)) {
+      byte[] oldValue = directMemory.get(pagePointer + pageOffset, value.length);
+      pageChanges.add(new OBinaryFullPageDiff(value, pageOffset, oldValue));
+    }
+
+    directMemory.set(pagePointer + pageOffset, value, 0, value.length);
+  }
+
+  public void copyData(int from, int to, int len) throws IOException {
+    if (len == 0)
+      return;
+
+    if (trackMode.equals(TrackMode.FORWARD)) {
+      byte[] content = directMemory.get(pagePointer + from, len);
+      pageChanges.add(new OBinaryPageDiff(content, to));
+    } else if (trackMode.equals(TrackMode.BOTH)) {
+      byte[] content = directMemory.get(pagePointer + from, len);
+      byte[] oldContent = directMemory.get(pagePointer + to, len);
+
+      pageChanges.add(new OBinaryFullPageDiff(content, to, oldContent));
+    }
+
+    directMemory.copyData(pagePointer + from, pagePointer + to, len);
+  }
+}
@@ -36,6 +36,8 @@ import static com.orientechnologies.orient.core.config.OGlobalConfiguration.PAGI
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.zip.CRC32;
 
 import com.orientechnologies.common.concur.lock.OModificationLock;
@@ -85,13 +87,14 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
                                                                                  * OIntegerSerializer.INT_SIZE
                                                                                  + OLongSerializer.LONG_SIZE;
 
-  private OCompression                          compression;
+  private volatile OCompression                 compression;
 
   public static final String                    TYPE                         = "PHYSICAL";
 
   private static final int                      PAGE_INDEX_OFFSET            = 16;
   private static final int                      RECORD_POSITION_MASK         = 0xFFFF;
   private static final int                      ONE_KB                       = 1024;
+  private static final int                      PAGE_LATCHES                 = 64;
 
   private ODiskCache                            diskCache;
 
@@ -118,10 +121,23 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
 
   private boolean                               useFirstStateHolder          = true;
 
+  private volatile boolean                      bulkLoad;
+  private long                                  bulkLoadFirstPage            = -1;
+
+  /**
+   * Latches of the pages, shared by the pages with the same index modulo {@link #PAGE_LATCHES}. Records are read holding only the
+   * shared latch of the page being read, so reads are not blocked by writers of other pages. Writers, which are serialized by the
+   * exclusive lock of the cluster, hold the exclusive latch of each page while they change the records in it.
+   */
+  private final ReentrantReadWriteLock[]        pageLatches                  = new ReentrantReadWriteLock[PAGE_LATCHES];
+
   public OLocalPaginatedCluster() {
     super(OGlobalConfiguration.ENVIRONMENT_CONCURRENT.getValueAsBoolean());
     for (int i = 0; i < freePageLists.length; i++)
       freePageLists[i] = -1;
+
+    for (int i = 0; i < pageLatches.length; i++)
+      pageLatches[i] = new ReentrantReadWriteLock();
   }
 
   @Override
@@ -174,14 +190,18 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
     name = config.getName();
     this.id = config.getId();
 
-    OStorageFileConfiguration clusterStateConfiguration = new OStorageFileConfiguration(null,
-        OStorageVariableParser.DB_PATH_VARIABLE + "/" + config.getName() + CLUSTER_STATE_FILE_EXTENSION, OFileFactory.CLASSIC,
-        "1024", "50%");
-    clusterStateHolder = new OSingleFileSegment(storage, clusterStateConfiguration);
+    if (storage.isDiskBased()) {
+      OStorageFileConfiguration clusterStateConfiguration = new OStorageFileConfiguration(null,
+          OStorageVariableParser.DB_PATH_VARIABLE + "/" + config.getName() + CLUSTER_STATE_FILE_EXTENSION, OFileFactory.CLASSIC,
+          "1024", "50%");
+      clusterStateHolder = new OSingleFileSegment(storage, clusterStateConfiguration);
+    } else
+      // THE STATE OF A MEMORY ONLY CLUSTER IS NEVER RELOADED
+      clusterStateHolder = null;
   }
 
   public boolean exists() {
-    return clusterStateHolder.exists();
+    return clusterStateHolder != null && clusterStateHolder.exists();
   }
 
   @Override
@@ -192,12 +212,14 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
       try {
         fileId = diskCache.openFile(name + DEF_EXTENSION);
 
-        final int statesSize = 2 * STATE_SIZE;
+        if (clusterStateHolder != null) {
+          final int statesSize = 2 * STATE_SIZE;
 
-        clusterStateHolder.create(statesSize);
-        OFile file = clusterStateHolder.getFile();
-        file.allocateSpace(statesSize);
-        file.write(0, new byte[statesSize]);
+          clusterStateHolder.create(statesSize);
+          OFile file = clusterStateHolder.getFile();
+          file.allocateSpace(statesSize);
+          file.write(0, new byte[statesSize]);
+        }
 
         if (config.root.clusters.size() <= config.id)
           config.root.clusters.add(config);
@@ -219,9 +241,11 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
       acquireExclusiveLock();
       try {
         fileId = diskCache.openFile(name + DEF_EXTENSION);
-        clusterStateHolder.open();
+        if (clusterStateHolder != null) {
+          clusterStateHolder.open();
 
-        loadClusterState();
+          loadClusterState();
+        }
       } finally {
         releaseExclusiveLock();
       }
@@ -244,7 +268,8 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
           synch();
 
         diskCache.closeFile(fileId, flush);
-        clusterStateHolder.close();
+        if (clusterStateHolder != null)
+          clusterStateHolder.close();
 
       } finally {
         releaseExclusiveLock();
@@ -261,7 +286,8 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
       acquireExclusiveLock();
       try {
         diskCache.deleteFile(fileId);
-        clusterStateHolder.delete();
+        if (clusterStateHolder != null)
+          clusterStateHolder.delete();
       } finally {
         releaseExclusiveLock();
       }
@@ -358,7 +384,8 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
 
   private void setNameInternal(String newName) throws IOException {
     diskCache.renameFile(fileId, this.name, newName);
-    clusterStateHolder.rename(name, newName);
+    if (clusterStateHolder != null)
+      clusterStateHolder.rename(name, newName);
 
     config.name = newName;
     storageLocal.renameCluster(name, newName);
@@ -366,6 +393,42 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
     storageLocal.getConfiguration().update();
   }
 
+  /**
+   * Turns the bulk load mode on or off. In bulk load mode the changes of the cluster are not logged in the write ahead log and new
+   * records are appended to pages allocated after the end of the file when the mode is turned on, so the pages which were durable
+   * before are never filled by unlogged writes. Bulk loaded records are durable only after the next full checkpoint and cannot be
+   * rolled back.
+   */
+  public void setBulkLoad(final boolean bulkLoad) throws IOException {
+    externalModificationLock.requestModificationLock();
+    try {
+      acquireExclusiveLock();
+      try {
+        this.bulkLoad = bulkLoad;
+        bulkLoadFirstPage = bulkLoad ? diskCache.getFilledUpTo(fileId) : -1;
+      } finally {
+        releaseExclusiveLock();
+      }
+    } finally {
+      externalModificationLock.releaseModificationLock();
+    }
+  }
+
+  public boolean isBulkLoad() {
+    return bulkLoad;
+  }
+
+  /**
+   * Returns the index of the first page which can be filled by the bulk load in progress, or -1 if the cluster is not bulk loaded.
+   */
+  public long getBulkLoadFirstPage() {
+    return bulkLoadFirstPage;
+  }
+
+  private boolean isWalActive() {
+    return config.useWal && writeAheadLog != null && !bulkLoad;
+  }
+
   @Override
   public boolean useWal() {
     acquireSharedLock();
@@ -414,47 +477,53 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
 
   public OPhysicalPosition createRecord(byte[] content, final ORecordVersion recordVersion, final byte recordType,
       OStorageTransaction transaction) throws IOException {
-    externalModificationLock.requestModificationLock();
-    try {
-      acquireExclusiveLock();
-      try {
-        final long prevSize = size;
-        final long prevRecordsSize = recordsSize;
+    // THE ENTRY IS PREPARED BEFORE LOCKING THE CLUSTER, SO CONCURRENT WRITERS WAIT ONLY FOR THE PAGE CHANGES
+    content = compression.compress(content);
 
-        content = compression.compress(content);
+    final int grownContentSize = (int) (config.recordGrowFactor * content.length);
+    final int singlePageEntryLength = grownContentSize + 2 * OByteSerializer.BYTE_SIZE + OIntegerSerializer.INT_SIZE
+        + OLongSerializer.LONG_SIZE;
 
-        int grownContentSize = (int) (config.recordGrowFactor * content.length);
-        int entryContentLength = grownContentSize + 2 * OByteSerializer.BYTE_SIZE + OIntegerSerializer.INT_SIZE
-            + OLongSerializer.LONG_SIZE;
+    final byte[] singlePageEntry;
+    if (singlePageEntryLength < OLocalPage.MAX_RECORD_SIZE) {
+      singlePageEntry = new byte[singlePageEntryLength];
 
-        if (entryContentLength < OLocalPage.MAX_RECORD_SIZE) {
-          startRecordOperation(transaction, false);
+      int entryPosition = 0;
+      singlePageEntry[entryPosition] = recordType;
+      entryPosition++;
+
+      OIntegerSerializer.INSTANCE.serializeNative(content.length, singlePageEntry, entryPosition);
+      entryPosition += OIntegerSerializer.INT_SIZE;
 
-          byte[] entryContent = new byte[entryContentLength];
+      System.arraycopy(content, 0, singlePageEntry, entryPosition, content.length);
+      entryPosition += grownContentSize;
 
-          int entryPosition = 0;
-          entryContent[entryPosition] = recordType;
-          entryPosition++;
+      singlePageEntry[entryPosition] = 1;
+      entryPosition++;
 
-          OIntegerSerializer.INSTANCE.serializeNative(content.length, entryContent, entryPosition);
-          entryPosition += OIntegerSerializer.INT_SIZE;
+      OLongSerializer.INSTANCE.serializeNative(-1L, singlePageEntry, entryPosition);
+    } else
+      singlePageEntry = null;
 
-          System.arraycopy(content, 0, entryContent, entryPosition, content.length);
-          entryPosition += grownContentSize;
+    externalModificationLock.requestModificationLock();
+    try {
+      acquireExclusiveLock();
+      try {
+        final long prevSize = size;
+        final long prevRecordsSize = recordsSize;
 
-          entryContent[entryPosition] = 1;
-          entryPosition++;
+        if (singlePageEntry != null) {
+          startRecordOperation(transaction, false);
 
-          OLongSerializer.INSTANCE.serializeNative(-1L, entryContent, entryPosition);
           OLocalPage.TrackMode trackMode;
-          if (!config.useWal || writeAheadLog == null)
+          if (!isWalActive())
             trackMode = OLocalPage.TrackMode.NONE;
           else if (transaction != null)
             trackMode = OLocalPage.TrackMode.BOTH;
           else
             trackMode = OLocalPage.TrackMode.FORWARD;
 
-          final AddEntryResult addEntryResult = addEntry(recordVersion, entryContent, trackMode);
+          final AddEntryResult addEntryResult = addEntry(recordVersion, singlePageEntry, trackMode);
 
           size++;
           recordsSize += addEntryResult.recordsSizeDiff;
@@ -467,7 +536,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
         } else {
           startRecordOperation(transaction, true);
 
-          OLocalPage.TrackMode trackMode = (!config.useWal || writeAheadLog == null) ? OLocalPage.TrackMode.NONE
+          OLocalPage.TrackMode trackMode = !isWalActive() ? OLocalPage.TrackMode.NONE
               : OLocalPage.TrackMode.BOTH;
           int entrySize = grownContentSize + OIntegerSerializer.INT_SIZE + OByteSerializer.BYTE_SIZE;
 
@@ -517,6 +586,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
               int prevPageRecordPosition = (int) (prevPageRecordPointer & RECORD_POSITION_MASK);
 
               long prevPageMemoryPointer = diskCache.load(fileId, prevPageIndex);
+              final Lock prevLatch = exclusivePageLatch(prevPageIndex);
               try {
                 final OLocalPage prevPage = new OLocalPage(prevPageMemoryPointer, false, OLocalPage.TrackMode.BOTH);
 
@@ -529,6 +599,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
 
                 diskCache.markDirty(fileId, prevPageIndex);
               } finally {
+                prevLatch.unlock();
                 diskCache.release(fileId, prevPageIndex);
               }
             }
@@ -559,7 +630,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
   }
 
   private void endRecordOperation(OStorageTransaction transaction) throws IOException {
-    if (transaction == null && config.useWal && writeAheadLog != null) {
+    if (transaction == null && isWalActive()) {
       writeAheadLog.log(new OAtomicUnitEndRecord(currentUnitId.get(), false));
     }
 
@@ -569,7 +640,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
 
   private void startRecordOperation(OStorageTransaction transaction, boolean rollbackMode) throws IOException {
     if (transaction == null) {
-      if (config.useWal && writeAheadLog != null) {
+      if (isWalActive()) {
         OOperationUnitId unitId = OOperationUnitId.generateId();
 
         OLogSequenceNumber lsn = writeAheadLog.log(new OAtomicUnitStartRecord(rollbackMode, unitId));
@@ -593,52 +664,53 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
     return physicalPosition;
   }
 
+  /**
+   * Reads a record without the lock of the cluster, holding the latch of one page at a time. Callers must hold the lock of the
+   * record, so that it is not updated or deleted while it is read.
+   */
   public ORawBuffer readRecord(OClusterPosition clusterPosition) throws IOException {
-    acquireSharedLock();
-    try {
-      long pagePointer = clusterPosition.longValue();
-      int recordPosition = (int) (pagePointer & RECORD_POSITION_MASK);
+    long pagePointer = clusterPosition.longValue();
+    int recordPosition = (int) (pagePointer & RECORD_POSITION_MASK);
 
-      long pageIndex = pagePointer >>> PAGE_INDEX_OFFSET;
+    long pageIndex = pagePointer >>> PAGE_INDEX_OFFSET;
 
-      if (diskCache.getFilledUpTo(fileId) <= pageIndex)
-        return null;
+    if (diskCache.getFilledUpTo(fileId) <= pageIndex)
+      return null;
 
-      ORecordVersion recordVersion = null;
-      long pointer = diskCache.load(fileId, pageIndex);
-      try {
-        final OLocalPage localPage = new OLocalPage(pointer, false, OLocalPage.TrackMode.NONE);
+    ORecordVersion recordVersion = null;
+    long pointer = diskCache.load(fileId, pageIndex);
+    final Lock latch = sharedPageLatch(pageIndex);
+    try {
+      final OLocalPage localPage = new OLocalPage(pointer, false, OLocalPage.TrackMode.NONE);
 
-        int recordPageOffset = localPage.getRecordPageOffset(recordPosition);
+      int recordPageOffset = localPage.getRecordPageOffset(recordPosition);
 
-        if (recordPageOffset < 0)
-          return null;
+      if (recordPageOffset < 0)
+        return null;
 
-        recordVersion = localPage.getRecordVersion(recordPosition);
-      } finally {
-        diskCache.release(fileId, pageIndex);
-      }
+      recordVersion = localPage.getRecordVersion(recordPosition);
+    } finally {
+      latch.unlock();
+      diskCache.release(fileId, pageIndex);
+    }
 
-      byte[] fullContent = readFullEntry(clusterPosition);
-      if (fullContent == null)
-        return null;
+    byte[] fullContent = readFullEntry(clusterPosition);
+    if (fullContent == null)
+      return null;
 
-      int fullContentPosition = 0;
+    int fullContentPosition = 0;
 
-      byte recordType = fullContent[fullContentPosition];
-      fullContentPosition++;
+    byte recordType = fullContent[fullContentPosition];
+    fullContentPosition++;
 
-      int readContentSize = OIntegerSerializer.INSTANCE.deserializeNative(fullContent, fullContentPosition);
-      fullContentPosition += OIntegerSerializer.INT_SIZE;
+    int readContentSize = OIntegerSerializer.INSTANCE.deserializeNative(fullContent, fullContentPosition);
+    fullContentPosition += OIntegerSerializer.INT_SIZE;
 
-      byte[] recordContent = new byte[readContentSize];
-      System.arraycopy(fullContent, fullContentPosition, recordContent, 0, recordContent.length);
+    byte[] recordContent = new byte[readContentSize];
+    System.arraycopy(fullContent, fullContentPosition, recordContent, 0, recordContent.length);
 
-      recordContent = compression.uncompress(recordContent);
-      return new ORawBuffer(recordContent, recordVersion, recordType);
-    } finally {
-      releaseSharedLock();
-    }
+    recordContent = compression.uncompress(recordContent);
+    return new ORawBuffer(recordContent, recordVersion, recordType);
   }
 
   private byte[] readFullEntry(OClusterPosition clusterPosition) throws IOException {
@@ -657,6 +729,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
     boolean firstEntry = true;
     do {
       long pointer = diskCache.load(fileId, pageIndex);
+      final Lock latch = sharedPageLatch(pageIndex);
       try {
         final OLocalPage localPage = new OLocalPage(pointer, false, OLocalPage.TrackMode.NONE);
 
@@ -680,6 +753,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
 
         firstEntry = false;
       } finally {
+        latch.unlock();
         diskCache.release(fileId, pageIndex);
       }
 
@@ -722,7 +796,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
         boolean isRecordSpreadAcrossSeveralPages = isRecordSpreadAcrossSeveralPages(pageIndex, recordPosition);
 
         final OLocalPage.TrackMode trackMode;
-        if (!config.useWal || writeAheadLog == null)
+        if (!isWalActive())
           trackMode = OLocalPage.TrackMode.NONE;
         else if (transaction != null || isRecordSpreadAcrossSeveralPages)
           trackMode = OLocalPage.TrackMode.BOTH;
@@ -733,6 +807,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
         int removedContentSize = 0;
         do {
           long pointer = diskCache.load(fileId, pageIndex);
+          final Lock latch = exclusivePageLatch(pageIndex);
           int initialFreePageIndex;
           try {
             final OLocalPage localPage = new OLocalPage(pointer, false, trackMode);
@@ -760,6 +835,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
 
             diskCache.markDirty(fileId, pageIndex);
           } finally {
+            latch.unlock();
             diskCache.release(fileId, pageIndex);
           }
 
@@ -787,6 +863,8 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
 
   public void updateRecord(OClusterPosition clusterPosition, byte[] content, final ORecordVersion recordVersion,
       final byte recordType, OStorageTransaction transaction) throws IOException {
+    content = compression.compress(content);
+
     externalModificationLock.requestModificationLock();
     try {
       acquireExclusiveLock();
@@ -798,8 +876,6 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
         if (fullEntryContent == null)
           return;
 
-        content = compression.compress(content);
-
         int updatedContentLength = content.length + 2 * OByteSerializer.BYTE_SIZE + OIntegerSerializer.INT_SIZE
             + OLongSerializer.LONG_SIZE;
 
@@ -820,7 +896,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
         }
 
         final OLocalPage.TrackMode trackMode;
-        if (!config.useWal || writeAheadLog == null)
+        if (!isWalActive())
           trackMode = OLocalPage.TrackMode.NONE;
         else if (transaction != null || isRecordSpreadAcrossSeveralPages)
           trackMode = OLocalPage.TrackMode.BOTH;
@@ -848,6 +924,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
 
           int freePageIndex;
           long dataPointer = diskCache.load(fileId, pageIndex);
+          final Lock latch = exclusivePageLatch(pageIndex);
           try {
             final OLocalPage localPage = new OLocalPage(dataPointer, false, trackMode);
             int freeSpace = localPage.getFreeSpace();
@@ -877,6 +954,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
               int prevPageRecordPosition = (int) (prevPageRecordPointer & RECORD_POSITION_MASK);
 
               long prevPageMemoryPointer = diskCache.load(fileId, prevPageIndex);
+              final Lock prevLatch = exclusivePageLatch(prevPageIndex);
               try {
                 final OLocalPage prevPage = new OLocalPage(prevPageMemoryPointer, false, trackMode);
 
@@ -889,6 +967,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
 
                 diskCache.markDirty(fileId, prevPageIndex);
               } finally {
+                prevLatch.unlock();
                 diskCache.release(fileId, prevPageIndex);
               }
             }
@@ -905,6 +984,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
 
             diskCache.markDirty(fileId, pageIndex);
           } finally {
+            latch.unlock();
             diskCache.release(fileId, pageIndex);
           }
 
@@ -937,6 +1017,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
             int prevPageRecordPosition = (int) (prevPageRecordPointer & RECORD_POSITION_MASK);
 
             long prevPageMemoryPointer = diskCache.load(fileId, prevPageIndex);
+            final Lock prevLatch = exclusivePageLatch(prevPageIndex);
             try {
               final OLocalPage prevPage = new OLocalPage(prevPageMemoryPointer, false, trackMode);
 
@@ -949,6 +1030,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
 
               diskCache.markDirty(fileId, prevPageIndex);
             } finally {
+              prevLatch.unlock();
               diskCache.release(fileId, prevPageIndex);
             }
           }
@@ -1040,6 +1122,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
 
     long pageIndex = updatePageRecord.getPageIndex();
     long pagePointer = diskCache.load(fileId, pageIndex);
+    final Lock latch = exclusivePageLatch(pageIndex);
     try {
       final OLocalPage page = new OLocalPage(pagePointer, false, OLocalPage.TrackMode.NONE);
       List<OPageDiff<?>> pageDiffs = updatePageRecord.getChanges();
@@ -1061,6 +1144,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
 
       diskCache.markDirty(fileId, pageIndex);
     } finally {
+      latch.unlock();
       diskCache.release(fileId, pageIndex);
     }
   }
@@ -1068,6 +1152,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
   private void restorePageData(OUpdatePageRecord updatePageRecord) throws IOException {
     long pageIndex = updatePageRecord.getPageIndex();
     long pagePointer = diskCache.load(fileId, pageIndex);
+    final Lock latch = exclusivePageLatch(pageIndex);
     try {
       final OLocalPage page = new OLocalPage(pagePointer, false, OLocalPage.TrackMode.NONE);
       page.restoreChanges(updatePageRecord.getChanges());
@@ -1076,6 +1161,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
 
       diskCache.markDirty(fileId, pageIndex);
     } finally {
+      latch.unlock();
       diskCache.release(fileId, pageIndex);
     }
   }
@@ -1089,6 +1175,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
     boolean newRecord = freePageIndex >= freePageLists.length;
 
     long pagePointer = diskCache.load(fileId, pageIndex);
+    final Lock latch = exclusivePageLatch(pageIndex);
     int recordSizesDiff;
     int position;
     final ORecordVersion finalVersion;
@@ -1110,6 +1197,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
 
       diskCache.markDirty(fileId, pageIndex);
     } finally {
+      latch.unlock();
       diskCache.release(fileId, pageIndex);
     }
 
@@ -1119,6 +1207,9 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
   }
 
   private FindFreePageResult findFreePage(int contentSize, OLocalPage.TrackMode trackMode) throws IOException {
+    if (bulkLoad)
+      return findBulkLoadPage(contentSize);
+
     while (true) {
       int freePageIndex = contentSize / ONE_KB;
       freePageIndex -= PAGINATED_STORAGE_LOWEST_FREELIST_BOUNDARY.getValueAsInteger();
@@ -1160,6 +1251,28 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
     }
   }
 
+  /**
+   * Returns the last page of the file if it was allocated by the bulk load and the entry fits in it, otherwise a new page after it.
+   * The free lists are not searched, so bulk loaded records fill the pages in the order they are created.
+   */
+  private FindFreePageResult findBulkLoadPage(int contentSize) throws IOException {
+    final long filledUpTo = diskCache.getFilledUpTo(fileId);
+
+    if (filledUpTo > bulkLoadFirstPage) {
+      final long lastPageIndex = filledUpTo - 1;
+      final long pointer = diskCache.load(fileId, lastPageIndex);
+      try {
+        final OLocalPage localPage = new OLocalPage(pointer, false, OLocalPage.TrackMode.NONE);
+        if (localPage.getMaxRecordSize() >= contentSize)
+          return new FindFreePageResult(lastPageIndex, calculateFreePageIndex(localPage));
+      } finally {
+        diskCache.release(fileId, lastPageIndex);
+      }
+    }
+
+    return new FindFreePageResult(filledUpTo, freePageLists.length);
+  }
+
   private void updateFreePagesIndex(int prevFreePageIndex, long pageIndex, OLocalPage.TrackMode trackMode) throws IOException {
     long pointer = diskCache.load(fileId, pageIndex);
     try {
@@ -1250,7 +1363,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
   }
 
   private void updateFreePagesList(int freePageIndex, long pageIndex) throws IOException {
-    if (!config.useWal || writeAheadLog == null)
+    if (!isWalActive())
       freePageLists[freePageIndex] = pageIndex;
     else {
       final long prevPageIndex = freePageLists[freePageIndex];
@@ -1260,7 +1373,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
   }
 
   private void logPageChanges(OLocalPage localPage, long pageIndex, boolean isNewPage) throws IOException {
-    if (config.useWal && writeAheadLog != null) {
+    if (isWalActive()) {
       List<OPageDiff<?>> pageChanges = localPage.getPageChanges();
       if (pageChanges.isEmpty())
         return;
@@ -1280,6 +1393,18 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
     }
   }
 
+  private Lock sharedPageLatch(final long pageIndex) {
+    final Lock latch = pageLatches[(int) (pageIndex & (PAGE_LATCHES - 1))].readLock();
+    latch.lock();
+    return latch;
+  }
+
+  private Lock exclusivePageLatch(final long pageIndex) {
+    final Lock latch = pageLatches[(int) (pageIndex & (PAGE_LATCHES - 1))].writeLock();
+    latch.lock();
+    return latch;
+  }
+
   private int calculateFreePageIndex(OLocalPage localPage) {
     int newFreePageIndex;
     if (localPage.isEmpty())
@@ -1313,7 +1438,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
         final long prevSize = size;
         final long prevRecordsSize = recordsSize;
 
-        if (config.useWal && writeAheadLog != null) {
+        if (isWalActive()) {
           OOperationUnitId operationUnitId = OOperationUnitId.generateId();
           OLogSequenceNumber lsn = writeAheadLog.log(new OAtomicUnitStartRecord(false, operationUnitId));
           currentUnitId.set(operationUnitId);
@@ -1321,15 +1446,24 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
           startLSN.set(lsn);
         }
 
-        diskCache.truncateFile(fileId);
-        clusterStateHolder.truncate();
+        // RECORDS ARE READ WITHOUT THE CLUSTER LOCK: WAIT FOR THE READERS OF ALL THE PAGES
+        for (ReentrantReadWriteLock pageLatch : pageLatches)
+          pageLatch.writeLock().lock();
+        try {
+          diskCache.truncateFile(fileId);
+        } finally {
+          for (ReentrantReadWriteLock pageLatch : pageLatches)
+            pageLatch.writeLock().unlock();
+        }
+        if (clusterStateHolder != null)
+          clusterStateHolder.truncate();
 
         size = 0;
         recordsSize = 0;
 
         logClusterState(prevSize, prevRecordsSize);
 
-        if (config.useWal && writeAheadLog != null) {
+        if (isWalActive()) {
           writeAheadLog.log(new OAtomicUnitEndRecord(currentUnitId.get(), false));
 
           currentUnitId.set(null);
@@ -1521,7 +1655,8 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
     acquireExclusiveLock();
     try {
       diskCache.setSoftlyClosed(fileId, softlyClosed);
-      clusterStateHolder.setSoftlyClosed(softlyClosed);
+      if (clusterStateHolder != null)
+        clusterStateHolder.setSoftlyClosed(softlyClosed);
     } finally {
       releaseExclusiveLock();
     }
@@ -1532,7 +1667,8 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
     acquireSharedLock();
     try {
       boolean wasSoftlyClosed = diskCache.wasSoftlyClosed(fileId);
-      wasSoftlyClosed = wasSoftlyClosed && clusterStateHolder.wasSoftlyClosedAtPreviousTime();
+      if (clusterStateHolder != null)
+        wasSoftlyClosed = wasSoftlyClosed && clusterStateHolder.wasSoftlyClosedAtPreviousTime();
       return wasSoftlyClosed;
     } finally {
       releaseSharedLock();
@@ -1753,6 +1889,8 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
   }
 
   public void flushClusterState() throws IOException {
+    if (clusterStateHolder == null)
+      return;
 
     OFile file = clusterStateHolder.getFile();
 
@@ -1943,7 +2081,7 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
   }
 
   private void logClusterState(long prevSize, long prevRecordsSize) throws IOException {
-    if (!config.useWal || writeAheadLog == null)
+    if (!isWalActive())
       return;
 
     OOperationUnitId operationUnitId = currentUnitId.get();
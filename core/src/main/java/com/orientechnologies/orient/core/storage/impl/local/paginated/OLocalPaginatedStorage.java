@@ -18,6 +18,7 @@ package com.orientechnologies.orient.core.storage.impl.local.paginated;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -61,12 +62,16 @@ import com.orientechnologies.orient.core.id.OClusterPosition;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.index.engine.OLocalHashTableIndexEngine;
+import com.orientechnologies.orient.core.index.engine.OSBTreeIndexEngine;
 import com.orientechnologies.orient.core.index.hashindex.local.cache.O2QCache;
 import com.orientechnologies.orient.core.index.hashindex.local.cache.ODiskCache;
 import com.orientechnologies.orient.core.index.hashindex.local.cache.OPageDataVerificationError;
 import com.orientechnologies.orient.core.memory.OMemoryWatchDog;
 import com.orientechnologies.orient.core.metadata.OMetadata;
+import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.record.OPreCommitSerializationThreadLocal;
+import com.orientechnologies.orient.core.serialization.serializer.record.OSerializationSetThreadLocal;
 import com.orientechnologies.orient.core.storage.OCluster;
 import com.orientechnologies.orient.core.storage.OPhysicalPosition;
 import com.orientechnologies.orient.core.storage.ORawBuffer;
@@ -92,6 +97,9 @@ import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OOpera
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OOperationUnitRecord;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWALRecord;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWriteAheadLog;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.updatePageRecord.OFullPageDiff;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.updatePageRecord.OPageDiff;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.updatePageRecord.OUpdateFilePageRecord;
 import com.orientechnologies.orient.core.tx.OTransaction;
 import com.orientechnologies.orient.core.tx.OTransactionAbstract;
 import com.orientechnologies.orient.core.tx.OTxListener;
@@ -114,12 +122,18 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
   private final OStorageVariableParser              variableParser;
   private int                                       defaultClusterId                     = -1;
 
+  private static final String                       BULK_LOAD_FLAG_EXTENSION             = ".blf";
+
   private static String[]                           ALL_FILE_EXTENSIONS                  = { ".ocf", ".pls", ".pcl", ".oda",
-      ".odh", ".otx", ".ocs", ".oef", ".oem", ".oet", ".wal", ".wmr", OLocalHashTableIndexEngine.BUCKET_FILE_EXTENSION,
-      OLocalHashTableIndexEngine.METADATA_FILE_EXTENSION, OLocalHashTableIndexEngine.TREE_FILE_EXTENSION };
+      ".odh", ".otx", ".ocs", ".oef", ".oem", ".oet", ".wal", ".wmr", BULK_LOAD_FLAG_EXTENSION,
+      OLocalHashTableIndexEngine.BUCKET_FILE_EXTENSION, OLocalHashTableIndexEngine.METADATA_FILE_EXTENSION, OLocalHashTableIndexEngine.TREE_FILE_EXTENSION,
+      OLocalHashTableIndexEngine.DIRECTORY_FILE_EXTENSION,
+      OSBTreeIndexEngine.DATA_FILE_EXTENSION };
 
   private OModificationLock                         modificationLock                     = new OModificationLock();
 
+  private Map<String, Long>                         restoredFiles;
+
   private ODiskCache                                diskCache;
   private OWriteAheadLog                            writeAheadLog;
 
@@ -128,11 +142,16 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
 
   private OStorageTransaction                       transaction                          = null;
 
+  private int[]                                     bulkLoadClusterIds;
+
   private volatile boolean                          wereDataRestoredAfterOpen            = false;
 
   private boolean                                   makeFullCheckPointAfterClusterCreate = OGlobalConfiguration.STORAGE_MAKE_FULL_CHECKPOINT_AFTER_CLUSTER_CREATE
                                                                                              .getValueAsBoolean();
 
+  private final boolean                             groupCommit                          = OGlobalConfiguration.WAL_GROUP_COMMIT
+                                                                                             .getValueAsBoolean();
+
   public OLocalPaginatedStorage(final String name, final String filePath, final String mode) throws IOException {
     super(name, filePath, mode);
 
@@ -158,7 +177,7 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
   private void initWal() throws IOException {
     final ODirectMemory directMemory = ODirectMemoryFactory.INSTANCE.directMemory();
 
-    if (OGlobalConfiguration.USE_WAL.getValueAsBoolean()) {
+    if (isDiskBased() && OGlobalConfiguration.USE_WAL.getValueAsBoolean()) {
       fuzzyCheckpointExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
         @Override
         public Thread newThread(Runnable r) {
@@ -194,11 +213,26 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
     } else
       writeAheadLog = null;
 
-    diskCache = new O2QCache(OGlobalConfiguration.DISK_CACHE_SIZE.getValueAsLong() * ONE_KB * ONE_KB,
+    diskCache = createDiskCache(directMemory, writeAheadLog);
+  }
+
+  /**
+   * Creates the cache of the pages of the clusters, called every time the storage is created or opened.
+   */
+  protected ODiskCache createDiskCache(final ODirectMemory directMemory, final OWriteAheadLog writeAheadLog) {
+    return new O2QCache(OGlobalConfiguration.DISK_CACHE_SIZE.getValueAsLong() * ONE_KB * ONE_KB,
         OGlobalConfiguration.DISK_CACHE_WRITE_QUEUE_LENGTH.getValueAsInteger(), directMemory, writeAheadLog,
         OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger() * ONE_KB, this, false);
   }
 
+  /**
+   * Tells whether the pages of the storage are stored in files. Storages which keep their pages only in memory have neither write
+   * ahead log nor cluster state files.
+   */
+  protected boolean isDiskBased() {
+    return true;
+  }
+
   public void open(final String iUserName, final String iUserPassword, final Map<String, Object> iProperties) {
     lock.acquireExclusiveLock();
     try {
@@ -253,6 +287,7 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
       }
 
       restoreIfNeeded();
+      checkBulkLoadFlag();
     } catch (Exception e) {
       close(true);
       throw new OStorageException("Cannot open local storage '" + url + "' with mode=" + mode, e);
@@ -448,6 +483,18 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
   private void restoreFrom(OLogSequenceNumber lsn) throws IOException {
     wereDataRestoredAfterOpen = true;
 
+    restoredFiles = new HashMap<String, Long>();
+    try {
+      restoreOperationUnits(lsn);
+    } finally {
+      for (long fileId : restoredFiles.values())
+        diskCache.closeFile(fileId);
+
+      restoredFiles = null;
+    }
+  }
+
+  private void restoreOperationUnits(OLogSequenceNumber lsn) throws IOException {
     Map<OOperationUnitId, List<OWALRecord>> operationUnits = new HashMap<OOperationUnitId, List<OWALRecord>>();
     while (lsn != null) {
       OWALRecord walRecord = writeAheadLog.read(lsn);
@@ -502,6 +549,8 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
         } else
           paginatedCluster.restoreRecord(record);
 
+      } else if (record instanceof OUpdateFilePageRecord) {
+        restoreFilePage((OUpdateFilePageRecord) record, false);
       } else {
         OLogManager.instance().error(this, "Invalid WAL record type was passed %s. Given record will be skipped.",
             record.getClass());
@@ -584,6 +633,8 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
           OLogManager.instance().error(this, "Cluster with id %d is absent so record %s will be skipped.", clusterId, record);
         } else
           localPaginatedCluster.revertRecord(record);
+      } else if (record instanceof OUpdateFilePageRecord) {
+        restoreFilePage((OUpdateFilePageRecord) record, true);
       } else {
         OLogManager.instance().error(this, "Invalid WAL record type was passed %s. Given record will be skipped.",
             record.getClass());
@@ -592,6 +643,61 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
     }
   }
 
+  /**
+   * Restores or reverts the changes of a page of a file that does not belong to a cluster. The files are opened by name, since their
+   * owners are not loaded yet, and kept open until the end of the restore.
+   */
+  private void restoreFilePage(OUpdateFilePageRecord record, boolean revert) throws IOException {
+    final String fileName = record.getFileName();
+
+    Long fileId = restoredFiles != null ? restoredFiles.get(fileName) : null;
+    if (fileId == null) {
+      if (!new File(variableParser.resolveVariables(storagePath + File.separator + fileName)).exists()) {
+        OLogManager.instance().warn(this, "File %s is absent so record %s will be skipped.", fileName, record);
+        return;
+      }
+
+      fileId = diskCache.openFile(fileName);
+      if (restoredFiles != null)
+        restoredFiles.put(fileName, fileId);
+    }
+
+    try {
+      final long pageIndex = record.getPageIndex();
+      final long pagePointer = diskCache.load(fileId, pageIndex);
+      try {
+        final ODurablePage page = new ODurablePage(pagePointer, ODurablePage.TrackMode.NONE);
+
+        if (revert) {
+          final List<OPageDiff<?>> pageDiffs = record.getChanges();
+          final List<OFullPageDiff<?>> fullPageDiffs = new ArrayList<OFullPageDiff<?>>(pageDiffs.size());
+          for (OPageDiff<?> pageDiff : pageDiffs) {
+            if (pageDiff instanceof OFullPageDiff<?>)
+              fullPageDiffs.add((OFullPageDiff<?>) pageDiff);
+            else {
+              assert false;
+              OLogManager.instance().error(this, "Record operation %s can not be reverted, rollback will be aborted.", record);
+              return;
+            }
+          }
+
+          page.revertChanges(fullPageDiffs);
+          page.setLsn(record.getPrevLsn());
+        } else {
+          page.restoreChanges(record.getChanges());
+          page.setLsn(record.getLsn());
+        }
+
+        diskCache.markDirty(fileId, pageIndex);
+      } finally {
+        diskCache.release(fileId, pageIndex);
+      }
+    } finally {
+      if (restoredFiles == null)
+        diskCache.closeFile(fileId);
+    }
+  }
+
   public boolean wereDataRestoredAfterOpen() {
     return wereDataRestoredAfterOpen;
   }
@@ -605,9 +711,11 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
 
       addUser();
 
-      final File storageFolder = new File(storagePath);
-      if (!storageFolder.exists())
-        storageFolder.mkdirs();
+      if (isDiskBased()) {
+        final File storageFolder = new File(storagePath);
+        if (!storageFolder.exists())
+          storageFolder.mkdirs();
+      }
 
       if (exists())
         throw new OStorageException("Cannot create new storage '" + name + "' because it already exists");
@@ -868,6 +976,130 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
     }
   }
 
+  /**
+   * Starts a bulk load of the clusters passed: their changes are not logged in the write ahead log and new records are packed in
+   * new pages at the end of their files. A full checkpoint is made first, so a restore never applies records logged before the bulk
+   * load to the pages changed by it. The loaded records are durable only after {@link #endBulkLoad()}: till then a flag file lists
+   * the clusters being loaded, so if the storage crashes in the middle this is reported at the next open and the clusters have to be
+   * loaded again.
+   */
+  public void beginBulkLoad(final int[] iClusterIds) {
+    checkOpeness();
+    lock.acquireExclusiveLock();
+    try {
+      if (bulkLoadClusterIds != null)
+        throw new OStorageException("Bulk load is already in progress on storage " + name);
+
+      makeFullCheckpoint();
+
+      try {
+        for (int clusterId : iClusterIds)
+          getClusterById(clusterId).setBulkLoad(true);
+
+        writeBulkLoadFlag(iClusterIds);
+      } catch (IOException e) {
+        for (int clusterId : iClusterIds)
+          try {
+            getClusterById(clusterId).setBulkLoad(false);
+          } catch (IOException e2) {
+            OLogManager.instance().error(this, "Error on resetting bulk load of cluster %d", e2, clusterId);
+          }
+
+        throw new OStorageException("Error on starting bulk load of storage " + name, e);
+      }
+
+      bulkLoadClusterIds = iClusterIds.clone();
+    } finally {
+      lock.releaseExclusiveLock();
+    }
+  }
+
+  /**
+   * Ends the bulk load in progress: all the pages of the disk cache are flushed and a full checkpoint makes the loaded records
+   * durable before the write ahead log is used again for the bulk loaded clusters.
+   *
+   * @return The ids of the bulk loaded clusters
+   */
+  public int[] endBulkLoad() {
+    checkOpeness();
+    lock.acquireExclusiveLock();
+    try {
+      if (bulkLoadClusterIds == null)
+        throw new OStorageException("No bulk load is in progress on storage " + name);
+
+      diskCache.flushBuffer();
+      synch();
+
+      for (int clusterId : bulkLoadClusterIds)
+        if (clusterId < clusters.length && clusters[clusterId] != null)
+          clusters[clusterId].setBulkLoad(false);
+
+      // THE LOADED RECORDS ARE DURABLE NOW
+      final File flagFile = getBulkLoadFlagFile();
+      if (flagFile != null && flagFile.exists() && !flagFile.delete())
+        OLogManager.instance().warn(this, "Cannot delete bulk load flag file %s", flagFile);
+
+      final int[] clusterIds = bulkLoadClusterIds;
+      bulkLoadClusterIds = null;
+      return clusterIds;
+    } catch (IOException e) {
+      throw new OStorageException("Error on ending bulk load of storage " + name, e);
+    } finally {
+      lock.releaseExclusiveLock();
+    }
+  }
+
+  public boolean isBulkLoad(final int iClusterId) {
+    return iClusterId >= 0 && iClusterId < clusters.length && clusters[iClusterId] != null && clusters[iClusterId].isBulkLoad();
+  }
+
+  /**
+   * Persists the names of the clusters being bulk loaded with the first page each of them fills, before any loaded record is
+   * written.
+   */
+  private void writeBulkLoadFlag(final int[] iClusterIds) throws IOException {
+    final File flagFile = getBulkLoadFlagFile();
+    if (flagFile == null)
+      return;
+
+    final StringBuilder content = new StringBuilder();
+    for (int clusterId : iClusterIds) {
+      final OLocalPaginatedCluster cluster = getClusterById(clusterId);
+      content.append(cluster.getName()).append(':').append(cluster.getBulkLoadFirstPage()).append('\n');
+    }
+
+    final FileOutputStream out = new FileOutputStream(flagFile);
+    try {
+      out.write(content.toString().getBytes("UTF-8"));
+      out.getFD().sync();
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Warns if the storage was closed while a bulk load was in progress: the records loaded in the pages listed by the flag file can
+   * be lost or corrupted because they were not logged. The flag file is removed by the next bulk load which completes.
+   */
+  private void checkBulkLoadFlag() throws IOException {
+    final File flagFile = getBulkLoadFlagFile();
+    if (flagFile == null || !flagFile.exists())
+      return;
+
+    OLogManager.instance().warn(
+        this,
+        "Storage %s was closed while a bulk load was in progress: the records loaded from the following pages of the clusters can be"
+            + " lost or corrupted, load them again. Cluster:first page = %s", name,
+        OIOUtils.readFileAsString(flagFile).trim().replace('\n', ','));
+  }
+
+  private File getBulkLoadFlagFile() {
+    if (!isDiskBased())
+      return null;
+
+    return new File(variableParser.resolveVariables(storagePath + File.separator + name + BULK_LOAD_FLAG_EXTENSION));
+  }
+
   public int addDataSegment(String segmentName, final String directory) {
     OLogManager.instance().error(
         this,
@@ -1448,9 +1680,14 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
   }
 
   public void commit(final OTransaction clientTx) {
+    final OLogSequenceNumber commitLSN;
+
+    serializeRecordsBeforeCommit(clientTx);
+
     modificationLock.requestModificationLock();
     try {
       lock.acquireExclusiveLock();
+      final long lockTimer = Orient.instance().getProfiler().startChrono();
       try {
         if (writeAheadLog == null)
           throw new OStorageException("WAL mode is not active. Transactions are not supported in given mode");
@@ -1476,7 +1713,7 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
             commitEntry(clientTx, txEntry);
         }
 
-        writeAheadLog.log(new OAtomicUnitEndRecord(transaction.getOperationUnitId(), false));
+        commitLSN = writeAheadLog.log(new OAtomicUnitEndRecord(transaction.getOperationUnitId(), false));
 
         OTransactionAbstract.updateCacheFromEntries(clientTx, clientTx.getAllRecordEntries(), true);
 
@@ -1492,10 +1729,76 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
       } finally {
         transaction = null;
         lock.releaseExclusiveLock();
+
+        Orient.instance().getProfiler().stopChrono("db." + name + ".commitLock", "Time of storage lock hold by transaction commit",
+            lockTimer, "db.*.commitLock");
       }
     } finally {
       modificationLock.releaseModificationLock();
     }
+
+    if (groupCommit)
+      waitTillCommitIsFlushed(commitLSN);
+  }
+
+  /**
+   * Waits outside of storage lock till end record of transaction is flushed to the disk. Transactions which are committed
+   * concurrently are flushed together by single WAL sync.
+   */
+  private void waitTillCommitIsFlushed(final OLogSequenceNumber commitLSN) {
+    final long timer = Orient.instance().getProfiler().startChrono();
+    try {
+      writeAheadLog.flushTill(commitLSN);
+    } finally {
+      Orient.instance().getProfiler().stopChrono("db." + name + ".commitFlush", "Wait till transaction is flushed to WAL", timer,
+          "db.*.commitFlush");
+    }
+  }
+
+  /**
+   * Serializes dirty documents of transaction before storage lock is acquired, so only page writes and WAL logging are performed
+   * under the lock. Documents which link to records that are not saved yet can not be serialized before commit, they are
+   * serialized later inside of commit.
+   */
+  private void serializeRecordsBeforeCommit(final OTransaction clientTx) {
+    final long timer = Orient.instance().getProfiler().startChrono();
+
+    final List<ORecordOperation> txEntries = new ArrayList<ORecordOperation>();
+    for (ORecordOperation txEntry : clientTx.getCurrentRecordEntries())
+      txEntries.add(txEntry);
+
+    OPreCommitSerializationThreadLocal.INSTANCE.set(Boolean.TRUE);
+    try {
+      for (ORecordOperation txEntry : txEntries) {
+        if (txEntry.type != ORecordOperation.CREATED && txEntry.type != ORecordOperation.UPDATED)
+          continue;
+
+        final ORecordInternal<?> record = txEntry.getRecord();
+        if (!(record instanceof ODocument) || record instanceof OTxListener || !record.isDirty())
+          continue;
+
+        final int clusterId = record.getIdentity().getClusterId();
+        if (clusterId == ORID.CLUSTER_ID_INVALID)
+          continue;
+
+        final String clusterName = getPhysicalClusterNameById(clusterId);
+        if (clusterName == null || clusterName.equals(OMetadata.CLUSTER_INDEX_NAME)
+            || clusterName.equals(OMetadata.CLUSTER_MANUAL_INDEX_NAME))
+          continue;
+
+        try {
+          record.toStream();
+        } catch (OPreCommitSerializationThreadLocal.OSerializationAbortedException e) {
+          // RECORD WILL BE SERIALIZED DURING COMMIT
+          OSerializationSetThreadLocal.INSTANCE.get().clear();
+        }
+      }
+    } finally {
+      OPreCommitSerializationThreadLocal.INSTANCE.set(Boolean.FALSE);
+
+      Orient.instance().getProfiler().stopChrono("db." + name + ".commitSerialization",
+          "Serialization of transaction records before commit", timer, "db.*.commitSerialization");
+    }
   }
 
   private void commitEntry(final OTransaction clientTx, final ORecordOperation txEntry) throws IOException {
@@ -1947,6 +2250,10 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
   }
 
   public void scheduleFullCheckpoint() {
+    if (writeAheadLog == null)
+      // NOTHING TO CHECKPOINT
+      return;
+
     checkpointExecutor.execute(new Runnable() {
       @Override
       public void run() {
@@ -19,6 +19,7 @@ package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.updatePageRecord.OUpdateFilePageRecord;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.updatePageRecord.OUpdatePageRecord;
 
 /**
@@ -57,6 +58,8 @@ public class OWALRecordsFactory {
       content[0] = 9;
     else if (walRecord instanceof OFreePageChangeRecord)
       content[0] = 10;
+    else if (walRecord instanceof OUpdateFilePageRecord)
+      content[0] = 11;
     else if (typeToIdMap.containsKey(walRecord.getClass())) {
       content[0] = typeToIdMap.get(walRecord.getClass());
     } else
@@ -103,6 +106,9 @@ public class OWALRecordsFactory {
     case 10:
       walRecord = new OFreePageChangeRecord();
       break;
+    case 11:
+      walRecord = new OUpdateFilePageRecord();
+      break;
     default:
       if (idToTypeMap.containsKey(content[0]))
         try {
@@ -55,6 +55,7 @@ public class OWriteAheadLog {
   private OLogSequenceNumber           lastCheckpoint;
 
   private final Object                 syncObject           = new Object();
+  private final Object                 groupFlushLock       = new Object();
 
   private final List<LogSegment>       logSegments          = new ArrayList<LogSegment>();
 
@@ -214,6 +215,49 @@ public class OWriteAheadLog {
     }
   }
 
+  /**
+   * Waits till record with passed in LSN is flushed to the disk. If several threads wait for their records at the same time only
+   * one of them performs the flush and the rest reuse its result, so single disk sync is shared by the whole group of callers.
+   * 
+   * @param lsn
+   *          LSN of record which should be durable when method returns.
+   */
+  public void flushTill(OLogSequenceNumber lsn) {
+    if (isFlushed(lsn))
+      return;
+
+    synchronized (groupFlushLock) {
+      OLogSequenceNumber lastFlushedLSN = flushedLsn;
+      boolean noProgress = false;
+
+      while (!isFlushed(lsn)) {
+        final LogSegment last;
+        synchronized (syncObject) {
+          checkForClose();
+          last = logSegments.get(logSegments.size() - 1);
+        }
+
+        last.flush();
+
+        final OLogSequenceNumber currentFlushedLSN = flushedLsn;
+        if (currentFlushedLSN == lastFlushedLSN) {
+          if (noProgress)
+            throw new OStorageException("WAL flush was not able to reach LSN " + lsn + " flushed LSN is " + currentFlushedLSN);
+
+          noProgress = true;
+        } else
+          noProgress = false;
+
+        lastFlushedLSN = currentFlushedLSN;
+      }
+    }
+  }
+
+  private boolean isFlushed(OLogSequenceNumber lsn) {
+    final OLogSequenceNumber currentFlushedLSN = flushedLsn;
+    return currentFlushedLSN != null && currentFlushedLSN.compareTo(lsn) >= 0;
+  }
+
   private void fixMasterRecords() throws IOException {
     if (firstMasterRecord != null) {
       int index = firstMasterRecord.getSegment() - logSegments.get(0).getOrder();
@@ -323,11 +367,12 @@ public class OWriteAheadLog {
   }
 
   public OLogSequenceNumber log(OWALRecord record) throws IOException {
+    // RECORDS ARE SERIALIZED OUTSIDE OF THE LOCK, CONCURRENT WRITERS SERIALIZE ONLY THE APPEND TO THE LOG
+    final byte[] serializedForm = OWALRecordsFactory.INSTANCE.toStream(record);
+
     synchronized (syncObject) {
       checkForClose();
 
-      final byte[] serializedForm = OWALRecordsFactory.INSTANCE.toStream(record);
-
       LogSegment last = logSegments.get(logSegments.size() - 1);
       long lastSize = last.filledUpTo();
 
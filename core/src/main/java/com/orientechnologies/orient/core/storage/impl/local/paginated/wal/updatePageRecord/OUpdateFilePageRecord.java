@@ -0,0 +1,206 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.local.paginated.wal.updatePageRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.orientechnologies.common.serialization.types.OByteSerializer;
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.common.serialization.types.OStringSerializer;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OOperationUnitId;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OOperationUnitRecord;
+
+/**
+ * Changes of a page of a file of the disk cache that does not belong to a cluster, like the pages of the indexes. The file is
+ * referenced by name, so the storage can restore the page through the disk cache before the owner of the file is loaded.
+ */
+public class OUpdateFilePageRecord extends OOperationUnitRecord {
+  private OLogSequenceNumber lsn;
+
+  private String             fileName;
+  private long               pageIndex;
+
+  private List<OPageDiff<?>> diffs = new ArrayList<OPageDiff<?>>();
+  private OLogSequenceNumber prevLsn;
+
+  public OUpdateFilePageRecord() {
+  }
+
+  public OUpdateFilePageRecord(String fileName, long pageIndex, OOperationUnitId operationUnitId, List<OPageDiff<?>> diffs,
+      OLogSequenceNumber prevLsn) {
+    super(operationUnitId);
+    this.fileName = fileName;
+    this.pageIndex = pageIndex;
+    this.diffs = diffs;
+    this.prevLsn = prevLsn;
+
+    assert prevLsn != null;
+  }
+
+  public String getFileName() {
+    return fileName;
+  }
+
+  public long getPageIndex() {
+    return pageIndex;
+  }
+
+  public List<OPageDiff<?>> getChanges() {
+    return diffs;
+  }
+
+  public OLogSequenceNumber getPrevLsn() {
+    return prevLsn;
+  }
+
+  @Override
+  public int serializedSize() {
+    int serializedSize = super.serializedSize();
+
+    serializedSize += OStringSerializer.INSTANCE.getObjectSize(fileName) + OLongSerializer.LONG_SIZE;
+    serializedSize += OLongSerializer.LONG_SIZE + OIntegerSerializer.INT_SIZE;
+    serializedSize += OIntegerSerializer.INT_SIZE + OByteSerializer.BYTE_SIZE * diffs.size();
+
+    for (OPageDiff diff : diffs) {
+      serializedSize += diff.serializedSize();
+    }
+
+    return serializedSize;
+  }
+
+  @Override
+  public int toStream(byte[] content, int offset) {
+    offset = super.toStream(content, offset);
+
+    OStringSerializer.INSTANCE.serializeNative(fileName, content, offset);
+    offset += OStringSerializer.INSTANCE.getObjectSize(fileName);
+
+    OLongSerializer.INSTANCE.serializeNative(pageIndex, content, offset);
+    offset += OLongSerializer.LONG_SIZE;
+
+    OLongSerializer.INSTANCE.serializeNative(prevLsn.getPosition(), content, offset);
+    offset += OLongSerializer.LONG_SIZE;
+
+    OIntegerSerializer.INSTANCE.serializeNative(prevLsn.getSegment(), content, offset);
+    offset += OIntegerSerializer.INT_SIZE;
+
+    OIntegerSerializer.INSTANCE.serializeNative(diffs.size(), content, offset);
+    offset += OIntegerSerializer.INT_SIZE;
+
+    for (OPageDiff diff : diffs) {
+      content[offset] = OUpdatePageRecord.typeToId(diff.getClass());
+      offset++;
+
+      diff.toStream(content, offset);
+      offset += diff.serializedSize();
+    }
+
+    return offset;
+  }
+
+  @Override
+  public int fromStream(byte[] content, int offset) {
+    offset = super.fromStream(content, offset);
+
+    fileName = OStringSerializer.INSTANCE.deserializeNative(content, offset);
+    offset += OStringSerializer.INSTANCE.getObjectSize(fileName);
+
+    pageIndex = OLongSerializer.INSTANCE.deserializeNative(content, offset);
+    offset += OLongSerializer.LONG_SIZE;
+
+    long position = OLongSerializer.INSTANCE.deserializeNative(content, offset);
+    offset += OLongSerializer.LONG_SIZE;
+
+    int segment = OIntegerSerializer.INSTANCE.deserializeNative(content, offset);
+    offset += OIntegerSerializer.INT_SIZE;
+
+    prevLsn = new OLogSequenceNumber(segment, position);
+
+    int size = OIntegerSerializer.INSTANCE.deserializeNative(content, offset);
+    offset += OIntegerSerializer.INT_SIZE;
+
+    diffs = new ArrayList<OPageDiff<?>>(size);
+    for (int i = 0; i < size; i++) {
+      byte typeId = content[offset];
+      offset++;
+
+      OPageDiff<?> diff = OUpdatePageRecord.newDiffInstance(typeId);
+      diff.fromStream(content, offset);
+      offset += diff.serializedSize();
+
+      diffs.add(diff);
+    }
+
+    return offset;
+  }
+
+  @Override
+  public boolean isUpdateMasterRecord() {
+    return false;
+  }
+
+  @Override
+  public OLogSequenceNumber getLsn() {
+    return lsn;
+  }
+
+  @Override
+  public void setLsn(OLogSequenceNumber lsn) {
+    this.lsn = lsn;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o)
+      return true;
+    if (o == null || getClass() != o.getClass())
+      return false;
+    if (!super.equals(o))
+      return false;
+
+    OUpdateFilePageRecord that = (OUpdateFilePageRecord) o;
+
+    if (pageIndex != that.pageIndex)
+      return false;
+    if (!fileName.equals(that.fileName))
+      return false;
+    if (!diffs.equals(that.diffs))
+      return false;
+    if (!prevLsn.equals(that.prevLsn))
+      return false;
+
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = super.hashCode();
+    result = 31 * result + fileName.hashCode();
+    result = 31 * result + (int) (pageIndex ^ (pageIndex >>> 32));
+    result = 31 * result + diffs.hashCode();
+    result = 31 * result + prevLsn.hashCode();
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "OUpdateFilePageRecord{" + "lsn=" + lsn + ", fileName=" + fileName + ", pageIndex=" + pageIndex + ", diffs size ="
+        + diffs.size() + "} " + super.toString();
+  }
+}
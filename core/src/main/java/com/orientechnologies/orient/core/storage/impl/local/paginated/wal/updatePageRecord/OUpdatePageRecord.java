@@ -154,7 +154,7 @@ public class OUpdatePageRecord extends OAbstractPageWALRecord {
     return result;
   }
 
-  private byte typeToId(Class<? extends OPageDiff> diffClass) {
+  static byte typeToId(Class<? extends OPageDiff> diffClass) {
     if (diffClass.equals(OBinaryPageDiff.class))
       return 1;
 
@@ -176,7 +176,7 @@ public class OUpdatePageRecord extends OAbstractPageWALRecord {
     throw new IllegalArgumentException("Unknown Diff class " + diffClass);
   }
 
-  private OPageDiff<?> newDiffInstance(byte typeId) {
+  static OPageDiff<?> newDiffInstance(byte typeId) {
     if (typeId == 1)
       return new OBinaryPageDiff();
 
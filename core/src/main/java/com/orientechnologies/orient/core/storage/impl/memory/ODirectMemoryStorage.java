@@ -0,0 +1,70 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.memory;
+
+import java.io.IOException;
+
+import com.orientechnologies.common.directmemory.ODirectMemory;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.config.OStorageConfiguration;
+import com.orientechnologies.orient.core.engine.memory.OEngineMemory;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.ODirectMemoryOnlyDiskCache;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.ODiskCache;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWriteAheadLog;
+
+/**
+ * Memory storage which keeps the records in the pages of paginated clusters allocated in direct memory, so the records do not live
+ * in the Java heap and the garbage collector has not to scan them. The storage has no files and no write ahead log: like
+ * {@link OStorageMemory} its content is lost when it is closed. The configuration is kept in the first record of the internal
+ * cluster.
+ */
+public class ODirectMemoryStorage extends OLocalPaginatedStorage {
+  public ODirectMemoryStorage(final String iURL) throws IOException {
+    super(iURL, iURL, "rw");
+    configuration = new OStorageConfiguration(this);
+  }
+
+  @Override
+  protected ODiskCache createDiskCache(final ODirectMemory directMemory, final OWriteAheadLog writeAheadLog) {
+    return new ODirectMemoryOnlyDiskCache(OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger() * 1024, directMemory);
+  }
+
+  @Override
+  protected boolean isDiskBased() {
+    return false;
+  }
+
+  @Override
+  public boolean exists() {
+    return getClusters() > 0;
+  }
+
+  @Override
+  public void delete() {
+    close(true);
+  }
+
+  @Override
+  public String getURL() {
+    return OEngineMemory.NAME + ":" + url;
+  }
+
+  @Override
+  public String getType() {
+    return OEngineMemory.NAME;
+  }
+}
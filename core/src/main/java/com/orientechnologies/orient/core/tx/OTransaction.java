@@ -77,6 +77,12 @@ public interface OTransaction {
 
   public ODocument getIndexChanges();
 
+  /**
+   * Returns the index changes in the binary form of {@link OTransactionIndexChangesSerializer} and clears them, like
+   * {@link #getIndexChanges()}.
+   */
+  public byte[] getIndexChangesStream();
+
   public void addIndexEntry(OIndex<?> delegate, final String iIndexName, final OTransactionIndexChanges.OPERATION iStatus,
       final Object iKey, final OIdentifiable iValue);
 
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.tx;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.orientechnologies.common.collection.OCompositeKey;
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.orient.core.db.record.ORecordElement;
+import com.orientechnologies.orient.core.exception.OTransactionException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.OMemoryStream;
+import com.orientechnologies.orient.core.serialization.OSerializableStream;
+import com.orientechnologies.orient.core.serialization.serializer.binary.OBinarySerializerFactory;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerAnyStreamable;
+import com.orientechnologies.orient.core.tx.OTransactionIndexChanges.OPERATION;
+import com.orientechnologies.orient.core.tx.OTransactionIndexChangesPerKey.OTransactionIndexEntry;
+
+/**
+ * Binary form of the index changes of a transaction, sent with the commit request to the server instead of the document built by
+ * {@link OTransaction#getIndexChanges()}. For every index it contains the clear flag and the changes per key, in the order of the
+ * keys, with the operations and the RIDs of their values. Keys are written by their binary serializer if they have one, composite
+ * keys part by part, otherwise in the same textual form used by the document.
+ * 
+ * The values must not be new records anymore: {@link OTransactionRealAbstract#getIndexChangesStream()} saves them first.
+ */
+public class OTransactionIndexChangesSerializer {
+  public static final OTransactionIndexChangesSerializer INSTANCE      = new OTransactionIndexChangesSerializer();
+
+  private static final byte                              CROSS_KEY     = 0;
+  private static final byte                              BINARY_KEY    = 1;
+  private static final byte                              STRING_KEY    = 2;
+  private static final byte                              COMPOSITE_KEY = 3;
+
+  public byte[] toStream(final Map<String, OTransactionIndexChanges> iIndexEntries) {
+    final OMemoryStream stream = new OMemoryStream();
+
+    try {
+      stream.set(iIndexEntries.size());
+      for (Entry<String, OTransactionIndexChanges> indexEntry : iIndexEntries.entrySet()) {
+        final OTransactionIndexChanges changes = indexEntry.getValue();
+
+        stream.set(indexEntry.getKey());
+        stream.set(changes.cleared);
+        stream.set(changes.changesPerKey.size() + (changes.changesCrossKey != null ? 1 : 0));
+
+        if (changes.changesCrossKey != null) {
+          stream.set(CROSS_KEY);
+          writeEntries(stream, changes.changesCrossKey.entries);
+        }
+
+        // KEYS ARE WRITTEN SORTED, AS THEY ARE KEPT
+        for (OTransactionIndexChangesPerKey changesPerKey : changes.changesPerKey.values()) {
+          writeKey(stream, changesPerKey.key);
+          writeEntries(stream, changesPerKey.entries);
+        }
+      }
+    } catch (IOException e) {
+      throw new OTransactionException("Error during index changes serialization", e);
+    }
+
+    return stream.toByteArray();
+  }
+
+  public Map<String, OTransactionIndexChanges> fromStream(final byte[] iStream) {
+    final OMemoryStream stream = new OMemoryStream(iStream);
+    final Map<String, OTransactionIndexChanges> result = new LinkedHashMap<String, OTransactionIndexChanges>();
+
+    try {
+      final int indexes = stream.getAsInteger();
+      for (int i = 0; i < indexes; i++) {
+        final OTransactionIndexChanges changes = new OTransactionIndexChanges();
+        result.put(stream.getAsString(), changes);
+
+        if (stream.getAsBoolean())
+          changes.setCleared();
+
+        final int keys = stream.getAsInteger();
+        for (int k = 0; k < keys; k++) {
+          final OTransactionIndexChangesPerKey changesPerKey;
+          if (stream.peek() == CROSS_KEY) {
+            stream.getAsByte();
+            changesPerKey = changes.getChangesCrossKey();
+          } else
+            changesPerKey = changes.getChangesPerKey(readKey(stream));
+
+          readEntries(stream, changesPerKey);
+        }
+      }
+    } catch (IOException e) {
+      throw new OTransactionException("Error during index changes deserialization", e);
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the textual form of a key used by the document of the index changes.
+   */
+  public String keyToString(final Object iKey) throws IOException {
+    final ODocument keyContainer = new ODocument();
+
+    if (iKey instanceof OCompositeKey) {
+      final List<Object> keys = ((OCompositeKey) iKey).getKeys();
+
+      keyContainer.field("key", keys, OType.EMBEDDEDLIST);
+      keyContainer.field("binary", false);
+    } else if (!(iKey instanceof ORecordElement) && (iKey instanceof OSerializableStream)) {
+      keyContainer.field("key", OStreamSerializerAnyStreamable.INSTANCE.toStream(iKey), OType.BINARY);
+      keyContainer.field("binary", true);
+    } else {
+      keyContainer.field("key", iKey);
+      keyContainer.field("binary", false);
+    }
+
+    return ORecordSerializerSchemaAware2CSV.INSTANCE.toString(keyContainer, null, false).toString();
+  }
+
+  /**
+   * Parses a key written by {@link #keyToString(Object)}.
+   */
+  @SuppressWarnings("unchecked")
+  public Object keyFromString(final String iKey) throws IOException {
+    final ODocument keyContainer = new ODocument();
+    keyContainer.setLazyLoad(false);
+
+    keyContainer.fromString(iKey);
+
+    final Object storedKey = keyContainer.field("key");
+    if (storedKey instanceof List)
+      return new OCompositeKey((List<? extends Comparable<?>>) storedKey);
+    else if (Boolean.TRUE.equals(keyContainer.field("binary")))
+      return OStreamSerializerAnyStreamable.INSTANCE.fromStream((byte[]) storedKey);
+
+    return storedKey;
+  }
+
+  private void writeKey(final OMemoryStream stream, final Object key) throws IOException {
+    if (key instanceof OCompositeKey && isBinary((OCompositeKey) key)) {
+      final List<Object> keys = ((OCompositeKey) key).getKeys();
+
+      stream.set(COMPOSITE_KEY);
+      stream.set(keys.size());
+      for (Object subKey : keys)
+        writeKey(stream, subKey);
+      return;
+    }
+
+    final OBinarySerializer<Object> serializer = getKeySerializer(key);
+    if (serializer == null) {
+      stream.set(STRING_KEY);
+      stream.set(keyToString(key));
+      return;
+    }
+
+    final byte[] serializedKey = new byte[serializer.getObjectSize(key)];
+    serializer.serialize(key, serializedKey, 0);
+
+    stream.set(BINARY_KEY);
+    stream.set(serializer.getId());
+    stream.set(serializedKey);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object readKey(final OMemoryStream stream) throws IOException {
+    final byte format = stream.getAsByte();
+    if (format == STRING_KEY)
+      return keyFromString(stream.getAsString());
+
+    if (format == COMPOSITE_KEY) {
+      final OCompositeKey key = new OCompositeKey();
+      final int keys = stream.getAsInteger();
+      for (int i = 0; i < keys; i++)
+        key.addKey(readKey(stream));
+      return key;
+    }
+
+    final OBinarySerializer<Object> serializer = (OBinarySerializer<Object>) OBinarySerializerFactory.INSTANCE
+        .getObjectSerializer(stream.getAsByte());
+    if (serializer == null)
+      throw new OTransactionException("Unknown serializer of index key");
+
+    return serializer.deserialize(stream.getAsByteArray(), 0);
+  }
+
+  private void writeEntries(final OMemoryStream stream, final List<OTransactionIndexEntry> entries) throws IOException {
+    stream.set(entries.size());
+    for (OTransactionIndexEntry entry : entries) {
+      stream.set((byte) entry.operation.ordinal());
+
+      if (entry.value == null)
+        stream.set(false);
+      else {
+        stream.set(true);
+        ((ORecordId) entry.value.getIdentity()).toStream(stream);
+      }
+    }
+  }
+
+  private void readEntries(final OMemoryStream stream, final OTransactionIndexChangesPerKey changesPerKey) {
+    final int entries = stream.getAsInteger();
+    for (int i = 0; i < entries; i++) {
+      final OPERATION operation = OPERATION.values()[stream.getAsByte()];
+      final ORID value = stream.getAsBoolean() ? new ORecordId().fromStream(stream) : null;
+
+      changesPerKey.add(value, operation);
+    }
+  }
+
+  private boolean isBinary(final OCompositeKey key) {
+    for (Object subKey : key.getKeys())
+      if (getKeySerializer(subKey) == null)
+        return false;
+    return true;
+  }
+
+  @SuppressWarnings("unchecked")
+  private OBinarySerializer<Object> getKeySerializer(final Object key) {
+    if (key == null)
+      return null;
+
+    final OType type = OType.getTypeByClass(key.getClass());
+    if (type == null)
+      return null;
+
+    switch (type) {
+    case BOOLEAN:
+    case INTEGER:
+    case SHORT:
+    case LONG:
+    case FLOAT:
+    case DOUBLE:
+    case DATETIME:
+    case STRING:
+    case BYTE:
+    case DECIMAL:
+      return (OBinarySerializer<Object>) OBinarySerializerFactory.INSTANCE.getObjectSerializer(type);
+    case DATE:
+      // THE DATE SERIALIZER DROPS THE TIME OF THE DAY
+      return (OBinarySerializer<Object>) OBinarySerializerFactory.INSTANCE.getObjectSerializer(OType.DATETIME);
+    case LINK:
+      // RECORDS USED AS KEYS KEEP THE TEXTUAL FORM
+      return key instanceof ORID ? (OBinarySerializer<Object>) OBinarySerializerFactory.INSTANCE.getObjectSerializer(type) : null;
+    case BINARY:
+      return key instanceof byte[] ? (OBinarySerializer<Object>) OBinarySerializerFactory.INSTANCE.getObjectSerializer(type) : null;
+    default:
+      return null;
+    }
+  }
+}
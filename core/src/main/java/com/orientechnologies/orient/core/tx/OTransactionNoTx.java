@@ -166,6 +166,10 @@ public class OTransactionNoTx extends OTransactionAbstract {
     return null;
   }
 
+  public byte[] getIndexChangesStream() {
+    return null;
+  }
+
   public OTransactionIndexChangesPerKey getIndexEntry(final String iIndexName, final Object iKey) {
     return null;
   }
@@ -107,8 +107,8 @@ public class OTransactionOptimistic extends OTransactionRealAbstract {
                 lockedIndexes = new ArrayList<OIndexAbstract<?>>();
 
               for (OIndex<?> index : indexesToLock) {
-                for (Entry<ORID, ORecordOperation> entry : recordEntries.entrySet()) {
-                  final ORecord<?> record = entry.getValue().record.getRecord();
+                for (ORecordOperation entry : writeSet.getCurrentOperations()) {
+                  final ORecord<?> record = entry.record.getRecord();
                   if (record instanceof ODocument) {
                     ODocument doc = (ODocument) record;
                     if (!lockedIndexes.contains(index.getInternal()) && doc.getSchemaClass() != null
@@ -183,10 +183,10 @@ public class OTransactionOptimistic extends OTransactionRealAbstract {
 
     // REMOVE ALL THE ENTRIES AND INVALIDATE THE DOCUMENTS TO AVOID TO BE RE-USED DIRTY AT USER-LEVEL. IN THIS WAY RE-LOADING MUST
     // EXECUTED
-    for (ORecordOperation v : recordEntries.values())
+    for (ORecordOperation v : writeSet.getCurrentOperations())
       v.getRecord().unload();
 
-    for (ORecordOperation v : allEntries.values())
+    for (ORecordOperation v : writeSet.getFlushedOperations())
       v.getRecord().unload();
 
     indexEntries.clear();
@@ -274,7 +274,7 @@ public class OTransactionOptimistic extends OTransactionRealAbstract {
 
         if (txRecord == null) {
           // NOT IN TX, SAVE IT ANYWAY
-          allEntries.put(iRecord.getIdentity(), new ORecordOperation(iRecord, iStatus));
+          writeSet.putFlushed(iRecord.getIdentity(), new ORecordOperation(iRecord, iStatus));
         } else if (txRecord.record != iRecord) {
           // UPDATE LOCAL RECORDS TO AVOID MISMATCH OF VERSION/CONTENT
           final String clusterName = getDatabase().getClusterNameById(iRecord.getIdentity().getClusterId());
@@ -312,7 +312,7 @@ public class OTransactionOptimistic extends OTransactionRealAbstract {
           if (!(rid.isTemporary() && iStatus != ORecordOperation.CREATED)) {
             // NEW ENTRY: JUST REGISTER IT
             txEntry = new ORecordOperation(iRecord, iStatus);
-            recordEntries.put(rid, txEntry);
+            writeSet.putCurrent(rid, txEntry);
           }
         } else {
           // UPDATE PREVIOUS STATUS
@@ -341,7 +341,7 @@ public class OTransactionOptimistic extends OTransactionRealAbstract {
           case ORecordOperation.CREATED:
             switch (iStatus) {
             case ORecordOperation.DELETED:
-              recordEntries.remove(rid);
+              writeSet.removeCurrent(rid);
               break;
             }
             break;
@@ -393,7 +393,7 @@ public class OTransactionOptimistic extends OTransactionRealAbstract {
 
   @Override
   public String toString() {
-    return "OTransactionOptimistic [id=" + id + ", status=" + status + ", recEntries=" + recordEntries.size() + ", idxEntries="
+    return "OTransactionOptimistic [id=" + id + ", status=" + status + ", recEntries=" + writeSet.getCurrentCount() + ", idxEntries="
         + indexEntries.size() + ']';
   }
 
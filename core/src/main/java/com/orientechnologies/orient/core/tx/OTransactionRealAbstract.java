@@ -18,39 +18,33 @@ package com.orientechnologies.orient.core.tx;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import com.orientechnologies.common.collection.OCompositeKey;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecordTx;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
-import com.orientechnologies.orient.core.db.record.ORecordElement;
 import com.orientechnologies.orient.core.db.record.ORecordOperation;
 import com.orientechnologies.orient.core.exception.OTransactionException;
 import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORidMap;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.record.impl.ORecordFlat;
-import com.orientechnologies.orient.core.serialization.OSerializableStream;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
-import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
-import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerAnyStreamable;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OOperationUnitId;
 import com.orientechnologies.orient.core.tx.OTransactionIndexChanges.OPERATION;
 import com.orientechnologies.orient.core.tx.OTransactionIndexChangesPerKey.OTransactionIndexEntry;
 
 public abstract class OTransactionRealAbstract extends OTransactionAbstract {
-  protected Map<ORID, ORecord<?>>                             temp2persistent       = new HashMap<ORID, ORecord<?>>();
-  protected Map<ORID, ORecordOperation>                       allEntries            = new HashMap<ORID, ORecordOperation>();
-  protected Map<ORID, ORecordOperation>                       recordEntries         = new LinkedHashMap<ORID, ORecordOperation>();
+  protected Map<ORID, ORecord<?>>                             temp2persistent       = new ORidMap<ORecord<?>>();
+  protected final OTransactionWriteSet                        writeSet              = new OTransactionWriteSet();
   protected Map<String, OTransactionIndexChanges>             indexEntries          = new LinkedHashMap<String, OTransactionIndexChanges>();
-  protected Map<ORID, List<OTransactionRecordIndexOperation>> recordIndexOperations = new HashMap<ORID, List<OTransactionRecordIndexOperation>>();
+  protected Map<ORID, List<OTransactionRecordIndexOperation>> recordIndexOperations = new ORidMap<List<OTransactionRecordIndexOperation>>();
   protected int                                               id;
   private final OOperationUnitId                              operationUnitId;
 
@@ -84,8 +78,7 @@ public abstract class OTransactionRealAbstract extends OTransactionAbstract {
 
   public void close() {
     temp2persistent.clear();
-    allEntries.clear();
-    recordEntries.clear();
+    writeSet.clear();
     indexEntries.clear();
     recordIndexOperations.clear();
     newObjectCounter = -2;
@@ -99,43 +92,28 @@ public abstract class OTransactionRealAbstract extends OTransactionAbstract {
   }
 
   public void clearRecordEntries() {
-    for (Entry<ORID, ORecordOperation> entry : recordEntries.entrySet()) {
-      final ORID key = entry.getKey();
-
-      // ID NEW CREATE A COPY OF RID TO AVOID IT CHANGES IDENTITY+HASHCODE AND IT'S UNREACHEABLE THEREAFTER
-      allEntries.put(key.isNew() ? key.copy() : key, entry.getValue());
-    }
-
-    recordEntries.clear();
+    writeSet.flushCurrent();
   }
 
   public Collection<ORecordOperation> getCurrentRecordEntries() {
-    return recordEntries.values();
+    return writeSet.getCurrentOperations();
   }
 
   public Collection<ORecordOperation> getAllRecordEntries() {
-    return allEntries.values();
+    return writeSet.getFlushedOperations();
   }
 
   public ORecordOperation getRecordEntry(ORID rid) {
-    ORecordOperation e = allEntries.get(rid);
+    ORecordOperation e = writeSet.get(rid);
     if (e != null)
       return e;
 
     if (rid.isTemporary()) {
       final ORecord<?> record = temp2persistent.get(rid);
       if (record != null && !record.getIdentity().equals(rid))
-        rid = record.getIdentity();
+        return writeSet.get(record.getIdentity());
     }
 
-    e = recordEntries.get(rid);
-    if (e != null)
-      return e;
-
-    e = allEntries.get(rid);
-    if (e != null)
-      return e;
-
     return null;
   }
 
@@ -157,12 +135,12 @@ public abstract class OTransactionRealAbstract extends OTransactionAbstract {
 
     if (iClassName == null || iClassName.length() == 0)
       // RETURN ALL THE RECORDS
-      for (ORecordOperation entry : recordEntries.values()) {
+      for (ORecordOperation entry : writeSet.getCurrentOperations()) {
         result.add(entry);
       }
     else
       // FILTER RECORDS BY CLASSNAME
-      for (ORecordOperation entry : recordEntries.values()) {
+      for (ORecordOperation entry : writeSet.getCurrentOperations()) {
         if (entry.getRecord() != null && entry.getRecord() instanceof ODocument
             && iClassName.equals(((ODocument) entry.getRecord()).getClassName()))
           result.add(entry);
@@ -179,13 +157,13 @@ public abstract class OTransactionRealAbstract extends OTransactionAbstract {
 
     if (iIds == null)
       // RETURN ALL THE RECORDS
-      for (ORecordOperation entry : recordEntries.values()) {
+      for (ORecordOperation entry : writeSet.getCurrentOperations()) {
         if (entry.type == ORecordOperation.CREATED)
           result.add(entry);
       }
     else
       // FILTER RECORDS BY ID
-      for (ORecordOperation entry : recordEntries.values()) {
+      for (ORecordOperation entry : writeSet.getCurrentOperations()) {
         for (int id : iIds) {
           if (entry.getRecord() != null && entry.getRecord().getIdentity().getClusterId() == id
               && entry.type == ORecordOperation.CREATED) {
@@ -241,6 +219,24 @@ public abstract class OTransactionRealAbstract extends OTransactionAbstract {
     return result;
   }
 
+  public byte[] getIndexChangesStream() {
+    for (OTransactionIndexChanges changes : indexEntries.values()) {
+      if (changes.changesCrossKey != null)
+        for (OTransactionIndexEntry e : changes.changesCrossKey.entries)
+          resolveIndexValue(e);
+
+      for (OTransactionIndexChangesPerKey entry : changes.changesPerKey.values())
+        for (OTransactionIndexEntry e : entry.entries)
+          resolveIndexValue(e);
+    }
+
+    final byte[] result = OTransactionIndexChangesSerializer.INSTANCE.toStream(indexEntries);
+
+    indexEntries.clear();
+
+    return result;
+  }
+
   /**
    * Bufferizes index changes to be flushed at commit time.
    * 
@@ -305,12 +301,9 @@ public abstract class OTransactionRealAbstract extends OTransactionAbstract {
       // NO CHANGE, IGNORE IT
       return;
 
-    if (oldRid.isNew()) {
-      // REMOVE AND RE-PUT THE OPERATION BECAUSE KEY IS CHANGED
-      final ORecordOperation rec = allEntries.remove(oldRid);
-      if (rec != null)
-        allEntries.put(newRid, rec);
-    }
+    if (oldRid.isNew())
+      // MOVE THE OPERATION BECAUSE KEY IS CHANGED
+      writeSet.updateIdentity(oldRid, newRid);
 
     // UPDATE INDEXES
     final List<OTransactionRecordIndexOperation> transactionIndexOperations = recordIndexOperations.get(oldRid);
@@ -350,25 +343,11 @@ public abstract class OTransactionRealAbstract extends OTransactionAbstract {
     // SERIALIZE KEY
 
     final String key;
-    final ODocument keyContainer = new ODocument();
 
     try {
-      if (entry.key != null) {
-        if (entry.key instanceof OCompositeKey) {
-          final List<Object> keys = ((OCompositeKey) entry.key).getKeys();
-
-          keyContainer.field("key", keys, OType.EMBEDDEDLIST);
-          keyContainer.field("binary", false);
-        } else if (!(entry.key instanceof ORecordElement) && (entry.key instanceof OSerializableStream)) {
-          keyContainer.field("key", OStreamSerializerAnyStreamable.INSTANCE.toStream(entry.key), OType.BINARY);
-          keyContainer.field("binary", true);
-        } else {
-          keyContainer.field("key", entry.key);
-          keyContainer.field("binary", false);
-        }
-
-        key = ORecordSerializerSchemaAware2CSV.INSTANCE.toString(keyContainer, null, false).toString();
-      } else
+      if (entry.key != null)
+        key = OTransactionIndexChangesSerializer.INSTANCE.keyToString(entry.key);
+      else
         key = "*";
     } catch (IOException ioe) {
       throw new OTransactionException("Error during index changes serialization. ", ioe);
@@ -384,13 +363,7 @@ public abstract class OTransactionRealAbstract extends OTransactionAbstract {
         // SERIALIZE OPERATION
         changeDoc.field("o", e.operation.ordinal());
 
-        if (e.value instanceof ORecord<?> && e.value.getIdentity().isNew()) {
-          final ORecord<?> saved = temp2persistent.get(e.value.getIdentity());
-          if (saved != null)
-            e.value = saved;
-          else
-            ((ORecord<?>) e.value).save();
-        }
+        resolveIndexValue(e);
 
         changeDoc.field("v", e.value != null ? e.value.getIdentity() : null);
 
@@ -401,4 +374,14 @@ public abstract class OTransactionRealAbstract extends OTransactionAbstract {
     entries.add(new ODocument().addOwner(indexDoc).setAllowChainedAccess(false).field("k", OStringSerializerHelper.encode(key))
         .field("ops", operations, OType.EMBEDDEDLIST));
   }
+
+  private void resolveIndexValue(final OTransactionIndexEntry e) {
+    if (e.value instanceof ORecord<?> && e.value.getIdentity().isNew()) {
+      final ORecord<?> saved = temp2persistent.get(e.value.getIdentity());
+      if (saved != null)
+        e.value = saved;
+      else
+        ((ORecord<?>) e.value).save();
+    }
+  }
 }
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.tx;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.orientechnologies.orient.core.db.record.ORecordOperation;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORidLongMap;
+
+/**
+ * Record operations of a transaction. The operations are appended to an array in the order they are registered and a single
+ * {@link ORidLongMap} maps every RID to the slot of its operation, so no map entry and no RID copy is allocated per record. An
+ * operation is <i>current</i> from when it is registered until {@link #flushCurrent()} is called by the storage which is committing
+ * it, then it is <i>flushed</i>. Current operations are browsed in registration order.
+ */
+public class OTransactionWriteSet {
+  private static final long  ABSENT       = -1;
+
+  private final ORidLongMap  slots        = new ORidLongMap();
+  private ORecordOperation[] operations   = new ORecordOperation[16];
+  private boolean[]          current      = new boolean[16];
+  private int                used;
+  private int                firstCurrent;
+  private int                currentCount;
+  private int                flushedCount;
+
+  private final Operations   currentView  = new Operations(true);
+  private final Operations   flushedView  = new Operations(false);
+
+  public ORecordOperation get(final ORID rid) {
+    final long slot = slots.get(rid, ABSENT);
+    return slot == ABSENT ? null : operations[(int) slot];
+  }
+
+  /**
+   * Registers a new current operation. Any previous operation of the RID is replaced.
+   */
+  public void putCurrent(final ORID rid, final ORecordOperation operation) {
+    put(rid, operation, true);
+  }
+
+  /**
+   * Registers an operation which is already flushed, as the ones executed while the transaction is committing. Any previous
+   * operation of the RID is replaced.
+   */
+  public void putFlushed(final ORID rid, final ORecordOperation operation) {
+    put(rid, operation, false);
+  }
+
+  /**
+   * Removes the operation of the RID if it is current: flushed operations are kept.
+   */
+  public ORecordOperation removeCurrent(final ORID rid) {
+    final long slot = slots.get(rid, ABSENT);
+    if (slot == ABSENT || !current[(int) slot])
+      return null;
+
+    slots.remove(rid, ABSENT);
+    return release((int) slot);
+  }
+
+  /**
+   * Marks all the current operations as flushed.
+   */
+  public void flushCurrent() {
+    for (int slot = firstCurrent; slot < used; slot++)
+      current[slot] = false;
+
+    flushedCount += currentCount;
+    currentCount = 0;
+    // OPERATIONS ARE NEVER MADE CURRENT AGAIN, SO THE NEXT CURRENT ONES CAN BE ONLY AFTER THE LAST SLOT
+    firstCurrent = used;
+  }
+
+  /**
+   * Moves the operation of a record whose identity changed on commit under its new RID.
+   */
+  public void updateIdentity(final ORID oldRid, final ORID newRid) {
+    final long slot = slots.remove(oldRid, ABSENT);
+    if (slot == ABSENT)
+      return;
+
+    final long replaced = slots.put(newRid, slot, ABSENT);
+    if (replaced != ABSENT)
+      release((int) replaced);
+  }
+
+  /**
+   * Returns a live view of the current operations in registration order.
+   */
+  public AbstractCollection<ORecordOperation> getCurrentOperations() {
+    return currentView;
+  }
+
+  /**
+   * Returns a live view of the flushed operations.
+   */
+  public AbstractCollection<ORecordOperation> getFlushedOperations() {
+    return flushedView;
+  }
+
+  public int getCurrentCount() {
+    return currentCount;
+  }
+
+  public int size() {
+    return currentCount + flushedCount;
+  }
+
+  public void clear() {
+    slots.clear();
+    if (operations.length > 16) {
+      operations = new ORecordOperation[16];
+      current = new boolean[16];
+    } else
+      Arrays.fill(operations, 0, used, null);
+
+    used = 0;
+    firstCurrent = 0;
+    currentCount = 0;
+    flushedCount = 0;
+  }
+
+  private void put(final ORID rid, final ORecordOperation operation, final boolean isCurrent) {
+    final int slot = used;
+    if (slot == operations.length) {
+      operations = Arrays.copyOf(operations, slot << 1);
+      current = Arrays.copyOf(current, slot << 1);
+    }
+
+    operations[slot] = operation;
+    current[slot] = isCurrent;
+    used++;
+
+    if (isCurrent)
+      currentCount++;
+    else
+      flushedCount++;
+
+    final long replaced = slots.put(rid, slot, ABSENT);
+    if (replaced != ABSENT)
+      release((int) replaced);
+  }
+
+  private ORecordOperation release(final int slot) {
+    // THE SLOT IS LEFT EMPTY: SLOTS ARE REUSED ONLY ONCE THE TRANSACTION IS CLEARED
+    final ORecordOperation operation = operations[slot];
+    operations[slot] = null;
+
+    if (current[slot])
+      currentCount--;
+    else
+      flushedCount--;
+
+    return operation;
+  }
+
+  private final class Operations extends AbstractCollection<ORecordOperation> {
+    private final boolean currentOnes;
+
+    private Operations(final boolean currentOnes) {
+      this.currentOnes = currentOnes;
+    }
+
+    @Override
+    public Iterator<ORecordOperation> iterator() {
+      return new Iterator<ORecordOperation>() {
+        private int nextSlot = findNext(currentOnes ? firstCurrent : 0);
+
+        public boolean hasNext() {
+          return nextSlot < used;
+        }
+
+        public ORecordOperation next() {
+          if (nextSlot >= used)
+            throw new NoSuchElementException();
+
+          final ORecordOperation operation = operations[nextSlot];
+          nextSlot = findNext(nextSlot + 1);
+          return operation;
+        }
+
+        public void remove() {
+          throw new UnsupportedOperationException("remove");
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return currentOnes ? currentCount : flushedCount;
+    }
+
+    private int findNext(int slot) {
+      while (slot < used && (operations[slot] == null || current[slot] != currentOnes))
+        slot++;
+      return slot;
+    }
+  }
+}
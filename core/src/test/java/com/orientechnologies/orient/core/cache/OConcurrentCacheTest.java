@@ -0,0 +1,234 @@
+package com.orientechnologies.orient.core.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.version.OVersionFactory;
+
+@Test
+public class OConcurrentCacheTest {
+
+  public void storesRecordsUsingTheirIdentity() {
+    // Given an enabled cache
+    OCache sut = enabledCache(5);
+
+    // When new record put into
+    ORecordId id = rid(1);
+    ODocument record = new ODocument(id);
+    sut.put(record);
+
+    // Then it can be retrieved later by it's id
+    assertEquals(sut.get(id), record);
+  }
+
+  public void returnsPreviousRecordOnPut() {
+    // Given an enabled cache with record in it
+    OCache sut = enabledCache(5);
+    ODocument first = new ODocument(rid(1));
+    sut.put(first);
+
+    // When record with same identity put in
+    ORecordInternal<?> previous = sut.put(new ODocument(rid(1)));
+
+    // Then previous record is returned
+    // And cache stores only one item
+    assertEquals(previous, first);
+    assertEquals(sut.size(), 1);
+  }
+
+  public void removesOnlyOnce() {
+    // Given an enabled cache with records in it
+    OCache sut = enabledCache(5);
+    sut.put(new ODocument(rid(1)));
+
+    // When removing record twice
+    ORecordInternal<?> removedFirst = sut.remove(rid(1));
+    ORecordInternal<?> removedSecond = sut.remove(rid(1));
+
+    // Then only first remove returns record
+    assertNotNull(removedFirst);
+    assertNull(removedSecond);
+  }
+
+  public void storesNoMoreElementsThanSpecifiedLimit() {
+    // Given an enabled cache
+    OCache sut = enabledCache(5);
+
+    // When stored more distinct elements than cache limit allows
+    for (int i = sut.limit() + 2; i > 0; i--)
+      sut.put(new ODocument(rid(i)));
+
+    // Then size of cache should be exactly as it's limit
+    assertEquals(sut.size(), sut.limit(), "Cache doesn't meet limit requirements");
+  }
+
+  public void segmentedCacheStoresNoMoreElementsThanSpecifiedLimit() {
+    // Given an enabled cache split into segments
+    OCache sut = enabledCache(10000);
+
+    // When stored much more distinct elements than cache limit allows
+    for (int i = 2 * sut.limit(); i > 0; i--)
+      sut.put(new ODocument(rid(i)));
+
+    // Then size of cache does not exceed the limit, every segment is filled up to its own limit
+    assertTrue(sut.size() <= sut.limit(), "Cache doesn't meet limit requirements");
+    assertTrue(sut.size() > sut.limit() * 0.9, "Cache is not filled");
+  }
+
+  public void splitsOnlyBigCacheIntoSegments() {
+    assertEquals(new OConcurrentCache(null, 5).getSegmentsCount(), 1);
+    assertEquals(new OConcurrentCache(null, 10000).getSegmentsCount(), 16);
+  }
+
+  public void evictsRecordsWhichWereNotReadFirst() {
+    // Given full enabled cache
+    OCache sut = enabledCache(5);
+    for (int i = 1; i <= 5; i++)
+      sut.put(new ODocument(rid(i)));
+
+    // When eldest record is read
+    // And new record is added
+    sut.get(rid(1));
+    sut.put(new ODocument(rid(6)));
+
+    // Then eldest record which was not read is evicted
+    assertNotNull(sut.get(rid(1)));
+    assertNull(sut.get(rid(2)));
+    assertEquals(sut.size(), 5);
+  }
+
+  public void providesAccessToAllKeysInCache() {
+    // Given enabled non-empty cache
+    OCache sut = enabledCache(10000);
+    for (int i = 1; i <= 100; i++)
+      sut.put(new ODocument(rid(i)));
+
+    // When asked for keys
+    Collection<ORID> keys = sut.keys();
+
+    // Then keys count should be same as size of cache
+    // And records available for keys
+    assertEquals(keys.size(), 100);
+    for (ORID key : keys)
+      assertNotNull(sut.get(key));
+  }
+
+  public void clearsWholeCacheIfMemoryCriticallyLow() {
+    // Given running filled cache
+    OConcurrentCache sut = new OConcurrentCache(null, 10000);
+    sut.startup();
+    for (int i = 1; i <= 1000; i++)
+      sut.put(new ODocument(rid(i)));
+
+    // When watchdog listener invoked with critically low memory
+    sut.lowMemoryListener.memoryUsageLow(1, 8);
+
+    // Then whole cache cleared
+    assertEquals(sut.size(), 0, "Cache has entries in it yet");
+    sut.shutdown();
+  }
+
+  public void supportsConcurrentAccess() throws Exception {
+    // Given enabled cache smaller than amount of records
+    final OCache sut = enabledCache(1000);
+    final int threads = 4;
+
+    // When records are put and read from several threads
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<Void>> futures = new ArrayList<Future<Void>>();
+    for (int n = 0; n < threads; n++) {
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          for (int i = 1; i <= 5000; i++) {
+            final ORecordId id = rid(i);
+            sut.put(new ODocument(id));
+
+            final ORecordInternal<?> record = sut.get(id);
+            if (record != null)
+              assertEquals(record.getIdentity(), id);
+          }
+          return null;
+        }
+      }));
+    }
+
+    for (Future<Void> future : futures)
+      future.get();
+    executor.shutdown();
+
+    // Then cache still meets its limit
+    assertTrue(sut.size() <= sut.limit());
+  }
+
+  public void level2CacheHitMarksRecordAsReferenced() {
+    // Given full level-2 cache of COPY_RECORD strategy backed by concurrent cache
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:level2CacheHitMarksRecordAsReferenced").create();
+    try {
+      final OConcurrentCache underlying = new OConcurrentCache(null, 5);
+      final OLevel2RecordCache sut = new OLevel2RecordCache(db.getStorage(), new OCacheLevelTwoLocator() {
+        public OCache primaryCache(final String storageName) {
+          return underlying;
+        }
+      });
+      sut.startup();
+      sut.setEnable(true);
+      sut.setStrategy(OLevel2RecordCache.STRATEGY.COPY_RECORD);
+      for (int i = 1; i <= 5; i++)
+        sut.updateRecord(loadedRecord(i));
+
+      // When eldest record is retrieved
+      // And new record is added
+      final ORecordInternal<?> retrieved = sut.retrieveRecord(rid(1));
+      sut.updateRecord(loadedRecord(6));
+
+      // Then retrieved record is kept in cache instead of eldest record which was not read
+      assertNotNull(retrieved);
+      assertEquals(retrieved.getIdentity(), rid(1));
+      assertNotNull(underlying.get(rid(1)));
+      assertNull(underlying.get(rid(2)));
+
+      // And further lookups return copies without replacing cached instance
+      final ORecordInternal<?> cached = underlying.get(rid(1));
+      assertNotSame(sut.retrieveRecord(rid(1)), cached);
+      assertSame(underlying.get(rid(1)), cached);
+      sut.shutdown();
+    } finally {
+      db.drop();
+    }
+  }
+
+  private OCache enabledCache(int limit) {
+    OConcurrentCache cache = new OConcurrentCache(null, limit);
+    cache.enable();
+    return cache;
+  }
+
+  private static ORecordInternal<?> loadedRecord(int i) {
+    return new ODocument().fill(rid(i), OVersionFactory.instance().createVersion(), ("id:" + i).getBytes(), false);
+  }
+
+  private static ORecordId rid(int i) {
+    return new ORecordId(i, OClusterPositionFactory.INSTANCE.valueOf(i));
+  }
+}
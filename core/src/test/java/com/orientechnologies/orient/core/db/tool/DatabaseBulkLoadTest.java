@@ -0,0 +1,211 @@
+package com.orientechnologies.orient.core.db.tool;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.io.OIOUtils;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.ODatabaseException;
+import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OIndexException;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedCluster;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
+
+@Test
+public class DatabaseBulkLoadTest {
+  private static final int    COUNT = 5000;
+  private static final int    AGES  = 50;
+
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    final String url = "plocal:" + buildDirectory + "/databaseBulkLoadTest";
+    db = new ODatabaseDocumentTx(url);
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+
+    db.create();
+
+    final OClass person = db.getMetadata().getSchema().createClass("Person");
+    person.createProperty("id", OType.INTEGER);
+    person.createProperty("age", OType.INTEGER);
+    person.createProperty("name", OType.STRING);
+    person.createIndex("Person.id", OClass.INDEX_TYPE.UNIQUE, "id");
+    person.createIndex("Person.age", OClass.INDEX_TYPE.NOTUNIQUE, "age");
+    person.createIndex("Person.name", "UNIQUE_SBTREE", "name");
+
+    db.getMetadata().getSchema().createClass("Other").createProperty("code", OType.INTEGER)
+        .createIndex(OClass.INDEX_TYPE.UNIQUE);
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testBulkLoad() throws Exception {
+    final OLocalPaginatedStorage storage = (OLocalPaginatedStorage) db.getStorage();
+
+    final ODatabaseBulkLoad bulkLoad = new ODatabaseBulkLoad(db, "Person").begin();
+    final OLogSequenceNumber walEnd = storage.getWALInstance().end();
+    try {
+      Assert.assertTrue(storage.isBulkLoad(db.getMetadata().getSchema().getClass("Person").getDefaultClusterId()));
+      Assert.assertFalse(storage.isBulkLoad(db.getMetadata().getSchema().getClass("Other").getDefaultClusterId()));
+
+      // DESCENDING NAMES ARE NOT INSERTED IN ORDER
+      for (int i = 0; i < COUNT; i++)
+        new ODocument("Person").field("id", i).field("age", i % AGES).field("name", "name" + (COUNT - i)).save();
+
+      Assert.assertEquals(storage.getWALInstance().end(), walEnd);
+      Assert.assertEquals(db.getMetadata().getIndexManager().getIndex("Person.id").getSize(), 0);
+
+      // CLUSTERS OUT OF THE BULK LOAD ARE STILL INDEXED
+      new ODocument("Other").field("code", 1).save();
+      Assert.assertEquals(db.getMetadata().getIndexManager().getIndex("Other.code").getSize(), 1);
+    } finally {
+      bulkLoad.end();
+    }
+
+    Assert.assertTrue(storage.getWALInstance().end().compareTo(walEnd) > 0);
+    Assert.assertFalse(storage.isBulkLoad(db.getMetadata().getSchema().getClass("Person").getDefaultClusterId()));
+
+    checkContent();
+
+    db.close();
+    db.open("admin", "admin");
+
+    checkContent();
+  }
+
+  public void testLoadStartsOnNewPage() throws Exception {
+    final OLocalPaginatedStorage storage = (OLocalPaginatedStorage) db.getStorage();
+    final OClass paged = db.getMetadata().getSchema().createClass("Paged");
+    final OLocalPaginatedCluster cluster = storage.getClusterById(paged.getDefaultClusterId());
+
+    final ODocument before = new ODocument("Paged").field("value", 0).save();
+
+    final File flagFile = new File(storage.getStoragePath() + File.separator + storage.getName() + ".blf");
+    Assert.assertFalse(flagFile.exists());
+
+    final ODatabaseBulkLoad bulkLoad = new ODatabaseBulkLoad(db, "Paged").begin();
+    try {
+      Assert.assertTrue(flagFile.exists());
+      Assert.assertEquals(OIOUtils.readFileAsString(flagFile).trim(), cluster.getName() + ":" + cluster.getBulkLoadFirstPage());
+
+      // THE LAST PAGE HAS ROOM BUT IT IS NOT FILLED BY UNLOGGED WRITES
+      final ODocument loaded = new ODocument("Paged").field("value", 1).save();
+      Assert.assertEquals(pageIndex(before), cluster.getBulkLoadFirstPage() - 1);
+      Assert.assertEquals(pageIndex(loaded), cluster.getBulkLoadFirstPage());
+
+      final ODocument next = new ODocument("Paged").field("value", 2).save();
+      Assert.assertEquals(pageIndex(next), cluster.getBulkLoadFirstPage());
+    } finally {
+      bulkLoad.end();
+    }
+
+    Assert.assertFalse(flagFile.exists());
+    Assert.assertEquals(cluster.getBulkLoadFirstPage(), -1);
+    Assert.assertEquals(db.countClass("Paged"), 3);
+  }
+
+  public void testDuplicatedUniqueKeyFailsEnd() {
+    final OLocalPaginatedStorage storage = (OLocalPaginatedStorage) db.getStorage();
+    final OClass duplicated = db.getMetadata().getSchema().createClass("Duplicated");
+    duplicated.createProperty("code", OType.INTEGER).createIndex(OClass.INDEX_TYPE.UNIQUE);
+    duplicated.createProperty("group", OType.INTEGER).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+
+    final ODatabaseBulkLoad bulkLoad = new ODatabaseBulkLoad(db, "Duplicated").begin();
+    try {
+      // THE DUPLICATED KEY IS NOT CHECKED DURING THE LOAD
+      for (int i = 0; i < 10; i++)
+        new ODocument("Duplicated").field("code", i % 9).field("group", i % 2).save();
+    } finally {
+      try {
+        bulkLoad.end();
+        Assert.fail();
+      } catch (OIndexException e) {
+        // EXPECTED
+      }
+    }
+
+    Assert.assertFalse(storage.isBulkLoad(duplicated.getDefaultClusterId()));
+    Assert.assertEquals(db.countClass("Duplicated"), 10);
+
+    // THE OTHER INDEXES ARE REBUILT ANYWAY
+    Assert.assertEquals(db.getMetadata().getIndexManager().getIndex("Duplicated.group").getSize(), 10);
+  }
+
+  @Test(expectedExceptions = OStorageException.class)
+  public void testBeginTwice() {
+    final ODatabaseBulkLoad bulkLoad = new ODatabaseBulkLoad(db, "Other").begin();
+    try {
+      new ODatabaseBulkLoad(db, "Person").begin();
+    } finally {
+      bulkLoad.end();
+    }
+  }
+
+  @Test(expectedExceptions = ODatabaseException.class)
+  public void testMemoryStorageIsNotSupported() {
+    final ODatabaseDocumentTx memoryDb = new ODatabaseDocumentTx("memory:databaseBulkLoadTest");
+    memoryDb.create();
+    try {
+      new ODatabaseBulkLoad(memoryDb).begin();
+    } finally {
+      memoryDb.drop();
+      ODatabaseRecordThreadLocal.INSTANCE.set(db);
+    }
+  }
+
+  private static long pageIndex(final ODocument iDocument) {
+    return iDocument.getIdentity().getClusterPosition().longValue() >>> 16;
+  }
+
+  private void checkContent() {
+    Assert.assertEquals(db.countClass("Person"), COUNT);
+
+    final OIndex<?> idIndex = db.getMetadata().getIndexManager().getIndex("Person.id");
+    final OIndex<?> ageIndex = db.getMetadata().getIndexManager().getIndex("Person.age");
+    final OIndex<?> nameIndex = db.getMetadata().getIndexManager().getIndex("Person.name");
+    Assert.assertEquals(idIndex.getSize(), COUNT);
+    Assert.assertEquals(nameIndex.getSize(), COUNT);
+
+    for (int i = 0; i < COUNT; i += 97) {
+      final ODocument document = ((OIdentifiable) idIndex.get(i)).getRecord();
+      Assert.assertEquals(document.<Object> field("id"), i);
+      Assert.assertEquals(((OIdentifiable) nameIndex.get("name" + (COUNT - i))).getIdentity(), document.getIdentity());
+    }
+
+    Assert.assertEquals(((Collection<?>) ageIndex.get(7)).size(), COUNT / AGES);
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Person where name between 'name1' and 'name2'"));
+    int expected = 0;
+    for (int i = 1; i <= COUNT; i++) {
+      final String name = "name" + i;
+      if (name.compareTo("name1") >= 0 && name.compareTo("name2") <= 0)
+        expected++;
+    }
+    Assert.assertEquals(result.size(), expected);
+  }
+}
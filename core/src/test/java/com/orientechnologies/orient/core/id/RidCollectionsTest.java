@@ -0,0 +1,127 @@
+package com.orientechnologies.orient.core.id;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.directmemory.ODirectMemory;
+import com.orientechnologies.common.directmemory.ODirectMemoryFactory;
+
+@Test
+public class RidCollectionsTest {
+  public void testSet() {
+    checkSet(new ORidSet());
+  }
+
+  public void testSetInDirectMemory() {
+    final ODirectMemory memory = ODirectMemoryFactory.INSTANCE.directMemory();
+    if (memory == null)
+      return;
+
+    final ORidSet set = new ORidSet(memory);
+    try {
+      checkSet(set);
+    } finally {
+      set.free();
+    }
+  }
+
+  public void testMap() {
+    final ORidMap<String> map = new ORidMap<String>();
+    final Map<ORID, String> expected = new HashMap<ORID, String>();
+    for (int i = 0; i < 1000; i++) {
+      final ORID rid = rid(i % 5, i);
+      Assert.assertNull(map.put(rid, "v" + i));
+      expected.put(rid, "v" + i);
+    }
+    Assert.assertEquals(map.put(rid(0, 0), "updated"), "v0");
+    expected.put(rid(0, 0), "updated");
+
+    for (int i = 1; i < 1000; i += 3) {
+      Assert.assertEquals(map.remove(rid(i % 5, i)), "v" + i);
+      expected.remove(rid(i % 5, i));
+    }
+    Assert.assertNull(map.remove(rid(1, 1)));
+
+    // FREED VALUE SLOTS ARE REUSED
+    Assert.assertNull(map.put(rid(9, 9), "new"));
+    expected.put(rid(9, 9), "new");
+
+    Assert.assertTrue(map.equals(expected));
+    Assert.assertTrue(expected.equals(new HashMap<ORID, String>(map)));
+
+    for (Iterator<Map.Entry<ORID, String>> it = map.entrySet().iterator(); it.hasNext();)
+      if (it.next().getKey().getClusterPosition().longValue() % 2 == 0)
+        it.remove();
+    for (Iterator<ORID> it = expected.keySet().iterator(); it.hasNext();)
+      if (it.next().getClusterPosition().longValue() % 2 == 0)
+        it.remove();
+    Assert.assertTrue(map.equals(expected));
+
+    map.clear();
+    Assert.assertTrue(map.isEmpty());
+    Assert.assertNull(map.get(rid(9, 9)));
+  }
+
+  public void testLongMap() {
+    final ORidLongMap map = new ORidLongMap();
+    for (int i = 0; i < 1000; i++)
+      Assert.assertEquals(map.put(rid(i % 4, i), i * 10, -1), -1);
+    Assert.assertEquals(map.put(rid(0, 0), 5, -1), 0);
+    Assert.assertEquals(map.size(), 1000);
+
+    Assert.assertEquals(map.get(rid(3, 7), -1), 70);
+    Assert.assertEquals(map.get(rid(2, 7), -1), -1);
+    Assert.assertEquals(map.remove(rid(3, 7), -1), 70);
+    Assert.assertFalse(map.containsKey(rid(3, 7)));
+    Assert.assertEquals(map.size(), 999);
+
+    map.clear();
+    Assert.assertTrue(map.isEmpty());
+  }
+
+  public void testKeysAreCopied() {
+    final ORecordId rid = new ORecordId(-1, new OClusterPositionLong(-2));
+    final ORidSet set = new ORidSet();
+    final ORidMap<String> map = new ORidMap<String>();
+    set.add(rid);
+    map.put(rid, "new");
+
+    // THE IDENTITY OF A NEW RECORD CHANGES ON COMMIT
+    rid.clusterId = 3;
+    rid.clusterPosition = new OClusterPositionLong(10);
+
+    Assert.assertFalse(set.contains(rid));
+    Assert.assertTrue(set.contains(new ORecordId(-1, new OClusterPositionLong(-2))));
+    Assert.assertEquals(map.remove(new ORecordId(-1, new OClusterPositionLong(-2))), "new");
+  }
+
+  private void checkSet(final ORidSet set) {
+    final Set<ORID> expected = new HashSet<ORID>();
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertTrue(set.add(rid(i % 3, i * 7)));
+      expected.add(rid(i % 3, i * 7));
+    }
+    Assert.assertFalse(set.add(rid(0, 0)));
+    Assert.assertFalse(set.contains("#0:0"));
+
+    for (Iterator<ORID> it = set.iterator(); it.hasNext();)
+      if (it.next().getClusterId() == 1)
+        it.remove();
+    for (Iterator<ORID> it = expected.iterator(); it.hasNext();)
+      if (it.next().getClusterId() == 1)
+        it.remove();
+
+    Assert.assertTrue(set.equals(expected));
+    Assert.assertTrue(expected.equals(new HashSet<ORID>(set)));
+  }
+
+  private static ORID rid(final int clusterId, final long clusterPosition) {
+    return new ORecordId(clusterId, new OClusterPositionLong(clusterPosition));
+  }
+}
@@ -0,0 +1,157 @@
+package com.orientechnologies.orient.core.index.hashindex.local;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.serialization.types.OStringSerializer;
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
+
+@Test
+public class LocalHashTableWALTest {
+  private static final int                  KEYS_COUNT = 200000;
+
+  private ODatabaseDocumentTx               databaseDocumentTx;
+  private OMurmurHash3HashFunction<Integer> hashFunction;
+
+  private OLocalHashTable<Integer, String>  localHashTable;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    databaseDocumentTx = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/localHashTableWALTest");
+    if (databaseDocumentTx.exists()) {
+      databaseDocumentTx.open("admin", "admin");
+      databaseDocumentTx.drop();
+    }
+
+    databaseDocumentTx.create();
+
+    hashFunction = new OMurmurHash3HashFunction<Integer>();
+    hashFunction.setValueSerializer(OIntegerSerializer.INSTANCE);
+  }
+
+  @AfterClass
+  public void afterClass() throws Exception {
+    databaseDocumentTx.drop();
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    localHashTable.clear();
+    localHashTable.delete();
+  }
+
+  public void testReload() {
+    localHashTable = newHashTable();
+    localHashTable.create("localHashTableWALTest", OIntegerSerializer.INSTANCE, OStringSerializer.INSTANCE, getStorage());
+
+    final Map<Integer, String> keys = fillAndRemove();
+
+    localHashTable.close();
+
+    localHashTable = newHashTable();
+    localHashTable.load("localHashTableWALTest", getStorage());
+
+    assertContent(keys);
+
+    for (int i = 0; i < KEYS_COUNT / 10; i++) {
+      localHashTable.put(i, i + "");
+      keys.put(i, i + "");
+    }
+
+    assertContent(keys);
+  }
+
+  public void testReloadAfterClear() {
+    localHashTable = newHashTable();
+    localHashTable.create("localHashTableWALTest", OIntegerSerializer.INSTANCE, OStringSerializer.INSTANCE, getStorage());
+
+    fillAndRemove();
+    localHashTable.clear();
+
+    final Map<Integer, String> keys = new HashMap<Integer, String>();
+    for (int i = 0; i < 1000; i++) {
+      localHashTable.put(i, i + "");
+      keys.put(i, i + "");
+    }
+
+    localHashTable.close();
+
+    localHashTable = newHashTable();
+    localHashTable.load("localHashTableWALTest", getStorage());
+
+    assertContent(keys);
+  }
+
+  public void testLoadTableCreatedWithoutDirectory() {
+    localHashTable = new OLocalHashTable<Integer, String>(".him", ".hit", ".hib", hashFunction);
+    localHashTable.create("localHashTableWALTest", OIntegerSerializer.INSTANCE, OStringSerializer.INSTANCE, getStorage());
+
+    final Map<Integer, String> keys = fillAndRemove();
+
+    localHashTable.close();
+
+    localHashTable = newHashTable();
+    localHashTable.load("localHashTableWALTest", getStorage());
+
+    assertContent(keys);
+
+    localHashTable.close();
+
+    localHashTable = newHashTable();
+    localHashTable.load("localHashTableWALTest", getStorage());
+
+    assertContent(keys);
+  }
+
+  private OLocalHashTable<Integer, String> newHashTable() {
+    return new OLocalHashTable<Integer, String>(".him", ".hit", ".hib", ".hid", hashFunction);
+  }
+
+  private OStorageLocalAbstract getStorage() {
+    return (OStorageLocalAbstract) databaseDocumentTx.getStorage();
+  }
+
+  private Map<Integer, String> fillAndRemove() {
+    final MersenneTwisterFast random = new MersenneTwisterFast();
+    final Map<Integer, String> keys = new HashMap<Integer, String>();
+
+    while (keys.size() < KEYS_COUNT) {
+      final int key = random.nextInt();
+      localHashTable.put(key, key + "");
+      keys.put(key, key + "");
+    }
+
+    // REMOVALS MERGE BUCKETS AND NODES OF THE HASH TREE
+    final Iterator<Integer> keysIterator = keys.keySet().iterator();
+    while (keysIterator.hasNext()) {
+      final int key = keysIterator.next();
+      if (random.nextInt(3) > 0) {
+        Assert.assertEquals(localHashTable.remove(key), key + "");
+        keysIterator.remove();
+      }
+    }
+
+    return keys;
+  }
+
+  private void assertContent(Map<Integer, String> keys) {
+    Assert.assertEquals(localHashTable.size(), keys.size());
+
+    for (Map.Entry<Integer, String> entry : keys.entrySet())
+      Assert.assertEquals(localHashTable.get(entry.getKey()), entry.getValue());
+  }
+}
@@ -2,10 +2,16 @@ package com.orientechnologies.orient.core.index.hashindex.local.cache;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.CRC32;
 
 import com.orientechnologies.common.directmemory.ODirectMemory;
@@ -795,6 +801,64 @@ public class O2QCacheTest {
     Assert.assertEquals(dirtyPagesRecord.getDirtyPages(), dirtyPages);
   }
 
+  public void testSmallCacheIsNotSplitIntoSegments() throws Exception {
+    Assert.assertEquals(buffer.getSegmentsCount(), 1);
+
+    closeBufferAndDeleteFile();
+
+    buffer = new O2QCache(O2QCache.MIN_SEGMENT_SIZE * (8 + systemOffset), 15000, directMemory, null, 8 + systemOffset,
+        storageLocal, true, 16);
+    Assert.assertEquals(buffer.getSegmentsCount(), 1);
+
+    closeBufferAndDeleteFile();
+
+    buffer = new O2QCache(4 * O2QCache.MIN_SEGMENT_SIZE * (8 + systemOffset), 15000, directMemory, null, 8 + systemOffset,
+        storageLocal, true, 16);
+    Assert.assertEquals(buffer.getSegmentsCount(), 4);
+    Assert.assertEquals(buffer.getMaxSize(), 4 * O2QCache.MIN_SEGMENT_SIZE);
+  }
+
+  public void testSegmentedCacheConcurrentWrite() throws Exception {
+    closeBufferAndDeleteFile();
+
+    buffer = new O2QCache(4 * O2QCache.MIN_SEGMENT_SIZE * (8 + systemOffset), 100, directMemory, null, 8 + systemOffset,
+        storageLocal, true, 4);
+    Assert.assertEquals(buffer.getSegmentsCount(), 4);
+
+    final long fileId = buffer.openFile(fileName);
+    final int threads = 4;
+    final int pagesPerThread = 3 * O2QCache.MIN_SEGMENT_SIZE;
+
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+    for (int n = 0; n < threads; n++) {
+      final int thread = n;
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          for (long i = thread; i < threads * pagesPerThread; i += threads) {
+            final long pointer = buffer.load(fileId, i);
+            buffer.markDirty(fileId, i);
+            directMemory.set(pointer + systemOffset, new byte[] { (byte) i, 1, 2, seed, 4, 5, 6, (byte) (i >>> 8) }, 0, 8);
+            buffer.release(fileId, i);
+          }
+          return null;
+        }
+      }));
+    }
+
+    for (Future<Void> future : futures)
+      future.get();
+    executor.shutdown();
+
+    Assert.assertEquals(buffer.getFilledUpTo(fileId), threads * pagesPerThread);
+
+    buffer.flushBuffer();
+
+    for (long i = 0; i < threads * pagesPerThread; i++)
+      assertFile(i, new byte[] { (byte) i, 1, 2, seed, 4, 5, 6, (byte) (i >>> 8) }, new OLogSequenceNumber(0, 0));
+  }
+
   private void updateFilePage(long pageIndex, long offset, byte[] value) throws IOException {
     String path = storageLocal.getConfiguration().getDirectory() + "/o2QCacheTest.tst";
 
@@ -0,0 +1,303 @@
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.serialization.types.OStringSerializer;
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
+
+@Test
+public class SBTreeTest {
+  private static final int         KEYS_COUNT = 100000;
+
+  private ODatabaseDocumentTx      databaseDocumentTx;
+
+  private OSBTree<Integer, String> sbTree;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    databaseDocumentTx = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/sbTreeTest");
+    if (databaseDocumentTx.exists()) {
+      databaseDocumentTx.open("admin", "admin");
+      databaseDocumentTx.drop();
+    }
+
+    databaseDocumentTx.create();
+
+    sbTree = new OSBTree<Integer, String>(".sbt");
+    sbTree.create("sbTreeTest", OIntegerSerializer.INSTANCE, OStringSerializer.INSTANCE,
+        (OStorageLocalAbstract) databaseDocumentTx.getStorage());
+  }
+
+  @AfterClass
+  public void afterClass() throws Exception {
+    sbTree.clear();
+    sbTree.delete();
+    databaseDocumentTx.drop();
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    sbTree.clear();
+  }
+
+  public void testKeyPut() {
+    for (int i = 0; i < KEYS_COUNT; i++)
+      sbTree.put(i, i + "");
+
+    for (int i = 0; i < KEYS_COUNT; i++)
+      Assert.assertEquals(sbTree.get(i), i + "", i + " key is absent");
+
+    for (int i = KEYS_COUNT; i < 2 * KEYS_COUNT; i++)
+      Assert.assertNull(sbTree.get(i));
+
+    Assert.assertEquals(sbTree.size(), KEYS_COUNT);
+    Assert.assertEquals(sbTree.firstKey(), Integer.valueOf(0));
+    Assert.assertEquals(sbTree.lastKey(), Integer.valueOf(KEYS_COUNT - 1));
+  }
+
+  public void testKeyPutRandom() {
+    final MersenneTwisterFast random = new MersenneTwisterFast();
+    final NavigableMap<Integer, String> keys = new TreeMap<Integer, String>();
+
+    while (keys.size() < KEYS_COUNT) {
+      int key = random.nextInt();
+      sbTree.put(key, key + "");
+      keys.put(key, key + "");
+
+      Assert.assertEquals(sbTree.get(key), key + "");
+    }
+
+    for (int key : keys.keySet())
+      Assert.assertEquals(sbTree.get(key), key + "");
+
+    Assert.assertEquals(sbTree.size(), keys.size());
+    Assert.assertEquals(sbTree.firstKey(), keys.firstKey());
+    Assert.assertEquals(sbTree.lastKey(), keys.lastKey());
+
+    assertEntries(keys.entrySet().iterator(), loadMajor(null, true));
+    assertEntries(keys.descendingMap().entrySet().iterator(), loadMinor(null, true));
+  }
+
+  public void testKeyUpdate() {
+    for (int i = 0; i < KEYS_COUNT; i++)
+      sbTree.put(i, i + "");
+
+    // VALUES OF DIFFERENT SIZE ARE MOVED IN THE PAGE OR TO OTHER PAGES
+    for (int i = 0; i < KEYS_COUNT; i++)
+      sbTree.put(i, i % 2 == 0 ? i + "updated" : i + "");
+
+    for (int i = 0; i < KEYS_COUNT; i++)
+      Assert.assertEquals(sbTree.get(i), i % 2 == 0 ? i + "updated" : i + "");
+
+    Assert.assertEquals(sbTree.size(), KEYS_COUNT);
+  }
+
+  public void testKeyDelete() {
+    for (int i = 0; i < KEYS_COUNT; i++)
+      sbTree.put(i, i + "");
+
+    for (int i = 0; i < KEYS_COUNT; i++)
+      if (i % 3 == 0)
+        Assert.assertEquals(sbTree.remove(i), i + "");
+
+    Assert.assertNull(sbTree.remove(0));
+
+    for (int i = 0; i < KEYS_COUNT; i++)
+      if (i % 3 == 0)
+        Assert.assertNull(sbTree.get(i));
+      else
+        Assert.assertEquals(sbTree.get(i), i + "");
+
+    Assert.assertEquals(sbTree.size(), KEYS_COUNT - (KEYS_COUNT + 2) / 3);
+    Assert.assertEquals(sbTree.firstKey(), Integer.valueOf(1));
+  }
+
+  public void testDeleteAllAndPutAgain() {
+    for (int i = 0; i < KEYS_COUNT; i++)
+      sbTree.put(i, i + "");
+
+    for (int i = 0; i < KEYS_COUNT; i++)
+      sbTree.remove(i);
+
+    Assert.assertEquals(sbTree.size(), 0);
+    Assert.assertNull(sbTree.firstKey());
+    Assert.assertNull(sbTree.lastKey());
+    Assert.assertTrue(loadMajor(null, true).isEmpty());
+
+    for (int i = 0; i < KEYS_COUNT; i++)
+      sbTree.put(i, i + "");
+
+    for (int i = 0; i < KEYS_COUNT; i++)
+      Assert.assertEquals(sbTree.get(i), i + "");
+  }
+
+  public void testLargeValues() {
+    final StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 100; i++)
+      builder.append("value");
+    final String suffix = builder.toString();
+
+    for (int i = 0; i < 10000; i++)
+      sbTree.put(i, i + suffix);
+
+    for (int i = 0; i < 10000; i++)
+      Assert.assertEquals(sbTree.get(i), i + suffix);
+  }
+
+  public void testIterateEntriesMajor() {
+    final NavigableMap<Integer, String> keys = fillRandom();
+
+    for (int key : sampleKeys(keys)) {
+      assertEntries(keys.tailMap(key, true).entrySet().iterator(), loadMajor(key, true));
+      assertEntries(keys.tailMap(key, false).entrySet().iterator(), loadMajor(key, false));
+
+      assertEntries(keys.tailMap(key + 1, true).entrySet().iterator(), loadMajor(key + 1, true));
+    }
+  }
+
+  public void testIterateEntriesMinor() {
+    final NavigableMap<Integer, String> keys = fillRandom();
+
+    for (int key : sampleKeys(keys)) {
+      assertEntries(keys.headMap(key, true).descendingMap().entrySet().iterator(), loadMinor(key, true));
+      assertEntries(keys.headMap(key, false).descendingMap().entrySet().iterator(), loadMinor(key, false));
+
+      assertEntries(keys.headMap(key + 1, false).descendingMap().entrySet().iterator(), loadMinor(key + 1, false));
+    }
+  }
+
+  public void testIterateEntriesBetween() {
+    final NavigableMap<Integer, String> keys = fillRandom();
+    final List<Integer> sample = sampleKeys(keys);
+
+    for (int i = 0; i < sample.size() - 1; i++) {
+      final int from = sample.get(i);
+      final int to = sample.get(i + 1);
+
+      for (boolean fromInclusive : new boolean[] { true, false })
+        for (boolean toInclusive : new boolean[] { true, false })
+          assertEntries(keys.subMap(from, fromInclusive, to, toInclusive).entrySet().iterator(),
+              loadBetween(from, fromInclusive, to, toInclusive));
+    }
+  }
+
+  public void testStopIteration() {
+    for (int i = 0; i < KEYS_COUNT; i++)
+      sbTree.put(i, i + "");
+
+    final List<Integer> result = new ArrayList<Integer>();
+    sbTree.loadEntriesMajor(100, true, new OSBTree.RangeResultListener<Integer, String>() {
+      @Override
+      public boolean addResult(Map.Entry<Integer, String> entry) {
+        result.add(entry.getKey());
+        return result.size() < 10;
+      }
+    });
+
+    Assert.assertEquals(result.size(), 10);
+    for (int i = 0; i < 10; i++)
+      Assert.assertEquals(result.get(i), Integer.valueOf(100 + i));
+  }
+
+  public void testReload() {
+    for (int i = 0; i < KEYS_COUNT; i++)
+      sbTree.put(i, i + "");
+
+    sbTree.close();
+
+    sbTree = new OSBTree<Integer, String>(".sbt");
+    sbTree.load("sbTreeTest", (OStorageLocalAbstract) databaseDocumentTx.getStorage());
+
+    Assert.assertEquals(sbTree.size(), KEYS_COUNT);
+    for (int i = 0; i < KEYS_COUNT; i++)
+      Assert.assertEquals(sbTree.get(i), i + "");
+  }
+
+  private NavigableMap<Integer, String> fillRandom() {
+    final MersenneTwisterFast random = new MersenneTwisterFast();
+    final NavigableMap<Integer, String> keys = new TreeMap<Integer, String>();
+
+    while (keys.size() < KEYS_COUNT) {
+      int key = random.nextInt(Integer.MAX_VALUE - 1);
+      sbTree.put(key, key + "");
+      keys.put(key, key + "");
+    }
+
+    return keys;
+  }
+
+  private List<Integer> sampleKeys(NavigableMap<Integer, String> keys) {
+    final List<Integer> sample = new ArrayList<Integer>();
+
+    int i = 0;
+    for (int key : keys.keySet()) {
+      if (i % (KEYS_COUNT / 20) == 0)
+        sample.add(key);
+      i++;
+    }
+
+    sample.add(keys.lastKey());
+    return sample;
+  }
+
+  private List<Map.Entry<Integer, String>> loadMajor(Integer key, boolean inclusive) {
+    final EntriesCollector collector = new EntriesCollector();
+    sbTree.loadEntriesMajor(key, inclusive, collector);
+    return collector.entries;
+  }
+
+  private List<Map.Entry<Integer, String>> loadMinor(Integer key, boolean inclusive) {
+    final EntriesCollector collector = new EntriesCollector();
+    sbTree.loadEntriesMinor(key, inclusive, collector);
+    return collector.entries;
+  }
+
+  private List<Map.Entry<Integer, String>> loadBetween(Integer from, boolean fromInclusive, Integer to, boolean toInclusive) {
+    final EntriesCollector collector = new EntriesCollector();
+    sbTree.loadEntriesBetween(from, fromInclusive, to, toInclusive, collector);
+    return collector.entries;
+  }
+
+  private void assertEntries(Iterator<Map.Entry<Integer, String>> expected, List<Map.Entry<Integer, String>> actual) {
+    final Iterator<Map.Entry<Integer, String>> actualIterator = actual.iterator();
+    while (expected.hasNext()) {
+      Assert.assertTrue(actualIterator.hasNext());
+
+      final Map.Entry<Integer, String> expectedEntry = expected.next();
+      final Map.Entry<Integer, String> actualEntry = actualIterator.next();
+
+      Assert.assertEquals(actualEntry.getKey(), expectedEntry.getKey());
+      Assert.assertEquals(actualEntry.getValue(), expectedEntry.getValue());
+    }
+
+    Assert.assertFalse(actualIterator.hasNext());
+  }
+
+  private static final class EntriesCollector implements OSBTree.RangeResultListener<Integer, String> {
+    private final List<Map.Entry<Integer, String>> entries = new ArrayList<Map.Entry<Integer, String>>();
+
+    @Override
+    public boolean addResult(Map.Entry<Integer, String> entry) {
+      entries.add(entry);
+      return true;
+    }
+  }
+}
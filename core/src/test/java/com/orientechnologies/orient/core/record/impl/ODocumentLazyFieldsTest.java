@@ -0,0 +1,111 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.record.impl;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OStorageConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerSchemaAware2Binary;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class ODocumentLazyFieldsTest {
+  private ODatabaseDocumentTx db;
+
+  @BeforeMethod
+  public void setUp() {
+    db = new ODatabaseDocumentTx("memory:documentLazyFieldsTest");
+    db.create();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    db.drop();
+  }
+
+  public void testCSV() {
+    checkLazyFields();
+  }
+
+  public void testBinary() {
+    db.command(new OCommandSQL("alter database custom " + OStorageConfiguration.RECORD_SERIALIZER + "="
+        + ORecordSerializerSchemaAware2Binary.NAME)).execute();
+    checkLazyFields();
+  }
+
+  public void testProjection() {
+    for (int i = 0; i < 10; i++)
+      createWide(i).save();
+    db.getLevel1Cache().clear();
+    db.getLevel2Cache().clear();
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select f7 from Wide where f3 = 'value3 of 5'"));
+    Assert.assertEquals(result.size(), 1);
+    Assert.assertEquals(result.get(0).field("f7"), "value7 of 5");
+  }
+
+  private void checkLazyFields() {
+    final ORID rid = createWide(1).save().getIdentity();
+    db.getLevel1Cache().clear();
+    db.getLevel2Cache().clear();
+
+    final ODocument doc = db.load(rid);
+    Assert.assertEquals(doc.field("f5"), "value5 of 1");
+    Assert.assertEquals(doc.field("n10"), Integer.valueOf(10));
+    Assert.assertFalse(doc.containsField("missing"));
+
+    // ONLY THE ACCESSED FIELDS HAVE BEEN UNMARSHALLED, THE CONTENT HAS BEEN INDEXED ONCE
+    Assert.assertEquals(doc._fieldValues.size(), 2);
+    Assert.assertNotNull(doc.getFieldIndex());
+    Assert.assertTrue(doc.getFieldIndex().isIndexOf(doc.toStream()));
+    Assert.assertEquals(doc.getClassName(), "Wide");
+
+    // FULL UNMARSHALLING
+    Assert.assertEquals(doc.fields(), 40);
+    Assert.assertNull(doc.getFieldIndex());
+    Assert.assertEquals(doc.field("f19"), "value19 of 1");
+    Assert.assertEquals(doc.field("n0"), Integer.valueOf(0));
+    Assert.assertEquals(doc.field("list"), Arrays.asList(1, 2, 3));
+
+    // A RELOADED DOCUMENT IS INDEXED AGAIN
+    doc.field("f5", "changed").save();
+    db.getLevel1Cache().clear();
+    db.getLevel2Cache().clear();
+    final ODocument reloaded = db.load(rid);
+    Assert.assertEquals(reloaded.field("f5"), "changed");
+    Assert.assertEquals(reloaded.field("f6"), "value6 of 1");
+    Assert.assertEquals(reloaded.fieldNames().length, 40);
+  }
+
+  private static ODocument createWide(final int iId) {
+    final ODocument doc = new ODocument("Wide");
+    for (int i = 0; i < 20; i++)
+      doc.field("f" + i, "value" + i + " of " + iId);
+    for (int i = 0; i < 19; i++)
+      doc.field("n" + i, i);
+    doc.field("list", Arrays.asList(1, 2, 3));
+    return doc;
+  }
+}
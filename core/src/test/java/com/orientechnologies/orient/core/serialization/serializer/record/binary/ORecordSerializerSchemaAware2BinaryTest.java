@@ -0,0 +1,219 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization.serializer.record.binary;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.command.OCommandOutputListener;
+import com.orientechnologies.orient.core.config.OStorageConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.tool.ODatabaseRecordSerializerMigration;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+
+@Test
+public class ORecordSerializerSchemaAware2BinaryTest {
+  private ODatabaseDocumentTx db;
+
+  @BeforeMethod
+  public void setUp() {
+    db = new ODatabaseDocumentTx("memory:binaryRecordSerializerTest");
+    db.create();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    db.drop();
+  }
+
+  public void testSimpleTypes() {
+    final Date now = new Date();
+    final ODocument doc = new ODocument("Simple");
+    doc.field("string", "text with , and : and \"quotes\"");
+    doc.field("emptyString", "");
+    doc.field("integer", -12345);
+    doc.field("long", Long.MAX_VALUE);
+    doc.field("short", (short) 300);
+    doc.field("byte", (byte) -3);
+    doc.field("boolean", true);
+    doc.field("float", 3.25f);
+    doc.field("double", -1.5e300);
+    doc.field("datetime", now);
+    doc.field("decimal", new BigDecimal("-123456789012345678901234567890.123456789"));
+    doc.field("binary", new byte[] { 0, 1, 2, -1 });
+    doc.field("link", new ORecordId(5, OClusterPositionFactory.INSTANCE.valueOf(10)));
+    doc.field("null", (Object) null);
+
+    final ODocument loaded = roundTrip(doc);
+
+    Assert.assertEquals(loaded.getClassName(), "Simple");
+    Assert.assertEquals(loaded.field("string"), "text with , and : and \"quotes\"");
+    Assert.assertEquals(loaded.field("emptyString"), "");
+    Assert.assertEquals(loaded.field("integer"), Integer.valueOf(-12345));
+    Assert.assertEquals(loaded.field("long"), Long.valueOf(Long.MAX_VALUE));
+    Assert.assertEquals(loaded.field("short"), Short.valueOf((short) 300));
+    Assert.assertEquals(loaded.field("byte"), Byte.valueOf((byte) -3));
+    Assert.assertEquals(loaded.field("boolean"), Boolean.TRUE);
+    Assert.assertEquals(loaded.field("float"), Float.valueOf(3.25f));
+    Assert.assertEquals(loaded.field("double"), Double.valueOf(-1.5e300));
+    Assert.assertEquals(loaded.field("datetime"), now);
+    Assert.assertEquals(loaded.field("decimal"), new BigDecimal("-123456789012345678901234567890.123456789"));
+    Assert.assertTrue(Arrays.equals((byte[]) loaded.field("binary"), new byte[] { 0, 1, 2, -1 }));
+    Assert.assertEquals(loaded.field("link", OType.LINK), new ORecordId(5, OClusterPositionFactory.INSTANCE.valueOf(10)));
+    Assert.assertTrue(loaded.containsField("null"));
+    Assert.assertNull(loaded.field("null"));
+  }
+
+  public void testEmbeddedAndCollections() {
+    final ODocument embedded = new ODocument("Address").field("city", "Rome").field("zip", 100);
+
+    final Map<String, Object> map = new HashMap<String, Object>();
+    map.put("a", 1);
+    map.put("b", "two");
+
+    final ODocument doc = new ODocument();
+    doc.field("address", embedded, OType.EMBEDDED);
+    doc.field("numbers", Arrays.asList(1, 2, 3));
+    doc.field("names", Arrays.asList("a", "b,c"));
+    doc.field("empty", new ArrayList<Object>());
+    doc.field("map", map);
+
+    final ODocument loaded = roundTrip(doc);
+
+    final ODocument address = loaded.field("address");
+    Assert.assertEquals(address.getClassName(), "Address");
+    Assert.assertEquals(address.field("city"), "Rome");
+    Assert.assertEquals(address.field("zip"), Integer.valueOf(100));
+    Assert.assertTrue(address.hasOwners());
+
+    Assert.assertEquals(loaded.field("numbers"), Arrays.asList(1, 2, 3));
+    Assert.assertEquals(loaded.field("names"), Arrays.asList("a", "b,c"));
+    Assert.assertTrue(((List<?>) loaded.field("empty")).isEmpty());
+    Assert.assertEquals(loaded.field("map"), map);
+  }
+
+  public void testSchemaTypes() {
+    final OClass cls = db.getMetadata().getSchema().createClass("Typed");
+    cls.createProperty("date", OType.DATE);
+    cls.createProperty("amount", OType.LONG);
+    cls.createProperty("skipped", OType.TRANSIENT);
+
+    final ODocument doc = new ODocument("Typed");
+    doc.field("date", new Date());
+    doc.field("amount", 10);
+    doc.field("skipped", "not saved");
+
+    final ODocument loaded = roundTrip(doc);
+
+    final Date date = loaded.field("date");
+    Assert.assertEquals(date.getTime() % 1000, 0L);
+    Assert.assertEquals(loaded.field("amount"), Long.valueOf(10));
+    Assert.assertFalse(loaded.containsField("skipped"));
+  }
+
+  public void testPartialDeserialization() {
+    final ODocument doc = new ODocument("Partial").field("a", 1).field("b", "two").field("c", 3.0);
+    final byte[] content = ORecordSerializerSchemaAware2Binary.INSTANCE.toStream(doc, false);
+
+    final ODocument loaded = new ODocument();
+    ORecordSerializerSchemaAware2Binary.INSTANCE.fromStream(content, loaded, new String[] { "b" });
+
+    Assert.assertEquals(loaded.getClassName(), "Partial");
+    Assert.assertEquals(loaded.field("b"), "two");
+    Assert.assertFalse(loaded.containsField("a"));
+    Assert.assertFalse(loaded.containsField("c"));
+  }
+
+  public void testMixedFormats() {
+    final ODocument csv = new ODocument("Mixed").field("name", "csv").field("value", 1);
+    csv.save();
+
+    db.command(new OCommandSQL("alter database custom "
+        + OStorageConfiguration.RECORD_SERIALIZER + "=" + ORecordSerializerSchemaAware2Binary.NAME)).execute();
+
+    final ODocument binary = new ODocument("Mixed").field("name", "binary").field("value", 2).field("link", csv);
+    binary.save();
+
+    final ORID csvRid = csv.getIdentity();
+    final ORID binaryRid = binary.getIdentity();
+    db.getLevel1Cache().clear();
+    db.getLevel2Cache().clear();
+
+    Assert.assertFalse(ORecordSerializerSchemaAware2Binary.isBinary(db.getStorage()
+        .readRecord((ORecordId) csvRid, null, false, null, false).getResult().buffer));
+    Assert.assertTrue(ORecordSerializerSchemaAware2Binary.isBinary(db.getStorage()
+        .readRecord((ORecordId) binaryRid, null, false, null, false).getResult().buffer));
+
+    final ODocument loadedCsv = db.load(csvRid);
+    Assert.assertEquals(loadedCsv.field("name"), "csv");
+    final ODocument loadedBinary = db.load(binaryRid);
+    Assert.assertEquals(loadedBinary.field("name"), "binary");
+    Assert.assertEquals(((ODocument) loadedBinary.field("link")).getIdentity(), csvRid);
+
+    // THE CSV SERIALIZER READS BINARY RECORDS TOO
+    final ODocument read = new ODocument();
+    ORecordSerializerSchemaAware2CSV.INSTANCE.fromStream(loadedBinary.toStream(), read, null);
+    Assert.assertEquals(read.field("value"), Integer.valueOf(2));
+  }
+
+  public void testMigration() {
+    for (int i = 0; i < 10; i++)
+      new ODocument("Migrated").field("id", i).field("tags", Arrays.asList("t" + i)).save();
+
+    final long converted = new ODatabaseRecordSerializerMigration(db, ORecordSerializerSchemaAware2Binary.NAME,
+        new OCommandOutputListener() {
+          public void onMessage(final String iText) {
+          }
+        }).migrate();
+    Assert.assertTrue(converted >= 10);
+
+    db.getLevel1Cache().clear();
+    int i = 0;
+    for (ODocument doc : db.browseClass("Migrated")) {
+      Assert.assertTrue(ORecordSerializerSchemaAware2Binary.isBinary(db.getStorage()
+          .readRecord((ORecordId) doc.getIdentity(), null, false, null, false).getResult().buffer));
+      Assert.assertEquals(doc.field("tags"), Arrays.asList("t" + doc.field("id")));
+      i++;
+    }
+    Assert.assertEquals(i, 10);
+  }
+
+  private ODocument roundTrip(final ODocument doc) {
+    final byte[] content = ORecordSerializerSchemaAware2Binary.INSTANCE.toStream(doc, false);
+    Assert.assertTrue(ORecordSerializerSchemaAware2Binary.isBinary(content));
+
+    final ODocument loaded = new ODocument();
+    ORecordSerializerSchemaAware2Binary.INSTANCE.fromStream(content, loaded, null);
+    return loaded;
+  }
+}
@@ -0,0 +1,134 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class SQLIndexIntersectionTest {
+  private static final String CLASS_NAME = "IntersectedDocument";
+  private static final int    COUNT      = 1000;
+
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:sqlIndexIntersectionTest");
+    db.create();
+
+    final OClass cls = db.getMetadata().getSchema().createClass(CLASS_NAME);
+    cls.createProperty("a", OType.INTEGER).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+    cls.createProperty("b", OType.INTEGER).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+    cls.createProperty("c", OType.INTEGER);
+
+    for (int i = 0; i < COUNT; i++)
+      db.save(new ODocument(CLASS_NAME).field("a", i % 10).field("b", i % 7).field("c", i));
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testIntersect() {
+    final List<Collection<OIdentifiable>> results = new ArrayList<Collection<OIdentifiable>>();
+    results.add(Arrays.<OIdentifiable> asList(rid(5), rid(1), rid(3), rid(7)));
+    results.add(Arrays.<OIdentifiable> asList(rid(7), rid(3), rid(2)));
+    results.add(Arrays.<OIdentifiable> asList(rid(3), rid(7), rid(9), rid(1)));
+
+    Assert.assertEquals(OIndexResultSets.intersect(results), Arrays.asList(rid(3), rid(7)));
+  }
+
+  public void testUnion() {
+    final List<Collection<OIdentifiable>> results = new ArrayList<Collection<OIdentifiable>>();
+    results.add(Arrays.<OIdentifiable> asList(rid(5), rid(1), rid(3)));
+    results.add(Arrays.<OIdentifiable> asList(rid(3), rid(2), rid(5)));
+
+    Assert.assertEquals(OIndexResultSets.union(results), Arrays.asList(rid(1), rid(2), rid(3), rid(5)));
+  }
+
+  public void testAndOnSeparateIndexes() {
+    final String query = "select from " + CLASS_NAME + " where a = 3 and b = 4";
+
+    final ODocument report = db.command(new OCommandSQL("explain " + query)).execute();
+    Assert.assertEquals(report.<Collection<?>> field("involvedIndexes").size(), 2);
+    Assert.assertEquals(((Number) report.field("indexIntersections")).intValue(), 1);
+    Assert.assertEquals(((Number) report.field("actualRecords")).intValue(), expected(3, 4, false));
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query));
+    Assert.assertEquals(result.size(), expected(3, 4, false));
+    for (ODocument document : result) {
+      Assert.assertEquals(document.<Object> field("a"), 3);
+      Assert.assertEquals(document.<Object> field("b"), 4);
+    }
+  }
+
+  public void testAndWithLimitUsesOneIndex() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from " + CLASS_NAME
+        + " where a = 3 and b = 4 limit 5"));
+    Assert.assertEquals(result.size(), 5);
+  }
+
+  public void testOrOnSeparateIndexes() {
+    final String query = "select from " + CLASS_NAME + " where a = 3 or b = 4";
+
+    final ODocument report = db.command(new OCommandSQL("explain " + query)).execute();
+    Assert.assertEquals(report.<Collection<?>> field("involvedIndexes").size(), 2);
+    Assert.assertEquals(((Number) report.field("indexUnions")).intValue(), 1);
+    Assert.assertNull(report.field("recordReads"));
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query));
+    Assert.assertEquals(result.size(), expected(3, 4, true));
+  }
+
+  public void testOrOfAnds() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from " + CLASS_NAME
+        + " where (a = 1 and b = 1) or (a = 2 and c > 500)"));
+
+    int expected = 0;
+    for (int i = 0; i < COUNT; i++)
+      if (i % 10 == 1 && i % 7 == 1 || i % 10 == 2 && i > 500)
+        expected++;
+    Assert.assertEquals(result.size(), expected);
+  }
+
+  public void testOrWithNotIndexedFieldScansTheClass() {
+    final String query = "select from " + CLASS_NAME + " where a = 3 or c = 4";
+
+    final ODocument report = db.command(new OCommandSQL("explain " + query)).execute();
+    Assert.assertNull(report.field("involvedIndexes"));
+    Assert.assertEquals(((Number) report.field("recordReads")).intValue(), COUNT);
+
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>(query)).size(), COUNT / 10 + 1);
+  }
+
+  private static int expected(final int iA, final int iB, final boolean iOr) {
+    int result = 0;
+    for (int i = 0; i < COUNT; i++) {
+      final boolean matchA = i % 10 == iA;
+      final boolean matchB = i % 7 == iB;
+      if (iOr ? matchA || matchB : matchA && matchB)
+        result++;
+    }
+    return result;
+  }
+
+  private static ORecordId rid(final long iPosition) {
+    return new ORecordId(1, OClusterPositionFactory.INSTANCE.valueOf(iPosition));
+  }
+}
@@ -0,0 +1,134 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.collection.OCompositeKey;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.index.OIndexStatistics;
+import com.orientechnologies.orient.core.index.OIndexStatisticsManager;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class SQLIndexStatisticsTest {
+  private static final String CLASS_NAME = "AnalyzedDocument";
+  private static final int    COUNT      = 1000;
+
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:sqlIndexStatisticsTest");
+    db.create();
+
+    final OClass cls = db.getMetadata().getSchema().createClass(CLASS_NAME);
+    cls.createProperty("value", OType.INTEGER).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+    cls.createProperty("even", OType.BOOLEAN).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+    cls.createProperty("group", OType.INTEGER);
+    cls.createProperty("counter", OType.INTEGER);
+    cls.createIndex("AnalyzedDocument.group_counter", OClass.INDEX_TYPE.UNIQUE, "group", "counter");
+
+    for (int i = 0; i < COUNT; i++)
+      db.save(new ODocument(CLASS_NAME).field("value", i % 100).field("even", i % 2 == 0).field("group", i % 10)
+          .field("counter", i));
+
+    db.command(new OCommandSQL("analyze index *")).execute();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testAnalyzeIndex() {
+    final ODocument result = db.command(new OCommandSQL("analyze index AnalyzedDocument.value")).execute();
+
+    Assert.assertEquals(((Number) result.field("entries")).longValue(), COUNT);
+    Assert.assertEquals(((Number) result.field("keys")).longValue(), 100);
+    Assert.assertTrue(((Number) result.field("buckets")).intValue() > 1);
+  }
+
+  public void testAnalyzeAllIndexes() {
+    final List<ODocument> result = db.command(new OCommandSQL("analyze index *")).execute();
+
+    Assert.assertEquals(result.size(), db.getMetadata().getIndexManager().getIndexes().size());
+  }
+
+  public void testEstimations() {
+    final OIndexStatistics statistics = OIndexStatisticsManager.getStatistics(db.getStorage(), "AnalyzedDocument.value");
+
+    Assert.assertEquals(statistics.estimateEquals(42), 10);
+    assertBetween(statistics.estimateRange(null, false, 10, false), 50, 200);
+    assertBetween(statistics.estimateRange(20, true, 79, true), 500, 700);
+    Assert.assertEquals(statistics.estimateRange(null, false, null, false), COUNT);
+  }
+
+  public void testCompositeEstimations() {
+    final OIndexStatistics statistics = OIndexStatisticsManager.getStatistics(db.getStorage(), "AnalyzedDocument.group_counter");
+
+    Assert.assertEquals(statistics.getKeys(), COUNT);
+    Assert.assertEquals(statistics.estimateEquals(new OCompositeKey(3)), 100);
+    Assert.assertEquals(statistics.estimateEquals(new OCompositeKey(3, 503)), 1);
+  }
+
+  public void testMostSelectiveIndexIsUsed() {
+    final ODocument report = db.command(new OCommandSQL("explain select from " + CLASS_NAME + " where even = true and value = 42"))
+        .execute();
+
+    final Collection<?> involvedIndexes = report.field("involvedIndexes");
+    Assert.assertEquals(involvedIndexes.size(), 1);
+    Assert.assertTrue(involvedIndexes.contains("AnalyzedDocument.value"));
+    Assert.assertEquals(((Number) report.field("estimatedRecords")).longValue(), 10);
+    Assert.assertEquals(((Number) report.field("actualRecords")).longValue(), 10);
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from " + CLASS_NAME
+        + " where even = true and value = 42"));
+    Assert.assertEquals(result.size(), 10);
+  }
+
+  public void testFullScanWhenIndexIsNotSelective() {
+    final ODocument report = db.command(new OCommandSQL("explain select from " + CLASS_NAME + " where even = true")).execute();
+
+    Assert.assertNull(report.field("involvedIndexes"));
+    Assert.assertEquals(((Number) report.field("estimatedRecords")).longValue(), COUNT);
+    Assert.assertEquals(((Number) report.field("actualRecords")).longValue(), COUNT);
+
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>("select from " + CLASS_NAME + " where even = true")).size(),
+        COUNT / 2);
+  }
+
+  public void testCountUsesIndexAnyway() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select count(*) from " + CLASS_NAME
+        + " where even = true"));
+    Assert.assertEquals(((Number) result.get(0).field("count")).intValue(), COUNT / 2);
+  }
+
+  public void testRangeEstimation() {
+    final ODocument report = db.command(new OCommandSQL("explain select from " + CLASS_NAME + " where value < 10")).execute();
+
+    Assert.assertTrue(report.<Collection<?>> field("involvedIndexes").contains("AnalyzedDocument.value"));
+    assertBetween(((Number) report.field("estimatedRecords")).longValue(), 50, 200);
+    Assert.assertEquals(((Number) report.field("actualRecords")).longValue(), 100);
+  }
+
+  public void testStatisticsRemovedWithIndex() {
+    db.command(new OCommandSQL("create index AnalyzedDocument.counter on AnalyzedDocument (counter) unique")).execute();
+    db.command(new OCommandSQL("analyze index AnalyzedDocument.counter")).execute();
+    Assert.assertNotNull(OIndexStatisticsManager.getStatistics(db.getStorage(), "AnalyzedDocument.counter"));
+
+    db.getMetadata().getIndexManager().dropIndex("AnalyzedDocument.counter");
+    Assert.assertNull(OIndexStatisticsManager.getStatistics(db.getStorage(), "AnalyzedDocument.counter"));
+  }
+
+  private static void assertBetween(final long iValue, final long iMin, final long iMax) {
+    Assert.assertTrue(iValue >= iMin && iValue <= iMax, iValue + " not between " + iMin + " and " + iMax);
+  }
+}
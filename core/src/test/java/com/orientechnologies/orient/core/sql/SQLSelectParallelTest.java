@@ -0,0 +1,182 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+@Test
+public class SQLSelectParallelTest {
+  private static final String CLASS_NAME    = "ParallelDocument";
+  private static final String SUBCLASS_NAME = "ParallelSubDocument";
+  private static final int    COUNT         = 30000;
+
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:sqlSelectParallelTest");
+    db.create();
+
+    final OClass cls = db.getMetadata().getSchema().createClass(CLASS_NAME);
+    cls.addClusterId(db.addCluster("parallel2", OStorage.CLUSTER_TYPE.MEMORY));
+    cls.addClusterId(db.addCluster("parallel3", OStorage.CLUSTER_TYPE.MEMORY));
+    db.getMetadata().getSchema().createClass(SUBCLASS_NAME, cls);
+
+    final Random random = new Random(42);
+    final int[] clusterIds = cls.getClusterIds();
+    for (int i = 0; i < COUNT; i++) {
+      final ODocument document = new ODocument(i % 10 == 0 ? SUBCLASS_NAME : CLASS_NAME);
+      document.field("value", random.nextInt(1000));
+      document.field("category", "category" + random.nextInt(20));
+      document.field("counter", i);
+
+      if (i % 10 == 0)
+        db.save(document);
+      else
+        db.save(document, db.getClusterNameById(clusterIds[i % clusterIds.length]));
+    }
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testFilter() {
+    final String query = "select from " + CLASS_NAME + " where value < 100 and category <> 'category3'";
+    final List<ODocument> expected = db.query(new OSQLSynchQuery<ODocument>(query));
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query + " parallel"));
+
+    Assert.assertTrue(expected.size() > 0);
+    Assert.assertEquals(getIdentities(result), getIdentities(expected));
+
+    for (ODocument document : result)
+      Assert.assertTrue((Integer) document.field("value") < 100);
+  }
+
+  public void testClusterTarget() {
+    final String query = "select from cluster:parallel2 where value between 10 and 500";
+    final List<ODocument> expected = db.query(new OSQLSynchQuery<ODocument>(query));
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query + " parallel"));
+
+    Assert.assertTrue(expected.size() > 0);
+    Assert.assertEquals(getIdentities(result), getIdentities(expected));
+  }
+
+  public void testSubclassTarget() {
+    final String query = "select from " + SUBCLASS_NAME + " where value >= 500";
+    final List<ODocument> expected = db.query(new OSQLSynchQuery<ODocument>(query));
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query + " parallel"));
+
+    Assert.assertTrue(expected.size() > 0);
+    Assert.assertEquals(getIdentities(result), getIdentities(expected));
+  }
+
+  public void testParameters() {
+    final String query = "select from " + CLASS_NAME + " where value = ? or category = ?";
+    final List<ODocument> expected = db.command(new OSQLSynchQuery<ODocument>(query)).execute(7, "category11");
+    final List<ODocument> result = db.command(new OSQLSynchQuery<ODocument>(query + " parallel")).execute(7, "category11");
+
+    Assert.assertTrue(expected.size() > 0);
+    Assert.assertEquals(getIdentities(result), getIdentities(expected));
+  }
+
+  public void testAggregates() {
+    final String query = "select count(*) as total, sum(value) as amount, min(counter) as first, max(counter) as last from "
+        + CLASS_NAME + " where value > 300";
+    final ODocument expected = (ODocument) db.query(new OSQLSynchQuery<ODocument>(query)).get(0);
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query + " parallel"));
+
+    Assert.assertEquals(result.size(), 1);
+    Assert.assertEquals(result.get(0).<Object> field("total"), expected.<Object> field("total"));
+    Assert.assertEquals(result.get(0).<Object> field("amount"), expected.<Object> field("amount"));
+    Assert.assertEquals(result.get(0).<Object> field("first"), expected.<Object> field("first"));
+    Assert.assertEquals(result.get(0).<Object> field("last"), expected.<Object> field("last"));
+  }
+
+  public void testAggregatesWithoutRecords() {
+    final String query = "select count(*) as total, max(counter) as last from " + CLASS_NAME + " where value > 5000";
+    final List<ODocument> expected = db.query(new OSQLSynchQuery<ODocument>(query));
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query + " parallel"));
+
+    Assert.assertEquals(result.size(), expected.size());
+    Assert.assertEquals(result.get(0).<Object> field("total"), expected.get(0).<Object> field("total"));
+    Assert.assertNull(result.get(0).field("last"));
+  }
+
+  public void testGroupBy() {
+    final String query = "select category, count(*) as total, avg(value) as average from " + CLASS_NAME
+        + " where value < 700 group by category order by category";
+    final List<ODocument> expected = db.query(new OSQLSynchQuery<ODocument>(query));
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query + " parallel"));
+
+    Assert.assertEquals(result.size(), expected.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Assert.assertEquals(result.get(i).<Object> field("category"), expected.get(i).<Object> field("category"));
+      Assert.assertEquals(result.get(i).<Object> field("total"), expected.get(i).<Object> field("total"));
+      Assert.assertEquals(result.get(i).<Object> field("average"), expected.get(i).<Object> field("average"));
+    }
+  }
+
+  public void testOrderBy() {
+    final String query = "select counter, value from " + CLASS_NAME + " where value < 200 order by value desc, counter";
+    final List<ODocument> expected = db.query(new OSQLSynchQuery<ODocument>(query));
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query + " parallel"));
+
+    Assert.assertEquals(result.size(), expected.size());
+    for (int i = 0; i < expected.size(); i++)
+      Assert.assertEquals(result.get(i).<Object> field("counter"), expected.get(i).<Object> field("counter"));
+  }
+
+  public void testLimit() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from " + CLASS_NAME
+        + " where value < 500 limit 20 parallel"));
+
+    Assert.assertEquals(result.size(), 20);
+    for (ODocument document : result)
+      Assert.assertTrue((Integer) document.field("value") < 500);
+  }
+
+  public void testUnsupportedFilter() {
+    final String query = "select from " + CLASS_NAME + " where value.asString() = '10'";
+    final List<ODocument> expected = db.query(new OSQLSynchQuery<ODocument>(query));
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query + " parallel"));
+
+    Assert.assertTrue(expected.size() > 0);
+    Assert.assertEquals(getIdentities(result), getIdentities(expected));
+  }
+
+  public void testExplain() {
+    final ODocument report = db.command(new OCommandSQL("explain select from " + CLASS_NAME + " where value < 10 parallel")).execute();
+
+    Assert.assertTrue(((Long) report.field("parallelScanRanges")) >= 3);
+    Assert.assertEquals(report.<Object> field("documentReads"), Long.valueOf(COUNT));
+  }
+
+  private static List<ORID> getIdentities(List<ODocument> documents) {
+    final List<ORID> identities = new ArrayList<ORID>(documents.size());
+    for (ODocument document : documents)
+      identities.add(document.getIdentity());
+
+    final Set<ORID> unique = new HashSet<ORID>(identities);
+    Assert.assertEquals(unique.size(), identities.size());
+
+    Collections.sort(identities);
+    return identities;
+  }
+}
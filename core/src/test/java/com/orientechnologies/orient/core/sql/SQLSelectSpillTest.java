@@ -0,0 +1,189 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.command.OCommandResultListener;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLAsynchQuery;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class SQLSelectSpillTest {
+  private static final String CLASS_NAME = "SpillDocument";
+  private static final int    COUNT      = 5000;
+  private static final int    CATEGORIES = 700;
+
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:sqlSelectSpillTest");
+    db.create();
+    db.getMetadata().getSchema().createClass(CLASS_NAME);
+
+    final Random random = new Random(42);
+    for (int i = 0; i < COUNT; i++) {
+      final ODocument document = new ODocument(CLASS_NAME);
+      document.field("value", random.nextInt(COUNT / 3));
+      document.field("category", "category" + random.nextInt(CATEGORIES));
+      document.field("counter", i);
+      db.save(document);
+    }
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    OGlobalConfiguration.QUERY_SORT_SPILL_THRESHOLD.setValue(-1);
+    OGlobalConfiguration.QUERY_GROUP_SPILL_THRESHOLD.setValue(-1);
+    OGlobalConfiguration.QUERY_SPILL_PATH.setValue(null);
+  }
+
+  public void testSpilledSort() {
+    final String query = "select from " + CLASS_NAME + " order by value desc, category";
+    final List<ODocument> expected = db.query(new OSQLSynchQuery<ODocument>(query));
+
+    OGlobalConfiguration.QUERY_SORT_SPILL_THRESHOLD.setValue(100);
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query));
+
+    assertSameRecords(result, expected);
+  }
+
+  public void testSpilledSortManyRuns() {
+    final String query = "select value, counter from " + CLASS_NAME + " order by value asc skip 10";
+    final List<ODocument> expected = db.query(new OSQLSynchQuery<ODocument>(query));
+    Assert.assertEquals(expected.size(), COUNT - 10);
+
+    // MORE RUNS THAN THE ONES MERGED AT ONCE
+    OGlobalConfiguration.QUERY_SORT_SPILL_THRESHOLD.setValue(COUNT / (OSQLExternalSort.MAX_MERGED_RUNS * 2));
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query));
+
+    Assert.assertEquals(result.size(), expected.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Assert.assertEquals(result.get(i).<Object> field("value"), expected.get(i).<Object> field("value"));
+      Assert.assertEquals(result.get(i).<Object> field("counter"), expected.get(i).<Object> field("counter"));
+    }
+  }
+
+  public void testSpillFilesAreRemoved() {
+    final File spillPath = createSpillPath();
+
+    OGlobalConfiguration.QUERY_SORT_SPILL_THRESHOLD.setValue(100);
+    OGlobalConfiguration.QUERY_GROUP_SPILL_THRESHOLD.setValue(50);
+    db.query(new OSQLSynchQuery<ODocument>("select from " + CLASS_NAME + " order by value"));
+    db.query(new OSQLSynchQuery<ODocument>("select category, count(*) from " + CLASS_NAME + " group by category"));
+
+    Assert.assertEquals(spillPath.list().length, 0);
+  }
+
+  public void testSpillFilesAreRemovedOnError() {
+    final File spillPath = createSpillPath();
+
+    // THE RESULT FAILS WHILE THE SORTED RUNS ARE STILL TO READ
+    OGlobalConfiguration.QUERY_SORT_SPILL_THRESHOLD.setValue(100);
+    try {
+      db.query(new OSQLAsynchQuery<ODocument>("select from " + CLASS_NAME + " order by value", new OCommandResultListener() {
+        public boolean result(final Object iRecord) {
+          throw new IllegalStateException("Result refused");
+        }
+
+        public void end() {
+        }
+      }));
+      Assert.fail();
+    } catch (OCommandExecutionException e) {
+    }
+
+    Assert.assertEquals(spillPath.list().length, 0);
+  }
+
+  public void testSpilledGroupBy() {
+    final String query = "select category, count(*) as total, sum(value) as amount from " + CLASS_NAME + " group by category";
+    final List<ODocument> expectedGroups = db.query(new OSQLSynchQuery<ODocument>(query));
+    final Map<Object, ODocument> expected = groupsByCategory(expectedGroups);
+    Assert.assertEquals(expected.size(), CATEGORIES);
+
+    OGlobalConfiguration.QUERY_GROUP_SPILL_THRESHOLD.setValue(50);
+    final List<ODocument> resultGroups = db.query(new OSQLSynchQuery<ODocument>(query));
+    final Map<Object, ODocument> result = groupsByCategory(resultGroups);
+
+    Assert.assertEquals(result.size(), expected.size());
+    for (Map.Entry<Object, ODocument> entry : expected.entrySet()) {
+      final ODocument group = result.get(entry.getKey());
+      Assert.assertNotNull(group, "Group " + entry.getKey() + " is absent");
+      Assert.assertEquals(group.<Object> field("total"), entry.getValue().<Object> field("total"));
+      Assert.assertEquals(group.<Object> field("amount"), entry.getValue().<Object> field("amount"));
+    }
+  }
+
+  public void testSpilledGroupByOrdered() {
+    final String query = "select category, count(*) as total from " + CLASS_NAME + " group by category order by category";
+    final List<ODocument> expected = db.query(new OSQLSynchQuery<ODocument>(query));
+
+    OGlobalConfiguration.QUERY_GROUP_SPILL_THRESHOLD.setValue(50);
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query));
+
+    Assert.assertEquals(result.size(), expected.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Assert.assertEquals(result.get(i).<Object> field("category"), expected.get(i).<Object> field("category"));
+      Assert.assertEquals(result.get(i).<Object> field("total"), expected.get(i).<Object> field("total"));
+    }
+  }
+
+  public void testExplainReportsSpill() {
+    OGlobalConfiguration.QUERY_SORT_SPILL_THRESHOLD.setValue(1000);
+    ODocument report = db.command(new OCommandSQL("explain select from " + CLASS_NAME + " order by value")).execute();
+
+    Assert.assertEquals(report.<Object> field("sortSpilledRecords"), Long.valueOf(COUNT / 1000 * 1000));
+    Assert.assertEquals(report.<Object> field("sortSpillFiles"), Long.valueOf(COUNT / 1000));
+
+    OGlobalConfiguration.QUERY_GROUP_SPILL_THRESHOLD.setValue(50);
+    report = db.command(new OCommandSQL("explain select category, count(*) from " + CLASS_NAME + " group by category")).execute();
+
+    Assert.assertTrue(((Long) report.field("groupSpilledRecords")) > 0);
+    Assert.assertTrue(((Long) report.field("groupSpillFiles")) > 0);
+  }
+
+  private static Map<Object, ODocument> groupsByCategory(List<ODocument> groups) {
+    final Map<Object, ODocument> result = new HashMap<Object, ODocument>();
+    for (ODocument group : groups)
+      result.put(group.field("category"), group);
+
+    return result;
+  }
+
+  private static File createSpillPath() {
+    final File spillPath = new File(System.getProperty("java.io.tmpdir"), "sqlSelectSpillTest-" + System.nanoTime());
+    Assert.assertTrue(spillPath.mkdirs());
+    spillPath.deleteOnExit();
+
+    OGlobalConfiguration.QUERY_SPILL_PATH.setValue(spillPath.getPath());
+    return spillPath;
+  }
+
+  private static void assertSameRecords(List<ODocument> result, List<ODocument> expected) {
+    Assert.assertEquals(result.size(), expected.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Assert.assertEquals(result.get(i).getIdentity(), expected.get(i).getIdentity());
+      Assert.assertEquals(result.get(i).<Object> field("value"), expected.get(i).<Object> field("value"));
+      Assert.assertEquals(result.get(i).<Object> field("category"), expected.get(i).<Object> field("category"));
+    }
+  }
+}
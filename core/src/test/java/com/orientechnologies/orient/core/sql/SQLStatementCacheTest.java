@@ -0,0 +1,174 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class SQLStatementCacheTest {
+  private static final String CLASS_NAME = "CachedDocument";
+  private static final int    COUNT      = 1000;
+
+  private ODatabaseDocumentTx db;
+  private OSQLStatementCache  cache;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:sqlStatementCacheTest");
+    db.create();
+
+    final OClass cls = db.getMetadata().getSchema().createClass(CLASS_NAME);
+    cls.createProperty("value", OType.INTEGER).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+    cls.createProperty("category", OType.STRING);
+    cls.createProperty("counter", OType.INTEGER);
+
+    for (int i = 0; i < COUNT; i++)
+      db.save(new ODocument(CLASS_NAME).field("value", i % 100).field("category", "category" + i % 7).field("counter", i));
+
+    cache = OSQLStatementCache.get(db.getStorage());
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  @BeforeMethod
+  public void beforeMethod() {
+    cache.clear();
+  }
+
+  public void testParametersAreBoundAtEveryExecution() {
+    final String query = "select from " + CLASS_NAME + " where value = ? and counter < ?";
+    final long hits = cache.getHits();
+
+    for (int i = 0; i < 10; i++) {
+      final List<ODocument> result = db.command(new OSQLSynchQuery<ODocument>(query)).execute(i, 500);
+
+      Assert.assertEquals(result.size(), 5);
+      for (ODocument document : result) {
+        Assert.assertEquals(document.<Object> field("value"), i);
+        Assert.assertTrue((Integer) document.field("counter") < 500);
+      }
+    }
+
+    Assert.assertEquals(cache.getHits() - hits, 9);
+    Assert.assertEquals(cache.size(), 1);
+  }
+
+  public void testNamedParameters() {
+    final String query = "select from " + CLASS_NAME + " where counter < :max";
+
+    for (int i = 1; i < 5; i++) {
+      final List<ODocument> result = db.command(new OSQLSynchQuery<ODocument>(query)).execute(
+          Collections.singletonMap("max", i * 10));
+      Assert.assertEquals(result.size(), i * 10);
+    }
+  }
+
+  public void testIndexCountExecutedAgain() {
+    final String query = "select count(*) as total from " + CLASS_NAME + " where value = 42";
+
+    for (int i = 0; i < 3; i++) {
+      final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query));
+      Assert.assertEquals(result.size(), 1);
+      Assert.assertEquals(((Number) result.get(0).field("total")).intValue(), 10);
+    }
+  }
+
+  public void testAggregatesExecutedAgain() {
+    final String query = "select count(*) as total, sum(counter) as amount from " + CLASS_NAME + " where category = ?";
+    final List<ODocument> first = db.command(new OSQLSynchQuery<ODocument>(query)).execute("category3");
+    final ODocument expected = first.get(0);
+
+    for (int i = 0; i < 3; i++) {
+      final List<ODocument> result = db.command(new OSQLSynchQuery<ODocument>(query)).execute("category3");
+      Assert.assertEquals(result.size(), 1);
+      Assert.assertEquals(result.get(0).<Object> field("total"), expected.<Object> field("total"));
+      Assert.assertEquals(result.get(0).<Object> field("amount"), expected.<Object> field("amount"));
+    }
+  }
+
+  public void testGroupByExecutedAgain() {
+    final String query = "select category, count(*) as total from " + CLASS_NAME + " group by category order by category";
+
+    for (int i = 0; i < 3; i++) {
+      final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query));
+      Assert.assertEquals(result.size(), 7);
+      Assert.assertEquals(result.get(0).<Object> field("category"), "category0");
+    }
+  }
+
+  public void testDistinctExecutedAgain() {
+    final String query = "select distinct(category) from " + CLASS_NAME;
+
+    for (int i = 0; i < 3; i++)
+      Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>(query)).size(), 7);
+  }
+
+  public void testOrderBySkipLimitExecutedAgain() {
+    final String query = "select from " + CLASS_NAME + " where value < 50 order by counter desc skip 5 limit 10";
+
+    for (int i = 0; i < 3; i++) {
+      final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query));
+      Assert.assertEquals(result.size(), 10);
+      Assert.assertEquals(result.get(0).<Object> field("counter"), 944);
+    }
+  }
+
+  public void testSubqueriesAreNotCached() {
+    final String query = "select from (select from " + CLASS_NAME + " where value = 1)";
+
+    db.query(new OSQLSynchQuery<ODocument>(query));
+    Assert.assertEquals(cache.size(), 0);
+
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>(query)).size(), 10);
+    Assert.assertEquals(cache.size(), 0);
+  }
+
+  public void testInvalidationOnSchemaChange() {
+    final String query = "select from " + CLASS_NAME + " where counter = 5";
+    db.query(new OSQLSynchQuery<ODocument>(query));
+    Assert.assertEquals(cache.size(), 1);
+
+    db.getMetadata().getSchema().createClass("CachedDocumentOther");
+    Assert.assertEquals(cache.size(), 0);
+
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>(query)).size(), 1);
+  }
+
+  public void testInvalidationOnIndexChange() {
+    final String query = "select from " + CLASS_NAME + " where counter = 5";
+    db.query(new OSQLSynchQuery<ODocument>(query));
+    Assert.assertEquals(cache.size(), 1);
+
+    db.command(new OCommandSQL("create index CachedDocument.counter unique")).execute();
+    Assert.assertEquals(cache.size(), 0);
+
+    try {
+      final ODocument report = db.command(new OCommandSQL("explain " + query)).execute();
+      Assert.assertTrue(report.<Object> field("involvedIndexes").toString().contains("CachedDocument.counter"));
+
+      db.query(new OSQLSynchQuery<ODocument>(query));
+      final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query));
+      Assert.assertEquals(result.size(), 1);
+      Assert.assertEquals(result.get(0).<Object> field("counter"), 5);
+    } finally {
+      db.getMetadata().getIndexManager().dropIndex("CachedDocument.counter");
+    }
+
+    Assert.assertEquals(cache.size(), 0);
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>(query)).size(), 1);
+  }
+}
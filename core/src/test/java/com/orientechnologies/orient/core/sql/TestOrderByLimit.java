@@ -0,0 +1,84 @@
+package com.orientechnologies.orient.core.sql;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+public class TestOrderByLimit {
+  private static final String DOCUMENT_CLASS_NAME = "OrderByLimitDocument";
+  private static final int    COUNT               = 5000;
+
+  private ODatabaseDocument   db;
+  private List<Integer>       values;
+
+  @BeforeClass
+  public void init() throws Exception {
+    db = new ODatabaseDocumentTx("memory:testOrderByLimit");
+    db.create();
+    db.getMetadata().getSchema().createClass(DOCUMENT_CLASS_NAME);
+
+    values = new ArrayList<Integer>();
+    final Random random = new Random(42);
+    for (int i = 0; i < COUNT; i++) {
+      final int value = random.nextInt(COUNT / 4);
+      values.add(value);
+
+      final ODocument doc = new ODocument(DOCUMENT_CLASS_NAME);
+      doc.field("value", value);
+      doc.field("counter", i);
+      db.save(doc);
+    }
+
+    Collections.sort(values);
+  }
+
+  @AfterClass
+  public void drop() {
+    if (db != null)
+      db.drop();
+  }
+
+  @Test
+  public void testLimit() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from " + DOCUMENT_CLASS_NAME
+        + " order by value limit 20"));
+
+    assertEquals(20, result.size());
+    for (int i = 0; i < result.size(); i++)
+      assertEquals(values.get(i), result.get(i).field("value"));
+  }
+
+  @Test
+  public void testLimitAndSkipDesc() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select value from " + DOCUMENT_CLASS_NAME
+        + " order by value desc skip 100 limit 30"));
+
+    assertEquals(30, result.size());
+    for (int i = 0; i < result.size(); i++)
+      assertEquals(values.get(COUNT - 101 - i), result.get(i).field("value"));
+  }
+
+  @Test
+  public void testEqualValuesKeepScanOrder() {
+    final List<ODocument> limited = db.query(new OSQLSynchQuery<ODocument>("select from " + DOCUMENT_CLASS_NAME
+        + " order by value limit 200"));
+    final List<ODocument> all = db.query(new OSQLSynchQuery<ODocument>("select from " + DOCUMENT_CLASS_NAME + " order by value"));
+
+    assertEquals(COUNT, all.size());
+    assertEquals(200, limited.size());
+    for (int i = 0; i < limited.size(); i++)
+      assertEquals(all.get(i).getIdentity(), limited.get(i).getIdentity());
+  }
+}
@@ -0,0 +1,34 @@
+package com.orientechnologies.orient.core.sql.filter;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+@Test
+public class OSQLFilterItemFieldTest {
+
+  public void testEvaluationDoesNotChangeFieldNames() {
+    final OSQLFilterItemField item = new OSQLFilterItemField(null, "tags[1]");
+    item.setPreLoadedFields(new HashSet<String>(Arrays.asList("tags[1]", "name")));
+
+    final String[] nameArray = item.nameArray.clone();
+    final String[] preLoadedFieldsArray = item.preLoadedFieldsArray.clone();
+
+    for (int i = 0; i < 3; ++i) {
+      // NOT UNMARSHALLED YET: THE DOCUMENT READS THE FIELDS BY THE NAMES OF THE ITEM
+      final ODocument doc = new ODocument().fromStream(new ODocument().field("name", "Luca")
+          .field("tags", Arrays.asList("a", "b")).toStream());
+
+      Assert.assertEquals(item.getValue(doc, null), "b");
+      Assert.assertEquals(item.nameArray, nameArray);
+      Assert.assertEquals(item.preLoadedFieldsArray, preLoadedFieldsArray);
+    }
+
+    Assert.assertEquals(nameArray, new String[] { "tags" });
+    Assert.assertTrue(Arrays.asList(preLoadedFieldsArray).contains("tags"));
+  }
+}
@@ -0,0 +1,86 @@
+package com.orientechnologies.orient.core.storage.impl.local.paginated;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.ORecordListener;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+@Test
+public class LocalPaginatedStorageCommitSerializationTest {
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    db = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/localPaginatedStorageCommitSerializationTest");
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+
+    db.create();
+    db.getMetadata().getSchema().createClass("Person");
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testChangeAfterSerializationIsNotLost() {
+    final ODocument doc = new ODocument("Person").field("name", "Luca");
+    final AtomicInteger marshalls = countMarshalls(doc);
+
+    final String before = new String(doc.toStream());
+    Assert.assertTrue(before.contains("Luca"));
+    Assert.assertEquals(marshalls.get(), 1);
+
+    // THE RECORD IS ALREADY DIRTY
+    doc.field("name", "Jay");
+
+    final String after = new String(doc.toStream());
+    Assert.assertTrue(after.contains("Jay"));
+    Assert.assertFalse(after.contains("Luca"));
+    Assert.assertEquals(marshalls.get(), 2);
+
+    // NOTHING CHANGED: THE SERIALIZED CONTENT IS REUSED
+    doc.toStream();
+    Assert.assertEquals(marshalls.get(), 2);
+  }
+
+  public void testCommitSerializesRecordOnce() {
+    final ODocument doc = new ODocument("Person").field("name", "Luca");
+    final AtomicInteger marshalls = countMarshalls(doc);
+
+    db.begin();
+    doc.save();
+    db.commit();
+
+    Assert.assertEquals(marshalls.get(), 1);
+
+    db.getLevel1Cache().clear();
+    final ODocument loaded = db.load(doc.getIdentity());
+    Assert.assertEquals(loaded.field("name"), "Luca");
+  }
+
+  private AtomicInteger countMarshalls(final ODocument iDocument) {
+    final AtomicInteger marshalls = new AtomicInteger();
+    iDocument.addListener(new ORecordListener() {
+      public void onEvent(final ORecord<?> iRecord, final EVENT iEvent) {
+        if (iEvent == EVENT.MARSHALL)
+          marshalls.incrementAndGet();
+      }
+    });
+    return marshalls;
+  }
+}
@@ -0,0 +1,174 @@
+package com.orientechnologies.orient.core.storage.impl.local.paginated;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.version.OVersionFactory;
+
+/**
+ * Writers of different clusters and of the same cluster run concurrently with readers of the records being written. Every record
+ * is filled with a single byte value, so a record read while its pages are changed would be detected.
+ */
+@Test
+public class LocalPaginatedStorageConcurrentCRUDTest {
+  private static final int    WRITERS        = 4;
+  private static final int    READERS        = 2;
+  private static final int    RECORDS        = 300;
+  private static final int    MAX_SIZE       = 100000;
+
+  private ODatabaseDocumentTx db;
+  private OStorage            storage;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    db = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/localPaginatedStorageConcurrentCRUDTest");
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+
+    db.create();
+    storage = db.getStorage();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testConcurrentCRUD() throws Exception {
+    final int sharedClusterId = db.addCluster("shared", OStorage.CLUSTER_TYPE.PHYSICAL);
+    final AtomicReferenceArray<ORecordId> sharedRids = new AtomicReferenceArray<ORecordId>(WRITERS * RECORDS);
+    final AtomicBoolean writing = new AtomicBoolean(true);
+    final CountDownLatch start = new CountDownLatch(1);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(2 * WRITERS + READERS);
+    final List<Future<Void>> writers = new ArrayList<Future<Void>>();
+    final List<Future<Void>> readers = new ArrayList<Future<Void>>();
+    try {
+      for (int w = 0; w < WRITERS; w++) {
+        final int writer = w;
+        final int ownClusterId = db.addCluster("writer" + w, OStorage.CLUSTER_TYPE.PHYSICAL);
+
+        writers.add(executor.submit(new Callable<Void>() {
+          public Void call() throws Exception {
+            start.await();
+            writeRecords(ownClusterId, writer, null);
+            return null;
+          }
+        }));
+
+        writers.add(executor.submit(new Callable<Void>() {
+          public Void call() throws Exception {
+            start.await();
+            writeRecords(sharedClusterId, writer, sharedRids);
+            return null;
+          }
+        }));
+      }
+
+      for (int r = 0; r < READERS; r++) {
+        final Random random = new Random(r);
+        readers.add(executor.submit(new Callable<Void>() {
+          public Void call() throws Exception {
+            start.await();
+            while (writing.get()) {
+              final ORecordId rid = sharedRids.get(random.nextInt(sharedRids.length()));
+              if (rid != null)
+                checkRecord(rid);
+            }
+            return null;
+          }
+        }));
+      }
+
+      start.countDown();
+      for (Future<Void> future : writers)
+        future.get();
+
+      writing.set(false);
+      for (Future<Void> future : readers)
+        future.get();
+    } finally {
+      executor.shutdown();
+    }
+
+    Assert.assertEquals(storage.count(sharedClusterId), WRITERS * RECORDS / 2);
+    for (int i = 0; i < sharedRids.length(); i++) {
+      final ORecordId rid = sharedRids.get(i);
+      if (rid != null)
+        checkRecord(rid);
+    }
+
+    for (int w = 0; w < WRITERS; w++)
+      Assert.assertEquals(storage.count(db.getClusterIdByName("writer" + w)), RECORDS / 2);
+  }
+
+  /**
+   * Creates the records, updates each of them with a new size and fill value and deletes half of them.
+   */
+  private void writeRecords(final int clusterId, final int writer, final AtomicReferenceArray<ORecordId> rids) {
+    final Random random = new Random(clusterId * 31 + writer);
+    final ORecordId[] created = new ORecordId[RECORDS];
+
+    for (int i = 0; i < RECORDS; i++) {
+      final ORecordId rid = new ORecordId(clusterId);
+      storage.createRecord(-1, rid, content(random, i), OVersionFactory.instance().createVersion(), ODocument.RECORD_TYPE, 0, null);
+      created[i] = rid;
+      if (rids != null)
+        rids.set(writer * RECORDS + i, rid);
+    }
+
+    for (int i = 0; i < RECORDS; i++)
+      storage.updateRecord(created[i], content(random, i + 1), OVersionFactory.instance().createUntrackedVersion(),
+          ODocument.RECORD_TYPE, 0, null);
+
+    for (int i = 0; i < RECORDS; i += 2) {
+      if (rids != null)
+        rids.set(writer * RECORDS + i, null);
+      Assert.assertTrue(storage.deleteRecord(created[i], OVersionFactory.instance().createUntrackedVersion(), 0, null).getResult());
+    }
+  }
+
+  private static byte[] content(final Random random, final int fill) {
+    // ONE RECORD IN TEN SPANS SEVERAL PAGES
+    final int size = random.nextInt(10) == 0 ? MAX_SIZE / 2 + random.nextInt(MAX_SIZE / 2) : 1 + random.nextInt(2000);
+    final byte[] content = new byte[size];
+    Arrays.fill(content, (byte) fill);
+    return content;
+  }
+
+  private void checkRecord(final ORecordId rid) {
+    final ORawBuffer buffer = storage.readRecord(rid, null, false, null, false).getResult();
+    if (buffer == null)
+      // DELETED IN THE MEANTIME
+      return;
+
+    final byte fill = buffer.buffer[0];
+    for (byte b : buffer.buffer)
+      Assert.assertEquals(b, fill, "Record " + rid + " was read while it was written");
+  }
+}
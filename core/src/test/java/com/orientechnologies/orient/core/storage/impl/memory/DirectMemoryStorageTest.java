@@ -0,0 +1,87 @@
+package com.orientechnologies.orient.core.storage.impl.memory;
+
+import java.io.File;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.ODirectMemoryOnlyDiskCache;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class DirectMemoryStorageTest {
+  private static final int COUNT = 3000;
+
+  @AfterMethod
+  public void afterMethod() {
+    OGlobalConfiguration.STORAGE_MEMORY_OFF_HEAP.setValue(false);
+  }
+
+  public void testCRUD() {
+    OGlobalConfiguration.STORAGE_MEMORY_OFF_HEAP.setValue(true);
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:directMemoryStorageTest");
+    db.create();
+    try {
+      Assert.assertTrue(db.getStorage() instanceof ODirectMemoryStorage);
+      Assert.assertEquals(db.getURL(), "memory:directMemoryStorageTest");
+
+      final OClass person = db.getMetadata().getSchema().createClass("Person");
+      person.createProperty("id", OType.INTEGER).createIndex(OClass.INDEX_TYPE.UNIQUE);
+
+      // ONE DOCUMENT IN TEN SPANS SEVERAL PAGES
+      final char[] big = new char[100000];
+      for (int i = 0; i < COUNT; i++)
+        new ODocument("Person").field("id", i).field("name", i % 10 == 0 ? new String(big) : "name" + i).save();
+
+      Assert.assertEquals(db.countClass("Person"), COUNT);
+
+      final OIndex<?> index = db.getMetadata().getIndexManager().getIndex("Person.id");
+      for (int i = 0; i < COUNT; i += 10) {
+        final ODocument document = ((OIdentifiable) index.get(i)).getRecord();
+        Assert.assertEquals(document.<Object> field("id"), i);
+        document.field("name", "updated" + i).save();
+      }
+
+      db.command(new OCommandSQL("delete from Person where id >= " + COUNT / 2)).execute();
+      Assert.assertEquals(db.countClass("Person"), COUNT / 2);
+
+      final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Person where id = 10"));
+      Assert.assertEquals(result.size(), 1);
+      Assert.assertEquals(result.get(0).<Object> field("name"), "updated10");
+
+      final ODirectMemoryOnlyDiskCache diskCache = (ODirectMemoryOnlyDiskCache) ((ODirectMemoryStorage) db.getStorage())
+          .getDiskCache();
+      Assert.assertTrue(diskCache.getUsedMemory() > 0);
+      Assert.assertFalse(new File("directMemoryStorageTest").exists());
+    } finally {
+      db.drop();
+    }
+  }
+
+  public void testContentIsFreedOnDrop() {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:directMemoryStorageDropTest?offHeap=true");
+    db.create();
+
+    final ODirectMemoryStorage storage = (ODirectMemoryStorage) db.getStorage();
+    final ODirectMemoryOnlyDiskCache diskCache = (ODirectMemoryOnlyDiskCache) storage.getDiskCache();
+    for (int i = 0; i < 100; i++)
+      new ODocument().field("value", i).save();
+    Assert.assertTrue(diskCache.getUsedMemory() > 0);
+
+    db.drop();
+
+    Assert.assertEquals(diskCache.getUsedMemory(), 0);
+    Assert.assertFalse(storage.exists());
+  }
+}
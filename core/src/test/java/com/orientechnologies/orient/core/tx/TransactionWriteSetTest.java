@@ -0,0 +1,154 @@
+package com.orientechnologies.orient.core.tx;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.collection.OCompositeKey;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.ORecordOperation;
+import com.orientechnologies.orient.core.id.OClusterPositionLong;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.tx.OTransactionIndexChanges.OPERATION;
+
+@Test
+public class TransactionWriteSetTest {
+  public void testCurrentAndFlushedOperations() {
+    final OTransactionWriteSet writeSet = new OTransactionWriteSet();
+
+    final List<ORecordOperation> created = new ArrayList<ORecordOperation>();
+    for (int i = 0; i < 100; i++) {
+      final ORecordOperation operation = new ORecordOperation(rid(1, -2 - i), ORecordOperation.CREATED);
+      writeSet.putCurrent(rid(1, -2 - i), operation);
+      created.add(operation);
+    }
+    Assert.assertEquals(writeSet.getCurrentCount(), 100);
+    Assert.assertSame(writeSet.get(rid(1, -50)), created.get(48));
+
+    // CURRENT OPERATIONS ARE BROWSED IN REGISTRATION ORDER
+    Assert.assertEquals(new ArrayList<ORecordOperation>(writeSet.getCurrentOperations()), created);
+
+    writeSet.flushCurrent();
+    Assert.assertTrue(writeSet.getCurrentOperations().isEmpty());
+    Assert.assertEquals(writeSet.getFlushedOperations().size(), 100);
+    Assert.assertNull(writeSet.removeCurrent(rid(1, -2)));
+
+    final ORecordOperation updated = new ORecordOperation(rid(2, 5), ORecordOperation.UPDATED);
+    writeSet.putCurrent(rid(2, 5), updated);
+    final Iterator<ORecordOperation> current = writeSet.getCurrentOperations().iterator();
+    Assert.assertSame(current.next(), updated);
+    Assert.assertFalse(current.hasNext());
+    Assert.assertSame(writeSet.removeCurrent(rid(2, 5)), updated);
+    Assert.assertNull(writeSet.get(rid(2, 5)));
+
+    writeSet.updateIdentity(rid(1, -2), rid(1, 0));
+    Assert.assertNull(writeSet.get(rid(1, -2)));
+    Assert.assertSame(writeSet.get(rid(1, 0)), created.get(0));
+    Assert.assertEquals(writeSet.size(), 100);
+
+    writeSet.clear();
+    Assert.assertEquals(writeSet.size(), 0);
+    Assert.assertNull(writeSet.get(rid(1, 0)));
+    Assert.assertFalse(writeSet.getFlushedOperations().iterator().hasNext());
+  }
+
+  public void testIndexChangesStream() {
+    // KEYS WITHOUT A BINARY SERIALIZER ARE WRITTEN AS DOCUMENTS
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:transactionIndexChangesStreamTest");
+    db.create();
+    try {
+      checkIndexChangesStream();
+    } finally {
+      db.drop();
+    }
+  }
+
+  private void checkIndexChangesStream() {
+    final Map<String, OTransactionIndexChanges> indexEntries = new LinkedHashMap<String, OTransactionIndexChanges>();
+
+    final OTransactionIndexChanges first = new OTransactionIndexChanges();
+    first.getChangesPerKey(10).add(rid(3, 1), OPERATION.PUT);
+    first.getChangesPerKey(5).add(rid(3, 2), OPERATION.PUT);
+    first.getChangesPerKey(5).add(null, OPERATION.REMOVE);
+    first.getChangesCrossKey().add(rid(3, 3), OPERATION.REMOVE);
+    indexEntries.put("first", first);
+
+    final OTransactionIndexChanges second = new OTransactionIndexChanges();
+    second.setCleared();
+    second.getChangesPerKey(new OCompositeKey("a", 1L)).add(rid(4, 1), OPERATION.PUT);
+    indexEntries.put("second", second);
+
+    // ONE INDEX PER TYPE OF KEY
+    final Object[] keys = { "text", new Date(1000), new BigDecimal("1.5"), rid(9, 9), new OCompositeKey("b", new Date(2000)) };
+    for (int i = 0; i < keys.length; i++) {
+      final OTransactionIndexChanges changes = new OTransactionIndexChanges();
+      changes.getChangesPerKey(keys[i]).add(rid(5, i), OPERATION.PUT);
+      indexEntries.put("key" + i, changes);
+    }
+
+    final Map<String, OTransactionIndexChanges> read = OTransactionIndexChangesSerializer.INSTANCE
+        .fromStream(OTransactionIndexChangesSerializer.INSTANCE.toStream(indexEntries));
+
+    Assert.assertEquals(new ArrayList<String>(read.keySet()), new ArrayList<String>(indexEntries.keySet()));
+
+    final OTransactionIndexChanges readFirst = read.get("first");
+    Assert.assertFalse(readFirst.cleared);
+    Assert.assertEquals(new ArrayList<Object>(readFirst.changesPerKey.keySet()), new ArrayList<Object>(first.changesPerKey.keySet()));
+    Assert.assertEquals(readFirst.getChangesPerKey(5).entries.size(), 2);
+    Assert.assertEquals(readFirst.getChangesPerKey(5).entries.get(0).value, rid(3, 2));
+    Assert.assertNull(readFirst.getChangesPerKey(5).entries.get(1).value);
+    Assert.assertEquals(readFirst.getChangesPerKey(5).entries.get(1).operation, OPERATION.REMOVE);
+    Assert.assertEquals(readFirst.changesCrossKey.entries.get(0).value, rid(3, 3));
+
+    final OTransactionIndexChanges readSecond = read.get("second");
+    Assert.assertTrue(readSecond.cleared);
+    Assert.assertEquals(readSecond.changesPerKey.size(), 1);
+    Assert.assertEquals(readSecond.getChangesPerKey(new OCompositeKey("a", 1L)).entries.get(0).value, rid(4, 1));
+
+    for (int i = 0; i < keys.length; i++) {
+      final OTransactionIndexChanges changes = read.get("key" + i);
+      Assert.assertEquals(changes.changesPerKey.size(), 1);
+      Assert.assertEquals(changes.changesPerKey.keySet().iterator().next(), keys[i]);
+      Assert.assertEquals(changes.getChangesPerKey(keys[i]).entries.get(0).value, rid(5, i));
+    }
+  }
+
+  public void testTransactionWithIndex() {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:transactionWriteSetTest");
+    db.create();
+    try {
+      final OClass item = db.getMetadata().getSchema().createClass("Item");
+      item.createProperty("id", OType.INTEGER).createIndex(OClass.INDEX_TYPE.UNIQUE);
+
+      db.begin();
+      final List<ODocument> documents = new ArrayList<ODocument>();
+      for (int i = 0; i < 1000; i++)
+        documents.add(new ODocument("Item").field("id", i).save());
+      documents.get(10).delete();
+      documents.get(20).field("id", 5000).save();
+      db.commit();
+
+      Assert.assertEquals(db.countClass("Item"), 999);
+      Assert.assertFalse(documents.get(0).getIdentity().isTemporary());
+      Assert.assertNull(db.getMetadata().getIndexManager().getIndex("Item.id").get(10));
+      Assert.assertEquals(db.getMetadata().getIndexManager().getIndex("Item.id").get(5000), documents.get(20).getIdentity());
+    } finally {
+      db.drop();
+    }
+  }
+
+  private static ORID rid(final int clusterId, final long clusterPosition) {
+    return new ORecordId(clusterId, new OClusterPositionLong(clusterPosition));
+  }
+}
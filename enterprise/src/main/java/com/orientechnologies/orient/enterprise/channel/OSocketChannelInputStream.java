@@ -0,0 +1,164 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.enterprise.channel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+/**
+ * Input stream of a non-blocking socket channel served by a selector. The selector thread accumulates the received bytes by
+ * {@link #receive()}, the reader sees only the bytes up to the limit set by {@link #setLimit(int)}, usually the end of a complete
+ * request, and never waits for the network: reading past the limit returns the end of the stream.
+ */
+public class OSocketChannelInputStream extends InputStream {
+  private static final int    INITIAL_SIZE = 1024;
+
+  private final SocketChannel channel;
+  private byte[]              buffer       = new byte[INITIAL_SIZE];
+  private int                 position;
+  private int                 limit;
+  private int                 size;
+  private boolean             endOfStream;
+
+  public OSocketChannelInputStream(final SocketChannel iChannel) {
+    channel = iChannel;
+  }
+
+  /**
+   * Reads all the bytes available on the channel without waiting. Must not be called while the stream is read.
+   *
+   * @return the number of bytes received
+   */
+  public int receive() {
+    compact();
+
+    int received = 0;
+    try {
+      int read;
+      do {
+        if (size == buffer.length)
+          buffer = Arrays.copyOf(buffer, buffer.length << 1);
+
+        read = channel.read(ByteBuffer.wrap(buffer, size, buffer.length - size));
+        if (read > 0) {
+          size += read;
+          received += read;
+        }
+      } while (read > 0);
+
+      if (read < 0)
+        endOfStream = true;
+    } catch (IOException e) {
+      // CONNECTION BROKEN: THE READER GETS THE END OF THE STREAM
+      endOfStream = true;
+    }
+    return received;
+  }
+
+  public byte[] getBuffer() {
+    return buffer;
+  }
+
+  /**
+   * Returns the position of the next byte to read in the buffer.
+   */
+  public int getPosition() {
+    return position;
+  }
+
+  /**
+   * Returns the position after the last byte received in the buffer.
+   */
+  public int getSize() {
+    return size;
+  }
+
+  public boolean isEndOfStream() {
+    return endOfStream;
+  }
+
+  /**
+   * Makes readable the bytes of the buffer up to the given position.
+   */
+  public void setLimit(final int iLimit) {
+    if (iLimit < position || iLimit > size)
+      throw new IllegalArgumentException("Limit " + iLimit + " is out of the received bytes (" + position + "-" + size + ")");
+    limit = iLimit;
+  }
+
+  /**
+   * Discards the readable bytes not read yet.
+   */
+  public void skipToLimit() {
+    position = limit;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (position >= limit)
+      return -1;
+    return buffer[position++] & 0xFF;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException {
+    if (len == 0)
+      return 0;
+    if (position >= limit)
+      return -1;
+
+    final int read = Math.min(len, limit - position);
+    System.arraycopy(buffer, position, b, off, read);
+    position += read;
+    return read;
+  }
+
+  @Override
+  public long skip(final long n) throws IOException {
+    final int skipped = (int) Math.max(0, Math.min(n, limit - position));
+    position += skipped;
+    return skipped;
+  }
+
+  @Override
+  public int available() throws IOException {
+    return limit - position;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private void compact() {
+    if (position == 0)
+      return;
+
+    final int remaining = size - position;
+    if (remaining == 0 && buffer.length > INITIAL_SIZE)
+      // RELEASE THE MEMORY OF BIG REQUESTS WHILE THE CONNECTION IS IDLE
+      buffer = new byte[INITIAL_SIZE];
+    else
+      System.arraycopy(buffer, position, buffer, 0, remaining);
+
+    limit -= position;
+    size = remaining;
+    position = 0;
+  }
+}
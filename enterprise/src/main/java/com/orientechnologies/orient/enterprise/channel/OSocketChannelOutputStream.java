@@ -0,0 +1,55 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.enterprise.channel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Blocking output stream on top of a non-blocking socket channel. Writes which do not fit in the socket send buffer wait for the
+ * channel to become writable.
+ */
+public class OSocketChannelOutputStream extends OutputStream {
+  private final SocketChannel channel;
+  private final int           timeout;
+
+  public OSocketChannelOutputStream(final SocketChannel iChannel) throws IOException {
+    channel = iChannel;
+    timeout = iChannel.socket().getSoTimeout();
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    write(new byte[] { (byte) b }, 0, 1);
+  }
+
+  @Override
+  public void write(final byte[] b, final int off, final int len) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+
+    while (buffer.hasRemaining())
+      if (channel.write(buffer) == 0)
+        OSocketChannelSelectors.await(channel, SelectionKey.OP_WRITE, timeout);
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
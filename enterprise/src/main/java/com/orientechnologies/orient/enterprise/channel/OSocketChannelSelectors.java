@@ -0,0 +1,64 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.enterprise.channel;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Per-thread selectors used to wait for readiness of non-blocking socket channels.
+ */
+final class OSocketChannelSelectors {
+  private static final ThreadLocal<Selector> SELECTORS = new ThreadLocal<Selector>();
+
+  private OSocketChannelSelectors() {
+  }
+
+  /**
+   * Waits till the channel is ready for the given operations.
+   *
+   * @param iChannel
+   *          non-blocking channel
+   * @param iOps
+   *          {@link SelectionKey} operations to wait for
+   * @param iTimeout
+   *          timeout in ms, 0 means wait forever
+   */
+  static void await(final SocketChannel iChannel, final int iOps, final int iTimeout) throws IOException {
+    if (Thread.currentThread().isInterrupted())
+      throw new InterruptedIOException("Thread was interrupted while waiting for the channel");
+
+    Selector selector = SELECTORS.get();
+    if (selector == null || !selector.isOpen()) {
+      selector = Selector.open();
+      SELECTORS.set(selector);
+    }
+
+    final SelectionKey key = iChannel.register(selector, iOps);
+    try {
+      if (selector.select(iTimeout) == 0 && iTimeout > 0)
+        throw new SocketTimeoutException("Timeout of " + iTimeout + "ms expired while waiting for the channel");
+    } finally {
+      key.cancel();
+      // DEREGISTER THE CHANNEL RIGHT NOW, OTHERWISE IT CANNOT BE REGISTERED AGAIN NOR CLOSED
+      selector.selectNow();
+    }
+  }
+}
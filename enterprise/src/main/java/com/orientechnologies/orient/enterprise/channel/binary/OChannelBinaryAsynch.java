@@ -16,9 +16,15 @@
 package com.orientechnologies.orient.enterprise.channel.binary;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.Socket;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.orientechnologies.common.concur.OTimeoutException;
 import com.orientechnologies.common.concur.lock.OLockException;
@@ -28,20 +34,50 @@ import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 
 /**
  * Implementation that supports multiple client requests.
+ * <p>
+ * If "network.binary.multiplex" is true the responses are read by a dedicated thread (see
+ * {@link OChannelBinaryResponseDispatcher}): it reads the header of every response and wakes up only the requester the response
+ * belongs to, which then reads the content of the response. Requesters of the same session receive the responses in the order they
+ * wait for them, which is the order the server executes the requests of a connection.
  * 
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
  * 
  */
 public class OChannelBinaryAsynch extends OChannelBinary {
-  private final Condition  readCondition = lockRead.getUnderlying().newCondition();
-  private volatile boolean channelRead   = false;
-  private byte             currentStatus;
-  private int              currentSessionId;
-  private final int        maxUnreadResponses;
+  private final Condition                      readCondition      = lockRead.getUnderlying().newCondition();
+  private volatile boolean                     channelRead        = false;
+  private byte                                 currentStatus;
+  private int                                  currentSessionId;
+  private final int                            maxUnreadResponses;
+
+  private final boolean                        multiplexed;
+  private final ReentrantLock                  responseLock       = new ReentrantLock();
+  private final Condition                      responseConsumed   = responseLock.newCondition();
+  private final Map<Integer, Queue<Condition>> responseWaiters    = new HashMap<Integer, Queue<Condition>>();
+  private boolean                              responseReady;
+  private byte                                 responseStatus;
+  private int                                  responseSessionId;
+  private Thread                               responseOwner;
+  private IOException                          responseError;
+  private volatile boolean                     closed;
 
   public OChannelBinaryAsynch(final Socket iSocket, final OContextConfiguration iConfig) throws IOException {
     super(iSocket, iConfig);
     maxUnreadResponses = OGlobalConfiguration.NETWORK_BINARY_READ_RESPONSE_MAX_TIMES.getValueAsInteger();
+    multiplexed = iConfig.getValueAsBoolean(OGlobalConfiguration.NETWORK_BINARY_MULTIPLEX);
+  }
+
+  /**
+   * Starts the thread which reads the responses if the channel is multiplexed. To call once the handshake with the server is
+   * completed.
+   */
+  protected void startResponseDispatcher() {
+    if (multiplexed)
+      new OChannelBinaryResponseDispatcher(this);
+  }
+
+  public boolean isMultiplexed() {
+    return multiplexed;
   }
 
   public void beginRequest() {
@@ -58,6 +94,11 @@ public class OChannelBinaryAsynch extends OChannelBinary {
   }
 
   public void beginResponse(final int iRequesterId, final long iTimeout) throws IOException {
+    if (multiplexed) {
+      beginMultiplexedResponse(iRequesterId, iTimeout);
+      return;
+    }
+
     try {
       int unreadResponse = 0;
       final long startClock = iTimeout > 0 ? System.currentTimeMillis() : 0;
@@ -152,6 +193,11 @@ public class OChannelBinaryAsynch extends OChannelBinary {
   }
 
   public void endResponse() {
+    if (multiplexed) {
+      endMultiplexedResponse();
+      return;
+    }
+
     channelRead = false;
 
     // WAKE UP ALL THE WAITING THREADS
@@ -173,6 +219,17 @@ public class OChannelBinaryAsynch extends OChannelBinary {
 
   @Override
   public void close() {
+    closed = true;
+
+    if (multiplexed) {
+      responseLock.lock();
+      try {
+        responseConsumed.signalAll();
+      } finally {
+        responseLock.unlock();
+      }
+    }
+
     if (lockRead.tryAcquireLock())
       try {
         readCondition.signalAll();
@@ -192,4 +249,134 @@ public class OChannelBinaryAsynch extends OChannelBinary {
       releaseReadLock();
     }
   }
+
+  /**
+   * Publishes the header of the response just read by the dispatcher and waits till the requester has read its content. The
+   * content of a response cannot be skipped, so if no requester claims it in "network.binary.readResponse.maxTimes" seconds the
+   * channel is dirty and an IOException is thrown: the dispatcher then fails all the requesters and closes the channel.
+   */
+  void dispatchResponse(final byte iStatus, final int iSessionId) throws InterruptedException, IOException {
+    responseLock.lock();
+    try {
+      responseStatus = iStatus;
+      responseSessionId = iSessionId;
+      responseReady = true;
+
+      final Queue<Condition> waiters = responseWaiters.get(iSessionId);
+      if (waiters != null)
+        waiters.peek().signal();
+      else if (debug)
+        OLogManager.instance().debug(this, "%s - Response for session %d is not waited yet", socket.getLocalAddress(), iSessionId);
+
+      long remaining = TimeUnit.SECONDS.toNanos(maxUnreadResponses);
+      while (responseReady && !closed) {
+        if (responseOwner != null)
+          // THE REQUESTER IS READING THE CONTENT: WAIT WITHOUT LIMITS
+          responseConsumed.await();
+        else if (remaining > 0)
+          remaining = responseConsumed.awaitNanos(remaining);
+        else {
+          // NOBODY CLAIMED THE RESPONSE: DISCARD IT
+          responseReady = false;
+          throw new IOException("Response for session " + iSessionId + " has not been claimed in " + maxUnreadResponses
+              + " seconds, consider the channel " + socket.getRemoteSocketAddress() + " as dirty");
+        }
+      }
+    } finally {
+      responseLock.unlock();
+    }
+  }
+
+  /**
+   * Wakes up all the requesters after the dispatcher failed to read from the channel.
+   */
+  void failResponses(final IOException iError) {
+    responseLock.lock();
+    try {
+      responseError = iError;
+      for (Queue<Condition> waiters : responseWaiters.values())
+        for (Condition waiter : waiters)
+          waiter.signal();
+    } finally {
+      responseLock.unlock();
+    }
+  }
+
+  private void beginMultiplexedResponse(final int iRequesterId, final long iTimeout) throws IOException {
+    final byte status;
+
+    responseLock.lock();
+    try {
+      Queue<Condition> waiters = responseWaiters.get(iRequesterId);
+      if (waiters == null) {
+        waiters = new LinkedList<Condition>();
+        responseWaiters.put(iRequesterId, waiters);
+      }
+
+      final Condition waiter = responseLock.newCondition();
+      waiters.add(waiter);
+
+      try {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(iTimeout);
+
+        // WAIT TILL THE DISPATCHER HAS READ THE HEADER OF A RESPONSE FOR THIS SESSION AND ALL THE PREVIOUS REQUESTERS ARE SERVED
+        while (!(responseReady && responseOwner == null && responseSessionId == iRequesterId && waiters.peek() == waiter)) {
+          if (responseError != null)
+            throw new IOException("Error on reading response from the server " + socket.getRemoteSocketAddress(), responseError);
+
+          if (closed)
+            throw new IOException("Channel " + socket.getRemoteSocketAddress() + " has been closed");
+
+          if (iTimeout <= 0)
+            waiter.await();
+          else {
+            if (remaining <= 0) {
+              // CLOSE THE SOCKET TO CHANNEL TO AVOID FURTHER DIRTY DATA
+              close();
+              throw new OTimeoutException("Timeout on reading response from the server " + socket.getRemoteSocketAddress()
+                  + " for the request " + iRequesterId);
+            }
+            remaining = waiter.awaitNanos(remaining);
+          }
+        }
+
+        responseOwner = Thread.currentThread();
+        status = responseStatus;
+
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for the response of the request " + iRequesterId);
+
+      } finally {
+        waiters.remove(waiter);
+        if (waiters.isEmpty())
+          responseWaiters.remove(iRequesterId);
+        else if (responseReady && responseOwner == null && responseSessionId == iRequesterId)
+          // THE RESPONSE WAS NOT TAKEN: HAND IT TO THE NEXT REQUESTER OF THE SESSION
+          waiters.peek().signal();
+      }
+    } finally {
+      responseLock.unlock();
+    }
+
+    if (debug)
+      OLogManager.instance().debug(this, "%s - Session %d handle response", socket.getLocalAddress(), iRequesterId);
+
+    handleStatus(status, iRequesterId);
+  }
+
+  private void endMultiplexedResponse() {
+    responseLock.lock();
+    try {
+      if (responseOwner != Thread.currentThread())
+        // THE RESPONSE WAS NOT ACQUIRED, LIKE AFTER A TIMEOUT
+        return;
+
+      responseOwner = null;
+      responseReady = false;
+      responseConsumed.signal();
+    } finally {
+      responseLock.unlock();
+    }
+  }
 }
@@ -85,6 +85,8 @@ public class OChannelBinaryClient extends OChannelBinaryAsynch {
       // + ", server=" + srvProtocolVersion);
     }
 
+    startResponseDispatcher();
+
     if (asynchEventListener != null)
       serviceThread = new OAsynchChannelServiceThread(asynchEventListener, this);
   }
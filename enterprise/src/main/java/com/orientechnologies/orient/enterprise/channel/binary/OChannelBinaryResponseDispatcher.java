@@ -0,0 +1,67 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.enterprise.channel.binary;
+
+import java.io.IOException;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.thread.OSoftThread;
+import com.orientechnologies.orient.core.Orient;
+
+/**
+ * Reads the headers of the responses of a multiplexed channel and hands every response to the requester it belongs to.
+ */
+public class OChannelBinaryResponseDispatcher extends OSoftThread {
+  private final OChannelBinaryAsynch network;
+
+  public OChannelBinaryResponseDispatcher(final OChannelBinaryAsynch iChannel) {
+    super(Orient.instance().getThreadGroup(), "OrientDB <- Response Dispatcher (" + iChannel.socket.getRemoteSocketAddress() + ")");
+    network = iChannel;
+    start();
+  }
+
+  @Override
+  protected void execute() throws Exception {
+    final byte status;
+    final int sessionId;
+
+    try {
+      status = network.readByte();
+      sessionId = network.readInt();
+    } catch (IOException e) {
+      // THE SOCKET HAS BEEN CLOSED? WAKE UP ALL THE REQUESTERS AND EXIT THIS THREAD
+      sendShutdown();
+      network.failResponses(e);
+      return;
+    }
+
+    if (network.debug)
+      OLogManager.instance().debug(this, "%s - Read response: %d-%d", network.socket.getLocalAddress(), (int) status, sessionId);
+
+    try {
+      network.dispatchResponse(status, sessionId);
+    } catch (IOException e) {
+      // THE RESPONSE HAS NOT BEEN CLAIMED: THE CONTENT LEFT ON THE SOCKET CANNOT BE READ ANYMORE
+      OLogManager.instance().warn(this, e.getMessage());
+      sendShutdown();
+      network.failResponses(e);
+      network.close();
+    } catch (InterruptedException e) {
+      sendShutdown();
+      network.failResponses(new IOException("Response dispatcher has been interrupted"));
+    }
+  }
+}
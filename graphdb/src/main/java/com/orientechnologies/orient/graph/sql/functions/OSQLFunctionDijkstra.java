@@ -15,9 +15,8 @@
  */
 package com.orientechnologies.orient.graph.sql.functions;
 
-import java.util.Iterator;
-
 import com.orientechnologies.common.collection.OMultiValue;
+import com.orientechnologies.common.io.OIOUtils;
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.record.ORecordInternal;
@@ -27,7 +26,6 @@ import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.Vertex;
 import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
-import com.tinkerpop.blueprints.impls.orient.OrientVertex;
 
 /**
  * Dijkstra's algorithm describes how to find the cheapest path from one node to another node in a directed weighted graph.
@@ -66,7 +64,9 @@ public class OSQLFunctionDijkstra extends OSQLFunctionPathFinder<Float> {
     }
     paramDestinationVertex = graph.getVertex((OIdentifiable) OSQLHelper.getValue(dest, record, iContext));
 
-    paramWeightFieldName = (String) OSQLHelper.getValue(iParameters[2], record, iContext);
+    // THE FIELD NAME IS A LITERAL: DON'T RESOLVE IT AGAINST THE CURRENT RECORD
+    paramWeightFieldName = OIOUtils.getStringContent(iParameters[2] instanceof String ? iParameters[2] : OSQLHelper.getValue(
+        iParameters[2], record, iContext));
     if (iParameters.length > 3)
       paramDirection = Direction.valueOf(iParameters[3].toString().toUpperCase());
 
@@ -82,7 +82,7 @@ public class OSQLFunctionDijkstra extends OSQLFunctionPathFinder<Float> {
     if (destination == null)
       return Float.MAX_VALUE;
 
-    final Float d = distance.get(destination);
+    final Float d = distance.get(getIdentity(destination));
     return d == null ? Float.MAX_VALUE : d;
   }
 
@@ -91,18 +91,14 @@ public class OSQLFunctionDijkstra extends OSQLFunctionPathFinder<Float> {
     return MIN;
   }
 
-  protected Float getDistance(final Vertex node, final Vertex target) {
-    final Iterator<Edge> edges = ((OrientVertex) node).getEdges((OrientVertex) target, paramDirection).iterator();
-    if (edges.hasNext()) {
-      final Edge e = edges.next();
-      if (e != null) {
-        final Object fieldValue = e.getProperty(paramWeightFieldName);
-        if (fieldValue != null)
-          if (fieldValue instanceof Float)
-            return (Float) fieldValue;
-          else if (fieldValue instanceof Number)
-            return ((Number) fieldValue).floatValue();
-      }
+  protected Float getDistance(final Vertex node, final Vertex target, final Edge edge) {
+    if (edge != null) {
+      final Object fieldValue = edge.getProperty(paramWeightFieldName);
+      if (fieldValue != null)
+        if (fieldValue instanceof Float)
+          return (Float) fieldValue;
+        else if (fieldValue instanceof Number)
+          return ((Number) fieldValue).floatValue();
     }
     return MIN;
   }
@@ -15,43 +15,63 @@
  */
 package com.orientechnologies.orient.graph.sql.functions;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 
 import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.sql.functions.math.OSQLFunctionMathAbstract;
 import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.Vertex;
 import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
 
 /**
- * Abstract class to find paths between nodes.
- * 
+ * Abstract class to find paths between nodes. Unsettled nodes are kept in a binary heap ordered by distance, and all the
+ * structures are keyed by the RID of the vertices. A node can be in the heap more than once when its distance decreases: the
+ * obsolete entries are skipped when polled.
+ *
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
- * 
+ *
  */
 public abstract class OSQLFunctionPathFinder<T extends Comparable<T>> extends OSQLFunctionMathAbstract {
-  protected OrientBaseGraph     db;
-  protected Set<Vertex>         settledNodes;
-  protected Set<Vertex>         unSettledNodes;
-  protected Map<Vertex, Vertex> predecessors;
-  protected Map<Vertex, T>      distance;
+  protected OrientBaseGraph                   db;
+  protected Set<ORID>                         settledNodes;
+  protected PriorityQueue<OPathFinderNode<T>> unSettledNodes;
+  protected Map<ORID, Vertex>                 predecessors;
+  protected Map<ORID, T>                      distance;
+
+  protected Vertex                            paramSourceVertex;
+  protected Vertex                            paramDestinationVertex;
+  protected Direction                         paramDirection = Direction.OUT;
+
+  /**
+   * Entry of the heap of the unsettled nodes.
+   */
+  protected static class OPathFinderNode<T extends Comparable<T>> implements Comparable<OPathFinderNode<T>> {
+    protected final Vertex vertex;
+    protected final T      distance;
 
-  protected Vertex              paramSourceVertex;
-  protected Vertex              paramDestinationVertex;
-  protected Direction           paramDirection = Direction.OUT;
+    public OPathFinderNode(final Vertex iVertex, final T iDistance) {
+      vertex = iVertex;
+      distance = iDistance;
+    }
+
+    public int compareTo(final OPathFinderNode<T> o) {
+      return distance.compareTo(o.distance);
+    }
+  }
 
   public OSQLFunctionPathFinder(final String iName, final int iMinParams, final int iMaxParams) {
     super(iName, iMinParams, iMaxParams);
   }
 
-  protected abstract T getDistance(Vertex node, Vertex target);
+  protected abstract T getDistance(Vertex node, Vertex target, Edge edge);
 
   protected abstract T getShortestDistance(Vertex destination);
 
@@ -60,17 +80,30 @@ public abstract class OSQLFunctionPathFinder<T extends Comparable<T>> extends OS
   protected abstract T sumDistances(T iDistance1, T iDistance2);
 
   public Object execute(final Object[] iParameters, final OCommandContext iContext) {
-    settledNodes = new HashSet<Vertex>();
-    unSettledNodes = new HashSet<Vertex>();
-    distance = new HashMap<Vertex, T>();
-    predecessors = new HashMap<Vertex, Vertex>();
-    distance.put(paramSourceVertex, getMinimumDistance());
-    unSettledNodes.add(paramSourceVertex);
+    settledNodes = new HashSet<ORID>();
+    unSettledNodes = new PriorityQueue<OPathFinderNode<T>>();
+    distance = new HashMap<ORID, T>();
+    predecessors = new HashMap<ORID, Vertex>();
+
+    if (paramSourceVertex == null || paramDestinationVertex == null)
+      return null;
+
+    distance.put(getIdentity(paramSourceVertex), getMinimumDistance());
+    unSettledNodes.add(new OPathFinderNode<T>(paramSourceVertex, getMinimumDistance()));
+
+    final ORID destination = getIdentity(paramDestinationVertex);
 
     while (continueTraversing()) {
-      final Vertex node = getMinimum(unSettledNodes);
-      settledNodes.add(node);
-      unSettledNodes.remove(node);
+      final Vertex node = getMinimum();
+      if (node == null)
+        break;
+
+      final ORID rid = getIdentity(node);
+      if (rid.equals(destination))
+        // THE DISTANCE OF THE DESTINATION CANNOT DECREASE ANYMORE
+        break;
+
+      settledNodes.add(rid);
       findMinimalDistances(node);
     }
 
@@ -81,19 +114,13 @@ public abstract class OSQLFunctionPathFinder<T extends Comparable<T>> extends OS
    * This method returns the path from the source to the selected target and NULL if no path exists
    */
   public LinkedList<Vertex> getPath() {
-    final LinkedList<Vertex> path = new LinkedList<Vertex>();
-    Vertex step = paramDestinationVertex;
-    // Check if a path exists
-    if (predecessors.get(step) == null)
+    if (paramDestinationVertex == null || predecessors.get(getIdentity(paramDestinationVertex)) == null)
+      // NO PATH EXISTS
       return null;
 
-    path.add(step);
-    while (predecessors.get(step) != null) {
-      step = predecessors.get(step);
-      path.add(step);
-    }
-    // Put it into the correct order
-    Collections.reverse(path);
+    final LinkedList<Vertex> path = new LinkedList<Vertex>();
+    for (Vertex step = paramDestinationVertex; step != null; step = predecessors.get(getIdentity(step)))
+      path.addFirst(step);
     return path;
   }
 
@@ -107,43 +134,58 @@ public abstract class OSQLFunctionPathFinder<T extends Comparable<T>> extends OS
   }
 
   protected void findMinimalDistances(final Vertex node) {
-    final List<Vertex> adjacentNodes = getNeighbors(node);
-    for (Vertex target : adjacentNodes) {
-      final T d = sumDistances(getShortestDistance(node), getDistance(node, target));
+    final T nodeDistance = getShortestDistance(node);
+
+    for (Edge edge : node.getEdges(paramDirection)) {
+      final Vertex target = getTarget(node, edge);
+      if (target == null || isSettled(target))
+        continue;
+
+      final T d = sumDistances(nodeDistance, getDistance(node, target, edge));
 
       if (getShortestDistance(target).compareTo(d) > 0) {
-        distance.put(target, d);
-        predecessors.put(target, node);
-        unSettledNodes.add(target);
+        distance.put(getIdentity(target), d);
+        predecessors.put(getIdentity(target), node);
+        unSettledNodes.add(new OPathFinderNode<T>(target, d));
       }
     }
-
   }
 
-  protected List<Vertex> getNeighbors(final Vertex node) {
-    final List<Vertex> neighbors = new ArrayList<Vertex>();
-    if (node != null) {
-      for (Vertex v : node.getVertices(paramDirection))
-        if (v != null && !isSettled(v))
-          neighbors.add(v);
-    }
-    return neighbors;
+  /**
+   * Returns the vertex on the other side of the edge, following the direction of the search.
+   */
+  protected Vertex getTarget(final Vertex node, final Edge edge) {
+    if (paramDirection == Direction.OUT)
+      return edge.getVertex(Direction.IN);
+    else if (paramDirection == Direction.IN)
+      return edge.getVertex(Direction.OUT);
+
+    final Vertex in = edge.getVertex(Direction.IN);
+    return in != null && getIdentity(in).equals(getIdentity(node)) ? edge.getVertex(Direction.OUT) : in;
   }
 
-  protected Vertex getMinimum(final Set<Vertex> vertexes) {
-    Vertex minimum = null;
-    for (Vertex vertex : vertexes) {
-      if (minimum == null || getShortestDistance(vertex).compareTo(getShortestDistance(minimum)) < 0)
-        minimum = vertex;
+  /**
+   * Polls the unsettled node with the minimum distance, skipping the entries already settled or obsolete.
+   */
+  protected Vertex getMinimum() {
+    OPathFinderNode<T> node;
+    while ((node = unSettledNodes.poll()) != null) {
+      final ORID rid = getIdentity(node.vertex);
+      if (!settledNodes.contains(rid) && node.distance.compareTo(distance.get(rid)) <= 0)
+        return node.vertex;
     }
-    return minimum;
+    return null;
   }
 
   protected boolean isSettled(final Vertex vertex) {
-    return settledNodes.contains(vertex.getId());
+    return settledNodes.contains(getIdentity(vertex));
   }
 
   protected boolean continueTraversing() {
-    return unSettledNodes.size() > 0;
+    return !unSettledNodes.isEmpty();
+  }
+
+  protected static ORID getIdentity(final Vertex iVertex) {
+    return ((OIdentifiable) iVertex).getIdentity();
   }
 }
@@ -15,18 +15,28 @@
  */
 package com.orientechnologies.orient.graph.sql.functions;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
 import com.orientechnologies.common.collection.OMultiValue;
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.sql.OSQLHelper;
 import com.orientechnologies.orient.graph.sql.OGraphCommandExecutorSQLFactory;
 import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.Vertex;
 import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
 
 /**
- * Shortest path algorithm to find the shortest path from one node to another node in a directed graph.
+ * Shortest path algorithm to find the shortest path from one node to another node in a directed graph. Since all the edges have
+ * the same distance, the search is a breadth-first visit from both the sides: the side with the smallest frontier is expanded by
+ * one level until the two visits meet. An optional maximum depth limits the length of the path.
  * 
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
  * 
@@ -36,8 +46,12 @@ public class OSQLFunctionShortestPath extends OSQLFunctionPathFinder<Integer> {
   private static final Integer MIN      = new Integer(0);
   private static final Integer DISTANCE = new Integer(1);
 
+  private int                  paramMaxDepth;
+  private Map<ORID, Vertex>    successors;
+  private Vertex               meetingVertex;
+
   public OSQLFunctionShortestPath() {
-    super(NAME, 2, 3);
+    super(NAME, 2, 4);
   }
 
   public Object execute(final OIdentifiable iCurrentRecord, Object iCurrentResult, final Object[] iParameters,
@@ -65,11 +79,83 @@ public class OSQLFunctionShortestPath extends OSQLFunctionPathFinder<Integer> {
     if (iParameters.length > 2)
       paramDirection = Direction.valueOf(iParameters[2].toString().toUpperCase());
 
-    return super.execute(iParameters, iContext);
+    paramMaxDepth = iParameters.length > 3 ? Integer.parseInt(iParameters[3].toString()) : -1;
+
+    return execute(iParameters, iContext);
+  }
+
+  @Override
+  public Object execute(final Object[] iParameters, final OCommandContext iContext) {
+    predecessors = new HashMap<ORID, Vertex>();
+    successors = new HashMap<ORID, Vertex>();
+    meetingVertex = null;
+
+    if (paramSourceVertex == null || paramDestinationVertex == null
+        || getIdentity(paramSourceVertex).equals(getIdentity(paramDestinationVertex)))
+      return null;
+
+    predecessors.put(getIdentity(paramSourceVertex), null);
+    successors.put(getIdentity(paramDestinationVertex), null);
+
+    List<Vertex> forward = new ArrayList<Vertex>();
+    forward.add(paramSourceVertex);
+    List<Vertex> backward = new ArrayList<Vertex>();
+    backward.add(paramDestinationVertex);
+
+    for (int depth = 0; meetingVertex == null && !forward.isEmpty() && !backward.isEmpty()
+        && (paramMaxDepth < 0 || depth < paramMaxDepth); ++depth) {
+      // EXPAND THE SMALLEST FRONTIER BY ONE LEVEL
+      if (forward.size() <= backward.size())
+        forward = expand(forward, paramDirection, predecessors, successors);
+      else
+        backward = expand(backward, paramDirection.opposite(), successors, predecessors);
+    }
+
+    return getPath();
+  }
+
+  @Override
+  public LinkedList<Vertex> getPath() {
+    if (meetingVertex == null)
+      return null;
+
+    final LinkedList<Vertex> path = new LinkedList<Vertex>();
+    for (Vertex step = meetingVertex; step != null; step = predecessors.get(getIdentity(step)))
+      path.addFirst(step);
+    for (Vertex step = successors.get(getIdentity(meetingVertex)); step != null; step = successors.get(getIdentity(step)))
+      path.addLast(step);
+    return path;
   }
 
   public String getSyntax() {
-    return "Syntax error: shortestPath(<sourceVertex>, <destinationVertex>, [<direction>])";
+    return "Syntax error: shortestPath(<sourceVertex>, <destinationVertex>, [<direction>], [<maxDepth>])";
+  }
+
+  /**
+   * Visits the next level of a side, linking every new vertex to the one it has been reached from. Stops as soon as a vertex
+   * already visited by the other side is found.
+   */
+  private List<Vertex> expand(final List<Vertex> iFrontier, final Direction iDirection, final Map<ORID, Vertex> iVisited,
+      final Map<ORID, Vertex> iOtherVisited) {
+    final List<Vertex> next = new ArrayList<Vertex>();
+    for (Vertex node : iFrontier)
+      for (Vertex v : node.getVertices(iDirection)) {
+        if (v == null)
+          continue;
+
+        final ORID rid = getIdentity(v);
+        if (iVisited.containsKey(rid))
+          continue;
+
+        iVisited.put(rid, node);
+        if (iOtherVisited.containsKey(rid)) {
+          // THE TWO SIDES MEET
+          meetingVertex = v;
+          return next;
+        }
+        next.add(v);
+      }
+    return next;
   }
 
   @Override
@@ -77,7 +163,7 @@ public class OSQLFunctionShortestPath extends OSQLFunctionPathFinder<Integer> {
     if (destination == null)
       return Integer.MAX_VALUE;
 
-    final Integer d = distance.get(destination);
+    final Integer d = distance.get(getIdentity(destination));
     return d == null ? Integer.MAX_VALUE : d;
   }
 
@@ -86,7 +172,7 @@ public class OSQLFunctionShortestPath extends OSQLFunctionPathFinder<Integer> {
     return MIN;
   }
 
-  protected Integer getDistance(final Vertex node, final Vertex target) {
+  protected Integer getDistance(final Vertex node, final Vertex target, final Edge edge) {
     return DISTANCE;
   }
 
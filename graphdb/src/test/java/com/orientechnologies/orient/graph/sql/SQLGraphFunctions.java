@@ -27,8 +27,11 @@ import com.tinkerpop.blueprints.impls.orient.OrientVertex;
 
 @Test
 public class SQLGraphFunctions {
-  private OrientGraph graph;
-  private String      url;
+  private OrientGraph  graph;
+  private String       url;
+  private OrientVertex v1;
+  private OrientVertex v4;
+  private OrientVertex v5;
 
   public SQLGraphFunctions() {
     this("memory:testgraph");
@@ -38,11 +41,11 @@ public class SQLGraphFunctions {
     url = iURL;
     graph = new OrientGraph(iURL);
 
-    OrientVertex v1 = graph.addVertex(null, "name", "A");
+    v1 = graph.addVertex(null, "name", "A");
     OrientVertex v2 = graph.addVertex(null, "name", "B");
     OrientVertex v3 = graph.addVertex(null, "name", "C");
-    OrientVertex v4 = graph.addVertex(null, "name", "D");
-    OrientVertex v5 = graph.addVertex(null, "name", "E");
+    v4 = graph.addVertex(null, "name", "D");
+    v5 = graph.addVertex(null, "name", "E");
     OrientVertex v6 = graph.addVertex(null, "name", "F");
 
     v1.addEdge(null, v2, null, null, "weight", 10);
@@ -51,6 +54,7 @@ public class SQLGraphFunctions {
     v4.addEdge(null, v5, null, null, "weight", 40);
     v5.addEdge(null, v6, null, null, "weight", 50);
     v5.addEdge(null, v1, null, null, "weight", 100);
+    v1.addEdge(null, v4, null, null, "weight", 100);
 
     graph.commit();
   }
@@ -65,4 +69,36 @@ public class SQLGraphFunctions {
           + ((Collection<ODocument>) d.field("$target")).iterator().next().field("name") + " is: " + d.field("path"));
     }
   }
+
+  public void checkDijkstraWeights() {
+    // THE DIRECT EDGE A->D WEIGHTS MORE THAN A->B->C->D
+    Assert.assertEquals(path("dijkstra(" + v1.getIdentity() + ", " + v4.getIdentity() + ", 'weight')"), "ABCD");
+    Assert.assertEquals(path("dijkstra(" + v4.getIdentity() + ", " + v1.getIdentity() + ", 'weight')"), "DEA");
+    Assert.assertEquals(path("dijkstra(" + v4.getIdentity() + ", " + v1.getIdentity() + ", 'weight', 'in')"), "DCBA");
+  }
+
+  public void checkShortestPath() {
+    Assert.assertEquals(path("shortestPath(" + v1.getIdentity() + ", " + v5.getIdentity() + ")"), "ADE");
+    Assert.assertEquals(path("shortestPath(" + v5.getIdentity() + ", " + v4.getIdentity() + ")"), "EAD");
+    Assert.assertEquals(path("shortestPath(" + v1.getIdentity() + ", " + v5.getIdentity() + ", 'both')"), "AE");
+    Assert.assertEquals(path("shortestPath(" + v4.getIdentity() + ", " + v1.getIdentity() + ", 'in')"), "DA");
+  }
+
+  public void checkShortestPathMaxDepth() {
+    Assert.assertEquals(path("shortestPath(" + v5.getIdentity() + ", " + v4.getIdentity() + ", 'out', 2)"), "EAD");
+    Assert.assertNull(path("shortestPath(" + v5.getIdentity() + ", " + v4.getIdentity() + ", 'out', 1)"));
+  }
+
+  private String path(final String iFunction) {
+    final Iterable<ODocument> result = graph.command(
+        new OSQLSynchQuery<ODocument>("select " + iFunction + " as path from V limit 1")).execute();
+    final Collection<OrientVertex> path = result.iterator().next().field("path");
+    if (path == null)
+      return null;
+
+    final StringBuilder names = new StringBuilder();
+    for (OrientVertex v : path)
+      names.append((String) v.getProperty("name"));
+    return names.toString();
+  }
 }
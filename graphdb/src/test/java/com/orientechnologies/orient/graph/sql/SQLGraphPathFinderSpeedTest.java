@@ -0,0 +1,86 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.graph.sql;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+import com.tinkerpop.blueprints.impls.orient.OrientVertex;
+
+/**
+ * Measures dijkstra() and shortestPath() between random vertices of generated routing graphs: every vertex is linked to the next
+ * one and to two random vertices with random weights. Pass the amounts of vertices as arguments, by default 10^5 and 10^6.
+ */
+@Test(enabled = false)
+public class SQLGraphPathFinderSpeedTest {
+  private static final int QUERIES = 20;
+
+  public static void main(String[] args) {
+    final int[] vertices = args.length > 0 ? new int[args.length] : new int[] { 100000, 1000000 };
+    for (int i = 0; i < args.length; i++)
+      vertices[i] = Integer.parseInt(args[i]);
+
+    for (int n : vertices)
+      run(n);
+  }
+
+  private static void run(final int n) {
+    final Random random = new Random(n);
+    final OrientGraphNoTx graph = new OrientGraphNoTx("memory:pathFinderSpeedTest" + n);
+    try {
+      long start = System.currentTimeMillis();
+
+      final ORID[] rids = new ORID[n];
+      for (int i = 0; i < n; i++)
+        rids[i] = graph.addVertex(null, "num", i).getIdentity();
+
+      for (int i = 0; i < n; i++) {
+        final OrientVertex v = graph.getVertex(rids[i]);
+        v.addEdge("E", graph.getVertex(rids[(i + 1) % n]), null, null, "weight", 1 + random.nextInt(10));
+        v.addEdge("E", graph.getVertex(rids[random.nextInt(n)]), null, null, "weight", 10 + random.nextInt(90));
+        v.addEdge("E", graph.getVertex(rids[random.nextInt(n)]), null, null, "weight", 10 + random.nextInt(90));
+      }
+
+      System.out.println(String.format("vertices: %d, edges: %d, created in %dms", n, n * 3, System.currentTimeMillis() - start));
+
+      for (String function : new String[] { "dijkstra(%s, %s, 'weight')", "shortestPath(%s, %s)" }) {
+        long hops = 0;
+        start = System.currentTimeMillis();
+        for (int q = 0; q < QUERIES; q++) {
+          final String query = "select " + String.format(function, rids[random.nextInt(n)], rids[random.nextInt(n)])
+              + " as path from " + rids[0];
+          final List<ODocument> result = graph.getRawGraph().query(new OSQLSynchQuery<ODocument>(query));
+          for (ODocument doc : result) {
+            final Collection<?> path = doc.field("path");
+            if (path != null)
+              hops += path.size() - 1;
+          }
+        }
+        System.out.println(String.format("function: %s, vertices: %d, avg ms: %.2f, avg hops: %.1f", function, n,
+            (System.currentTimeMillis() - start) / (float) QUERIES, hops / (float) QUERIES));
+      }
+    } finally {
+      graph.drop();
+    }
+  }
+}
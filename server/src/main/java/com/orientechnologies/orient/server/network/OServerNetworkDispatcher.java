@@ -0,0 +1,203 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.server.network.protocol.binary.OBinaryNetworkProtocolAbstract;
+
+/**
+ * Serves binary connections without a thread per connection. Idle connections are registered in a selector whose thread
+ * accumulates the received bytes, only when a request has been received completely the connection is handed to a bounded pool of
+ * workers which executes it and all the complete requests received after it, then the connection goes back to the selector. Slow
+ * clients never hold a worker: the workers decode the requests from memory without waiting for the network.
+ * <p>
+ * When all the workers are busy and their queue is full the connection waits in a backlog, without reading from it, until a worker
+ * is free: the clients of the server slow down by the flow control of TCP.
+ */
+public class OServerNetworkDispatcher extends Thread {
+  private final Selector                              selector;
+  private final ThreadPoolExecutor                    workers;
+  private final Queue<OBinaryNetworkProtocolAbstract> pending = new ConcurrentLinkedQueue<OBinaryNetworkProtocolAbstract>();
+  private final Queue<OBinaryNetworkProtocolAbstract> backlog = new ConcurrentLinkedQueue<OBinaryNetworkProtocolAbstract>();
+  private volatile boolean                            active  = true;
+
+  public OServerNetworkDispatcher(final String iName, final int iWorkers, final int iQueueSize) throws IOException {
+    super(Orient.instance().getThreadGroup(), iName + " dispatcher");
+    setDaemon(true);
+
+    selector = Selector.open();
+
+    final AtomicInteger workerId = new AtomicInteger();
+    workers = new ThreadPoolExecutor(iWorkers, iWorkers, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(iQueueSize),
+        new ThreadFactory() {
+          public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(Orient.instance().getThreadGroup(), r, iName + " worker #"
+                + workerId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+
+    start();
+  }
+
+  /**
+   * Waits for the next request of the connection. The protocol must be already configured.
+   */
+  public void register(final OBinaryNetworkProtocolAbstract iProtocol) {
+    if (!active) {
+      iProtocol.shutdown();
+      return;
+    }
+
+    pending.add(iProtocol);
+    selector.wakeup();
+  }
+
+  public void shutdown() {
+    active = false;
+    selector.wakeup();
+  }
+
+  @Override
+  public void run() {
+    try {
+      while (active) {
+        selector.select();
+
+        registerPending();
+
+        for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext();) {
+          final SelectionKey key = it.next();
+          it.remove();
+
+          if (!key.isValid())
+            continue;
+
+          final OBinaryNetworkProtocolAbstract protocol = (OBinaryNetworkProtocolAbstract) key.attachment();
+          if (!protocol.receive())
+            // PARTIAL REQUEST: WAIT FOR THE REST
+            continue;
+
+          // STOP WATCHING THE CONNECTION WHILE A WORKER IS READING FROM IT
+          key.interestOps(0);
+          dispatch(protocol);
+        }
+      }
+    } catch (Throwable t) {
+      if (active)
+        OLogManager.instance().error(this, "Error on dispatching requests of client connections", t);
+    } finally {
+      close();
+    }
+  }
+
+  private void dispatch(final OBinaryNetworkProtocolAbstract iProtocol) {
+    try {
+      workers.execute(new ORequestTask(iProtocol));
+    } catch (RejectedExecutionException e) {
+      if (!active || workers.isShutdown()) {
+        iProtocol.shutdown();
+        return;
+      }
+
+      // ALL THE WORKERS ARE BUSY: THE CONNECTION IS SERVED BY THE FIRST ONE THAT GETS FREE
+      backlog.add(iProtocol);
+    }
+  }
+
+  private void registerPending() {
+    OBinaryNetworkProtocolAbstract protocol;
+    while ((protocol = pending.poll()) != null) {
+      final SocketChannel channel = protocol.getChannel().socket.getChannel();
+      try {
+        final SelectionKey key = channel.keyFor(selector);
+        if (key == null)
+          channel.register(selector, SelectionKey.OP_READ, protocol);
+        else
+          key.interestOps(SelectionKey.OP_READ);
+      } catch (ClosedChannelException e) {
+        protocol.shutdown();
+      } catch (CancelledKeyException e) {
+        protocol.shutdown();
+      }
+    }
+  }
+
+  private void close() {
+    // CLOSE THE CONNECTIONS WAITING FOR A WORKER, THE ONES IN PROGRESS ARE CLOSED BY THE WORKERS ONCE INTERRUPTED
+    for (Runnable task : workers.shutdownNow())
+      ((ORequestTask) task).protocol.shutdown();
+
+    // CLOSE THE IDLE CONNECTIONS
+    for (SelectionKey key : selector.keys())
+      if (key.isValid() && key.interestOps() != 0)
+        ((OBinaryNetworkProtocolAbstract) key.attachment()).shutdown();
+
+    OBinaryNetworkProtocolAbstract protocol;
+    while ((protocol = pending.poll()) != null)
+      protocol.shutdown();
+    while ((protocol = backlog.poll()) != null)
+      protocol.shutdown();
+
+    try {
+      selector.close();
+    } catch (IOException e) {
+    }
+  }
+
+  private class ORequestTask implements Runnable {
+    private final OBinaryNetworkProtocolAbstract protocol;
+
+    private ORequestTask(final OBinaryNetworkProtocolAbstract iProtocol) {
+      protocol = iProtocol;
+    }
+
+    public void run() {
+      serve(protocol);
+
+      // SERVE THE CONNECTIONS REJECTED WHILE THE WORKERS WERE BUSY
+      OBinaryNetworkProtocolAbstract next;
+      while ((next = backlog.poll()) != null)
+        if (active)
+          serve(next);
+        else
+          next.shutdown();
+    }
+
+    private void serve(final OBinaryNetworkProtocolAbstract iProtocol) {
+      if (iProtocol.executeAvailableRequests())
+        register(iProtocol);
+    }
+  }
+}
@@ -24,6 +24,7 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.nio.channels.ServerSocketChannel;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -38,6 +39,7 @@ import com.orientechnologies.orient.server.OServer;
 import com.orientechnologies.orient.server.config.OServerCommandConfiguration;
 import com.orientechnologies.orient.server.config.OServerParameterConfiguration;
 import com.orientechnologies.orient.server.network.protocol.ONetworkProtocol;
+import com.orientechnologies.orient.server.network.protocol.binary.OBinaryNetworkProtocolAbstract;
 import com.orientechnologies.orient.server.network.protocol.http.command.OServerCommand;
 
 public class OServerNetworkListener extends Thread {
@@ -52,6 +54,7 @@ public class OServerNetworkListener extends Thread {
   private OServer                           server;
   private ONetworkProtocol                  protocol;
   private int                               protocolVersion   = -1;
+  private OServerNetworkDispatcher          dispatcher;
 
   public OServerNetworkListener(final OServer iServer, final String iHostName, final String iHostPortRange,
       final String iProtocolName, final Class<? extends ONetworkProtocol> iProtocol,
@@ -69,11 +72,24 @@ public class OServerNetworkListener extends Thread {
           protocolType);
     }
 
-    listen(iHostName, iHostPortRange, iProtocolName);
     protocolType = iProtocol;
-
     readParameters(iServer.getContextConfiguration(), iParameters);
 
+    final boolean nio = configuration.getValueAsBoolean(OGlobalConfiguration.NETWORK_BINARY_NIO_ENABLED)
+        && OBinaryNetworkProtocolAbstract.class.isAssignableFrom(iProtocol);
+
+    listen(iHostName, iHostPortRange, iProtocolName, nio);
+
+    if (nio)
+      try {
+        dispatcher = new OServerNetworkDispatcher("OrientDB " + iProtocol.getSimpleName() + " " + iHostName + ":"
+            + serverSocket.getLocalPort(), configuration.getValueAsInteger(OGlobalConfiguration.NETWORK_BINARY_NIO_WORKERS),
+            configuration.getValueAsInteger(OGlobalConfiguration.NETWORK_BINARY_NIO_QUEUE));
+      } catch (IOException e) {
+        OLogManager.instance().error(this, "Unable to open the selector of binary connections", e);
+        System.exit(1);
+      }
+
     if (iCommands != null) {
       for (int i = 0; i < iCommands.length; ++i) {
         if (iCommands[i].stateful)
@@ -96,6 +112,9 @@ public class OServerNetworkListener extends Thread {
       protocol = null;
     }
 
+    if (dispatcher != null)
+      dispatcher.shutdown();
+
     if (serverSocket != null)
       try {
         serverSocket.close();
@@ -108,14 +127,25 @@ public class OServerNetworkListener extends Thread {
    * 
    * @param iHostPortRange
    * @param iHostName
+   * @param iNio
+   *          binds the socket through a channel, so the accepted connections can be served by a selector
    */
-  private void listen(final String iHostName, final String iHostPortRange, final String iProtocolName) {
+  private void listen(final String iHostName, final String iHostPortRange, final String iProtocolName, final boolean iNio) {
     final int[] ports = getPorts(iHostPortRange);
 
     for (int port : ports) {
       inboundAddr = new InetSocketAddress(iHostName, port);
       try {
-        serverSocket = new java.net.ServerSocket(port, 0, InetAddress.getByName(iHostName));
+        if (iNio) {
+          serverSocket = ServerSocketChannel.open().socket();
+          try {
+            serverSocket.bind(new InetSocketAddress(InetAddress.getByName(iHostName), port), 0);
+          } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+          }
+        } else
+          serverSocket = new java.net.ServerSocket(port, 0, InetAddress.getByName(iHostName));
 
         if (serverSocket.isBound()) {
           OLogManager.instance().info(
@@ -173,12 +203,22 @@ public class OServerNetworkListener extends Thread {
           // CREATE A NEW PROTOCOL INSTANCE
           protocol = protocolType.newInstance();
 
+          if (dispatcher != null) {
+            // THE CONNECTION WILL BE SERVED BY THE DISPATCHER INSTEAD OF ITS OWN THREAD
+            socket.getChannel().configureBlocking(false);
+            ((OBinaryNetworkProtocolAbstract) protocol).setDispatcher(dispatcher);
+          }
+
           // CONFIGURE THE PROTOCOL FOR THE INCOMING CONNECTION
           protocol.config(server, socket, configuration, statelessCommands, statefulCommands);
 
         } catch (Throwable e) {
           if (active)
             OLogManager.instance().error(this, "Error on client connection", e);
+
+          if (serverSocket.isClosed())
+            // A CHANNEL INTERRUPTED WHILE ACCEPTING IS CLOSED: NO MORE CONNECTIONS CAN ARRIVE
+            break;
         } finally {
         }
       }
@@ -49,10 +49,12 @@ import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstrac
 import com.orientechnologies.orient.core.version.ORecordVersion;
 import com.orientechnologies.orient.core.version.OVersionFactory;
 import com.orientechnologies.orient.enterprise.channel.OChannel;
+import com.orientechnologies.orient.enterprise.channel.OSocketChannelInputStream;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryServer;
 import com.orientechnologies.orient.enterprise.channel.binary.ONetworkProtocolException;
 import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.network.OServerNetworkDispatcher;
 import com.orientechnologies.orient.server.network.protocol.ONetworkProtocol;
 
 /**
@@ -62,11 +64,12 @@ import com.orientechnologies.orient.server.network.protocol.ONetworkProtocol;
  * 
  */
 public abstract class OBinaryNetworkProtocolAbstract extends ONetworkProtocol {
-  protected OChannelBinaryServer channel;
-  protected int                  requestType;
-  protected int                  clientTxId;
-  private final Level            logClientExceptions;
-  private final boolean          logClientFullStackTrace;
+  protected OChannelBinaryServer   channel;
+  protected int                    requestType;
+  protected int                    clientTxId;
+  private final Level              logClientExceptions;
+  private final boolean            logClientFullStackTrace;
+  private OServerNetworkDispatcher dispatcher;
 
   public OBinaryNetworkProtocolAbstract(final String iThreadName) {
     super(Orient.instance().getThreadGroup(), iThreadName);
@@ -145,6 +148,87 @@ public abstract class OBinaryNetworkProtocolAbstract extends ONetworkProtocol {
     }
   }
 
+  /**
+   * Reads the bytes received on the channel without waiting. Called by the selector thread of {@link OServerNetworkDispatcher}
+   * when the connection is readable.
+   * 
+   * @return true if a complete request has been received or the connection has been closed by the client, so a worker can serve
+   *         the connection without waiting for the network
+   */
+  public boolean receive() {
+    getInput().receive();
+    return nextRequest();
+  }
+
+  /**
+   * Executes the complete requests already received on the channel. Used by {@link OServerNetworkDispatcher} in place of the loop
+   * of the own thread when the connection is served by the selector.
+   * 
+   * @return true if the connection is still open and has to wait for the next request, otherwise false
+   */
+  public boolean executeAvailableRequests() {
+    try {
+      do {
+        execute();
+        // BYTES NOT READ BY A FAILED REQUEST CAN'T BE TAKEN AS THE NEXT ONE
+        getInput().skipToLimit();
+      } while (!isShutdownRequested() && nextRequest());
+    } catch (Throwable t) {
+      OLogManager.instance().error(this, "Error on executing request", t);
+      sendShutdown();
+    }
+
+    if (isShutdownRequested()) {
+      shutdown();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Makes readable the next complete request, or all the remaining bytes once the client closed the connection.
+   * 
+   * @return false if the next request has not been received completely
+   */
+  private boolean nextRequest() {
+    final OSocketChannelInputStream input = getInput();
+    final int position = input.getPosition();
+    final int size = input.getSize();
+
+    if (position < size) {
+      final int length = OBinaryRequestScanner.scan(input.getBuffer(), position, size);
+      if (length > -1) {
+        input.setLimit(position + length);
+        return true;
+      }
+    }
+
+    if (input.isEndOfStream()) {
+      input.setLimit(size);
+      return true;
+    }
+    return false;
+  }
+
+  private OSocketChannelInputStream getInput() {
+    return (OSocketChannelInputStream) channel.inStream;
+  }
+
+  public void setDispatcher(final OServerNetworkDispatcher iDispatcher) {
+    dispatcher = iDispatcher;
+  }
+
+  /**
+   * Starts to serve the requests of the connection by the own thread or, if a dispatcher was set, by the dispatcher's workers.
+   */
+  protected void startServing() {
+    if (dispatcher != null) {
+      startup();
+      dispatcher.register(this);
+    } else
+      start();
+  }
+
   @Override
   public void shutdown() {
     channel.close();
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.protocol.binary;
+
+import com.orientechnologies.orient.core.db.record.ORecordOperation;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
+import com.orientechnologies.orient.core.version.OVersionFactory;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
+import com.orientechnologies.orient.server.OClientConnection;
+import com.orientechnologies.orient.server.OClientConnectionManager;
+
+/**
+ * Finds the end of a request of the binary protocol in the received bytes without decoding it. Requests have no length prefix, so
+ * the fields are skipped following the same layout read by {@link ONetworkProtocolBinary} for the protocol version of the session.
+ * Used to hand the requests to the workers of the dispatcher only when they have been received completely.
+ */
+public class OBinaryRequestScanner {
+  private final byte[] buffer;
+  private final int    end;
+  private int          position;
+  private boolean      incomplete;
+
+  private OBinaryRequestScanner(final byte[] iBuffer, final int iOffset, final int iEnd) {
+    buffer = iBuffer;
+    position = iOffset;
+    end = iEnd;
+  }
+
+  /**
+   * Returns the length of the request starting at the given offset.
+   *
+   * @param iBuffer
+   *          received bytes
+   * @param iOffset
+   *          position of the first byte of the request
+   * @param iEnd
+   *          position after the last received byte
+   * @return length of the request in bytes, -1 if it has not been received completely. Requests of unknown type take all the
+   *         received bytes, like they are discarded by the protocol.
+   */
+  public static int scan(final byte[] iBuffer, final int iOffset, final int iEnd) {
+    final OBinaryRequestScanner scanner = new OBinaryRequestScanner(iBuffer, iOffset, iEnd);
+    if (!scanner.scanRequest())
+      return iEnd - iOffset;
+
+    return scanner.incomplete ? -1 : scanner.position - iOffset;
+  }
+
+  /**
+   * @return false if the request type is unknown
+   */
+  private boolean scanRequest() {
+    final byte requestType = readByte();
+    final int sessionId = readInt();
+    if (incomplete)
+      return true;
+
+    short protocolVersion = getProtocolVersion(sessionId);
+
+    switch (requestType) {
+    case OChannelBinaryProtocol.REQUEST_DB_LIST:
+    case OChannelBinaryProtocol.REQUEST_DB_RELOAD:
+    case OChannelBinaryProtocol.REQUEST_DB_CLOSE:
+    case OChannelBinaryProtocol.REQUEST_DB_SIZE:
+    case OChannelBinaryProtocol.REQUEST_DB_COUNTRECORDS:
+    case OChannelBinaryProtocol.REQUEST_DATACLUSTER_LH_CLUSTER_IS_USED:
+    case OChannelBinaryProtocol.REQUEST_CONFIG_LIST:
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_SHUTDOWN:
+    case OChannelBinaryProtocol.REQUEST_DATASEGMENT_ADD:
+    case OChannelBinaryProtocol.REQUEST_CONFIG_SET:
+      skipString();
+      skipString();
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_CONNECT:
+      protocolVersion = skipConnectionData();
+      skipString();
+      skipString();
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_DB_OPEN:
+      protocolVersion = skipConnectionData();
+      skipString();
+      if (protocolVersion >= 8)
+        skipString();
+      skipString();
+      skipString();
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_DB_CREATE:
+      skipString();
+      if (protocolVersion >= 8)
+        skipString();
+      skipString();
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_DB_EXIST:
+    case OChannelBinaryProtocol.REQUEST_DB_DROP:
+    case OChannelBinaryProtocol.REQUEST_DB_FREEZE:
+    case OChannelBinaryProtocol.REQUEST_DB_RELEASE:
+      skipString();
+      if (protocolVersion >= 16)
+        skipString();
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_DB_COPY:
+      for (int i = 0; i < 5; ++i)
+        skipString();
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_REPLICATION:
+    case OChannelBinaryProtocol.REQUEST_CLUSTER:
+      skipBytes();
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_DATASEGMENT_DROP:
+    case OChannelBinaryProtocol.REQUEST_COUNT:
+    case OChannelBinaryProtocol.REQUEST_CONFIG_GET:
+      skipString();
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_DATACLUSTER_COUNT:
+      skip(readShort() * OBinaryProtocol.SIZE_SHORT);
+      if (protocolVersion >= 13)
+        skip(OBinaryProtocol.SIZE_BYTE);
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_DATACLUSTER_DATARANGE:
+    case OChannelBinaryProtocol.REQUEST_DATACLUSTER_DROP:
+      skip(OBinaryProtocol.SIZE_SHORT);
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_DATACLUSTER_ADD:
+      final String type = readString();
+      skipString();
+      if (protocolVersion >= 10 || "PHYSICAL".equalsIgnoreCase(type))
+        skipString();
+      if (protocolVersion >= 10)
+        skipString();
+      else
+        skip(OBinaryProtocol.SIZE_INT);
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_DATACLUSTER_FREEZE:
+    case OChannelBinaryProtocol.REQUEST_DATACLUSTER_RELEASE:
+      skipString();
+      skip(OBinaryProtocol.SIZE_SHORT);
+      if (protocolVersion >= 16)
+        skipString();
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_RECORD_METADATA:
+      skipRID();
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_RECORD_LOAD:
+      skipRID();
+      skipString();
+      if (protocolVersion >= 9)
+        skip(OBinaryProtocol.SIZE_BYTE);
+      if (protocolVersion >= 13)
+        skip(OBinaryProtocol.SIZE_BYTE);
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_RECORD_CREATE:
+      if (protocolVersion >= 10)
+        skip(OBinaryProtocol.SIZE_INT);
+      skip(OBinaryProtocol.SIZE_SHORT);
+      skipBytes();
+      skip(OBinaryProtocol.SIZE_BYTE + OBinaryProtocol.SIZE_BYTE);
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_RECORD_UPDATE:
+      skipRID();
+      skipBytes();
+      skipVersion();
+      skip(OBinaryProtocol.SIZE_BYTE + OBinaryProtocol.SIZE_BYTE);
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_RECORD_DELETE:
+    case OChannelBinaryProtocol.REQUEST_RECORD_CLEAN_OUT:
+      skipRID();
+      skipVersion();
+      skip(OBinaryProtocol.SIZE_BYTE);
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_POSITIONS_HIGHER:
+    case OChannelBinaryProtocol.REQUEST_POSITIONS_CEILING:
+    case OChannelBinaryProtocol.REQUEST_POSITIONS_LOWER:
+    case OChannelBinaryProtocol.REQUEST_POSITIONS_FLOOR:
+      skip(OBinaryProtocol.SIZE_INT + OClusterPositionFactory.INSTANCE.getSerializedSize());
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_COMMAND:
+      skip(OBinaryProtocol.SIZE_BYTE);
+      skipBytes();
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_TX_COMMIT:
+      return skipTransaction();
+
+    default:
+      return false;
+    }
+
+    return true;
+  }
+
+  private boolean skipTransaction() {
+    // TX ID AND USING LOG
+    skip(OBinaryProtocol.SIZE_INT + OBinaryProtocol.SIZE_BYTE);
+
+    byte txStatus;
+    for (txStatus = readByte(); txStatus == 1 && !incomplete; txStatus = readByte()) {
+      final byte recordStatus = readByte();
+      skipRID();
+      // RECORD TYPE
+      skip(OBinaryProtocol.SIZE_BYTE);
+      if (incomplete)
+        return true;
+
+      switch (recordStatus) {
+      case ORecordOperation.CREATED:
+        skipBytes();
+        break;
+
+      case ORecordOperation.UPDATED:
+        skipVersion();
+        skipBytes();
+        break;
+
+      case ORecordOperation.DELETED:
+        skipVersion();
+        break;
+
+      default:
+        // THE TRANSACTION IS REFUSED AND THE REST OF THE REQUEST CAN NOT BE DECODED
+        return false;
+      }
+    }
+
+    if (txStatus != -1)
+      // INDEX CHANGES, NOT SENT BY ABORTED TRANSACTIONS
+      skipBytes();
+
+    return true;
+  }
+
+  private static short getProtocolVersion(final int iSessionId) {
+    if (iSessionId < 0)
+      // NEW CONNECTION: THE VERSION IS UNKNOWN TILL IT'S READ FROM THE REQUEST
+      return 0;
+
+    final OClientConnection connection = OClientConnectionManager.instance().getConnection(iSessionId);
+    return connection != null ? connection.data.protocolVersion : 0;
+  }
+
+  private short skipConnectionData() {
+    // DRIVER NAME AND VERSION
+    skipString();
+    skipString();
+    final short protocolVersion = readShort();
+    // CLIENT ID
+    skipString();
+    return protocolVersion;
+  }
+
+  private void skipRID() {
+    skip(OBinaryProtocol.SIZE_SHORT + OClusterPositionFactory.INSTANCE.getSerializedSize());
+  }
+
+  private void skipVersion() {
+    if (OVersionFactory.instance().isDistributed())
+      skip(OBinaryProtocol.SIZE_INT + OBinaryProtocol.SIZE_LONG + OBinaryProtocol.SIZE_LONG);
+    else
+      skip(OBinaryProtocol.SIZE_INT);
+  }
+
+  private void skipString() {
+    skipBytes();
+  }
+
+  private void skipBytes() {
+    final int length = readInt();
+    if (length > 0)
+      skip(length);
+  }
+
+  private String readString() {
+    final int length = readInt();
+    if (length < 0 || !available(length))
+      return null;
+
+    final String value = new String(buffer, position, length);
+    position += length;
+    return value;
+  }
+
+  private byte readByte() {
+    if (!available(OBinaryProtocol.SIZE_BYTE))
+      return 0;
+    return buffer[position++];
+  }
+
+  private short readShort() {
+    if (!available(OBinaryProtocol.SIZE_SHORT))
+      return 0;
+    final short value = OBinaryProtocol.bytes2short(buffer, position);
+    position += OBinaryProtocol.SIZE_SHORT;
+    return value;
+  }
+
+  private int readInt() {
+    if (!available(OBinaryProtocol.SIZE_INT))
+      return 0;
+    final int value = OBinaryProtocol.bytes2int(buffer, position);
+    position += OBinaryProtocol.SIZE_INT;
+    return value;
+  }
+
+  private void skip(final int iBytes) {
+    if (available(iBytes))
+      position += iBytes;
+  }
+
+  private boolean available(final int iBytes) {
+    if (incomplete || iBytes < 0 || end - position < iBytes) {
+      incomplete = true;
+      return false;
+    }
+    return true;
+  }
+}
@@ -105,7 +105,7 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
     channel.writeShort((short) OChannelBinaryProtocol.CURRENT_PROTOCOL_VERSION);
 
     channel.flush();
-    start();
+    startServing();
 
     setName("OrientDB <- BinaryClient (" + iSocket.getRemoteSocketAddress() + ")");
   }
@@ -1075,7 +1075,7 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
       return;
 
     final OTransactionOptimisticProxy tx = new OTransactionOptimisticProxy((ODatabaseRecordTx) connection.database.getUnderlying(),
-        channel);
+        channel, connection.data.protocolVersion);
 
     try {
       connection.database.begin(tx);
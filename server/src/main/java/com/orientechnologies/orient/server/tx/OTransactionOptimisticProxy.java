@@ -24,7 +24,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import com.orientechnologies.common.collection.OCompositeKey;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecordTx;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ORecordLazyList;
@@ -40,8 +39,10 @@ import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
-import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerAnyStreamable;
 import com.orientechnologies.orient.core.tx.OTransactionIndexChanges;
+import com.orientechnologies.orient.core.tx.OTransactionIndexChangesPerKey;
+import com.orientechnologies.orient.core.tx.OTransactionIndexChangesPerKey.OTransactionIndexEntry;
+import com.orientechnologies.orient.core.tx.OTransactionIndexChangesSerializer;
 import com.orientechnologies.orient.core.tx.OTransactionOptimistic;
 import com.orientechnologies.orient.core.tx.OTransactionRealAbstract;
 import com.orientechnologies.orient.core.version.OVersionFactory;
@@ -53,10 +54,13 @@ public class OTransactionOptimisticProxy extends OTransactionOptimistic {
   private final Map<ORecordId, ORecordInternal<?>> updatedRecords = new HashMap<ORecordId, ORecordInternal<?>>();
   private final int                                clientTxId;
   private final OChannelBinary                     channel;
+  private final int                                protocolVersion;
 
-  public OTransactionOptimisticProxy(final ODatabaseRecordTx iDatabase, final OChannelBinary iChannel) throws IOException {
+  public OTransactionOptimisticProxy(final ODatabaseRecordTx iDatabase, final OChannelBinary iChannel, final int iProtocolVersion)
+      throws IOException {
     super(iDatabase);
     channel = iChannel;
+    protocolVersion = iProtocolVersion;
     clientTxId = iChannel.readInt();
   }
 
@@ -106,8 +110,10 @@ public class OTransactionOptimisticProxy extends OTransactionOptimistic {
         // ABORT TX
         throw new OTransactionAbortedException("Transaction aborted by the client");
 
-      final ODocument remoteIndexEntries = new ODocument(channel.readBytes());
-      fillIndexOperations(remoteIndexEntries);
+      if (protocolVersion >= 18)
+        fillIndexOperations(OTransactionIndexChangesSerializer.INSTANCE.fromStream(channel.readBytes()));
+      else
+        fillIndexOperations(new ODocument(channel.readBytes()));
 
       // FIRE THE TRIGGERS ONLY AFTER HAVING PARSED THE REQUEST
       for (Entry<ORID, ORecordOperation> entry : tempEntries.entrySet()) {
@@ -192,20 +198,8 @@ public class OTransactionOptimisticProxy extends OTransactionOptimistic {
         try {
           if (serializedKey.equals("*"))
             key = null;
-          else {
-            final ODocument keyContainer = new ODocument();
-            keyContainer.setLazyLoad(false);
-
-            keyContainer.fromString(serializedKey);
-
-            final Object storedKey = keyContainer.field("key");
-            if (storedKey instanceof List)
-              key = new OCompositeKey((List<? extends Comparable<?>>) storedKey);
-            else if (Boolean.TRUE.equals(keyContainer.field("binary"))) {
-              key = OStreamSerializerAnyStreamable.INSTANCE.fromStream((byte[]) storedKey);
-            } else
-              key = storedKey;
-          }
+          else
+            key = OTransactionIndexChangesSerializer.INSTANCE.keyFromString(serializedKey);
         } catch (IOException ioe) {
           throw new OTransactionException("Error during index changes deserialization. ", ioe);
         }
@@ -215,27 +209,57 @@ public class OTransactionOptimisticProxy extends OTransactionOptimistic {
           final OTransactionIndexChanges.OPERATION indexOperation = OTransactionIndexChanges.OPERATION.values()[operation];
           final OIdentifiable value = op.field("v", OType.LINK);
 
-          if (key != null)
-            transactionIndexChanges.getChangesPerKey(key).add(value, indexOperation);
-          else
-            transactionIndexChanges.getChangesCrossKey().add(value, indexOperation);
+          addIndexOperation(indexName, transactionIndexChanges, key, value, indexOperation);
+        }
+      }
+    }
+  }
 
-          if (value == null)
-            continue;
+  private void fillIndexOperations(final Map<String, OTransactionIndexChanges> remoteIndexEntries) {
+    for (Entry<String, OTransactionIndexChanges> indexEntry : remoteIndexEntries.entrySet()) {
+      final String indexName = indexEntry.getKey();
+      final OTransactionIndexChanges remoteChanges = indexEntry.getValue();
 
-          final ORID rid = value.getIdentity();
-          List<OTransactionRecordIndexOperation> txIndexOperations = recordIndexOperations.get(rid);
-          if (txIndexOperations == null) {
-            txIndexOperations = new ArrayList<OTransactionRecordIndexOperation>();
-            recordIndexOperations.put(rid, txIndexOperations);
-          }
+      OTransactionIndexChanges transactionIndexChanges = indexEntries.get(indexName);
 
-          txIndexOperations.add(new OTransactionRecordIndexOperation(indexName, key, indexOperation));
-        }
+      if (transactionIndexChanges == null) {
+        transactionIndexChanges = new OTransactionIndexChanges();
+        indexEntries.put(indexName, transactionIndexChanges);
       }
+
+      if (remoteChanges.cleared)
+        transactionIndexChanges.setCleared();
+
+      if (remoteChanges.changesCrossKey != null)
+        for (OTransactionIndexEntry op : remoteChanges.changesCrossKey.entries)
+          addIndexOperation(indexName, transactionIndexChanges, null, op.value, op.operation);
+
+      for (OTransactionIndexChangesPerKey changesPerKey : remoteChanges.changesPerKey.values())
+        for (OTransactionIndexEntry op : changesPerKey.entries)
+          addIndexOperation(indexName, transactionIndexChanges, changesPerKey.key, op.value, op.operation);
     }
   }
 
+  private void addIndexOperation(final String indexName, final OTransactionIndexChanges transactionIndexChanges, final Object key,
+      final OIdentifiable value, final OTransactionIndexChanges.OPERATION indexOperation) {
+    if (key != null)
+      transactionIndexChanges.getChangesPerKey(key).add(value, indexOperation);
+    else
+      transactionIndexChanges.getChangesCrossKey().add(value, indexOperation);
+
+    if (value == null)
+      return;
+
+    final ORID rid = value.getIdentity();
+    List<OTransactionRecordIndexOperation> txIndexOperations = recordIndexOperations.get(rid);
+    if (txIndexOperations == null) {
+      txIndexOperations = new ArrayList<OTransactionRecordIndexOperation>();
+      recordIndexOperations.put(rid, txIndexOperations);
+    }
+
+    txIndexOperations.add(new OTransactionRecordIndexOperation(indexName, key, indexOperation));
+  }
+
   public Map<ORecordId, ORecordInternal<?>> getCreatedRecords() {
     return createdRecords;
   }
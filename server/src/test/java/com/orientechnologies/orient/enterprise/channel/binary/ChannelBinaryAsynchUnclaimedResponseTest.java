@@ -0,0 +1,114 @@
+package com.orientechnologies.orient.enterprise.channel.binary;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OContextConfiguration;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+
+@Test
+public class ChannelBinaryAsynchUnclaimedResponseTest {
+  private Object               maxTimes;
+  private ServerSocket         serverSocket;
+  private Socket               serverSide;
+  private DataOutputStream     serverOut;
+  private OChannelBinaryAsynch channel;
+
+  @BeforeMethod
+  public void beforeMethod() throws IOException {
+    maxTimes = OGlobalConfiguration.NETWORK_BINARY_READ_RESPONSE_MAX_TIMES.getValue();
+    OGlobalConfiguration.NETWORK_BINARY_READ_RESPONSE_MAX_TIMES.setValue(1);
+
+    serverSocket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+    final Socket clientSide = new Socket("127.0.0.1", serverSocket.getLocalPort());
+    serverSide = serverSocket.accept();
+    serverOut = new DataOutputStream(serverSide.getOutputStream());
+
+    final OContextConfiguration config = new OContextConfiguration();
+    config.setValue(OGlobalConfiguration.NETWORK_BINARY_MULTIPLEX, true);
+
+    channel = new OChannelBinaryAsynch(clientSide, config);
+    channel.in = new DataInputStream(clientSide.getInputStream());
+    channel.out = new DataOutputStream(clientSide.getOutputStream());
+    channel.startResponseDispatcher();
+  }
+
+  @AfterMethod
+  public void afterMethod() throws IOException {
+    channel.close();
+    serverSide.close();
+    serverSocket.close();
+    OGlobalConfiguration.NETWORK_BINARY_READ_RESPONSE_MAX_TIMES.setValue(maxTimes);
+  }
+
+  public void testClaimedResponse() throws Exception {
+    writeResponse(7, 42);
+
+    channel.beginResponse(7, 10000);
+    try {
+      Assert.assertEquals(channel.readInt(), 42);
+    } finally {
+      channel.endResponse();
+    }
+
+    // THE DISPATCHER IS READY FOR THE NEXT RESPONSE
+    writeResponse(7, 43);
+
+    channel.beginResponse(7, 10000);
+    try {
+      Assert.assertEquals(channel.readInt(), 43);
+    } finally {
+      channel.endResponse();
+    }
+  }
+
+  public void testUnclaimedResponseFailsWaitingRequesters() throws Exception {
+    final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+
+    // THIS REQUESTER WAITS WITHOUT TIMEOUT FOR A RESPONSE THAT NEVER COMES
+    final Thread requester = new Thread() {
+      @Override
+      public void run() {
+        try {
+          channel.beginResponse(1, 0);
+          channel.endResponse();
+        } catch (Throwable t) {
+          error.set(t);
+        }
+      }
+    };
+    requester.start();
+
+    // NOBODY WAITS FOR SESSION 99
+    writeResponse(99, 42);
+
+    requester.join(10000);
+    Assert.assertFalse(requester.isAlive());
+    Assert.assertTrue(error.get() instanceof IOException);
+    Assert.assertTrue(channel.socket.isClosed());
+
+    try {
+      channel.beginResponse(1, 0);
+      Assert.fail();
+    } catch (IOException e) {
+      // EXPECTED: THE CHANNEL IS DIRTY
+    }
+  }
+
+  private void writeResponse(final int iSessionId, final int iContent) throws IOException {
+    serverOut.writeByte(OChannelBinaryProtocol.RESPONSE_STATUS_OK);
+    serverOut.writeInt(iSessionId);
+    serverOut.writeInt(iContent);
+    serverOut.flush();
+  }
+}
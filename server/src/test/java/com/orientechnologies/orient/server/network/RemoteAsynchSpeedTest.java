@@ -0,0 +1,98 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.client.remote.OServerAdmin;
+import com.orientechnologies.orient.client.remote.OStorageRemoteThread;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.OServerMain;
+
+/**
+ * Measures the throughput of record loads executed by a single thread against a local server, waiting for every response or
+ * keeping an increasing amount of loads in flight through the asynchronous API of the remote storage.
+ */
+@Test(enabled = false)
+public class RemoteAsynchSpeedTest {
+  private static final String URL       = "remote:127.0.0.1:3700/remoteAsynchSpeedTest";
+  private static final int    RECORDS   = 1000;
+  private static final int    LOADS     = 20000;
+  private static final int[]  IN_FLIGHT = { 1, 16, 128, 512 };
+
+  public static void main(String[] args) throws Exception {
+    // EVERY LOAD GOES TO THE SERVER
+    OGlobalConfiguration.CACHE_LEVEL1_ENABLED.setValue(false);
+    OGlobalConfiguration.CACHE_LEVEL2_ENABLED.setValue(false);
+
+    final OServer server = OServerMain.create();
+    server.startup(RemoteAsynchSpeedTest.class
+        .getResourceAsStream("/com/orientechnologies/orient/server/network/multiplex-speed-config.xml"));
+    server.activate();
+
+    new OServerAdmin(URL).connect("root", "root").createDatabase("document", "memory").close();
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+    for (int i = 0; i < RECORDS; i++)
+      new ODocument("Account").field("id", i).field("name", "account" + i).save();
+    final int clusterId = db.getClusterIdByName("account");
+
+    long start = System.nanoTime();
+    for (int n = 0; n < LOADS; n++)
+      if (db.load(rid(clusterId, n)) == null)
+        throw new IllegalStateException("Record " + rid(clusterId, n) + " was not found");
+    print("synch", 1, System.nanoTime() - start);
+
+    final OStorageRemoteThread storage = (OStorageRemoteThread) db.getStorage();
+    for (int inFlight : IN_FLIGHT) {
+      final List<Future<ORawBuffer>> pending = new ArrayList<Future<ORawBuffer>>(inFlight);
+
+      start = System.nanoTime();
+      for (int n = 0; n < LOADS; n++) {
+        pending.add(storage.readRecordAsynch(rid(clusterId, n), null, false, null));
+
+        if (pending.size() == inFlight || n == LOADS - 1) {
+          for (Future<ORawBuffer> load : pending)
+            if (load.get() == null)
+              throw new IllegalStateException("Record was not found");
+          pending.clear();
+        }
+      }
+      print("asynch", inFlight, System.nanoTime() - start);
+    }
+
+    db.close();
+    server.shutdown();
+  }
+
+  private static ORecordId rid(final int clusterId, final int n) {
+    return new ORecordId(clusterId, OClusterPositionFactory.INSTANCE.valueOf(n % RECORDS));
+  }
+
+  private static void print(final String mode, final int inFlight, final long elapsed) {
+    System.out.println(String.format("mode: %s, in flight: %d, loads/s: %d", mode, inFlight, LOADS * 1000000000L / elapsed));
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.client.remote.OServerAdmin;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.OServerMain;
+
+/**
+ * Measures latency and throughput of record loads executed by increasing amount of threads against a local server through a single
+ * connection, with and without multiplexing of the responses ("network.binary.multiplex").
+ */
+@Test(enabled = false)
+public class RemoteMultiplexedChannelSpeedTest {
+  private static final String URL              = "remote:127.0.0.1:3700/remoteMultiplexedChannelSpeedTest";
+  private static final int    RECORDS          = 1000;
+  private static final int    LOADS_PER_THREAD = 5000;
+  private static final int[]  THREADS          = { 1, 4, 16, 64 };
+
+  public static void main(String[] args) throws Exception {
+    // EVERY LOAD GOES TO THE SERVER
+    OGlobalConfiguration.CACHE_LEVEL1_ENABLED.setValue(false);
+    OGlobalConfiguration.CACHE_LEVEL2_ENABLED.setValue(false);
+
+    final OServer server = OServerMain.create();
+    server.startup(RemoteMultiplexedChannelSpeedTest.class
+        .getResourceAsStream("/com/orientechnologies/orient/server/network/multiplex-speed-config.xml"));
+    server.activate();
+
+    // ALL THE THREADS SHARE THE SAME SOCKET
+    OGlobalConfiguration.CLIENT_CHANNEL_MIN_POOL.setValue(1);
+    OGlobalConfiguration.CLIENT_CHANNEL_MAX_POOL.setValue(1);
+
+    new OServerAdmin(URL).connect("root", "root").createDatabase("document", "memory").close();
+
+    ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+    for (int i = 0; i < RECORDS; i++)
+      new ODocument("Account").field("id", i).field("name", "account" + i).save();
+    final int clusterId = db.getClusterIdByName("account");
+    db.getStorage().close(true);
+
+    for (boolean multiplex : new boolean[] { false, true }) {
+      OGlobalConfiguration.NETWORK_BINARY_MULTIPLEX.setValue(multiplex);
+
+      for (int threads : THREADS)
+        run(multiplex, threads, clusterId);
+    }
+
+    server.shutdown();
+  }
+
+  private static void run(final boolean multiplex, final int threads, final int clusterId) throws Exception {
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final AtomicLong totalLatency = new AtomicLong();
+    final Thread[] workers = new Thread[threads];
+
+    final ODatabaseDocumentTx mainDb = new ODatabaseDocumentTx(URL).open("admin", "admin");
+
+    for (int i = 0; i < threads; i++) {
+      workers[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          final Random random = new Random();
+          final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+          try {
+            startLatch.await();
+
+            for (int n = 0; n < LOADS_PER_THREAD; n++) {
+              final ORecordId rid = new ORecordId(clusterId, OClusterPositionFactory.INSTANCE.valueOf(random.nextInt(RECORDS)));
+
+              final long start = System.nanoTime();
+              if (db.load(rid) == null)
+                throw new IllegalStateException("Record " + rid + " was not found");
+              totalLatency.addAndGet(System.nanoTime() - start);
+            }
+          } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+          } finally {
+            db.close();
+          }
+        }
+      });
+      workers[i].start();
+    }
+
+    final long start = System.nanoTime();
+    startLatch.countDown();
+
+    for (Thread worker : workers)
+      worker.join();
+
+    final long elapsed = System.nanoTime() - start;
+    final long loads = (long) threads * LOADS_PER_THREAD;
+
+    System.out.println(String.format("multiplex: %b, threads: %d, loads/s: %d, avg latency: %d us", multiplex, threads, loads
+        * 1000000000L / elapsed, totalLatency.get() / loads / 1000));
+
+    // CLOSE THE CONNECTION TO RE-OPEN IT WITH THE NEXT CONFIGURATION
+    mainDb.getStorage().close(true);
+  }
+}
@@ -0,0 +1,218 @@
+package com.orientechnologies.orient.server.network;
+
+import java.io.DataOutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.client.remote.OServerAdmin;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.OServerMain;
+
+/**
+ * Executes binary requests of concurrent sessions against a server which serves its connections by the selector and the worker
+ * pool of OServerNetworkDispatcher ("network.binary.nio.enabled"). There are more sessions and connections than workers.
+ */
+@Test
+public class RemoteNioDispatcherTest {
+  private static final String URL      = "remote:127.0.0.1:3701/remoteNioDispatcherTest";
+  private static final int    SESSIONS = 8;
+  private static final int    RECORDS  = 50;
+
+  private OServer             server;
+  private Object              minPool;
+  private Object              maxPool;
+
+  @BeforeClass
+  public void beforeClass() throws Exception {
+    server = OServerMain.create();
+    server.startup(RemoteNioDispatcherTest.class
+        .getResourceAsStream("/com/orientechnologies/orient/server/network/nio-dispatcher-config.xml"));
+    server.activate();
+
+    // EVERY SESSION CAN GET ITS OWN CONNECTION
+    minPool = OGlobalConfiguration.CLIENT_CHANNEL_MIN_POOL.getValue();
+    maxPool = OGlobalConfiguration.CLIENT_CHANNEL_MAX_POOL.getValue();
+    OGlobalConfiguration.CLIENT_CHANNEL_MIN_POOL.setValue(SESSIONS);
+    OGlobalConfiguration.CLIENT_CHANNEL_MAX_POOL.setValue(SESSIONS);
+
+    new OServerAdmin(URL).connect("root", "root").createDatabase("document", "memory").close();
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+    try {
+      db.getMetadata().getSchema().createClass("Item");
+    } finally {
+      db.close();
+    }
+  }
+
+  @AfterClass
+  public void afterClass() throws Exception {
+    new OServerAdmin(URL).connect("root", "root").dropDatabase("memory");
+    server.shutdown();
+
+    OGlobalConfiguration.CLIENT_CHANNEL_MIN_POOL.setValue(minPool);
+    OGlobalConfiguration.CLIENT_CHANNEL_MAX_POOL.setValue(maxPool);
+  }
+
+  public void testConcurrentSessions() throws Exception {
+    final CountDownLatch openLatch = new CountDownLatch(SESSIONS);
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+    final Thread[] sessions = new Thread[SESSIONS];
+
+    for (int s = 0; s < SESSIONS; ++s) {
+      final int session = s;
+      sessions[s] = new Thread() {
+        @Override
+        public void run() {
+          ODatabaseDocumentTx db = null;
+          try {
+            db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+            openLatch.countDown();
+            startLatch.await();
+            executeRequests(db, session);
+          } catch (Throwable t) {
+            errors.add(t);
+          } finally {
+            if (db != null)
+              db.close();
+          }
+        }
+      };
+      sessions[s].start();
+    }
+
+    openLatch.await(60, TimeUnit.SECONDS);
+    // ALL THE SESSIONS ARE OPEN: NO CONNECTION HAS ITS OWN THREAD
+    assertServedByDispatcher();
+
+    startLatch.countDown();
+    for (Thread session : sessions)
+      session.join(60000);
+
+    for (Thread session : sessions)
+      Assert.assertFalse(session.isAlive());
+
+    if (!errors.isEmpty())
+      throw new AssertionError(errors.get(0));
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+    try {
+      Assert.assertEquals(db.countClass("Item"), SESSIONS * RECORDS);
+
+      final List<ODocument> touched = db.query(new OSQLSynchQuery<ODocument>("select count(*) from Item where touched = true"));
+      Assert.assertEquals(((Number) touched.get(0).field("count")).intValue(), SESSIONS * RECORDS);
+    } finally {
+      db.close();
+    }
+  }
+
+  private void executeRequests(final ODatabaseDocumentTx db, final int session) {
+    final List<ORID> rids = new ArrayList<ORID>();
+    for (int i = 0; i < RECORDS; ++i)
+      rids.add(new ODocument("Item").field("session", session).field("id", i).field("name", "item" + session + "-" + i).save()
+          .getIdentity().copy());
+
+    db.getLevel1Cache().clear();
+    for (int i = 0; i < RECORDS; ++i) {
+      final ODocument doc = db.load(rids.get(i));
+      Assert.assertEquals(doc.field("session"), session);
+      Assert.assertEquals(doc.field("id"), i);
+      Assert.assertEquals(doc.field("name"), "item" + session + "-" + i);
+    }
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Item where session = ? order by id"),
+        session);
+    Assert.assertEquals(result.size(), RECORDS);
+    for (int i = 0; i < RECORDS; ++i)
+      Assert.assertEquals(result.get(i).field("id"), i);
+
+    final Number updated = db.command(new OCommandSQL("update Item set touched = true where session = ?")).execute(session);
+    Assert.assertEquals(updated.intValue(), RECORDS);
+
+    // A TRANSACTION CREATING, UPDATING AND DELETING RECORDS IS SENT AS A SINGLE REQUEST
+    db.getLevel1Cache().clear();
+    db.begin();
+    final ODocument created = new ODocument("Item").field("session", session).field("id", RECORDS).field("touched", true);
+    created.save();
+    final ODocument changed = db.load(rids.get(0));
+    changed.field("name", "changed").save();
+    final ODocument deleted = db.load(rids.get(1));
+    deleted.delete();
+    db.commit();
+
+    // THE POSITION OF THE DELETED RECORD CAN BE REUSED BY ANOTHER SESSION: CHECK BY QUERY
+    db.getLevel1Cache().clear();
+    final String byId = "select from Item where session = ? and id = ?";
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>(byId), session, RECORDS).size(), 1);
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>(byId), session, 1).size(), 0);
+    Assert.assertEquals(((ODocument) db.load(rids.get(0))).field("name"), "changed");
+  }
+
+  public void testPartialRequestsDoNotHoldWorkers() throws Exception {
+    final List<Socket> slowClients = new ArrayList<Socket>();
+    try {
+      // MORE CLIENTS THAN WORKERS SEND THE BEGINNING OF A REQUEST AND STOP
+      for (int i = 0; i < SESSIONS; ++i) {
+        final Socket socket = new Socket("127.0.0.1", 3701);
+        final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+        out.writeByte(OChannelBinaryProtocol.REQUEST_DB_OPEN);
+        out.writeInt(-1);
+        out.writeInt(10);
+        out.write("Ja".getBytes());
+        out.flush();
+        slowClients.add(socket);
+      }
+
+      final long start = System.currentTimeMillis();
+      final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+      try {
+        Assert.assertTrue(db.countClass("Item") >= 0);
+      } finally {
+        db.close();
+      }
+      Assert.assertTrue(System.currentTimeMillis() - start < OGlobalConfiguration.NETWORK_SOCKET_TIMEOUT.getValueAsInteger());
+    } finally {
+      for (Socket socket : slowClients)
+        socket.close();
+    }
+  }
+
+  private void assertServedByDispatcher() {
+    final Thread[] threads = new Thread[Thread.activeCount() * 2];
+    final int count = Thread.enumerate(threads);
+
+    boolean dispatcher = false;
+    int workers = 0;
+    for (int i = 0; i < count; ++i) {
+      final String name = threads[i].getName();
+      Assert.assertFalse(name.startsWith("OrientDB <- BinaryClient"), "Connection served by its own thread: " + name);
+
+      if (name.startsWith("OrientDB ONetworkProtocolBinary")) {
+        if (name.endsWith(" dispatcher"))
+          dispatcher = true;
+        else if (name.contains(" worker #"))
+          workers++;
+      }
+    }
+
+    Assert.assertTrue(dispatcher);
+    Assert.assertTrue(workers <= 4);
+  }
+}
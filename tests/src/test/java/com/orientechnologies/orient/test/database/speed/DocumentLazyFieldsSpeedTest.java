@@ -0,0 +1,91 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerSchemaAware2Binary;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
+
+/**
+ * Compares the throughput of loaded documents of increasing width when all the fields are unmarshalled against the access of one
+ * and of few fields, that unmarshalls only the accessed fields.
+ */
+@Test(enabled = false)
+public class DocumentLazyFieldsSpeedTest {
+  private static final int   WARMUP     = 20000;
+  private static final int   ITERATIONS = 100000;
+  private static final int[] FIELDS     = { 20, 100, 500 };
+
+  public static void main(String[] args) throws Exception {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:documentLazyFieldsSpeedTest").create();
+    try {
+      for (int fields : FIELDS) {
+        final ODocument doc = createDocument(fields);
+
+        for (ORecordSerializer serializer : new ORecordSerializer[] { ORecordSerializerSchemaAware2CSV.INSTANCE,
+            ORecordSerializerSchemaAware2Binary.INSTANCE }) {
+          final byte[] content = serializer.toStream(doc, false);
+          run(serializer, content, fields, new String[] {});
+          run(serializer, content, fields, new String[] { "field" + fields / 2 });
+          run(serializer, content, fields, new String[] { "field0", "field" + fields / 2, "field" + (fields - 1) });
+        }
+      }
+    } finally {
+      db.drop();
+    }
+  }
+
+  private static ODocument createDocument(final int fields) {
+    final ODocument doc = new ODocument("Wide");
+    for (int i = 0; i < fields; i++)
+      if (i % 2 == 0)
+        doc.field("field" + i, "value of the field number " + i);
+      else
+        doc.field("field" + i, i * 1000);
+    return doc;
+  }
+
+  /**
+   * Loads the document and reads the fields one by one, or all of them if no field is passed.
+   */
+  private static void run(final ORecordSerializer serializer, final byte[] content, final int fields, final String[] accessed) {
+    for (int n = 0; n < WARMUP; n++)
+      access(content, accessed);
+
+    final long start = System.nanoTime();
+    for (int n = 0; n < ITERATIONS; n++)
+      access(content, accessed);
+    final long elapsed = System.nanoTime() - start;
+
+    System.out.println(String.format("serializer: %s, fields: %d, accessed: %s, documents/s: %d", serializer, fields,
+        accessed.length == 0 ? "all" : String.valueOf(accessed.length), ITERATIONS * 1000000000L / elapsed));
+  }
+
+  private static Object access(final byte[] content, final String[] accessed) {
+    final ODocument doc = new ODocument().fromStream(content);
+    if (accessed.length == 0)
+      return doc.fieldNames();
+
+    Object value = null;
+    for (String field : accessed)
+      value = doc.field(field);
+    return value;
+  }
+}
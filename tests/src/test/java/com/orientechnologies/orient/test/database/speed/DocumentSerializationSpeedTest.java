@@ -0,0 +1,97 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.Date;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerSchemaAware2Binary;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
+
+/**
+ * Compares throughput of serialization and deserialization of documents with increasing amount of fields, and the size of the
+ * records produced, between the CSV and the binary record serializers.
+ */
+@Test(enabled = false)
+public class DocumentSerializationSpeedTest {
+  private static final int   WARMUP     = 20000;
+  private static final int   ITERATIONS = 200000;
+  private static final int[] FIELDS     = { 5, 20, 100 };
+
+  public static void main(String[] args) throws Exception {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:documentSerializationSpeedTest").create();
+    try {
+      for (int fields : FIELDS) {
+        final ODocument doc = createDocument(fields);
+
+        for (ORecordSerializer serializer : new ORecordSerializer[] { ORecordSerializerSchemaAware2CSV.INSTANCE,
+            ORecordSerializerSchemaAware2Binary.INSTANCE })
+          run(serializer, doc, fields);
+      }
+    } finally {
+      db.drop();
+    }
+  }
+
+  private static ODocument createDocument(final int fields) {
+    final ODocument doc = new ODocument("Account");
+    for (int i = 0; i < fields; i++)
+      switch (i % 5) {
+      case 0:
+        doc.field("name" + i, "value of the field number " + i);
+        break;
+      case 1:
+        doc.field("int" + i, i * 1000);
+        break;
+      case 2:
+        doc.field("long" + i, System.currentTimeMillis() + i);
+        break;
+      case 3:
+        doc.field("double" + i, i * 3.14);
+        break;
+      case 4:
+        doc.field("date" + i, new Date());
+        break;
+      }
+    return doc;
+  }
+
+  private static void run(final ORecordSerializer serializer, final ODocument doc, final int fields) {
+    byte[] content = null;
+    for (int n = 0; n < WARMUP; n++)
+      content = serializer.toStream(doc, false);
+
+    long start = System.nanoTime();
+    for (int n = 0; n < ITERATIONS; n++)
+      content = serializer.toStream(doc, false);
+    final long serialize = ITERATIONS * 1000000000L / (System.nanoTime() - start);
+
+    for (int n = 0; n < WARMUP; n++)
+      serializer.fromStream(content, new ODocument(), null);
+
+    start = System.nanoTime();
+    for (int n = 0; n < ITERATIONS; n++)
+      serializer.fromStream(content, new ODocument(), null);
+    final long deserialize = ITERATIONS * 1000000000L / (System.nanoTime() - start);
+
+    System.out.println(String.format("serializer: %s, fields: %d, bytes: %d, serialized/s: %d, deserialized/s: %d", serializer,
+        fields, content.length, serialize, deserialize));
+  }
+}
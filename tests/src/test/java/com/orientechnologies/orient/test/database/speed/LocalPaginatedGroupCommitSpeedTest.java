@@ -0,0 +1,106 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Stress test which commits small transactions from increasing amount of threads against plocal storage. Run it with
+ * "-Dstorage.wal.groupCommit=true" and without it to compare how commit throughput scales with amount of threads.
+ */
+@Test(enabled = false)
+public class LocalPaginatedGroupCommitSpeedTest {
+  private static final int   TX_PER_THREAD = 2000;
+  private static final int[] THREADS       = { 1, 2, 4, 8, 16, 32 };
+
+  public static void main(String[] args) throws Exception {
+    String url = System.getProperty("url");
+    if (url == null)
+      url = "plocal:" + System.getProperty("java.io.tmpdir") + "/groupCommitSpeedTest";
+
+    System.out.println("Group commit is " + (OGlobalConfiguration.WAL_GROUP_COMMIT.getValueAsBoolean() ? "enabled" : "disabled"));
+
+    for (int threads : THREADS) {
+      ODatabaseDocumentTx database = new ODatabaseDocumentTx(url);
+      if (database.exists()) {
+        database.open("admin", "admin");
+        database.drop();
+      }
+
+      database.create();
+      database.getMetadata().getSchema().createClass("Account");
+      database.close();
+
+      final long txCount = run(url, threads);
+
+      database = new ODatabaseDocumentTx(url).open("admin", "admin");
+      database.drop();
+
+      System.out.println(String.format("threads: %d, tx/s: %d", threads, txCount));
+    }
+  }
+
+  private static long run(final String url, int threads) throws InterruptedException {
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final Thread[] workers = new Thread[threads];
+
+    for (int i = 0; i < threads; i++) {
+      final int threadId = i;
+      workers[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url).open("admin", "admin");
+          try {
+            startLatch.await();
+
+            for (int n = 0; n < TX_PER_THREAD; n++) {
+              db.begin();
+
+              final ODocument account = new ODocument("Account");
+              account.field("thread", threadId);
+              account.field("id", n);
+              account.field("name", "Luca");
+              account.field("surname", "Garulli");
+              account.save();
+
+              db.commit();
+            }
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          } finally {
+            db.close();
+          }
+        }
+      });
+      workers[i].start();
+    }
+
+    final long start = System.nanoTime();
+    startLatch.countDown();
+
+    for (Thread worker : workers)
+      worker.join();
+
+    final long elapsed = System.nanoTime() - start;
+    return (long) threads * TX_PER_THREAD * 1000000000L / elapsed;
+  }
+}
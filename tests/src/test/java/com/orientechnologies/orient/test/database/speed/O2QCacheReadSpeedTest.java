@@ -0,0 +1,102 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.directmemory.ODirectMemoryFactory;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.O2QCache;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+
+/**
+ * Measures throughput of page load/release operations of disk cache from increasing amount of threads. All pages fit in cache, so
+ * only cost of cache bookkeeping is measured. Cache which is not split into segments is used as reference.
+ */
+@Test(enabled = false)
+public class O2QCacheReadSpeedTest {
+  private static final int   PAGE_SIZE        = 4 * 1024;
+  private static final int   PAGES            = 64 * 1024;
+  private static final int   READS_PER_THREAD = 2000000;
+  private static final int[] THREADS          = { 1, 2, 4, 8, 16, 32 };
+
+  public static void main(String[] args) throws Exception {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    final OLocalPaginatedStorage storage = (OLocalPaginatedStorage) Orient.instance().loadStorage(
+        "plocal:" + System.getProperty("java.io.tmpdir") + "/o2QCacheReadSpeedTest");
+
+    final int concurrencyLevel = OGlobalConfiguration.DISK_CACHE_CONCURRENCY_LEVEL.getValueAsInteger();
+    for (int segments : new int[] { 1, concurrencyLevel }) {
+      final O2QCache cache = new O2QCache(2L * PAGES * PAGE_SIZE, 15000, ODirectMemoryFactory.INSTANCE.directMemory(), null,
+          PAGE_SIZE, storage, false, segments);
+
+      final long fileId = cache.openFile("o2QCacheReadSpeedTest.tst");
+      for (long i = 0; i < PAGES; i++) {
+        cache.load(fileId, i);
+        cache.release(fileId, i);
+      }
+
+      for (int threads : THREADS)
+        System.out.println(String.format("concurrency level: %d, threads: %d, loads/s: %d", segments, threads,
+            run(cache, fileId, threads)));
+
+      cache.deleteFile(fileId);
+      cache.close();
+    }
+
+    storage.delete();
+  }
+
+  private static long run(final O2QCache cache, final long fileId, int threads) throws InterruptedException {
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final Thread[] workers = new Thread[threads];
+
+    for (int i = 0; i < threads; i++) {
+      workers[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          final Random random = new Random();
+          try {
+            startLatch.await();
+
+            for (int n = 0; n < READS_PER_THREAD; n++) {
+              final long pageIndex = random.nextInt(PAGES);
+              cache.load(fileId, pageIndex);
+              cache.release(fileId, pageIndex);
+            }
+          } catch (Exception e) {
+            throw new IllegalStateException(e);
+          }
+        }
+      });
+      workers[i].start();
+    }
+
+    final long start = System.nanoTime();
+    startLatch.countDown();
+
+    for (Thread worker : workers)
+      worker.join();
+
+    final long elapsed = System.nanoTime() - start;
+    return (long) threads * READS_PER_THREAD * 1000000000L / elapsed;
+  }
+}
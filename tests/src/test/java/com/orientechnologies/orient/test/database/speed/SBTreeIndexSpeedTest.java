@@ -0,0 +1,104 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OSimpleKeyIndexDefinition;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+
+/**
+ * Compares the indexes based on the MVRB-Tree against the ones based on the paginated B+tree on a plocal database: insert of keys
+ * in random order, point lookups and range scans.
+ */
+@Test(enabled = false)
+public class SBTreeIndexSpeedTest {
+  private static final int      KEYS        = 1000000;
+  private static final int      LOOKUPS     = 1000000;
+  private static final int      RANGES      = 10000;
+  private static final int      RANGE_WIDTH = 100;
+
+  private static final String[] TYPES       = { OClass.INDEX_TYPE.UNIQUE.toString(), OClass.INDEX_TYPE.UNIQUE_SBTREE.toString() };
+
+  public static void main(String[] args) throws Exception {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/sbTreeIndexSpeedTest");
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+    db.create();
+
+    try {
+      final int[] keys = new int[KEYS];
+      for (int i = 0; i < KEYS; i++)
+        keys[i] = i;
+
+      final Random random = new Random(42);
+      for (int i = KEYS - 1; i > 0; i--) {
+        final int j = random.nextInt(i + 1);
+        final int tmp = keys[i];
+        keys[i] = keys[j];
+        keys[j] = tmp;
+      }
+
+      for (String type : TYPES) {
+        final OIndex<?> index = db.getMetadata().getIndexManager()
+            .createIndex("speed" + type, type, new OSimpleKeyIndexDefinition(OType.INTEGER), null, null);
+
+        long start = System.nanoTime();
+        for (int key : keys)
+          index.put(key, new ORecordId(1, OClusterPositionFactory.INSTANCE.valueOf(key)));
+        index.flush();
+        print(type, "insert", KEYS, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++)
+          index.get(random.nextInt(KEYS));
+        print(type, "point lookup", LOOKUPS, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        long fetched = 0;
+        for (int i = 0; i < RANGES; i++) {
+          final int from = random.nextInt(KEYS - RANGE_WIDTH);
+          fetched += index.getValuesBetween(from, true, from + RANGE_WIDTH, false).size();
+        }
+        print(type, "range scan of " + RANGE_WIDTH + " keys", RANGES, System.nanoTime() - start);
+
+        if (fetched != (long) RANGES * RANGE_WIDTH)
+          throw new IllegalStateException("Range scans fetched " + fetched + " values instead of " + RANGES * RANGE_WIDTH);
+
+        db.getMetadata().getIndexManager().dropIndex("speed" + type);
+      }
+    } finally {
+      db.drop();
+    }
+  }
+
+  private static void print(String type, String operation, int operations, long elapsed) {
+    System.out.println(String.format("index: %s, %s, operations/s: %d", type, operation, operations * 1000000000L / elapsed));
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+/**
+ * Measures latency and peak heap usage of ORDER BY ... LIMIT queries on a large class, both when the ORDER BY field is not indexed
+ * (only the first skip + limit records are kept while the class is scanned) and when it is covered by an index (the index is
+ * iterated in order).
+ */
+@Test(enabled = false)
+public class SQLOrderByLimitSpeedTest {
+  private static final int      RECORDS = 2000000;
+  private static final int      RUNS    = 5;
+
+  private static final String[] QUERIES = { "select from OrderByLimit order by value desc limit 20",
+      "select from OrderByLimit order by value limit 20 skip 1000", "select from OrderByLimit order by indexedValue desc limit 20",
+      "select from OrderByLimit where value < 1000000 order by value desc limit 20" };
+
+  public static void main(String[] args) throws Exception {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/sqlOrderByLimitSpeedTest");
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+    db.create();
+
+    try {
+      final OClass cls = db.getMetadata().getSchema().createClass("OrderByLimit");
+      cls.createProperty("value", OType.INTEGER);
+      cls.createProperty("indexedValue", OType.INTEGER).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+
+      final Random random = new Random(42);
+      db.declareIntent(new OIntentMassiveInsert());
+      for (int i = 0; i < RECORDS; i++) {
+        final int value = random.nextInt();
+        new ODocument("OrderByLimit").field("value", value).field("indexedValue", value).field("name", "record" + i).save();
+      }
+      db.declareIntent(null);
+
+      for (String query : QUERIES) {
+        long best = Long.MAX_VALUE;
+        long peakHeap = 0;
+
+        for (int i = 0; i < RUNS; i++) {
+          System.gc();
+          resetPeakHeapUsage();
+          final long heapBefore = getPeakHeapUsage();
+
+          final long start = System.nanoTime();
+          final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query));
+          best = Math.min(best, System.nanoTime() - start);
+
+          peakHeap = Math.max(peakHeap, getPeakHeapUsage() - heapBefore);
+
+          if (result.size() != 20)
+            throw new IllegalStateException("Query '" + query + "' returned " + result.size() + " records instead of 20");
+        }
+
+        System.out.println(String.format("query: %s, best time ms: %d, peak heap growth MB: %d", query, best / 1000000,
+            peakHeap / (1024 * 1024)));
+      }
+    } finally {
+      db.drop();
+    }
+  }
+
+  private static void resetPeakHeapUsage() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+      if (pool.getType() == MemoryType.HEAP)
+        pool.resetPeakUsage();
+  }
+
+  private static long getPeakHeapUsage() {
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+      if (pool.getType() == MemoryType.HEAP)
+        peak += pool.getPeakUsage().getUsed();
+
+    return peak;
+  }
+}
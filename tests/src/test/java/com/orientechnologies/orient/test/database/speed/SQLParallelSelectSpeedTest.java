@@ -0,0 +1,92 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+/**
+ * Compares the latency of full scans of a class stored in several clusters executed serially and with the PARALLEL keyword.
+ */
+@Test(enabled = false)
+public class SQLParallelSelectSpeedTest {
+  private static final int      RECORDS  = 2000000;
+  private static final int      CLUSTERS = 8;
+  private static final int      RUNS     = 5;
+
+  private static final String[] QUERIES  = { "select count(*), sum(value), max(value) from ParallelSelect where value < 500000",
+      "select from ParallelSelect where value < 1000 and name like 'record1%'",
+      "select name, value from ParallelSelect where value < 10000 order by value desc" };
+
+  public static void main(String[] args) throws Exception {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/sqlParallelSelectSpeedTest");
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+    db.create();
+
+    try {
+      final OClass cls = db.getMetadata().getSchema().createClass("ParallelSelect");
+      for (int i = 1; i < CLUSTERS; i++)
+        cls.addClusterId(db.addCluster("parallelselect" + i, OStorage.CLUSTER_TYPE.PHYSICAL));
+
+      final int[] clusterIds = cls.getClusterIds();
+      final Random random = new Random(42);
+      db.declareIntent(new OIntentMassiveInsert());
+      for (int i = 0; i < RECORDS; i++)
+        new ODocument("ParallelSelect").field("value", random.nextInt(1000000)).field("name", "record" + i)
+            .save(db.getClusterNameById(clusterIds[i % clusterIds.length]));
+      db.declareIntent(null);
+
+      for (String query : QUERIES) {
+        final long serial = measure(db, query);
+        final long parallel = measure(db, query + " parallel");
+
+        System.out.println(String.format("query: %s, best serial time ms: %d, best parallel time ms: %d", query, serial / 1000000,
+            parallel / 1000000));
+      }
+    } finally {
+      db.drop();
+    }
+  }
+
+  private static long measure(final ODatabaseDocumentTx db, final String query) {
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < RUNS; i++) {
+      final long start = System.nanoTime();
+      final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query));
+      best = Math.min(best, System.nanoTime() - start);
+
+      if (result.isEmpty())
+        throw new IllegalStateException("Query '" + query + "' returned no records");
+    }
+    return best;
+  }
+}